@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmark;
+
+import java.nio.ByteBuffer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.helger.commons.base64.Base64;
+import com.helger.commons.codec.Base64Codec;
+
+/**
+ * Benchmark for {@link Base64} encoding and decoding compared to the
+ * {@link ByteBuffer} based {@link Base64Codec}.
+ *
+ * @author Philip Helger
+ */
+@State (Scope.Benchmark)
+public class BenchmarkBase64 extends AbstractBenchmark
+{
+  @Param ({ "64", "65536" })
+  public int m_nByteCount;
+
+  private byte [] m_aBytes;
+  private String m_sEncoded;
+  private final Base64Codec m_aCodec = new Base64Codec ();
+  private ByteBuffer m_aDirectSrc;
+  private ByteBuffer m_aDirectEncoded;
+  private ByteBuffer m_aDirectDst;
+
+  @Setup
+  public void setup ()
+  {
+    m_aBytes = BenchmarkDatasets.getBytes (m_nByteCount);
+    m_sEncoded = Base64.encodeBytes (m_aBytes);
+    m_aDirectSrc = ByteBuffer.allocateDirect (m_nByteCount);
+    m_aDirectSrc.put (m_aBytes).flip ();
+    final byte [] aEncoded = Base64.safeEncodeBytesToBytes (m_aBytes);
+    m_aDirectEncoded = ByteBuffer.allocateDirect (aEncoded.length);
+    m_aDirectEncoded.put (aEncoded).flip ();
+    m_aDirectDst = ByteBuffer.allocateDirect (aEncoded.length);
+  }
+
+  @Benchmark
+  public String encode ()
+  {
+    return Base64.encodeBytes (m_aBytes);
+  }
+
+  @Benchmark
+  public byte [] decode ()
+  {
+    return Base64.safeDecode (m_sEncoded);
+  }
+
+  @Benchmark
+  public byte [] encodeCodec ()
+  {
+    return m_aCodec.getEncoded (m_aBytes);
+  }
+
+  @Benchmark
+  public ByteBuffer encodeDirectBuffer ()
+  {
+    m_aDirectDst.clear ();
+    m_aCodec.encode (m_aDirectSrc.duplicate (), m_aDirectDst, true);
+    return m_aDirectDst;
+  }
+
+  @Benchmark
+  public ByteBuffer decodeDirectBuffer ()
+  {
+    m_aDirectDst.clear ();
+    m_aCodec.decode (m_aDirectEncoded.duplicate (), m_aDirectDst, true);
+    return m_aDirectDst;
+  }
+}
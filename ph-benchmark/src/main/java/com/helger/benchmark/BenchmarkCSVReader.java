@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.csv.CSVParallelReader;
+import com.helger.commons.csv.CSVReader;
+import com.helger.commons.csv.CSVRow;
+import com.helger.commons.csv.CSVRowReader;
+import com.helger.commons.io.stream.NonBlockingStringReader;
+
+/**
+ * Benchmark for {@link CSVReader}, {@link CSVRowReader} and
+ * {@link CSVParallelReader}.
+ *
+ * @author Philip Helger
+ */
+@State (Scope.Benchmark)
+public class BenchmarkCSVReader extends AbstractBenchmark
+{
+  @Param ({ "10", "10000" })
+  public int m_nRows;
+
+  private String m_sCSV;
+  private char [] m_aCSVChars;
+
+  @Setup
+  public void setup ()
+  {
+    m_sCSV = BenchmarkDatasets.getCSV (m_nRows, 8);
+    m_aCSVChars = m_sCSV.toCharArray ();
+  }
+
+  @Benchmark
+  public ICommonsList <ICommonsList <String>> readAll () throws IOException
+  {
+    try (final CSVReader aReader = new CSVReader (new NonBlockingStringReader (m_sCSV)))
+    {
+      return aReader.readAll ();
+    }
+  }
+
+  @Benchmark
+  public void readNext (final Blackhole aBH) throws IOException
+  {
+    try (final CSVReader aReader = new CSVReader (new NonBlockingStringReader (m_sCSV)))
+    {
+      ICommonsList <String> aLine;
+      while ((aLine = aReader.readNext ()) != null)
+        aBH.consume (aLine);
+    }
+  }
+
+  @Benchmark
+  public void readNextRow (final Blackhole aBH) throws IOException
+  {
+    try (final CSVRowReader aReader = new CSVRowReader (new NonBlockingStringReader (m_sCSV)))
+    {
+      CSVRow aRow;
+      while ((aRow = aReader.readNextRow ()) != null)
+        aBH.consume (aRow.getField (0));
+    }
+  }
+
+  @Benchmark
+  public long readParallel ()
+  {
+    final LongAdder aFieldCount = new LongAdder ();
+    new CSVParallelReader ().setChunkSize (64 * 1024)
+                            .forEachRow (m_aCSVChars, x -> aFieldCount.add (x.getFieldCount ()));
+    return aFieldCount.sum ();
+  }
+}
@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmark;
+
+import java.util.Random;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+
+/**
+ * Reproducible datasets for the benchmarks. All data is derived from a
+ * {@link Random} with a fixed seed, so every run on every machine works on
+ * exactly the same input. Changing any of the generators invalidates the
+ * comparison with older results, so {@link #DATASET_VERSION} must be
+ * increased in that case.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class BenchmarkDatasets
+{
+  /** The version of the generated data. Part of every result file. */
+  public static final int DATASET_VERSION = 1;
+  /** The seed used for all generators */
+  public static final long SEED = 20200501L;
+
+  private static final String WORDS [] = { "lorem",
+                                           "ipsum",
+                                           "dolor",
+                                           "sit",
+                                           "amet",
+                                           "consectetur",
+                                           "adipiscing",
+                                           "elit",
+                                           "sed",
+                                           "do",
+                                           "eiusmod",
+                                           "tempor",
+                                           "incididunt",
+                                           "ut",
+                                           "labore",
+                                           "et",
+                                           "dolore",
+                                           "magna",
+                                           "aliqua",
+                                           "Grüße",
+                                           "naïve",
+                                           "<tag>",
+                                           "a&b",
+                                           "\"quoted\"" };
+
+  private BenchmarkDatasets ()
+  {}
+
+  @Nonnull
+  private static Random _createRandom ()
+  {
+    return new Random (SEED);
+  }
+
+  @Nonnull
+  private static String _getWord (@Nonnull final Random aRandom)
+  {
+    return WORDS[aRandom.nextInt (WORDS.length)];
+  }
+
+  /**
+   * @param nLength
+   *        The minimum number of characters. Must be &ge; 0.
+   * @return A text of words separated by blanks with at least the provided
+   *         number of characters.
+   */
+  @Nonnull
+  public static String getText (@Nonnegative final int nLength)
+  {
+    ValueEnforcer.isGE0 (nLength, "Length");
+    final Random aRandom = _createRandom ();
+    final StringBuilder aSB = new StringBuilder (nLength + 16);
+    while (aSB.length () < nLength)
+    {
+      if (aSB.length () > 0)
+        aSB.append (' ');
+      aSB.append (_getWord (aRandom));
+    }
+    return aSB.toString ();
+  }
+
+  /**
+   * @param nByteCount
+   *        The number of bytes. Must be &ge; 0.
+   * @return An array with pseudo random bytes.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static byte [] getBytes (@Nonnegative final int nByteCount)
+  {
+    ValueEnforcer.isGE0 (nByteCount, "ByteCount");
+    final byte [] ret = new byte [nByteCount];
+    _createRandom ().nextBytes (ret);
+    return ret;
+  }
+
+  /**
+   * @param nRows
+   *        The number of data rows. Must be &ge; 0.
+   * @param nColumns
+   *        The number of columns. Must be &gt; 0.
+   * @return CSV with a header row and the provided number of data rows. Some
+   *         cells are quoted and contain separators, quotes or line breaks.
+   */
+  @Nonnull
+  public static String getCSV (@Nonnegative final int nRows, @Nonnegative final int nColumns)
+  {
+    ValueEnforcer.isGE0 (nRows, "Rows");
+    ValueEnforcer.isGT0 (nColumns, "Columns");
+    final Random aRandom = _createRandom ();
+    final StringBuilder aSB = new StringBuilder ();
+    for (int nCol = 0; nCol < nColumns; ++nCol)
+    {
+      if (nCol > 0)
+        aSB.append (',');
+      aSB.append ("column").append (nCol);
+    }
+    aSB.append ('\n');
+    for (int nRow = 0; nRow < nRows; ++nRow)
+    {
+      for (int nCol = 0; nCol < nColumns; ++nCol)
+      {
+        if (nCol > 0)
+          aSB.append (',');
+        switch (aRandom.nextInt (8))
+        {
+          case 0:
+            aSB.append ("\"").append (_getWord (aRandom)).append (", ").append (_getWord (aRandom)).append ('"');
+            break;
+          case 1:
+            aSB.append ("\"").append (_getWord (aRandom)).append ("\"\"\n").append (_getWord (aRandom)).append ('"');
+            break;
+          case 2:
+          case 3:
+            aSB.append (aRandom.nextInt (1_000_000));
+            break;
+          default:
+            aSB.append (_getWord (aRandom).replace ('"', '\''));
+            break;
+        }
+      }
+      aSB.append ('\n');
+    }
+    return aSB.toString ();
+  }
+
+  /**
+   * @param nItems
+   *        The number of items in the top-level array. Must be &ge; 0.
+   * @return A JSON array of objects with nested arrays and objects.
+   */
+  @Nonnull
+  public static String getJson (@Nonnegative final int nItems)
+  {
+    ValueEnforcer.isGE0 (nItems, "Items");
+    final Random aRandom = _createRandom ();
+    final StringBuilder aSB = new StringBuilder ("[");
+    for (int i = 0; i < nItems; ++i)
+    {
+      if (i > 0)
+        aSB.append (',');
+      aSB.append ("{\"id\":")
+         .append (i)
+         .append (",\"name\":\"")
+         .append (_getWord (aRandom).replace ("\"", "\\\""))
+         .append ("\",\"active\":")
+         .append (aRandom.nextBoolean ())
+         .append (",\"score\":")
+         .append (aRandom.nextInt (100_000) / 100.0)
+         .append (",\"tags\":[");
+      final int nTags = aRandom.nextInt (5);
+      for (int j = 0; j < nTags; ++j)
+      {
+        if (j > 0)
+          aSB.append (',');
+        aSB.append ('"').append (_getWord (aRandom).replace ("\"", "\\\"")).append ('"');
+      }
+      aSB.append ("],\"nested\":{\"value\":")
+         .append (aRandom.nextLong ())
+         .append (",\"text\":\"")
+         .append (getText (20 + aRandom.nextInt (40)).replace ("\"", "\\\""))
+         .append ("\"}}");
+    }
+    aSB.append (']');
+    return aSB.toString ();
+  }
+
+  /**
+   * @param nElements
+   *        The number of child elements of the root element. Must be &ge; 0.
+   * @return An XML document with attributes, nested elements, text content and
+   *         characters that need masking.
+   */
+  @Nonnull
+  public static String getXML (@Nonnegative final int nElements)
+  {
+    ValueEnforcer.isGE0 (nElements, "Elements");
+    final Random aRandom = _createRandom ();
+    final StringBuilder aSB = new StringBuilder ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<root xmlns=\"urn:benchmark\">");
+    for (int i = 0; i < nElements; ++i)
+    {
+      aSB.append ("<item id=\"")
+         .append (i)
+         .append ("\" active=\"")
+         .append (aRandom.nextBoolean ())
+         .append ("\"><name>")
+         .append (_getWord (aRandom).replace ("&", "&amp;").replace ("<", "&lt;").replace (">", "&gt;"))
+         .append ("</name><value>")
+         .append (aRandom.nextInt (1_000_000))
+         .append ("</value><description>")
+         .append (getText (20 + aRandom.nextInt (60)).replace ("&", "&amp;").replace ("<", "&lt;").replace (">", "&gt;"))
+         .append ("</description></item>");
+    }
+    aSB.append ("</root>");
+    return aSB.toString ();
+  }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.helger.json.IJson;
+import com.helger.json.serialize.JsonReader;
+import com.helger.json.serialize.JsonWriter;
+import com.helger.json.serialize.JsonWriterSettings;
+
+/**
+ * Benchmark for {@link JsonReader} and {@link JsonWriter}.
+ *
+ * @author Philip Helger
+ */
+@State (Scope.Benchmark)
+public class BenchmarkJson extends AbstractBenchmark
+{
+  @Param ({ "10", "1000" })
+  public int m_nItems;
+
+  private String m_sJson;
+  private IJson m_aJson;
+  private JsonWriter m_aWriter;
+  private JsonWriter m_aIndentWriter;
+
+  @Setup
+  public void setup ()
+  {
+    m_sJson = BenchmarkDatasets.getJson (m_nItems);
+    m_aJson = JsonReader.readFromString (m_sJson);
+    m_aWriter = new JsonWriter ();
+    m_aIndentWriter = new JsonWriter (new JsonWriterSettings ().setIndentEnabled (true));
+  }
+
+  @Benchmark
+  public IJson read ()
+  {
+    return JsonReader.readFromString (m_sJson);
+  }
+
+  @Benchmark
+  public String write ()
+  {
+    return m_aWriter.writeAsString (m_aJson);
+  }
+
+  @Benchmark
+  public String writeIndented ()
+  {
+    return m_aIndentWriter.writeAsString (m_aJson);
+  }
+}
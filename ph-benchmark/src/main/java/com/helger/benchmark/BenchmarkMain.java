@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmark;
+
+import java.io.File;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.helger.commons.collection.ArrayHelper;
+import com.helger.commons.io.file.FileOperationManager;
+
+/**
+ * Entry point of the benchmark JAR. All JMH command line options are
+ * supported. Unless specified otherwise, the results are written in the JSON
+ * format to <code>target/jmh-results/&lt;label&gt;.json</code>, where the
+ * label is taken from the system property {@value #SYSTEM_PROPERTY_LABEL} and
+ * defaults to {@value #DEFAULT_LABEL}. Use {@link BenchmarkResultComparer} to
+ * compare two result files.<br>
+ * Example: <code>java -Dph.benchmark.label=9.4.3 -jar target/benchmarks.jar Json</code>
+ *
+ * @author Philip Helger
+ */
+public final class BenchmarkMain
+{
+  public static final String SYSTEM_PROPERTY_LABEL = "ph.benchmark.label";
+  public static final String DEFAULT_LABEL = "current";
+
+  private BenchmarkMain ()
+  {}
+
+  public static void main (final String [] aArgs) throws RunnerException, CommandLineOptionException
+  {
+    final ChainedOptionsBuilder aOptions = new OptionsBuilder ().parent (new CommandLineOptions (aArgs));
+    if (!ArrayHelper.contains (aArgs, "-rf") && !ArrayHelper.contains (aArgs, "-rff"))
+    {
+      final String sLabel = System.getProperty (SYSTEM_PROPERTY_LABEL, DEFAULT_LABEL);
+      final File aResultFile = new File ("target/jmh-results", sLabel + "-data" + BenchmarkDatasets.DATASET_VERSION + ".json");
+      FileOperationManager.INSTANCE.createDirRecursiveIfNotExisting (aResultFile.getParentFile ());
+      aOptions.resultFormat (ResultFormatType.JSON).result (aResultFile.getPath ());
+    }
+    new Runner (aOptions.build ()).run ();
+  }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.helger.commons.cache.ConcurrentMappedCache;
+import com.helger.commons.cache.IMutableCache;
+import com.helger.commons.cache.MappedCache;
+
+/**
+ * Benchmark for {@link MappedCache} and {@link ConcurrentMappedCache}. The hit
+ * variants only request keys that fit into the cache, the mixed variants
+ * request twice as many keys as the cache can hold.
+ *
+ * @author Philip Helger
+ */
+@State (Scope.Benchmark)
+public class BenchmarkMappedCache extends AbstractBenchmark
+{
+  private static final int MAX_SIZE = 1000;
+
+  /**
+   * The key sequence per thread.
+   */
+  @State (Scope.Thread)
+  public static class KeySequence
+  {
+    private int m_nIndex;
+
+    public int next (final int nModulo)
+    {
+      final int ret = m_nIndex % nModulo;
+      m_nIndex++;
+      return ret;
+    }
+  }
+
+  @Param ({ "MappedCache", "ConcurrentMappedCache" })
+  public String m_sImpl;
+
+  private IMutableCache <Integer, String> m_aCache;
+
+  @Setup
+  public void setup ()
+  {
+    if ("MappedCache".equals (m_sImpl))
+      m_aCache = new MappedCache <> (x -> x, x -> "value" + x, MAX_SIZE, "benchmark", false);
+    else
+      m_aCache = new ConcurrentMappedCache.Builder <Integer, Integer, String> ().setCacheKeyProvider (x -> x)
+                                                                              .setValueProvider (x -> "value" + x)
+                                                                              .setMaxSize (MAX_SIZE)
+                                                                              .setName ("benchmark")
+                                                                              .build ();
+    // Prefill
+    for (int i = 0; i < MAX_SIZE; ++i)
+      m_aCache.getFromCache (Integer.valueOf (i));
+  }
+
+  @Benchmark
+  public String hit (final KeySequence aSeq)
+  {
+    return m_aCache.getFromCache (Integer.valueOf (aSeq.next (MAX_SIZE)));
+  }
+
+  @Benchmark
+  @Threads (4)
+  public String hitContended (final KeySequence aSeq)
+  {
+    return m_aCache.getFromCache (Integer.valueOf (aSeq.next (MAX_SIZE)));
+  }
+
+  @Benchmark
+  public String mixed (final KeySequence aSeq)
+  {
+    return m_aCache.getFromCache (Integer.valueOf (aSeq.next (MAX_SIZE * 2)));
+  }
+
+  @Benchmark
+  @Threads (4)
+  public String mixedContended (final KeySequence aSeq)
+  {
+    return m_aCache.getFromCache (Integer.valueOf (aSeq.next (MAX_SIZE * 2)));
+  }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.helger.xml.microdom.IMicroDocument;
+import com.helger.xml.microdom.serialize.MicroReader;
+import com.helger.xml.microdom.serialize.MicroWriter;
+
+/**
+ * Benchmark for {@link MicroReader} and {@link MicroWriter}.
+ *
+ * @author Philip Helger
+ */
+@State (Scope.Benchmark)
+public class BenchmarkMicroDOM extends AbstractBenchmark
+{
+  @Param ({ "10", "1000" })
+  public int m_nElements;
+
+  private String m_sXML;
+  private IMicroDocument m_aDoc;
+
+  @Setup
+  public void setup ()
+  {
+    m_sXML = BenchmarkDatasets.getXML (m_nElements);
+    m_aDoc = MicroReader.readMicroXML (m_sXML);
+  }
+
+  @Benchmark
+  public IMicroDocument read ()
+  {
+    return MicroReader.readMicroXML (m_sXML);
+  }
+
+  @Benchmark
+  public String write ()
+  {
+    return MicroWriter.getNodeAsString (m_aDoc);
+  }
+}
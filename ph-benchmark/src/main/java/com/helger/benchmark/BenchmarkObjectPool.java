@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.helger.commons.pool.ConcurrentObjectPool;
+import com.helger.commons.pool.IMutableObjectPool;
+import com.helger.commons.pool.ObjectPool;
+
+/**
+ * Benchmark for borrowing and returning objects from {@link ObjectPool} and
+ * {@link ConcurrentObjectPool}. The pool is large enough for all threads, so
+ * that only the pool overhead is measured.
+ *
+ * @author Philip Helger
+ */
+@State (Scope.Benchmark)
+public class BenchmarkObjectPool extends AbstractBenchmark
+{
+  private static final int POOL_SIZE = 8;
+
+  @Param ({ "ObjectPool", "ConcurrentObjectPool" })
+  public String m_sImpl;
+
+  private IMutableObjectPool <StringBuilder> m_aPool;
+
+  @Setup
+  public void setup ()
+  {
+    if ("ObjectPool".equals (m_sImpl))
+      m_aPool = new ObjectPool <> (POOL_SIZE, StringBuilder::new);
+    else
+      m_aPool = new ConcurrentObjectPool.Builder <StringBuilder> ().setFactory (StringBuilder::new)
+                                                                   .setMaxSize (POOL_SIZE)
+                                                                   .setName ("benchmark")
+                                                                   .build ();
+  }
+
+  private int _borrowAndReturn ()
+  {
+    final StringBuilder aSB = m_aPool.borrowObject ();
+    try
+    {
+      aSB.setLength (0);
+      return aSB.append ("abc").length ();
+    }
+    finally
+    {
+      m_aPool.returnObject (aSB);
+    }
+  }
+
+  @Benchmark
+  public int borrowAndReturn ()
+  {
+    return _borrowAndReturn ();
+  }
+
+  @Benchmark
+  @Threads (4)
+  public int borrowAndReturnContended ()
+  {
+    return _borrowAndReturn ();
+  }
+}
@@ -0,0 +1,297 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmark;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.CommonsTreeMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.collection.impl.ICommonsSortedMap;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.json.IJson;
+import com.helger.json.IJsonArray;
+import com.helger.json.IJsonObject;
+import com.helger.json.serialize.JsonReader;
+
+/**
+ * Compares two JMH result files in the JSON format (as created by
+ * {@link BenchmarkMain}) and reports all regressions. A benchmark is only
+ * considered a regression if it is slower by more than the provided threshold
+ * and if the difference is larger than the combined score errors of both
+ * runs.<br>
+ * Usage: <code>BenchmarkResultComparer baseline.json current.json [threshold-percent]</code>
+ * <br>
+ * The process exits with code 1 if at least one regression was found.
+ *
+ * @author Philip Helger
+ */
+public final class BenchmarkResultComparer
+{
+  public static final double DEFAULT_THRESHOLD_PERCENT = 10;
+
+  /**
+   * The comparison of a single benchmark with a single parameter set.
+   *
+   * @author Philip Helger
+   */
+  @Immutable
+  public static final class Comparison
+  {
+    private final String m_sKey;
+    private final boolean m_bHigherIsBetter;
+    private final String m_sUnit;
+    private final double m_dBaselineScore;
+    private final double m_dBaselineError;
+    private final double m_dCurrentScore;
+    private final double m_dCurrentError;
+    private final double m_dThresholdPercent;
+
+    Comparison (@Nonnull @Nonempty final String sKey,
+                final boolean bHigherIsBetter,
+                @Nonnull final String sUnit,
+                final double dBaselineScore,
+                final double dBaselineError,
+                final double dCurrentScore,
+                final double dCurrentError,
+                final double dThresholdPercent)
+    {
+      m_sKey = sKey;
+      m_bHigherIsBetter = bHigherIsBetter;
+      m_sUnit = sUnit;
+      m_dBaselineScore = dBaselineScore;
+      m_dBaselineError = dBaselineError;
+      m_dCurrentScore = dCurrentScore;
+      m_dCurrentError = dCurrentError;
+      m_dThresholdPercent = dThresholdPercent;
+    }
+
+    /**
+     * @return The benchmark name including the parameters.
+     */
+    @Nonnull
+    @Nonempty
+    public String getKey ()
+    {
+      return m_sKey;
+    }
+
+    @Nonnull
+    public String getUnit ()
+    {
+      return m_sUnit;
+    }
+
+    public double getBaselineScore ()
+    {
+      return m_dBaselineScore;
+    }
+
+    public double getCurrentScore ()
+    {
+      return m_dCurrentScore;
+    }
+
+    /**
+     * @return The change in percent. Positive values are always improvements,
+     *         negative values are always regressions - independent of the
+     *         benchmark mode.
+     */
+    public double getImprovementPercent ()
+    {
+      if (m_dBaselineScore == 0)
+        return 0;
+      final double dChange = (m_dCurrentScore - m_dBaselineScore) / m_dBaselineScore * 100;
+      return m_bHigherIsBetter ? dChange : -dChange;
+    }
+
+    private boolean _isSignificant ()
+    {
+      // NaN errors (e.g. from single iterations) are treated as 0
+      final double dError = (Double.isNaN (m_dBaselineError) ? 0 : m_dBaselineError) +
+                            (Double.isNaN (m_dCurrentError) ? 0 : m_dCurrentError);
+      return Math.abs (m_dCurrentScore - m_dBaselineScore) > dError;
+    }
+
+    public boolean isRegression ()
+    {
+      return getImprovementPercent () < -m_dThresholdPercent && _isSignificant ();
+    }
+
+    public boolean isImprovement ()
+    {
+      return getImprovementPercent () > m_dThresholdPercent && _isSignificant ();
+    }
+
+    @Override
+    public String toString ()
+    {
+      return new ToStringGenerator (this).append ("Key", m_sKey)
+                                         .append ("HigherIsBetter", m_bHigherIsBetter)
+                                         .append ("Unit", m_sUnit)
+                                         .append ("BaselineScore", m_dBaselineScore)
+                                         .append ("BaselineError", m_dBaselineError)
+                                         .append ("CurrentScore", m_dCurrentScore)
+                                         .append ("CurrentError", m_dCurrentError)
+                                         .append ("ThresholdPercent", m_dThresholdPercent)
+                                         .getToString ();
+    }
+  }
+
+  private BenchmarkResultComparer ()
+  {}
+
+  @Nonnull
+  private static String _getKey (@Nonnull final IJsonObject aResult)
+  {
+    final StringBuilder aSB = new StringBuilder (aResult.getAsString ("benchmark"));
+    final IJsonObject aParams = aResult.getAsObject ("params");
+    if (aParams != null)
+    {
+      // Sort the parameters for a stable key
+      final ICommonsSortedMap <String, String> aSorted = new CommonsTreeMap <> ();
+      for (final Map.Entry <String, IJson> aEntry : aParams)
+        aSorted.put (aEntry.getKey (), aEntry.getValue ().getAsValue ().getAsString ());
+      aSB.append (aSorted.toString ());
+    }
+    return aSB.toString ();
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  private static ICommonsOrderedMap <String, IJsonObject> _index (@Nonnull final IJsonArray aResults)
+  {
+    final ICommonsOrderedMap <String, IJsonObject> ret = new CommonsLinkedHashMap <> ();
+    for (final IJson aJson : aResults)
+      if (aJson.isObject ())
+      {
+        final IJsonObject aResult = aJson.getAsObject ();
+        ret.put (_getKey (aResult) + " " + aResult.getAsString ("mode"), aResult);
+      }
+    return ret;
+  }
+
+  /**
+   * Compare two JMH result sets. Benchmarks that are only contained in one of
+   * the result sets are ignored.
+   *
+   * @param aBaseline
+   *        The JMH JSON results of the baseline. May not be <code>null</code>.
+   * @param aCurrent
+   *        The JMH JSON results of the current run. May not be
+   *        <code>null</code>.
+   * @param dThresholdPercent
+   *        The threshold in percent. Changes below this value are neither
+   *        regressions nor improvements. Must be &ge; 0.
+   * @return All comparisons in the order of the current results. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static ICommonsList <Comparison> compare (@Nonnull final IJsonArray aBaseline,
+                                                   @Nonnull final IJsonArray aCurrent,
+                                                   final double dThresholdPercent)
+  {
+    ValueEnforcer.notNull (aBaseline, "Baseline");
+    ValueEnforcer.notNull (aCurrent, "Current");
+    ValueEnforcer.isTrue (dThresholdPercent >= 0, "ThresholdPercent must be >= 0");
+
+    final ICommonsOrderedMap <String, IJsonObject> aBaselineMap = _index (aBaseline);
+    final ICommonsList <Comparison> ret = new CommonsArrayList <> ();
+    for (final Map.Entry <String, IJsonObject> aEntry : _index (aCurrent).entrySet ())
+    {
+      final IJsonObject aBaselineResult = aBaselineMap.get (aEntry.getKey ());
+      if (aBaselineResult != null)
+      {
+        final IJsonObject aBaselineMetric = aBaselineResult.getAsObject ("primaryMetric");
+        final IJsonObject aCurrentMetric = aEntry.getValue ().getAsObject ("primaryMetric");
+        if (aBaselineMetric != null && aCurrentMetric != null)
+        {
+          // Only throughput is "higher is better"
+          final boolean bHigherIsBetter = "thrpt".equals (aEntry.getValue ().getAsString ("mode"));
+          ret.add (new Comparison (aEntry.getKey (),
+                                   bHigherIsBetter,
+                                   aCurrentMetric.getAsString ("scoreUnit", ""),
+                                   aBaselineMetric.getAsDouble ("score", Double.NaN),
+                                   aBaselineMetric.getAsDouble ("scoreError", Double.NaN),
+                                   aCurrentMetric.getAsDouble ("score", Double.NaN),
+                                   aCurrentMetric.getAsDouble ("scoreError", Double.NaN),
+                                   dThresholdPercent));
+        }
+      }
+    }
+    return ret;
+  }
+
+  @Nullable
+  private static IJsonArray _readResults (@Nonnull final String sFilename)
+  {
+    try (final JsonReader.Builder aBuilder = JsonReader.builder ().setSource (new File (sFilename)))
+    {
+      final IJson aJson = aBuilder.read ();
+      return aJson == null ? null : aJson.getAsArray ();
+    }
+  }
+
+  public static void main (final String [] aArgs)
+  {
+    if (aArgs.length < 2)
+    {
+      System.err.println ("Usage: BenchmarkResultComparer baseline.json current.json [threshold-percent]");
+      System.exit (2);
+    }
+
+    final IJsonArray aBaseline = _readResults (aArgs[0]);
+    final IJsonArray aCurrent = _readResults (aArgs[1]);
+    if (aBaseline == null || aCurrent == null)
+    {
+      System.err.println ("Failed to read the JMH JSON result files");
+      System.exit (2);
+    }
+    final double dThreshold = aArgs.length > 2 ? Double.parseDouble (aArgs[2]) : DEFAULT_THRESHOLD_PERCENT;
+
+    int nRegressions = 0;
+    for (final Comparison aComparison : compare (aBaseline, aCurrent, dThreshold))
+    {
+      final String sState = aComparison.isRegression () ? "REGRESSION" : aComparison.isImprovement () ? "improved" : "";
+      System.out.println (String.format (Locale.ROOT,
+                                         "%-100s %14.3f %14.3f %-8s %+8.1f%% %s",
+                                         aComparison.getKey (),
+                                         Double.valueOf (aComparison.getBaselineScore ()),
+                                         Double.valueOf (aComparison.getCurrentScore ()),
+                                         aComparison.getUnit (),
+                                         Double.valueOf (aComparison.getImprovementPercent ()),
+                                         sState));
+      if (aComparison.isRegression ())
+        nRegressions++;
+    }
+    System.out.println (nRegressions + " regression(s) with a threshold of " + dThreshold + "%");
+    if (nRegressions > 0)
+      System.exit (1);
+  }
+}
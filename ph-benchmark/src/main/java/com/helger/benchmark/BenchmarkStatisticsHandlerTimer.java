@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.helger.commons.statistics.IMutableStatisticsHandlerTimer;
+import com.helger.commons.statistics.StatisticsHandlerTimer;
+import com.helger.commons.statistics.StatisticsManager;
+
+/**
+ * Benchmark for {@link StatisticsHandlerTimer#addTime(long)}, single threaded
+ * and contended.
+ *
+ * @author Philip Helger
+ */
+@State (Scope.Benchmark)
+public class BenchmarkStatisticsHandlerTimer extends AbstractBenchmark
+{
+  /**
+   * The measured value per thread
+   */
+  @State (Scope.Thread)
+  public static class TimeSequence
+  {
+    private long m_nTime;
+
+    public long next ()
+    {
+      m_nTime = (m_nTime + 7) % 5000;
+      return m_nTime;
+    }
+  }
+
+  private IMutableStatisticsHandlerTimer m_aTimer;
+
+  @Setup
+  public void setup ()
+  {
+    m_aTimer = new StatisticsHandlerTimer ();
+  }
+
+  @Benchmark
+  public void addTime (final TimeSequence aSeq)
+  {
+    m_aTimer.addTime (aSeq.next ());
+  }
+
+  @Benchmark
+  @Threads (4)
+  public void addTimeContended (final TimeSequence aSeq)
+  {
+    m_aTimer.addTime (aSeq.next ());
+  }
+
+  @Benchmark
+  public void addTimeViaManager (final TimeSequence aSeq)
+  {
+    // Includes the registry lookup
+    StatisticsManager.getTimerHandler (BenchmarkStatisticsHandlerTimer.class).addTime (aSeq.next ());
+  }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.string.StringHelper;
+
+/**
+ * Benchmark for the replace and explode methods of {@link StringHelper}.
+ *
+ * @author Philip Helger
+ */
+@State (Scope.Benchmark)
+public class BenchmarkStringHelper extends AbstractBenchmark
+{
+  private static final String [] SEARCH = { "<", ">", "&", "\"" };
+  private static final String [] REPLACE = { "&lt;", "&gt;", "&amp;", "&quot;" };
+
+  @Param ({ "100", "10000" })
+  public int m_nLength;
+
+  private String m_sText;
+  private String m_sCSVLine;
+
+  @Setup
+  public void setup ()
+  {
+    m_sText = BenchmarkDatasets.getText (m_nLength);
+    m_sCSVLine = m_sText.replace (' ', ',');
+  }
+
+  @Benchmark
+  public String replaceAllString ()
+  {
+    return StringHelper.replaceAll (m_sText, "lorem", "LOREM");
+  }
+
+  @Benchmark
+  public String replaceAllChar ()
+  {
+    return StringHelper.replaceAll (m_sText, ' ', '_');
+  }
+
+  @Benchmark
+  public String replaceMultiple ()
+  {
+    return StringHelper.replaceMultiple (m_sText, SEARCH, REPLACE);
+  }
+
+  @Benchmark
+  public ICommonsList <String> explodeChar ()
+  {
+    return StringHelper.getExploded (',', m_sCSVLine);
+  }
+
+  @Benchmark
+  public ICommonsList <String> explodeString ()
+  {
+    return StringHelper.getExploded (", ", m_sCSVLine);
+  }
+}
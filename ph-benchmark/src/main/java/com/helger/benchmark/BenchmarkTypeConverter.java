@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmark;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.net.URI;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.helger.commons.typeconvert.TypeConverter;
+
+/**
+ * Benchmark for {@link TypeConverter#convert(Object, Class)} using exact,
+ * rule based and fuzzy converters.
+ *
+ * @author Philip Helger
+ */
+@State (Scope.Benchmark)
+public class BenchmarkTypeConverter extends AbstractBenchmark
+{
+  /**
+   * A class without own converters, so that the converters of the super
+   * class must be searched.
+   */
+  private static final class MockFile extends File
+  {
+    MockFile (final String sPath)
+    {
+      super (sPath);
+    }
+  }
+
+  private final String m_sInt = "4711";
+  private final Integer m_aInt = Integer.valueOf (4711);
+  private final BigDecimal m_aBigDecimal = new BigDecimal ("4711.0815");
+  private final StringBuilder m_aSB = new StringBuilder ("text");
+  private final File m_aFile = new MockFile ("target/benchmark.txt");
+
+  @Benchmark
+  public Integer exactStringToInteger ()
+  {
+    return TypeConverter.convert (m_sInt, Integer.class);
+  }
+
+  @Benchmark
+  public String exactIntegerToString ()
+  {
+    return TypeConverter.convert (m_aInt, String.class);
+  }
+
+  @Benchmark
+  public Long exactBigDecimalToLong ()
+  {
+    return TypeConverter.convert (m_aBigDecimal, Long.class);
+  }
+
+  @Benchmark
+  public int primitiveInt ()
+  {
+    return TypeConverter.convertToInt (m_sInt);
+  }
+
+  @Benchmark
+  public String ruleStringBuilderToString ()
+  {
+    return TypeConverter.convert (m_aSB, String.class);
+  }
+
+  @Benchmark
+  public URI fuzzyFileSubclassToURI ()
+  {
+    return TypeConverter.convert (m_aFile, URI.class);
+  }
+
+  @Benchmark
+  public Number assignableIntegerToNumber ()
+  {
+    // No converter needed
+    return TypeConverter.convert (m_aInt, Number.class);
+  }
+}
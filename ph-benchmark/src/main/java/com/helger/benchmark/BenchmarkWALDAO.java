@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.helger.commons.id.IHasID;
+import com.helger.commons.io.file.FileOperationManager;
+import com.helger.commons.io.relative.FileRelativeIO;
+import com.helger.dao.DAOException;
+import com.helger.dao.wal.AbstractMapBasedWALDAO;
+import com.helger.dao.wal.EWALFormat;
+import com.helger.scope.mock.ScopeAwareTestSetup;
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.MicroElement;
+import com.helger.xml.microdom.convert.IMicroTypeConverter;
+import com.helger.xml.microdom.convert.MicroTypeConverterRegistry;
+
+/**
+ * Benchmark for creating and updating items in an
+ * {@link AbstractMapBasedWALDAO}. Each iteration starts with a fresh DAO in a
+ * new temporary directory that contains {@link #ITEM_COUNT} items. The
+ * default waiting time is used, so the benchmark covers the WAL append and
+ * not the rewrite of the main file.
+ *
+ * @author Philip Helger
+ */
+@State (Scope.Benchmark)
+public class BenchmarkWALDAO extends AbstractBenchmark
+{
+  private static final int ITEM_COUNT = 1000;
+
+  private static final class BenchmarkItem implements IHasID <String>, Serializable
+  {
+    private final String m_sID;
+    private final String m_sValue;
+
+    public BenchmarkItem (@Nonnull final String sID, @Nonnull final String sValue)
+    {
+      m_sID = sID;
+      m_sValue = sValue;
+    }
+
+    @Nonnull
+    public String getID ()
+    {
+      return m_sID;
+    }
+
+    @Nonnull
+    public String getValue ()
+    {
+      return m_sValue;
+    }
+  }
+
+  private static final class BenchmarkItemMicroTypeConverter implements IMicroTypeConverter <BenchmarkItem>
+  {
+    @Nonnull
+    public IMicroElement convertToMicroElement (@Nonnull final BenchmarkItem aObject,
+                                                @Nullable final String sNamespaceURI,
+                                                @Nonnull final String sTagName)
+    {
+      final IMicroElement ret = new MicroElement (sNamespaceURI, sTagName);
+      ret.setAttribute ("id", aObject.getID ());
+      ret.setAttribute ("value", aObject.getValue ());
+      return ret;
+    }
+
+    @Nonnull
+    public BenchmarkItem convertToNative (@Nonnull final IMicroElement aElement)
+    {
+      return new BenchmarkItem (aElement.getAttributeValue ("id"), aElement.getAttributeValue ("value"));
+    }
+  }
+
+  private static final class BenchmarkDAO extends AbstractMapBasedWALDAO <BenchmarkItem, BenchmarkItem>
+  {
+    public BenchmarkDAO (@Nonnull final File aBaseDir, @Nonnull final EWALFormat eWALFormat) throws DAOException
+    {
+      super (BenchmarkItem.class,
+             new FileRelativeIO (aBaseDir),
+             "data.xml",
+             new InitSettings <BenchmarkItem> ().setDoInitialRead (false));
+      setWALFormat (eWALFormat);
+      initialRead ();
+    }
+
+    public void create (@Nonnull final String sID, @Nonnull final String sValue)
+    {
+      final BenchmarkItem aItem = new BenchmarkItem (sID, sValue);
+      m_aRWLock.writeLockedGet ( () -> internalCreateItem (aItem));
+    }
+
+    public void update (@Nonnull final String sID, @Nonnull final String sValue)
+    {
+      final BenchmarkItem aItem = new BenchmarkItem (sID, sValue);
+      m_aRWLock.writeLocked ( () -> internalUpdateItem (aItem));
+    }
+  }
+
+  @Param ({ "XML", "BINARY" })
+  public EWALFormat m_eWALFormat;
+
+  private File m_aBaseDir;
+  private BenchmarkDAO m_aDAO;
+  private int m_nCreateIndex;
+  private int m_nUpdateIndex;
+
+  @Setup (Level.Trial)
+  public void setupTrial ()
+  {
+    ScopeAwareTestSetup.setupScopeTests ();
+    MicroTypeConverterRegistry.getInstance ()
+                              .registerMicroElementTypeConverter (BenchmarkItem.class,
+                                                                  new BenchmarkItemMicroTypeConverter ());
+  }
+
+  @TearDown (Level.Trial)
+  public void tearDownTrial ()
+  {
+    ScopeAwareTestSetup.shutdownScopeTests ();
+  }
+
+  @Setup (Level.Iteration)
+  public void setupIteration () throws IOException, DAOException
+  {
+    m_aBaseDir = Files.createTempDirectory ("ph-benchmark-wal").toFile ();
+    m_aDAO = new BenchmarkDAO (m_aBaseDir, m_eWALFormat);
+    for (int i = 0; i < ITEM_COUNT; ++i)
+      m_aDAO.create ("id" + i, "value" + i);
+    m_nCreateIndex = ITEM_COUNT;
+    m_nUpdateIndex = 0;
+  }
+
+  @TearDown (Level.Iteration)
+  public void tearDownIteration ()
+  {
+    // Make sure the pending writes of this iteration don't influence the next
+    m_aDAO.writeToFileOnPendingChanges ();
+    m_aDAO = null;
+    FileOperationManager.INSTANCE.deleteDirRecursiveIfExisting (m_aBaseDir);
+  }
+
+  @Benchmark
+  public void create ()
+  {
+    final int nIndex = m_nCreateIndex++;
+    m_aDAO.create ("id" + nIndex, "value" + nIndex);
+  }
+
+  @Benchmark
+  public void update ()
+  {
+    final int nIndex = m_nUpdateIndex++ % ITEM_COUNT;
+    m_aDAO.update ("id" + nIndex, "changed" + nIndex);
+  }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.json.IJsonArray;
+import com.helger.json.serialize.JsonReader;
+
+/**
+ * Test class for class {@link BenchmarkResultComparer}.
+ *
+ * @author Philip Helger
+ */
+public final class BenchmarkResultComparerTest
+{
+  @Nonnull
+  private static String _result (@Nonnull final String sBenchmark,
+                                 @Nonnull final String sMode,
+                                 @Nonnull final String sParam,
+                                 final double dScore,
+                                 final double dError)
+  {
+    return "{\"benchmark\":\"" +
+           sBenchmark +
+           "\",\"mode\":\"" +
+           sMode +
+           "\",\"params\":{\"m_nItems\":\"" +
+           sParam +
+           "\"},\"primaryMetric\":{\"score\":" +
+           dScore +
+           ",\"scoreError\":" +
+           dError +
+           ",\"scoreUnit\":\"ns/op\"}}";
+  }
+
+  @Test
+  public void testCompare ()
+  {
+    final IJsonArray aBaseline = JsonReader.readFromString ("[" +
+                                                            _result ("a.read", "avgt", "10", 100, 1) +
+                                                            "," +
+                                                            _result ("a.read", "avgt", "1000", 100, 1) +
+                                                            "," +
+                                                            _result ("a.write", "avgt", "10", 100, 50) +
+                                                            "," +
+                                                            _result ("a.thrpt", "thrpt", "10", 100, 1) +
+                                                            "," +
+                                                            _result ("a.removed", "avgt", "10", 100, 1) +
+                                                            "]")
+                                           .getAsArray ();
+    final IJsonArray aCurrent = JsonReader.readFromString ("[" +
+                                                           _result ("a.read", "avgt", "10", 150, 1) +
+                                                           "," +
+                                                           _result ("a.read", "avgt", "1000", 50, 1) +
+                                                           "," +
+                                                           _result ("a.write", "avgt", "10", 150, 50) +
+                                                           "," +
+                                                           _result ("a.thrpt", "thrpt", "10", 50, 1) +
+                                                           "," +
+                                                           _result ("a.added", "avgt", "10", 100, 1) +
+                                                           "]")
+                                          .getAsArray ();
+
+    final ICommonsList <BenchmarkResultComparer.Comparison> aList = BenchmarkResultComparer.compare (aBaseline,
+                                                                                                    aCurrent,
+                                                                                                    10);
+    // Added and removed are ignored
+    assertEquals (4, aList.size ());
+
+    // Slower
+    assertEquals (-50, aList.get (0).getImprovementPercent (), 0.001);
+    assertTrue (aList.get (0).isRegression ());
+    assertFalse (aList.get (0).isImprovement ());
+
+    // Faster
+    assertEquals (50, aList.get (1).getImprovementPercent (), 0.001);
+    assertFalse (aList.get (1).isRegression ());
+    assertTrue (aList.get (1).isImprovement ());
+
+    // Slower but within the error range
+    assertFalse (aList.get (2).isRegression ());
+
+    // Lower throughput
+    assertEquals (-50, aList.get (3).getImprovementPercent (), 0.001);
+    assertTrue (aList.get (3).isRegression ());
+
+    // Higher threshold
+    assertFalse (BenchmarkResultComparer.compare (aBaseline, aCurrent, 60).get (0).isRegression ());
+  }
+
+  @Test
+  public void testDatasetsAreReproducible ()
+  {
+    assertEquals (BenchmarkDatasets.getCSV (100, 5), BenchmarkDatasets.getCSV (100, 5));
+    assertEquals (BenchmarkDatasets.getJson (10), BenchmarkDatasets.getJson (10));
+    assertEquals (BenchmarkDatasets.getXML (10), BenchmarkDatasets.getXML (10));
+    assertEquals (10, JsonReader.readFromString (BenchmarkDatasets.getJson (10)).getAsArray ().size ());
+  }
+}
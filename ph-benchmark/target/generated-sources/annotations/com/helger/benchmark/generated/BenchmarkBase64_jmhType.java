@@ -0,0 +1,4 @@
+package com.helger.benchmark.generated;
+public class BenchmarkBase64_jmhType extends BenchmarkBase64_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.helger.benchmark.generated;
+public class BenchmarkCSVReader_jmhType extends BenchmarkCSVReader_jmhType_B3 {
+}
+
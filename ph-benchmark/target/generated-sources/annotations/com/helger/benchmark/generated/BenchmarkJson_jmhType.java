@@ -0,0 +1,4 @@
+package com.helger.benchmark.generated;
+public class BenchmarkJson_jmhType extends BenchmarkJson_jmhType_B3 {
+}
+
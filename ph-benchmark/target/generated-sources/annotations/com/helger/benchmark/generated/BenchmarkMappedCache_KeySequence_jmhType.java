@@ -0,0 +1,4 @@
+package com.helger.benchmark.generated;
+public class BenchmarkMappedCache_KeySequence_jmhType extends BenchmarkMappedCache_KeySequence_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.helger.benchmark.generated;
+public class BenchmarkMappedCache_jmhType extends BenchmarkMappedCache_jmhType_B3 {
+}
+
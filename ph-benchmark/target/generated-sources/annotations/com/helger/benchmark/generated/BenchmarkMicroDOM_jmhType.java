@@ -0,0 +1,4 @@
+package com.helger.benchmark.generated;
+public class BenchmarkMicroDOM_jmhType extends BenchmarkMicroDOM_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.helger.benchmark.generated;
+public class BenchmarkObjectPool_jmhType extends BenchmarkObjectPool_jmhType_B3 {
+}
+
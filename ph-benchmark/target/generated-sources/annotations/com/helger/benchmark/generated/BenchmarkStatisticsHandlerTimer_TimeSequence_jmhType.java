@@ -0,0 +1,4 @@
+package com.helger.benchmark.generated;
+public class BenchmarkStatisticsHandlerTimer_TimeSequence_jmhType extends BenchmarkStatisticsHandlerTimer_TimeSequence_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.helger.benchmark.generated;
+public class BenchmarkStatisticsHandlerTimer_jmhType extends BenchmarkStatisticsHandlerTimer_jmhType_B3 {
+}
+
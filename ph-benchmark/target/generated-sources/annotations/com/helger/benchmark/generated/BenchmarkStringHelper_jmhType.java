@@ -0,0 +1,4 @@
+package com.helger.benchmark.generated;
+public class BenchmarkStringHelper_jmhType extends BenchmarkStringHelper_jmhType_B3 {
+}
+
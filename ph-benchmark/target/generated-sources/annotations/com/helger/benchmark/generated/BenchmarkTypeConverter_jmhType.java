@@ -0,0 +1,4 @@
+package com.helger.benchmark.generated;
+public class BenchmarkTypeConverter_jmhType extends BenchmarkTypeConverter_jmhType_B3 {
+}
+
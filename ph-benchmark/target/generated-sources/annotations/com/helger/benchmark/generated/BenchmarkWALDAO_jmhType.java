@@ -0,0 +1,4 @@
+package com.helger.benchmark.generated;
+public class BenchmarkWALDAO_jmhType extends BenchmarkWALDAO_jmhType_B3 {
+}
+
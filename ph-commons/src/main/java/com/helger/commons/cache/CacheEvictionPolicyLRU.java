@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Plain LRU eviction policy: every candidate is admitted, so the least
+ * recently used entry according to the cache order is evicted.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@Immutable
+public final class CacheEvictionPolicyLRU implements ICacheEvictionPolicy
+{
+  /** The default instance. The class is stateless. */
+  public static final CacheEvictionPolicyLRU INSTANCE = new CacheEvictionPolicyLRU ();
+
+  private CacheEvictionPolicyLRU ()
+  {}
+
+  public void recordAccess (@Nonnull final Object aCacheKey)
+  {}
+
+  public boolean isCandidateAdmitted (@Nonnull final Object aCandidateCacheKey, @Nonnull final Object aVictimCacheKey)
+  {
+    return true;
+  }
+
+  public void clear ()
+  {}
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).getToString ();
+  }
+}
@@ -0,0 +1,308 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * W-TinyLFU eviction policy. The access frequency of all keys (including keys
+ * that are no longer in the cache) is approximated with a 4-bit count-min
+ * sketch that is periodically aged by halving all counters.<br>
+ * New entries first enter a small LRU admission window of the cache, so that
+ * entries with a burst of accesses have time to build up a frequency. When an
+ * entry leaves the window, it only replaces the victim of the main region if
+ * it was accessed more often than the victim, which makes the cache resistant
+ * to scans. The main region is segmented into a probation and a protected
+ * part, see {@link ICacheEvictionPolicy#getAdmissionWindowPercentage()}. With
+ * an admission window percentage of 0, this is plain TinyLFU.<br>
+ * Accesses are recorded into lossy striped buffers, that are drained into the
+ * sketch by whichever thread manages to acquire the sketch lock. Recording
+ * therefore never blocks; if a buffer is full or contended, the access is not
+ * counted.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@ThreadSafe
+public class CacheEvictionPolicyTinyLFU implements ICacheEvictionPolicy
+{
+  /** The default percentage of the capacity used as admission window */
+  public static final int DEFAULT_ADMISSION_WINDOW_PERCENTAGE = 1;
+
+  private static final long [] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK = 0x1111111111111111L;
+
+  private static final int BUFFER_SIZE = 16;
+  private static final int BUFFER_MASK = BUFFER_SIZE - 1;
+  // Marks a used slot, so that a hash of 0 can be stored as well
+  private static final long SLOT_USED = 1L << 32;
+  private static final int STRIPE_COUNT = _ceilingPowerOfTwo (Math.max (Runtime.getRuntime ().availableProcessors (),
+                                                                       2));
+
+  /**
+   * A bounded ring buffer of spread key hashes. Slots are claimed by
+   * incrementing the write counter and are consumed by the thread holding the
+   * sketch lock.
+   */
+  private static final class AccessBuffer
+  {
+    private final AtomicLongArray m_aSlots = new AtomicLongArray (BUFFER_SIZE);
+    private final AtomicLong m_aWriteCount = new AtomicLong ();
+    // Only modified while holding the sketch lock
+    private volatile long m_nReadCount;
+
+    /**
+     * @return <code>true</code> if the buffer should be drained
+     */
+    boolean offer (final int nHash)
+    {
+      final long nWrite = m_aWriteCount.get ();
+      final long nPending = nWrite - m_nReadCount;
+      if (nPending >= BUFFER_SIZE)
+      {
+        // Full - drop the sample
+        return true;
+      }
+      if (!m_aWriteCount.compareAndSet (nWrite, nWrite + 1))
+      {
+        // Contended - drop the sample
+        return false;
+      }
+      m_aSlots.lazySet ((int) nWrite & BUFFER_MASK, SLOT_USED | (nHash & 0xffffffffL));
+      return nPending + 1 >= BUFFER_SIZE / 2;
+    }
+  }
+
+  private final ReentrantLock m_aLock = new ReentrantLock ();
+  private final int m_nAdmissionWindowPercentage;
+  private final int m_nSampleSize;
+  private final int m_nTableMask;
+  // Each long contains 16 4-bit counters
+  private final long [] m_aTable;
+  @GuardedBy ("m_aLock")
+  private int m_nAdditions;
+  private final AccessBuffer [] m_aBuffers = new AccessBuffer [STRIPE_COUNT];
+
+  /**
+   * Constructor using the default admission window percentage.
+   *
+   * @param nExpectedMaxSize
+   *        The expected maximum number of entries in the cache. Must be &gt; 0.
+   */
+  public CacheEvictionPolicyTinyLFU (@Nonnegative final int nExpectedMaxSize)
+  {
+    this (nExpectedMaxSize, DEFAULT_ADMISSION_WINDOW_PERCENTAGE);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param nExpectedMaxSize
+   *        The expected maximum number of entries in the cache. Must be &gt; 0.
+   * @param nAdmissionWindowPercentage
+   *        The percentage of the cache capacity used as admission window.
+   *        Must be between 0 and 99. 0 means plain TinyLFU without a window
+   *        and without a segmented main region.
+   */
+  public CacheEvictionPolicyTinyLFU (@Nonnegative final int nExpectedMaxSize,
+                                     @Nonnegative final int nAdmissionWindowPercentage)
+  {
+    ValueEnforcer.isGT0 (nExpectedMaxSize, "ExpectedMaxSize");
+    ValueEnforcer.isBetweenInclusive (nAdmissionWindowPercentage, "AdmissionWindowPercentage", 0, 99);
+    m_nAdmissionWindowPercentage = nAdmissionWindowPercentage;
+    final int nTableSize = _ceilingPowerOfTwo (Math.max (nExpectedMaxSize, 16));
+    m_aTable = new long [nTableSize];
+    m_nTableMask = nTableSize - 1;
+    m_nSampleSize = (int) Math.min (10L * nExpectedMaxSize, Integer.MAX_VALUE);
+    for (int i = 0; i < m_aBuffers.length; ++i)
+      m_aBuffers[i] = new AccessBuffer ();
+  }
+
+  private static int _ceilingPowerOfTwo (final int n)
+  {
+    return 1 << -Integer.numberOfLeadingZeros (n - 1);
+  }
+
+  private static int _spread (final int n)
+  {
+    int x = ((n >>> 16) ^ n) * 0x45d9f3b;
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    return (x >>> 16) ^ x;
+  }
+
+  private int _indexOf (final int nHash, final int nDepth)
+  {
+    long nItem = (nHash + SEEDS[nDepth]) * SEEDS[nDepth];
+    nItem += nItem >>> 32;
+    return ((int) nItem) & m_nTableMask;
+  }
+
+  @Nonnegative
+  public int getAdmissionWindowPercentage ()
+  {
+    return m_nAdmissionWindowPercentage;
+  }
+
+  /**
+   * Get the estimated access frequency of the passed key. Buffered accesses
+   * are taken into account if the sketch is not locked by another thread.
+   *
+   * @param aCacheKey
+   *        The internal cache key. May not be <code>null</code>.
+   * @return The estimated frequency in the range 0 to 15.
+   */
+  @Nonnegative
+  public int getFrequency (@Nonnull final Object aCacheKey)
+  {
+    _tryDrain ();
+    return _getFrequency (_spread (aCacheKey.hashCode ()));
+  }
+
+  private int _getFrequency (final int nHash)
+  {
+    final int nStart = (nHash & 3) << 2;
+    int ret = Integer.MAX_VALUE;
+    for (int i = 0; i < 4; i++)
+    {
+      final int nIndex = _indexOf (nHash, i);
+      final int nCount = (int) ((m_aTable[nIndex] >>> ((nStart + i) << 2)) & 0xfL);
+      ret = Math.min (ret, nCount);
+    }
+    return ret;
+  }
+
+  private boolean _incrementAt (final int nIndex, final int nCounter)
+  {
+    final int nOffset = nCounter << 2;
+    final long nMask = 0xfL << nOffset;
+    if ((m_aTable[nIndex] & nMask) != nMask)
+    {
+      m_aTable[nIndex] += 1L << nOffset;
+      return true;
+    }
+    return false;
+  }
+
+  private void _reset ()
+  {
+    int nOdd = 0;
+    for (int i = 0; i < m_aTable.length; i++)
+    {
+      nOdd += Long.bitCount (m_aTable[i] & ONE_MASK);
+      m_aTable[i] = (m_aTable[i] >>> 1) & RESET_MASK;
+    }
+    m_nAdditions = (m_nAdditions >>> 1) - (nOdd >>> 2);
+  }
+
+  private void _increment (final int nHash)
+  {
+    final int nStart = (nHash & 3) << 2;
+    boolean bAdded = false;
+    for (int i = 0; i < 4; i++)
+      bAdded |= _incrementAt (_indexOf (nHash, i), nStart + i);
+    if (bAdded && ++m_nAdditions >= m_nSampleSize)
+      _reset ();
+  }
+
+  private void _drain ()
+  {
+    for (final AccessBuffer aBuffer : m_aBuffers)
+    {
+      long nRead = aBuffer.m_nReadCount;
+      final long nWrite = aBuffer.m_aWriteCount.get ();
+      while (nRead < nWrite)
+      {
+        final int nIndex = (int) nRead & BUFFER_MASK;
+        final long nSlot = aBuffer.m_aSlots.get (nIndex);
+        if (nSlot == 0)
+        {
+          // Claimed but not yet written
+          break;
+        }
+        aBuffer.m_aSlots.lazySet (nIndex, 0);
+        _increment ((int) nSlot);
+        nRead++;
+      }
+      aBuffer.m_nReadCount = nRead;
+    }
+  }
+
+  private void _tryDrain ()
+  {
+    if (m_aLock.tryLock ())
+      try
+      {
+        _drain ();
+      }
+      finally
+      {
+        m_aLock.unlock ();
+      }
+  }
+
+  public void recordAccess (@Nonnull final Object aCacheKey)
+  {
+    final int nHash = _spread (aCacheKey.hashCode ());
+    final int nStripe = _spread ((int) Thread.currentThread ().getId ()) & (STRIPE_COUNT - 1);
+    if (m_aBuffers[nStripe].offer (nHash))
+      _tryDrain ();
+  }
+
+  public boolean isCandidateAdmitted (@Nonnull final Object aCandidateCacheKey, @Nonnull final Object aVictimCacheKey)
+  {
+    _tryDrain ();
+    return _getFrequency (_spread (aCandidateCacheKey.hashCode ())) > _getFrequency (_spread (aVictimCacheKey.hashCode ()));
+  }
+
+  public void clear ()
+  {
+    m_aLock.lock ();
+    try
+    {
+      // Consume all buffered accesses before resetting
+      _drain ();
+      Arrays.fill (m_aTable, 0L);
+      m_nAdditions = 0;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("AdmissionWindowPercentage", m_nAdmissionWindowPercentage)
+                                       .append ("TableSize", m_aTable.length)
+                                       .append ("SampleSize", m_nSampleSize)
+                                       .append ("StripeCount", STRIPE_COUNT)
+                                       .getToString ();
+  }
+}
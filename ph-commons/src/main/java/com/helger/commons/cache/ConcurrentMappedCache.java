@@ -0,0 +1,1111 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.OverridingMethodsMustInvokeSuper;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.VisibleForTesting;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.functional.IBiFunction;
+import com.helger.commons.functional.IFunction;
+import com.helger.commons.state.EChange;
+import com.helger.commons.statistics.IMutableStatisticsHandlerCache;
+import com.helger.commons.statistics.IMutableStatisticsHandlerCounter;
+import com.helger.commons.statistics.StatisticsManager;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A highly concurrent implementation of {@link ICache} and
+ * {@link IMutableCache} as an alternative to {@link MappedCache}. In contrast
+ * to {@link MappedCache} there is no global lock:
+ * <ul>
+ * <li>Entries are stored in a {@link ConcurrentHashMap} so that reads never
+ * block and writes only contend on the same hash bin.</li>
+ * <li>Concurrent misses on the same key are loaded only once ("single
+ * flight"): the first thread invokes the value provider, all other threads
+ * wait for its result.</li>
+ * <li>Eviction is deterministic and not left to the garbage collector. The
+ * cache maintains an approximated LRU order (CLOCK with second chance) and
+ * delegates admission decisions to a pluggable
+ * {@link ICacheEvictionPolicy}. If the policy requests an admission window
+ * (as {@link CacheEvictionPolicyTinyLFU} does), the cache is split into a
+ * window and a segmented main region (W-TinyLFU).</li>
+ * <li>Optionally the cache can be bound by the total weight of the entries
+ * instead of or in addition to the number of entries.</li>
+ * <li>Each entry may have its own time to live.</li>
+ * </ul>
+ * The same statistics names as in {@link MappedCache} are used, so
+ * <code>cache:<i>name</i>$access</code> etc. keep working. Additionally
+ * <code>cache:<i>name</i>$evict</code> counts the evicted and expired entries.
+ * <br>
+ * Instances are created via the {@link Builder}.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ * @param <KEYTYPE>
+ *        The cache source type
+ * @param <KEYSTORETYPE>
+ *        The internal storage key type
+ * @param <VALUETYPE>
+ *        The cache value type
+ */
+@ThreadSafe
+public class ConcurrentMappedCache <KEYTYPE, KEYSTORETYPE, VALUETYPE> implements IMutableCache <KEYTYPE, VALUETYPE>
+{
+  /** A constant indicating, that a cache has no max weight */
+  public static final long NO_MAX_WEIGHT = 0;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (ConcurrentMappedCache.class);
+
+  private static final int STATE_LOADING = 0;
+  private static final int STATE_LIVE = 1;
+  private static final int STATE_DEAD = 2;
+
+  /**
+   * A single cache entry. The reference flag is the "second chance" bit of the
+   * CLOCK algorithm.
+   *
+   * @param <KS>
+   *        key store type
+   * @param <V>
+   *        value type
+   */
+  private static final class Entry <KS, V>
+  {
+    @SuppressWarnings ("rawtypes")
+    private static final AtomicIntegerFieldUpdater <Entry> STATE = AtomicIntegerFieldUpdater.newUpdater (Entry.class,
+                                                                                                        "m_nState");
+
+    private final KS m_aCacheKey;
+    // Both are reset after loading finished successfully
+    private volatile FutureTask <V> m_aLoader;
+    private volatile Thread m_aLoadingThread;
+    private volatile int m_nState = STATE_LOADING;
+    private volatile boolean m_bReferenced;
+    private volatile long m_nExpirationNanos = Long.MAX_VALUE;
+    private volatile V m_aValue;
+    private long m_nWeight;
+
+    Entry (@Nonnull final KS aCacheKey, @Nullable final FutureTask <V> aLoader)
+    {
+      m_aCacheKey = aCacheKey;
+      m_aLoader = aLoader;
+      m_aLoadingThread = aLoader == null ? null : Thread.currentThread ();
+    }
+
+    boolean isExpired (final long nNowNanos)
+    {
+      final long nExp = m_nExpirationNanos;
+      return nExp != Long.MAX_VALUE && nNowNanos - nExp >= 0;
+    }
+
+    boolean isLive ()
+    {
+      return m_nState == STATE_LIVE;
+    }
+
+    boolean markLive ()
+    {
+      return STATE.compareAndSet (this, STATE_LOADING, STATE_LIVE);
+    }
+
+    /**
+     * @return <code>true</code> if the entry was live before
+     */
+    boolean markDead ()
+    {
+      return STATE.getAndSet (this, STATE_DEAD) == STATE_LIVE;
+    }
+  }
+
+  private final IMutableStatisticsHandlerCache m_aStatsCacheAccess;
+  private final IMutableStatisticsHandlerCounter m_aStatsCountRemove;
+  private final IMutableStatisticsHandlerCounter m_aStatsCountClear;
+  private final IMutableStatisticsHandlerCounter m_aStatsCountEvict;
+
+  private final IFunction <KEYTYPE, KEYSTORETYPE> m_aCacheKeyProvider;
+  private final IFunction <KEYTYPE, VALUETYPE> m_aValueProvider;
+  private final int m_nMaxSize;
+  private final String m_sName;
+  private final boolean m_bAllowNullValues;
+  private final ICacheEvictionPolicy m_aEvictionPolicy;
+  private final ToLongFunction <? super VALUETYPE> m_aWeigher;
+  private final long m_nMaxWeight;
+  private final IBiFunction <? super KEYTYPE, ? super VALUETYPE, Duration> m_aTTLProvider;
+
+  // In the unit of _getUnits - 0 if there is no window or protected region
+  private final long m_nWindowMaxUnits;
+  private final long m_nProtectedMaxUnits;
+
+  // Status vars
+  private final ConcurrentHashMap <KEYSTORETYPE, Entry <KEYSTORETYPE, VALUETYPE>> m_aMap = new ConcurrentHashMap <> ();
+  // The CLOCK orders - only used for bounded caches. All of them may contain
+  // dead entries that are skipped lazily and purged once they outnumber the
+  // live entries. New entries are added to the window. Entries leaving the
+  // window are admitted to the probation queue (m_aClock) or are evicted.
+  // Referenced entries in the probation queue are promoted to the protected
+  // queue, if there is one.
+  private final ConcurrentLinkedQueue <Entry <KEYSTORETYPE, VALUETYPE>> m_aWindow = new ConcurrentLinkedQueue <> ();
+  private final AtomicLong m_aWindowUnits = new AtomicLong ();
+  private final ConcurrentLinkedQueue <Entry <KEYSTORETYPE, VALUETYPE>> m_aClock = new ConcurrentLinkedQueue <> ();
+  private final ConcurrentLinkedQueue <Entry <KEYSTORETYPE, VALUETYPE>> m_aProtected = new ConcurrentLinkedQueue <> ();
+  @GuardedBy ("m_aEvictionLock")
+  private long m_nProtectedUnits;
+  private final AtomicLong m_aClockGarbage = new AtomicLong ();
+  private final AtomicLong m_aLiveCount = new AtomicLong ();
+  private final AtomicLong m_aTotalWeight = new AtomicLong ();
+  private final ReentrantLock m_aEvictionLock = new ReentrantLock ();
+
+  /**
+   * Constructor with the same semantics as the {@link MappedCache}
+   * constructor, using LRU eviction and no expiration.
+   *
+   * @param aCacheKeyProvider
+   *        The cache key provider, that takes any KEYTYPE and creates a
+   *        non-<code>null</code> KEYSTORETYPE instance. May not be
+   *        <code>null</code>.
+   * @param aValueProvider
+   *        The cache value provider. The value to be cached may be
+   *        <code>null</code> depending on the parameter
+   *        {@code bAllowNullValues}. May not be <code>null</code>.
+   * @param nMaxSize
+   *        The maximum size of the cache. All values &le; 0 indicate an
+   *        unlimited size.
+   * @param sCacheName
+   *        The internal name of the cache. May neither be <code>null</code> nor
+   *        empty. This name is NOT checked for uniqueness.
+   * @param bAllowNullValues
+   *        <code>true</code> if <code>null</code> values are allowed to be in
+   *        the cache, <code>false</code> if not.
+   */
+  public ConcurrentMappedCache (@Nonnull final IFunction <KEYTYPE, KEYSTORETYPE> aCacheKeyProvider,
+                                @Nonnull final IFunction <KEYTYPE, VALUETYPE> aValueProvider,
+                                final int nMaxSize,
+                                @Nonnull @Nonempty final String sCacheName,
+                                final boolean bAllowNullValues)
+  {
+    this (aCacheKeyProvider,
+          aValueProvider,
+          nMaxSize,
+          sCacheName,
+          bAllowNullValues,
+          CacheEvictionPolicyLRU.INSTANCE,
+          null,
+          NO_MAX_WEIGHT,
+          null);
+  }
+
+  protected ConcurrentMappedCache (@Nonnull final IFunction <KEYTYPE, KEYSTORETYPE> aCacheKeyProvider,
+                                   @Nonnull final IFunction <KEYTYPE, VALUETYPE> aValueProvider,
+                                   final int nMaxSize,
+                                   @Nonnull @Nonempty final String sCacheName,
+                                   final boolean bAllowNullValues,
+                                   @Nonnull final ICacheEvictionPolicy aEvictionPolicy,
+                                   @Nullable final ToLongFunction <? super VALUETYPE> aWeigher,
+                                   final long nMaxWeight,
+                                   @Nullable final IBiFunction <? super KEYTYPE, ? super VALUETYPE, Duration> aTTLProvider)
+  {
+    ValueEnforcer.notNull (aCacheKeyProvider, "CacheKeyProvider");
+    ValueEnforcer.notNull (aValueProvider, "ValueProvider");
+    ValueEnforcer.notEmpty (sCacheName, "CacheName");
+    ValueEnforcer.notNull (aEvictionPolicy, "EvictionPolicy");
+    if (nMaxWeight > 0)
+      ValueEnforcer.notNull (aWeigher, "Weigher");
+
+    m_aStatsCacheAccess = StatisticsManager.getCacheHandler (MappedCache.STATISTICS_PREFIX + sCacheName + "$access");
+    m_aStatsCountRemove = StatisticsManager.getCounterHandler (MappedCache.STATISTICS_PREFIX + sCacheName + "$remove");
+    m_aStatsCountClear = StatisticsManager.getCounterHandler (MappedCache.STATISTICS_PREFIX + sCacheName + "$clear");
+    m_aStatsCountEvict = StatisticsManager.getCounterHandler (MappedCache.STATISTICS_PREFIX + sCacheName + "$evict");
+
+    m_aCacheKeyProvider = aCacheKeyProvider;
+    m_aValueProvider = aValueProvider;
+    m_nMaxSize = nMaxSize;
+    m_sName = sCacheName;
+    m_bAllowNullValues = bAllowNullValues;
+    m_aEvictionPolicy = aEvictionPolicy;
+    m_aWeigher = aWeigher;
+    m_nMaxWeight = nMaxWeight;
+    m_aTTLProvider = aTTLProvider;
+
+    final int nWindowPercentage = aEvictionPolicy.getAdmissionWindowPercentage ();
+    ValueEnforcer.isBetweenInclusive (nWindowPercentage, "AdmissionWindowPercentage", 0, 99);
+    final long nMaxUnits = nMaxWeight > 0 ? nMaxWeight : Math.max (nMaxSize, 0);
+    if (nWindowPercentage > 0 && nMaxUnits > 0)
+    {
+      m_nWindowMaxUnits = Math.max (nMaxUnits * nWindowPercentage / 100, 1);
+      m_nProtectedMaxUnits = (nMaxUnits - m_nWindowMaxUnits) * 80 / 100;
+    }
+    else
+    {
+      m_nWindowMaxUnits = 0;
+      m_nProtectedMaxUnits = 0;
+    }
+  }
+
+  /**
+   * @return The cache key provider from the constructor. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  protected final IFunction <KEYTYPE, KEYSTORETYPE> getCacheKeyProvider ()
+  {
+    return m_aCacheKeyProvider;
+  }
+
+  /**
+   * @return The cache value provider from the constructor. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  protected final IFunction <KEYTYPE, VALUETYPE> getValueProvider ()
+  {
+    return m_aValueProvider;
+  }
+
+  /**
+   * @return The maximum number of entries allowed in this cache. Values &le; 0
+   *         indicate that the cache size is not limited at all.
+   * @see #hasMaxSize()
+   */
+  public final int getMaxSize ()
+  {
+    return m_nMaxSize;
+  }
+
+  /**
+   * @return <code>true</code> if this cache has a size limit,
+   *         <code>false</code> if not.
+   * @see #getMaxSize()
+   */
+  public final boolean hasMaxSize ()
+  {
+    return m_nMaxSize > 0;
+  }
+
+  /**
+   * @return The maximum total weight of all entries in this cache. Values
+   *         &le; 0 indicate that the weight is not limited at all.
+   * @see #hasMaxWeight()
+   */
+  public final long getMaxWeight ()
+  {
+    return m_nMaxWeight;
+  }
+
+  /**
+   * @return <code>true</code> if this cache has a weight limit,
+   *         <code>false</code> if not.
+   * @see #getMaxWeight()
+   */
+  public final boolean hasMaxWeight ()
+  {
+    return m_nMaxWeight > 0;
+  }
+
+  /**
+   * @return The current total weight of all entries. If no weigher is
+   *         configured, each entry has the weight 1.
+   */
+  @CheckForSigned
+  public final long getTotalWeight ()
+  {
+    return m_aTotalWeight.get ();
+  }
+
+  @Nonnull
+  @Nonempty
+  public final String getName ()
+  {
+    return m_sName;
+  }
+
+  /**
+   * @return <code>true</code> if <code>null</code> can be in the cache,
+   *         <code>false</code> if not.
+   */
+  public final boolean isAllowNullValues ()
+  {
+    return m_bAllowNullValues;
+  }
+
+  /**
+   * @return The eviction policy used. Never <code>null</code>.
+   */
+  @Nonnull
+  public final ICacheEvictionPolicy getEvictionPolicy ()
+  {
+    return m_aEvictionPolicy;
+  }
+
+  @Nonnull
+  @Nonempty
+  private String _getCacheLogText ()
+  {
+    String ret = "Cache '" + m_sName + "'";
+    if (hasMaxSize ())
+      ret += " with max size of " + m_nMaxSize;
+    return ret + ": ";
+  }
+
+  @Nonnull
+  private KEYSTORETYPE _getCacheKeyNonnull (final KEYTYPE aKey)
+  {
+    final KEYSTORETYPE aCacheKey = m_aCacheKeyProvider.apply (aKey);
+    if (aCacheKey == null)
+      throw new IllegalStateException (_getCacheLogText () + "The created cache key of '" + aKey + "' is null.");
+    return aCacheKey;
+  }
+
+  private VALUETYPE _getCheckedValue (final KEYTYPE aKey, final VALUETYPE aValue)
+  {
+    if (aValue == null && !m_bAllowNullValues)
+      throw new IllegalStateException (_getCacheLogText () +
+                                       "The created cache value of key '" +
+                                       aKey +
+                                       "' is null. null values are not allowed in this cache.");
+    return aValue;
+  }
+
+  private long _getWeight (@Nullable final VALUETYPE aValue)
+  {
+    if (m_aWeigher == null || aValue == null)
+      return 1;
+    final long ret = m_aWeigher.applyAsLong (aValue);
+    if (ret < 0)
+      throw new IllegalStateException (_getCacheLogText () + "The weigher returned a negative weight " + ret);
+    return ret;
+  }
+
+  private long _getExpirationNanos (final KEYTYPE aKey, @Nullable final VALUETYPE aValue, final long nNowNanos)
+  {
+    if (m_aTTLProvider == null)
+      return Long.MAX_VALUE;
+    final Duration aTTL = m_aTTLProvider.apply (aKey, aValue);
+    if (aTTL == null)
+      return Long.MAX_VALUE;
+    final long nExp = nNowNanos + aTTL.toNanos ();
+    // Avoid the special "never" value
+    return nExp == Long.MAX_VALUE ? nExp - 1 : nExp;
+  }
+
+  /**
+   * Make a freshly loaded entry visible for size accounting and eviction.
+   */
+  private void _onLoaded (@Nonnull final KEYTYPE aKey,
+                          @Nonnull final Entry <KEYSTORETYPE, VALUETYPE> aEntry,
+                          @Nullable final VALUETYPE aValue)
+  {
+    aEntry.m_aValue = aValue;
+    aEntry.m_nWeight = _getWeight (aValue);
+    aEntry.m_nExpirationNanos = _getExpirationNanos (aKey, aValue, System.nanoTime ());
+    aEntry.m_aLoadingThread = null;
+    aEntry.m_aLoader = null;
+    if (aEntry.markLive ())
+    {
+      m_aLiveCount.incrementAndGet ();
+      m_aTotalWeight.addAndGet (aEntry.m_nWeight);
+      m_aEvictionPolicy.recordAccess (aEntry.m_aCacheKey);
+      if (_isBounded ())
+      {
+        m_aWindowUnits.addAndGet (_getUnits (aEntry));
+        m_aWindow.offer (aEntry);
+        _evictIfNecessary ();
+      }
+    }
+  }
+
+  private boolean _isBounded ()
+  {
+    return m_nMaxSize > 0 || m_nMaxWeight > 0;
+  }
+
+  /**
+   * @return The size of the passed entry in the unit of the region sizes:
+   *         its weight if the cache has a max weight, 1 otherwise.
+   */
+  private long _getUnits (@Nonnull final Entry <KEYSTORETYPE, VALUETYPE> aEntry)
+  {
+    return m_nMaxWeight > 0 ? aEntry.m_nWeight : 1;
+  }
+
+  /**
+   * Remove all dead entries from all CLOCK queues. Must be called while
+   * holding the eviction lock.
+   */
+  private void _purgeDeadEntries ()
+  {
+    m_aClockGarbage.set (0);
+    m_aWindow.removeIf (x -> {
+      if (x.isLive ())
+        return false;
+      m_aWindowUnits.addAndGet (-_getUnits (x));
+      return true;
+    });
+    m_aClock.removeIf (x -> !x.isLive ());
+    m_aProtected.removeIf (x -> {
+      if (x.isLive ())
+        return false;
+      m_nProtectedUnits -= _getUnits (x);
+      return true;
+    });
+  }
+
+  /**
+   * Called whenever a live entry that is still contained in the CLOCK queue
+   * was removed. If the dead entries outnumber the live ones, the queue is
+   * purged, so that removals and expirations cannot make it grow without
+   * limit.
+   */
+  private void _onClockEntryRemoved ()
+  {
+    if (!_isBounded ())
+      return;
+    if (m_aClockGarbage.incrementAndGet () > Math.max (m_aLiveCount.get (), 16) && m_aEvictionLock.tryLock ())
+    {
+      try
+      {
+        _purgeDeadEntries ();
+      }
+      finally
+      {
+        m_aEvictionLock.unlock ();
+      }
+    }
+  }
+
+  /**
+   * Remove the passed entry if it is still mapped and update the accounting.
+   *
+   * @return <code>true</code> if the entry was live and is now removed.
+   */
+  private boolean _removeEntry (@Nonnull final Entry <KEYSTORETYPE, VALUETYPE> aEntry)
+  {
+    if (m_aMap.remove (aEntry.m_aCacheKey, aEntry) && aEntry.markDead ())
+    {
+      m_aLiveCount.decrementAndGet ();
+      m_aTotalWeight.addAndGet (-aEntry.m_nWeight);
+      return true;
+    }
+    // Ensure a loading entry never becomes live after removal
+    aEntry.markDead ();
+    return false;
+  }
+
+  private boolean _isOverCapacity ()
+  {
+    return (m_nMaxSize > 0 && m_aLiveCount.get () > m_nMaxSize) ||
+           (m_nMaxWeight > 0 && m_aTotalWeight.get () > m_nMaxWeight);
+  }
+
+  private void _evict (@Nonnull final Entry <KEYSTORETYPE, VALUETYPE> aEntry)
+  {
+    if (_removeEntry (aEntry))
+    {
+      m_aStatsCountEvict.increment ();
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug (_getCacheLogText () + "Cache key '" + aEntry.m_aCacheKey + "' was evicted.");
+    }
+  }
+
+  /**
+   * Move entries from the head of the protected queue to the probation queue
+   * until the protected queue is within its bounds. Referenced entries get a
+   * second chance. Must be called while holding the eviction lock.
+   */
+  private void _trimProtected ()
+  {
+    long nMaxSteps = 2 * m_aLiveCount.get () + 1;
+    while (m_nProtectedUnits > m_nProtectedMaxUnits && nMaxSteps-- > 0)
+    {
+      final Entry <KEYSTORETYPE, VALUETYPE> aEntry = m_aProtected.poll ();
+      if (aEntry == null)
+        break;
+      if (aEntry.isLive () && aEntry.m_bReferenced)
+      {
+        aEntry.m_bReferenced = false;
+        m_aProtected.offer (aEntry);
+        continue;
+      }
+      m_nProtectedUnits -= _getUnits (aEntry);
+      if (aEntry.isLive ())
+        m_aClock.offer (aEntry);
+    }
+  }
+
+  /**
+   * Find the next entry to be evicted from the main region. Referenced entries
+   * of the probation queue are promoted to the protected queue or get a second
+   * chance. If the probation queue is empty, entries are taken from the
+   * protected queue. Must be called while holding the eviction lock.
+   *
+   * @return The victim, which is the head of the probation queue. May be
+   *         <code>null</code> if the main region is empty.
+   */
+  @Nullable
+  private Entry <KEYSTORETYPE, VALUETYPE> _findVictim (final long nNow)
+  {
+    long nMaxSteps = 2 * m_aLiveCount.get () + 1;
+    while (nMaxSteps-- > 0)
+    {
+      final Entry <KEYSTORETYPE, VALUETYPE> aVictim = m_aClock.peek ();
+      if (aVictim == null)
+      {
+        // Probation is empty - take the oldest protected entry
+        final Entry <KEYSTORETYPE, VALUETYPE> aProtected = m_aProtected.poll ();
+        if (aProtected == null)
+          return null;
+        m_nProtectedUnits -= _getUnits (aProtected);
+        if (aProtected.isLive ())
+          m_aClock.offer (aProtected);
+        continue;
+      }
+      if (!aVictim.isLive ())
+      {
+        m_aClock.poll ();
+        continue;
+      }
+      if (aVictim.m_bReferenced && !aVictim.isExpired (nNow))
+      {
+        m_aClock.poll ();
+        aVictim.m_bReferenced = false;
+        if (m_nProtectedMaxUnits > 0)
+        {
+          // Promote
+          m_aProtected.offer (aVictim);
+          m_nProtectedUnits += _getUnits (aVictim);
+          _trimProtected ();
+        }
+        else
+        {
+          // Second chance
+          m_aClock.offer (aVictim);
+        }
+        continue;
+      }
+      return aVictim;
+    }
+    return null;
+  }
+
+  /**
+   * Move the entries that overflow the admission window to the main region and
+   * evict entries until the cache is within its bounds again. Entries leaving
+   * the window are only admitted to the main region if the eviction policy
+   * prefers them over the victim of the main region. Only one thread does this
+   * at a time - all others simply continue, as the evicting thread takes care
+   * of their insertions as well.
+   */
+  private void _evictIfNecessary ()
+  {
+    boolean bProgress = true;
+    while (bProgress && (m_aWindowUnits.get () > m_nWindowMaxUnits || _isOverCapacity ()) && m_aEvictionLock.tryLock ())
+    {
+      bProgress = false;
+      try
+      {
+        final long nNow = System.nanoTime ();
+
+        // Take the candidates from the window - each entry gets at most one
+        // second chance per round
+        final ICommonsList <Entry <KEYSTORETYPE, VALUETYPE>> aCandidates = new CommonsArrayList <> ();
+        long nMaxSteps = 2 * m_aLiveCount.get () + 1;
+        while (m_aWindowUnits.get () > m_nWindowMaxUnits && nMaxSteps-- > 0)
+        {
+          final Entry <KEYSTORETYPE, VALUETYPE> aEntry = m_aWindow.poll ();
+          if (aEntry == null)
+            break;
+          if (aEntry.isLive () && aEntry.m_bReferenced && m_nWindowMaxUnits > 0)
+          {
+            aEntry.m_bReferenced = false;
+            m_aWindow.offer (aEntry);
+            continue;
+          }
+          m_aWindowUnits.addAndGet (-_getUnits (aEntry));
+          if (aEntry.isLive ())
+            aCandidates.add (aEntry);
+          bProgress = true;
+        }
+
+        // Admit or evict the candidates - each candidate competes with one
+        // victim
+        for (final Entry <KEYSTORETYPE, VALUETYPE> aCandidate : aCandidates)
+        {
+          if (aCandidate.isLive () && _isOverCapacity ())
+          {
+            final Entry <KEYSTORETYPE, VALUETYPE> aVictim = _findVictim (nNow);
+            if (aVictim != null &&
+                (aVictim.isExpired (nNow) ||
+                 m_aEvictionPolicy.isCandidateAdmitted (aCandidate.m_aCacheKey, aVictim.m_aCacheKey)))
+            {
+              m_aClock.poll ();
+              _evict (aVictim);
+            }
+            else
+            {
+              // Keep the victim and evict the candidate instead
+              _evict (aCandidate);
+            }
+          }
+          if (aCandidate.isLive ())
+            m_aClock.offer (aCandidate);
+        }
+
+        // Still too large, e.g. because of weights
+        while (_isOverCapacity ())
+        {
+          final Entry <KEYSTORETYPE, VALUETYPE> aVictim = _findVictim (nNow);
+          if (aVictim == null)
+            break;
+          m_aClock.poll ();
+          _evict (aVictim);
+          bProgress = true;
+        }
+      }
+      finally
+      {
+        m_aEvictionLock.unlock ();
+      }
+    }
+  }
+
+  @Nonnull
+  private static RuntimeException _asRuntimeException (@Nonnull final Throwable t)
+  {
+    if (t instanceof RuntimeException)
+      return (RuntimeException) t;
+    if (t instanceof Error)
+      throw (Error) t;
+    return new IllegalStateException (t);
+  }
+
+  private VALUETYPE _await (@Nonnull final Entry <KEYSTORETYPE, VALUETYPE> aEntry)
+  {
+    final FutureTask <VALUETYPE> aLoader = aEntry.m_aLoader;
+    if (aLoader == null)
+      return aEntry.m_aValue;
+
+    if (!aLoader.isDone () && aEntry.m_aLoadingThread == Thread.currentThread ())
+      throw new IllegalStateException (_getCacheLogText () +
+                                       "Recursive loading of cache key '" +
+                                       aEntry.m_aCacheKey +
+                                       "' detected.");
+    try
+    {
+      return aLoader.get ();
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      throw new IllegalStateException (_getCacheLogText () + "Interrupted while waiting for cache key '" + aEntry.m_aCacheKey + "'",
+                                       ex);
+    }
+    catch (final ExecutionException ex)
+    {
+      throw _asRuntimeException (ex.getCause ());
+    }
+  }
+
+  /**
+   * Put a new value into the cache. Use this in derived classes to e.g. prefill
+   * the cache with existing values.
+   *
+   * @param aKey
+   *        The cache key. May be <code>null</code> depending on the cache key
+   *        provider.
+   * @param aValue
+   *        The cache value. May be <code>null</code> depending on the settings.
+   */
+  protected final void putInCache (final KEYTYPE aKey, final VALUETYPE aValue)
+  {
+    final KEYSTORETYPE aCacheKey = _getCacheKeyNonnull (aKey);
+    final VALUETYPE aCheckedValue = _getCheckedValue (aKey, aValue);
+
+    final Entry <KEYSTORETYPE, VALUETYPE> aNewEntry = new Entry <> (aCacheKey, null);
+    final Entry <KEYSTORETYPE, VALUETYPE> aOldEntry = m_aMap.put (aCacheKey, aNewEntry);
+    if (aOldEntry != null && aOldEntry.markDead ())
+    {
+      m_aLiveCount.decrementAndGet ();
+      m_aTotalWeight.addAndGet (-aOldEntry.m_nWeight);
+      _onClockEntryRemoved ();
+    }
+    _onLoaded (aKey, aNewEntry, aCheckedValue);
+  }
+
+  /**
+   * Check if the passed key is already in the cache or not. Entries that are
+   * currently loading are not considered to be in the cache.
+   *
+   * @param aKey
+   *        The key to check. May be <code>null</code>.
+   * @return <code>true</code> if the value is already in the cache,
+   *         <code>false</code> if not.
+   */
+  public final boolean isInCache (final KEYTYPE aKey)
+  {
+    // Determine the internal key - maybe null here
+    final KEYSTORETYPE aCacheKey = m_aCacheKeyProvider.apply (aKey);
+    if (aCacheKey == null)
+      return false;
+    final Entry <KEYSTORETYPE, VALUETYPE> aEntry = m_aMap.get (aCacheKey);
+    return aEntry != null && aEntry.isLive () && !aEntry.isExpired (System.nanoTime ());
+  }
+
+  public VALUETYPE getFromCache (final KEYTYPE aKey)
+  {
+    // Determine the internal key
+    final KEYSTORETYPE aCacheKey = _getCacheKeyNonnull (aKey);
+
+    Entry <KEYSTORETYPE, VALUETYPE> aEntry = m_aMap.get (aCacheKey);
+    if (aEntry != null && aEntry.isExpired (System.nanoTime ()))
+    {
+      if (_removeEntry (aEntry))
+      {
+        m_aStatsCountEvict.increment ();
+        _onClockEntryRemoved ();
+      }
+      aEntry = null;
+    }
+
+    if (aEntry == null)
+    {
+      // Single flight: only the thread that registers the loader calls the
+      // value provider
+      final FutureTask <VALUETYPE> aLoader = new FutureTask <> ( () -> _getCheckedValue (aKey,
+                                                                                        m_aValueProvider.apply (aKey)));
+      final Entry <KEYSTORETYPE, VALUETYPE> aNewEntry = new Entry <> (aCacheKey, aLoader);
+      aEntry = m_aMap.putIfAbsent (aCacheKey, aNewEntry);
+      if (aEntry == null)
+      {
+        aLoader.run ();
+        final VALUETYPE aValue;
+        try
+        {
+          aValue = aLoader.get ();
+        }
+        catch (final InterruptedException ex)
+        {
+          // Cannot happen, as the task is already done
+          Thread.currentThread ().interrupt ();
+          _removeEntry (aNewEntry);
+          throw new IllegalStateException (ex);
+        }
+        catch (final ExecutionException ex)
+        {
+          // Don't cache failures
+          _removeEntry (aNewEntry);
+          throw _asRuntimeException (ex.getCause ());
+        }
+        _onLoaded (aKey, aNewEntry, aValue);
+        m_aStatsCacheAccess.cacheMiss ();
+        return aValue;
+      }
+    }
+
+    // Existing entry - maybe still loading in another thread
+    final VALUETYPE ret = _await (aEntry);
+    // Avoid needless writes to shared cache lines
+    if (!aEntry.m_bReferenced)
+      aEntry.m_bReferenced = true;
+    m_aEvictionPolicy.recordAccess (aCacheKey);
+    m_aStatsCacheAccess.cacheHit ();
+    return ret;
+  }
+
+  /**
+   * Remove all expired entries from the cache. Expired entries are otherwise
+   * only removed lazily upon access or eviction.
+   *
+   * @return The number of removed entries. Always &ge; 0.
+   */
+  @Nonnegative
+  public int removeExpired ()
+  {
+    if (m_aTTLProvider == null)
+      return 0;
+
+    final long nNow = System.nanoTime ();
+    int ret = 0;
+    final Iterator <Map.Entry <KEYSTORETYPE, Entry <KEYSTORETYPE, VALUETYPE>>> it = m_aMap.entrySet ().iterator ();
+    while (it.hasNext ())
+    {
+      final Entry <KEYSTORETYPE, VALUETYPE> aEntry = it.next ().getValue ();
+      if (aEntry.isLive () && aEntry.isExpired (nNow) && _removeEntry (aEntry))
+      {
+        ret++;
+        _onClockEntryRemoved ();
+      }
+    }
+    if (ret > 0)
+      m_aStatsCountEvict.increment (ret);
+    return ret;
+  }
+
+  @Nonnull
+  @OverridingMethodsMustInvokeSuper
+  public EChange removeFromCache (final KEYTYPE aKey)
+  {
+    final KEYSTORETYPE aCacheKey = _getCacheKeyNonnull (aKey);
+
+    final Entry <KEYSTORETYPE, VALUETYPE> aEntry = m_aMap.get (aCacheKey);
+    if (aEntry == null || !_removeEntry (aEntry))
+      return EChange.UNCHANGED;
+    _onClockEntryRemoved ();
+
+    m_aStatsCountRemove.increment ();
+    if (LOGGER.isDebugEnabled ())
+      LOGGER.debug (_getCacheLogText () + "Cache key '" + aKey + "' was removed.");
+    return EChange.CHANGED;
+  }
+
+  @Nonnull
+  @OverridingMethodsMustInvokeSuper
+  public EChange clearCache ()
+  {
+    if (m_aMap.isEmpty ())
+      return EChange.UNCHANGED;
+
+    for (final Entry <KEYSTORETYPE, VALUETYPE> aEntry : m_aMap.values ())
+      _removeEntry (aEntry);
+    if (_isBounded ())
+    {
+      // Entries may be added concurrently - they must stay in the queues
+      m_aEvictionLock.lock ();
+      try
+      {
+        _purgeDeadEntries ();
+      }
+      finally
+      {
+        m_aEvictionLock.unlock ();
+      }
+    }
+    m_aEvictionPolicy.clear ();
+
+    m_aStatsCountClear.increment ();
+    if (LOGGER.isDebugEnabled ())
+      LOGGER.debug (_getCacheLogText () + "Cache was cleared");
+    return EChange.CHANGED;
+  }
+
+  /**
+   * @return The number of entries in all CLOCK queues, including dead ones.
+   */
+  @VisibleForTesting
+  @Nonnegative
+  final int getClockQueueSize ()
+  {
+    return m_aWindow.size () + m_aClock.size () + m_aProtected.size ();
+  }
+
+  @Nonnegative
+  public int size ()
+  {
+    return (int) Math.min (m_aLiveCount.get (), Integer.MAX_VALUE);
+  }
+
+  public boolean isEmpty ()
+  {
+    return m_aLiveCount.get () == 0;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("CacheKeyProvider", m_aCacheKeyProvider)
+                                       .append ("ValueProvider", m_aValueProvider)
+                                       .append ("MaxSize", m_nMaxSize)
+                                       .append ("Name", m_sName)
+                                       .append ("AllowNullValues", m_bAllowNullValues)
+                                       .append ("EvictionPolicy", m_aEvictionPolicy)
+                                       .append ("Weigher", m_aWeigher)
+                                       .append ("MaxWeight", m_nMaxWeight)
+                                       .append ("TTLProvider", m_aTTLProvider)
+                                       .append ("Size", m_aLiveCount.get ())
+                                       .getToString ();
+  }
+
+  /**
+   * A builder for {@link ConcurrentMappedCache} instances.
+   *
+   * @author Philip Helger
+   * @param <KEYTYPE>
+   *        The cache source type
+   * @param <KEYSTORETYPE>
+   *        The internal storage key type
+   * @param <VALUETYPE>
+   *        The cache value type
+   */
+  public static class Builder <KEYTYPE, KEYSTORETYPE, VALUETYPE>
+  {
+    private IFunction <KEYTYPE, KEYSTORETYPE> m_aCacheKeyProvider;
+    private IFunction <KEYTYPE, VALUETYPE> m_aValueProvider;
+    private int m_nMaxSize = MappedCache.NO_MAX_SIZE;
+    private String m_sName;
+    private boolean m_bAllowNullValues = Cache.DEFAULT_ALLOW_NULL_VALUES;
+    private ICacheEvictionPolicy m_aEvictionPolicy = CacheEvictionPolicyLRU.INSTANCE;
+    private ToLongFunction <? super VALUETYPE> m_aWeigher;
+    private long m_nMaxWeight = NO_MAX_WEIGHT;
+    private IBiFunction <? super KEYTYPE, ? super VALUETYPE, Duration> m_aTTLProvider;
+
+    public Builder ()
+    {}
+
+    @Nonnull
+    public final Builder <KEYTYPE, KEYSTORETYPE, VALUETYPE> setCacheKeyProvider (@Nonnull final IFunction <KEYTYPE, KEYSTORETYPE> aCacheKeyProvider)
+    {
+      ValueEnforcer.notNull (aCacheKeyProvider, "CacheKeyProvider");
+      m_aCacheKeyProvider = aCacheKeyProvider;
+      return this;
+    }
+
+    @Nonnull
+    public final Builder <KEYTYPE, KEYSTORETYPE, VALUETYPE> setValueProvider (@Nonnull final IFunction <KEYTYPE, VALUETYPE> aValueProvider)
+    {
+      ValueEnforcer.notNull (aValueProvider, "ValueProvider");
+      m_aValueProvider = aValueProvider;
+      return this;
+    }
+
+    /**
+     * @param nMaxSize
+     *        The maximum number of entries. All values &le; 0 indicate an
+     *        unlimited size.
+     * @return this for chaining
+     */
+    @Nonnull
+    public final Builder <KEYTYPE, KEYSTORETYPE, VALUETYPE> setMaxSize (final int nMaxSize)
+    {
+      m_nMaxSize = nMaxSize;
+      return this;
+    }
+
+    @Nonnull
+    public final Builder <KEYTYPE, KEYSTORETYPE, VALUETYPE> setName (@Nonnull @Nonempty final String sName)
+    {
+      ValueEnforcer.notEmpty (sName, "Name");
+      m_sName = sName;
+      return this;
+    }
+
+    @Nonnull
+    public final Builder <KEYTYPE, KEYSTORETYPE, VALUETYPE> setAllowNullValues (final boolean bAllowNullValues)
+    {
+      m_bAllowNullValues = bAllowNullValues;
+      return this;
+    }
+
+    @Nonnull
+    public final Builder <KEYTYPE, KEYSTORETYPE, VALUETYPE> setEvictionPolicy (@Nonnull final ICacheEvictionPolicy aEvictionPolicy)
+    {
+      ValueEnforcer.notNull (aEvictionPolicy, "EvictionPolicy");
+      m_aEvictionPolicy = aEvictionPolicy;
+      return this;
+    }
+
+    /**
+     * Bind the cache by the total weight of the entries.
+     *
+     * @param aWeigher
+     *        The function to determine the weight of a single non-
+     *        <code>null</code> value. Must return values &ge; 0. May not be
+     *        <code>null</code>.
+     * @param nMaxWeight
+     *        The maximum total weight. Must be &gt; 0.
+     * @return this for chaining
+     */
+    @Nonnull
+    public final Builder <KEYTYPE, KEYSTORETYPE, VALUETYPE> setWeigher (@Nonnull final ToLongFunction <? super VALUETYPE> aWeigher,
+                                                                      @Nonnegative final long nMaxWeight)
+    {
+      ValueEnforcer.notNull (aWeigher, "Weigher");
+      ValueEnforcer.isGT0 (nMaxWeight, "MaxWeight");
+      m_aWeigher = aWeigher;
+      m_nMaxWeight = nMaxWeight;
+      return this;
+    }
+
+    /**
+     * Set a fixed time to live for all entries, measured from the time they
+     * were put into the cache.
+     *
+     * @param aTTL
+     *        The time to live. May be <code>null</code> to indicate no
+     *        expiration.
+     * @return this for chaining
+     */
+    @Nonnull
+    public final Builder <KEYTYPE, KEYSTORETYPE, VALUETYPE> setTTL (@Nullable final Duration aTTL)
+    {
+      m_aTTLProvider = aTTL == null ? null : (k, v) -> aTTL;
+      return this;
+    }
+
+    /**
+     * Set a provider for the time to live of each single entry.
+     *
+     * @param aTTLProvider
+     *        The provider that determines the time to live based on key and
+     *        value. It may return <code>null</code> to indicate that an entry
+     *        never expires. May be <code>null</code>.
+     * @return this for chaining
+     */
+    @Nonnull
+    public final Builder <KEYTYPE, KEYSTORETYPE, VALUETYPE> setTTLProvider (@Nullable final IBiFunction <? super KEYTYPE, ? super VALUETYPE, Duration> aTTLProvider)
+    {
+      m_aTTLProvider = aTTLProvider;
+      return this;
+    }
+
+    @Nonnull
+    public ConcurrentMappedCache <KEYTYPE, KEYSTORETYPE, VALUETYPE> build ()
+    {
+      return new ConcurrentMappedCache <> (m_aCacheKeyProvider,
+                                           m_aValueProvider,
+                                           m_nMaxSize,
+                                           m_sName,
+                                           m_bAllowNullValues,
+                                           m_aEvictionPolicy,
+                                           m_aWeigher,
+                                           m_nMaxWeight,
+                                           m_aTTLProvider);
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+/**
+ * Pluggable eviction policy for {@link ConcurrentMappedCache}. The cache itself
+ * maintains an approximated LRU order (CLOCK with second chance) and asks the
+ * policy for every access and for every eviction decision. Implementations must
+ * be thread-safe and must never block.<br>
+ * If the policy requests an admission window (see
+ * {@link #getAdmissionWindowPercentage()}), the cache is split into a window
+ * and a main region, as in W-TinyLFU.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+public interface ICacheEvictionPolicy
+{
+  /**
+   * Record that the passed cache key was accessed (read hit or insertion).
+   *
+   * @param aCacheKey
+   *        The internal cache key. Never <code>null</code>.
+   */
+  void recordAccess (@Nonnull Object aCacheKey);
+
+  /**
+   * Decide whether a newly inserted entry should replace the victim selected
+   * by the cache, or whether the new entry itself should be evicted.
+   *
+   * @param aCandidateCacheKey
+   *        The internal key of the entry that was just inserted. Never
+   *        <code>null</code>.
+   * @param aVictimCacheKey
+   *        The internal key of the entry selected for eviction. Never
+   *        <code>null</code>.
+   * @return <code>true</code> if the victim should be evicted,
+   *         <code>false</code> if the candidate should be evicted instead.
+   */
+  boolean isCandidateAdmitted (@Nonnull Object aCandidateCacheKey, @Nonnull Object aVictimCacheKey);
+
+  /**
+   * Called when the owning cache is cleared, to reset all internal state.
+   */
+  void clear ();
+
+  /**
+   * Get the percentage of the cache capacity, that is used as admission
+   * window. New entries are first added to the window, which is ordered by
+   * recency. Entries leaving the window are candidates for the main region and
+   * are compared with the victim of the main region via
+   * {@link #isCandidateAdmitted(Object, Object)}. The main region is segmented
+   * into a probation part and a protected part (80% of the main region). An
+   * entry that is accessed again while in the probation part is promoted to
+   * the protected part.<br>
+   * If the percentage is 0, there is neither a window nor a segmented main
+   * region: all new entries are candidates immediately and compete with the
+   * victim of a single CLOCK order.
+   *
+   * @return The percentage between 0 and 99. The default is 0.
+   */
+  @Nonnegative
+  default int getAdmissionWindowPercentage ()
+  {
+    return 0;
+  }
+}
@@ -19,6 +19,8 @@ package com.helger.commons.codec;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
@@ -34,8 +36,11 @@ import com.helger.commons.string.StringHelper;
  *
  * @author Philip Helger
  */
-public class Base16Codec implements IByteArrayCodec
+public class Base16Codec implements IByteArrayCodec, IByteBufferCodec
 {
+  // Same (lower case) characters as StringHelper.getHexChar
+  private static final byte [] ENCODE_TABLE = "0123456789abcdef".getBytes (StandardCharsets.ISO_8859_1);
+
   /**
    * Creates a Base16 codec used for decoding and encoding.
    */
@@ -156,4 +161,78 @@ public class Base16Codec implements IByteArrayCodec
       decode (aIS, aOS);
     }
   }
+
+  /**
+   * {@inheritDoc} The output uses lower case hex digits, identical to
+   * {@link #encode(InputStream, OutputStream)}.
+   *
+   * @since 9.4.3
+   */
+  public void encode (@Nonnull final ByteBuffer aSrc, @Nonnull final ByteBuffer aDst, final boolean bEndOfInput)
+  {
+    ValueEnforcer.notNull (aSrc, "Source");
+    ValueEnforcer.notNull (aDst, "Destination");
+
+    final int nCount = Math.min (aSrc.remaining (), aDst.remaining () / 2);
+    int nSrcPos = aSrc.position ();
+    int nDstPos = aDst.position ();
+    if (aSrc.hasArray () && aDst.hasArray ())
+    {
+      final byte [] aSrcArray = aSrc.array ();
+      final byte [] aDstArray = aDst.array ();
+      int nSrcIdx = aSrc.arrayOffset () + nSrcPos;
+      int nDstIdx = aDst.arrayOffset () + nDstPos;
+      for (int i = 0; i < nCount; ++i)
+      {
+        final int n = aSrcArray[nSrcIdx++];
+        aDstArray[nDstIdx++] = ENCODE_TABLE[(n >> 4) & 0x0f];
+        aDstArray[nDstIdx++] = ENCODE_TABLE[n & 0x0f];
+      }
+    }
+    else
+    {
+      for (int i = 0; i < nCount; ++i)
+      {
+        final int n = aSrc.get (nSrcPos + i);
+        aDst.put (nDstPos + 2 * i, ENCODE_TABLE[(n >> 4) & 0x0f]);
+        aDst.put (nDstPos + 2 * i + 1, ENCODE_TABLE[n & 0x0f]);
+      }
+    }
+    aSrc.position (nSrcPos + nCount);
+    aDst.position (nDstPos + 2 * nCount);
+  }
+
+  /**
+   * {@inheritDoc} Upper and lower case hex digits are accepted.
+   *
+   * @since 9.4.3
+   */
+  public void decode (@Nonnull final ByteBuffer aSrc, @Nonnull final ByteBuffer aDst, final boolean bEndOfInput)
+  {
+    ValueEnforcer.notNull (aSrc, "Source");
+    ValueEnforcer.notNull (aDst, "Destination");
+
+    final int nCount = Math.min (aSrc.remaining () / 2, aDst.remaining ());
+    final int nSrcPos = aSrc.position ();
+    final int nDstPos = aDst.position ();
+    for (int i = 0; i < nCount; ++i)
+    {
+      final int nHigh = aSrc.get (nSrcPos + 2 * i) & 0xff;
+      final int nLow = aSrc.get (nSrcPos + 2 * i + 1) & 0xff;
+      final int nDecodedValue = StringHelper.getHexByte ((char) nHigh, (char) nLow);
+      if (nDecodedValue < 0)
+      {
+        // Consume everything valid so far
+        aSrc.position (nSrcPos + 2 * i);
+        aDst.position (nDstPos + i);
+        throw new DecodeException ("Invalid Base16 encoding for " + nHigh + " and " + nLow + " at index " + (nSrcPos + 2 * i));
+      }
+      aDst.put (nDstPos + i, (byte) nDecodedValue);
+    }
+    aSrc.position (nSrcPos + 2 * nCount);
+    aDst.position (nDstPos + nCount);
+
+    if (bEndOfInput && aSrc.remaining () == 1)
+      throw new DecodeException ("Invalid Base16 encoding. Premature end of input at index " + aSrc.position ());
+  }
 }
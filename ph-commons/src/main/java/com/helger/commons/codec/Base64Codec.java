@@ -18,12 +18,16 @@ package com.helger.commons.codec;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.WillNotClose;
 
+import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.OverrideOnDemand;
 import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.base64.Base64;
@@ -33,14 +37,35 @@ import com.helger.commons.io.stream.NonBlockingByteArrayInputStream;
 import com.helger.commons.io.stream.NonClosingOutputStream;
 import com.helger.commons.io.stream.StreamHelper;
 import com.helger.commons.math.MathHelper;
+import com.helger.commons.string.StringHelper;
 
 /**
  * Encoder and decoder for Base64
  *
  * @author Philip Helger
  */
-public class Base64Codec implements IByteArrayCodec
+public class Base64Codec implements IByteArrayCodec, IByteBufferCodec
 {
+  private static final byte [] ENCODE_TABLE = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes (StandardCharsets.ISO_8859_1);
+  private static final byte PADDING = '=';
+  private static final byte DECODE_INVALID = -1;
+  private static final byte DECODE_WHITESPACE = -2;
+  private static final byte DECODE_PADDING = -3;
+  private static final byte [] DECODE_TABLE = new byte [256];
+
+  static
+  {
+    Arrays.fill (DECODE_TABLE, DECODE_INVALID);
+    for (int i = 0; i < ENCODE_TABLE.length; ++i)
+      DECODE_TABLE[ENCODE_TABLE[i]] = (byte) i;
+    // Same whitespace definition as in the Base64 class
+    DECODE_TABLE['\t'] = DECODE_WHITESPACE;
+    DECODE_TABLE['\n'] = DECODE_WHITESPACE;
+    DECODE_TABLE['\r'] = DECODE_WHITESPACE;
+    DECODE_TABLE[' '] = DECODE_WHITESPACE;
+    DECODE_TABLE[PADDING] = DECODE_PADDING;
+  }
+
   public Base64Codec ()
   {}
 
@@ -82,7 +107,90 @@ public class Base64Codec implements IByteArrayCodec
                              @Nonnegative final int nOfs,
                              @Nonnegative final int nLen)
   {
-    return Base64.safeEncodeBytesToBytes (aDecodedBuffer, nOfs, nLen);
+    if (aDecodedBuffer == null)
+      return null;
+    ValueEnforcer.isArrayOfsLen (aDecodedBuffer, nOfs, nLen);
+
+    final byte [] ret = new byte [getMaximumEncodedLength (nLen)];
+    final ByteBuffer aDst = ByteBuffer.wrap (ret);
+    encode (ByteBuffer.wrap (aDecodedBuffer, nOfs, nLen), aDst, true);
+    return aDst.position () == ret.length ? ret : Arrays.copyOf (ret, aDst.position ());
+  }
+
+  private static void _encodeGroup (final int n, @Nonnull final byte [] aDst, final int nDstOfs)
+  {
+    aDst[nDstOfs] = ENCODE_TABLE[n >>> 18];
+    aDst[nDstOfs + 1] = ENCODE_TABLE[(n >>> 12) & 0x3f];
+    aDst[nDstOfs + 2] = ENCODE_TABLE[(n >>> 6) & 0x3f];
+    aDst[nDstOfs + 3] = ENCODE_TABLE[n & 0x3f];
+  }
+
+  /**
+   * {@inheritDoc} The output is standard Base64 with padding and without line
+   * breaks - identical to {@link Base64#safeEncodeBytesToBytes(byte[])}.
+   *
+   * @since 9.4.3
+   */
+  public void encode (@Nonnull final ByteBuffer aSrc, @Nonnull final ByteBuffer aDst, final boolean bEndOfInput)
+  {
+    ValueEnforcer.notNull (aSrc, "Source");
+    ValueEnforcer.notNull (aDst, "Destination");
+
+    // Process all complete 3 byte groups that fit at once - no per byte
+    // bounds or state checks in the inner loops
+    final int nGroups = Math.min (aSrc.remaining () / 3, aDst.remaining () / 4);
+    int nSrcPos = aSrc.position ();
+    int nDstPos = aDst.position ();
+    if (aSrc.hasArray () && aDst.hasArray ())
+    {
+      final byte [] aSrcArray = aSrc.array ();
+      final byte [] aDstArray = aDst.array ();
+      int nSrcIdx = aSrc.arrayOffset () + nSrcPos;
+      int nDstIdx = aDst.arrayOffset () + nDstPos;
+      for (int i = 0; i < nGroups; ++i)
+      {
+        _encodeGroup ((aSrcArray[nSrcIdx] & 0xff) << 16 |
+                      (aSrcArray[nSrcIdx + 1] & 0xff) << 8 |
+                      (aSrcArray[nSrcIdx + 2] & 0xff),
+                      aDstArray,
+                      nDstIdx);
+        nSrcIdx += 3;
+        nDstIdx += 4;
+      }
+      nSrcPos += nGroups * 3;
+      nDstPos += nGroups * 4;
+    }
+    else
+    {
+      // Direct or read-only buffer: absolute access, one int per group
+      for (int i = 0; i < nGroups; ++i)
+      {
+        final int n = (aSrc.get (nSrcPos) & 0xff) << 16 |
+                      (aSrc.get (nSrcPos + 1) & 0xff) << 8 |
+                      (aSrc.get (nSrcPos + 2) & 0xff);
+        aDst.put (nDstPos, ENCODE_TABLE[n >>> 18]);
+        aDst.put (nDstPos + 1, ENCODE_TABLE[(n >>> 12) & 0x3f]);
+        aDst.put (nDstPos + 2, ENCODE_TABLE[(n >>> 6) & 0x3f]);
+        aDst.put (nDstPos + 3, ENCODE_TABLE[n & 0x3f]);
+        nSrcPos += 3;
+        nDstPos += 4;
+      }
+    }
+    aSrc.position (nSrcPos);
+    aDst.position (nDstPos);
+
+    // Trailing incomplete group
+    final int nRest = aSrc.remaining ();
+    if (bEndOfInput && nRest > 0 && nRest < 3 && aDst.remaining () >= 4)
+    {
+      int n = (aSrc.get () & 0xff) << 16;
+      if (nRest == 2)
+        n |= (aSrc.get () & 0xff) << 8;
+      aDst.put (ENCODE_TABLE[n >>> 18]);
+      aDst.put (ENCODE_TABLE[(n >>> 12) & 0x3f]);
+      aDst.put (nRest == 2 ? ENCODE_TABLE[(n >>> 6) & 0x3f] : PADDING);
+      aDst.put (PADDING);
+    }
   }
 
   @Override
@@ -128,4 +236,158 @@ public class Base64Codec implements IByteArrayCodec
   {
     return Base64.safeDecode (aEncodedBuffer, nOfs, nLen);
   }
+
+  /**
+   * Decode all complete quadruples without whitespace or padding. Stops at
+   * the first quadruple that needs special handling.
+   */
+  private static void _decodeFast (@Nonnull final ByteBuffer aSrc, @Nonnull final ByteBuffer aDst)
+  {
+    final int nMaxGroups = Math.min (aSrc.remaining () / 4, aDst.remaining () / 3);
+    int nSrcPos = aSrc.position ();
+    int nDstPos = aDst.position ();
+    if (aSrc.hasArray () && aDst.hasArray ())
+    {
+      final byte [] aSrcArray = aSrc.array ();
+      final byte [] aDstArray = aDst.array ();
+      final int nSrcDelta = aSrc.arrayOffset ();
+      final int nDstDelta = aDst.arrayOffset ();
+      int nSrcIdx = nSrcDelta + nSrcPos;
+      int nDstIdx = nDstDelta + nDstPos;
+      for (int i = 0; i < nMaxGroups; ++i)
+      {
+        final int n0 = DECODE_TABLE[aSrcArray[nSrcIdx] & 0xff];
+        final int n1 = DECODE_TABLE[aSrcArray[nSrcIdx + 1] & 0xff];
+        final int n2 = DECODE_TABLE[aSrcArray[nSrcIdx + 2] & 0xff];
+        final int n3 = DECODE_TABLE[aSrcArray[nSrcIdx + 3] & 0xff];
+        // All special markers are negative
+        if ((n0 | n1 | n2 | n3) < 0)
+          break;
+        final int n = n0 << 18 | n1 << 12 | n2 << 6 | n3;
+        aDstArray[nDstIdx] = (byte) (n >>> 16);
+        aDstArray[nDstIdx + 1] = (byte) (n >>> 8);
+        aDstArray[nDstIdx + 2] = (byte) n;
+        nSrcIdx += 4;
+        nDstIdx += 3;
+      }
+      nSrcPos = nSrcIdx - nSrcDelta;
+      nDstPos = nDstIdx - nDstDelta;
+    }
+    else
+    {
+      for (int i = 0; i < nMaxGroups; ++i)
+      {
+        final int n0 = DECODE_TABLE[aSrc.get (nSrcPos) & 0xff];
+        final int n1 = DECODE_TABLE[aSrc.get (nSrcPos + 1) & 0xff];
+        final int n2 = DECODE_TABLE[aSrc.get (nSrcPos + 2) & 0xff];
+        final int n3 = DECODE_TABLE[aSrc.get (nSrcPos + 3) & 0xff];
+        if ((n0 | n1 | n2 | n3) < 0)
+          break;
+        final int n = n0 << 18 | n1 << 12 | n2 << 6 | n3;
+        aDst.put (nDstPos, (byte) (n >>> 16));
+        aDst.put (nDstPos + 1, (byte) (n >>> 8));
+        aDst.put (nDstPos + 2, (byte) n);
+        nSrcPos += 4;
+        nDstPos += 3;
+      }
+    }
+    aSrc.position (nSrcPos);
+    aDst.position (nDstPos);
+  }
+
+  /**
+   * Decode a single quadruple that may contain whitespace or padding, or the
+   * unpadded rest at the end of input.
+   *
+   * @return <code>true</code> if progress was made, <code>false</code> if more
+   *         input or more output space is needed.
+   */
+  private static boolean _decodeSlow (@Nonnull final ByteBuffer aSrc,
+                                      @Nonnull final ByteBuffer aDst,
+                                      final boolean bEndOfInput)
+  {
+    final int nLimit = aSrc.limit ();
+    int nSrcPos = aSrc.position ();
+    int nValue = 0;
+    int nSextets = 0;
+    int nPaddings = 0;
+    while (nSextets + nPaddings < 4 && nSrcPos < nLimit)
+    {
+      final byte b = aSrc.get (nSrcPos);
+      final byte nDecoded = DECODE_TABLE[b & 0xff];
+      if (nDecoded == DECODE_INVALID)
+        throw new DecodeException ("Invalid Base64 character 0x" +
+                                   StringHelper.getHexStringLeadingZero (b & 0xff, 2) +
+                                   " at index " +
+                                   nSrcPos);
+      nSrcPos++;
+      if (nDecoded == DECODE_WHITESPACE)
+        continue;
+      if (nDecoded == DECODE_PADDING)
+      {
+        if (nSextets < 2)
+          throw new DecodeException ("Unexpected Base64 padding at index " + (nSrcPos - 1));
+        nPaddings++;
+      }
+      else
+      {
+        if (nPaddings > 0)
+          throw new DecodeException ("Unexpected Base64 character after padding at index " + (nSrcPos - 1));
+        nValue |= nDecoded << (18 - 6 * nSextets);
+        nSextets++;
+      }
+    }
+
+    if (nSextets + nPaddings < 4)
+    {
+      if (!bEndOfInput)
+      {
+        // Whitespace only can be skipped, the rest needs more input
+        if (nSextets + nPaddings == 0)
+        {
+          final boolean bProgress = nSrcPos != aSrc.position ();
+          aSrc.position (nSrcPos);
+          return bProgress;
+        }
+        return false;
+      }
+      if (nSextets == 0)
+      {
+        aSrc.position (nSrcPos);
+        return false;
+      }
+      if (nSextets == 1)
+        throw new DecodeException ("Invalid Base64 encoding. Premature end of input at index " + nSrcPos);
+    }
+
+    // 2 sextets -> 1 byte, 3 sextets -> 2 bytes, 4 sextets -> 3 bytes
+    final int nBytes = nSextets - 1;
+    if (aDst.remaining () < nBytes)
+      return false;
+    aDst.put ((byte) (nValue >>> 16));
+    if (nBytes > 1)
+      aDst.put ((byte) (nValue >>> 8));
+    if (nBytes > 2)
+      aDst.put ((byte) nValue);
+    aSrc.position (nSrcPos);
+    return true;
+  }
+
+  /**
+   * {@inheritDoc} Whitespace (space, tab, CR and LF) is ignored, padding is
+   * optional at the end of input. Each quadruple is decoded on its own, so
+   * concatenated padded Base64 blocks are decoded as well.
+   *
+   * @since 9.4.3
+   */
+  public void decode (@Nonnull final ByteBuffer aSrc, @Nonnull final ByteBuffer aDst, final boolean bEndOfInput)
+  {
+    ValueEnforcer.notNull (aSrc, "Source");
+    ValueEnforcer.notNull (aDst, "Destination");
+
+    do
+    {
+      _decodeFast (aSrc, aDst);
+    } while (_decodeSlow (aSrc, aDst, bEndOfInput));
+  }
 }
@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.WillNotClose;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.functional.ITriConsumer;
+
+/**
+ * Internal helper to pump data between channels through an
+ * {@link IByteBufferCodec}.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@Immutable
+final class ByteBufferCodecHelper
+{
+  private ByteBufferCodecHelper ()
+  {}
+
+  private static void _drain (@Nonnull final ByteBuffer aBuf,
+                              @Nonnull final WritableByteChannel aDst) throws IOException
+  {
+    aBuf.flip ();
+    while (aBuf.hasRemaining ())
+      aDst.write (aBuf);
+    aBuf.clear ();
+  }
+
+  static void transfer (@Nonnull @WillNotClose final ReadableByteChannel aSrc,
+                        @Nonnull @WillNotClose final WritableByteChannel aDst,
+                        @Nonnegative final int nBufferSize,
+                        @Nonnull final ITriConsumer <ByteBuffer, ByteBuffer, Boolean> aCodec) throws IOException
+  {
+    ValueEnforcer.notNull (aSrc, "SourceChannel");
+    ValueEnforcer.notNull (aDst, "DestinationChannel");
+    ValueEnforcer.isTrue (nBufferSize >= 16, "BufferSize must be >= 16");
+
+    // Direct buffers avoid the copy the channel implementations would do
+    // otherwise. The output buffer is larger so that one full input buffer
+    // usually fits in a single pass.
+    final ByteBuffer aIn = ByteBuffer.allocateDirect (nBufferSize);
+    final ByteBuffer aOut = ByteBuffer.allocateDirect (nBufferSize * 2);
+    boolean bEOF = false;
+    while (!bEOF)
+    {
+      bEOF = aSrc.read (aIn) < 0;
+      aIn.flip ();
+      // Loop until the codec made no more progress
+      while (true)
+      {
+        final int nInPos = aIn.position ();
+        aCodec.accept (aIn, aOut, Boolean.valueOf (bEOF));
+        if (aOut.position () > 0)
+          _drain (aOut, aDst);
+        else
+          if (aIn.position () == nInPos)
+            break;
+      }
+      aIn.compact ();
+    }
+  }
+}
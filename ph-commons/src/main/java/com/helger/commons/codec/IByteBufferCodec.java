@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.WillNotClose;
+
+
+/**
+ * Interface for codecs that can operate directly on {@link ByteBuffer}s
+ * (heap and direct) and therefore on NIO channels without intermediate byte
+ * arrays. The buffer based methods follow the contract of
+ * {@link java.nio.charset.CharsetEncoder#encode(java.nio.CharBuffer, ByteBuffer, boolean)}:
+ * as much input as possible is consumed, incomplete input groups are left in
+ * the source buffer unless the end of input is signalled. Progress is only
+ * made if the destination buffer has room for at least one complete output
+ * group (e.g. 4 bytes for Base64 encoding, 3 bytes for Base64 decoding).
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+public interface IByteBufferCodec
+{
+  /** The default buffer size used for channel transfers */
+  int DEFAULT_CHANNEL_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Encode as many complete input groups from the source buffer as fit into
+   * the destination buffer. The positions of both buffers are advanced.
+   *
+   * @param aSrc
+   *        Source buffer with the decoded bytes. May not be <code>null</code>.
+   * @param aDst
+   *        Destination buffer for the encoded bytes. May not be
+   *        <code>null</code>.
+   * @param bEndOfInput
+   *        <code>true</code> if no more input follows the remaining bytes of
+   *        the source buffer, so that a trailing incomplete group must be
+   *        encoded as well.
+   * @throws EncodeException
+   *         In case something goes wrong
+   */
+  void encode (@Nonnull ByteBuffer aSrc, @Nonnull ByteBuffer aDst, boolean bEndOfInput);
+
+  /**
+   * Decode as many complete input groups from the source buffer as fit into
+   * the destination buffer. The positions of both buffers are advanced.
+   *
+   * @param aSrc
+   *        Source buffer with the encoded bytes. May not be <code>null</code>.
+   * @param aDst
+   *        Destination buffer for the decoded bytes. May not be
+   *        <code>null</code>.
+   * @param bEndOfInput
+   *        <code>true</code> if no more input follows the remaining bytes of
+   *        the source buffer.
+   * @throws DecodeException
+   *         In case the input is invalid
+   */
+  void decode (@Nonnull ByteBuffer aSrc, @Nonnull ByteBuffer aDst, boolean bEndOfInput);
+
+  /**
+   * Encode everything readable from the source channel to the destination
+   * channel, using {@link #DEFAULT_CHANNEL_BUFFER_SIZE}.
+   *
+   * @param aSrc
+   *        Source channel. May not be <code>null</code>. Is not closed.
+   * @param aDst
+   *        Destination channel. May not be <code>null</code>. Is not closed.
+   * @throws EncodeException
+   *         In case something goes wrong
+   */
+  default void encode (@Nonnull @WillNotClose final ReadableByteChannel aSrc,
+                       @Nonnull @WillNotClose final WritableByteChannel aDst)
+  {
+    encode (aSrc, aDst, DEFAULT_CHANNEL_BUFFER_SIZE);
+  }
+
+  /**
+   * Encode everything readable from the source channel to the destination
+   * channel.
+   *
+   * @param aSrc
+   *        Source channel. May not be <code>null</code>. Is not closed.
+   * @param aDst
+   *        Destination channel. May not be <code>null</code>. Is not closed.
+   * @param nBufferSize
+   *        The size of the direct buffers to be used. Must be &ge; 16.
+   * @throws EncodeException
+   *         In case something goes wrong
+   */
+  default void encode (@Nonnull @WillNotClose final ReadableByteChannel aSrc,
+                       @Nonnull @WillNotClose final WritableByteChannel aDst,
+                       @Nonnegative final int nBufferSize)
+  {
+    try
+    {
+      ByteBufferCodecHelper.transfer (aSrc, aDst, nBufferSize, this::encode);
+    }
+    catch (final IOException ex)
+    {
+      throw new EncodeException ("Failed to encode channel", ex);
+    }
+  }
+
+  /**
+   * Decode everything readable from the source channel to the destination
+   * channel, using {@link #DEFAULT_CHANNEL_BUFFER_SIZE}.
+   *
+   * @param aSrc
+   *        Source channel. May not be <code>null</code>. Is not closed.
+   * @param aDst
+   *        Destination channel. May not be <code>null</code>. Is not closed.
+   * @throws DecodeException
+   *         In case something goes wrong
+   */
+  default void decode (@Nonnull @WillNotClose final ReadableByteChannel aSrc,
+                       @Nonnull @WillNotClose final WritableByteChannel aDst)
+  {
+    decode (aSrc, aDst, DEFAULT_CHANNEL_BUFFER_SIZE);
+  }
+
+  /**
+   * Decode everything readable from the source channel to the destination
+   * channel.
+   *
+   * @param aSrc
+   *        Source channel. May not be <code>null</code>. Is not closed.
+   * @param aDst
+   *        Destination channel. May not be <code>null</code>. Is not closed.
+   * @param nBufferSize
+   *        The size of the direct buffers to be used. Must be &ge; 16.
+   * @throws DecodeException
+   *         In case something goes wrong
+   */
+  default void decode (@Nonnull @WillNotClose final ReadableByteChannel aSrc,
+                       @Nonnull @WillNotClose final WritableByteChannel aDst,
+                       @Nonnegative final int nBufferSize)
+  {
+    try
+    {
+      ByteBufferCodecHelper.transfer (aSrc, aDst, nBufferSize, this::decode);
+    }
+    catch (final IOException ex)
+    {
+      throw new DecodeException ("Failed to decode channel", ex);
+    }
+  }
+}
@@ -0,0 +1,915 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.csv;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.state.ETriState;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A CSV reader that parses the input in parallel. The input is split into
+ * chunks at record boundaries, and each chunk is parsed by a separate
+ * {@link CSVRowReader} on a {@link ForkJoinPool}.<br>
+ * Record boundaries are determined in two steps: first all chunks are scanned
+ * in parallel, assuming each one starts outside of a quoted field. Afterwards
+ * the chunks are checked sequentially and if a quoted field spans a chunk
+ * border, the affected part is moved to the previous chunk and rescanned. So
+ * quoted newlines are handled correctly and only cost extra time if they
+ * actually occur at a chunk border.<br>
+ * Files are memory mapped, and each chunk is only decoded by the worker that
+ * scans or parses it, so the decoded chars of the whole file are never held in
+ * memory at the same time. This requires a charset in which a line feed and a
+ * carriage return are always the single bytes 0x0a and 0x0d (e.g. UTF-8 or
+ * ISO-8859-1).<br>
+ * Settings are taken from the provided {@link CSVParser}. Instances of this
+ * class can be reused for multiple inputs, but the configuration must not be
+ * changed while a read is in progress.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+public class CSVParallelReader
+{
+  /** The default chunk size in chars (or bytes for files) */
+  public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+  /**
+   * A part of a char array.
+   */
+  private static final class Chunk
+  {
+    private final char [] m_aChars;
+    private final int m_nStart;
+    private final int m_nEnd;
+
+    Chunk (@Nonnull final char [] aChars, @Nonnegative final int nStart, @Nonnegative final int nEnd)
+    {
+      m_aChars = aChars;
+      m_nStart = nStart;
+      m_nEnd = nEnd;
+    }
+  }
+
+  /**
+   * A range of positions in an {@link AbstractSource}.
+   */
+  private static final class Range
+  {
+    private final long m_nFrom;
+    private final long m_nTo;
+
+    Range (final long nFrom, final long nTo)
+    {
+      m_nFrom = nFrom;
+      m_nTo = nTo;
+    }
+
+    long getLength ()
+    {
+      return m_nTo - m_nFrom;
+    }
+  }
+
+  /**
+   * The input to be parsed. Positions are chars or bytes, depending on the
+   * implementation.
+   */
+  private abstract static class AbstractSource
+  {
+    /**
+     * Get the chars of the passed range. This may be expensive and the result
+     * should not be kept longer than necessary.
+     */
+    @Nonnull
+    abstract Chunk getChars (@Nonnull Range aRange);
+
+    /**
+     * Get the position of a char index in the result of
+     * {@link #getChars(Range)}. The index must be the start of a line or the
+     * end of the chunk.
+     */
+    abstract long getPosition (@Nonnull Range aRange, @Nonnull Chunk aChunk, @Nonnegative int nIndex);
+  }
+
+  /**
+   * A source on a char array. Positions are array indices.
+   */
+  private static final class CharArraySource extends AbstractSource
+  {
+    private final char [] m_aChars;
+
+    CharArraySource (@Nonnull final char [] aChars)
+    {
+      m_aChars = aChars;
+    }
+
+    @Override
+    @Nonnull
+    Chunk getChars (@Nonnull final Range aRange)
+    {
+      return new Chunk (m_aChars, (int) aRange.m_nFrom, (int) aRange.m_nTo);
+    }
+
+    @Override
+    long getPosition (@Nonnull final Range aRange, @Nonnull final Chunk aChunk, @Nonnegative final int nIndex)
+    {
+      return nIndex;
+    }
+  }
+
+  /**
+   * A source on a memory mapped file, consisting of line aligned segments.
+   * Positions are byte offsets in the file. As each segment starts after a
+   * line feed, no multi-byte sequence spans segments, so every segment can be
+   * decoded on its own. Char indices of line starts are mapped back to byte
+   * offsets via the line break chars before them, as each carriage return or
+   * line feed char is exactly one byte and a line may end with either of
+   * them.
+   */
+  private static final class MappedFileSource extends AbstractSource
+  {
+    private final Charset m_aCharset;
+    // Start offset of each segment, plus the file size
+    private final long [] m_aOffsets;
+    private final ByteBuffer [] m_aSegments;
+
+    MappedFileSource (@Nonnull final Charset aCharset,
+                      @Nonnull final long [] aOffsets,
+                      @Nonnull final ByteBuffer [] aSegments)
+    {
+      m_aCharset = aCharset;
+      m_aOffsets = aOffsets;
+      m_aSegments = aSegments;
+    }
+
+    private static boolean _isLineBreak (final int c)
+    {
+      return c == '\n' || c == '\r';
+    }
+
+    private int _getSegmentIndex (final long nPos)
+    {
+      final int nIndex = Arrays.binarySearch (m_aOffsets, nPos);
+      return nIndex >= 0 ? nIndex : -nIndex - 2;
+    }
+
+    @Nonnull
+    private ByteBuffer _getBytes (final int nSegment, final long nFrom, final long nTo)
+    {
+      final long nSegmentStart = m_aOffsets[nSegment];
+      final ByteBuffer ret = m_aSegments[nSegment].duplicate ();
+      ret.limit ((int) (Math.min (nTo, m_aOffsets[nSegment + 1]) - nSegmentStart));
+      ret.position ((int) (nFrom - nSegmentStart));
+      return ret;
+    }
+
+    @Override
+    @Nonnull
+    Chunk getChars (@Nonnull final Range aRange)
+    {
+      // The supported charsets never create more chars than bytes
+      final CharBuffer aCB = CharBuffer.allocate (Math.toIntExact (aRange.getLength ()));
+      final CharsetDecoder aDecoder = m_aCharset.newDecoder ()
+                                                .onMalformedInput (CodingErrorAction.REPLACE)
+                                                .onUnmappableCharacter (CodingErrorAction.REPLACE);
+      long nPos = aRange.m_nFrom;
+      int nSegment = _getSegmentIndex (nPos);
+      while (nPos < aRange.m_nTo)
+      {
+        final ByteBuffer aBB = _getBytes (nSegment, nPos, aRange.m_nTo);
+        aDecoder.reset ();
+        if (aDecoder.decode (aBB, aCB, true).isOverflow () || aDecoder.flush (aCB).isOverflow ())
+          throw new IllegalStateException ("The charset " + m_aCharset + " created more chars than bytes");
+        nPos = m_aOffsets[++nSegment];
+      }
+      return new Chunk (aCB.array (), 0, aCB.position ());
+    }
+
+    @Override
+    long getPosition (@Nonnull final Range aRange, @Nonnull final Chunk aChunk, @Nonnegative final int nIndex)
+    {
+      if (nIndex >= aChunk.m_nEnd)
+        return aRange.m_nTo;
+
+      // Each line break char is exactly one byte with the same value
+      int nLineBreaks = 0;
+      for (int i = aChunk.m_nStart; i < nIndex; ++i)
+        if (_isLineBreak (aChunk.m_aChars[i]))
+          nLineBreaks++;
+      if (nLineBreaks == 0)
+        return aRange.m_nFrom;
+
+      long nPos = aRange.m_nFrom;
+      int nSegment = _getSegmentIndex (nPos);
+      while (nPos < aRange.m_nTo)
+      {
+        final ByteBuffer aBB = _getBytes (nSegment, nPos, aRange.m_nTo);
+        final int nStart = aBB.position ();
+        for (int i = nStart; i < aBB.limit (); ++i)
+          if (_isLineBreak (aBB.get (i)) && --nLineBreaks == 0)
+            return nPos + i - nStart + 1;
+        nPos = m_aOffsets[++nSegment];
+      }
+      throw new IllegalStateException ("Line breaks in the range " + aRange.m_nFrom + " to " + aRange.m_nTo + " don't match");
+    }
+  }
+
+  /**
+   * Invoke an action for all indices in parallel, splitting the index range
+   * recursively.
+   */
+  private static final class IndexAction extends RecursiveAction
+  {
+    private final int m_nFrom;
+    private final int m_nTo;
+    private final IntConsumer m_aAction;
+
+    IndexAction (final int nFrom, final int nTo, @Nonnull final IntConsumer aAction)
+    {
+      m_nFrom = nFrom;
+      m_nTo = nTo;
+      m_aAction = aAction;
+    }
+
+    @Override
+    protected void compute ()
+    {
+      if (m_nTo - m_nFrom == 1)
+        m_aAction.accept (m_nFrom);
+      else
+        if (m_nTo > m_nFrom)
+        {
+          final int nMid = (m_nFrom + m_nTo) >>> 1;
+          invokeAll (new IndexAction (m_nFrom, nMid, m_aAction), new IndexAction (nMid, m_nTo, m_aAction));
+        }
+    }
+  }
+
+  /**
+   * Spliterator over the rows of a list of record aligned chunks.
+   */
+  private final class RowSpliterator implements Spliterator <ICommonsList <String>>
+  {
+    private final AbstractSource m_aSource;
+    private final ICommonsList <Range> m_aChunks;
+    // Total length of all chunks before the respective index
+    private final long [] m_aOffsets;
+    private int m_nIndex;
+    private final int m_nEnd;
+    private CSVRowReader m_aCurReader;
+
+    RowSpliterator (@Nonnull final AbstractSource aSource,
+                    @Nonnull final ICommonsList <Range> aChunks,
+                    @Nonnull final long [] aOffsets,
+                    final int nIndex,
+                    final int nEnd,
+                    @Nullable final CSVRowReader aCurReader)
+    {
+      m_aSource = aSource;
+      m_aChunks = aChunks;
+      m_aOffsets = aOffsets;
+      m_nIndex = nIndex;
+      m_nEnd = nEnd;
+      m_aCurReader = aCurReader;
+    }
+
+    public boolean tryAdvance (@Nonnull final Consumer <? super ICommonsList <String>> aAction)
+    {
+      while (true)
+      {
+        if (m_aCurReader == null)
+        {
+          if (m_nIndex >= m_nEnd)
+            return false;
+          m_aCurReader = _createChunkReader (m_aSource.getChars (m_aChunks.get (m_nIndex++)));
+        }
+
+        final CSVRow aRow = _readNextRow (m_aCurReader);
+        if (aRow != null)
+        {
+          aAction.accept (aRow.getAsList ());
+          return true;
+        }
+        m_aCurReader = null;
+      }
+    }
+
+    @Nullable
+    public Spliterator <ICommonsList <String>> trySplit ()
+    {
+      final int nRemaining = m_nEnd - m_nIndex;
+      if (nRemaining < 2)
+        return null;
+
+      // The prefix includes the rest of the chunk currently being read
+      final int nMid = m_nIndex + nRemaining / 2;
+      final RowSpliterator ret = new RowSpliterator (m_aSource, m_aChunks, m_aOffsets, m_nIndex, nMid, m_aCurReader);
+      m_aCurReader = null;
+      m_nIndex = nMid;
+      return ret;
+    }
+
+    public long estimateSize ()
+    {
+      // Number of chars (or bytes) as an upper bound for the number of rows
+      return m_aOffsets[m_nEnd] - m_aOffsets[m_nIndex] + (m_aCurReader == null ? 0 : 1);
+    }
+
+    public int characteristics ()
+    {
+      return ORDERED | NONNULL;
+    }
+  }
+
+  private final CSVParser m_aParser;
+  private boolean m_bKeepCR = CCSV.DEFAULT_KEEP_CR;
+  private int m_nSkipLines = CCSV.DEFAULT_SKIP_LINES;
+  private int m_nChunkSize = DEFAULT_CHUNK_SIZE;
+  private ForkJoinPool m_aPool = ForkJoinPool.commonPool ();
+
+  /**
+   * Constructor using a comma for the separator.
+   */
+  public CSVParallelReader ()
+  {
+    this (new CSVParser ());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param aParser
+   *        the parser whose settings should be used. May not be
+   *        <code>null</code>.
+   */
+  public CSVParallelReader (@Nonnull final CSVParser aParser)
+  {
+    m_aParser = ValueEnforcer.notNull (aParser, "Parser");
+  }
+
+  /**
+   * @return the CSVParser whose settings are used by the reader.
+   */
+  @Nonnull
+  public CSVParser getParser ()
+  {
+    return m_aParser;
+  }
+
+  /**
+   * @return <code>true</code> if reader will keep carriage returns,
+   *         <code>false</code> otherwise.
+   */
+  public boolean isKeepCarriageReturns ()
+  {
+    return m_bKeepCR;
+  }
+
+  /**
+   * @param bKeepCR
+   *        <code>true</code> to keep carriage returns in data read,
+   *        <code>false</code> otherwise
+   * @return this for chaining
+   */
+  @Nonnull
+  public CSVParallelReader setKeepCarriageReturns (final boolean bKeepCR)
+  {
+    m_bKeepCR = bKeepCR;
+    return this;
+  }
+
+  /**
+   * @return the number of lines in the CSV file to skip before processing.
+   */
+  @Nonnegative
+  public int getSkipLines ()
+  {
+    return m_nSkipLines;
+  }
+
+  /**
+   * Sets the number of lines to skip before reading starts.
+   *
+   * @param nSkipLines
+   *        the number of lines to skip.
+   * @return this for chaining
+   */
+  @Nonnull
+  public CSVParallelReader setSkipLines (@Nonnegative final int nSkipLines)
+  {
+    ValueEnforcer.isGE0 (nSkipLines, "SkipLines");
+    m_nSkipLines = nSkipLines;
+    return this;
+  }
+
+  /**
+   * @return The target chunk size in chars (or bytes when reading files).
+   */
+  @Nonnegative
+  public int getChunkSize ()
+  {
+    return m_nChunkSize;
+  }
+
+  /**
+   * Set the target chunk size. Chunks are always extended to the next record
+   * boundary, so the effective size may be larger.
+   *
+   * @param nChunkSize
+   *        The target chunk size in chars (or bytes when reading files). Must
+   *        be &gt; 0.
+   * @return this for chaining
+   */
+  @Nonnull
+  public CSVParallelReader setChunkSize (@Nonnegative final int nChunkSize)
+  {
+    ValueEnforcer.isGT0 (nChunkSize, "ChunkSize");
+    m_nChunkSize = nChunkSize;
+    return this;
+  }
+
+  /**
+   * @return The fork-join pool used to split and parse the chunks. Never
+   *         <code>null</code>. Defaults to the common pool.
+   */
+  @Nonnull
+  public ForkJoinPool getPool ()
+  {
+    return m_aPool;
+  }
+
+  /**
+   * @param aPool
+   *        The fork-join pool used to split and parse the chunks. May not be
+   *        <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public CSVParallelReader setPool (@Nonnull final ForkJoinPool aPool)
+  {
+    ValueEnforcer.notNull (aPool, "Pool");
+    m_aPool = aPool;
+    return this;
+  }
+
+  private void _invokeAll (@Nonnegative final int nCount, @Nonnull final IntConsumer aAction)
+  {
+    if (nCount > 0)
+      m_aPool.invoke (new IndexAction (0, nCount, aAction));
+  }
+
+  @Nonnull
+  private CSVRowReader _createChunkReader (@Nonnull final Chunk aChunk)
+  {
+    return new CSVRowReader (aChunk.m_aChars, aChunk.m_nStart, aChunk.m_nEnd, m_aParser, m_bKeepCR);
+  }
+
+  @Nullable
+  private static CSVRow _readNextRow (@Nonnull final CSVRowReader aReader)
+  {
+    try
+    {
+      return aReader.readNextRow ();
+    }
+    catch (final IOException ex)
+    {
+      // Cannot happen, as no I/O is involved
+      throw new UncheckedIOException (ex);
+    }
+  }
+
+  @Nonnull
+  private static ETriState _scanLine (@Nonnull final CSVRowReader aReader, final boolean bPending)
+  {
+    try
+    {
+      return aReader.scanLine (bPending);
+    }
+    catch (final IOException ex)
+    {
+      // Cannot happen, as no I/O is involved
+      throw new UncheckedIOException (ex);
+    }
+  }
+
+  /**
+   * Split the passed chars into segments that each start directly after a line
+   * feed.
+   */
+  @Nonnull
+  private ICommonsList <Range> _getSegments (@Nonnull final char [] aChars)
+  {
+    final ICommonsList <Range> ret = new CommonsArrayList <> ();
+    final int nEnd = aChars.length;
+    int nStart = 0;
+    while (nStart < nEnd)
+    {
+      int nSegmentEnd = nEnd;
+      if (nEnd - nStart > m_nChunkSize)
+      {
+        for (int i = nStart + m_nChunkSize - 1; i < nEnd; ++i)
+          if (aChars[i] == '\n')
+          {
+            nSegmentEnd = i + 1;
+            break;
+          }
+      }
+      ret.add (new Range (nStart, nSegmentEnd));
+      nStart = nSegmentEnd;
+    }
+    return ret;
+  }
+
+  private static long _findLineStart (@Nonnull final FileChannel aFC,
+                                      final long nFrom,
+                                      final long nSize) throws IOException
+  {
+    final ByteBuffer aBB = ByteBuffer.allocate (8 * 1024);
+    long nPos = nFrom;
+    while (nPos < nSize)
+    {
+      aBB.clear ();
+      final int nRead = aFC.read (aBB, nPos);
+      if (nRead <= 0)
+        break;
+      for (int i = 0; i < nRead; ++i)
+        if (aBB.get (i) == '\n')
+          return nPos + i + 1;
+      nPos += nRead;
+    }
+    return nSize;
+  }
+
+  /**
+   * Split the passed file into segments that each start directly after a line
+   * feed, and map them into memory. Nothing is decoded here.
+   */
+  @Nonnull
+  private MappedFileSource _getSource (@Nonnull final Path aPath,
+                                       @Nonnull final Charset aCharset,
+                                       @Nonnull final ICommonsList <Range> aSegments) throws IOException
+  {
+    try (final FileChannel aFC = FileChannel.open (aPath, StandardOpenOption.READ))
+    {
+      final long nSize = aFC.size ();
+
+      // Find the byte boundaries
+      long nPos = 0;
+      while (nPos < nSize)
+      {
+        final long nNext = nSize - nPos > m_nChunkSize ? _findLineStart (aFC, nPos + m_nChunkSize - 1, nSize) : nSize;
+        aSegments.add (new Range (nPos, nNext));
+        nPos = nNext;
+      }
+
+      // The mappings stay valid after the channel is closed
+      final int nCount = aSegments.size ();
+      final long [] aOffsets = new long [nCount + 1];
+      final ByteBuffer [] aBuffers = new ByteBuffer [nCount];
+      for (int i = 0; i < nCount; ++i)
+      {
+        final Range aSegment = aSegments.get (i);
+        aOffsets[i] = aSegment.m_nFrom;
+        aBuffers[i] = aFC.map (FileChannel.MapMode.READ_ONLY, aSegment.m_nFrom, aSegment.getLength ());
+      }
+      aOffsets[nCount] = nSize;
+      return new MappedFileSource (aCharset, aOffsets, aBuffers);
+    }
+  }
+
+  /**
+   * Scan all lines from the start of the passed reader until the end of a
+   * record is found.
+   *
+   * @return <code>true</code> if the reader is still within a quoted field
+   */
+  private static boolean _scanUntilRecordEnd (@Nonnull final CSVRowReader aReader, final boolean bPending)
+  {
+    boolean bCurPending = bPending;
+    while (bCurPending)
+    {
+      final ETriState eState = _scanLine (aReader, true);
+      if (eState.isUndefined ())
+        break;
+      bCurPending = eState.isTrue ();
+    }
+    return bCurPending;
+  }
+
+  /**
+   * Scan all lines of the passed reader.
+   *
+   * @return <code>true</code> if the reader ends within a quoted field
+   */
+  private static boolean _scanAll (@Nonnull final CSVRowReader aReader)
+  {
+    boolean bPending = false;
+    ETriState eState;
+    while (!(eState = _scanLine (aReader, bPending)).isUndefined ())
+      bPending = eState.isTrue ();
+    return bPending;
+  }
+
+  /**
+   * Convert the line aligned segments into record aligned chunks. As all
+   * ranges refer to the same source, a record spanning segments simply
+   * extends the range of the previous chunk.
+   */
+  @Nonnull
+  private ICommonsList <Range> _getChunks (@Nonnull final AbstractSource aSource,
+                                           @Nonnull final ICommonsList <Range> aSegments)
+  {
+    // Skip the leading lines, which may span multiple segments
+    int nLinesToSkip = m_nSkipLines;
+    while (nLinesToSkip > 0 && aSegments.isNotEmpty ())
+    {
+      final Range aFirst = aSegments.getFirst ();
+      final Chunk aChars = aSource.getChars (aFirst);
+      final CSVRowReader aReader = _createChunkReader (aChars);
+      try
+      {
+        while (nLinesToSkip > 0 && aReader.skipLine ())
+          nLinesToSkip--;
+      }
+      catch (final IOException ex)
+      {
+        // Cannot happen, as no I/O is involved
+        throw new UncheckedIOException (ex);
+      }
+
+      final long nNewStart = aSource.getPosition (aFirst, aChars, aReader.getLineStartIndex ());
+      if (nNewStart < aFirst.m_nTo)
+        aSegments.set (0, new Range (nNewStart, aFirst.m_nTo));
+      else
+        aSegments.removeFirst ();
+    }
+
+    final int nCount = aSegments.size ();
+    final ICommonsList <Range> ret = new CommonsArrayList <> (nCount);
+    if (nCount == 0)
+      return ret;
+
+    // Speculatively scan all segments in parallel, assuming that each segment
+    // starts with a new record
+    final boolean [] aEndsPending = new boolean [nCount];
+    final boolean [] aEndsInField = new boolean [nCount];
+    _invokeAll (nCount, nIndex -> {
+      final CSVRowReader aReader = _createChunkReader (aSource.getChars (aSegments.get (nIndex)));
+      aEndsPending[nIndex] = _scanAll (aReader);
+      aEndsInField[nIndex] = aReader.isInField ();
+    });
+
+    // Sequentially fix all segments where a record spans the border
+    boolean bPending = false;
+    boolean bInField = false;
+    for (int nIndex = 0; nIndex < nCount; ++nIndex)
+    {
+      final Range aSegment = aSegments.get (nIndex);
+      long nStart = aSegment.m_nFrom;
+      if (bPending)
+      {
+        // Continue the record of the previous segment
+        final Chunk aChars = aSource.getChars (aSegment);
+        final CSVRowReader aReader = _createChunkReader (aChars);
+        aReader.setInField (bInField);
+        bPending = _scanUntilRecordEnd (aReader, true);
+        bInField = aReader.isInField ();
+
+        final long nRecordEnd = bPending ? aSegment.m_nTo
+                                         : aSource.getPosition (aSegment, aChars, aReader.getLineStartIndex ());
+        ret.set (ret.size () - 1, new Range (ret.getLast ().m_nFrom, nRecordEnd));
+        if (bPending)
+          continue;
+        nStart = nRecordEnd;
+      }
+
+      if (nStart < aSegment.m_nTo)
+      {
+        final Range aChunk = new Range (nStart, aSegment.m_nTo);
+        ret.add (aChunk);
+        if (nStart == aSegment.m_nFrom)
+        {
+          // The speculation was correct
+          bPending = aEndsPending[nIndex];
+          bInField = aEndsInField[nIndex];
+        }
+        else
+        {
+          final CSVRowReader aReader = _createChunkReader (aSource.getChars (aChunk));
+          bPending = _scanAll (aReader);
+          bInField = aReader.isInField ();
+        }
+      }
+    }
+    return ret;
+  }
+
+  @Nonnull
+  private Spliterator <ICommonsList <String>> _getSpliterator (@Nonnull final AbstractSource aSource,
+                                                              @Nonnull final ICommonsList <Range> aSegments)
+  {
+    final ICommonsList <Range> aChunks = _getChunks (aSource, aSegments);
+    final int nCount = aChunks.size ();
+    final long [] aOffsets = new long [nCount + 1];
+    for (int i = 0; i < nCount; ++i)
+      aOffsets[i + 1] = aOffsets[i] + aChunks.get (i).getLength ();
+    return new RowSpliterator (aSource, aChunks, aOffsets, 0, nCount, null);
+  }
+
+  private void _forEachRow (@Nonnull final AbstractSource aSource,
+                            @Nonnull final ICommonsList <Range> aSegments,
+                            @Nonnull final Consumer <? super CSVRow> aRowConsumer)
+  {
+    final ICommonsList <Range> aChunks = _getChunks (aSource, aSegments);
+    _invokeAll (aChunks.size (), nIndex -> {
+      // Decode in the worker thread
+      final CSVRowReader aReader = _createChunkReader (aSource.getChars (aChunks.get (nIndex)));
+      CSVRow aRow;
+      while ((aRow = _readNextRow (aReader)) != null)
+        aRowConsumer.accept (aRow);
+    });
+  }
+
+  private static void _checkCharset (@Nonnull final Charset aCharset)
+  {
+    ValueEnforcer.notNull (aCharset, "Charset");
+    final boolean bSupported = aCharset.equals (StandardCharsets.UTF_8) ||
+                               (aCharset.canEncode () &&
+                                aCharset.newEncoder ().maxBytesPerChar () == 1f &&
+                                "\r\n".equals (new String (new byte [] { '\r', '\n' }, aCharset)));
+    if (!bSupported)
+      throw new IllegalArgumentException ("The charset " + aCharset + " cannot be split at line break bytes");
+  }
+
+  /**
+   * Get a spliterator over all rows of the passed chars. The chunk boundaries
+   * are determined immediately in the configured pool, the rows are parsed
+   * lazily while traversing.
+   *
+   * @param aChars
+   *        The chars to parse. May not be <code>null</code>. Must not be
+   *        modified while the spliterator is in use.
+   * @return A new ordered spliterator. Never <code>null</code>.
+   */
+  @Nonnull
+  public Spliterator <ICommonsList <String>> getSpliterator (@Nonnull final char [] aChars)
+  {
+    ValueEnforcer.notNull (aChars, "Chars");
+    return _getSpliterator (new CharArraySource (aChars), _getSegments (aChars));
+  }
+
+  /**
+   * Get a spliterator over all rows of the passed file.
+   *
+   * @param aPath
+   *        The file to read. May not be <code>null</code>.
+   * @param aCharset
+   *        The charset of the file. Must be UTF-8 or a single byte charset.
+   *        May not be <code>null</code>.
+   * @return A new ordered spliterator. Never <code>null</code>.
+   * @throws IOException
+   *         if reading the file fails
+   */
+  @Nonnull
+  public Spliterator <ICommonsList <String>> getSpliterator (@Nonnull final Path aPath,
+                                                            @Nonnull final Charset aCharset) throws IOException
+  {
+    ValueEnforcer.notNull (aPath, "Path");
+    _checkCharset (aCharset);
+    final ICommonsList <Range> aSegments = new CommonsArrayList <> ();
+    final MappedFileSource aSource = _getSource (aPath, aCharset, aSegments);
+    return _getSpliterator (aSource, aSegments);
+  }
+
+  /**
+   * Get a parallel stream over all rows of the passed chars. The stream is
+   * ordered - call {@link Stream#unordered()} if the order is irrelevant.
+   *
+   * @param aChars
+   *        The chars to parse. May not be <code>null</code>. Must not be
+   *        modified while the stream is in use.
+   * @return A new parallel stream. Never <code>null</code>.
+   */
+  @Nonnull
+  public Stream <ICommonsList <String>> getStream (@Nonnull final char [] aChars)
+  {
+    return StreamSupport.stream (getSpliterator (aChars), true);
+  }
+
+  /**
+   * Get a parallel stream over all rows of the passed file. The stream is
+   * ordered - call {@link Stream#unordered()} if the order is irrelevant.
+   *
+   * @param aPath
+   *        The file to read. May not be <code>null</code>.
+   * @param aCharset
+   *        The charset of the file. Must be UTF-8 or a single byte charset.
+   *        May not be <code>null</code>.
+   * @return A new parallel stream. Never <code>null</code>.
+   * @throws IOException
+   *         if reading the file fails
+   */
+  @Nonnull
+  public Stream <ICommonsList <String>> getStream (@Nonnull final Path aPath,
+                                                   @Nonnull final Charset aCharset) throws IOException
+  {
+    return StreamSupport.stream (getSpliterator (aPath, aCharset), true);
+  }
+
+  /**
+   * Parse all rows of the passed chars in parallel in the configured pool and
+   * invoke the consumer for each of them, in no particular order. The consumer
+   * is called concurrently from multiple threads, each with its own reused
+   * {@link CSVRow} object that is only valid during the call.
+   *
+   * @param aChars
+   *        The chars to parse. May not be <code>null</code>.
+   * @param aRowConsumer
+   *        The thread-safe row consumer. May not be <code>null</code>.
+   */
+  public void forEachRow (@Nonnull final char [] aChars, @Nonnull final Consumer <? super CSVRow> aRowConsumer)
+  {
+    ValueEnforcer.notNull (aChars, "Chars");
+    ValueEnforcer.notNull (aRowConsumer, "RowConsumer");
+    _forEachRow (new CharArraySource (aChars), _getSegments (aChars), aRowConsumer);
+  }
+
+  /**
+   * Parse all rows of the passed file in parallel in the configured pool and
+   * invoke the consumer for each of them, in no particular order. The consumer
+   * is called concurrently from multiple threads, each with its own reused
+   * {@link CSVRow} object that is only valid during the call.
+   *
+   * @param aPath
+   *        The file to read. May not be <code>null</code>.
+   * @param aCharset
+   *        The charset of the file. Must be UTF-8 or a single byte charset.
+   *        May not be <code>null</code>.
+   * @param aRowConsumer
+   *        The thread-safe row consumer. May not be <code>null</code>.
+   * @throws IOException
+   *         if reading the file fails
+   */
+  public void forEachRow (@Nonnull final Path aPath,
+                          @Nonnull final Charset aCharset,
+                          @Nonnull final Consumer <? super CSVRow> aRowConsumer) throws IOException
+  {
+    ValueEnforcer.notNull (aPath, "Path");
+    _checkCharset (aCharset);
+    ValueEnforcer.notNull (aRowConsumer, "RowConsumer");
+    final ICommonsList <Range> aSegments = new CommonsArrayList <> ();
+    final MappedFileSource aSource = _getSource (aPath, aCharset, aSegments);
+    _forEachRow (aSource, aSegments, aRowConsumer);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Parser", m_aParser)
+                                       .append ("KeepCR", m_bKeepCR)
+                                       .append ("SkipLines", m_nSkipLines)
+                                       .append ("ChunkSize", m_nChunkSize)
+                                       .append ("Pool", m_aPool)
+                                       .getToString ();
+  }
+}
@@ -37,7 +37,8 @@ import com.helger.commons.io.stream.NonBlockingBufferedReader;
 import com.helger.commons.io.stream.StreamHelper;
 
 /**
- * A very simple CSV reader released under a commercial-friendly license.
+ * A very simple CSV reader released under a commercial-friendly license. For
+ * high volume processing see {@link CSVRowReader}.
  *
  * @author Glen Smith
  * @author Philip Helger
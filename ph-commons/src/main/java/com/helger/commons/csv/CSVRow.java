@@ -0,0 +1,397 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.csv;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A single CSV record as read by {@link CSVRowReader}. The object is reused
+ * for every record, so all fields are stored in one shared char buffer and are
+ * only converted to {@link String} objects on demand. The {@link CharSequence}
+ * objects returned by {@link #getField(int)} are only valid until the next
+ * record is read.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@NotThreadSafe
+public final class CSVRow
+{
+  /**
+   * A read-only view on a single field of the current record.
+   */
+  private final class FieldView implements CharSequence
+  {
+    private final int m_nIndex;
+
+    FieldView (final int nIndex)
+    {
+      m_nIndex = nIndex;
+    }
+
+    public int length ()
+    {
+      return getFieldLength (m_nIndex);
+    }
+
+    public char charAt (final int nIndex)
+    {
+      if (nIndex < 0 || nIndex >= length ())
+        throw new IndexOutOfBoundsException ("Index " + nIndex + " is invalid");
+      return m_aData[m_aFieldStart[m_nIndex] + nIndex];
+    }
+
+    @Nonnull
+    public CharSequence subSequence (final int nStart, final int nEnd)
+    {
+      if (nStart < 0 || nStart > nEnd || nEnd > length ())
+        throw new IndexOutOfBoundsException ("Invalid range " + nStart + "-" + nEnd);
+      final int nOfs = m_aFieldStart[m_nIndex];
+      return new String (m_aData, nOfs + nStart, nEnd - nStart);
+    }
+
+    @Override
+    @Nonnull
+    public String toString ()
+    {
+      return getAsString (m_nIndex);
+    }
+  }
+
+  private static final int DEFAULT_FIELD_COUNT = 16;
+
+  private char [] m_aData = new char [CCSV.INITIAL_STRING_SIZE];
+  private int m_nDataLength = 0;
+  private int [] m_aFieldStart = new int [DEFAULT_FIELD_COUNT];
+  private int [] m_aFieldEnd = new int [DEFAULT_FIELD_COUNT];
+  private FieldView [] m_aViews = new FieldView [DEFAULT_FIELD_COUNT];
+  private int m_nFieldCount = 0;
+  // Start index of the field currently being parsed
+  private int m_nCurFieldStart = 0;
+
+  CSVRow ()
+  {}
+
+  void reset ()
+  {
+    m_nDataLength = 0;
+    m_nFieldCount = 0;
+    m_nCurFieldStart = 0;
+  }
+
+  private void _ensureDataCapacity (@Nonnegative final int nAdditional)
+  {
+    final int nRequired = m_nDataLength + nAdditional;
+    if (nRequired > m_aData.length)
+      m_aData = Arrays.copyOf (m_aData, Math.max (nRequired, m_aData.length * 2));
+  }
+
+  void appendChar (final char c)
+  {
+    if (m_nDataLength == m_aData.length)
+      _ensureDataCapacity (1);
+    m_aData[m_nDataLength++] = c;
+  }
+
+  @Nonnegative
+  int getCurrentFieldLength ()
+  {
+    return m_nDataLength - m_nCurFieldStart;
+  }
+
+  boolean isCurrentFieldAllWhitespace ()
+  {
+    for (int i = m_nCurFieldStart; i < m_nDataLength; ++i)
+      if (!Character.isWhitespace (m_aData[i]))
+        return false;
+    return true;
+  }
+
+  void clearCurrentField ()
+  {
+    m_nDataLength = m_nCurFieldStart;
+  }
+
+  void endField ()
+  {
+    if (m_nFieldCount == m_aFieldStart.length)
+    {
+      final int nNewSize = m_nFieldCount * 2;
+      m_aFieldStart = Arrays.copyOf (m_aFieldStart, nNewSize);
+      m_aFieldEnd = Arrays.copyOf (m_aFieldEnd, nNewSize);
+      m_aViews = Arrays.copyOf (m_aViews, nNewSize);
+    }
+    m_aFieldStart[m_nFieldCount] = m_nCurFieldStart;
+    m_aFieldEnd[m_nFieldCount] = m_nDataLength;
+    m_nFieldCount++;
+    m_nCurFieldStart = m_nDataLength;
+  }
+
+  private int _checkIndex (final int nIndex)
+  {
+    if (nIndex < 0 || nIndex >= m_nFieldCount)
+      throw new IndexOutOfBoundsException ("Field index " + nIndex + " is invalid - only " + m_nFieldCount + " fields present");
+    return nIndex;
+  }
+
+  /**
+   * @return The number of fields in the current record. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getFieldCount ()
+  {
+    return m_nFieldCount;
+  }
+
+  /**
+   * Get the field at the specified index as a reusable {@link CharSequence}
+   * view. The returned object is only valid until the next record is read.
+   *
+   * @param nIndex
+   *        0-based field index.
+   * @return The field view. Never <code>null</code>.
+   * @throws IndexOutOfBoundsException
+   *         if the index is invalid
+   */
+  @Nonnull
+  public CharSequence getField (@Nonnegative final int nIndex)
+  {
+    _checkIndex (nIndex);
+    FieldView ret = m_aViews[nIndex];
+    if (ret == null)
+    {
+      ret = new FieldView (nIndex);
+      m_aViews[nIndex] = ret;
+    }
+    return ret;
+  }
+
+  /**
+   * @param nIndex
+   *        0-based field index.
+   * @return The number of chars in the specified field. Always &ge; 0.
+   * @throws IndexOutOfBoundsException
+   *         if the index is invalid
+   */
+  @Nonnegative
+  public int getFieldLength (@Nonnegative final int nIndex)
+  {
+    _checkIndex (nIndex);
+    return m_aFieldEnd[nIndex] - m_aFieldStart[nIndex];
+  }
+
+  /**
+   * @param nIndex
+   *        0-based field index.
+   * @return <code>true</code> if the specified field is empty.
+   * @throws IndexOutOfBoundsException
+   *         if the index is invalid
+   */
+  public boolean isFieldEmpty (@Nonnegative final int nIndex)
+  {
+    return getFieldLength (nIndex) == 0;
+  }
+
+  /**
+   * @param nIndex
+   *        0-based field index.
+   * @return A new {@link String} with the content of the specified field.
+   * @throws IndexOutOfBoundsException
+   *         if the index is invalid
+   */
+  @Nonnull
+  public String getAsString (@Nonnegative final int nIndex)
+  {
+    _checkIndex (nIndex);
+    final int nStart = m_aFieldStart[nIndex];
+    return new String (m_aData, nStart, m_aFieldEnd[nIndex] - nStart);
+  }
+
+  void appendFieldTo (@Nonnegative final int nIndex, @Nonnull final StringBuilder aSB)
+  {
+    _checkIndex (nIndex);
+    final int nStart = m_aFieldStart[nIndex];
+    aSB.append (m_aData, nStart, m_aFieldEnd[nIndex] - nStart);
+  }
+
+  /**
+   * Parse the specified field as a decimal long value without creating an
+   * intermediate {@link String}. The same syntax as for
+   * {@link Long#parseLong(String)} is supported.
+   *
+   * @param nIndex
+   *        0-based field index.
+   * @param nDefault
+   *        The value to be returned if the field cannot be converted.
+   * @return The parsed value or the default.
+   * @throws IndexOutOfBoundsException
+   *         if the index is invalid
+   */
+  public long getAsLong (@Nonnegative final int nIndex, final long nDefault)
+  {
+    _checkIndex (nIndex);
+    final int nStart = m_aFieldStart[nIndex];
+    final int nEnd = m_aFieldEnd[nIndex];
+    if (nStart == nEnd)
+      return nDefault;
+
+    int i = nStart;
+    boolean bNegative = false;
+    long nLimit = -Long.MAX_VALUE;
+    final char cFirst = m_aData[i];
+    if (cFirst == '-' || cFirst == '+')
+    {
+      if (cFirst == '-')
+      {
+        bNegative = true;
+        nLimit = Long.MIN_VALUE;
+      }
+      i++;
+      if (i == nEnd)
+        return nDefault;
+    }
+
+    // Accumulate negatively to handle Long.MIN_VALUE
+    final long nMultMin = nLimit / 10;
+    long nResult = 0;
+    for (; i < nEnd; ++i)
+    {
+      final int nDigit = Character.digit (m_aData[i], 10);
+      if (nDigit < 0 || nResult < nMultMin)
+        return nDefault;
+      nResult *= 10;
+      if (nResult < nLimit + nDigit)
+        return nDefault;
+      nResult -= nDigit;
+    }
+    return bNegative ? nResult : -nResult;
+  }
+
+  /**
+   * Parse the specified field as a decimal int value without creating an
+   * intermediate {@link String}. The same syntax as for
+   * {@link Integer#parseInt(String)} is supported.
+   *
+   * @param nIndex
+   *        0-based field index.
+   * @param nDefault
+   *        The value to be returned if the field cannot be converted.
+   * @return The parsed value or the default.
+   * @throws IndexOutOfBoundsException
+   *         if the index is invalid
+   */
+  public int getAsInt (@Nonnegative final int nIndex, final int nDefault)
+  {
+    // Use a value that is definitely out of the int range as the marker
+    final long nValue = getAsLong (nIndex, Long.MIN_VALUE);
+    if (nValue < Integer.MIN_VALUE || nValue > Integer.MAX_VALUE)
+      return nDefault;
+    return (int) nValue;
+  }
+
+  /**
+   * Parse the specified field as a {@link BigDecimal} without creating an
+   * intermediate {@link String}.
+   *
+   * @param nIndex
+   *        0-based field index.
+   * @param aDefault
+   *        The value to be returned if the field cannot be converted. May be
+   *        <code>null</code>.
+   * @return The parsed value or the default.
+   * @throws IndexOutOfBoundsException
+   *         if the index is invalid
+   */
+  @Nullable
+  public BigDecimal getAsBigDecimal (@Nonnegative final int nIndex, @Nullable final BigDecimal aDefault)
+  {
+    final int nLength = getFieldLength (nIndex);
+    if (nLength > 0)
+      try
+      {
+        return new BigDecimal (m_aData, m_aFieldStart[nIndex], nLength);
+      }
+      catch (final NumberFormatException ex)
+      {
+        // Fall through
+      }
+    return aDefault;
+  }
+
+  /**
+   * Parse the specified field as a {@link LocalDate} directly from the
+   * underlying char buffer.
+   *
+   * @param nIndex
+   *        0-based field index.
+   * @param aFormatter
+   *        The formatter to be used. May not be <code>null</code>.
+   * @return <code>null</code> if the field is empty or cannot be parsed.
+   * @throws IndexOutOfBoundsException
+   *         if the index is invalid
+   */
+  @Nullable
+  public LocalDate getAsLocalDate (@Nonnegative final int nIndex, @Nonnull final DateTimeFormatter aFormatter)
+  {
+    ValueEnforcer.notNull (aFormatter, "Formatter");
+    if (!isFieldEmpty (nIndex))
+      try
+      {
+        return LocalDate.parse (getField (nIndex), aFormatter);
+      }
+      catch (final DateTimeParseException ex)
+      {
+        // Fall through
+      }
+    return null;
+  }
+
+  /**
+   * @return All fields of the current record as a new list of {@link String}
+   *         objects. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <String> getAsList ()
+  {
+    final ICommonsList <String> ret = new CommonsArrayList <> (m_nFieldCount);
+    for (int i = 0; i < m_nFieldCount; ++i)
+      ret.add (getAsString (i));
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Fields", getAsList ()).getToString ();
+  }
+}
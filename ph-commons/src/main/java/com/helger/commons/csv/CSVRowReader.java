@@ -0,0 +1,512 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillCloseWhenClosed;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.state.ETriState;
+
+/**
+ * A high-throughput alternative to {@link CSVReader}. Instead of reading line
+ * by line into {@link String} objects, the input is read into a char buffer
+ * and tokenized in place. All records are delivered in the same reusable
+ * {@link CSVRow} object, so fields are only materialized as {@link String}
+ * objects if explicitly requested.<br>
+ * The quote, escape, strict-quotes, leading whitespace and ignore-quotations
+ * settings are taken from the provided {@link CSVParser} and have the same
+ * semantics as {@link CSVParser#parseLineMulti(String)}. Lines are terminated
+ * by "\n", "\r\n" or "\r" - if carriage returns should be kept, only "\n" is
+ * considered as a line terminator.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@NotThreadSafe
+public class CSVRowReader implements Closeable
+{
+  /** The default size of the char buffer */
+  public static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+
+  // null if working on a fixed char region
+  private final Reader m_aReader;
+  private final CSVParser m_aParser;
+  private final boolean m_bKeepCR;
+  private int m_nSkipLines = CCSV.DEFAULT_SKIP_LINES;
+  private boolean m_bLinesSkipped = false;
+
+  // The input window
+  private char [] m_aBuf;
+  private int m_nPos = 0;
+  private int m_nLimit = 0;
+  private boolean m_bEOF = false;
+  private boolean m_bSkipLF = false;
+  // The last line found in the window
+  private int m_nLineStart;
+  private int m_nLineEnd;
+
+  private final CSVRow m_aRow = new CSVRow ();
+  private boolean m_bInField = false;
+
+  /**
+   * Constructs a {@link CSVRowReader} using a comma for the separator.
+   *
+   * @param aReader
+   *        the reader to an underlying CSV source. May not be
+   *        <code>null</code>.
+   */
+  public CSVRowReader (@Nonnull @WillCloseWhenClosed final Reader aReader)
+  {
+    this (aReader, new CSVParser (), CCSV.DEFAULT_KEEP_CR);
+  }
+
+  /**
+   * Constructs a {@link CSVRowReader} with the supplied {@link CSVParser}
+   * settings.
+   *
+   * @param aReader
+   *        the reader to an underlying CSV source. May not be
+   *        <code>null</code>. Does not need to be buffered.
+   * @param aParser
+   *        the parser whose settings should be used. May not be
+   *        <code>null</code>.
+   * @param bKeepCR
+   *        <code>true</code> to keep carriage returns in data read,
+   *        <code>false</code> otherwise
+   */
+  public CSVRowReader (@Nonnull @WillCloseWhenClosed final Reader aReader,
+                       @Nonnull final CSVParser aParser,
+                       final boolean bKeepCR)
+  {
+    this (aReader, aParser, bKeepCR, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Constructs a {@link CSVRowReader} with the supplied {@link CSVParser}
+   * settings.
+   *
+   * @param aReader
+   *        the reader to an underlying CSV source. May not be
+   *        <code>null</code>. Does not need to be buffered.
+   * @param aParser
+   *        the parser whose settings should be used. May not be
+   *        <code>null</code>.
+   * @param bKeepCR
+   *        <code>true</code> to keep carriage returns in data read,
+   *        <code>false</code> otherwise
+   * @param nBufferSize
+   *        The initial size of the char buffer. Must be &gt; 0. The buffer
+   *        grows automatically if a single line does not fit into it.
+   */
+  public CSVRowReader (@Nonnull @WillCloseWhenClosed final Reader aReader,
+                       @Nonnull final CSVParser aParser,
+                       final boolean bKeepCR,
+                       @Nonnegative final int nBufferSize)
+  {
+    ValueEnforcer.notNull (aReader, "Reader");
+    ValueEnforcer.notNull (aParser, "Parser");
+    ValueEnforcer.isGT0 (nBufferSize, "BufferSize");
+
+    m_aReader = aReader;
+    m_aParser = aParser;
+    m_bKeepCR = bKeepCR;
+    m_aBuf = new char [nBufferSize];
+  }
+
+  /**
+   * Constructor for tokenizing a fixed region of a char array in place. The
+   * array is never modified.
+   *
+   * @param aChars
+   *        The chars to read from. May not be <code>null</code>.
+   * @param nStart
+   *        The start index (inclusive). Must be the start of a line.
+   * @param nEnd
+   *        The end index (exclusive).
+   * @param aParser
+   *        the parser whose settings should be used. May not be
+   *        <code>null</code>.
+   * @param bKeepCR
+   *        <code>true</code> to keep carriage returns in data read,
+   *        <code>false</code> otherwise
+   */
+  CSVRowReader (@Nonnull final char [] aChars,
+                @Nonnegative final int nStart,
+                @Nonnegative final int nEnd,
+                @Nonnull final CSVParser aParser,
+                final boolean bKeepCR)
+  {
+    m_aReader = null;
+    m_aParser = aParser;
+    m_bKeepCR = bKeepCR;
+    m_aBuf = aChars;
+    m_nPos = nStart;
+    m_nLimit = nEnd;
+    m_bEOF = true;
+  }
+
+  /**
+   * @return the CSVParser whose settings are used by the reader.
+   */
+  @Nonnull
+  public CSVParser getParser ()
+  {
+    return m_aParser;
+  }
+
+  /**
+   * @return <code>true</code> if reader will keep carriage returns,
+   *         <code>false</code> otherwise.
+   */
+  public boolean isKeepCarriageReturns ()
+  {
+    return m_bKeepCR;
+  }
+
+  /**
+   * @return the number of lines in the CSV file to skip before processing.
+   */
+  @Nonnegative
+  public int getSkipLines ()
+  {
+    return m_nSkipLines;
+  }
+
+  /**
+   * Sets the number of lines to skip before reading starts.
+   *
+   * @param nSkipLines
+   *        the number of lines to skip.
+   * @return this
+   */
+  @Nonnull
+  public CSVRowReader setSkipLines (@Nonnegative final int nSkipLines)
+  {
+    ValueEnforcer.isGE0 (nSkipLines, "SkipLines");
+    m_nSkipLines = nSkipLines;
+    return this;
+  }
+
+  /**
+   * Move the unread content to the start of the buffer and read more data.
+   * The buffer is enlarged if it is completely filled.
+   */
+  private void _fill () throws IOException
+  {
+    if (m_nPos > 0)
+    {
+      final int nRemaining = m_nLimit - m_nPos;
+      System.arraycopy (m_aBuf, m_nPos, m_aBuf, 0, nRemaining);
+      m_nPos = 0;
+      m_nLimit = nRemaining;
+    }
+    if (m_nLimit == m_aBuf.length)
+      m_aBuf = Arrays.copyOf (m_aBuf, m_aBuf.length * 2);
+
+    final int nRead = m_aReader.read (m_aBuf, m_nLimit, m_aBuf.length - m_nLimit);
+    if (nRead < 0)
+      m_bEOF = true;
+    else
+      m_nLimit += nRead;
+  }
+
+  /**
+   * Find the next complete line in the buffer and remember its bounds in
+   * m_nLineStart and m_nLineEnd.
+   *
+   * @return <code>false</code> if the end of input was reached.
+   */
+  private boolean _readLine () throws IOException
+  {
+    if (m_bSkipLF)
+    {
+      // Skip the '\n' of a "\r\n" sequence
+      if (m_nPos == m_nLimit && !m_bEOF)
+        _fill ();
+      if (m_nPos < m_nLimit && m_aBuf[m_nPos] == '\n')
+        m_nPos++;
+      m_bSkipLF = false;
+    }
+
+    int nScanned = 0;
+    while (true)
+    {
+      final char [] aBuf = m_aBuf;
+      for (int i = m_nPos + nScanned; i < m_nLimit; ++i)
+      {
+        final char c = aBuf[i];
+        if (c == '\n' || (c == '\r' && !m_bKeepCR))
+        {
+          m_nLineStart = m_nPos;
+          m_nLineEnd = i;
+          m_nPos = i + 1;
+          m_bSkipLF = c == '\r';
+          return true;
+        }
+      }
+      nScanned = m_nLimit - m_nPos;
+
+      if (m_bEOF)
+      {
+        if (nScanned == 0)
+          return false;
+        // Last line without a terminator
+        m_nLineStart = m_nPos;
+        m_nLineEnd = m_nLimit;
+        m_nPos = m_nLimit;
+        return true;
+      }
+      _fill ();
+    }
+  }
+
+  /**
+   * Tokenize the current line into the current row.
+   *
+   * @param bPending
+   *        <code>true</code> if a quoted field from the previous line is
+   *        continued.
+   * @param aRow
+   *        The row to add the fields to. May be <code>null</code> to only
+   *        determine the record boundaries.
+   * @return <code>true</code> if the line ends within a quoted field and the
+   *         next line needs to be read for the same record.
+   */
+  private boolean _parseLine (final boolean bPending, @Nullable final CSVRow aRow)
+  {
+    final char cSeparator = m_aParser.getSeparatorChar ();
+    final char cQuote = m_aParser.getQuoteChar ();
+    final char cEscape = m_aParser.getEscapeChar ();
+    final boolean bStrictQuotes = m_aParser.isStrictQuotes ();
+    final boolean bIgnoreLeadingWhiteSpace = m_aParser.isIgnoreLeadingWhiteSpace ();
+    final boolean bIgnoreQuotations = m_aParser.isIgnoreQuotations ();
+
+    final char [] aBuf = m_aBuf;
+    final int nStart = m_nLineStart;
+    final int nEnd = m_nLineEnd;
+    boolean bInQuotes = bPending;
+
+    for (int i = nStart; i < nEnd; i++)
+    {
+      final char c = aBuf[i];
+      if (c == cEscape)
+      {
+        final boolean bIsInQuotes = (bInQuotes && !bIgnoreQuotations) || m_bInField;
+        if (bIsInQuotes && i + 1 < nEnd && (aBuf[i + 1] == cQuote || aBuf[i + 1] == cEscape))
+        {
+          if (aRow != null)
+            aRow.appendChar (aBuf[i + 1]);
+          i++;
+        }
+      }
+      else
+        if (c == cQuote)
+        {
+          final boolean bIsInQuotes = (bInQuotes && !bIgnoreQuotations) || m_bInField;
+          if (bIsInQuotes && i + 1 < nEnd && aBuf[i + 1] == cQuote)
+          {
+            if (aRow != null)
+              aRow.appendChar (aBuf[i + 1]);
+            i++;
+          }
+          else
+          {
+            bInQuotes = !bInQuotes;
+
+            // the tricky case of an embedded quote in the middle: a,bc"d"ef,g
+            if (!bStrictQuotes && aRow != null)
+            {
+              if (i - nStart > 2 && aBuf[i - 1] != cSeparator && i + 1 < nEnd && aBuf[i + 1] != cSeparator)
+              {
+                if (bIgnoreLeadingWhiteSpace && aRow.getCurrentFieldLength () > 0 && aRow.isCurrentFieldAllWhitespace ())
+                  aRow.clearCurrentField ();
+                else
+                  aRow.appendChar (c);
+              }
+            }
+          }
+          m_bInField = !m_bInField;
+        }
+        else
+          if (c == cSeparator && !(bInQuotes && !bIgnoreQuotations))
+          {
+            if (aRow != null)
+              aRow.endField ();
+            m_bInField = false;
+          }
+          else
+            if (!bStrictQuotes || (bInQuotes && !bIgnoreQuotations))
+            {
+              if (aRow != null)
+                aRow.appendChar (c);
+              m_bInField = true;
+            }
+    }
+
+    // line is done - check status
+    if (bInQuotes && !bIgnoreQuotations)
+    {
+      // continuing a quoted section, re-append newline
+      if (aRow != null)
+        aRow.appendChar ('\n');
+      return true;
+    }
+
+    m_bInField = false;
+    if (aRow != null)
+      aRow.endField ();
+    return false;
+  }
+
+  /**
+   * Read the next record.
+   *
+   * @return The reused row object filled with the next record or
+   *         <code>null</code> if the end of input was reached. The returned
+   *         object is only valid until the next call to this method.
+   * @throws IOException
+   *         if bad things happen during the read
+   */
+  @Nullable
+  public CSVRow readNextRow () throws IOException
+  {
+    if (!m_bLinesSkipped)
+    {
+      // Perform skip of lines exactly once
+      for (int i = 0; i < m_nSkipLines; i++)
+        if (!_readLine ())
+          break;
+      m_bLinesSkipped = true;
+    }
+
+    m_aRow.reset ();
+    boolean bPending = false;
+    while (_readLine ())
+    {
+      bPending = _parseLine (bPending, m_aRow);
+      if (!bPending)
+        return m_aRow;
+    }
+
+    if (bPending)
+    {
+      // Input ended within a quoted field - return all completed fields
+      m_aRow.clearCurrentField ();
+      return m_aRow;
+    }
+    return null;
+  }
+
+  /**
+   * Skip the next physical line.
+   *
+   * @return <code>false</code> if the end of input was reached.
+   * @throws IOException
+   *         if bad things happen during the read
+   */
+  boolean skipLine () throws IOException
+  {
+    return _readLine ();
+  }
+
+  /**
+   * Scan the next physical line without recording any fields. This is used to
+   * determine the record boundaries.
+   *
+   * @param bPending
+   *        <code>true</code> if the line continues a quoted field.
+   * @return {@link ETriState#UNDEFINED} if the end of input was reached,
+   *         {@link ETriState#TRUE} if the line ends within a quoted field and
+   *         {@link ETriState#FALSE} if the line ends a record.
+   * @throws IOException
+   *         if bad things happen during the read
+   */
+  @Nonnull
+  ETriState scanLine (final boolean bPending) throws IOException
+  {
+    if (!_readLine ())
+      return ETriState.UNDEFINED;
+    return ETriState.valueOf (_parseLine (bPending, null));
+  }
+
+  boolean isInField ()
+  {
+    return m_bInField;
+  }
+
+  void setInField (final boolean bInField)
+  {
+    m_bInField = bInField;
+  }
+
+  /**
+   * @return The index in the buffer where the next line starts. Only
+   *         meaningful for readers on a fixed char region.
+   */
+  @Nonnegative
+  int getLineStartIndex ()
+  {
+    if (m_bSkipLF)
+    {
+      // Skip the '\n' of a "\r\n" sequence
+      if (m_nPos < m_nLimit && m_aBuf[m_nPos] == '\n')
+        m_nPos++;
+      m_bSkipLF = false;
+    }
+    return m_nPos;
+  }
+
+  /**
+   * Reads all remaining records and invoke a callback for each record.
+   *
+   * @param aRowConsumer
+   *        The consumer that is invoked for every record. The passed object
+   *        is reused for all records. May not be <code>null</code>.
+   * @throws IOException
+   *         if bad things happen during the read
+   */
+  public void readAll (@Nonnull final Consumer <? super CSVRow> aRowConsumer) throws IOException
+  {
+    ValueEnforcer.notNull (aRowConsumer, "RowConsumer");
+
+    CSVRow aRow;
+    while ((aRow = readNextRow ()) != null)
+      aRowConsumer.accept (aRow);
+  }
+
+  /**
+   * Closes the underlying reader.
+   *
+   * @throws IOException
+   *         if the close fails
+   */
+  public void close () throws IOException
+  {
+    if (m_aReader != null)
+      m_aReader.close ();
+  }
+}
@@ -91,6 +91,9 @@ public class CSVWriter implements Closeable, Flushable
   private String m_sLineEnd = DEFAULT_LINE_END;
   private boolean m_bAvoidFinalLineEnd = DEFAULT_AVOID_FINAL_LINE_END;
   private boolean m_bApplyQuotesToAll = DEFAULT_QUOTE_ALL;
+  // Reused for every line
+  private final StringBuilder m_aLineSB = new StringBuilder (CCSV.INITIAL_STRING_SIZE);
+  private char [] m_aLineChars = new char [CCSV.INITIAL_STRING_SIZE];
 
   /**
    * Constructs {@link CSVWriter} with all default settings.
@@ -295,7 +298,8 @@ public class CSVWriter implements Closeable, Flushable
   {
     if (aNextLine != null)
     {
-      final StringBuilder aSB = new StringBuilder (CCSV.INITIAL_STRING_SIZE);
+      final StringBuilder aSB = m_aLineSB;
+      aSB.setLength (0);
 
       if (m_bAvoidFinalLineEnd && m_nWrittenLines > 0)
       {
@@ -337,11 +341,117 @@ public class CSVWriter implements Closeable, Flushable
         aSB.append (m_sLineEnd);
       }
 
-      m_aPW.write (aSB.toString ());
-      m_nWrittenLines++;
+      _writeLine (aSB);
     }
   }
 
+  /**
+   * Write the content of the passed line buffer without creating an
+   * intermediate {@link String}.
+   *
+   * @param aSB
+   *        The line buffer to write. May not be <code>null</code>.
+   */
+  private void _writeLine (@Nonnull final StringBuilder aSB)
+  {
+    final int nLength = aSB.length ();
+    if (nLength > m_aLineChars.length)
+      m_aLineChars = new char [Math.max (nLength, m_aLineChars.length * 2)];
+    aSB.getChars (0, nLength, m_aLineChars, 0);
+    m_aPW.write (m_aLineChars, 0, nLength);
+    m_nWrittenLines++;
+  }
+
+  /**
+   * Writes the next record as read by {@link CSVRowReader} without
+   * materializing the fields as {@link String} objects.
+   *
+   * @param aRow
+   *        The row to be written. May be <code>null</code>.
+   * @param bApplyQuotesToAll
+   *        <code>true</code> if all values are to be quoted. <code>false</code>
+   *        applies quotes only to values which contain the separator, escape,
+   *        quote or new line characters.
+   * @since 9.4.3
+   */
+  public void writeNextRow (@Nullable final CSVRow aRow, final boolean bApplyQuotesToAll)
+  {
+    if (aRow != null)
+    {
+      final StringBuilder aSB = m_aLineSB;
+      aSB.setLength (0);
+
+      if (m_bAvoidFinalLineEnd && m_nWrittenLines > 0)
+      {
+        // End previous line
+        aSB.append (m_sLineEnd);
+      }
+
+      final boolean bCanQuote = m_cQuoteChar != NO_QUOTE_CHARACTER;
+      final int nFieldCount = aRow.getFieldCount ();
+      for (int i = 0; i < nFieldCount; ++i)
+      {
+        if (i > 0)
+          aSB.append (m_cSeparatorChar);
+
+        final CharSequence aField = aRow.getField (i);
+        final boolean bElementContainsSpecialChars = containsSpecialCharacters (aField);
+        final boolean bDoQuoteElement = bCanQuote && (bApplyQuotesToAll || bElementContainsSpecialChars);
+
+        if (bDoQuoteElement)
+          aSB.append (m_cQuoteChar);
+
+        if (bElementContainsSpecialChars)
+          appendEscapedText (aField, aSB);
+        else
+          aRow.appendFieldTo (i, aSB);
+
+        if (bDoQuoteElement)
+          aSB.append (m_cQuoteChar);
+      }
+
+      if (!m_bAvoidFinalLineEnd)
+      {
+        // End the line directly
+        aSB.append (m_sLineEnd);
+      }
+
+      _writeLine (aSB);
+    }
+  }
+
+  /**
+   * Writes the next record as read by {@link CSVRowReader} using the default
+   * quoting settings.
+   *
+   * @param aRow
+   *        The row to be written. May be <code>null</code>.
+   * @see #isApplyQuotesToAll()
+   * @since 9.4.3
+   */
+  public void writeNextRow (@Nullable final CSVRow aRow)
+  {
+    writeNextRow (aRow, m_bApplyQuotesToAll);
+  }
+
+  /**
+   * Writes all remaining records of the passed reader using the default
+   * quoting settings. No {@link String} objects are created for the fields.
+   *
+   * @param aReader
+   *        The reader to read from. May not be <code>null</code>. Is not
+   *        closed by this method.
+   * @throws IOException
+   *         if reading fails
+   * @see #isApplyQuotesToAll()
+   * @since 9.4.3
+   */
+  public void writeAllRows (@Nonnull final CSVRowReader aReader) throws IOException
+  {
+    ValueEnforcer.notNull (aReader, "Reader");
+    aReader.readAll (this::writeNextRow);
+  }
+
   /**
    * Writes the next line to the file.
    *
@@ -455,11 +565,29 @@ public class CSVWriter implements Closeable, Flushable
    */
   protected boolean stringContainsSpecialCharacters (@Nonnull final String sLine)
   {
-    return sLine.indexOf (m_cQuoteChar) != -1 ||
-           sLine.indexOf (m_cEscapeChar) != -1 ||
-           sLine.indexOf (m_cSeparatorChar) != -1 ||
-           sLine.indexOf ('\r') != -1 ||
-           sLine.indexOf ('\n') != -1;
+    return containsSpecialCharacters (sLine);
+  }
+
+  /**
+   * checks to see if the text contains special characters. This is used by
+   * all write methods.
+   *
+   * @param aText
+   *        - element of data to check for special characters.
+   * @return true if the text contains the quote, escape, separator, newline or
+   *         return.
+   * @since 9.4.3
+   */
+  protected boolean containsSpecialCharacters (@Nonnull final CharSequence aText)
+  {
+    final int nLength = aText.length ();
+    for (int i = 0; i < nLength; ++i)
+    {
+      final char c = aText.charAt (i);
+      if (c == m_cQuoteChar || c == m_cEscapeChar || c == m_cSeparatorChar || c == '\r' || c == '\n')
+        return true;
+    }
+    return false;
   }
 
   /**
@@ -472,17 +600,36 @@ public class CSVWriter implements Closeable, Flushable
   @Nonnull
   protected StringBuilder getEscapedText (@Nonnull final String sNextElement)
   {
-    if (m_cEscapeChar == NO_ESCAPE_CHARACTER)
-      return new StringBuilder (sNextElement);
-
     final StringBuilder aSB = new StringBuilder (sNextElement.length () * 2);
-    for (final char c : sNextElement.toCharArray ())
+    appendEscapedText (sNextElement, aSB);
+    return aSB;
+  }
+
+  /**
+   * Processes all the characters of a text and appends the escaped version to
+   * the passed buffer. This is used by all write methods.
+   *
+   * @param aText
+   *        element to process. May not be <code>null</code>.
+   * @param aSB
+   *        The buffer to append to. May not be <code>null</code>.
+   * @since 9.4.3
+   */
+  protected void appendEscapedText (@Nonnull final CharSequence aText, @Nonnull final StringBuilder aSB)
+  {
+    if (m_cEscapeChar == NO_ESCAPE_CHARACTER)
+      aSB.append (aText);
+    else
     {
-      if (c == m_cQuoteChar || c == m_cEscapeChar)
-        aSB.append (m_cEscapeChar);
-      aSB.append (c);
+      final int nLength = aText.length ();
+      for (int i = 0; i < nLength; ++i)
+      {
+        final char c = aText.charAt (i);
+        if (c == m_cQuoteChar || c == m_cEscapeChar)
+          aSB.append (m_cEscapeChar);
+        aSB.append (c);
+      }
     }
-    return aSB;
   }
 
   /**
@@ -16,9 +16,8 @@
  */
 package com.helger.commons.equals;
 
-import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
-import java.util.function.Supplier;
+import java.util.Arrays;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -31,8 +30,6 @@ import org.slf4j.LoggerFactory;
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.Singleton;
 import com.helger.commons.annotation.UseDirectEqualsAndHashCode;
-import com.helger.commons.cache.AnnotationUsageCache;
-import com.helger.commons.collection.impl.CommonsHashMap;
 import com.helger.commons.collection.impl.CommonsWeakHashMap;
 import com.helger.commons.collection.impl.ICommonsMap;
 import com.helger.commons.concurrent.SimpleReadWriteLock;
@@ -43,7 +40,11 @@ import com.helger.commons.lang.ServiceLoaderHelper;
 import com.helger.commons.state.EChange;
 
 /**
- * The default implementation of {@link IEqualsImplementationRegistry}.
+ * The default implementation of {@link IEqualsImplementationRegistry}.<br>
+ * The resolved implementation per class is cached, so that the lookup in
+ * {@link #areEqual(Object, Object)} does not require any lock once a class was
+ * resolved. {@link String}, the primitive wrapper types and primitive arrays
+ * are compared directly without consulting the registry at all.
  *
  * @author Philip Helger
  */
@@ -75,8 +76,27 @@ public final class EqualsImplementationRegistry implements IEqualsImplementation
     }
   }
 
+  /**
+   * Per-class cache of the resolved implementation. Contains
+   * {@link EqualsImplementationRegistry#USE_DIRECT} if the native equals method
+   * of the class should be used. Instances are never cleared but replaced with
+   * a new instance, so that lookups never block.
+   */
+  private final class ResolvedImplementationCache extends ClassValue <IEqualsImplementation <?>>
+  {
+    @Override
+    protected IEqualsImplementation <?> computeValue (final Class <?> aClass)
+    {
+      return _resolveEqualsImplementation (aClass);
+    }
+  }
+
   private static final Logger LOGGER = LoggerFactory.getLogger (EqualsImplementationRegistry.class);
 
+  // Marker for "use the equals method of the object"
+  private static final IEqualsImplementation <?> USE_DIRECT = Object::equals;
+  private static final IEqualsImplementation <Object []> ARRAY_EQUALS = new ArrayEqualsImplementation ();
+
   private static boolean s_bDefaultInstantiated = false;
 
   private final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
@@ -85,11 +105,8 @@ public final class EqualsImplementationRegistry implements IEqualsImplementation
   @GuardedBy ("m_aRWLock")
   private final ICommonsMap <Class <?>, IEqualsImplementation <?>> m_aMap = new CommonsWeakHashMap <> ();
 
-  // Cache for classes where direct implementation should be used
-  private final AnnotationUsageCache m_aDirectEquals = new AnnotationUsageCache (UseDirectEqualsAndHashCode.class);
-
-  // Cache for classes that implement equals directly
-  private final ICommonsMap <String, Boolean> m_aImplementsEquals = new CommonsHashMap <> ();
+  // Replaced in the write lock upon each modification
+  private volatile ResolvedImplementationCache m_aResolvedCache = new ResolvedImplementationCache ();
 
   private EqualsImplementationRegistry ()
   {
@@ -121,7 +138,10 @@ public final class EqualsImplementationRegistry implements IEqualsImplementation
     m_aRWLock.writeLocked ( () -> {
       final IEqualsImplementation <?> aOldImpl = m_aMap.get (aClass);
       if (aOldImpl == null)
+      {
         m_aMap.put (aClass, aImpl);
+        m_aResolvedCache = new ResolvedImplementationCache ();
+      }
       else
       {
         // Avoid the warning when the passed implementation equals the stored
@@ -140,138 +160,124 @@ public final class EqualsImplementationRegistry implements IEqualsImplementation
   @Nonnull
   public EChange unregisterEqualsImplementation (@Nonnull final Class <?> aClass)
   {
-    return m_aRWLock.writeLockedGet ( () -> m_aMap.removeObject (aClass));
-  }
-
-  private boolean _isUseDirectEquals (@Nonnull final Class <?> aClass)
-  {
-    return m_aDirectEquals.hasAnnotation (aClass);
+    return m_aRWLock.writeLockedGet ( () -> {
+      if (m_aMap.removeObject (aClass).isUnchanged ())
+        return EChange.UNCHANGED;
+      m_aResolvedCache = new ResolvedImplementationCache ();
+      return EChange.CHANGED;
+    });
   }
 
-  private boolean _implementsEqualsItself (@Nonnull final Class <?> aClass)
+  private static boolean _implementsEqualsItself (@Nonnull final Class <?> aClass)
   {
-    final String sClassName = aClass.getName ();
-
-    Boolean aImplementsEqualsItself = m_aRWLock.readLockedGet ((Supplier <Boolean>) () -> m_aImplementsEquals.get (sClassName));
-
-    if (aImplementsEqualsItself == null)
+    try
     {
-      aImplementsEqualsItself = m_aRWLock.writeLockedGet ((Supplier <Boolean>) () -> {
-        // Try again in write lock
-        Boolean aWLImplementsEqualsItself = m_aImplementsEquals.get (sClassName);
-        if (aWLImplementsEqualsItself == null)
-        {
-          // Determine
-          boolean bRet = false;
-          try
-          {
-            final Method aMethod = aClass.getDeclaredMethod ("equals", Object.class);
-            if (aMethod != null && aMethod.getReturnType ().equals (boolean.class))
-              bRet = true;
-          }
-          catch (final NoSuchMethodException ex)
-          {
-            // ignore
-          }
-          aWLImplementsEqualsItself = Boolean.valueOf (bRet);
-          m_aImplementsEquals.put (sClassName, aWLImplementsEqualsItself);
-        }
-        return aWLImplementsEqualsItself;
-      });
+      final Method aMethod = aClass.getDeclaredMethod ("equals", Object.class);
+      return aMethod != null && aMethod.getReturnType ().equals (boolean.class);
+    }
+    catch (final NoSuchMethodException ex)
+    {
+      return false;
     }
-
-    return aImplementsEqualsItself.booleanValue ();
   }
 
-  @Nullable
-  public <T> IEqualsImplementation <T> getBestMatchingEqualsImplementation (@Nullable final Class <T> aClass)
+  @Nonnull
+  private IEqualsImplementation <?> _resolveEqualsImplementation (@Nonnull final Class <?> aClass)
   {
-    if (aClass != null)
-    {
-      IEqualsImplementation <T> aMatchingImplementation = null;
-      Class <?> aMatchingClass = null;
+    // No check required?
+    if (aClass.getAnnotation (UseDirectEqualsAndHashCode.class) != null)
+      return USE_DIRECT;
 
-      // No check required?
-      if (_isUseDirectEquals (aClass))
-        return null;
+    IEqualsImplementation <?> aMatchingImplementation = null;
+    Class <?> aMatchingClass = null;
 
-      m_aRWLock.readLock ().lock ();
-      try
+    m_aRWLock.readLock ().lock ();
+    try
+    {
+      // Check for an exact match first
+      aMatchingImplementation = m_aMap.get (aClass);
+      if (aMatchingImplementation != null)
+        aMatchingClass = aClass;
+      else
       {
-        // Check for an exact match first
-        aMatchingImplementation = GenericReflection.uncheckedCast (m_aMap.get (aClass));
-        if (aMatchingImplementation != null)
-          aMatchingClass = aClass;
-        else
+        // Scan hierarchy in most efficient way
+        for (final Class <?> aCurClass : ClassHierarchyCache.getClassHierarchyIterable (aClass))
         {
-          // Scan hierarchy in most efficient way
-          for (final WeakReference <Class <?>> aCurWRClass : ClassHierarchyCache.getClassHierarchyIterator (aClass))
+          final IEqualsImplementation <?> aImpl = m_aMap.get (aCurClass);
+          if (aImpl != null)
           {
-            final Class <?> aCurClass = aCurWRClass.get ();
-            if (aCurClass != null)
-            {
-              final IEqualsImplementation <?> aImpl = m_aMap.get (aCurClass);
-              if (aImpl != null)
-              {
-                aMatchingImplementation = GenericReflection.uncheckedCast (aImpl);
-                aMatchingClass = aCurClass;
-                if (LOGGER.isDebugEnabled ())
-                  LOGGER.debug ("Found hierarchical match with class " +
-                                aMatchingClass +
-                                " when searching for " +
-                                aClass);
-                break;
-              }
-            }
+            aMatchingImplementation = aImpl;
+            aMatchingClass = aCurClass;
+            if (LOGGER.isDebugEnabled ())
+              LOGGER.debug ("Found hierarchical match with class " + aMatchingClass + " when searching for " + aClass);
+            break;
           }
         }
       }
-      finally
-      {
-        m_aRWLock.readLock ().unlock ();
-      }
-
-      // Do this outside of the lock for performance reasons
-      if (aMatchingImplementation != null)
-      {
-        // If the matching implementation is for an interface and the
-        // implementation class implements equals, use the one from the class
-        // Example: a converter for "Map" is registered, but "LRUCache" comes
-        // with its own "equals" implementation
-        if (aMatchingImplementation.implementationEqualsOverridesInterface () &&
-            ClassHelper.isInterface (aMatchingClass) &&
-            _implementsEqualsItself (aClass))
-        {
-          // Remember to use direct implementation
-          m_aDirectEquals.setAnnotation (aClass, true);
-          return null;
-        }
-
-        if (!aMatchingClass.equals (aClass))
-        {
-          // We found a match by walking the hierarchy -> put that match in the
-          // direct hit list for further speed up
-          registerEqualsImplementation (aClass, aMatchingImplementation);
-        }
-
-        return aMatchingImplementation;
-      }
-
-      // Handle arrays specially, because we cannot register a converter for
-      // every potential array class (but we allow for special implementations)
-      if (ClassHelper.isArrayClass (aClass))
-        return GenericReflection.uncheckedCast (new ArrayEqualsImplementation ());
+    }
+    finally
+    {
+      m_aRWLock.readLock ().unlock ();
+    }
 
-      // Remember to use direct implementation
-      m_aDirectEquals.setAnnotation (aClass, true);
+    // Do this outside of the lock for performance reasons
+    if (aMatchingImplementation != null)
+    {
+      // If the matching implementation is for an interface and the
+      // implementation class implements equals, use the one from the class
+      // Example: a converter for "Map" is registered, but "LRUCache" comes
+      // with its own "equals" implementation
+      if (aMatchingImplementation.implementationEqualsOverridesInterface () &&
+          ClassHelper.isInterface (aMatchingClass) &&
+          _implementsEqualsItself (aClass))
+        return USE_DIRECT;
+
+      return aMatchingImplementation;
     }
 
+    // Handle arrays specially, because we cannot register a converter for
+    // every potential array class (but we allow for special implementations)
+    if (ClassHelper.isArrayClass (aClass))
+      return ARRAY_EQUALS;
+
     // No special handler found
     if (LOGGER.isTraceEnabled ())
       LOGGER.trace ("Found no equals implementation for " + aClass);
+    return USE_DIRECT;
+  }
+
+  @Nullable
+  public <T> IEqualsImplementation <T> getBestMatchingEqualsImplementation (@Nullable final Class <T> aClass)
+  {
+    if (aClass == null)
+      return null;
 
-    // Definitely no special implementation
-    return null;
+    final IEqualsImplementation <?> ret = m_aResolvedCache.get (aClass);
+    // Definitely no special implementation?
+    return ret == USE_DIRECT ? null : GenericReflection.uncheckedCast (ret);
+  }
+
+  /**
+   * Check if objects of the passed class can be compared directly without
+   * consulting the registry. This is only true for final JDK value types with a
+   * well defined equals method. Note: {@link Double#equals(Object)} and
+   * {@link Float#equals(Object)} are consistent with <code>compareTo</code>.
+   *
+   * @param aClass
+   *        Class to check. May not be <code>null</code>.
+   * @return <code>true</code> if the native equals method can be used.
+   */
+  private static boolean _isDirectValueClass (@Nonnull final Class <?> aClass)
+  {
+    return aClass == String.class ||
+           aClass == Integer.class ||
+           aClass == Long.class ||
+           aClass == Boolean.class ||
+           aClass == Character.class ||
+           aClass == Double.class ||
+           aClass == Float.class ||
+           aClass == Short.class ||
+           aClass == Byte.class;
   }
 
   public static <T> boolean areEqual (@Nullable final T aObj1, @Nullable final T aObj2)
@@ -293,6 +299,26 @@ public final class EqualsImplementationRegistry implements IEqualsImplementation
       return false;
     }
 
+    // Fast path for the most common types
+    if (_isDirectValueClass (aClass1))
+      return aObj1.equals (aObj2);
+    if (aObj1 instanceof byte [])
+      return Arrays.equals ((byte []) aObj1, (byte []) aObj2);
+    if (aObj1 instanceof char [])
+      return Arrays.equals ((char []) aObj1, (char []) aObj2);
+    if (aObj1 instanceof int [])
+      return Arrays.equals ((int []) aObj1, (int []) aObj2);
+    if (aObj1 instanceof long [])
+      return Arrays.equals ((long []) aObj1, (long []) aObj2);
+    if (aObj1 instanceof double [])
+      return Arrays.equals ((double []) aObj1, (double []) aObj2);
+    if (aObj1 instanceof float [])
+      return Arrays.equals ((float []) aObj1, (float []) aObj2);
+    if (aObj1 instanceof short [])
+      return Arrays.equals ((short []) aObj1, (short []) aObj2);
+    if (aObj1 instanceof boolean [])
+      return Arrays.equals ((boolean []) aObj1, (boolean []) aObj2);
+
     // Same class
     final IEqualsImplementation <T> aImpl = getInstance ().getBestMatchingEqualsImplementation (GenericReflection.uncheckedCast (aClass1));
 
@@ -315,8 +341,7 @@ public final class EqualsImplementationRegistry implements IEqualsImplementation
   {
     m_aRWLock.writeLocked ( () -> {
       m_aMap.clear ();
-      m_aDirectEquals.clearCache ();
-      m_aImplementsEquals.clear ();
+      m_aResolvedCache = new ResolvedImplementationCache ();
     });
 
     // Register all implementations via SPI
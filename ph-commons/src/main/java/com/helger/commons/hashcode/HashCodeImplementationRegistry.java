@@ -16,10 +16,8 @@
  */
 package com.helger.commons.hashcode;
 
-import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.util.Arrays;
-import java.util.function.Supplier;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -32,8 +30,6 @@ import org.slf4j.LoggerFactory;
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.Singleton;
 import com.helger.commons.annotation.UseDirectEqualsAndHashCode;
-import com.helger.commons.cache.AnnotationUsageCache;
-import com.helger.commons.collection.impl.CommonsHashMap;
 import com.helger.commons.collection.impl.CommonsWeakHashMap;
 import com.helger.commons.collection.impl.ICommonsMap;
 import com.helger.commons.concurrent.SimpleReadWriteLock;
@@ -46,7 +42,12 @@ import com.helger.commons.state.EChange;
 
 /**
  * The main registry for the different {@link IHashCodeImplementation}
- * implementations.
+ * implementations.<br>
+ * The resolved implementation per class is cached, so that the lookup in
+ * {@link #getHashCode(Object)} does not require any lock once a class was
+ * resolved. The hash codes of {@link String}, the primitive wrapper types and
+ * primitive arrays are calculated directly without consulting the registry at
+ * all.
  *
  * @author Philip Helger
  */
@@ -59,8 +60,27 @@ public final class HashCodeImplementationRegistry implements IHashCodeImplementa
     private static final HashCodeImplementationRegistry s_aInstance = new HashCodeImplementationRegistry ();
   }
 
+  /**
+   * Per-class cache of the resolved implementation. Contains
+   * {@link HashCodeImplementationRegistry#USE_DIRECT} if the native hashCode
+   * method of the class should be used. Instances are never cleared but
+   * replaced with a new instance, so that lookups never block.
+   */
+  private final class ResolvedImplementationCache extends ClassValue <IHashCodeImplementation <?>>
+  {
+    @Override
+    protected IHashCodeImplementation <?> computeValue (final Class <?> aClass)
+    {
+      return _resolveHashCodeImplementation (aClass);
+    }
+  }
+
   private static final Logger LOGGER = LoggerFactory.getLogger (HashCodeImplementationRegistry.class);
 
+  // Marker for "use the hashCode method of the object"
+  private static final IHashCodeImplementation <?> USE_DIRECT = Object::hashCode;
+  private static final IHashCodeImplementation <Object []> ARRAY_HASHCODE = Arrays::deepHashCode;
+
   private static boolean s_bDefaultInstantiated = false;
 
   private final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
@@ -69,11 +89,8 @@ public final class HashCodeImplementationRegistry implements IHashCodeImplementa
   @GuardedBy ("m_aRWLock")
   private final ICommonsMap <Class <?>, IHashCodeImplementation <?>> m_aMap = new CommonsWeakHashMap <> ();
 
-  // Cache for classes where direct implementation should be used
-  private final AnnotationUsageCache m_aDirectHashCode = new AnnotationUsageCache (UseDirectEqualsAndHashCode.class);
-
-  // Cache for classes that implement hashCode directly
-  private final ICommonsMap <String, Boolean> m_aImplementsHashCode = new CommonsHashMap <> ();
+  // Replaced in the write lock upon each modification
+  private volatile ResolvedImplementationCache m_aResolvedCache = new ResolvedImplementationCache ();
 
   private HashCodeImplementationRegistry ()
   {
@@ -105,7 +122,10 @@ public final class HashCodeImplementationRegistry implements IHashCodeImplementa
     m_aRWLock.writeLocked ( () -> {
       final IHashCodeImplementation <T> aOldImpl = GenericReflection.uncheckedCast (m_aMap.get (aClass));
       if (aOldImpl == null)
+      {
         m_aMap.put (aClass, aImpl);
+        m_aResolvedCache = new ResolvedImplementationCache ();
+      }
       else
         if (!EqualsHelper.identityEqual (aOldImpl, aImpl))
         {
@@ -124,134 +144,121 @@ public final class HashCodeImplementationRegistry implements IHashCodeImplementa
   @Nonnull
   public EChange unregisterHashCodeImplementation (@Nonnull final Class <?> aClass)
   {
-    return m_aRWLock.writeLockedGet ( () -> m_aMap.removeObject (aClass));
-  }
-
-  private boolean _isUseDirectHashCode (@Nonnull final Class <?> aClass)
-  {
-    return m_aDirectHashCode.hasAnnotation (aClass);
+    return m_aRWLock.writeLockedGet ( () -> {
+      if (m_aMap.removeObject (aClass).isUnchanged ())
+        return EChange.UNCHANGED;
+      m_aResolvedCache = new ResolvedImplementationCache ();
+      return EChange.CHANGED;
+    });
   }
 
-  private boolean _implementsHashCodeItself (@Nonnull final Class <?> aClass)
+  private static boolean _implementsHashCodeItself (@Nonnull final Class <?> aClass)
   {
-    final String sClassName = aClass.getName ();
-
-    Boolean aImplementsHashCodeItself = m_aRWLock.readLockedGet ((Supplier <Boolean>) () -> m_aImplementsHashCode.get (sClassName));
-    if (aImplementsHashCodeItself == null)
+    try
     {
-      aImplementsHashCodeItself = m_aRWLock.writeLockedGet ((Supplier <Boolean>) () -> {
-        // Try again in write lock
-        Boolean aWLImplementsHashCodeItself = m_aImplementsHashCode.get (sClassName);
-        if (aWLImplementsHashCodeItself == null)
-        {
-          // Determine
-          boolean bRet = false;
-          try
-          {
-            final Method aMethod = aClass.getDeclaredMethod ("hashCode");
-            if (aMethod != null && aMethod.getReturnType ().equals (int.class))
-              bRet = true;
-          }
-          catch (final NoSuchMethodException ex)
-          {
-            // ignore
-          }
-          aWLImplementsHashCodeItself = Boolean.valueOf (bRet);
-          m_aImplementsHashCode.put (sClassName, aWLImplementsHashCodeItself);
-        }
-        return aWLImplementsHashCodeItself;
-      });
+      final Method aMethod = aClass.getDeclaredMethod ("hashCode");
+      return aMethod != null && aMethod.getReturnType ().equals (int.class);
+    }
+    catch (final NoSuchMethodException ex)
+    {
+      return false;
     }
-    return aImplementsHashCodeItself.booleanValue ();
   }
 
-  @Nullable
-  public <T> IHashCodeImplementation <T> getBestMatchingHashCodeImplementation (@Nullable final Class <T> aClass)
+  @Nonnull
+  private IHashCodeImplementation <?> _resolveHashCodeImplementation (@Nonnull final Class <?> aClass)
   {
-    if (aClass != null)
-    {
-      IHashCodeImplementation <T> aMatchingImplementation = null;
-      Class <?> aMatchingClass = null;
+    // No check required?
+    if (aClass.getAnnotation (UseDirectEqualsAndHashCode.class) != null)
+      return USE_DIRECT;
 
-      // No check required?
-      if (_isUseDirectHashCode (aClass))
-        return null;
+    IHashCodeImplementation <?> aMatchingImplementation = null;
+    Class <?> aMatchingClass = null;
 
-      m_aRWLock.readLock ().lock ();
-      try
+    m_aRWLock.readLock ().lock ();
+    try
+    {
+      // Check for an exact match first
+      aMatchingImplementation = m_aMap.get (aClass);
+      if (aMatchingImplementation != null)
+        aMatchingClass = aClass;
+      else
       {
-        // Check for an exact match first
-        aMatchingImplementation = GenericReflection.uncheckedCast (m_aMap.get (aClass));
-        if (aMatchingImplementation != null)
-          aMatchingClass = aClass;
-        else
+        // Scan hierarchy in efficient way
+        for (final Class <?> aCurClass : ClassHierarchyCache.getClassHierarchyIterable (aClass))
         {
-          // Scan hierarchy in efficient way
-          for (final WeakReference <Class <?>> aCurWRClass : ClassHierarchyCache.getClassHierarchyIterator (aClass))
+          final IHashCodeImplementation <?> aImpl = m_aMap.get (aCurClass);
+          if (aImpl != null)
           {
-            final Class <?> aCurClass = aCurWRClass.get ();
-            if (aCurClass != null)
-            {
-              final IHashCodeImplementation <?> aImpl = m_aMap.get (aCurClass);
-              if (aImpl != null)
-              {
-                aMatchingImplementation = GenericReflection.uncheckedCast (aImpl);
-                aMatchingClass = aCurClass;
-                if (LOGGER.isDebugEnabled ())
-                  LOGGER.debug ("Found hierarchical match with class " +
-                                aMatchingClass +
-                                " when searching for " +
-                                aClass);
-                break;
-              }
-            }
+            aMatchingImplementation = aImpl;
+            aMatchingClass = aCurClass;
+            if (LOGGER.isDebugEnabled ())
+              LOGGER.debug ("Found hierarchical match with class " + aMatchingClass + " when searching for " + aClass);
+            break;
           }
         }
       }
-      finally
-      {
-        m_aRWLock.readLock ().unlock ();
-      }
-
-      // Do this outside of the lock for performance reasons
-      if (aMatchingImplementation != null)
-      {
-        // If the matching implementation is for an interface and the
-        // implementation class implements hashCode, use the one from the class
-        // Example: a converter for "Map" is registered, but "LRUCache" comes
-        // with its own "hashCode" implementation
-        if (ClassHelper.isInterface (aMatchingClass) && _implementsHashCodeItself (aClass))
-        {
-          // Remember to use direct implementation
-          m_aDirectHashCode.setAnnotation (aClass, true);
-          return null;
-        }
-
-        if (!aMatchingClass.equals (aClass))
-        {
-          // We found a match by walking the hierarchy -> put that match in the
-          // direct hit list for further speed up
-          registerHashCodeImplementation (aClass, aMatchingImplementation);
-        }
-
-        return aMatchingImplementation;
-      }
-
-      // Handle arrays specially, because we cannot register a converter for
-      // every potential array class (but we allow for special implementations)
-      if (ClassHelper.isArrayClass (aClass))
-        return x -> Arrays.deepHashCode ((Object []) x);
+    }
+    finally
+    {
+      m_aRWLock.readLock ().unlock ();
+    }
 
-      // Remember to use direct implementation
-      m_aDirectHashCode.setAnnotation (aClass, true);
+    // Do this outside of the lock for performance reasons
+    if (aMatchingImplementation != null)
+    {
+      // If the matching implementation is for an interface and the
+      // implementation class implements hashCode, use the one from the class
+      // Example: a converter for "Map" is registered, but "LRUCache" comes
+      // with its own "hashCode" implementation
+      if (ClassHelper.isInterface (aMatchingClass) && _implementsHashCodeItself (aClass))
+        return USE_DIRECT;
+
+      return aMatchingImplementation;
     }
 
+    // Handle arrays specially, because we cannot register a converter for
+    // every potential array class (but we allow for special implementations)
+    if (ClassHelper.isArrayClass (aClass))
+      return ARRAY_HASHCODE;
+
     // No special handler found
     if (LOGGER.isTraceEnabled ())
       LOGGER.trace ("Found no hashCode implementation for " + aClass);
+    return USE_DIRECT;
+  }
+
+  @Nullable
+  public <T> IHashCodeImplementation <T> getBestMatchingHashCodeImplementation (@Nullable final Class <T> aClass)
+  {
+    if (aClass == null)
+      return null;
 
-    // Definitely no special implementation
-    return null;
+    final IHashCodeImplementation <?> ret = m_aResolvedCache.get (aClass);
+    // Definitely no special implementation?
+    return ret == USE_DIRECT ? null : GenericReflection.uncheckedCast (ret);
+  }
+
+  /**
+   * Check if the hash code of the passed class can be calculated directly
+   * without consulting the registry. This is only true for final JDK value
+   * types with a well defined hashCode method.
+   *
+   * @param aClass
+   *        Class to check. May not be <code>null</code>.
+   * @return <code>true</code> if the native hashCode method can be used.
+   */
+  private static boolean _isDirectValueClass (@Nonnull final Class <?> aClass)
+  {
+    return aClass == String.class ||
+           aClass == Integer.class ||
+           aClass == Long.class ||
+           aClass == Boolean.class ||
+           aClass == Character.class ||
+           aClass == Double.class ||
+           aClass == Float.class ||
+           aClass == Short.class ||
+           aClass == Byte.class;
   }
 
   public static int getHashCode (@Nullable final Object aObj)
@@ -259,8 +266,29 @@ public final class HashCodeImplementationRegistry implements IHashCodeImplementa
     if (aObj == null)
       return HashCodeCalculator.HASHCODE_NULL;
 
-    // Get the best matching implementation
     final Class <?> aClass = aObj.getClass ();
+
+    // Fast path for the most common types
+    if (_isDirectValueClass (aClass))
+      return aObj.hashCode ();
+    if (aObj instanceof byte [])
+      return Arrays.hashCode ((byte []) aObj);
+    if (aObj instanceof char [])
+      return Arrays.hashCode ((char []) aObj);
+    if (aObj instanceof int [])
+      return Arrays.hashCode ((int []) aObj);
+    if (aObj instanceof long [])
+      return Arrays.hashCode ((long []) aObj);
+    if (aObj instanceof double [])
+      return Arrays.hashCode ((double []) aObj);
+    if (aObj instanceof float [])
+      return Arrays.hashCode ((float []) aObj);
+    if (aObj instanceof short [])
+      return Arrays.hashCode ((short []) aObj);
+    if (aObj instanceof boolean [])
+      return Arrays.hashCode ((boolean []) aObj);
+
+    // Get the best matching implementation
     final IHashCodeImplementation <Object> aImpl = GenericReflection.uncheckedCast (getInstance ().getBestMatchingHashCodeImplementation (aClass));
     return aImpl == null ? aObj.hashCode () : aImpl.getHashCode (aObj);
   }
@@ -269,8 +297,7 @@ public final class HashCodeImplementationRegistry implements IHashCodeImplementa
   {
     m_aRWLock.writeLocked ( () -> {
       m_aMap.clear ();
-      m_aDirectHashCode.clearCache ();
-      m_aImplementsHashCode.clear ();
+      m_aResolvedCache = new ResolvedImplementationCache ();
     });
 
     // Register all implementations via SPI
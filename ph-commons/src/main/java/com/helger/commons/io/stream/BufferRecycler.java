@@ -0,0 +1,249 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.io.stream;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.CGlobal;
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.PresentForCodeCoverage;
+
+/**
+ * Recycler for temporary byte and char buffers as used e.g. for copying
+ * streams. Buffers are organized in size classes (powers of two from
+ * {@link #MIN_BUFFER_SIZE} to {@link #MAX_BUFFER_SIZE}). Each thread caches one
+ * buffer per size class, and a bounded, lock-free global pool with
+ * {@link #GLOBAL_SLOTS_PER_SIZE_CLASS} slots per size class is shared between
+ * all threads.<br>
+ * Requests larger than {@link #MAX_BUFFER_SIZE} are served with new arrays
+ * that are never pooled.<br>
+ * Important: a buffer must not be used anymore after it was returned.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@ThreadSafe
+public final class BufferRecycler
+{
+  /** The smallest size class */
+  public static final int MIN_BUFFER_SIZE = CGlobal.BYTES_PER_KILOBYTE;
+  /** The largest size class */
+  public static final int MAX_BUFFER_SIZE = 256 * CGlobal.BYTES_PER_KILOBYTE;
+  /** Number of global slots per size class */
+  public static final int GLOBAL_SLOTS_PER_SIZE_CLASS = 8;
+
+  private static final int MIN_SHIFT = Integer.numberOfTrailingZeros (MIN_BUFFER_SIZE);
+  private static final int SIZE_CLASS_COUNT = Integer.numberOfTrailingZeros (MAX_BUFFER_SIZE) - MIN_SHIFT + 1;
+
+  private static final ThreadLocal <byte [] []> TL_BYTES = ThreadLocal.withInitial ( () -> new byte [SIZE_CLASS_COUNT] []);
+  private static final ThreadLocal <char [] []> TL_CHARS = ThreadLocal.withInitial ( () -> new char [SIZE_CLASS_COUNT] []);
+  private static final AtomicReferenceArray <byte []> GLOBAL_BYTES = new AtomicReferenceArray <> (SIZE_CLASS_COUNT *
+                                                                                                   GLOBAL_SLOTS_PER_SIZE_CLASS);
+  private static final AtomicReferenceArray <char []> GLOBAL_CHARS = new AtomicReferenceArray <> (SIZE_CLASS_COUNT *
+                                                                                                   GLOBAL_SLOTS_PER_SIZE_CLASS);
+
+  @PresentForCodeCoverage
+  private static final BufferRecycler INSTANCE = new BufferRecycler ();
+
+  private BufferRecycler ()
+  {}
+
+  /**
+   * @param nMinSize
+   *        Requested minimum size. Must be &ge; 0.
+   * @return The size class index or -1 if the size is too large to be pooled.
+   */
+  private static int _getSizeClassForBorrow (final int nMinSize)
+  {
+    if (nMinSize <= MIN_BUFFER_SIZE)
+      return 0;
+    if (nMinSize > MAX_BUFFER_SIZE)
+      return -1;
+    // Round up to the next power of two
+    return 32 - Integer.numberOfLeadingZeros (nMinSize - 1) - MIN_SHIFT;
+  }
+
+  /**
+   * @param nLength
+   *        Length of a returned buffer
+   * @return The size class index or -1 if the buffer does not exactly match a
+   *         size class and can therefore not be pooled.
+   */
+  private static int _getSizeClassForReturn (final int nLength)
+  {
+    if (nLength < MIN_BUFFER_SIZE || nLength > MAX_BUFFER_SIZE || Integer.bitCount (nLength) != 1)
+      return -1;
+    return Integer.numberOfTrailingZeros (nLength) - MIN_SHIFT;
+  }
+
+  @Nullable
+  private static <T> T _borrowGlobal (@Nonnull final AtomicReferenceArray <T> aGlobal, final int nSizeClass)
+  {
+    final int nStart = nSizeClass * GLOBAL_SLOTS_PER_SIZE_CLASS;
+    for (int i = nStart; i < nStart + GLOBAL_SLOTS_PER_SIZE_CLASS; ++i)
+      if (aGlobal.get (i) != null)
+      {
+        final T ret = aGlobal.getAndSet (i, null);
+        if (ret != null)
+          return ret;
+      }
+    return null;
+  }
+
+  private static <T> void _returnGlobal (@Nonnull final AtomicReferenceArray <T> aGlobal,
+                                         final int nSizeClass,
+                                         @Nonnull final T aBuffer)
+  {
+    final int nStart = nSizeClass * GLOBAL_SLOTS_PER_SIZE_CLASS;
+    for (int i = nStart; i < nStart + GLOBAL_SLOTS_PER_SIZE_CLASS; ++i)
+      if (aGlobal.get (i) == null && aGlobal.compareAndSet (i, null, aBuffer))
+        return;
+    // Global pool is full - let the GC take care of it
+  }
+
+  /**
+   * Get a byte buffer with at least the provided size. The returned buffer
+   * contains arbitrary data.
+   *
+   * @param nMinSize
+   *        The minimum size of the buffer. Must be &ge; 0.
+   * @return A buffer with a length &ge; the requested size. Never
+   *         <code>null</code>.
+   * @see #returnBytes(byte[])
+   */
+  @Nonnull
+  public static byte [] borrowBytes (@Nonnegative final int nMinSize)
+  {
+    ValueEnforcer.isGE0 (nMinSize, "MinSize");
+
+    final int nSizeClass = _getSizeClassForBorrow (nMinSize);
+    if (nSizeClass < 0)
+      return new byte [nMinSize];
+
+    final byte [] [] aLocal = TL_BYTES.get ();
+    byte [] ret = aLocal[nSizeClass];
+    if (ret != null)
+    {
+      aLocal[nSizeClass] = null;
+      return ret;
+    }
+    ret = _borrowGlobal (GLOBAL_BYTES, nSizeClass);
+    if (ret != null)
+      return ret;
+    return new byte [MIN_BUFFER_SIZE << nSizeClass];
+  }
+
+  /**
+   * Return a byte buffer so that it can be reused. Buffers that were not
+   * created by {@link #borrowBytes(int)} may be returned as well, but are only
+   * pooled if their size matches a size class.
+   *
+   * @param aBuffer
+   *        The buffer to be returned. May be <code>null</code>. Must not be
+   *        used by the caller afterwards.
+   */
+  public static void returnBytes (@Nullable final byte [] aBuffer)
+  {
+    if (aBuffer == null)
+      return;
+    final int nSizeClass = _getSizeClassForReturn (aBuffer.length);
+    if (nSizeClass < 0)
+      return;
+
+    final byte [] [] aLocal = TL_BYTES.get ();
+    if (aLocal[nSizeClass] == null)
+      aLocal[nSizeClass] = aBuffer;
+    else
+      _returnGlobal (GLOBAL_BYTES, nSizeClass, aBuffer);
+  }
+
+  /**
+   * Get a char buffer with at least the provided size. The returned buffer
+   * contains arbitrary data.
+   *
+   * @param nMinSize
+   *        The minimum size of the buffer. Must be &ge; 0.
+   * @return A buffer with a length &ge; the requested size. Never
+   *         <code>null</code>.
+   * @see #returnChars(char[])
+   */
+  @Nonnull
+  public static char [] borrowChars (@Nonnegative final int nMinSize)
+  {
+    ValueEnforcer.isGE0 (nMinSize, "MinSize");
+
+    final int nSizeClass = _getSizeClassForBorrow (nMinSize);
+    if (nSizeClass < 0)
+      return new char [nMinSize];
+
+    final char [] [] aLocal = TL_CHARS.get ();
+    char [] ret = aLocal[nSizeClass];
+    if (ret != null)
+    {
+      aLocal[nSizeClass] = null;
+      return ret;
+    }
+    ret = _borrowGlobal (GLOBAL_CHARS, nSizeClass);
+    if (ret != null)
+      return ret;
+    return new char [MIN_BUFFER_SIZE << nSizeClass];
+  }
+
+  /**
+   * Return a char buffer so that it can be reused. Buffers that were not
+   * created by {@link #borrowChars(int)} may be returned as well, but are only
+   * pooled if their size matches a size class.
+   *
+   * @param aBuffer
+   *        The buffer to be returned. May be <code>null</code>. Must not be
+   *        used by the caller afterwards.
+   */
+  public static void returnChars (@Nullable final char [] aBuffer)
+  {
+    if (aBuffer == null)
+      return;
+    final int nSizeClass = _getSizeClassForReturn (aBuffer.length);
+    if (nSizeClass < 0)
+      return;
+
+    final char [] [] aLocal = TL_CHARS.get ();
+    if (aLocal[nSizeClass] == null)
+      aLocal[nSizeClass] = aBuffer;
+    else
+      _returnGlobal (GLOBAL_CHARS, nSizeClass, aBuffer);
+  }
+
+  /**
+   * Remove all pooled buffers of the global pool and of the calling thread.
+   * Buffers cached by other threads are not affected.
+   */
+  public static void clear ()
+  {
+    TL_BYTES.remove ();
+    TL_CHARS.remove ();
+    for (int i = 0; i < GLOBAL_BYTES.length (); ++i)
+    {
+      GLOBAL_BYTES.set (i, null);
+      GLOBAL_CHARS.set (i, null);
+    }
+  }
+}
@@ -80,10 +80,13 @@ public class NonBlockingByteArrayOutputStream extends OutputStream implements IH
 
   @Nonnull
   @ReturnsMutableCopy
-  private static byte [] _enlarge (@Nonnull final byte [] aBuf, @Nonnegative final int nNewSize)
+  private static byte [] _enlarge (@Nonnull final byte [] aBuf,
+                                   @Nonnegative final int nNewSize,
+                                   @Nonnegative final int nUsedCount)
   {
     final byte [] ret = new byte [nNewSize];
-    System.arraycopy (aBuf, 0, ret, 0, aBuf.length);
+    // Only the used part needs to be copied
+    System.arraycopy (aBuf, 0, ret, 0, nUsedCount);
     return ret;
   }
 
@@ -98,7 +101,7 @@ public class NonBlockingByteArrayOutputStream extends OutputStream implements IH
   {
     final int nNewCount = m_nCount + 1;
     if (nNewCount > m_aBuf.length)
-      m_aBuf = _enlarge (m_aBuf, Math.max (m_aBuf.length << 1, nNewCount));
+      m_aBuf = _enlarge (m_aBuf, Math.max (m_aBuf.length << 1, nNewCount), m_nCount);
     m_aBuf[m_nCount] = (byte) b;
     m_nCount = nNewCount;
   }
@@ -134,7 +137,7 @@ public class NonBlockingByteArrayOutputStream extends OutputStream implements IH
     {
       final int nNewCount = m_nCount + nLen;
       if (nNewCount > m_aBuf.length)
-        m_aBuf = _enlarge (m_aBuf, Math.max (m_aBuf.length << 1, nNewCount));
+        m_aBuf = _enlarge (m_aBuf, Math.max (m_aBuf.length << 1, nNewCount), m_nCount);
       System.arraycopy (aBuf, nOfs, m_aBuf, m_nCount, nLen);
       m_nCount = nNewCount;
     }
@@ -173,7 +176,7 @@ public class NonBlockingByteArrayOutputStream extends OutputStream implements IH
       if (m_nCount == m_aBuf.length)
       {
         // reallocate
-        m_aBuf = _enlarge (m_aBuf, m_aBuf.length << 1);
+        m_aBuf = _enlarge (m_aBuf, Math.max (m_aBuf.length << 1, 32), m_nCount);
       }
 
       final int nBytesRead = aIS.read (m_aBuf, m_nCount, m_aBuf.length - m_nCount);
@@ -0,0 +1,306 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.io.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.WillNotClose;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.annotation.ReturnsMutableObject;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.IWriteToStream;
+import com.helger.commons.lang.IHasSize;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A variant of {@link NonBlockingByteArrayOutputStream} that grows by appending
+ * new chunks instead of reallocating and copying the already written data.
+ * Chunk sizes double up to {@link #MAX_CHUNK_SIZE}. The content can be handed
+ * off without copying via {@link #getAsByteBuffers()} or
+ * {@link #getAsInputStream()}.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@NotThreadSafe
+public class NonBlockingChunkedByteArrayOutputStream extends OutputStream implements IHasSize, IWriteToStream
+{
+  /** The default size of the first chunk */
+  public static final int DEFAULT_INITIAL_CHUNK_SIZE = 256;
+  /** The maximum size of a single chunk */
+  public static final int MAX_CHUNK_SIZE = 1024 * 1024;
+
+  private final ICommonsList <byte []> m_aChunks = new CommonsArrayList <> ();
+  /** The chunk currently written to - always the last one */
+  private byte [] m_aCurChunk;
+  /** The number of bytes used in the current chunk */
+  private int m_nCurCount;
+  /** The number of bytes in all previous (full) chunks */
+  private long m_nPrevCount;
+
+  /**
+   * Create a new output stream with {@link #DEFAULT_INITIAL_CHUNK_SIZE}.
+   */
+  public NonBlockingChunkedByteArrayOutputStream ()
+  {
+    this (DEFAULT_INITIAL_CHUNK_SIZE);
+  }
+
+  /**
+   * Create a new output stream with the provided initial chunk size.
+   *
+   * @param nInitialChunkSize
+   *        The size of the first chunk. Must be &gt; 0.
+   */
+  public NonBlockingChunkedByteArrayOutputStream (@Nonnegative final int nInitialChunkSize)
+  {
+    ValueEnforcer.isGT0 (nInitialChunkSize, "InitialChunkSize");
+    m_aCurChunk = new byte [nInitialChunkSize];
+    m_aChunks.add (m_aCurChunk);
+  }
+
+  private void _addChunk ()
+  {
+    m_nPrevCount += m_nCurCount;
+    // Double the total size, but limit the size of a single chunk
+    final long nNewSize = Math.max (m_aCurChunk.length, Math.min (m_nPrevCount, MAX_CHUNK_SIZE));
+    m_aCurChunk = new byte [(int) nNewSize];
+    m_aChunks.add (m_aCurChunk);
+    m_nCurCount = 0;
+  }
+
+  @Override
+  public void write (final int b)
+  {
+    if (m_nCurCount == m_aCurChunk.length)
+      _addChunk ();
+    m_aCurChunk[m_nCurCount++] = (byte) b;
+  }
+
+  /*
+   * Just overloaded to avoid the IOException in the generic OutputStream.write
+   * method.
+   */
+  @Override
+  public void write (@Nonnull final byte [] aBuf)
+  {
+    write (aBuf, 0, aBuf.length);
+  }
+
+  @Override
+  public void write (@Nonnull final byte [] aBuf, final int nOfs, final int nLen)
+  {
+    // Check upfront, so that nothing is written for invalid parameters
+    ValueEnforcer.isArrayOfsLen (aBuf, nOfs, nLen);
+
+    int nSrcOfs = nOfs;
+    int nRest = nLen;
+    while (nRest > 0)
+    {
+      if (m_nCurCount == m_aCurChunk.length)
+        _addChunk ();
+      final int nCount = Math.min (nRest, m_aCurChunk.length - m_nCurCount);
+      System.arraycopy (aBuf, nSrcOfs, m_aCurChunk, m_nCurCount, nCount);
+      m_nCurCount += nCount;
+      nSrcOfs += nCount;
+      nRest -= nCount;
+    }
+  }
+
+  /**
+   * Reads the given {@link InputStream} completely into the buffer.
+   *
+   * @param aIS
+   *        the InputStream to read from. May not be <code>null</code>. Is not
+   *        closed internally.
+   * @throws IOException
+   *         If reading fails
+   */
+  public void readFrom (@Nonnull @WillNotClose final InputStream aIS) throws IOException
+  {
+    while (true)
+    {
+      if (m_nCurCount == m_aCurChunk.length)
+        _addChunk ();
+
+      final int nBytesRead = aIS.read (m_aCurChunk, m_nCurCount, m_aCurChunk.length - m_nCurCount);
+      if (nBytesRead < 0)
+        return;
+      m_nCurCount += nBytesRead;
+    }
+  }
+
+  public void writeTo (@Nonnull @WillNotClose final OutputStream aOS) throws IOException
+  {
+    final int nLast = m_aChunks.size () - 1;
+    for (int i = 0; i < nLast; ++i)
+      aOS.write (m_aChunks.get (i));
+    aOS.write (m_aCurChunk, 0, m_nCurCount);
+  }
+
+  /**
+   * Discard all written content. Only the first chunk is kept for reuse.
+   */
+  public void reset ()
+  {
+    m_aCurChunk = m_aChunks.getFirst ();
+    m_aChunks.clear ();
+    m_aChunks.add (m_aCurChunk);
+    m_nCurCount = 0;
+    m_nPrevCount = 0;
+  }
+
+  /**
+   * @return The total number of written bytes as a long. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getSizeLong ()
+  {
+    return m_nPrevCount + m_nCurCount;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IllegalStateException
+   *         if the size exceeds {@link Integer#MAX_VALUE}
+   */
+  @Nonnegative
+  public int size ()
+  {
+    final long nSize = getSizeLong ();
+    if (nSize > Integer.MAX_VALUE)
+      throw new IllegalStateException ("Size does not fit in an int: " + nSize);
+    return (int) nSize;
+  }
+
+  public boolean isEmpty ()
+  {
+    return getSizeLong () == 0;
+  }
+
+  @Override
+  public boolean isNotEmpty ()
+  {
+    return getSizeLong () > 0;
+  }
+
+  /**
+   * @return The number of chunks currently in use. Always &gt; 0.
+   */
+  @Nonnegative
+  public int getChunkCount ()
+  {
+    return m_aChunks.size ();
+  }
+
+  /**
+   * Creates a newly allocated byte array with the complete content. This
+   * requires exactly one copy of the data.
+   *
+   * @return the current contents of this output stream, as a byte array.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public byte [] toByteArray ()
+  {
+    final byte [] ret = new byte [size ()];
+    int nOfs = 0;
+    final int nLast = m_aChunks.size () - 1;
+    for (int i = 0; i < nLast; ++i)
+    {
+      final byte [] aChunk = m_aChunks.get (i);
+      System.arraycopy (aChunk, 0, ret, nOfs, aChunk.length);
+      nOfs += aChunk.length;
+    }
+    System.arraycopy (m_aCurChunk, 0, ret, nOfs, m_nCurCount);
+    return ret;
+  }
+
+  /**
+   * Decode the content as a String using the provided charset.
+   *
+   * @param aCharset
+   *        the charset to be used. May not be <code>null</code>.
+   * @return String decoded from the buffer's contents.
+   */
+  @Nonnull
+  public String getAsString (@Nonnull final Charset aCharset)
+  {
+    ValueEnforcer.notNull (aCharset, "Charset");
+    if (m_aChunks.size () == 1)
+      return new String (m_aCurChunk, 0, m_nCurCount, aCharset);
+    return new String (toByteArray (), aCharset);
+  }
+
+  /**
+   * Get the content as {@link ByteBuffer}s <b>WITHOUT COPYING</b> it. Each
+   * chunk is wrapped into a separate buffer. Later modifications of this
+   * stream may or may not be reflected in the returned buffers, so this stream
+   * should not be written to anymore.
+   *
+   * @return A non-<code>null</code>, non-empty array of buffers.
+   */
+  @Nonnull
+  @ReturnsMutableObject
+  public ByteBuffer [] getAsByteBuffers ()
+  {
+    final int nLast = m_aChunks.size () - 1;
+    final ByteBuffer [] ret = new ByteBuffer [nLast + 1];
+    for (int i = 0; i < nLast; ++i)
+      ret[i] = ByteBuffer.wrap (m_aChunks.get (i));
+    ret[nLast] = ByteBuffer.wrap (m_aCurChunk, 0, m_nCurCount);
+    return ret;
+  }
+
+  /**
+   * Create a new {@link InputStream} on the content <b>WITHOUT COPYING</b> it.
+   * See {@link #getAsByteBuffers()} for the restrictions.
+   *
+   * @return A new {@link ByteBuffersInputStream}. Never <code>null</code>.
+   */
+  @Nonnull
+  public ByteBuffersInputStream getAsInputStream ()
+  {
+    return new ByteBuffersInputStream (getAsByteBuffers ());
+  }
+
+  /**
+   * Closing has no effect. The content stays accessible.
+   */
+  @Override
+  public void close ()
+  {}
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Chunks", m_aChunks.size ())
+                                       .append ("Size", getSizeLong ())
+                                       .getToString ();
+  }
+}
@@ -353,6 +353,26 @@ public final class StreamHelper
     return new byte [DEFAULT_BUFSIZE];
   }
 
+  @Nonnull
+  private static ESuccess _copyInputStreamToOutputStreamPooled (@Nullable final InputStream aIS,
+                                                                final boolean bCloseIS,
+                                                                @Nullable final OutputStream aOS,
+                                                                final boolean bCloseOS,
+                                                                @Nullable final Long aLimit,
+                                                                @Nullable final MutableLong aCopyByteCount)
+  {
+    // The buffer does not leave this method, so it can safely be recycled
+    final byte [] aBuffer = BufferRecycler.borrowBytes (DEFAULT_BUFSIZE);
+    try
+    {
+      return copyInputStreamToOutputStream (aIS, bCloseIS, aOS, bCloseOS, aBuffer, aLimit, null, aCopyByteCount);
+    }
+    finally
+    {
+      BufferRecycler.returnBytes (aBuffer);
+    }
+  }
+
   /**
    * Pass the content of the given input stream to the given output stream. The
    * input stream is automatically closed, whereas the output stream stays open!
@@ -406,14 +426,7 @@ public final class StreamHelper
   public static ESuccess copyInputStreamToOutputStream (@WillClose @Nullable final InputStream aIS,
                                                         @WillNotClose @Nullable final OutputStream aOS)
   {
-    return copyInputStreamToOutputStream (aIS,
-                                          true,
-                                          aOS,
-                                          false,
-                                          createDefaultCopyBufferBytes (),
-                                          (Long) null,
-                                          null,
-                                          (MutableLong) null);
+    return _copyInputStreamToOutputStreamPooled (aIS, true, aOS, false, (Long) null, (MutableLong) null);
   }
 
   /**
@@ -433,14 +446,7 @@ public final class StreamHelper
   public static ESuccess copyInputStreamToOutputStreamAndCloseOS (@WillClose @Nullable final InputStream aIS,
                                                                   @WillClose @Nullable final OutputStream aOS)
   {
-    return copyInputStreamToOutputStream (aIS,
-                                          true,
-                                          aOS,
-                                          true,
-                                          createDefaultCopyBufferBytes (),
-                                          (Long) null,
-                                          null,
-                                          (MutableLong) null);
+    return _copyInputStreamToOutputStreamPooled (aIS, true, aOS, true, (Long) null, (MutableLong) null);
   }
 
   /**
@@ -464,14 +470,7 @@ public final class StreamHelper
                                                                  @WillNotClose @Nullable final OutputStream aOS,
                                                                  @Nonnegative final long nLimit)
   {
-    return copyInputStreamToOutputStream (aIS,
-                                          true,
-                                          aOS,
-                                          false,
-                                          createDefaultCopyBufferBytes (),
-                                          Long.valueOf (nLimit),
-                                          null,
-                                          (MutableLong) null);
+    return _copyInputStreamToOutputStreamPooled (aIS, true, aOS, false, Long.valueOf (nLimit), (MutableLong) null);
   }
 
   /**
@@ -495,14 +494,7 @@ public final class StreamHelper
                                                                            @WillClose @Nullable final OutputStream aOS,
                                                                            @Nonnegative final long nLimit)
   {
-    return copyInputStreamToOutputStream (aIS,
-                                          true,
-                                          aOS,
-                                          true,
-                                          createDefaultCopyBufferBytes (),
-                                          Long.valueOf (nLimit),
-                                          null,
-                                          (MutableLong) null);
+    return _copyInputStreamToOutputStreamPooled (aIS, true, aOS, true, Long.valueOf (nLimit), (MutableLong) null);
   }
 
   /**
@@ -526,14 +518,7 @@ public final class StreamHelper
                                                         @WillNotClose @Nullable final OutputStream aOS,
                                                         @Nullable final MutableLong aCopyByteCount)
   {
-    return copyInputStreamToOutputStream (aIS,
-                                          true,
-                                          aOS,
-                                          false,
-                                          createDefaultCopyBufferBytes (),
-                                          (Long) null,
-                                          null,
-                                          aCopyByteCount);
+    return _copyInputStreamToOutputStreamPooled (aIS, true, aOS, false, (Long) null, aCopyByteCount);
   }
 
   /**
@@ -883,6 +868,26 @@ public final class StreamHelper
     return new char [DEFAULT_BUFSIZE];
   }
 
+  @Nonnull
+  private static ESuccess _copyReaderToWriterPooled (@Nullable final Reader aReader,
+                                                     final boolean bCloseReader,
+                                                     @Nullable final Writer aWriter,
+                                                     final boolean bCloseWriter,
+                                                     @Nullable final Long aLimit,
+                                                     @Nullable final MutableLong aCopyCharCount)
+  {
+    // The buffer does not leave this method, so it can safely be recycled
+    final char [] aBuffer = BufferRecycler.borrowChars (DEFAULT_BUFSIZE);
+    try
+    {
+      return copyReaderToWriter (aReader, bCloseReader, aWriter, bCloseWriter, aBuffer, aLimit, null, aCopyCharCount);
+    }
+    finally
+    {
+      BufferRecycler.returnChars (aBuffer);
+    }
+  }
+
   /**
    * Pass the content of the given reader to the given writer. The reader is
    * automatically closed, whereas the writer stays open!
@@ -932,14 +937,7 @@ public final class StreamHelper
   public static ESuccess copyReaderToWriter (@WillClose @Nullable final Reader aReader,
                                              @WillNotClose @Nullable final Writer aWriter)
   {
-    return copyReaderToWriter (aReader,
-                               true,
-                               aWriter,
-                               false,
-                               createDefaultCopyBufferChars (),
-                               (Long) null,
-                               null,
-                               (MutableLong) null);
+    return _copyReaderToWriterPooled (aReader, true, aWriter, false, (Long) null, (MutableLong) null);
   }
 
   /**
@@ -959,14 +957,7 @@ public final class StreamHelper
   public static ESuccess copyReaderToWriterAndCloseWriter (@Nullable @WillClose final Reader aReader,
                                                            @Nullable @WillClose final Writer aWriter)
   {
-    return copyReaderToWriter (aReader,
-                               true,
-                               aWriter,
-                               true,
-                               createDefaultCopyBufferChars (),
-                               (Long) null,
-                               null,
-                               (MutableLong) null);
+    return _copyReaderToWriterPooled (aReader, true, aWriter, true, (Long) null, (MutableLong) null);
   }
 
   /**
@@ -990,14 +981,7 @@ public final class StreamHelper
                                                       @WillNotClose @Nullable final Writer aWriter,
                                                       final long nLimit)
   {
-    return copyReaderToWriter (aReader,
-                               true,
-                               aWriter,
-                               false,
-                               createDefaultCopyBufferChars (),
-                               Long.valueOf (nLimit),
-                               null,
-                               (MutableLong) null);
+    return _copyReaderToWriterPooled (aReader, true, aWriter, false, Long.valueOf (nLimit), (MutableLong) null);
   }
 
   /**
@@ -1021,14 +1005,7 @@ public final class StreamHelper
                                                                     @Nullable @WillClose final Writer aWriter,
                                                                     @Nonnegative final long nLimit)
   {
-    return copyReaderToWriter (aReader,
-                               true,
-                               aWriter,
-                               true,
-                               createDefaultCopyBufferChars (),
-                               Long.valueOf (nLimit),
-                               null,
-                               (MutableLong) null);
+    return _copyReaderToWriterPooled (aReader, true, aWriter, true, Long.valueOf (nLimit), (MutableLong) null);
   }
 
   /**
@@ -1052,14 +1029,7 @@ public final class StreamHelper
                                              @WillNotClose @Nullable final Writer aWriter,
                                              @Nullable final MutableLong aCopyCharCount)
   {
-    return copyReaderToWriter (aReader,
-                               true,
-                               aWriter,
-                               false,
-                               createDefaultCopyBufferChars (),
-                               (Long) null,
-                               null,
-                               (MutableLong) null);
+    return _copyReaderToWriterPooled (aReader, true, aWriter, false, (Long) null, aCopyCharCount);
   }
 
   /**
@@ -1645,7 +1615,16 @@ public final class StreamHelper
   public static void readUntilEOF (@Nonnull @WillClose final InputStream aIS,
                                    @Nonnull final ObjIntConsumer <? super byte []> aConsumer) throws IOException
   {
-    readUntilEOF (aIS, createDefaultCopyBufferBytes (), aConsumer);
+    // The consumer must not keep a reference to the buffer anyway
+    final byte [] aBuffer = BufferRecycler.borrowBytes (DEFAULT_BUFSIZE);
+    try
+    {
+      readUntilEOF (aIS, aBuffer, aConsumer);
+    }
+    finally
+    {
+      BufferRecycler.returnBytes (aBuffer);
+    }
   }
 
   public static void readUntilEOF (@Nonnull @WillClose final InputStream aIS,
@@ -1683,7 +1662,16 @@ public final class StreamHelper
   public static void readUntilEOF (@Nonnull @WillClose final Reader aReader,
                                    @Nonnull final ObjIntConsumer <? super char []> aConsumer) throws IOException
   {
-    readUntilEOF (aReader, new char [DEFAULT_BUFSIZE], aConsumer);
+    // The consumer must not keep a reference to the buffer anyway
+    final char [] aBuffer = BufferRecycler.borrowChars (DEFAULT_BUFSIZE);
+    try
+    {
+      readUntilEOF (aReader, aBuffer, aConsumer);
+    }
+    finally
+    {
+      BufferRecycler.returnChars (aBuffer);
+    }
   }
 
   public static void readUntilEOF (@Nonnull @WillClose final Reader aReader,
@@ -17,10 +17,10 @@
 package com.helger.commons.lang;
 
 import java.lang.ref.WeakReference;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.Nonnull;
-import javax.annotation.concurrent.GuardedBy;
-import javax.annotation.concurrent.Immutable;
 import javax.annotation.concurrent.ThreadSafe;
 
 import org.slf4j.Logger;
@@ -33,32 +33,33 @@ import com.helger.commons.collection.impl.CommonsArrayList;
 import com.helger.commons.collection.impl.CommonsLinkedHashSet;
 import com.helger.commons.collection.impl.ICommonsIterable;
 import com.helger.commons.collection.impl.ICommonsList;
-import com.helger.commons.collection.impl.ICommonsMap;
 import com.helger.commons.collection.impl.ICommonsOrderedSet;
 import com.helger.commons.collection.impl.ICommonsSet;
 import com.helger.commons.collection.iterate.IIterableIterator;
-import com.helger.commons.collection.map.LRUMap;
-import com.helger.commons.concurrent.SimpleReadWriteLock;
 import com.helger.commons.state.EChange;
-import com.helger.commons.string.ToStringGenerator;
 
 /**
- * A small class hierarchy cache
+ * A small class hierarchy cache.<br>
+ * Since v9.4.3 the hierarchy is stored in {@link ClassValue} objects so that
+ * reads never lock. The cached values are plain arrays of classes that are
+ * all part of the hierarchy of the key class. Therefore no value references a
+ * class loader that would not be reachable from the key class anyway.
  *
  * @author Philip Helger
  */
 @ThreadSafe
 public final class ClassHierarchyCache
 {
-  @Immutable
-  private static final class ClassList implements ICommonsIterable <WeakReference <Class <?>>>
+  /**
+   * The complete class hierarchy of a class in the correct order, but without
+   * duplicates.
+   */
+  private static final class HierarchyValue extends ClassValue <Class <?> []>
   {
-    // Store it in the correct order, but without duplicates
-    private final ICommonsList <WeakReference <Class <?>>> m_aList = new CommonsArrayList <> ();
-
-    public ClassList (@Nonnull final Class <?> aClass)
+    @Override
+    protected Class <?> [] computeValue (@Nonnull final Class <?> aClass)
     {
-      ValueEnforcer.notNull (aClass, "Class");
+      s_aCacheUsed.set (true);
 
       // Check the whole class hierarchy of the source class
       final ICommonsOrderedSet <Class <?>> aUniqueOrderedClasses = new CommonsLinkedHashSet <> ();
@@ -67,7 +68,11 @@ public final class ClassHierarchyCache
       while (!aOpenSrc.isEmpty ())
       {
         final Class <?> aCurClass = aOpenSrc.removeFirst ();
-        aUniqueOrderedClasses.add (aCurClass);
+        if (!aUniqueOrderedClasses.add (aCurClass))
+        {
+          // Already handled - all super types are already contained as well
+          continue;
+        }
 
         // Add super-classes and interfaces
         // Super-classes have precedence over interfaces!
@@ -76,60 +81,67 @@ public final class ClassHierarchyCache
         if (aCurClass.getSuperclass () != null)
           aOpenSrc.add (0, aCurClass.getSuperclass ());
       }
+      return aUniqueOrderedClasses.toArray (new Class <?> [aUniqueOrderedClasses.size ()]);
+    }
+  }
 
-      // Now convert to list of WeakReference
-      for (final Class <?> aCurClass : aUniqueOrderedClasses)
-        m_aList.add (new WeakReference <> (aCurClass));
+  /**
+   * All interfaces of the class hierarchy in the hierarchy order, without
+   * duplicates.
+   */
+  private static final class InterfaceValue extends ClassValue <Class <?> []>
+  {
+    private final HierarchyValue m_aHierarchy;
+
+    InterfaceValue (@Nonnull final HierarchyValue aHierarchy)
+    {
+      m_aHierarchy = aHierarchy;
     }
 
-    @Nonnull
-    @ReturnsMutableCopy
-    public ICommonsOrderedSet <Class <?>> getAsSet ()
+    @Override
+    protected Class <?> [] computeValue (@Nonnull final Class <?> aClass)
     {
-      // Use a linked hash set, to maintain the order
-      final ICommonsOrderedSet <Class <?>> ret = new CommonsLinkedHashSet <> (m_aList.size ());
-      for (final WeakReference <Class <?>> aRef : m_aList)
-      {
-        final Class <?> aClass = aRef.get ();
-        if (aClass != null)
-          ret.add (aClass);
-      }
-      return ret;
+      final ICommonsList <Class <?>> ret = new CommonsArrayList <> ();
+      for (final Class <?> aCurClass : m_aHierarchy.get (aClass))
+        if (aCurClass.isInterface ())
+          ret.add (aCurClass);
+      return ret.toArray (new Class <?> [ret.size ()]);
     }
+  }
 
-    @Nonnull
-    @ReturnsMutableCopy
-    public ICommonsList <Class <?>> getAsList ()
+  /**
+   * Read-only iterator over one of the cached arrays.
+   */
+  private static final class ClassArrayIterator implements IIterableIterator <Class <?>>
+  {
+    private final Class <?> [] m_aArray;
+    private int m_nIndex = 0;
+
+    ClassArrayIterator (@Nonnull final Class <?> [] aArray)
     {
-      // Use a list that may contain duplicates
-      final ICommonsList <Class <?>> ret = new CommonsArrayList <> (m_aList.size ());
-      for (final WeakReference <Class <?>> aRef : m_aList)
-      {
-        final Class <?> aClass = aRef.get ();
-        if (aClass != null)
-          ret.add (aClass);
-      }
-      return ret;
+      m_aArray = aArray;
     }
 
-    @Nonnull
-    public IIterableIterator <WeakReference <Class <?>>> iterator ()
+    public boolean hasNext ()
     {
-      return m_aList.iterator2 ();
+      return m_nIndex < m_aArray.length;
     }
 
-    @Override
-    public String toString ()
+    @Nonnull
+    public Class <?> next ()
     {
-      return new ToStringGenerator (this).append ("list", m_aList).getToString ();
+      if (!hasNext ())
+        throw new NoSuchElementException ();
+      return m_aArray[m_nIndex++];
     }
   }
 
   private static final Logger LOGGER = LoggerFactory.getLogger (ClassHierarchyCache.class);
 
-  private static final SimpleReadWriteLock s_aRWLock = new SimpleReadWriteLock ();
-  @GuardedBy ("s_aRWLock")
-  private static final ICommonsMap <String, ClassList> s_aClassHierarchy = new LRUMap <> (1000);
+  private static final AtomicBoolean s_aCacheUsed = new AtomicBoolean (false);
+  // Replaced upon clearCache so that all old values can be garbage collected
+  private static volatile HierarchyValue s_aHierarchy = new HierarchyValue ();
+  private static volatile InterfaceValue s_aInterfaces = new InterfaceValue (s_aHierarchy);
 
   @PresentForCodeCoverage
   private static final ClassHierarchyCache s_aInstance = new ClassHierarchyCache ();
@@ -147,8 +159,10 @@ public final class ClassHierarchyCache
   @Nonnull
   public static EChange clearCache ()
   {
-    final EChange ret = s_aRWLock.writeLockedGet (s_aClassHierarchy::removeAll);
-    if (ret.isUnchanged ())
+    final HierarchyValue aHierarchy = new HierarchyValue ();
+    s_aInterfaces = new InterfaceValue (aHierarchy);
+    s_aHierarchy = aHierarchy;
+    if (!s_aCacheUsed.getAndSet (false))
       return EChange.UNCHANGED;
 
     if (LOGGER.isDebugEnabled ())
@@ -157,20 +171,10 @@ public final class ClassHierarchyCache
   }
 
   @Nonnull
-  private static ClassList _getClassList (@Nonnull final Class <?> aClass)
+  private static Class <?> [] _getHierarchy (@Nonnull final Class <?> aClass)
   {
     ValueEnforcer.notNull (aClass, "Class");
-    final String sKey = aClass.getName ();
-
-    // Get or update from cache
-    ClassList aClassList = s_aRWLock.readLockedGet ( () -> s_aClassHierarchy.get (sKey));
-
-    if (aClassList == null)
-    {
-      // try again in write lock
-      aClassList = s_aRWLock.writeLockedGet ( () -> s_aClassHierarchy.computeIfAbsent (sKey, x -> new ClassList (aClass)));
-    }
-    return aClassList;
+    return s_aHierarchy.get (aClass);
   }
 
   /**
@@ -187,7 +191,8 @@ public final class ClassHierarchyCache
   @ReturnsMutableCopy
   public static ICommonsSet <Class <?>> getClassHierarchy (@Nonnull final Class <?> aClass)
   {
-    return _getClassList (aClass).getAsSet ();
+    // Use a linked hash set, to maintain the order
+    return new CommonsLinkedHashSet <> (_getHierarchy (aClass));
   }
 
   /**
@@ -205,7 +210,48 @@ public final class ClassHierarchyCache
   @ReturnsMutableCopy
   public static ICommonsList <Class <?>> getClassHierarchyList (@Nonnull final Class <?> aClass)
   {
-    return _getClassList (aClass).getAsList ();
+    return new CommonsArrayList <> (_getHierarchy (aClass));
+  }
+
+  /**
+   * Iterate the complete super class hierarchy of the passed class including
+   * all super classes and all interfaces of the passed class and of all parent
+   * classes. The classes are iterated in the same order as in
+   * {@link #getClassHierarchyList(Class)}. No copy of the cached data is
+   * created.
+   *
+   * @param aClass
+   *        The source class to get the hierarchy from.
+   * @return A non-<code>null</code> and non-empty iterable containing the
+   *         passed class and all super classes, and all super-interfaces.
+   *         Duplicates were already removed.
+   * @since 9.4.3
+   */
+  @Nonnull
+  public static ICommonsIterable <Class <?>> getClassHierarchyIterable (@Nonnull final Class <?> aClass)
+  {
+    final Class <?> [] aHierarchy = _getHierarchy (aClass);
+    return () -> new ClassArrayIterator (aHierarchy);
+  }
+
+  /**
+   * Iterate all interfaces implemented by the passed class, its super classes
+   * and its super interfaces. The interfaces are iterated in the order of the
+   * complete class hierarchy. No copy of the cached data is created.
+   *
+   * @param aClass
+   *        The source class to get the interfaces from.
+   * @return A non-<code>null</code> but maybe empty iterable containing all
+   *         interfaces without duplicates. If the passed class is an interface
+   *         itself, it is contained as the first element.
+   * @since 9.4.3
+   */
+  @Nonnull
+  public static ICommonsIterable <Class <?>> getAllInterfacesIterable (@Nonnull final Class <?> aClass)
+  {
+    ValueEnforcer.notNull (aClass, "Class");
+    final Class <?> [] aInterfaces = s_aInterfaces.get (aClass);
+    return () -> new ClassArrayIterator (aInterfaces);
   }
 
   /**
@@ -218,10 +264,14 @@ public final class ClassHierarchyCache
    * @return A non-<code>null</code> and non-empty list containing the passed
    *         class and all super classes, and all super-interfaces. Duplicates
    *         were already removed.
+   * @deprecated Since 9.4.3; use {@link #getClassHierarchyIterable(Class)}
+   *             instead. The weak references are created on the fly.
    */
   @Nonnull
+  @Deprecated
   public static ICommonsIterable <WeakReference <Class <?>>> getClassHierarchyIterator (@Nonnull final Class <?> aClass)
   {
-    return _getClassList (aClass);
+    final Class <?> [] aHierarchy = _getHierarchy (aClass);
+    return () -> new ClassArrayIterator (aHierarchy).withMapper (WeakReference::new);
   }
 }
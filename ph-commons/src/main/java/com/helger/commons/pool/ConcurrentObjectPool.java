@@ -0,0 +1,771 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.pool;
+
+import java.time.Duration;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.functional.ISupplier;
+import com.helger.commons.state.ESuccess;
+import com.helger.commons.statistics.IMutableStatisticsHandlerCounter;
+import com.helger.commons.statistics.IMutableStatisticsHandlerTimer;
+import com.helger.commons.statistics.StatisticsManager;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A high throughput object pool as an alternative to {@link ObjectPool}:
+ * <ul>
+ * <li>Each thread remembers the last object it used. If that object is idle,
+ * it is borrowed again with a single compare-and-set, without touching any
+ * shared state.</li>
+ * <li>Otherwise the list of all pooled objects is scanned, and an idle object
+ * is claimed with a compare-and-set. No lock is involved in borrowing or
+ * returning, as long as an object is available.</li>
+ * <li>New objects are created on demand up to the maximum size. Only if all
+ * objects are in use, borrowing threads wait, optionally with a timeout.</li>
+ * <li>Objects idle for longer than the configured idle timeout are destroyed,
+ * as long as the pool contains more than the minimum number of objects.</li>
+ * <li>Objects can be validated upon return. Invalid objects are destroyed
+ * instead of being reused.</li>
+ * </ul>
+ * If a name is provided, the wait time is recorded in the timer statistics
+ * <code>pool:<i>name</i>$wait</code> and the creation of new objects in the
+ * counter <code>pool:<i>name</i>$create</code>.<br>
+ * Instances are created via the {@link Builder}.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ * @param <DATATYPE>
+ *        The type of the objects contained in the pool.
+ */
+@ThreadSafe
+public final class ConcurrentObjectPool <DATATYPE> implements IMutableObjectPool <DATATYPE>
+{
+  /** The prefix to be used for statistics elements */
+  public static final String STATISTICS_PREFIX = "pool:";
+  /** Default minimum number of objects kept in the pool */
+  public static final int DEFAULT_MIN_SIZE = 0;
+  /** Default idle timeout */
+  public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes (5);
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (ConcurrentObjectPool.class);
+
+  private static final int STATE_IDLE = 0;
+  private static final int STATE_IN_USE = 1;
+  private static final int STATE_REMOVED = 2;
+
+  private static final class Entry <T> extends AtomicInteger
+  {
+    private final T m_aObject;
+    private volatile long m_nLastReturnedNanos;
+
+    Entry (@Nonnull final T aObject)
+    {
+      super (STATE_IN_USE);
+      m_aObject = aObject;
+      m_nLastReturnedNanos = System.nanoTime ();
+    }
+
+    boolean tryBorrow ()
+    {
+      return get () == STATE_IDLE && compareAndSet (STATE_IDLE, STATE_IN_USE);
+    }
+  }
+
+  private final ISupplier <? extends DATATYPE> m_aFactory;
+  private final int m_nMinSize;
+  private final int m_nMaxSize;
+  private final long m_nIdleTimeoutNanos;
+  private final long m_nBorrowTimeoutNanos;
+  private final Predicate <? super DATATYPE> m_aValidator;
+  private final Consumer <? super DATATYPE> m_aDestroyer;
+  private final String m_sName;
+
+  // All pooled objects - only modified upon creation and destruction
+  private final CopyOnWriteArrayList <Entry <DATATYPE>> m_aEntries = new CopyOnWriteArrayList <> ();
+  private final ThreadLocal <Entry <DATATYPE>> m_aLastUsed = new ThreadLocal <> ();
+  private final AtomicInteger m_aTotal = new AtomicInteger ();
+  private final AtomicInteger m_aInUse = new AtomicInteger ();
+  private final AtomicLong m_aLastIdleCheck = new AtomicLong (System.nanoTime ());
+
+  // Only used when all objects are in use
+  private final ReentrantLock m_aWaitLock = new ReentrantLock ();
+  private final Condition m_aWaitCondition = m_aWaitLock.newCondition ();
+  private final AtomicInteger m_aWaiters = new AtomicInteger ();
+
+  // Metrics
+  private final LongAdder m_aBorrowCount = new LongAdder ();
+  private final LongAdder m_aWaitCount = new LongAdder ();
+  private final LongAdder m_aWaitNanos = new LongAdder ();
+  private final LongAdder m_aTimeoutCount = new LongAdder ();
+  private final LongAdder m_aCreatedCount = new LongAdder ();
+  private final LongAdder m_aDestroyedCount = new LongAdder ();
+  private final IMutableStatisticsHandlerTimer m_aStatsWait;
+  private final IMutableStatisticsHandlerCounter m_aStatsCreate;
+
+  ConcurrentObjectPool (@Nonnull final ISupplier <? extends DATATYPE> aFactory,
+                        @Nonnegative final int nMinSize,
+                        @Nonnegative final int nMaxSize,
+                        @Nonnull final Duration aIdleTimeout,
+                        @Nullable final Duration aBorrowTimeout,
+                        @Nullable final Predicate <? super DATATYPE> aValidator,
+                        @Nullable final Consumer <? super DATATYPE> aDestroyer,
+                        @Nullable final String sName)
+  {
+    ValueEnforcer.notNull (aFactory, "Factory");
+    ValueEnforcer.isGE0 (nMinSize, "MinSize");
+    ValueEnforcer.isGT0 (nMaxSize, "MaxSize");
+    ValueEnforcer.isTrue (nMinSize <= nMaxSize, "MinSize must be <= MaxSize");
+    ValueEnforcer.notNull (aIdleTimeout, "IdleTimeout");
+
+    m_aFactory = aFactory;
+    m_nMinSize = nMinSize;
+    m_nMaxSize = nMaxSize;
+    m_nIdleTimeoutNanos = aIdleTimeout.toNanos ();
+    m_nBorrowTimeoutNanos = aBorrowTimeout == null ? -1 : aBorrowTimeout.toNanos ();
+    m_aValidator = aValidator;
+    m_aDestroyer = aDestroyer;
+    m_sName = sName;
+    if (sName != null)
+    {
+      m_aStatsWait = StatisticsManager.getTimerHandler (STATISTICS_PREFIX + sName + "$wait");
+      m_aStatsCreate = StatisticsManager.getCounterHandler (STATISTICS_PREFIX + sName + "$create");
+    }
+    else
+    {
+      m_aStatsWait = null;
+      m_aStatsCreate = null;
+    }
+  }
+
+  /**
+   * @return The minimum number of objects that are never destroyed because of
+   *         idleness.
+   */
+  @Nonnegative
+  public int getMinSize ()
+  {
+    return m_nMinSize;
+  }
+
+  /**
+   * @return The maximum number of objects in the pool. Always &gt; 0.
+   */
+  @Nonnegative
+  public int getMaxSize ()
+  {
+    return m_nMaxSize;
+  }
+
+  @Nullable
+  public String getName ()
+  {
+    return m_sName;
+  }
+
+  @Nonnull
+  private Entry <DATATYPE> _borrowed (@Nonnull final Entry <DATATYPE> aEntry)
+  {
+    m_aInUse.incrementAndGet ();
+    m_aBorrowCount.increment ();
+    m_aLastUsed.set (aEntry);
+    return aEntry;
+  }
+
+  @Nullable
+  private Entry <DATATYPE> _tryBorrowExisting ()
+  {
+    // Fast path: the object used last by this thread
+    final Entry <DATATYPE> aLast = m_aLastUsed.get ();
+    if (aLast != null && aLast.tryBorrow ())
+      return _borrowed (aLast);
+
+    // Scan all objects - newest first, as they are more likely to be warm
+    final Object [] aAll = m_aEntries.toArray ();
+    for (int i = aAll.length - 1; i >= 0; --i)
+    {
+      @SuppressWarnings ("unchecked")
+      final Entry <DATATYPE> aEntry = (Entry <DATATYPE>) aAll[i];
+      if (aEntry.tryBorrow ())
+        return _borrowed (aEntry);
+    }
+    return null;
+  }
+
+  /**
+   * Reserve the creation of a new object.
+   *
+   * @return <code>true</code> if the maximum size was not yet reached and
+   *         {@link #_create()} must be called, <code>false</code> if not.
+   */
+  private boolean _tryReserveCreation ()
+  {
+    int nTotal;
+    do
+    {
+      nTotal = m_aTotal.get ();
+      if (nTotal >= m_nMaxSize)
+        return false;
+    } while (!m_aTotal.compareAndSet (nTotal, nTotal + 1));
+    return true;
+  }
+
+  /**
+   * Create a new object after {@link #_tryReserveCreation()} succeeded. Must
+   * not be called while holding the wait lock, as the factory may be slow.
+   *
+   * @return The borrowed new entry. Never <code>null</code>.
+   */
+  @Nonnull
+  private Entry <DATATYPE> _create ()
+  {
+    final DATATYPE aObject;
+    try
+    {
+      aObject = m_aFactory.get ();
+      if (aObject == null)
+        throw new IllegalStateException ("The factory returned a null object!");
+    }
+    catch (final RuntimeException ex)
+    {
+      m_aTotal.decrementAndGet ();
+      _signalWaiters ();
+      throw ex;
+    }
+    final Entry <DATATYPE> aEntry = new Entry <> (aObject);
+    m_aEntries.add (aEntry);
+    m_aCreatedCount.increment ();
+    if (m_aStatsCreate != null)
+      m_aStatsCreate.increment ();
+    return _borrowed (aEntry);
+  }
+
+  private void _signalWaiters ()
+  {
+    if (m_aWaiters.get () > 0)
+    {
+      m_aWaitLock.lock ();
+      try
+      {
+        m_aWaitCondition.signal ();
+      }
+      finally
+      {
+        m_aWaitLock.unlock ();
+      }
+    }
+  }
+
+  private void _destroy (@Nonnull final Entry <DATATYPE> aEntry)
+  {
+    m_aTotal.decrementAndGet ();
+    _destroyObject (aEntry);
+  }
+
+  /**
+   * Destroy the object of the passed entry, after the total count was already
+   * decremented.
+   */
+  private void _destroyObject (@Nonnull final Entry <DATATYPE> aEntry)
+  {
+    m_aEntries.remove (aEntry);
+    m_aDestroyedCount.increment ();
+    if (m_aDestroyer != null)
+      try
+      {
+        m_aDestroyer.accept (aEntry.m_aObject);
+      }
+      catch (final RuntimeException ex)
+      {
+        if (!ObjectPool.isSilentMode ())
+          LOGGER.warn ("Failed to destroy pooled object " + aEntry.m_aObject, ex);
+      }
+  }
+
+  /**
+   * Borrow an object from the pool. This method waits for the borrow timeout
+   * configured in the builder (or forever if none is configured) for an object
+   * to become available.
+   *
+   * @return The borrowed object or <code>null</code> if the timeout elapsed or
+   *         the thread was interrupted.
+   */
+  @Nullable
+  public DATATYPE borrowObject ()
+  {
+    return _borrowObject (m_nBorrowTimeoutNanos);
+  }
+
+  /**
+   * Borrow an object from the pool, waiting at last the passed duration for an
+   * object to become available.
+   *
+   * @param aTimeout
+   *        The maximum duration to wait. May not be <code>null</code>.
+   * @return The borrowed object or <code>null</code> if the timeout elapsed or
+   *         the thread was interrupted.
+   */
+  @Nullable
+  public DATATYPE borrowObject (@Nonnull final Duration aTimeout)
+  {
+    ValueEnforcer.notNull (aTimeout, "Timeout");
+    return _borrowObject (Math.max (0, aTimeout.toNanos ()));
+  }
+
+  @Nullable
+  private DATATYPE _borrowObject (final long nTimeoutNanos)
+  {
+    Entry <DATATYPE> aEntry = _tryBorrowExisting ();
+    if (aEntry == null && _tryReserveCreation ())
+      aEntry = _create ();
+    if (aEntry != null)
+      return aEntry.m_aObject;
+
+    // Slow path: all objects are in use
+    final long nStart = System.nanoTime ();
+    m_aWaitCount.increment ();
+    m_aWaiters.incrementAndGet ();
+    boolean bCreate = false;
+    m_aWaitLock.lock ();
+    try
+    {
+      long nRemaining = nTimeoutNanos;
+      while (true)
+      {
+        aEntry = _tryBorrowExisting ();
+        if (aEntry != null)
+          break;
+        if (_tryReserveCreation ())
+        {
+          // Create after the lock was released
+          bCreate = true;
+          break;
+        }
+
+        if (nTimeoutNanos < 0)
+          m_aWaitCondition.await ();
+        else
+        {
+          if (nRemaining <= 0)
+          {
+            m_aTimeoutCount.increment ();
+            return null;
+          }
+          nRemaining = m_aWaitCondition.awaitNanos (nRemaining);
+        }
+      }
+    }
+    catch (final InterruptedException ex)
+    {
+      // In case of acquisition interruption -> return null
+      if (!ObjectPool.isSilentMode ())
+        LOGGER.error ("ConcurrentObjectPool interrupted", ex);
+      Thread.currentThread ().interrupt ();
+      return null;
+    }
+    finally
+    {
+      m_aWaitLock.unlock ();
+      m_aWaiters.decrementAndGet ();
+      final long nWaitNanos = System.nanoTime () - nStart;
+      m_aWaitNanos.add (nWaitNanos);
+      if (m_aStatsWait != null)
+        m_aStatsWait.addTime (TimeUnit.NANOSECONDS.toMillis (nWaitNanos));
+    }
+    if (bCreate)
+      aEntry = _create ();
+    return aEntry.m_aObject;
+  }
+
+  @Nullable
+  private Entry <DATATYPE> _findInUse (@Nonnull final DATATYPE aItem)
+  {
+    final Entry <DATATYPE> aLast = m_aLastUsed.get ();
+    if (aLast != null && aLast.m_aObject == aItem && aLast.get () == STATE_IN_USE)
+      return aLast;
+    for (final Entry <DATATYPE> aEntry : m_aEntries)
+      if (aEntry.m_aObject == aItem && aEntry.get () == STATE_IN_USE)
+        return aEntry;
+    return null;
+  }
+
+  @Nonnull
+  public ESuccess returnObject (@Nonnull final DATATYPE aItem)
+  {
+    final Entry <DATATYPE> aEntry = _findInUse (aItem);
+    if (aEntry == null)
+    {
+      if (!ObjectPool.isSilentMode ())
+        LOGGER.warn ("Object " + aItem + " is not pooled!");
+      return ESuccess.FAILURE;
+    }
+
+    boolean bValid = true;
+    if (m_aValidator != null)
+      try
+      {
+        bValid = m_aValidator.test (aItem);
+      }
+      catch (final RuntimeException ex)
+      {
+        bValid = false;
+      }
+
+    if (bValid)
+    {
+      aEntry.m_nLastReturnedNanos = System.nanoTime ();
+      if (!aEntry.compareAndSet (STATE_IN_USE, STATE_IDLE))
+        return ESuccess.FAILURE;
+      m_aInUse.decrementAndGet ();
+    }
+    else
+    {
+      if (!aEntry.compareAndSet (STATE_IN_USE, STATE_REMOVED))
+        return ESuccess.FAILURE;
+      m_aInUse.decrementAndGet ();
+      _destroy (aEntry);
+    }
+    _signalWaiters ();
+    _checkIdle ();
+    return ESuccess.SUCCESS;
+  }
+
+  private void _checkIdle ()
+  {
+    final long nNow = System.nanoTime ();
+    final long nLast = m_aLastIdleCheck.get ();
+    if (nNow - nLast >= m_nIdleTimeoutNanos / 2 && m_aLastIdleCheck.compareAndSet (nLast, nNow))
+      evictIdleObjects ();
+  }
+
+  /**
+   * Destroy all objects that were idle for longer than the configured idle
+   * timeout, as long as more than the minimum number of objects remain. This
+   * is called automatically upon return from time to time.
+   *
+   * @return The number of destroyed objects. Always &ge; 0.
+   */
+  @Nonnegative
+  public int evictIdleObjects ()
+  {
+    final long nNow = System.nanoTime ();
+    int ret = 0;
+    for (final Entry <DATATYPE> aEntry : m_aEntries)
+      if (aEntry.get () == STATE_IDLE &&
+          nNow - aEntry.m_nLastReturnedNanos >= m_nIdleTimeoutNanos &&
+          aEntry.compareAndSet (STATE_IDLE, STATE_REMOVED))
+      {
+        if (!_tryReserveRemoval ())
+        {
+          // The minimum size is reached - keep the object
+          aEntry.set (STATE_IDLE);
+          _signalWaiters ();
+          break;
+        }
+        _destroyObject (aEntry);
+        ret++;
+      }
+    return ret;
+  }
+
+  /**
+   * Reserve the removal of an object by decrementing the total count, unless
+   * this would go below the minimum size. This ensures that concurrent
+   * evictions never destroy more objects than allowed.
+   *
+   * @return <code>true</code> if the removal was reserved, <code>false</code>
+   *         if the minimum size is reached.
+   */
+  private boolean _tryReserveRemoval ()
+  {
+    int nTotal;
+    do
+    {
+      nTotal = m_aTotal.get ();
+      if (nTotal <= m_nMinSize)
+        return false;
+    } while (!m_aTotal.compareAndSet (nTotal, nTotal - 1));
+    return true;
+  }
+
+  /**
+   * Destroy all objects that are currently not in use.
+   */
+  public void clearUnusedItems ()
+  {
+    for (final Entry <DATATYPE> aEntry : m_aEntries)
+      if (aEntry.compareAndSet (STATE_IDLE, STATE_REMOVED))
+        _destroy (aEntry);
+  }
+
+  /**
+   * @return The number of objects currently contained in the pool, both idle
+   *         and in use.
+   */
+  @Nonnegative
+  public int getTotalCount ()
+  {
+    return m_aTotal.get ();
+  }
+
+  /**
+   * @return The number of objects currently borrowed.
+   */
+  @Nonnegative
+  public int getInUseCount ()
+  {
+    return m_aInUse.get ();
+  }
+
+  /**
+   * @return The number of idle objects.
+   */
+  @Nonnegative
+  public int getIdleCount ()
+  {
+    return Math.max (0, m_aTotal.get () - m_aInUse.get ());
+  }
+
+  /**
+   * @return The utilisation of the pool in the range 0 to 1, as the ratio of
+   *         borrowed objects to the maximum size.
+   */
+  public double getUtilisation ()
+  {
+    return (double) m_aInUse.get () / m_nMaxSize;
+  }
+
+  /**
+   * @return The number of threads currently waiting for an object.
+   */
+  @Nonnegative
+  public int getWaitingThreadCount ()
+  {
+    return m_aWaiters.get ();
+  }
+
+  @Nonnegative
+  public long getBorrowCount ()
+  {
+    return m_aBorrowCount.sum ();
+  }
+
+  /**
+   * @return The number of borrow attempts that had to wait, because all
+   *         objects were in use.
+   */
+  @Nonnegative
+  public long getWaitCount ()
+  {
+    return m_aWaitCount.sum ();
+  }
+
+  /**
+   * @return The total nanoseconds borrowing threads were waiting.
+   */
+  @Nonnegative
+  public long getTotalWaitNanos ()
+  {
+    return m_aWaitNanos.sum ();
+  }
+
+  /**
+   * @return The average wait time in nanoseconds of all borrow attempts that
+   *         had to wait, or -1 if none had to wait.
+   */
+  @CheckForSigned
+  public long getAverageWaitNanos ()
+  {
+    final long nCount = m_aWaitCount.sum ();
+    return nCount == 0 ? -1 : m_aWaitNanos.sum () / nCount;
+  }
+
+  @Nonnegative
+  public long getTimeoutCount ()
+  {
+    return m_aTimeoutCount.sum ();
+  }
+
+  @Nonnegative
+  public long getCreatedCount ()
+  {
+    return m_aCreatedCount.sum ();
+  }
+
+  @Nonnegative
+  public long getDestroyedCount ()
+  {
+    return m_aDestroyedCount.sum ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Name", m_sName)
+                                       .append ("MinSize", m_nMinSize)
+                                       .append ("MaxSize", m_nMaxSize)
+                                       .append ("IdleTimeoutNanos", m_nIdleTimeoutNanos)
+                                       .append ("BorrowTimeoutNanos", m_nBorrowTimeoutNanos)
+                                       .append ("Total", m_aTotal.get ())
+                                       .append ("InUse", m_aInUse.get ())
+                                       .getToString ();
+  }
+
+  /**
+   * A builder for {@link ConcurrentObjectPool} instances.
+   *
+   * @author Philip Helger
+   * @param <DATATYPE>
+   *        The type of the objects contained in the pool.
+   */
+  public static class Builder <DATATYPE>
+  {
+    private ISupplier <? extends DATATYPE> m_aFactory;
+    private int m_nMinSize = DEFAULT_MIN_SIZE;
+    private int m_nMaxSize;
+    private Duration m_aIdleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private Duration m_aBorrowTimeout;
+    private Predicate <? super DATATYPE> m_aValidator;
+    private Consumer <? super DATATYPE> m_aDestroyer;
+    private String m_sName;
+
+    public Builder ()
+    {}
+
+    /**
+     * @param aFactory
+     *        The factory to create objects. May not be <code>null</code>. The
+     *        factory may not create <code>null</code> objects.
+     * @return this for chaining
+     */
+    @Nonnull
+    public final Builder <DATATYPE> setFactory (@Nonnull final ISupplier <? extends DATATYPE> aFactory)
+    {
+      ValueEnforcer.notNull (aFactory, "Factory");
+      m_aFactory = aFactory;
+      return this;
+    }
+
+    @Nonnull
+    public final Builder <DATATYPE> setMinSize (@Nonnegative final int nMinSize)
+    {
+      ValueEnforcer.isGE0 (nMinSize, "MinSize");
+      m_nMinSize = nMinSize;
+      return this;
+    }
+
+    @Nonnull
+    public final Builder <DATATYPE> setMaxSize (@Nonnegative final int nMaxSize)
+    {
+      ValueEnforcer.isGT0 (nMaxSize, "MaxSize");
+      m_nMaxSize = nMaxSize;
+      return this;
+    }
+
+    @Nonnull
+    public final Builder <DATATYPE> setIdleTimeout (@Nonnull final Duration aIdleTimeout)
+    {
+      ValueEnforcer.notNull (aIdleTimeout, "IdleTimeout");
+      m_aIdleTimeout = aIdleTimeout;
+      return this;
+    }
+
+    /**
+     * @param aBorrowTimeout
+     *        The maximum time to wait in {@link ConcurrentObjectPool#borrowObject()}.
+     *        May be <code>null</code> to wait forever.
+     * @return this for chaining
+     */
+    @Nonnull
+    public final Builder <DATATYPE> setBorrowTimeout (@Nullable final Duration aBorrowTimeout)
+    {
+      m_aBorrowTimeout = aBorrowTimeout;
+      return this;
+    }
+
+    /**
+     * @param aValidator
+     *        Called for every returned object. If it returns
+     *        <code>false</code> the object is destroyed instead of being
+     *        reused. May be <code>null</code>.
+     * @return this for chaining
+     */
+    @Nonnull
+    public final Builder <DATATYPE> setValidator (@Nullable final Predicate <? super DATATYPE> aValidator)
+    {
+      m_aValidator = aValidator;
+      return this;
+    }
+
+    /**
+     * @param aDestroyer
+     *        Called for every object removed from the pool. May be
+     *        <code>null</code>.
+     * @return this for chaining
+     */
+    @Nonnull
+    public final Builder <DATATYPE> setDestroyer (@Nullable final Consumer <? super DATATYPE> aDestroyer)
+    {
+      m_aDestroyer = aDestroyer;
+      return this;
+    }
+
+    /**
+     * @param sName
+     *        The name used for statistics. May be <code>null</code> to not
+     *        record statistics.
+     * @return this for chaining
+     */
+    @Nonnull
+    public final Builder <DATATYPE> setName (@Nullable final String sName)
+    {
+      m_sName = sName;
+      return this;
+    }
+
+    @Nonnull
+    public ConcurrentObjectPool <DATATYPE> build ()
+    {
+      return new ConcurrentObjectPool <> (m_aFactory,
+                                          m_nMinSize,
+                                          m_nMaxSize,
+                                          m_aIdleTimeout,
+                                          m_aBorrowTimeout,
+                                          m_aValidator,
+                                          m_aDestroyer,
+                                          m_sName);
+    }
+  }
+}
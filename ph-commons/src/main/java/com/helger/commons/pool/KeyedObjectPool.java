@@ -0,0 +1,535 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.pool;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.state.ESuccess;
+import com.helger.commons.statistics.IMutableStatisticsHandlerTimer;
+import com.helger.commons.statistics.StatisticsManager;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * An object pool that keeps a separate {@link ConcurrentObjectPool} for each
+ * distinct key. This is meant for expensive objects that are configured once
+ * upon creation (like XML parsers) - the key is a fingerprint of the
+ * configuration, so that an object is only ever reused for the same
+ * configuration.
+ * <ul>
+ * <li>Each key has its own pool with the configured maximum size and idle
+ * timeout.</li>
+ * <li>The number of keys is limited. If the limit is reached, pools without
+ * any object are removed. If that does not help, objects for new keys are
+ * created without pooling.</li>
+ * <li>The number of borrow calls, the number of hits (borrowed objects that
+ * did not need to be created) and the time required to create objects are
+ * recorded. If a name is provided, the creation time is additionally
+ * recorded in the timer statistics
+ * <code>pool:<i>name</i>$creation</code>.</li>
+ * </ul>
+ * Instances are created via the {@link Builder}.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ * @param <KEYTYPE>
+ *        The key type. Must implement {@link Object#equals(Object)} and
+ *        {@link Object#hashCode()} and should be immutable.
+ * @param <DATATYPE>
+ *        The type of the objects contained in the pool.
+ */
+@ThreadSafe
+public final class KeyedObjectPool <KEYTYPE, DATATYPE>
+{
+  /** Default maximum number of objects per key */
+  public static final int DEFAULT_MAX_SIZE_PER_KEY = 5;
+  /** Default maximum number of keys */
+  public static final int DEFAULT_MAX_KEY_COUNT = 32;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (KeyedObjectPool.class);
+
+  private final Function <? super KEYTYPE, ? extends DATATYPE> m_aFactory;
+  private final int m_nMaxSizePerKey;
+  private final int m_nMaxKeyCount;
+  private final Duration m_aIdleTimeout;
+  private final Predicate <? super DATATYPE> m_aValidator;
+  private final Consumer <? super DATATYPE> m_aDestroyer;
+  private final String m_sName;
+
+  private final Map <KEYTYPE, ConcurrentObjectPool <DATATYPE>> m_aPools = new ConcurrentHashMap <> ();
+  private final AtomicLong m_aLastIdleCheck = new AtomicLong (System.nanoTime ());
+
+  // Metrics
+  private final LongAdder m_aBorrowCount = new LongAdder ();
+  private final LongAdder m_aCreatedCount = new LongAdder ();
+  private final LongAdder m_aCreationNanos = new LongAdder ();
+  private final LongAdder m_aUnpooledCount = new LongAdder ();
+  private final IMutableStatisticsHandlerTimer m_aStatsCreation;
+
+  KeyedObjectPool (@Nonnull final Function <? super KEYTYPE, ? extends DATATYPE> aFactory,
+                   @Nonnegative final int nMaxSizePerKey,
+                   @Nonnegative final int nMaxKeyCount,
+                   @Nonnull final Duration aIdleTimeout,
+                   @Nullable final Predicate <? super DATATYPE> aValidator,
+                   @Nullable final Consumer <? super DATATYPE> aDestroyer,
+                   @Nullable final String sName)
+  {
+    ValueEnforcer.notNull (aFactory, "Factory");
+    ValueEnforcer.isGT0 (nMaxSizePerKey, "MaxSizePerKey");
+    ValueEnforcer.isGT0 (nMaxKeyCount, "MaxKeyCount");
+    ValueEnforcer.notNull (aIdleTimeout, "IdleTimeout");
+
+    m_aFactory = aFactory;
+    m_nMaxSizePerKey = nMaxSizePerKey;
+    m_nMaxKeyCount = nMaxKeyCount;
+    m_aIdleTimeout = aIdleTimeout;
+    m_aValidator = aValidator;
+    m_aDestroyer = aDestroyer;
+    m_sName = sName;
+    m_aStatsCreation = sName == null ? null
+                                     : StatisticsManager.getTimerHandler (ConcurrentObjectPool.STATISTICS_PREFIX +
+                                                                          sName +
+                                                                          "$creation");
+  }
+
+  /**
+   * @return The maximum number of objects per key. Always &gt; 0.
+   */
+  @Nonnegative
+  public int getMaxSizePerKey ()
+  {
+    return m_nMaxSizePerKey;
+  }
+
+  /**
+   * @return The maximum number of keys for which objects are pooled. Always
+   *         &gt; 0.
+   */
+  @Nonnegative
+  public int getMaxKeyCount ()
+  {
+    return m_nMaxKeyCount;
+  }
+
+  /**
+   * @return The duration after which idle objects are destroyed. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public Duration getIdleTimeout ()
+  {
+    return m_aIdleTimeout;
+  }
+
+  @Nullable
+  public String getName ()
+  {
+    return m_sName;
+  }
+
+  @Nonnull
+  private DATATYPE _create (@Nonnull final KEYTYPE aKey)
+  {
+    final long nStart = System.nanoTime ();
+    final DATATYPE ret = m_aFactory.apply (aKey);
+    if (ret == null)
+      throw new IllegalStateException ("The factory returned a null object for key " + aKey + "!");
+    final long nDuration = System.nanoTime () - nStart;
+
+    m_aCreatedCount.increment ();
+    m_aCreationNanos.add (nDuration);
+    if (m_aStatsCreation != null)
+      m_aStatsCreation.addTime (TimeUnit.NANOSECONDS.toMillis (nDuration));
+    return ret;
+  }
+
+  @Nonnull
+  private ConcurrentObjectPool <DATATYPE> _createPool (@Nonnull final KEYTYPE aKey)
+  {
+    return new ConcurrentObjectPool.Builder <DATATYPE> ().setFactory ( () -> _create (aKey))
+                                                         .setMaxSize (m_nMaxSizePerKey)
+                                                         .setIdleTimeout (m_aIdleTimeout)
+                                                         .setValidator (m_aValidator)
+                                                         .setDestroyer (m_aDestroyer)
+                                                         .setName (m_sName)
+                                                         .build ();
+  }
+
+  @Nullable
+  private ConcurrentObjectPool <DATATYPE> _getOrCreatePool (@Nonnull final KEYTYPE aKey)
+  {
+    final ConcurrentObjectPool <DATATYPE> ret = m_aPools.get (aKey);
+    if (ret != null)
+      return ret;
+
+    if (m_aPools.size () >= m_nMaxKeyCount)
+    {
+      // Try to make room
+      evictIdleObjects ();
+      if (m_aPools.size () >= m_nMaxKeyCount)
+        return null;
+    }
+    return m_aPools.computeIfAbsent (aKey, this::_createPool);
+  }
+
+  /**
+   * Borrow an object for the passed key. If necessary, a new object is
+   * created. If all objects for the key are in use, this method waits until
+   * one is returned.
+   *
+   * @param aKey
+   *        The key to use. May not be <code>null</code>.
+   * @return The borrowed object or <code>null</code> if the thread was
+   *         interrupted.
+   */
+  @Nullable
+  public DATATYPE borrowObject (@Nonnull final KEYTYPE aKey)
+  {
+    ValueEnforcer.notNull (aKey, "Key");
+
+    m_aBorrowCount.increment ();
+    final ConcurrentObjectPool <DATATYPE> aPool = _getOrCreatePool (aKey);
+    if (aPool == null)
+    {
+      // Too many keys - don't pool
+      m_aUnpooledCount.increment ();
+      return _create (aKey);
+    }
+    return aPool.borrowObject ();
+  }
+
+  private void _destroy (@Nonnull final DATATYPE aItem)
+  {
+    if (m_aDestroyer != null)
+      try
+      {
+        m_aDestroyer.accept (aItem);
+      }
+      catch (final RuntimeException ex)
+      {
+        if (!ObjectPool.isSilentMode ())
+          LOGGER.warn ("Failed to destroy object " + aItem, ex);
+      }
+  }
+
+  /**
+   * Return an object previously borrowed for the passed key. Objects that
+   * were created without pooling are destroyed.
+   *
+   * @param aKey
+   *        The key used for borrowing. May not be <code>null</code>.
+   * @param aItem
+   *        The borrowed object. May not be <code>null</code>.
+   * @return {@link ESuccess#SUCCESS} if the object was returned to its pool,
+   *         {@link ESuccess#FAILURE} if it was not pooled.
+   */
+  @Nonnull
+  public ESuccess returnObject (@Nonnull final KEYTYPE aKey, @Nonnull final DATATYPE aItem)
+  {
+    ValueEnforcer.notNull (aKey, "Key");
+    ValueEnforcer.notNull (aItem, "Item");
+
+    final ConcurrentObjectPool <DATATYPE> aPool = m_aPools.get (aKey);
+    final ESuccess eSuccess = aPool == null ? ESuccess.FAILURE : aPool.returnObject (aItem);
+    if (eSuccess.isFailure ())
+      _destroy (aItem);
+
+    // Check for unused keys from time to time
+    final long nNow = System.nanoTime ();
+    final long nLast = m_aLastIdleCheck.get ();
+    if (nNow - nLast >= m_aIdleTimeout.toNanos () / 2 && m_aLastIdleCheck.compareAndSet (nLast, nNow))
+      evictIdleObjects ();
+    return eSuccess;
+  }
+
+  /**
+   * Destroy all objects that were idle for longer than the configured idle
+   * timeout and remove the pools of all keys without any object. This is
+   * called automatically upon return from time to time.
+   *
+   * @return The number of destroyed objects. Always &ge; 0.
+   */
+  @Nonnegative
+  public int evictIdleObjects ()
+  {
+    int ret = 0;
+    for (final Map.Entry <KEYTYPE, ConcurrentObjectPool <DATATYPE>> aEntry : m_aPools.entrySet ())
+    {
+      final ConcurrentObjectPool <DATATYPE> aPool = aEntry.getValue ();
+      ret += aPool.evictIdleObjects ();
+      if (aPool.getTotalCount () == 0)
+        m_aPools.remove (aEntry.getKey (), aPool);
+    }
+    return ret;
+  }
+
+  /**
+   * Destroy all objects that are currently not in use and remove the pools of
+   * all keys without any object.
+   */
+  public void clearUnusedItems ()
+  {
+    for (final Map.Entry <KEYTYPE, ConcurrentObjectPool <DATATYPE>> aEntry : m_aPools.entrySet ())
+    {
+      final ConcurrentObjectPool <DATATYPE> aPool = aEntry.getValue ();
+      aPool.clearUnusedItems ();
+      if (aPool.getTotalCount () == 0)
+        m_aPools.remove (aEntry.getKey (), aPool);
+    }
+  }
+
+  /**
+   * @return The number of keys for which a pool is present.
+   */
+  @Nonnegative
+  public int getKeyCount ()
+  {
+    return m_aPools.size ();
+  }
+
+  /**
+   * @return The number of pooled objects for all keys, both idle and in use.
+   */
+  @Nonnegative
+  public int getTotalCount ()
+  {
+    int ret = 0;
+    for (final ConcurrentObjectPool <DATATYPE> aPool : m_aPools.values ())
+      ret += aPool.getTotalCount ();
+    return ret;
+  }
+
+  /**
+   * @return The number of pooled objects currently borrowed for all keys.
+   */
+  @Nonnegative
+  public int getInUseCount ()
+  {
+    int ret = 0;
+    for (final ConcurrentObjectPool <DATATYPE> aPool : m_aPools.values ())
+      ret += aPool.getInUseCount ();
+    return ret;
+  }
+
+  @Nonnegative
+  public long getBorrowCount ()
+  {
+    return m_aBorrowCount.sum ();
+  }
+
+  /**
+   * @return The number of created objects, including the ones not pooled.
+   */
+  @Nonnegative
+  public long getCreatedCount ()
+  {
+    return m_aCreatedCount.sum ();
+  }
+
+  /**
+   * @return The number of objects created because the maximum number of keys
+   *         was reached.
+   */
+  @Nonnegative
+  public long getUnpooledCount ()
+  {
+    return m_aUnpooledCount.sum ();
+  }
+
+  /**
+   * @return The number of borrow calls that could reuse an existing object.
+   */
+  @Nonnegative
+  public long getHitCount ()
+  {
+    return Math.max (0, m_aBorrowCount.sum () - m_aCreatedCount.sum ());
+  }
+
+  /**
+   * @return The ratio of hits to borrow calls in the range 0 to 1. If nothing
+   *         was borrowed so far, 0 is returned.
+   */
+  public double getHitRate ()
+  {
+    final long nBorrowCount = m_aBorrowCount.sum ();
+    return nBorrowCount == 0 ? 0 : (double) getHitCount () / nBorrowCount;
+  }
+
+  /**
+   * @return The total nanoseconds spent creating objects.
+   */
+  @Nonnegative
+  public long getTotalCreationNanos ()
+  {
+    return m_aCreationNanos.sum ();
+  }
+
+  /**
+   * @return The average nanoseconds needed to create a single object, or -1
+   *         if no object was created so far.
+   */
+  @CheckForSigned
+  public long getAverageCreationNanos ()
+  {
+    final long nCount = m_aCreatedCount.sum ();
+    return nCount == 0 ? -1 : m_aCreationNanos.sum () / nCount;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Name", m_sName)
+                                       .append ("MaxSizePerKey", m_nMaxSizePerKey)
+                                       .append ("MaxKeyCount", m_nMaxKeyCount)
+                                       .append ("IdleTimeout", m_aIdleTimeout)
+                                       .append ("KeyCount", m_aPools.size ())
+                                       .append ("BorrowCount", m_aBorrowCount.sum ())
+                                       .append ("CreatedCount", m_aCreatedCount.sum ())
+                                       .getToString ();
+  }
+
+  /**
+   * A builder for {@link KeyedObjectPool} instances.
+   *
+   * @author Philip Helger
+   * @param <KEYTYPE>
+   *        The key type.
+   * @param <DATATYPE>
+   *        The type of the objects contained in the pool.
+   */
+  public static class Builder <KEYTYPE, DATATYPE>
+  {
+    private Function <? super KEYTYPE, ? extends DATATYPE> m_aFactory;
+    private int m_nMaxSizePerKey = DEFAULT_MAX_SIZE_PER_KEY;
+    private int m_nMaxKeyCount = DEFAULT_MAX_KEY_COUNT;
+    private Duration m_aIdleTimeout = ConcurrentObjectPool.DEFAULT_IDLE_TIMEOUT;
+    private Predicate <? super DATATYPE> m_aValidator;
+    private Consumer <? super DATATYPE> m_aDestroyer;
+    private String m_sName;
+
+    public Builder ()
+    {}
+
+    /**
+     * @param aFactory
+     *        The factory to create an object for a key. May not be
+     *        <code>null</code>. The factory may not create <code>null</code>
+     *        objects.
+     * @return this for chaining
+     */
+    @Nonnull
+    public final Builder <KEYTYPE, DATATYPE> setFactory (@Nonnull final Function <? super KEYTYPE, ? extends DATATYPE> aFactory)
+    {
+      ValueEnforcer.notNull (aFactory, "Factory");
+      m_aFactory = aFactory;
+      return this;
+    }
+
+    @Nonnull
+    public final Builder <KEYTYPE, DATATYPE> setMaxSizePerKey (@Nonnegative final int nMaxSizePerKey)
+    {
+      ValueEnforcer.isGT0 (nMaxSizePerKey, "MaxSizePerKey");
+      m_nMaxSizePerKey = nMaxSizePerKey;
+      return this;
+    }
+
+    @Nonnull
+    public final Builder <KEYTYPE, DATATYPE> setMaxKeyCount (@Nonnegative final int nMaxKeyCount)
+    {
+      ValueEnforcer.isGT0 (nMaxKeyCount, "MaxKeyCount");
+      m_nMaxKeyCount = nMaxKeyCount;
+      return this;
+    }
+
+    @Nonnull
+    public final Builder <KEYTYPE, DATATYPE> setIdleTimeout (@Nonnull final Duration aIdleTimeout)
+    {
+      ValueEnforcer.notNull (aIdleTimeout, "IdleTimeout");
+      m_aIdleTimeout = aIdleTimeout;
+      return this;
+    }
+
+    /**
+     * @param aValidator
+     *        Called for every returned object. If it returns
+     *        <code>false</code> the object is destroyed instead of being
+     *        reused. May be <code>null</code>.
+     * @return this for chaining
+     */
+    @Nonnull
+    public final Builder <KEYTYPE, DATATYPE> setValidator (@Nullable final Predicate <? super DATATYPE> aValidator)
+    {
+      m_aValidator = aValidator;
+      return this;
+    }
+
+    /**
+     * @param aDestroyer
+     *        Called for every object removed from the pool. May be
+     *        <code>null</code>.
+     * @return this for chaining
+     */
+    @Nonnull
+    public final Builder <KEYTYPE, DATATYPE> setDestroyer (@Nullable final Consumer <? super DATATYPE> aDestroyer)
+    {
+      m_aDestroyer = aDestroyer;
+      return this;
+    }
+
+    /**
+     * @param sName
+     *        The name used for statistics. May be <code>null</code> to not
+     *        record statistics.
+     * @return this for chaining
+     */
+    @Nonnull
+    public final Builder <KEYTYPE, DATATYPE> setName (@Nullable final String sName)
+    {
+      m_sName = sName;
+      return this;
+    }
+
+    @Nonnull
+    public KeyedObjectPool <KEYTYPE, DATATYPE> build ()
+    {
+      return new KeyedObjectPool <> (m_aFactory,
+                                     m_nMaxSizePerKey,
+                                     m_nMaxKeyCount,
+                                     m_aIdleTimeout,
+                                     m_aValidator,
+                                     m_aDestroyer,
+                                     m_sName);
+    }
+  }
+}
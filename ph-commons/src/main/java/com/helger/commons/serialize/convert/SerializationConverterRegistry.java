@@ -17,7 +17,6 @@
 package com.helger.commons.serialize.convert;
 
 import java.io.Serializable;
-import java.lang.ref.WeakReference;
 import java.util.Map;
 
 import javax.annotation.Nonnegative;
@@ -98,16 +97,14 @@ public final class SerializationConverterRegistry implements ISerializationConve
         throw new IllegalArgumentException ("A micro type converter for class " + aClass + " is already registered!");
 
       // Automatically register the class, and all parent classes/interfaces
-      for (final WeakReference <Class <?>> aCurWRSrcClass : ClassHierarchyCache.getClassHierarchyIterator (aClass))
+      for (final Class <?> aCurSrcClass : ClassHierarchyCache.getClassHierarchyIterable (aClass))
       {
-        final Class <?> aCurSrcClass = aCurWRSrcClass.get ();
-        if (aCurSrcClass != null)
-          if (!m_aMap.containsKey (aCurSrcClass))
-          {
-            m_aMap.put (aCurSrcClass, aConverter);
-            if (LOGGER.isDebugEnabled ())
-              LOGGER.debug ("Registered serialization converter for '" + aCurSrcClass.toString () + "'");
-          }
+        if (!m_aMap.containsKey (aCurSrcClass))
+        {
+          m_aMap.put (aCurSrcClass, aConverter);
+          if (LOGGER.isDebugEnabled ())
+            LOGGER.debug ("Registered serialization converter for '" + aCurSrcClass.toString () + "'");
+        }
       }
     });
   }
@@ -121,23 +118,19 @@ public final class SerializationConverterRegistry implements ISerializationConve
       if (ret == null)
       {
         // No exact match found - try fuzzy
-        for (final WeakReference <Class <?>> aCurWRDstClass : ClassHierarchyCache.getClassHierarchyIterator (aDstClass))
+        for (final Class <?> aCurDstClass : ClassHierarchyCache.getClassHierarchyIterable (aDstClass))
         {
-          final Class <?> aCurDstClass = aCurWRDstClass.get ();
-          if (aCurDstClass != null)
+          ret = m_aMap.get (aCurDstClass);
+          if (ret != null)
           {
-            ret = m_aMap.get (aCurDstClass);
-            if (ret != null)
-            {
-              if (LOGGER.isDebugEnabled ())
-                LOGGER.debug ("Using serialization converter " +
-                              ret +
-                              " for class " +
-                              aDstClass +
-                              " based on " +
-                              aCurDstClass);
-              break;
-            }
+            if (LOGGER.isDebugEnabled ())
+              LOGGER.debug ("Using serialization converter " +
+                            ret +
+                            " for class " +
+                            aDstClass +
+                            " based on " +
+                            aCurDstClass);
+            break;
           }
         }
       }
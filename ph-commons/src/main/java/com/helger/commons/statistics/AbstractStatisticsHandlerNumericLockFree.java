@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.CGlobal;
+
+/**
+ * Abstract base class for numeric statistic handler that never lock and never
+ * allocate when adding a value. In contrast to
+ * {@link AbstractStatisticsHandlerNumeric} the sum is kept as a
+ * <code>long</code> so it may overflow after adding values beyond
+ * {@link Long#MAX_VALUE} in total. Minimum, maximum, sum and invocation count
+ * are not updated atomically together, so a concurrent reader may see a state
+ * in between.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@ThreadSafe
+public abstract class AbstractStatisticsHandlerNumericLockFree implements IStatisticsHandlerPercentile
+{
+  private final LongAdder m_aInvocationCount = new LongAdder ();
+  private final LongAdder m_aSum = new LongAdder ();
+  private final AtomicLong m_aMin = new AtomicLong (Long.MAX_VALUE);
+  private final AtomicLong m_aMax = new AtomicLong (Long.MIN_VALUE);
+  private final LogBucketHistogram m_aHistogram = new LogBucketHistogram ();
+  private final WindowedLogBucketHistogram m_aWindowedHistogram = new WindowedLogBucketHistogram ();
+
+  @Nonnegative
+  public final int getInvocationCount ()
+  {
+    return m_aInvocationCount.intValue ();
+  }
+
+  protected final void addValue (final long nValue)
+  {
+    m_aInvocationCount.increment ();
+    m_aSum.add (nValue);
+    // Only write on a new extreme value to avoid contention
+    long nCur = m_aMin.get ();
+    while (nValue < nCur && !m_aMin.compareAndSet (nCur, nValue))
+      nCur = m_aMin.get ();
+    nCur = m_aMax.get ();
+    while (nValue > nCur && !m_aMax.compareAndSet (nCur, nValue))
+      nCur = m_aMax.get ();
+    m_aHistogram.recordValue (nValue);
+    m_aWindowedHistogram.recordValue (nValue);
+  }
+
+  @Nonnull
+  public final BigInteger getSum ()
+  {
+    return BigInteger.valueOf (m_aSum.sum ());
+  }
+
+  @CheckForSigned
+  public final long getMin ()
+  {
+    final long ret = m_aMin.get ();
+    return ret == Long.MAX_VALUE && m_aInvocationCount.sum () == 0 ? CGlobal.ILLEGAL_ULONG : ret;
+  }
+
+  @CheckForSigned
+  public final long getAverage ()
+  {
+    final long nCount = m_aInvocationCount.sum ();
+    if (nCount == 0)
+      return CGlobal.ILLEGAL_ULONG;
+    return m_aSum.sum () / nCount;
+  }
+
+  @CheckForSigned
+  public final long getMax ()
+  {
+    final long ret = m_aMax.get ();
+    return ret == Long.MIN_VALUE && m_aInvocationCount.sum () == 0 ? CGlobal.ILLEGAL_ULONG : ret;
+  }
+
+  @CheckForSigned
+  public final long getValueAtPercentile (final double dPercentile)
+  {
+    return m_aHistogram.getValueAtPercentile (dPercentile);
+  }
+
+  @CheckForSigned
+  public final long getWindowedValueAtPercentile (final double dPercentile)
+  {
+    return m_aWindowedHistogram.getSnapshot ().getValueAtPercentile (dPercentile);
+  }
+
+  @Nonnull
+  public final Duration getWindowDuration ()
+  {
+    return m_aWindowedHistogram.getWindowDuration ();
+  }
+}
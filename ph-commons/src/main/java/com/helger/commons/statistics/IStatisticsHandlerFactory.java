@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Factory for new statistics handlers used by {@link StatisticsManager}.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ * @see StatisticsManager#setHandlerFactory(IStatisticsHandlerFactory)
+ */
+public interface IStatisticsHandlerFactory
+{
+  /**
+   * The default factory, creating the classic lock based handlers.
+   */
+  IStatisticsHandlerFactory DEFAULT = new IStatisticsHandlerFactory ()
+  {};
+
+  /**
+   * A factory creating lock-free handlers for cache, counter, size and timer.
+   * Size and timer handlers additionally provide percentiles via
+   * {@link IStatisticsHandlerPercentile}. Keyed handlers are the same as in
+   * {@link #DEFAULT}.
+   */
+  IStatisticsHandlerFactory LOCK_FREE = new IStatisticsHandlerFactory ()
+  {
+    @Override
+    @Nonnull
+    public IMutableStatisticsHandlerCache createCacheHandler ()
+    {
+      return new StatisticsHandlerCacheLockFree ();
+    }
+
+    @Override
+    @Nonnull
+    public IMutableStatisticsHandlerTimer createTimerHandler ()
+    {
+      return new StatisticsHandlerTimerLockFree ();
+    }
+
+    @Override
+    @Nonnull
+    public IMutableStatisticsHandlerSize createSizeHandler ()
+    {
+      return new StatisticsHandlerSizeLockFree ();
+    }
+
+    @Override
+    @Nonnull
+    public IMutableStatisticsHandlerCounter createCounterHandler ()
+    {
+      return new StatisticsHandlerCounterLockFree ();
+    }
+  };
+
+  @Nonnull
+  default IMutableStatisticsHandlerCache createCacheHandler ()
+  {
+    return new StatisticsHandlerCache ();
+  }
+
+  @Nonnull
+  default IMutableStatisticsHandlerTimer createTimerHandler ()
+  {
+    return new StatisticsHandlerTimer ();
+  }
+
+  @Nonnull
+  default IMutableStatisticsHandlerKeyedTimer createKeyedTimerHandler ()
+  {
+    return new StatisticsHandlerKeyedTimer ();
+  }
+
+  @Nonnull
+  default IMutableStatisticsHandlerSize createSizeHandler ()
+  {
+    return new StatisticsHandlerSize ();
+  }
+
+  @Nonnull
+  default IMutableStatisticsHandlerKeyedSize createKeyedSizeHandler ()
+  {
+    return new StatisticsHandlerKeyedSize ();
+  }
+
+  @Nonnull
+  default IMutableStatisticsHandlerCounter createCounterHandler ()
+  {
+    return new StatisticsHandlerCounter ();
+  }
+
+  @Nonnull
+  default IMutableStatisticsHandlerKeyedCounter createKeyedCounterHandler ()
+  {
+    return new StatisticsHandlerKeyedCounter ();
+  }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics;
+
+import java.time.Duration;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnull;
+
+/**
+ * Extended read-only interface for numeric statistics handlers that keep a
+ * histogram of all values and can therefore report percentiles.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+public interface IStatisticsHandlerPercentile extends IStatisticsHandlerNumeric
+{
+  /**
+   * Get the value at the given percentile over all recorded values.
+   *
+   * @param dPercentile
+   *        The percentile in the range 0 to 100 (e.g. 99.9).
+   * @return {@link com.helger.commons.CGlobal#ILLEGAL_ULONG} if no value was
+   *         recorded.
+   */
+  @CheckForSigned
+  long getValueAtPercentile (double dPercentile);
+
+  /**
+   * Get the value at the given percentile over the values recorded within the
+   * last {@link #getWindowDuration()}.
+   *
+   * @param dPercentile
+   *        The percentile in the range 0 to 100 (e.g. 99.9).
+   * @return {@link com.helger.commons.CGlobal#ILLEGAL_ULONG} if no value was
+   *         recorded within the window.
+   */
+  @CheckForSigned
+  long getWindowedValueAtPercentile (double dPercentile);
+
+  /**
+   * @return The duration covered by
+   *         {@link #getWindowedValueAtPercentile(double)}. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  Duration getWindowDuration ();
+
+  @CheckForSigned
+  default long getPercentile50 ()
+  {
+    return getValueAtPercentile (50);
+  }
+
+  @CheckForSigned
+  default long getPercentile95 ()
+  {
+    return getValueAtPercentile (95);
+  }
+
+  @CheckForSigned
+  default long getPercentile99 ()
+  {
+    return getValueAtPercentile (99);
+  }
+
+  @CheckForSigned
+  default long getPercentile999 ()
+  {
+    return getValueAtPercentile (99.9);
+  }
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.CGlobal;
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A lock-free histogram with logarithmic buckets in the style of HDR
+ * histograms. Values from 0 to 15 are counted exactly, all larger values are
+ * counted in 16 linear sub-buckets per power of two, resulting in a relative
+ * error of at most 1/16 over the whole positive <code>long</code> range with a
+ * fixed footprint of 960 counters. Negative values are counted as 0.<br>
+ * The counters are only allocated when the first value is recorded, so that
+ * unused histograms are cheap. Apart from that, recording a value never
+ * allocates and never locks.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@ThreadSafe
+public final class LogBucketHistogram implements Serializable
+{
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  /** The number of buckets used */
+  public static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+  private static final AtomicReferenceFieldUpdater <LogBucketHistogram, AtomicLongArray> COUNTS = AtomicReferenceFieldUpdater.newUpdater (LogBucketHistogram.class,
+                                                                                                                                   AtomicLongArray.class,
+                                                                                                                                   "m_aCounts");
+
+  // Lazily allocated upon the first recorded value
+  private volatile AtomicLongArray m_aCounts;
+  private final LongAdder m_aTotalCount = new LongAdder ();
+
+  public LogBucketHistogram ()
+  {}
+
+  @Nonnull
+  private AtomicLongArray _getOrCreateCounts ()
+  {
+    AtomicLongArray ret = m_aCounts;
+    if (ret == null)
+    {
+      ret = new AtomicLongArray (BUCKET_COUNT);
+      if (!COUNTS.compareAndSet (this, null, ret))
+        ret = m_aCounts;
+    }
+    return ret;
+  }
+
+  /**
+   * @return <code>true</code> if the counters are already allocated.
+   */
+  boolean isAllocated ()
+  {
+    return m_aCounts != null;
+  }
+
+  static int getBucketIndex (final long nValue)
+  {
+    if (nValue < SUB_BUCKET_COUNT)
+      return nValue <= 0 ? 0 : (int) nValue;
+    final int nShift = 63 - Long.numberOfLeadingZeros (nValue) - SUB_BUCKET_BITS;
+    final int nTop = (int) (nValue >>> nShift);
+    return SUB_BUCKET_COUNT + nShift * SUB_BUCKET_COUNT + (nTop - SUB_BUCKET_COUNT);
+  }
+
+  static long getHighestEquivalentValue (final int nIndex)
+  {
+    if (nIndex < SUB_BUCKET_COUNT)
+      return nIndex;
+    final int nShift = (nIndex - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+    final long nTop = SUB_BUCKET_COUNT + (nIndex - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+    // May overflow to Long.MIN_VALUE for the last bucket - the "-1" fixes it
+    return ((nTop + 1) << nShift) - 1;
+  }
+
+  /**
+   * Record a single value.
+   *
+   * @param nValue
+   *        The value to record. Negative values are recorded as 0.
+   */
+  public void recordValue (final long nValue)
+  {
+    _getOrCreateCounts ().incrementAndGet (getBucketIndex (nValue));
+    m_aTotalCount.increment ();
+  }
+
+  /**
+   * @return The total number of recorded values. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getTotalCount ()
+  {
+    return m_aTotalCount.sum ();
+  }
+
+  /**
+   * Get the value at the given percentile. The returned value is the highest
+   * value that is equivalent to the recorded values within the histogram
+   * precision.
+   *
+   * @param dPercentile
+   *        The percentile to query in the range 0 to 100 (e.g. 99.9).
+   * @return {@link CGlobal#ILLEGAL_ULONG} if no value was recorded.
+   */
+  @CheckForSigned
+  public long getValueAtPercentile (final double dPercentile)
+  {
+    ValueEnforcer.isBetweenInclusive (dPercentile, "Percentile", 0d, 100d);
+
+    final AtomicLongArray aSrcCounts = m_aCounts;
+    if (aSrcCounts == null)
+      return CGlobal.ILLEGAL_ULONG;
+
+    // Take a stable copy, because recording may happen in parallel
+    final long [] aCounts = new long [BUCKET_COUNT];
+    long nTotal = 0;
+    for (int i = 0; i < BUCKET_COUNT; ++i)
+    {
+      aCounts[i] = aSrcCounts.get (i);
+      nTotal += aCounts[i];
+    }
+    if (nTotal == 0)
+      return CGlobal.ILLEGAL_ULONG;
+
+    final long nTarget = Math.max (1, (long) Math.ceil (dPercentile / 100d * nTotal));
+    long nSum = 0;
+    for (int i = 0; i < BUCKET_COUNT; ++i)
+    {
+      nSum += aCounts[i];
+      if (nSum >= nTarget)
+        return getHighestEquivalentValue (i);
+    }
+    // Cannot happen
+    return getHighestEquivalentValue (BUCKET_COUNT - 1);
+  }
+
+  /**
+   * Add all values of the passed histogram to this histogram.
+   *
+   * @param aOther
+   *        The histogram to add. May not be <code>null</code>.
+   */
+  public void addAll (@Nonnull final LogBucketHistogram aOther)
+  {
+    ValueEnforcer.notNull (aOther, "Other");
+    final AtomicLongArray aOtherCounts = aOther.m_aCounts;
+    if (aOtherCounts == null)
+      return;
+
+    AtomicLongArray aCounts = null;
+    for (int i = 0; i < BUCKET_COUNT; ++i)
+    {
+      final long nCount = aOtherCounts.get (i);
+      if (nCount != 0)
+      {
+        if (aCounts == null)
+          aCounts = _getOrCreateCounts ();
+        aCounts.addAndGet (i, nCount);
+        m_aTotalCount.add (nCount);
+      }
+    }
+  }
+
+  /**
+   * Reset all counters. Values recorded concurrently may or may not be
+   * contained afterwards.
+   */
+  public void reset ()
+  {
+    final AtomicLongArray aCounts = m_aCounts;
+    if (aCounts != null)
+      for (int i = 0; i < BUCKET_COUNT; ++i)
+        aCounts.set (i, 0);
+    m_aTotalCount.reset ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("TotalCount", getTotalCount ()).getToString ();
+  }
+}
@@ -0,0 +1,238 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics;
+
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A typed key for a statistics handler that also acts as a pre-resolved handle.
+ * The name is built once upon creation, and the resolved handler is cached
+ * inside the key, so that {@link #getHandler()} is only a field access after
+ * the first call. If {@link StatisticsManager#clearCache()} is called, the
+ * handler is resolved again upon the next access.<br>
+ * Keys are usually kept in <code>static final</code> fields:
+ *
+ * <pre>
+ * private static final StatisticsHandlerKey &lt;IMutableStatisticsHandlerTimer&gt; TIMER = StatisticsHandlerKey.timer (MyClass.class,
+ *                                                                                                                "$read");
+ * ...
+ * TIMER.getHandler ().addTime (nMillis);
+ * </pre>
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ * @param <T>
+ *        The handler type
+ */
+@ThreadSafe
+public final class StatisticsHandlerKey <T extends IStatisticsHandler>
+{
+  private static final class Resolved <T>
+  {
+    private final T m_aHandler;
+    private final int m_nGeneration;
+
+    Resolved (@Nonnull final T aHandler, final int nGeneration)
+    {
+      m_aHandler = aHandler;
+      m_nGeneration = nGeneration;
+    }
+  }
+
+  private final String m_sType;
+  private final String m_sName;
+  private final Function <String, ? extends T> m_aResolver;
+  private volatile Resolved <T> m_aResolved;
+
+  private StatisticsHandlerKey (@Nonnull @Nonempty final String sType,
+                                @Nonnull @Nonempty final String sName,
+                                @Nonnull final Function <String, ? extends T> aResolver)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    m_sType = sType;
+    m_sName = sName;
+    m_aResolver = aResolver;
+  }
+
+  /**
+   * @return The handler type name, e.g. "timer". Neither <code>null</code> nor
+   *         empty.
+   */
+  @Nonnull
+  @Nonempty
+  public String getType ()
+  {
+    return m_sType;
+  }
+
+  /**
+   * @return The name of the handler as used in {@link StatisticsManager}.
+   *         Neither <code>null</code> nor empty.
+   */
+  @Nonnull
+  @Nonempty
+  public String getName ()
+  {
+    return m_sName;
+  }
+
+  /**
+   * @return The resolved handler. Never <code>null</code>.
+   */
+  @Nonnull
+  public T getHandler ()
+  {
+    final int nGeneration = StatisticsManager.getGeneration ();
+    Resolved <T> aResolved = m_aResolved;
+    if (aResolved == null || aResolved.m_nGeneration != nGeneration)
+    {
+      aResolved = new Resolved <> (m_aResolver.apply (m_sName), nGeneration);
+      m_aResolved = aResolved;
+    }
+    return aResolved.m_aHandler;
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final StatisticsHandlerKey <?> rhs = (StatisticsHandlerKey <?>) o;
+    return m_sType.equals (rhs.m_sType) && m_sName.equals (rhs.m_sName);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_sType).append (m_sName).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Type", m_sType).append ("Name", m_sName).getToString ();
+  }
+
+  @Nonnull
+  private static String _getName (@Nonnull final Class <?> aClass, @Nonnull final String sSuffix)
+  {
+    ValueEnforcer.notNull (aClass, "Class");
+    ValueEnforcer.notNull (sSuffix, "Suffix");
+    return aClass.getName () + sSuffix;
+  }
+
+  @Nonnull
+  public static StatisticsHandlerKey <IMutableStatisticsHandlerCache> cache (@Nonnull @Nonempty final String sName)
+  {
+    return new StatisticsHandlerKey <> ("cache", sName, StatisticsManager::getCacheHandler);
+  }
+
+  @Nonnull
+  public static StatisticsHandlerKey <IMutableStatisticsHandlerCache> cache (@Nonnull final Class <?> aClass,
+                                                                            @Nonnull final String sSuffix)
+  {
+    return cache (_getName (aClass, sSuffix));
+  }
+
+  @Nonnull
+  public static StatisticsHandlerKey <IMutableStatisticsHandlerTimer> timer (@Nonnull @Nonempty final String sName)
+  {
+    return new StatisticsHandlerKey <> ("timer", sName, StatisticsManager::getTimerHandler);
+  }
+
+  @Nonnull
+  public static StatisticsHandlerKey <IMutableStatisticsHandlerTimer> timer (@Nonnull final Class <?> aClass,
+                                                                            @Nonnull final String sSuffix)
+  {
+    return timer (_getName (aClass, sSuffix));
+  }
+
+  @Nonnull
+  public static StatisticsHandlerKey <IMutableStatisticsHandlerKeyedTimer> keyedTimer (@Nonnull @Nonempty final String sName)
+  {
+    return new StatisticsHandlerKey <> ("keyedtimer", sName, StatisticsManager::getKeyedTimerHandler);
+  }
+
+  @Nonnull
+  public static StatisticsHandlerKey <IMutableStatisticsHandlerKeyedTimer> keyedTimer (@Nonnull final Class <?> aClass,
+                                                                                      @Nonnull final String sSuffix)
+  {
+    return keyedTimer (_getName (aClass, sSuffix));
+  }
+
+  @Nonnull
+  public static StatisticsHandlerKey <IMutableStatisticsHandlerSize> size (@Nonnull @Nonempty final String sName)
+  {
+    return new StatisticsHandlerKey <> ("size", sName, StatisticsManager::getSizeHandler);
+  }
+
+  @Nonnull
+  public static StatisticsHandlerKey <IMutableStatisticsHandlerSize> size (@Nonnull final Class <?> aClass,
+                                                                          @Nonnull final String sSuffix)
+  {
+    return size (_getName (aClass, sSuffix));
+  }
+
+  @Nonnull
+  public static StatisticsHandlerKey <IMutableStatisticsHandlerKeyedSize> keyedSize (@Nonnull @Nonempty final String sName)
+  {
+    return new StatisticsHandlerKey <> ("keyedsize", sName, StatisticsManager::getKeyedSizeHandler);
+  }
+
+  @Nonnull
+  public static StatisticsHandlerKey <IMutableStatisticsHandlerKeyedSize> keyedSize (@Nonnull final Class <?> aClass,
+                                                                                    @Nonnull final String sSuffix)
+  {
+    return keyedSize (_getName (aClass, sSuffix));
+  }
+
+  @Nonnull
+  public static StatisticsHandlerKey <IMutableStatisticsHandlerCounter> counter (@Nonnull @Nonempty final String sName)
+  {
+    return new StatisticsHandlerKey <> ("counter", sName, StatisticsManager::getCounterHandler);
+  }
+
+  @Nonnull
+  public static StatisticsHandlerKey <IMutableStatisticsHandlerCounter> counter (@Nonnull final Class <?> aClass,
+                                                                                @Nonnull final String sSuffix)
+  {
+    return counter (_getName (aClass, sSuffix));
+  }
+
+  @Nonnull
+  public static StatisticsHandlerKey <IMutableStatisticsHandlerKeyedCounter> keyedCounter (@Nonnull @Nonempty final String sName)
+  {
+    return new StatisticsHandlerKey <> ("keyedcounter", sName, StatisticsManager::getKeyedCounterHandler);
+  }
+
+  @Nonnull
+  public static StatisticsHandlerKey <IMutableStatisticsHandlerKeyedCounter> keyedCounter (@Nonnull final Class <?> aClass,
+                                                                                          @Nonnull final String sSuffix)
+  {
+    return keyedCounter (_getName (aClass, sSuffix));
+  }
+}
@@ -16,6 +16,9 @@
  */
 package com.helger.commons.statistics;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -26,42 +29,124 @@ import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.PresentForCodeCoverage;
 import com.helger.commons.annotation.ReturnsMutableCopy;
-import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.CommonsConcurrentHashMap;
 import com.helger.commons.collection.impl.ICommonsMap;
 import com.helger.commons.collection.impl.ICommonsSet;
-import com.helger.commons.concurrent.SimpleReadWriteLock;
 
 /**
- * Provides a central manager for the internal statistics.
+ * Provides a central manager for the internal statistics. Since v9.4.3 the
+ * registry is based on concurrent maps, so looking up an existing handler never
+ * blocks. Use {@link StatisticsHandlerKey} to avoid repeated name building and
+ * lookups in frequently called code.
  *
  * @author Philip Helger
  */
 @ThreadSafe
 public final class StatisticsManager
 {
-  private static final SimpleReadWriteLock s_aRWLockCache = new SimpleReadWriteLock ();
-  private static final SimpleReadWriteLock s_aRWLockTimer = new SimpleReadWriteLock ();
-  private static final SimpleReadWriteLock s_aRWLockKeyedTimer = new SimpleReadWriteLock ();
-  private static final SimpleReadWriteLock s_aRWLockSize = new SimpleReadWriteLock ();
-  private static final SimpleReadWriteLock s_aRWLockKeyedSize = new SimpleReadWriteLock ();
-  private static final SimpleReadWriteLock s_aRWLockCounter = new SimpleReadWriteLock ();
-  private static final SimpleReadWriteLock s_aRWLockKeyedCounter = new SimpleReadWriteLock ();
-  private static final ICommonsMap <String, StatisticsHandlerCache> s_aHdlCache = new CommonsHashMap <> ();
-  private static final ICommonsMap <String, StatisticsHandlerTimer> s_aHdlTimer = new CommonsHashMap <> ();
-  private static final ICommonsMap <String, StatisticsHandlerKeyedTimer> s_aHdlKeyedTimer = new CommonsHashMap <> ();
-  private static final ICommonsMap <String, StatisticsHandlerSize> s_aHdlSize = new CommonsHashMap <> ();
-  private static final ICommonsMap <String, StatisticsHandlerKeyedSize> s_aHdlKeyedSize = new CommonsHashMap <> ();
-  private static final ICommonsMap <String, StatisticsHandlerCounter> s_aHdlCounter = new CommonsHashMap <> ();
-  private static final ICommonsMap <String, StatisticsHandlerKeyedCounter> s_aHdlKeyedCounter = new CommonsHashMap <> ();
+  private static final ICommonsMap <String, IMutableStatisticsHandlerCache> s_aHdlCache = new CommonsConcurrentHashMap <> ();
+  private static final ICommonsMap <String, IMutableStatisticsHandlerTimer> s_aHdlTimer = new CommonsConcurrentHashMap <> ();
+  private static final ICommonsMap <String, IMutableStatisticsHandlerKeyedTimer> s_aHdlKeyedTimer = new CommonsConcurrentHashMap <> ();
+  private static final ICommonsMap <String, IMutableStatisticsHandlerSize> s_aHdlSize = new CommonsConcurrentHashMap <> ();
+  private static final ICommonsMap <String, IMutableStatisticsHandlerKeyedSize> s_aHdlKeyedSize = new CommonsConcurrentHashMap <> ();
+  private static final ICommonsMap <String, IMutableStatisticsHandlerCounter> s_aHdlCounter = new CommonsConcurrentHashMap <> ();
+  private static final ICommonsMap <String, IMutableStatisticsHandlerKeyedCounter> s_aHdlKeyedCounter = new CommonsConcurrentHashMap <> ();
 
   private static final Logger LOGGER = LoggerFactory.getLogger (StatisticsManager.class);
 
+  private static volatile IStatisticsHandlerFactory s_aHandlerFactory = IStatisticsHandlerFactory.DEFAULT;
+  private static final AtomicInteger s_aGeneration = new AtomicInteger (0);
+
   @PresentForCodeCoverage
   private static final StatisticsManager s_aInstance = new StatisticsManager ();
 
   private StatisticsManager ()
   {}
 
+  /**
+   * @return The factory used to create new statistics handlers. Never
+   *         <code>null</code>.
+   * @since 9.4.3
+   */
+  @Nonnull
+  public static IStatisticsHandlerFactory getHandlerFactory ()
+  {
+    return s_aHandlerFactory;
+  }
+
+  /**
+   * Set the factory used to create new statistics handlers. This only affects
+   * handlers that are created afterwards, so this should be called as early as
+   * possible upon application startup, e.g. with
+   * {@link IStatisticsHandlerFactory#LOCK_FREE}.
+   *
+   * @param aHandlerFactory
+   *        The factory to use. May not be <code>null</code>.
+   * @since 9.4.3
+   */
+  public static void setHandlerFactory (@Nonnull final IStatisticsHandlerFactory aHandlerFactory)
+  {
+    ValueEnforcer.notNull (aHandlerFactory, "HandlerFactory");
+    s_aHandlerFactory = aHandlerFactory;
+  }
+
+  /**
+   * @return The current generation of the registry. It is incremented upon
+   *         each {@link #clearCache()} so that {@link StatisticsHandlerKey} can
+   *         detect stale handlers.
+   */
+  static int getGeneration ()
+  {
+    return s_aGeneration.get ();
+  }
+
+  @Nonnull
+  private static <T> T _getOrCreate (@Nonnull final ICommonsMap <String, T> aMap,
+                                     @Nonnull final String sName,
+                                     @Nonnull final Function <IStatisticsHandlerFactory, ? extends T> aCreator)
+  {
+    // Plain get first, as computeIfAbsent may lock the bin even if present
+    final T ret = aMap.get (sName);
+    if (ret != null)
+      return ret;
+    return aMap.computeIfAbsent (sName, k -> aCreator.apply (s_aHandlerFactory));
+  }
+
+  /**
+   * Resolve the handler for the passed typed key.
+   *
+   * @param aKey
+   *        The key to resolve. May not be <code>null</code>.
+   * @return The handler and never <code>null</code>.
+   * @param <T>
+   *        handler type
+   * @since 9.4.3
+   */
+  @Nonnull
+  public static <T extends IStatisticsHandler> T getHandler (@Nonnull final StatisticsHandlerKey <T> aKey)
+  {
+    ValueEnforcer.notNull (aKey, "Key");
+    return aKey.getHandler ();
+  }
+
+  /**
+   * Get a snapshot of all registered handlers. This never blocks writers.
+   *
+   * @return A new snapshot and never <code>null</code>.
+   * @since 9.4.3
+   */
+  @Nonnull
+  public static StatisticsSnapshot getSnapshot ()
+  {
+    return new StatisticsSnapshot (s_aHdlCache,
+                                   s_aHdlTimer,
+                                   s_aHdlKeyedTimer,
+                                   s_aHdlSize,
+                                   s_aHdlKeyedSize,
+                                   s_aHdlCounter,
+                                   s_aHdlKeyedCounter);
+  }
+
   @Nonnull
   public static IMutableStatisticsHandlerCache getCacheHandler (@Nonnull final Class <?> aClass)
   {
@@ -75,24 +160,14 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerCache aHdl = s_aRWLockCache.readLockedGet ( () -> s_aHdlCache.get (sName));
-
-    if (aHdl == null)
-    {
-      // Try again in write lock
-      aHdl = s_aRWLockCache.writeLockedGet ( () -> s_aHdlCache.computeIfAbsent (sName,
-                                                                                k -> new StatisticsHandlerCache ()));
-    }
-
-    return aHdl;
-
+    return _getOrCreate (s_aHdlCache, sName, IStatisticsHandlerFactory::createCacheHandler);
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllCacheHandler ()
   {
-    return s_aRWLockCache.readLockedGet (s_aHdlCache::copyOfKeySet);
+    return s_aHdlCache.copyOfKeySet ();
   }
 
   @Nonnull
@@ -108,21 +183,14 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerTimer aHdl = s_aRWLockTimer.readLockedGet ( () -> s_aHdlTimer.get (sName));
-    if (aHdl == null)
-    {
-      aHdl = s_aRWLockTimer.writeLockedGet ( () -> s_aHdlTimer.computeIfAbsent (sName,
-                                                                                k -> new StatisticsHandlerTimer ()));
-    }
-
-    return aHdl;
+    return _getOrCreate (s_aHdlTimer, sName, IStatisticsHandlerFactory::createTimerHandler);
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllTimerHandler ()
   {
-    return s_aRWLockTimer.readLockedGet (s_aHdlTimer::copyOfKeySet);
+    return s_aHdlTimer.copyOfKeySet ();
   }
 
   @Nonnull
@@ -138,21 +206,14 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerKeyedTimer aHdl = s_aRWLockKeyedTimer.readLockedGet ( () -> s_aHdlKeyedTimer.get (sName));
-
-    if (aHdl == null)
-    {
-      aHdl = s_aRWLockKeyedTimer.writeLockedGet ( () -> s_aHdlKeyedTimer.computeIfAbsent (sName,
-                                                                                          k -> new StatisticsHandlerKeyedTimer ()));
-    }
-    return aHdl;
+    return _getOrCreate (s_aHdlKeyedTimer, sName, IStatisticsHandlerFactory::createKeyedTimerHandler);
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllKeyedTimerHandler ()
   {
-    return s_aRWLockKeyedTimer.readLockedGet (s_aHdlKeyedTimer::copyOfKeySet);
+    return s_aHdlKeyedTimer.copyOfKeySet ();
   }
 
   @Nonnull
@@ -168,21 +229,14 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerSize aHdl = s_aRWLockSize.readLockedGet ( () -> s_aHdlSize.get (sName));
-
-    if (aHdl == null)
-    {
-      aHdl = s_aRWLockSize.writeLockedGet ( () -> s_aHdlSize.computeIfAbsent (sName,
-                                                                              k -> new StatisticsHandlerSize ()));
-    }
-    return aHdl;
+    return _getOrCreate (s_aHdlSize, sName, IStatisticsHandlerFactory::createSizeHandler);
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllSizeHandler ()
   {
-    return s_aRWLockSize.readLockedGet (s_aHdlSize::copyOfKeySet);
+    return s_aHdlSize.copyOfKeySet ();
   }
 
   @Nonnull
@@ -198,21 +252,14 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerKeyedSize aHdl = s_aRWLockKeyedSize.readLockedGet ( () -> s_aHdlKeyedSize.get (sName));
-
-    if (aHdl == null)
-    {
-      aHdl = s_aRWLockKeyedSize.writeLockedGet ( () -> s_aHdlKeyedSize.computeIfAbsent (sName,
-                                                                                        k -> new StatisticsHandlerKeyedSize ()));
-    }
-    return aHdl;
+    return _getOrCreate (s_aHdlKeyedSize, sName, IStatisticsHandlerFactory::createKeyedSizeHandler);
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllKeyedSizeHandler ()
   {
-    return s_aRWLockKeyedSize.readLockedGet (s_aHdlKeyedSize::copyOfKeySet);
+    return s_aHdlKeyedSize.copyOfKeySet ();
   }
 
   @Nonnull
@@ -228,21 +275,14 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerCounter aHdl = s_aRWLockCounter.readLockedGet ( () -> s_aHdlCounter.get (sName));
-
-    if (aHdl == null)
-    {
-      aHdl = s_aRWLockCounter.writeLockedGet ( () -> s_aHdlCounter.computeIfAbsent (sName,
-                                                                                    k -> new StatisticsHandlerCounter ()));
-    }
-    return aHdl;
+    return _getOrCreate (s_aHdlCounter, sName, IStatisticsHandlerFactory::createCounterHandler);
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllCounterHandler ()
   {
-    return s_aRWLockCounter.readLockedGet (s_aHdlCounter::copyOfKeySet);
+    return s_aHdlCounter.copyOfKeySet ();
   }
 
   @Nonnull
@@ -258,32 +298,27 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerKeyedCounter aHdl = s_aRWLockKeyedCounter.readLockedGet ( () -> s_aHdlKeyedCounter.get (sName));
-
-    if (aHdl == null)
-    {
-      aHdl = s_aRWLockKeyedCounter.writeLockedGet ( () -> s_aHdlKeyedCounter.computeIfAbsent (sName,
-                                                                                              k -> new StatisticsHandlerKeyedCounter ()));
-    }
-    return aHdl;
+    return _getOrCreate (s_aHdlKeyedCounter, sName, IStatisticsHandlerFactory::createKeyedCounterHandler);
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllKeyedCounterHandler ()
   {
-    return s_aRWLockKeyedCounter.readLockedGet (s_aHdlKeyedCounter::copyOfKeySet);
+    return s_aHdlKeyedCounter.copyOfKeySet ();
   }
 
   public static void clearCache ()
   {
-    s_aRWLockCache.writeLocked (s_aHdlCache::clear);
-    s_aRWLockTimer.writeLocked (s_aHdlTimer::clear);
-    s_aRWLockKeyedTimer.writeLocked (s_aHdlKeyedTimer::clear);
-    s_aRWLockSize.writeLocked (s_aHdlSize::clear);
-    s_aRWLockKeyedSize.writeLocked (s_aHdlKeyedSize::clear);
-    s_aRWLockCounter.writeLocked (s_aHdlCounter::clear);
-    s_aRWLockKeyedCounter.writeLocked (s_aHdlKeyedCounter::clear);
+    s_aHdlCache.clear ();
+    s_aHdlTimer.clear ();
+    s_aHdlKeyedTimer.clear ();
+    s_aHdlSize.clear ();
+    s_aHdlKeyedSize.clear ();
+    s_aHdlCounter.clear ();
+    s_aHdlKeyedCounter.clear ();
+    // Atomic, so that concurrent clears always result in distinct generations
+    s_aGeneration.incrementAndGet ();
 
     if (LOGGER.isDebugEnabled ())
       LOGGER.debug ("Cache was cleared: " + StatisticsManager.class.getName ());
@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics;
+
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsTreeMap;
+import com.helger.commons.collection.impl.ICommonsSortedMap;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A snapshot of all handlers registered in {@link StatisticsManager} at a
+ * certain point in time, sorted by name. Creating the snapshot never blocks
+ * the creation of new handlers. Note: the handlers themselves are live objects
+ * that continue to be updated.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@Immutable
+public final class StatisticsSnapshot
+{
+  private final ICommonsSortedMap <String, IStatisticsHandlerCache> m_aCache;
+  private final ICommonsSortedMap <String, IStatisticsHandlerTimer> m_aTimer;
+  private final ICommonsSortedMap <String, IStatisticsHandlerKeyedTimer> m_aKeyedTimer;
+  private final ICommonsSortedMap <String, IStatisticsHandlerSize> m_aSize;
+  private final ICommonsSortedMap <String, IStatisticsHandlerKeyedSize> m_aKeyedSize;
+  private final ICommonsSortedMap <String, IStatisticsHandlerCounter> m_aCounter;
+  private final ICommonsSortedMap <String, IStatisticsHandlerKeyedCounter> m_aKeyedCounter;
+
+  StatisticsSnapshot (@Nonnull final Map <String, ? extends IStatisticsHandlerCache> aCache,
+                      @Nonnull final Map <String, ? extends IStatisticsHandlerTimer> aTimer,
+                      @Nonnull final Map <String, ? extends IStatisticsHandlerKeyedTimer> aKeyedTimer,
+                      @Nonnull final Map <String, ? extends IStatisticsHandlerSize> aSize,
+                      @Nonnull final Map <String, ? extends IStatisticsHandlerKeyedSize> aKeyedSize,
+                      @Nonnull final Map <String, ? extends IStatisticsHandlerCounter> aCounter,
+                      @Nonnull final Map <String, ? extends IStatisticsHandlerKeyedCounter> aKeyedCounter)
+  {
+    m_aCache = new CommonsTreeMap <> (aCache);
+    m_aTimer = new CommonsTreeMap <> (aTimer);
+    m_aKeyedTimer = new CommonsTreeMap <> (aKeyedTimer);
+    m_aSize = new CommonsTreeMap <> (aSize);
+    m_aKeyedSize = new CommonsTreeMap <> (aKeyedSize);
+    m_aCounter = new CommonsTreeMap <> (aCounter);
+    m_aKeyedCounter = new CommonsTreeMap <> (aKeyedCounter);
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsSortedMap <String, IStatisticsHandlerCache> getAllCacheHandler ()
+  {
+    return m_aCache.getClone ();
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsSortedMap <String, IStatisticsHandlerTimer> getAllTimerHandler ()
+  {
+    return m_aTimer.getClone ();
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsSortedMap <String, IStatisticsHandlerKeyedTimer> getAllKeyedTimerHandler ()
+  {
+    return m_aKeyedTimer.getClone ();
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsSortedMap <String, IStatisticsHandlerSize> getAllSizeHandler ()
+  {
+    return m_aSize.getClone ();
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsSortedMap <String, IStatisticsHandlerKeyedSize> getAllKeyedSizeHandler ()
+  {
+    return m_aKeyedSize.getClone ();
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsSortedMap <String, IStatisticsHandlerCounter> getAllCounterHandler ()
+  {
+    return m_aCounter.getClone ();
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsSortedMap <String, IStatisticsHandlerKeyedCounter> getAllKeyedCounterHandler ()
+  {
+    return m_aKeyedCounter.getClone ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Cache", m_aCache)
+                                       .append ("Timer", m_aTimer)
+                                       .append ("KeyedTimer", m_aKeyedTimer)
+                                       .append ("Size", m_aSize)
+                                       .append ("KeyedSize", m_aKeyedSize)
+                                       .append ("Counter", m_aCounter)
+                                       .append ("KeyedCounter", m_aKeyedCounter)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A {@link LogBucketHistogram} that only covers the recent past. The window is
+ * split into a fixed number of slots, each covering the same duration. A slot
+ * is replaced lazily by a new histogram when it is reused for a new time
+ * period, so that recording stays lock-free and values of different periods
+ * are never mixed. Values recorded for a period that already left the window
+ * are ignored.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@ThreadSafe
+public final class WindowedLogBucketHistogram implements Serializable
+{
+  /** Default number of slots */
+  public static final int DEFAULT_SLOT_COUNT = 6;
+  /** Default duration of a single slot */
+  public static final Duration DEFAULT_SLOT_DURATION = Duration.ofSeconds (10);
+
+  /**
+   * The histogram of a single time period. Immutable apart from the contained
+   * histogram.
+   */
+  private static final class Slot implements Serializable
+  {
+    private final long m_nPeriod;
+    private final LogBucketHistogram m_aHistogram = new LogBucketHistogram ();
+
+    Slot (final long nPeriod)
+    {
+      m_nPeriod = nPeriod;
+    }
+  }
+
+  private final long m_nSlotNanos;
+  private final int m_nSlotCount;
+  // Slots are never modified but replaced
+  private final AtomicReferenceArray <Slot> m_aSlots;
+
+  /**
+   * Constructor with a window of 60 seconds, using 6 slots of 10 seconds each.
+   */
+  public WindowedLogBucketHistogram ()
+  {
+    this (DEFAULT_SLOT_COUNT, DEFAULT_SLOT_DURATION);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param nSlotCount
+   *        The number of slots. Must be &gt; 0.
+   * @param aSlotDuration
+   *        The duration covered by each slot. May not be <code>null</code>
+   *        and must be positive.
+   */
+  public WindowedLogBucketHistogram (@Nonnegative final int nSlotCount, @Nonnull final Duration aSlotDuration)
+  {
+    ValueEnforcer.isGT0 (nSlotCount, "SlotCount");
+    ValueEnforcer.notNull (aSlotDuration, "SlotDuration");
+    ValueEnforcer.isTrue ( () -> !aSlotDuration.isNegative () && !aSlotDuration.isZero (),
+                           "SlotDuration must be positive");
+    m_nSlotNanos = aSlotDuration.toNanos ();
+    m_nSlotCount = nSlotCount;
+    m_aSlots = new AtomicReferenceArray <> (nSlotCount);
+  }
+
+  /**
+   * @return The total duration covered by this histogram. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public Duration getWindowDuration ()
+  {
+    return Duration.ofNanos (m_nSlotNanos * m_nSlotCount);
+  }
+
+  private long _getCurrentPeriod ()
+  {
+    return Math.floorDiv (System.nanoTime (), m_nSlotNanos);
+  }
+
+  /**
+   * Record a single value into the current slot.
+   *
+   * @param nValue
+   *        The value to record. Negative values are recorded as 0.
+   */
+  public void recordValue (final long nValue)
+  {
+    final long nPeriod = _getCurrentPeriod ();
+    final int nIndex = (int) Math.floorMod (nPeriod, (long) m_nSlotCount);
+    Slot aSlot = m_aSlots.get (nIndex);
+    while (aSlot == null || aSlot.m_nPeriod != nPeriod)
+    {
+      if (aSlot != null && aSlot.m_nPeriod > nPeriod)
+      {
+        // The period of this value already left the window
+        return;
+      }
+      final Slot aNewSlot = new Slot (nPeriod);
+      if (m_aSlots.compareAndSet (nIndex, aSlot, aNewSlot))
+        aSlot = aNewSlot;
+      else
+        aSlot = m_aSlots.get (nIndex);
+    }
+    aSlot.m_aHistogram.recordValue (nValue);
+  }
+
+  /**
+   * @return A new histogram containing all values of the current window.
+   *         Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public LogBucketHistogram getSnapshot ()
+  {
+    final long nPeriod = _getCurrentPeriod ();
+    final LogBucketHistogram ret = new LogBucketHistogram ();
+    for (int i = 0; i < m_nSlotCount; ++i)
+    {
+      final Slot aSlot = m_aSlots.get (i);
+      if (aSlot != null && nPeriod - aSlot.m_nPeriod < m_nSlotCount)
+        ret.addAll (aSlot.m_aHistogram);
+    }
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("SlotNanos", m_nSlotNanos)
+                                       .append ("SlotCount", m_nSlotCount)
+                                       .getToString ();
+  }
+}
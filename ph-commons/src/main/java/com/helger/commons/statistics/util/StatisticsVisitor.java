@@ -16,22 +16,13 @@
  */
 package com.helger.commons.statistics.util;
 
-import java.util.Comparator;
-
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
 
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.PresentForCodeCoverage;
-import com.helger.commons.collection.impl.ICommonsList;
-import com.helger.commons.statistics.IStatisticsHandlerCache;
-import com.helger.commons.statistics.IStatisticsHandlerCounter;
-import com.helger.commons.statistics.IStatisticsHandlerKeyedCounter;
-import com.helger.commons.statistics.IStatisticsHandlerKeyedSize;
-import com.helger.commons.statistics.IStatisticsHandlerKeyedTimer;
-import com.helger.commons.statistics.IStatisticsHandlerSize;
-import com.helger.commons.statistics.IStatisticsHandlerTimer;
 import com.helger.commons.statistics.StatisticsManager;
+import com.helger.commons.statistics.StatisticsSnapshot;
 
 /**
  * Class for iterating all available statistics
@@ -57,60 +48,28 @@ public final class StatisticsVisitor
   {
     ValueEnforcer.notNull (aCallback, "Callback");
 
+    // Take one snapshot, so that all handlers are visited consistently
+    final StatisticsSnapshot aSnapshot = StatisticsManager.getSnapshot ();
+
     // For all cache handler
-    ICommonsList <String> aHandlers = StatisticsManager.getAllCacheHandler ().getSorted (Comparator.naturalOrder ());
-    for (final String sName : aHandlers)
-    {
-      final IStatisticsHandlerCache aHandler = StatisticsManager.getCacheHandler (sName);
-      aCallback.onCache (sName, aHandler);
-    }
+    aSnapshot.getAllCacheHandler ().forEach (aCallback::onCache);
 
     // For all timer handler
-    aHandlers = StatisticsManager.getAllTimerHandler ().getSorted (Comparator.naturalOrder ());
-    for (final String sName : aHandlers)
-    {
-      final IStatisticsHandlerTimer aHandler = StatisticsManager.getTimerHandler (sName);
-      aCallback.onTimer (sName, aHandler);
-    }
+    aSnapshot.getAllTimerHandler ().forEach (aCallback::onTimer);
 
     // For all keyed timer handler
-    aHandlers = StatisticsManager.getAllKeyedTimerHandler ().getSorted (Comparator.naturalOrder ());
-    for (final String sName : aHandlers)
-    {
-      final IStatisticsHandlerKeyedTimer aHandler = StatisticsManager.getKeyedTimerHandler (sName);
-      aCallback.onKeyedTimer (sName, aHandler);
-    }
+    aSnapshot.getAllKeyedTimerHandler ().forEach (aCallback::onKeyedTimer);
 
     // For all size handler
-    aHandlers = StatisticsManager.getAllSizeHandler ().getSorted (Comparator.naturalOrder ());
-    for (final String sName : aHandlers)
-    {
-      final IStatisticsHandlerSize aHandler = StatisticsManager.getSizeHandler (sName);
-      aCallback.onSize (sName, aHandler);
-    }
+    aSnapshot.getAllSizeHandler ().forEach (aCallback::onSize);
 
     // For all keyed size handler
-    aHandlers = StatisticsManager.getAllKeyedSizeHandler ().getSorted (Comparator.naturalOrder ());
-    for (final String sName : aHandlers)
-    {
-      final IStatisticsHandlerKeyedSize aHandler = StatisticsManager.getKeyedSizeHandler (sName);
-      aCallback.onKeyedSize (sName, aHandler);
-    }
+    aSnapshot.getAllKeyedSizeHandler ().forEach (aCallback::onKeyedSize);
 
     // For all counter handler
-    aHandlers = StatisticsManager.getAllCounterHandler ().getSorted (Comparator.naturalOrder ());
-    for (final String sName : aHandlers)
-    {
-      final IStatisticsHandlerCounter aHandler = StatisticsManager.getCounterHandler (sName);
-      aCallback.onCounter (sName, aHandler);
-    }
+    aSnapshot.getAllCounterHandler ().forEach (aCallback::onCounter);
 
     // For all keyed counter handler
-    aHandlers = StatisticsManager.getAllKeyedCounterHandler ().getSorted (Comparator.naturalOrder ());
-    for (final String sName : aHandlers)
-    {
-      final IStatisticsHandlerKeyedCounter aHandler = StatisticsManager.getKeyedCounterHandler (sName);
-      aCallback.onKeyedCounter (sName, aHandler);
-    }
+    aSnapshot.getAllKeyedCounterHandler ().forEach (aCallback::onKeyedCounter);
   }
 }
@@ -16,7 +16,6 @@
  */
 package com.helger.commons.typeconvert;
 
-import java.lang.ref.WeakReference;
 import java.util.Map;
 
 import javax.annotation.Nonnegative;
@@ -62,8 +61,47 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
     private static final TypeConverterRegistry s_aInstance = new TypeConverterRegistry ();
   }
 
+  /**
+   * Cache for resolved converters. It maps the source class and the
+   * destination class to the resolved converter or to
+   * {@link TypeConverterRegistry#NO_CONVERTER} if no converter was found.
+   * Both source and destination classes are weakly referenced, so that the
+   * cache never prevents a class loader from being garbage collected.
+   * Instances are never cleared but replaced with a new instance, so that no
+   * result computed from an outdated registry state is stored.
+   */
+  private static final class ResolvedConverterCache
+  {
+    private final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
+    // Use a weak hash map, because the key is a class
+    @GuardedBy ("m_aRWLock")
+    private final ICommonsMap <Class <?>, ICommonsMap <Class <?>, ITypeConverter <?, ?>>> m_aMap = new CommonsWeakHashMap <> ();
+
+    @Nullable
+    ITypeConverter <?, ?> get (@Nonnull final Class <?> aSrcClass, @Nonnull final Class <?> aDstClass)
+    {
+      return m_aRWLock.readLockedGet ( () -> {
+        final ICommonsMap <Class <?>, ITypeConverter <?, ?>> aDstMap = m_aMap.get (aSrcClass);
+        return aDstMap == null ? null : aDstMap.get (aDstClass);
+      });
+    }
+
+    void put (@Nonnull final Class <?> aSrcClass,
+              @Nonnull final Class <?> aDstClass,
+              @Nonnull final ITypeConverter <?, ?> aConverter)
+    {
+      // Weak hash map because key is a class
+      m_aRWLock.writeLocked ( () -> {
+        m_aMap.computeIfAbsent (aSrcClass, k -> new CommonsWeakHashMap <> ()).put (aDstClass, aConverter);
+      });
+    }
+  }
+
   private static final Logger LOGGER = LoggerFactory.getLogger (TypeConverterRegistry.class);
 
+  /** Marker for negative results in the resolved converter caches */
+  private static final ITypeConverter <?, ?> NO_CONVERTER = x -> null;
+
   private static boolean s_bDefaultInstantiated = false;
 
   private final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
@@ -73,6 +111,9 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
   private final ICommonsMap <Class <?>, ICommonsMap <Class <?>, ITypeConverter <?, ?>>> m_aConverter = new CommonsWeakHashMap <> ();
   @GuardedBy ("m_aRWLock")
   private final ICommonsSortedMap <ITypeConverterRule.ESubType, ICommonsList <ITypeConverterRule <?, ?>>> m_aRules = new CommonsTreeMap <> ();
+  // Replaced on every modification (always inside the write lock)
+  private volatile ResolvedConverterCache m_aFuzzyCache = new ResolvedConverterCache ();
+  private volatile ResolvedConverterCache m_aBestMatchCache = new ResolvedConverterCache ();
 
   private TypeConverterRegistry ()
   {
@@ -92,6 +133,17 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
     return ret;
   }
 
+  /**
+   * Drop all resolved converters. Must be called inside the write lock, so
+   * that no lookup can store a result computed from the old state into the
+   * new caches.
+   */
+  private void _invalidateResolvedConverters ()
+  {
+    m_aFuzzyCache = new ResolvedConverterCache ();
+    m_aBestMatchCache = new ResolvedConverterCache ();
+  }
+
   @Nonnull
   @ReturnsMutableObject ("internal use only")
   private ICommonsMap <Class <?>, ITypeConverter <?, ?>> _getOrCreateConverterMap (@Nonnull final Class <?> aClass)
@@ -146,29 +198,29 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
       throw new IllegalArgumentException ("A mapping from " + aSrcClass + " to " + aDstClass + " is already defined!");
 
     m_aRWLock.writeLocked ( () -> {
+      _invalidateResolvedConverters ();
+
       // Automatically register the destination class, and all parent
       // classes/interfaces
-      for (final WeakReference <Class <?>> aCurWRDstClass : ClassHierarchyCache.getClassHierarchyIterator (aDstClass))
+      for (final Class <?> aCurDstClass : ClassHierarchyCache.getClassHierarchyIterable (aDstClass))
       {
-        final Class <?> aCurDstClass = aCurWRDstClass.get ();
-        if (aCurDstClass != null)
-          if (!aSrcMap.containsKey (aCurDstClass))
+        if (!aSrcMap.containsKey (aCurDstClass))
+        {
+          if (aSrcMap.put (aCurDstClass, aConverter) != null)
+          {
+            if (LOGGER.isWarnEnabled ())
+              LOGGER.warn ("Overwriting converter from " + aSrcClass + " to " + aCurDstClass);
+          }
+          else
           {
-            if (aSrcMap.put (aCurDstClass, aConverter) != null)
-            {
-              if (LOGGER.isWarnEnabled ())
-                LOGGER.warn ("Overwriting converter from " + aSrcClass + " to " + aCurDstClass);
-            }
-            else
-            {
-              if (LOGGER.isTraceEnabled ())
-                LOGGER.trace ("Registered type converter from '" +
-                              aSrcClass.toString () +
-                              "' to '" +
-                              aCurDstClass.toString () +
-                              "'");
-            }
+            if (LOGGER.isTraceEnabled ())
+              LOGGER.trace ("Registered type converter from '" +
+                            aSrcClass.toString () +
+                            "' to '" +
+                            aCurDstClass.toString () +
+                            "'");
           }
+        }
       }
     });
   }
@@ -254,47 +306,27 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
                                         @Nonnull final ITypeConverterCallback aCallback)
   {
     // For all possible source classes
-    for (final WeakReference <Class <?>> aCurWRSrcClass : ClassHierarchyCache.getClassHierarchyIterator (aSrcClass))
+    for (final Class <?> aCurSrcClass : ClassHierarchyCache.getClassHierarchyIterable (aSrcClass))
     {
-      final Class <?> aCurSrcClass = aCurWRSrcClass.get ();
-      if (aCurSrcClass != null)
+      // Do we have a source converter?
+      final Map <Class <?>, ITypeConverter <?, ?>> aConverterMap = m_aConverter.get (aCurSrcClass);
+      if (aConverterMap != null)
       {
-        // Do we have a source converter?
-        final Map <Class <?>, ITypeConverter <?, ?>> aConverterMap = m_aConverter.get (aCurSrcClass);
-        if (aConverterMap != null)
+        // Check explicit destination classes
+        final ITypeConverter <?, ?> aConverter = aConverterMap.get (aDstClass);
+        if (aConverter != null)
         {
-          // Check explicit destination classes
-          final ITypeConverter <?, ?> aConverter = aConverterMap.get (aDstClass);
-          if (aConverter != null)
-          {
-            // We found a match -> invoke the callback!
-            if (aCallback.call (aCurSrcClass, aDstClass, aConverter).isBreak ())
-              break;
-          }
+          // We found a match -> invoke the callback!
+          if (aCallback.call (aCurSrcClass, aDstClass, aConverter).isBreak ())
+            break;
         }
       }
     }
   }
 
-  /**
-   * Get the converter that can convert objects from aSrcClass to aDstClass. If
-   * no exact match is found, the super-classes and interface of source and
-   * destination class are searched for matching type converters. The first
-   * match is returned.
-   *
-   * @param aSrcClass
-   *        Source class. May not be <code>null</code>.
-   * @param aDstClass
-   *        Destination class. May not be <code>null</code>.
-   * @return <code>null</code> if no such type converter exists, the converter
-   *         object otherwise.
-   */
   @Nullable
-  ITypeConverter <?, ?> getFuzzyConverter (@Nullable final Class <?> aSrcClass, @Nullable final Class <?> aDstClass)
+  private ITypeConverter <?, ?> _getFuzzyConverter (@Nonnull final Class <?> aSrcClass, @Nonnull final Class <?> aDstClass)
   {
-    if (aSrcClass == null || aDstClass == null)
-      return null;
-
     return m_aRWLock.readLockedGet ( () -> {
       if (GlobalDebug.isDebugMode ())
       {
@@ -325,6 +357,85 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
     });
   }
 
+  /**
+   * Get the converter that can convert objects from aSrcClass to aDstClass. If
+   * no exact match is found, the super-classes and interface of source and
+   * destination class are searched for matching type converters. The first
+   * match is returned.<br>
+   * Since v9.4.3 the result, including a negative result, is cached until the
+   * registry is modified.
+   *
+   * @param aSrcClass
+   *        Source class. May not be <code>null</code>.
+   * @param aDstClass
+   *        Destination class. May not be <code>null</code>.
+   * @return <code>null</code> if no such type converter exists, the converter
+   *         object otherwise.
+   */
+  @Nullable
+  ITypeConverter <?, ?> getFuzzyConverter (@Nullable final Class <?> aSrcClass, @Nullable final Class <?> aDstClass)
+  {
+    if (aSrcClass == null || aDstClass == null)
+      return null;
+
+    // Read the cache before the lock is acquired during resolution
+    final ResolvedConverterCache aCache = m_aFuzzyCache;
+    ITypeConverter <?, ?> ret = aCache.get (aSrcClass, aDstClass);
+    if (ret == null)
+    {
+      // Not yet resolved - concurrent resolution of the same pair is harmless
+      ret = _getFuzzyConverter (aSrcClass, aDstClass);
+      aCache.put (aSrcClass, aDstClass, ret == null ? NO_CONVERTER : ret);
+      return ret;
+    }
+    return ret == NO_CONVERTER ? null : ret;
+  }
+
+  /**
+   * Get the best matching converter that can convert objects from aSrcClass to
+   * aDstClass. The exact converter is preferred over the rule based converter,
+   * and the rule based converter is preferred over the fuzzy converter. Exact
+   * and fuzzy results, including a negative result, are cached until the
+   * registry is modified. Rule based results are never cached, because a rule
+   * may remember the destination class in
+   * {@link ITypeConverterRule#canConvert(Class, Class)}.
+   *
+   * @param aSrcClass
+   *        Source class. May not be <code>null</code>.
+   * @param aDstClass
+   *        Destination class. May not be <code>null</code>.
+   * @return <code>null</code> if no such type converter exists, the converter
+   *         object otherwise.
+   * @since 9.4.3
+   */
+  @Nullable
+  ITypeConverter <?, ?> getBestMatchConverter (@Nullable final Class <?> aSrcClass, @Nullable final Class <?> aDstClass)
+  {
+    if (aSrcClass == null || aDstClass == null)
+      return null;
+
+    // Read the cache before the lock is acquired during resolution
+    final ResolvedConverterCache aCache = m_aBestMatchCache;
+    ITypeConverter <?, ?> ret = aCache.get (aSrcClass, aDstClass);
+    if (ret != null)
+      return ret == NO_CONVERTER ? null : ret;
+
+    // Find exact hit first
+    ret = getExactConverter (aSrcClass, aDstClass);
+    if (ret == null)
+    {
+      // No exact match was found -> try rule based converter
+      ret = getRuleBasedConverter (aSrcClass, aDstClass);
+      if (ret != null)
+        return ret;
+
+      // No rule based match was found -> try fuzzy converter
+      ret = getFuzzyConverter (aSrcClass, aDstClass);
+    }
+    aCache.put (aSrcClass, aDstClass, ret == null ? NO_CONVERTER : ret);
+    return ret;
+  }
+
   /**
    * Iterate all registered type converters. For informational purposes only.
    *
@@ -361,9 +472,10 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
   {
     ValueEnforcer.notNull (aTypeConverterRule, "TypeConverterRule");
 
-    m_aRWLock.writeLockedBoolean ( () -> m_aRules.computeIfAbsent (aTypeConverterRule.getSubType (),
-                                                            x -> new CommonsArrayList <> ())
-                                          .add (aTypeConverterRule));
+    m_aRWLock.writeLocked ( () -> {
+      _invalidateResolvedConverters ();
+      m_aRules.computeIfAbsent (aTypeConverterRule.getSubType (), x -> new CommonsArrayList <> ()).add (aTypeConverterRule);
+    });
 
     if (LOGGER.isTraceEnabled ())
       LOGGER.trace ("Registered type converter rule " +
@@ -386,6 +498,7 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
   private void _reinitialize ()
   {
     m_aRWLock.writeLocked ( () -> {
+      _invalidateResolvedConverters ();
       m_aConverter.clear ();
       m_aRules.clear ();
 
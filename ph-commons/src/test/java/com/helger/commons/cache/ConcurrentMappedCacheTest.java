@@ -0,0 +1,387 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.helger.commons.concurrent.ThreadHelper;
+import com.helger.commons.statistics.IStatisticsHandlerCache;
+import com.helger.commons.statistics.StatisticsManager;
+import com.helger.commons.string.StringHelper;
+
+/**
+ * Test class for class {@link ConcurrentMappedCache}.
+ *
+ * @author Philip Helger
+ */
+public final class ConcurrentMappedCacheTest
+{
+  @Test
+  public void testMaxSize ()
+  {
+    final int nMaxSize = 5;
+    final ConcurrentMappedCache <String, String, String> c = new ConcurrentMappedCache <> (x -> x,
+                                                                                           x -> x,
+                                                                                           nMaxSize,
+                                                                                           "MockConcurrent",
+                                                                                           false);
+    assertTrue (c.hasMaxSize ());
+    assertEquals (nMaxSize, c.getMaxSize ());
+
+    for (int i = 0; i < nMaxSize * 2; ++i)
+      c.getFromCache ("anything" + i);
+    assertEquals (nMaxSize, c.size ());
+    assertFalse (c.isInCache ("anything0"));
+    assertFalse (c.isInCache ("anything4"));
+    assertTrue (c.isInCache ("anything5"));
+    assertTrue (c.isInCache ("anything9"));
+  }
+
+  @Test
+  public void testLRUSecondChance ()
+  {
+    final ConcurrentMappedCache <String, String, String> c = new ConcurrentMappedCache <> (x -> x,
+                                                                                           x -> x,
+                                                                                           3,
+                                                                                           "MockConcurrent",
+                                                                                           false);
+    c.getFromCache ("a");
+    c.getFromCache ("b");
+    c.getFromCache ("c");
+    // Access "a" so that "b" is the least recently used one
+    c.getFromCache ("a");
+    c.getFromCache ("d");
+    assertEquals (3, c.size ());
+    assertTrue (c.isInCache ("a"));
+    assertFalse (c.isInCache ("b"));
+    assertTrue (c.isInCache ("c"));
+    assertTrue (c.isInCache ("d"));
+  }
+
+  @Test
+  public void testClockQueueBounded ()
+  {
+    // Unbounded caches don't need the CLOCK at all
+    final ConcurrentMappedCache <String, String, String> c = new ConcurrentMappedCache <> (x -> x,
+                                                                                           x -> x,
+                                                                                           0,
+                                                                                           "MockConcurrent",
+                                                                                           false);
+    for (int i = 0; i < 1000; ++i)
+      c.getFromCache ("a" + i);
+    assertEquals (1000, c.size ());
+    assertEquals (0, c.getClockQueueSize ());
+
+    // Removal churn in a bounded cache must not let the queue grow
+    final ConcurrentMappedCache <String, String, String> c2 = new ConcurrentMappedCache <> (x -> x,
+                                                                                            x -> x,
+                                                                                            100,
+                                                                                            "MockConcurrent",
+                                                                                            false);
+    for (int i = 0; i < 10_000; ++i)
+    {
+      c2.getFromCache ("a" + i);
+      c2.removeFromCache ("a" + i);
+    }
+    assertEquals (0, c2.size ());
+    assertTrue (c2.getClockQueueSize () <= 20);
+
+    // Same for expiration
+    final ConcurrentMappedCache <String, String, String> c3 = new ConcurrentMappedCache.Builder <String, String, String> ().setCacheKeyProvider (x -> x)
+                                                                                                                           .setValueProvider (x -> x)
+                                                                                                                           .setMaxSize (100)
+                                                                                                                           .setName ("MockConcurrent")
+                                                                                                                           .setTTL (Duration.ZERO)
+                                                                                                                           .build ();
+    for (int i = 0; i < 10_000; ++i)
+      c3.getFromCache ("a");
+    assertTrue (c3.getClockQueueSize () <= 20);
+  }
+
+  @Test
+  public void testTinyLFU ()
+  {
+    final ConcurrentMappedCache <String, String, String> c = new ConcurrentMappedCache.Builder <String, String, String> ().setCacheKeyProvider (x -> x)
+                                                                                                                          .setValueProvider (x -> x)
+                                                                                                                          .setMaxSize (3)
+                                                                                                                          .setName ("MockConcurrent")
+                                                                                                                          .setEvictionPolicy (new CacheEvictionPolicyTinyLFU (3,
+                                                                                                                                                                              0))
+                                                                                                                          .build ();
+    // Make "a" frequently used
+    for (int i = 0; i < 5; ++i)
+      c.getFromCache ("a");
+    c.getFromCache ("b");
+    c.getFromCache ("c");
+    c.removeFromCache ("b");
+    c.getFromCache ("b");
+    // Scan with one-hit wonders
+    for (int i = 0; i < 20; ++i)
+      c.getFromCache ("scan" + i);
+    assertEquals (3, c.size ());
+    assertTrue (c.isInCache ("a"));
+    assertFalse (c.isInCache ("scan19"));
+  }
+
+  @Test
+  public void testWindowTinyLFU ()
+  {
+    final ConcurrentMappedCache <String, String, String> c = new ConcurrentMappedCache.Builder <String, String, String> ().setCacheKeyProvider (x -> x)
+                                                                                                                          .setValueProvider (x -> x)
+                                                                                                                          .setMaxSize (100)
+                                                                                                                          .setName ("MockConcurrent")
+                                                                                                                          .setEvictionPolicy (new CacheEvictionPolicyTinyLFU (100))
+                                                                                                                          .build ();
+    // Frequently used entries
+    for (int n = 0; n < 5; ++n)
+      for (int i = 0; i < 50; ++i)
+        c.getFromCache ("hot" + i);
+    // Scan with one-hit wonders
+    for (int i = 0; i < 1000; ++i)
+      c.getFromCache ("scan" + i);
+    assertEquals (100, c.size ());
+    for (int i = 0; i < 50; ++i)
+      assertTrue (c.isInCache ("hot" + i));
+    // The most recent entry is in the window
+    assertTrue (c.isInCache ("scan999"));
+    assertFalse (c.isInCache ("scan998"));
+
+    // A new entry with a burst of accesses is admitted after leaving the window
+    for (int i = 0; i < 3; ++i)
+      c.getFromCache ("burst");
+    for (int i = 0; i < 10; ++i)
+      c.getFromCache ("scan" + i);
+    assertTrue (c.isInCache ("burst"));
+    for (int i = 0; i < 50; ++i)
+      assertTrue (c.isInCache ("hot" + i));
+    assertEquals (100, c.size ());
+
+    // Plain TinyLFU rejects new entries immediately
+    final ConcurrentMappedCache <String, String, String> c2 = new ConcurrentMappedCache.Builder <String, String, String> ().setCacheKeyProvider (x -> x)
+                                                                                                                           .setValueProvider (x -> x)
+                                                                                                                           .setMaxSize (100)
+                                                                                                                           .setName ("MockConcurrent")
+                                                                                                                           .setEvictionPolicy (new CacheEvictionPolicyTinyLFU (100,
+                                                                                                                                                                               0))
+                                                                                                                           .build ();
+    for (int i = 0; i < 1000; ++i)
+      c2.getFromCache ("scan" + i);
+    assertFalse (c2.isInCache ("scan999"));
+  }
+
+  @Test
+  public void testTinyLFURecordConcurrent () throws Exception
+  {
+    final CacheEvictionPolicyTinyLFU aPolicy = new CacheEvictionPolicyTinyLFU (100);
+    final int nThreads = 8;
+    final ExecutorService aES = Executors.newFixedThreadPool (nThreads);
+    for (int i = 0; i < nThreads; ++i)
+      aES.submit ( () -> {
+        for (int j = 0; j < 1000; ++j)
+          aPolicy.recordAccess ("a");
+      });
+    aES.shutdown ();
+    assertTrue (aES.awaitTermination (10, TimeUnit.SECONDS));
+    assertEquals (15, aPolicy.getFrequency ("a"));
+
+    // Buffered accesses are counted
+    aPolicy.recordAccess ("b");
+    aPolicy.recordAccess ("b");
+    assertEquals (2, aPolicy.getFrequency ("b"));
+
+    aPolicy.clear ();
+    assertEquals (0, aPolicy.getFrequency ("a"));
+    assertEquals (0, aPolicy.getFrequency ("b"));
+  }
+
+  @Test
+  public void testClearConcurrent () throws Exception
+  {
+    final ConcurrentMappedCache <String, String, String> c = new ConcurrentMappedCache <> (x -> x,
+                                                                                           x -> x,
+                                                                                           50,
+                                                                                           "MockConcurrent",
+                                                                                           false);
+    final int nThreads = 4;
+    final AtomicInteger aRunning = new AtomicInteger (1);
+    final ExecutorService aES = Executors.newFixedThreadPool (nThreads);
+    for (int i = 0; i < nThreads; ++i)
+    {
+      final int nThread = i;
+      aES.submit ( () -> {
+        int j = 0;
+        while (aRunning.get () > 0)
+          c.getFromCache (nThread + "-" + j++);
+      });
+    }
+    for (int i = 0; i < 2000; ++i)
+      c.clearCache ();
+    aRunning.set (0);
+    aES.shutdown ();
+    assertTrue (aES.awaitTermination (10, TimeUnit.SECONDS));
+
+    // All entries are still known to the CLOCK and can be evicted
+    for (int i = 0; i < 200; ++i)
+      c.getFromCache ("x" + i);
+    assertEquals (50, c.size ());
+    for (int i = 150; i < 200; ++i)
+      assertTrue (c.isInCache ("x" + i));
+  }
+
+  @Test
+  public void testWeight ()
+  {
+    final ConcurrentMappedCache <String, String, String> c = new ConcurrentMappedCache.Builder <String, String, String> ().setCacheKeyProvider (x -> x)
+                                                                                                                          .setValueProvider (x -> x)
+                                                                                                                          .setName ("MockConcurrent")
+                                                                                                                          .setWeigher (String::length,
+                                                                                                                                       10)
+                                                                                                                          .build ();
+    assertTrue (c.hasMaxWeight ());
+    assertFalse (c.hasMaxSize ());
+    c.getFromCache ("aaaa");
+    c.getFromCache ("bbbb");
+    assertEquals (8, c.getTotalWeight ());
+    c.getFromCache ("cccc");
+    assertEquals (2, c.size ());
+    assertEquals (8, c.getTotalWeight ());
+    assertFalse (c.isInCache ("aaaa"));
+  }
+
+  @Test
+  public void testTTL ()
+  {
+    final ConcurrentMappedCache <String, String, String> c = new ConcurrentMappedCache.Builder <String, String, String> ().setCacheKeyProvider (x -> x)
+                                                                                                                          .setValueProvider (x -> x)
+                                                                                                                          .setName ("MockConcurrent")
+                                                                                                                          .setTTLProvider ( (k,
+                                                                                                                                             v) -> k.startsWith ("short") ? Duration.ofMillis (10)
+                                                                                                                                                                         : null)
+                                                                                                                          .build ();
+    c.getFromCache ("short");
+    c.getFromCache ("long");
+    assertEquals (2, c.size ());
+    ThreadHelper.sleep (50);
+    assertFalse (c.isInCache ("short"));
+    assertTrue (c.isInCache ("long"));
+    assertEquals (1, c.removeExpired ());
+    assertEquals (1, c.size ());
+  }
+
+  @Test
+  public void testSingleFlight () throws Exception
+  {
+    final AtomicInteger aCalls = new AtomicInteger ();
+    final CountDownLatch aStart = new CountDownLatch (1);
+    final ConcurrentMappedCache <String, String, String> c = new ConcurrentMappedCache <> (x -> x, x -> {
+      aCalls.incrementAndGet ();
+      ThreadHelper.sleep (50);
+      return x + x;
+    }, MappedCache.NO_MAX_SIZE, "MockConcurrentSingleFlight", false);
+
+    final int nThreads = 16;
+    final ExecutorService aES = Executors.newFixedThreadPool (nThreads);
+    final AtomicInteger aOK = new AtomicInteger ();
+    for (int i = 0; i < nThreads; ++i)
+      aES.submit ( () -> {
+        aStart.await ();
+        if ("xx".equals (c.getFromCache ("x")))
+          aOK.incrementAndGet ();
+        return null;
+      });
+    aStart.countDown ();
+    aES.shutdown ();
+    assertTrue (aES.awaitTermination (10, TimeUnit.SECONDS));
+    assertEquals (1, aCalls.get ());
+    assertEquals (nThreads, aOK.get ());
+
+    final IStatisticsHandlerCache aStats = StatisticsManager.getCacheHandler (MappedCache.STATISTICS_PREFIX +
+                                                                              "MockConcurrentSingleFlight$access");
+    assertEquals (1, aStats.getMisses ());
+    assertEquals (nThreads - 1, aStats.getHits ());
+  }
+
+  @Test
+  public void testNullStoreKey ()
+  {
+    final ConcurrentMappedCache <String, String, String> c = new ConcurrentMappedCache <> (x -> x,
+                                                                                           StringHelper::getNotNull,
+                                                                                           MappedCache.NO_MAX_SIZE,
+                                                                                           "MockConcurrent",
+                                                                                           false);
+    try
+    {
+      // null key not allowed
+      c.getFromCache (null);
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+    assertTrue (c.isEmpty ());
+  }
+
+  @Test
+  public void testNullValue ()
+  {
+    final ConcurrentMappedCache <String, String, String> c = new ConcurrentMappedCache <> (x -> x,
+                                                                                           x -> "blub".equals (x) ? null
+                                                                                                                  : x,
+                                                                                           MappedCache.NO_MAX_SIZE,
+                                                                                           "MockConcurrent",
+                                                                                           false);
+    assertEquals ("v1", c.getFromCache ("v1"));
+    try
+    {
+      // null value not allowed
+      c.getFromCache ("blub");
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+    assertEquals (1, c.size ());
+    assertFalse (c.isInCache ("blub"));
+
+    final ConcurrentMappedCache <String, String, String> c2 = new ConcurrentMappedCache <> (x -> x,
+                                                                                            x -> "blub".equals (x) ? null
+                                                                                                                   : x,
+                                                                                            MappedCache.NO_MAX_SIZE,
+                                                                                            "MockConcurrent",
+                                                                                            true);
+    assertNull (c2.getFromCache ("blub"));
+    assertTrue (c2.isInCache ("blub"));
+    assertTrue (c2.removeFromCache ("blub").isChanged ());
+    assertTrue (c2.isEmpty ());
+    assertFalse (c2.clearCache ().isChanged ());
+  }
+}
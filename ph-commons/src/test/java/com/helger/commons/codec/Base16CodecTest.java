@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.helger.commons.io.stream.NonBlockingByteArrayInputStream;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+
+/**
+ * Test class for class {@link Base16Codec}
+ *
+ * @author Philip Helger
+ */
+public final class Base16CodecTest
+{
+  @Test
+  public void testByteBuffer ()
+  {
+    final Base16Codec aBase16 = new Base16Codec ();
+    final Random aRandom = new Random (42);
+    for (final boolean bDirect : new boolean [] { false, true })
+      for (int i = 0; i < 100; ++i)
+      {
+        final byte [] aData = new byte [i];
+        aRandom.nextBytes (aData);
+        final byte [] aExpected = aBase16.getEncoded (aData);
+
+        final ByteBuffer aSrc = bDirect ? ByteBuffer.allocateDirect (i) : ByteBuffer.allocate (i);
+        aSrc.put (aData).flip ();
+        final ByteBuffer aDst = bDirect ? ByteBuffer.allocateDirect (2 * i) : ByteBuffer.allocate (2 * i);
+        aBase16.encode (aSrc, aDst, true);
+        aDst.flip ();
+        final byte [] aEncoded = new byte [aDst.remaining ()];
+        aDst.get (aEncoded);
+        assertArrayEquals (aExpected, aEncoded);
+
+        final ByteBuffer aDecoded = ByteBuffer.allocate (i);
+        aBase16.decode (ByteBuffer.wrap (aEncoded), aDecoded, true);
+        assertArrayEquals (aData, aDecoded.array ());
+      }
+  }
+
+  @Test
+  public void testDecodeUpperCase ()
+  {
+    final ByteBuffer aDst = ByteBuffer.allocate (2);
+    new Base16Codec ().decode (ByteBuffer.wrap ("aBFf".getBytes (StandardCharsets.ISO_8859_1)), aDst, true);
+    assertEquals (0, aDst.remaining ());
+    assertEquals ((byte) 0xab, aDst.get (0));
+    assertEquals ((byte) 0xff, aDst.get (1));
+  }
+
+  @Test (expected = DecodeException.class)
+  public void testDecodeInvalid ()
+  {
+    new Base16Codec ().decode (ByteBuffer.wrap ("0g".getBytes (StandardCharsets.ISO_8859_1)), ByteBuffer.allocate (1), true);
+  }
+
+  @Test (expected = DecodeException.class)
+  public void testDecodePrematureEnd ()
+  {
+    new Base16Codec ().decode (ByteBuffer.wrap ("abc".getBytes (StandardCharsets.ISO_8859_1)), ByteBuffer.allocate (2), true);
+  }
+
+  @Test
+  public void testChannel ()
+  {
+    final Base16Codec aBase16 = new Base16Codec ();
+    final byte [] aData = new byte [100_000];
+    new Random (4711).nextBytes (aData);
+
+    final NonBlockingByteArrayOutputStream aEncoded = new NonBlockingByteArrayOutputStream ();
+    aBase16.encode (Channels.newChannel (new NonBlockingByteArrayInputStream (aData)), Channels.newChannel (aEncoded));
+    assertArrayEquals (aBase16.getEncoded (aData), aEncoded.toByteArray ());
+
+    final NonBlockingByteArrayOutputStream aDecoded = new NonBlockingByteArrayOutputStream ();
+    aBase16.decode (Channels.newChannel (new NonBlockingByteArrayInputStream (aEncoded.toByteArray ())),
+                    Channels.newChannel (aDecoded),
+                    17);
+    assertArrayEquals (aData, aDecoded.toByteArray ());
+  }
+}
@@ -16,12 +16,23 @@
  */
 package com.helger.commons.codec;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
 
 import org.junit.Test;
 
+import com.helger.commons.base64.Base64;
+import com.helger.commons.io.stream.NonBlockingByteArrayInputStream;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+
 /**
  * Test class for class {@link Base64Codec}
  *
@@ -51,4 +62,131 @@ public final class Base64CodecTest
     for (int i = 5; i <= 8; ++i)
       assertEquals (6, aBase64.getMaximumDecodedLength (i));
   }
+
+  @Nonnull
+  private static byte [] _getAsArray (@Nonnull final ByteBuffer aBuf)
+  {
+    aBuf.flip ();
+    final byte [] ret = new byte [aBuf.remaining ()];
+    aBuf.get (ret);
+    return ret;
+  }
+
+  @Nonnull
+  private static ByteBuffer _allocate (final int nSize, final boolean bDirect)
+  {
+    return bDirect ? ByteBuffer.allocateDirect (nSize) : ByteBuffer.allocate (nSize);
+  }
+
+  @Nonnull
+  private static ByteBuffer _wrap (@Nonnull final byte [] aData, final boolean bDirect)
+  {
+    final ByteBuffer ret = _allocate (aData.length, bDirect);
+    ret.put (aData).flip ();
+    return ret;
+  }
+
+  @Test
+  public void testByteBufferSameAsBase64 ()
+  {
+    final Base64Codec aBase64 = new Base64Codec ();
+    final Random aRandom = new Random (42);
+    for (final boolean bDirect : new boolean [] { false, true })
+      for (int i = 0; i < 300; ++i)
+      {
+        final byte [] aData = new byte [i];
+        aRandom.nextBytes (aData);
+        final byte [] aExpected = Base64.safeEncodeBytesToBytes (aData);
+
+        final ByteBuffer aEncoded = _allocate (aBase64.getMaximumEncodedLength (i), bDirect);
+        aBase64.encode (_wrap (aData, bDirect), aEncoded, true);
+        final byte [] aEncodedBytes = _getAsArray (aEncoded);
+        assertArrayEquals (aExpected, aEncodedBytes);
+        assertArrayEquals (aExpected, aBase64.getEncoded (aData));
+
+        final ByteBuffer aDecoded = _allocate (aBase64.getMaximumDecodedLength (aEncodedBytes.length), bDirect);
+        aBase64.decode (_wrap (aEncodedBytes, bDirect), aDecoded, true);
+        assertArrayEquals (aData, _getAsArray (aDecoded));
+      }
+  }
+
+  @Test
+  public void testByteBufferSmallChunks ()
+  {
+    final Base64Codec aBase64 = new Base64Codec ();
+    final byte [] aData = new byte [1000];
+    new Random (17).nextBytes (aData);
+    final byte [] aEncodedExpected = Base64.safeEncodeBytesToBytes (aData, Base64.DO_BREAK_LINES);
+
+    // Feed the encoded data (with line breaks) in tiny pieces into tiny
+    // buffers - the destination needs space for at least one group
+    for (int nChunk = 1; nChunk < 12; ++nChunk)
+    {
+      final ByteBuffer aSrc = ByteBuffer.allocate (nChunk + 4);
+      final ByteBuffer aDst = ByteBuffer.allocate (nChunk + 2);
+      final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+      int nOfs = 0;
+      boolean bEnd = false;
+      while (!bEnd)
+      {
+        final int nCount = Math.min (aSrc.remaining (), aEncodedExpected.length - nOfs);
+        aSrc.put (aEncodedExpected, nOfs, nCount);
+        nOfs += nCount;
+        bEnd = nOfs == aEncodedExpected.length;
+        aSrc.flip ();
+        do
+        {
+          aDst.clear ();
+          aBase64.decode (aSrc, aDst, bEnd);
+          aDst.flip ();
+          aBAOS.write (aDst.array (), 0, aDst.limit ());
+        } while (aDst.limit () > 0);
+        aSrc.compact ();
+      }
+      assertArrayEquals (aData, aBAOS.toByteArray ());
+    }
+  }
+
+  @Test
+  public void testDecodeLenient ()
+  {
+    final Base64Codec aBase64 = new Base64Codec ();
+    final ByteBuffer aDst = ByteBuffer.allocate (100);
+    aBase64.decode (ByteBuffer.wrap (" Y W J j\r\nZA\t".getBytes (StandardCharsets.ISO_8859_1)), aDst, true);
+    assertEquals ("abcd", new String (_getAsArray (aDst), StandardCharsets.ISO_8859_1));
+
+    // Concatenated padded blocks
+    aDst.clear ();
+    aBase64.decode (ByteBuffer.wrap ("YQ==Yg==".getBytes (StandardCharsets.ISO_8859_1)), aDst, true);
+    assertEquals ("ab", new String (_getAsArray (aDst), StandardCharsets.ISO_8859_1));
+  }
+
+  @Test (expected = DecodeException.class)
+  public void testDecodeInvalidChar ()
+  {
+    new Base64Codec ().decode (ByteBuffer.wrap ("YW*j".getBytes (StandardCharsets.ISO_8859_1)), ByteBuffer.allocate (10), true);
+  }
+
+  @Test (expected = DecodeException.class)
+  public void testDecodePrematureEnd ()
+  {
+    new Base64Codec ().decode (ByteBuffer.wrap ("YWJjZ".getBytes (StandardCharsets.ISO_8859_1)), ByteBuffer.allocate (10), true);
+  }
+
+  @Test
+  public void testChannel ()
+  {
+    final Base64Codec aBase64 = new Base64Codec ();
+    final byte [] aData = new byte [200_000];
+    new Random (4711).nextBytes (aData);
+
+    final NonBlockingByteArrayOutputStream aEncoded = new NonBlockingByteArrayOutputStream ();
+    aBase64.encode (Channels.newChannel (new NonBlockingByteArrayInputStream (aData)), Channels.newChannel (aEncoded), 100);
+    assertArrayEquals (Base64.safeEncodeBytesToBytes (aData), aEncoded.toByteArray ());
+
+    final NonBlockingByteArrayOutputStream aDecoded = new NonBlockingByteArrayOutputStream ();
+    aBase64.decode (Channels.newChannel (new NonBlockingByteArrayInputStream (aEncoded.toByteArray ())),
+                    Channels.newChannel (aDecoded));
+    assertArrayEquals (aData, aDecoded.toByteArray ());
+  }
 }
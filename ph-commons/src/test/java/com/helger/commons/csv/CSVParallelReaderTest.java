@@ -0,0 +1,231 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.stream.NonBlockingStringReader;
+
+/**
+ * Test class for class {@link CSVParallelReader}.
+ *
+ * @author Philip Helger
+ */
+public final class CSVParallelReaderTest
+{
+  private static final String CSV = "a,b,aReader\n" +
+                                    "a,\"b,b,b\",aReader\n" +
+                                    ",,\n" +
+                                    "a,\"PO Box 123,\nKippax,ACT. 2615.\nAustralia\",d.\n" +
+                                    "\"Glen \"\"The Man\"\" Smith\",Athlete,Developer\n" +
+                                    "\"\"\"\"\"\",\"test\"\n" +
+                                    "\"a\nb\",b,\"\nd\",e\n" +
+                                    "a,bc\"d\"ef,g\n" +
+                                    "a,  \"b\",c\n" +
+                                    "\"a\\\"b\",\"c\\\\d\",e\r\n" +
+                                    "\n" +
+                                    "x,\"y\"z,\"\"\r" +
+                                    "\"\n\n\n\",\"\n\"\n" +
+                                    "last,line";
+
+  @Nonnull
+  private static ICommonsList <ICommonsList <String>> _readSequential (@Nonnull final String sCSV,
+                                                                       @Nonnull final CSVParser aParser,
+                                                                       final boolean bKeepCR,
+                                                                       final int nSkipLines) throws IOException
+  {
+    final ICommonsList <ICommonsList <String>> ret = new CommonsArrayList <> ();
+    try (final CSVRowReader aReader = new CSVRowReader (new NonBlockingStringReader (sCSV), aParser, bKeepCR))
+    {
+      aReader.setSkipLines (nSkipLines);
+      aReader.readAll (x -> ret.add (x.getAsList ()));
+    }
+    return ret;
+  }
+
+  private static void _assertSameAsSequential (@Nonnull final String sCSV,
+                                               final boolean bKeepCR,
+                                               final int nSkipLines,
+                                               @Nonnull final Consumer <CSVParser> aSettings) throws IOException
+  {
+    final CSVParser aParser = new CSVParser ();
+    aSettings.accept (aParser);
+    final ICommonsList <ICommonsList <String>> aExpected = _readSequential (sCSV, aParser, bKeepCR, nSkipLines);
+    final ICommonsList <String> aExpectedUnordered = new CommonsArrayList <> (aExpected, ICommonsList::toString);
+    Collections.sort (aExpectedUnordered);
+
+    final ForkJoinPool aPool = new ForkJoinPool (4);
+    try
+    {
+      // Use all chunk sizes, so that every line is a chunk border once
+      for (int nChunkSize = 1; nChunkSize <= sCSV.length () + 1; ++nChunkSize)
+      {
+        final CSVParallelReader aReader = new CSVParallelReader (aParser).setKeepCarriageReturns (bKeepCR)
+                                                                          .setSkipLines (nSkipLines)
+                                                                          .setChunkSize (nChunkSize)
+                                                                          .setPool (aPool);
+
+        // Ordered
+        assertEquals ("ChunkSize " + nChunkSize,
+                      aExpected,
+                      aReader.getStream (sCSV.toCharArray ()).collect (Collectors.toList ()));
+
+        // Unordered
+        final ICommonsList <String> aUnordered = new CommonsArrayList <> ();
+        aReader.forEachRow (sCSV.toCharArray (), x -> {
+          final String sRow = x.getAsList ().toString ();
+          synchronized (aUnordered)
+          {
+            aUnordered.add (sRow);
+          }
+        });
+        Collections.sort (aUnordered);
+        assertEquals ("ChunkSize " + nChunkSize, aExpectedUnordered, aUnordered);
+      }
+    }
+    finally
+    {
+      aPool.shutdown ();
+    }
+  }
+
+  @Test
+  public void testSameAsSequential () throws IOException
+  {
+    _assertSameAsSequential (CSV, false, 0, x -> {});
+    _assertSameAsSequential (CSV, true, 0, x -> {});
+    _assertSameAsSequential (CSV, false, 3, x -> {});
+    _assertSameAsSequential (CSV, false, 0, x -> x.setStrictQuotes (true));
+    _assertSameAsSequential (CSV, false, 0, x -> x.setIgnoreQuotations (true));
+    _assertSameAsSequential (CSV, false, 0, x -> x.setEscapeChar (CCSV.NULL_CHARACTER));
+    _assertSameAsSequential ("", false, 0, x -> {});
+    _assertSameAsSequential ("\"unterminated\n\nquote", false, 0, x -> {});
+  }
+
+  @Test
+  public void testFileWithCarriageReturns () throws IOException
+  {
+    final File aFile = File.createTempFile ("ph-commons-csv", ".csv");
+    try
+    {
+      for (final String sCSV : new String [] { "h1,h2\ra,b\rc,d\r",
+                                               "\"x\ny\"\r1,2\n3,4\n",
+                                               "a,\"Grüße\r\nb\rc\",€\r1,\"x\ny\"\r\n2,3\r\r4,\"\r\"\n5,6" })
+      {
+        Files.write (aFile.toPath (), sCSV.getBytes (StandardCharsets.UTF_8));
+        for (final int nSkipLines : new int [] { 0, 1, 2 })
+        {
+          final ICommonsList <ICommonsList <String>> aExpected = _readSequential (sCSV, new CSVParser (), false, nSkipLines);
+          for (int nChunkSize = 1; nChunkSize <= sCSV.length () + 1; ++nChunkSize)
+          {
+            final CSVParallelReader aReader = new CSVParallelReader ().setSkipLines (nSkipLines).setChunkSize (nChunkSize);
+            final String sMsg = "CSV '" + sCSV + "', SkipLines " + nSkipLines + ", ChunkSize " + nChunkSize;
+            assertEquals (sMsg, aExpected, aReader.getStream (aFile.toPath (), StandardCharsets.UTF_8).collect (Collectors.toList ()));
+            // Same as the char array based reader
+            assertEquals (sMsg, aExpected, aReader.getStream (sCSV.toCharArray ()).collect (Collectors.toList ()));
+          }
+        }
+      }
+    }
+    finally
+    {
+      Files.delete (aFile.toPath ());
+    }
+  }
+
+  @Test
+  public void testFile () throws IOException
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    for (int i = 0; i < 1000; ++i)
+      aSB.append (i).append (",\"Grüße\n").append (i).append ("\",€").append (i).append ('\n');
+    final String sCSV = aSB.toString ();
+
+    final File aFile = File.createTempFile ("ph-commons-csv", ".csv");
+    try
+    {
+      Files.write (aFile.toPath (), sCSV.getBytes (StandardCharsets.UTF_8));
+      final ICommonsList <ICommonsList <String>> aExpected = _readSequential (sCSV, new CSVParser (), false, 0);
+      assertEquals (1000, aExpected.size ());
+
+      for (final int nChunkSize : new int [] { 1, 7, 100, 1024, CSVParallelReader.DEFAULT_CHUNK_SIZE })
+      {
+        final CSVParallelReader aReader = new CSVParallelReader ().setChunkSize (nChunkSize);
+        assertEquals (aExpected,
+                      aReader.getStream (aFile.toPath (), StandardCharsets.UTF_8).collect (Collectors.toList ()));
+      }
+
+      // Quoted line feeds and CR/LF at all chunk borders
+      final String sCSV2 = CSV + "\n\"Grüße\n€\",x\r\n";
+      Files.write (aFile.toPath (), sCSV2.getBytes (StandardCharsets.UTF_8));
+      for (final int nSkipLines : new int [] { 0, 3 })
+      {
+        final ICommonsList <ICommonsList <String>> aExpected2 = _readSequential (sCSV2, new CSVParser (), false, nSkipLines);
+        final ICommonsList <String> aExpectedUnordered = new CommonsArrayList <> (aExpected2, ICommonsList::toString);
+        Collections.sort (aExpectedUnordered);
+        for (int nChunkSize = 1; nChunkSize <= sCSV2.length () + 1; ++nChunkSize)
+        {
+          final CSVParallelReader aReader = new CSVParallelReader ().setSkipLines (nSkipLines).setChunkSize (nChunkSize);
+          assertEquals ("ChunkSize " + nChunkSize,
+                        aExpected2,
+                        aReader.getStream (aFile.toPath (), StandardCharsets.UTF_8).collect (Collectors.toList ()));
+
+          final ICommonsList <String> aUnordered = new CommonsArrayList <> ();
+          aReader.forEachRow (aFile.toPath (), StandardCharsets.UTF_8, x -> {
+            final String sRow = x.getAsList ().toString ();
+            synchronized (aUnordered)
+            {
+              aUnordered.add (sRow);
+            }
+          });
+          Collections.sort (aUnordered);
+          assertEquals ("ChunkSize " + nChunkSize, aExpectedUnordered, aUnordered);
+        }
+      }
+
+      try
+      {
+        new CSVParallelReader ().getStream (aFile.toPath (), StandardCharsets.UTF_16);
+        fail ();
+      }
+      catch (final IllegalArgumentException ex)
+      {
+        // expected
+      }
+    }
+    finally
+    {
+      Files.delete (aFile.toPath ());
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.stream.NonBlockingStringReader;
+
+/**
+ * Test class for class {@link CSVRowReader}.
+ *
+ * @author Philip Helger
+ */
+public final class CSVRowReaderTest
+{
+  private static final String CSV = "a,b,aReader\n" +
+                                    "a,\"b,b,b\",aReader\n" +
+                                    ",,\n" +
+                                    "a,\"PO Box 123,\nKippax,ACT. 2615.\nAustralia\",d.\n" +
+                                    "\"Glen \"\"The Man\"\" Smith\",Athlete,Developer\n" +
+                                    "\"\"\"\"\"\",\"test\"\n" +
+                                    "\"a\nb\",b,\"\nd\",e\n" +
+                                    "a,bc\"d\"ef,g\n" +
+                                    "a,  \"b\",c\n" +
+                                    "\"a\\\"b\",\"c\\\\d\",e\r\n" +
+                                    "\n" +
+                                    "x,\"y\"z,\"\"\r" +
+                                    "last,line";
+
+  @Nonnull
+  private static ICommonsList <ICommonsList <String>> _readAllLegacy (@Nonnull final String sCSV,
+                                                                      @Nonnull final Consumer <CSVParser> aSettings) throws IOException
+  {
+    final CSVParser aParser = new CSVParser ();
+    aSettings.accept (aParser);
+    try (final CSVReader aReader = new CSVReader (new NonBlockingStringReader (sCSV), aParser, false))
+    {
+      return aReader.readAll ();
+    }
+  }
+
+  @Nonnull
+  private static ICommonsList <ICommonsList <String>> _readAllRows (@Nonnull final String sCSV,
+                                                                    @Nonnull final Consumer <CSVParser> aSettings,
+                                                                    final int nBufferSize) throws IOException
+  {
+    final CSVParser aParser = new CSVParser ();
+    aSettings.accept (aParser);
+    final ICommonsList <ICommonsList <String>> ret = new CommonsArrayList <> ();
+    try (final CSVRowReader aReader = new CSVRowReader (new NonBlockingStringReader (sCSV), aParser, false, nBufferSize))
+    {
+      aReader.readAll (x -> ret.add (x.getAsList ()));
+    }
+    return ret;
+  }
+
+  private static void _assertSameAsLegacy (@Nonnull final String sCSV,
+                                           @Nonnull final Consumer <CSVParser> aSettings) throws IOException
+  {
+    final ICommonsList <ICommonsList <String>> aExpected = _readAllLegacy (sCSV, aSettings);
+    // Use tiny buffers to enforce refilling and growing
+    for (final int nBufferSize : new int [] { 1, 2, 3, 7, CSVRowReader.DEFAULT_BUFFER_SIZE })
+      assertEquals ("Buffer size " + nBufferSize, aExpected, _readAllRows (sCSV, aSettings, nBufferSize));
+  }
+
+  @Test
+  public void testSameAsCSVReader () throws IOException
+  {
+    assertEquals (13, _readAllLegacy (CSV, x -> {}).size ());
+    _assertSameAsLegacy (CSV, x -> {});
+    _assertSameAsLegacy (CSV, x -> x.setStrictQuotes (true));
+    _assertSameAsLegacy (CSV, x -> x.setIgnoreLeadingWhiteSpace (false));
+    _assertSameAsLegacy (CSV, x -> x.setIgnoreQuotations (true));
+    _assertSameAsLegacy (CSV, x -> x.setSeparatorChar ('\t'));
+    _assertSameAsLegacy (CSV, x -> x.setEscapeChar (CCSV.NULL_CHARACTER));
+    _assertSameAsLegacy (CSV.replace (',', ';'), x -> x.setSeparatorChar (';').setQuoteChar ('\''));
+    _assertSameAsLegacy ("", x -> {});
+    _assertSameAsLegacy ("a", x -> {});
+    _assertSameAsLegacy ("a,b\n", x -> {});
+  }
+
+  @Test
+  public void testUnterminatedQuote () throws IOException
+  {
+    try (final CSVRowReader aReader = new CSVRowReader (new NonBlockingStringReader ("a,b,\"c\nd")))
+    {
+      final CSVRow aRow = aReader.readNextRow ();
+      assertNotNull (aRow);
+      assertEquals (new CommonsArrayList <> ("a", "b"), aRow.getAsList ());
+      assertNull (aReader.readNextRow ());
+    }
+  }
+
+  @Test
+  public void testSkipLinesAndKeepCR () throws IOException
+  {
+    try (final CSVRowReader aReader = new CSVRowReader (new NonBlockingStringReader ("header\r\na,b\r\nc,d\r\n"),
+                                                        new CSVParser (),
+                                                        true).setSkipLines (1))
+    {
+      final CSVRow aRow = aReader.readNextRow ();
+      assertNotNull (aRow);
+      assertEquals (new CommonsArrayList <> ("a", "b\r"), aRow.getAsList ());
+      // Row object is reused
+      assertSame (aRow, aReader.readNextRow ());
+      assertEquals (new CommonsArrayList <> ("c", "d\r"), aRow.getAsList ());
+      assertNull (aReader.readNextRow ());
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.commons.io.stream.NonBlockingStringReader;
+
+/**
+ * Test class for class {@link CSVRow}.
+ *
+ * @author Philip Helger
+ */
+public final class CSVRowTest
+{
+  @Nonnull
+  private static CSVRow _read (@Nonnull final String sLine) throws IOException
+  {
+    try (final CSVRowReader aReader = new CSVRowReader (new NonBlockingStringReader (sLine)))
+    {
+      final CSVRow ret = aReader.readNextRow ();
+      assertNotNull (ret);
+      return ret;
+    }
+  }
+
+  @Test
+  public void testFields () throws IOException
+  {
+    final CSVRow aRow = _read ("abc,,\"d,e\"");
+    assertEquals (3, aRow.getFieldCount ());
+    assertEquals ("abc", aRow.getAsString (0));
+    assertTrue (aRow.isFieldEmpty (1));
+    assertFalse (aRow.isFieldEmpty (2));
+
+    final CharSequence aField = aRow.getField (2);
+    assertEquals (3, aField.length ());
+    assertEquals ('d', aField.charAt (0));
+    assertEquals (",e", aField.subSequence (1, 3).toString ());
+    assertEquals ("d,e", aField.toString ());
+
+    try
+    {
+      aRow.getField (3);
+      fail ();
+    }
+    catch (final IndexOutOfBoundsException ex)
+    {
+      // expected
+    }
+    try
+    {
+      aField.charAt (3);
+      fail ();
+    }
+    catch (final IndexOutOfBoundsException ex)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testNumeric () throws IOException
+  {
+    final CSVRow aRow = _read ("0,-17,+42,2147483647,2147483648,-9223372036854775808,9223372036854775808,1a,,-,12.50");
+    assertEquals (0, aRow.getAsInt (0, -1));
+    assertEquals (-17, aRow.getAsInt (1, -1));
+    assertEquals (42, aRow.getAsInt (2, -1));
+    assertEquals (Integer.MAX_VALUE, aRow.getAsInt (3, -1));
+    assertEquals (-1, aRow.getAsInt (4, -1));
+    assertEquals (2147483648L, aRow.getAsLong (4, -1));
+    assertEquals (Long.MIN_VALUE, aRow.getAsLong (5, -1));
+    assertEquals (-1, aRow.getAsLong (6, -1));
+    assertEquals (-1, aRow.getAsInt (7, -1));
+    assertEquals (-1, aRow.getAsInt (8, -1));
+    assertEquals (-1, aRow.getAsLong (9, -1));
+    assertEquals (-1, aRow.getAsInt (10, -1));
+
+    assertEquals (new BigDecimal ("12.50"), aRow.getAsBigDecimal (10, null));
+    assertEquals (new BigDecimal ("-17"), aRow.getAsBigDecimal (1, null));
+    assertNull (aRow.getAsBigDecimal (7, null));
+    assertEquals (BigDecimal.ONE, aRow.getAsBigDecimal (8, BigDecimal.ONE));
+  }
+
+  @Test
+  public void testDate () throws IOException
+  {
+    final CSVRow aRow = _read ("2020-05-01,01.05.2020,,2020-13-01");
+    assertEquals (LocalDate.of (2020, 5, 1), aRow.getAsLocalDate (0, DateTimeFormatter.ISO_LOCAL_DATE));
+    assertEquals (LocalDate.of (2020, 5, 1), aRow.getAsLocalDate (1, DateTimeFormatter.ofPattern ("dd.MM.uuuu")));
+    assertNull (aRow.getAsLocalDate (1, DateTimeFormatter.ISO_LOCAL_DATE));
+    assertNull (aRow.getAsLocalDate (2, DateTimeFormatter.ISO_LOCAL_DATE));
+    assertNull (aRow.getAsLocalDate (3, DateTimeFormatter.ISO_LOCAL_DATE));
+  }
+}
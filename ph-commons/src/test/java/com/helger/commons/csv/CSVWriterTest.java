@@ -53,6 +53,7 @@ import org.junit.Test;
 
 import com.helger.commons.collection.impl.CommonsArrayList;
 import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.stream.NonBlockingStringReader;
 import com.helger.commons.io.stream.NonBlockingStringWriter;
 import com.helger.commons.io.stream.NonClosingWriter;
 import com.helger.commons.string.StringHelper;
@@ -504,4 +505,50 @@ public final class CSVWriterTest
       assertEquals ("Foo,\"ab\\\"cd\",baz\nFoo,\"ab\\\"cd\",baz\n", aSW.getAsString ());
     }
   }
+
+  @Test
+  public void testWriteNextRow () throws IOException
+  {
+    final String sCSV = "a,\"b,c\",\"d\"\"e\"\n,\"f\ng\",h\\i\n";
+    final NonBlockingStringWriter aSW = new NonBlockingStringWriter ();
+    try (final CSVRowReader aReader = new CSVRowReader (new NonBlockingStringReader (sCSV));
+         final CSVWriter aWriter = new CSVWriter (new NonClosingWriter (aSW)))
+    {
+      aWriter.setApplyQuotesToAll (false);
+      aWriter.writeAllRows (aReader);
+      assertEquals (2, aWriter.getWrittenLines ());
+    }
+
+    // Must be identical to the String based version
+    final NonBlockingStringWriter aSW2 = new NonBlockingStringWriter ();
+    try (final CSVReader aReader = new CSVReader (new NonBlockingStringReader (sCSV));
+         final CSVWriter aWriter = new CSVWriter (new NonClosingWriter (aSW2)))
+    {
+      aWriter.setApplyQuotesToAll (false);
+      aWriter.writeAll (aReader.readAll ());
+    }
+    assertEquals (aSW2.getAsString (), aSW.getAsString ());
+    assertEquals ("a,\"b,c\",\"d\\\"e\"\n,\"f\ng\",hi\n", aSW.getAsString ());
+  }
+
+  @Test
+  public void testCustomEscaping () throws IOException
+  {
+    final String sCSV = "a,b#c\n";
+    final NonBlockingStringWriter aSW = new NonBlockingStringWriter ();
+    final NonBlockingStringWriter aSW2 = new NonBlockingStringWriter ();
+    try (final CSVRowReader aRowReader = new CSVRowReader (new NonBlockingStringReader (sCSV));
+         final CSVReader aReader = new CSVReader (new NonBlockingStringReader (sCSV));
+         final CSVWriter aWriter = new MockEscapingCSVWriter (new NonClosingWriter (aSW));
+         final CSVWriter aWriter2 = new MockEscapingCSVWriter (new NonClosingWriter (aSW2)))
+    {
+      aWriter.setApplyQuotesToAll (false);
+      aWriter.writeAllRows (aRowReader);
+      aWriter2.setApplyQuotesToAll (false);
+      aWriter2.writeAll (aReader.readAll ());
+    }
+    // The hooks are used by both methods
+    assertEquals ("a,\"b##c\"\n", aSW.getAsString ());
+    assertEquals (aSW2.getAsString (), aSW.getAsString ());
+  }
 }
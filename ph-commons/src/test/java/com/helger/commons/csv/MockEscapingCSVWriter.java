@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.csv;
+
+import java.io.Writer;
+
+import javax.annotation.Nonnull;
+
+public class MockEscapingCSVWriter extends CSVWriter
+{
+  public MockEscapingCSVWriter (final Writer aWriter)
+  {
+    super (aWriter);
+  }
+
+  @Override
+  protected boolean containsSpecialCharacters (@Nonnull final CharSequence aText)
+  {
+    return super.containsSpecialCharacters (aText) || aText.toString ().indexOf ('#') >= 0;
+  }
+
+  @Override
+  protected void appendEscapedText (@Nonnull final CharSequence aText, @Nonnull final StringBuilder aSB)
+  {
+    aSB.append (aText.toString ().replace ("#", "##"));
+  }
+}
@@ -20,6 +20,12 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
 import org.junit.Test;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -37,6 +43,12 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
  */
 public final class EqualsImplementationRegistryTest
 {
+  private static class MockBase
+  {}
+
+  private static final class MockDerived extends MockBase
+  {}
+
   @Test
   @SuppressFBWarnings ("EC_BAD_ARRAY_COMPARE")
   public void testEquals () throws ParserConfigurationException
@@ -62,4 +74,49 @@ public final class EqualsImplementationRegistryTest
     CommonsAssert.assertEquals (ArrayHelper.newArray (ArrayHelper.newArray (d1)),
                                 ArrayHelper.newArray (ArrayHelper.newArray (d2)));
   }
+
+  @Test
+  public void testResolvedImplementationCache ()
+  {
+    final EqualsImplementationRegistry aRegistry = EqualsImplementationRegistry.getInstance ();
+    assertNull (aRegistry.getBestMatchingEqualsImplementation (MockDerived.class));
+    assertFalse (EqualsImplementationRegistry.areEqual (new MockDerived (), new MockDerived ()));
+
+    final IEqualsImplementation <MockBase> aImpl = (aObj1, aObj2) -> true;
+    aRegistry.registerEqualsImplementation (MockBase.class, aImpl);
+    try
+    {
+      // The previously resolved "no implementation" must be invalidated
+      assertSame (aImpl, aRegistry.getBestMatchingEqualsImplementation (MockDerived.class));
+      assertTrue (EqualsImplementationRegistry.areEqual (new MockDerived (), new MockDerived ()));
+    }
+    finally
+    {
+      assertTrue (aRegistry.unregisterEqualsImplementation (MockBase.class).isChanged ());
+    }
+    assertFalse (aRegistry.unregisterEqualsImplementation (MockBase.class).isChanged ());
+    assertNull (aRegistry.getBestMatchingEqualsImplementation (MockDerived.class));
+    assertFalse (EqualsImplementationRegistry.areEqual (new MockDerived (), new MockDerived ()));
+
+    // Arrays are always handled
+    assertNotNull (aRegistry.getBestMatchingEqualsImplementation (MockDerived [].class));
+  }
+
+  @Test
+  public void testFastPath ()
+  {
+    assertTrue (EqualsImplementationRegistry.areEqual ("abc", new String ("abc")));
+    assertTrue (EqualsImplementationRegistry.areEqual (Integer.valueOf (4711), Integer.valueOf (4711)));
+    assertFalse (EqualsImplementationRegistry.areEqual (Integer.valueOf (4711), Long.valueOf (4711)));
+    // Same semantics as compareTo
+    assertTrue (EqualsImplementationRegistry.areEqual (Double.valueOf (Double.NaN), Double.valueOf (Double.NaN)));
+    assertFalse (EqualsImplementationRegistry.areEqual (Double.valueOf (0d), Double.valueOf (-0d)));
+    assertTrue (EqualsImplementationRegistry.areEqual (Float.valueOf (Float.NaN), Float.valueOf (Float.NaN)));
+    assertFalse (EqualsImplementationRegistry.areEqual (Float.valueOf (0f), Float.valueOf (-0f)));
+    // Primitive arrays
+    assertTrue (EqualsImplementationRegistry.areEqual (new int [] { 1, 2 }, new int [] { 1, 2 }));
+    assertFalse (EqualsImplementationRegistry.areEqual (new int [] { 1, 2 }, new int [] { 2, 1 }));
+    assertTrue (EqualsImplementationRegistry.areEqual (new byte [] { 1, 2 }, new byte [] { 1, 2 }));
+    assertFalse (EqualsImplementationRegistry.areEqual (new byte [] { 1, 2 }, new int [] { 1, 2 }));
+  }
 }
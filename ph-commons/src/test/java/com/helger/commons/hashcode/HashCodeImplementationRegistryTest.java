@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.hashcode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link HashCodeImplementationRegistry}.
+ *
+ * @author Philip Helger
+ */
+public final class HashCodeImplementationRegistryTest
+{
+  private static class MockBase
+  {
+    @Override
+    public int hashCode ()
+    {
+      return 17;
+    }
+  }
+
+  private static final class MockDerived extends MockBase
+  {}
+
+  @Test
+  public void testResolvedImplementationCache ()
+  {
+    final HashCodeImplementationRegistry aRegistry = HashCodeImplementationRegistry.getInstance ();
+    assertNull (aRegistry.getBestMatchingHashCodeImplementation (MockDerived.class));
+    assertEquals (17, HashCodeImplementationRegistry.getHashCode (new MockDerived ()));
+
+    final IHashCodeImplementation <MockBase> aImpl = x -> 42;
+    aRegistry.registerHashCodeImplementation (MockBase.class, aImpl);
+    try
+    {
+      // The previously resolved "no implementation" must be invalidated
+      assertSame (aImpl, aRegistry.getBestMatchingHashCodeImplementation (MockDerived.class));
+      assertEquals (42, HashCodeImplementationRegistry.getHashCode (new MockDerived ()));
+    }
+    finally
+    {
+      assertTrue (aRegistry.unregisterHashCodeImplementation (MockBase.class).isChanged ());
+    }
+    assertFalse (aRegistry.unregisterHashCodeImplementation (MockBase.class).isChanged ());
+    assertNull (aRegistry.getBestMatchingHashCodeImplementation (MockDerived.class));
+    assertEquals (17, HashCodeImplementationRegistry.getHashCode (new MockDerived ()));
+
+    // Arrays are always handled
+    assertNotNull (aRegistry.getBestMatchingHashCodeImplementation (MockDerived [].class));
+  }
+
+  @Test
+  public void testFastPath ()
+  {
+    assertEquals (HashCodeCalculator.HASHCODE_NULL, HashCodeImplementationRegistry.getHashCode (null));
+    assertEquals ("abc".hashCode (), HashCodeImplementationRegistry.getHashCode ("abc"));
+    assertEquals (Long.valueOf (4711).hashCode (), HashCodeImplementationRegistry.getHashCode (Long.valueOf (4711)));
+    assertEquals (Arrays.hashCode (new int [] { 1, 2 }), HashCodeImplementationRegistry.getHashCode (new int [] { 1, 2 }));
+    assertEquals (Arrays.hashCode (new char [] { 'a' }), HashCodeImplementationRegistry.getHashCode (new char [] { 'a' }));
+    assertEquals (Arrays.deepHashCode (new Object [] { "a", new int [] { 1 } }),
+                  HashCodeImplementationRegistry.getHashCode (new Object [] { "a", new int [] { 1 } }));
+  }
+}
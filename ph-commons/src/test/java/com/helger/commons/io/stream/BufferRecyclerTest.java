@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.io.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link BufferRecycler}.
+ *
+ * @author Philip Helger
+ */
+public final class BufferRecyclerTest
+{
+  @Test
+  public void testSizeClasses ()
+  {
+    BufferRecycler.clear ();
+    assertEquals (BufferRecycler.MIN_BUFFER_SIZE, BufferRecycler.borrowBytes (0).length);
+    assertEquals (BufferRecycler.MIN_BUFFER_SIZE, BufferRecycler.borrowBytes (1).length);
+    assertEquals (2048, BufferRecycler.borrowBytes (1025).length);
+    assertEquals (StreamHelper.DEFAULT_BUFSIZE, BufferRecycler.borrowChars (StreamHelper.DEFAULT_BUFSIZE).length);
+    assertEquals (BufferRecycler.MAX_BUFFER_SIZE, BufferRecycler.borrowChars (BufferRecycler.MAX_BUFFER_SIZE).length);
+    // Too large - exact size
+    assertEquals (BufferRecycler.MAX_BUFFER_SIZE + 1, BufferRecycler.borrowBytes (BufferRecycler.MAX_BUFFER_SIZE + 1).length);
+  }
+
+  @Test
+  public void testReuse ()
+  {
+    BufferRecycler.clear ();
+    final byte [] b1 = BufferRecycler.borrowBytes (4000);
+    final byte [] b2 = BufferRecycler.borrowBytes (4000);
+    assertNotSame (b1, b2);
+    BufferRecycler.returnBytes (b1);
+    // Goes to the global pool
+    BufferRecycler.returnBytes (b2);
+    // Thread local first
+    assertSame (b1, BufferRecycler.borrowBytes (4096));
+    assertSame (b2, BufferRecycler.borrowBytes (3000));
+    assertNotSame (b1, BufferRecycler.borrowBytes (4096));
+
+    final char [] c = BufferRecycler.borrowChars (100);
+    BufferRecycler.returnChars (c);
+    assertSame (c, BufferRecycler.borrowChars (1024));
+
+    // Odd sizes are never pooled
+    final byte [] aOdd = new byte [5000];
+    BufferRecycler.returnBytes (aOdd);
+    BufferRecycler.returnBytes (null);
+    assertNotSame (aOdd, BufferRecycler.borrowBytes (5000));
+    BufferRecycler.clear ();
+  }
+
+  @Test
+  public void testGlobalPoolAcrossThreads () throws Exception
+  {
+    BufferRecycler.clear ();
+    final byte [] [] aBorrowed = new byte [BufferRecycler.GLOBAL_SLOTS_PER_SIZE_CLASS + 1] [];
+    for (int i = 0; i < aBorrowed.length; ++i)
+      aBorrowed[i] = BufferRecycler.borrowBytes (8192);
+    // One stays thread local, the others go into the global pool
+    for (final byte [] b : aBorrowed)
+      BufferRecycler.returnBytes (b);
+
+    // Another thread gets all the globally pooled buffers
+    final AtomicInteger aFound = new AtomicInteger ();
+    final Thread t = new Thread ( () -> {
+      for (int i = 0; i < BufferRecycler.GLOBAL_SLOTS_PER_SIZE_CLASS; ++i)
+      {
+        final byte [] b = BufferRecycler.borrowBytes (8192);
+        for (final byte [] x : aBorrowed)
+          if (x == b)
+            aFound.incrementAndGet ();
+      }
+    });
+    t.start ();
+    t.join ();
+    assertEquals (BufferRecycler.GLOBAL_SLOTS_PER_SIZE_CLASS, aFound.get ());
+    BufferRecycler.clear ();
+  }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.io.stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link NonBlockingChunkedByteArrayOutputStream}.
+ *
+ * @author Philip Helger
+ */
+public final class NonBlockingChunkedByteArrayOutputStreamTest
+{
+  @Test
+  public void testWrite () throws IOException
+  {
+    final byte [] aData = new byte [100_000];
+    new Random (42).nextBytes (aData);
+
+    try (final NonBlockingChunkedByteArrayOutputStream aOS = new NonBlockingChunkedByteArrayOutputStream (16))
+    {
+      assertTrue (aOS.isEmpty ());
+      assertEquals (1, aOS.getChunkCount ());
+
+      // Mix single bytes and blocks of different sizes
+      int nOfs = 0;
+      int nLen = 1;
+      while (nOfs < aData.length)
+      {
+        final int nCount = Math.min (nLen, aData.length - nOfs);
+        if (nCount == 1)
+          aOS.write (aData[nOfs]);
+        else
+          aOS.write (aData, nOfs, nCount);
+        nOfs += nCount;
+        nLen = nLen * 3 % 1000 + 1;
+      }
+      assertFalse (aOS.isEmpty ());
+      assertEquals (aData.length, aOS.size ());
+      assertTrue (aOS.getChunkCount () > 1);
+      assertArrayEquals (aData, aOS.toByteArray ());
+
+      // Invalid parameters don't write anything
+      try
+      {
+        aOS.write (aData, aData.length - 10, 20);
+        fail ();
+      }
+      catch (final IllegalArgumentException ex)
+      {
+        // expected
+      }
+      assertEquals (aData.length, aOS.size ());
+
+      // Hand off without copying
+      final ByteBuffer [] aBuffers = aOS.getAsByteBuffers ();
+      assertEquals (aOS.getChunkCount (), aBuffers.length);
+      int nTotal = 0;
+      for (final ByteBuffer aBB : aBuffers)
+        nTotal += aBB.remaining ();
+      assertEquals (aData.length, nTotal);
+
+      assertArrayEquals (aData, StreamHelper.getAllBytes (aOS.getAsInputStream ()));
+
+      final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+      aOS.writeTo (aBAOS);
+      assertArrayEquals (aData, aBAOS.toByteArray ());
+
+      aOS.reset ();
+      assertTrue (aOS.isEmpty ());
+      assertEquals (1, aOS.getChunkCount ());
+      assertEquals (0, aOS.toByteArray ().length);
+      assertEquals (0, aOS.getAsInputStream ().available ());
+    }
+  }
+
+  @Test
+  public void testReadFrom () throws IOException
+  {
+    final byte [] aData = new byte [50_000];
+    new Random (17).nextBytes (aData);
+
+    try (final NonBlockingChunkedByteArrayOutputStream aOS = new NonBlockingChunkedByteArrayOutputStream (1))
+    {
+      aOS.readFrom (new NonBlockingByteArrayInputStream (aData));
+      assertArrayEquals (aData, aOS.toByteArray ());
+    }
+
+    try (final NonBlockingChunkedByteArrayOutputStream aOS = new NonBlockingChunkedByteArrayOutputStream ())
+    {
+      aOS.write ("abc äöü".getBytes (StandardCharsets.UTF_8));
+      assertEquals ("abc äöü", aOS.getAsString (StandardCharsets.UTF_8));
+    }
+  }
+}
@@ -360,6 +360,10 @@ public final class StreamHelperTest
     assertTrue (StreamHelper.copyReaderToWriter (aBAIS, false, aBAOS, false, new char [10], null, null, aML)
                             .isSuccess ());
     assertEquals (aML.longValue (), sInput.length ());
+    aML.set (0);
+    aBAIS = new NonBlockingStringReader (sInput);
+    assertTrue (StreamHelper.copyReaderToWriter (aBAIS, aBAOS, aML).isSuccess ());
+    assertEquals (aML.longValue (), sInput.length ());
 
     // Must be a ByteArrayReader so that an IOException can be thrown!
     assertTrue (StreamHelper.copyReaderToWriter (new WrappedReader (aBAIS)
@@ -17,15 +17,22 @@
 package com.helger.commons.lang;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
 
 import org.junit.Test;
 
 import com.helger.commons.CGlobal;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.id.IHasID;
 import com.helger.commons.type.IHasObjectType;
 import com.helger.commons.type.ITypedObject;
@@ -71,4 +78,31 @@ public final class ClassHierarchyCacheTest
     catch (final NullPointerException ex)
     {}
   }
+
+  @Test
+  public void testGetClassHierarchyIterable ()
+  {
+    final ICommonsList <Class <?>> aList = ClassHierarchyCache.getClassHierarchyList (CommonsArrayList.class);
+    assertSame (CommonsArrayList.class, aList.getFirst ());
+    // Super classes come first
+    assertSame (ArrayList.class, aList.get (1));
+    // No duplicates
+    assertEquals (aList.size (), ClassHierarchyCache.getClassHierarchy (CommonsArrayList.class).size ());
+
+    // Same order as the list
+    assertEquals (aList, new CommonsArrayList <> (ClassHierarchyCache.getClassHierarchyIterable (CommonsArrayList.class)));
+
+    // Interfaces in hierarchy order
+    final ICommonsList <Class <?>> aInterfaces = new CommonsArrayList <> (ClassHierarchyCache.getAllInterfacesIterable (CommonsArrayList.class));
+    assertEquals (aList.getAll (Class::isInterface), aInterfaces);
+    assertTrue (aInterfaces.contains (List.class));
+    assertTrue (aInterfaces.contains (RandomAccess.class));
+    assertFalse (aInterfaces.contains (ArrayList.class));
+    assertFalse (ClassHierarchyCache.getAllInterfacesIterable (Object.class).iterator ().hasNext ());
+    assertSame (List.class, ClassHierarchyCache.getAllInterfacesIterable (List.class).iterator ().next ());
+
+    // Clearing the cache keeps the content
+    ClassHierarchyCache.clearCache ();
+    assertEquals (aList, ClassHierarchyCache.getClassHierarchyList (CommonsArrayList.class));
+  }
 }
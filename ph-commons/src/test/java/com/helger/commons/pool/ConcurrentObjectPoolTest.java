@@ -0,0 +1,231 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link ConcurrentObjectPool}.
+ *
+ * @author Philip Helger
+ */
+public final class ConcurrentObjectPoolTest
+{
+  @Test
+  public void testBorrowAndReturn ()
+  {
+    final AtomicInteger aCounter = new AtomicInteger ();
+    final ConcurrentObjectPool <StringBuilder> aPool = new ConcurrentObjectPool.Builder <StringBuilder> ().setFactory (() -> {
+      aCounter.incrementAndGet ();
+      return new StringBuilder ();
+    }).setMaxSize (2).setBorrowTimeout (Duration.ofMillis (20)).build ();
+
+    final StringBuilder a1 = aPool.borrowObject ();
+    final StringBuilder a2 = aPool.borrowObject ();
+    assertNotNull (a1);
+    assertNotNull (a2);
+    assertNotSame (a1, a2);
+    assertEquals (2, aPool.getInUseCount ());
+    assertEquals (1d, aPool.getUtilisation (), 0.0001);
+
+    // Exhausted
+    assertNull (aPool.borrowObject ());
+    assertEquals (1, aPool.getTimeoutCount ());
+    assertEquals (1, aPool.getWaitCount ());
+
+    assertTrue (aPool.returnObject (a2).isSuccess ());
+    // Cannot return twice
+    assertTrue (aPool.returnObject (a2).isFailure ());
+    // Not pooled at all
+    assertTrue (aPool.returnObject (new StringBuilder ()).isFailure ());
+
+    // Reused
+    assertSame (a2, aPool.borrowObject ());
+    assertEquals (2, aCounter.get ());
+    assertEquals (2, aPool.getCreatedCount ());
+    assertEquals (3, aPool.getBorrowCount ());
+  }
+
+  @Test
+  public void testValidation ()
+  {
+    final AtomicInteger aDestroyed = new AtomicInteger ();
+    final ConcurrentObjectPool <StringBuilder> aPool = new ConcurrentObjectPool.Builder <StringBuilder> ().setFactory (StringBuilder::new)
+                                                                                                            .setMaxSize (1)
+                                                                                                            .setValidator (x -> x.length () == 0)
+                                                                                                            .setDestroyer (x -> aDestroyed.incrementAndGet ())
+                                                                                                            .build ();
+    final StringBuilder a1 = aPool.borrowObject ();
+    a1.append ("dirty");
+    assertTrue (aPool.returnObject (a1).isSuccess ());
+    assertEquals (1, aDestroyed.get ());
+    assertEquals (0, aPool.getTotalCount ());
+
+    final StringBuilder a2 = aPool.borrowObject ();
+    assertNotSame (a1, a2);
+    assertTrue (aPool.returnObject (a2).isSuccess ());
+    assertEquals (1, aPool.getIdleCount ());
+  }
+
+  @Test
+  public void testIdleEviction ()
+  {
+    final ConcurrentObjectPool <Object> aPool = new ConcurrentObjectPool.Builder <> ().setFactory (Object::new)
+                                                                                      .setMinSize (1)
+                                                                                      .setMaxSize (3)
+                                                                                      .setIdleTimeout (Duration.ZERO)
+                                                                                      .build ();
+    final Object a1 = aPool.borrowObject ();
+    final Object a2 = aPool.borrowObject ();
+    final Object a3 = aPool.borrowObject ();
+    aPool.returnObject (a1);
+    aPool.returnObject (a2);
+    aPool.returnObject (a3);
+    aPool.evictIdleObjects ();
+    // Min size is retained
+    assertEquals (1, aPool.getTotalCount ());
+    assertEquals (2, aPool.getDestroyedCount ());
+
+    aPool.clearUnusedItems ();
+    assertEquals (0, aPool.getTotalCount ());
+  }
+
+  @Test
+  public void testConcurrent () throws InterruptedException
+  {
+    final ConcurrentObjectPool <AtomicInteger> aPool = new ConcurrentObjectPool.Builder <AtomicInteger> ().setFactory (AtomicInteger::new)
+                                                                                                            .setMaxSize (4)
+                                                                                                            .build ();
+    final AtomicInteger aErrors = new AtomicInteger ();
+    final ExecutorService aES = Executors.newFixedThreadPool (16);
+    for (int i = 0; i < 10_000; ++i)
+      aES.submit ( () -> {
+        final AtomicInteger aObj = aPool.borrowObject ();
+        // Must be exclusively owned
+        if (aObj.incrementAndGet () != 1)
+          aErrors.incrementAndGet ();
+        aObj.decrementAndGet ();
+        aPool.returnObject (aObj);
+      });
+    aES.shutdown ();
+    assertTrue (aES.awaitTermination (30, TimeUnit.SECONDS));
+    assertEquals (0, aErrors.get ());
+    assertEquals (0, aPool.getInUseCount ());
+    assertTrue (aPool.getTotalCount () <= 4);
+    assertEquals (10_000, aPool.getBorrowCount ());
+  }
+
+  @Test
+  public void testSlowFactoryDoesNotBlockWaiters () throws Exception
+  {
+    final CountDownLatch aCreating = new CountDownLatch (1);
+    final CountDownLatch aRelease = new CountDownLatch (1);
+    final AtomicInteger aCounter = new AtomicInteger ();
+    final ConcurrentObjectPool <Object> aPool = new ConcurrentObjectPool.Builder <> ().setFactory ( () -> {
+      if (aCounter.incrementAndGet () == 2)
+      {
+        // Block the creation of the second object
+        aCreating.countDown ();
+        try
+        {
+          aRelease.await ();
+        }
+        catch (final InterruptedException ex)
+        {
+          Thread.currentThread ().interrupt ();
+        }
+      }
+      return new Object ();
+    }).setMaxSize (3).setBorrowTimeout (Duration.ofSeconds (10)).build ();
+
+    final Object a1 = aPool.borrowObject ();
+    final ExecutorService aES = Executors.newFixedThreadPool (2);
+    try
+    {
+      final Future <Object> aSlow = aES.submit ( () -> aPool.borrowObject ());
+      assertTrue (aCreating.await (10, TimeUnit.SECONDS));
+
+      // Creating the third object and returning must not wait for the factory
+      final Future <Object> aFast = aES.submit ( () -> aPool.borrowObject ());
+      final Object a3 = aFast.get (10, TimeUnit.SECONDS);
+      assertNotNull (a3);
+      assertTrue (aPool.returnObject (a3).isSuccess ());
+      assertTrue (aPool.returnObject (a1).isSuccess ());
+
+      aRelease.countDown ();
+      assertNotNull (aSlow.get (10, TimeUnit.SECONDS));
+      assertEquals (3, aPool.getTotalCount ());
+    }
+    finally
+    {
+      aRelease.countDown ();
+      aES.shutdown ();
+    }
+  }
+
+  @Test
+  public void testConcurrentIdleEviction () throws InterruptedException
+  {
+    final int nMinSize = 4;
+    final int nMaxSize = 64;
+    final ConcurrentObjectPool <Object> aPool = new ConcurrentObjectPool.Builder <> ().setFactory (Object::new)
+                                                                                      .setMinSize (nMinSize)
+                                                                                      .setMaxSize (nMaxSize)
+                                                                                      .setIdleTimeout (Duration.ZERO)
+                                                                                      .build ();
+    for (int nRun = 0; nRun < 50; ++nRun)
+    {
+      final Object [] aObjs = new Object [nMaxSize];
+      for (int i = 0; i < nMaxSize; ++i)
+        aObjs[i] = aPool.borrowObject ();
+
+      // Each return triggers an eviction as the idle timeout is zero
+      final ExecutorService aES = Executors.newFixedThreadPool (8);
+      for (int i = 0; i < 8; ++i)
+      {
+        final int nStart = i * 8;
+        aES.submit ( () -> {
+          for (int j = nStart; j < nStart + 8; ++j)
+            aPool.returnObject (aObjs[j]);
+          aPool.evictIdleObjects ();
+        });
+      }
+      aES.shutdown ();
+      assertTrue (aES.awaitTermination (30, TimeUnit.SECONDS));
+
+      // Concurrent evictions never go below the minimum size
+      assertEquals (nMinSize, aPool.getTotalCount ());
+      assertEquals (nMinSize, aPool.getCreatedCount () - aPool.getDestroyedCount ());
+      assertEquals (nMinSize, aPool.getIdleCount ());
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link KeyedObjectPool}.
+ *
+ * @author Philip Helger
+ */
+public final class KeyedObjectPoolTest
+{
+  @Test
+  public void testBorrowAndReturn ()
+  {
+    final KeyedObjectPool <String, StringBuilder> aPool = new KeyedObjectPool.Builder <String, StringBuilder> ().setFactory (StringBuilder::new)
+                                                                                                                .setMaxSizePerKey (2)
+                                                                                                                .build ();
+    final StringBuilder a1 = aPool.borrowObject ("a");
+    final StringBuilder b1 = aPool.borrowObject ("b");
+    assertEquals ("a", a1.toString ());
+    assertEquals ("b", b1.toString ());
+    assertEquals (2, aPool.getKeyCount ());
+    assertEquals (2, aPool.getInUseCount ());
+    assertEquals (0, aPool.getHitCount ());
+    assertEquals (0d, aPool.getHitRate (), 0.0001);
+
+    assertTrue (aPool.returnObject ("a", a1).isSuccess ());
+    assertTrue (aPool.returnObject ("b", b1).isSuccess ());
+    assertEquals (0, aPool.getInUseCount ());
+    assertEquals (2, aPool.getTotalCount ());
+
+    // Reused for the same key only
+    assertSame (a1, aPool.borrowObject ("a"));
+    final StringBuilder b2 = aPool.borrowObject ("b");
+    assertSame (b1, b2);
+    final StringBuilder b3 = aPool.borrowObject ("b");
+    assertNotSame (b2, b3);
+    assertEquals ("b", b3.toString ());
+
+    assertEquals (5, aPool.getBorrowCount ());
+    assertEquals (3, aPool.getCreatedCount ());
+    assertEquals (2, aPool.getHitCount ());
+    assertEquals (0.4d, aPool.getHitRate (), 0.0001);
+    assertTrue (aPool.getAverageCreationNanos () >= 0);
+  }
+
+  @Test
+  public void testMaxKeyCount ()
+  {
+    final AtomicInteger aDestroyed = new AtomicInteger ();
+    final KeyedObjectPool <Integer, StringBuilder> aPool = new KeyedObjectPool.Builder <Integer, StringBuilder> ().setFactory (x -> new StringBuilder ())
+                                                                                                                  .setMaxKeyCount (2)
+                                                                                                                  .setDestroyer (x -> aDestroyed.incrementAndGet ())
+                                                                                                                  .build ();
+    final StringBuilder a1 = aPool.borrowObject (Integer.valueOf (1));
+    final StringBuilder a2 = aPool.borrowObject (Integer.valueOf (2));
+    final StringBuilder a3 = aPool.borrowObject (Integer.valueOf (3));
+    assertEquals (2, aPool.getKeyCount ());
+    assertEquals (1, aPool.getUnpooledCount ());
+
+    assertTrue (aPool.returnObject (Integer.valueOf (1), a1).isSuccess ());
+    assertTrue (aPool.returnObject (Integer.valueOf (2), a2).isSuccess ());
+    // Not pooled -> destroyed
+    assertTrue (aPool.returnObject (Integer.valueOf (3), a3).isFailure ());
+    assertEquals (1, aDestroyed.get ());
+
+    // Removes all pools
+    aPool.clearUnusedItems ();
+    assertEquals (0, aPool.getKeyCount ());
+    assertEquals (3, aDestroyed.get ());
+
+    // Now there is room again
+    final StringBuilder a4 = aPool.borrowObject (Integer.valueOf (3));
+    assertEquals (1, aPool.getKeyCount ());
+    assertTrue (aPool.returnObject (Integer.valueOf (3), a4).isSuccess ());
+  }
+
+  @Test
+  public void testIdleTimeout () throws Exception
+  {
+    final KeyedObjectPool <String, StringBuilder> aPool = new KeyedObjectPool.Builder <String, StringBuilder> ().setFactory (StringBuilder::new)
+                                                                                                                .setIdleTimeout (Duration.ofMillis (10))
+                                                                                                                .build ();
+    final StringBuilder a1 = aPool.borrowObject ("a");
+    aPool.returnObject ("a", a1);
+    assertEquals (1, aPool.getKeyCount ());
+    Thread.sleep (30);
+    assertEquals (1, aPool.evictIdleObjects ());
+    assertEquals (0, aPool.getKeyCount ());
+    assertEquals (0, aPool.getTotalCount ());
+  }
+}
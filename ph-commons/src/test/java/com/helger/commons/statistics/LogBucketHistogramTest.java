@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+import com.helger.commons.CGlobal;
+
+/**
+ * Test class for class {@link LogBucketHistogram}.
+ *
+ * @author Philip Helger
+ */
+public final class LogBucketHistogramTest
+{
+  @Test
+  public void testBucketIndex ()
+  {
+    assertEquals (0, LogBucketHistogram.getBucketIndex (-5));
+    for (int i = 0; i < 16; ++i)
+    {
+      assertEquals (i, LogBucketHistogram.getBucketIndex (i));
+      assertEquals (i, LogBucketHistogram.getHighestEquivalentValue (i));
+    }
+    assertEquals (LogBucketHistogram.BUCKET_COUNT - 1, LogBucketHistogram.getBucketIndex (Long.MAX_VALUE));
+    assertEquals (Long.MAX_VALUE, LogBucketHistogram.getHighestEquivalentValue (LogBucketHistogram.BUCKET_COUNT - 1));
+
+    // Each value is within its bucket and the precision is at least 1/16
+    for (long n = 16; n > 0 && n < Long.MAX_VALUE / 3; n = n * 3 + 7)
+    {
+      final int nIndex = LogBucketHistogram.getBucketIndex (n);
+      final long nHighest = LogBucketHistogram.getHighestEquivalentValue (nIndex);
+      assertTrue (nHighest >= n);
+      assertTrue ((nHighest - n) <= n / 16);
+      assertTrue (LogBucketHistogram.getHighestEquivalentValue (nIndex - 1) < n);
+    }
+  }
+
+  @Test
+  public void testLazyAllocation ()
+  {
+    final LogBucketHistogram h = new LogBucketHistogram ();
+    assertFalse (h.isAllocated ());
+    assertEquals (CGlobal.ILLEGAL_ULONG, h.getValueAtPercentile (99));
+    h.reset ();
+    h.addAll (new LogBucketHistogram ());
+    assertFalse (h.isAllocated ());
+
+    h.recordValue (5);
+    assertTrue (h.isAllocated ());
+    assertEquals (5, h.getValueAtPercentile (50));
+  }
+
+  @Test
+  public void testPercentiles ()
+  {
+    final LogBucketHistogram h = new LogBucketHistogram ();
+    assertEquals (0, h.getTotalCount ());
+    assertEquals (CGlobal.ILLEGAL_ULONG, h.getValueAtPercentile (50));
+
+    for (int i = 1; i <= 1000; ++i)
+      h.recordValue (i);
+    assertEquals (1000, h.getTotalCount ());
+    assertEquals (1, h.getValueAtPercentile (0));
+    final long n50 = h.getValueAtPercentile (50);
+    assertTrue (Long.toString (n50), n50 >= 500 && n50 <= 500 + 500 / 16);
+    final long n99 = h.getValueAtPercentile (99);
+    assertTrue (Long.toString (n99), n99 >= 990 && n99 <= 990 + 990 / 16);
+    final long n100 = h.getValueAtPercentile (100);
+    assertTrue (Long.toString (n100), n100 >= 1000 && n100 <= 1000 + 1000 / 16);
+
+    final LogBucketHistogram h2 = new LogBucketHistogram ();
+    h2.addAll (h);
+    assertEquals (1000, h2.getTotalCount ());
+    assertEquals (n50, h2.getValueAtPercentile (50));
+
+    h.reset ();
+    assertEquals (0, h.getTotalCount ());
+    assertEquals (CGlobal.ILLEGAL_ULONG, h.getValueAtPercentile (50));
+  }
+
+  @Test
+  public void testWindowed ()
+  {
+    final WindowedLogBucketHistogram h = new WindowedLogBucketHistogram ();
+    assertEquals (60, h.getWindowDuration ().getSeconds ());
+    assertEquals (0, h.getSnapshot ().getTotalCount ());
+    for (int i = 0; i < 100; ++i)
+      h.recordValue (5);
+    assertEquals (100, h.getSnapshot ().getTotalCount ());
+    assertEquals (5, h.getSnapshot ().getValueAtPercentile (99.9));
+  }
+
+  @Test
+  public void testWindowedRotation () throws InterruptedException
+  {
+    final WindowedLogBucketHistogram h = new WindowedLogBucketHistogram (2, Duration.ofMillis (50));
+    assertEquals (100, h.getWindowDuration ().toMillis ());
+    for (int i = 0; i < 10; ++i)
+      h.recordValue (1000);
+    assertEquals (10, h.getSnapshot ().getTotalCount ());
+
+    // All slots left the window
+    Thread.sleep (250);
+    assertEquals (0, h.getSnapshot ().getTotalCount ());
+
+    // Reused slots only contain the new values
+    for (int i = 0; i < 3; ++i)
+      h.recordValue (5);
+    final LogBucketHistogram aSnapshot = h.getSnapshot ();
+    assertEquals (3, aSnapshot.getTotalCount ());
+    assertEquals (5, aSnapshot.getValueAtPercentile (100));
+  }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link StatisticsHandlerKey}.
+ *
+ * @author Philip Helger
+ */
+public final class StatisticsHandlerKeyTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final StatisticsHandlerKey <IMutableStatisticsHandlerTimer> aKey = StatisticsHandlerKey.timer (StatisticsHandlerKeyTest.class,
+                                                                                                   "$test");
+    assertEquals (StatisticsHandlerKeyTest.class.getName () + "$test", aKey.getName ());
+    assertEquals ("timer", aKey.getType ());
+
+    final IMutableStatisticsHandlerTimer aHdl = aKey.getHandler ();
+    assertSame (aHdl, aKey.getHandler ());
+    assertSame (aHdl, StatisticsManager.getTimerHandler (aKey.getName ()));
+    assertSame (aHdl, StatisticsManager.getHandler (aKey));
+
+    assertEquals (aKey, StatisticsHandlerKey.timer (aKey.getName ()));
+    assertNotEquals (aKey, StatisticsHandlerKey.counter (aKey.getName ()));
+  }
+
+  @Test
+  public void testClear ()
+  {
+    final StatisticsHandlerKey <IMutableStatisticsHandlerCounter> aKey = StatisticsHandlerKey.counter ("key-test-clear");
+    final IMutableStatisticsHandlerCounter aHdl = aKey.getHandler ();
+    aHdl.increment ();
+    StatisticsManager.clearCache ();
+
+    // Must be resolved again
+    final IMutableStatisticsHandlerCounter aHdl2 = aKey.getHandler ();
+    assertNotSame (aHdl, aHdl2);
+    assertEquals (0, aHdl2.getCount ());
+    assertTrue (StatisticsManager.getSnapshot ().getAllCounterHandler ().containsKey ("key-test-clear"));
+  }
+}
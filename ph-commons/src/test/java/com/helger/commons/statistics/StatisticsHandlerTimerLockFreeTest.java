@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+
+import org.junit.Test;
+
+import com.helger.commons.CGlobal;
+
+/**
+ * Test class for class {@link StatisticsHandlerTimerLockFree}.
+ *
+ * @author Philip Helger
+ */
+public final class StatisticsHandlerTimerLockFreeTest
+{
+  @Test
+  public void testAll ()
+  {
+    final StatisticsHandlerTimerLockFree sh = new StatisticsHandlerTimerLockFree ();
+    assertEquals (0, sh.getInvocationCount ());
+    assertEquals (CGlobal.ILLEGAL_UINT, sh.getMin ());
+    assertEquals (CGlobal.ILLEGAL_UINT, sh.getAverage ());
+    assertEquals (CGlobal.ILLEGAL_UINT, sh.getMax ());
+    assertEquals (CGlobal.ILLEGAL_UINT, sh.getPercentile50 ());
+    assertEquals (BigInteger.ZERO, sh.getSum ());
+    sh.addTime (5);
+    assertEquals (1, sh.getInvocationCount ());
+    assertEquals (5, sh.getMin ());
+    assertEquals (5, sh.getAverage ());
+    assertEquals (5, sh.getMax ());
+    assertEquals (BigInteger.valueOf (5), sh.getSum ());
+    sh.addTime (45);
+    assertEquals (2, sh.getInvocationCount ());
+    assertEquals (5, sh.getMin ());
+    assertEquals (25, sh.getAverage ());
+    assertEquals (45, sh.getMax ());
+    assertEquals (BigInteger.valueOf (50), sh.getSum ());
+    sh.addTime (25);
+    assertEquals (3, sh.getInvocationCount ());
+    assertEquals (5, sh.getMin ());
+    assertEquals (25, sh.getAverage ());
+    assertEquals (45, sh.getMax ());
+    assertEquals (BigInteger.valueOf (75), sh.getSum ());
+    assertTrue (sh.getPercentile50 () >= 25 && sh.getPercentile50 () <= 26);
+    assertTrue (sh.getPercentile999 () >= 45 && sh.getPercentile999 () <= 47);
+    assertEquals (sh.getPercentile99 (), sh.getWindowedValueAtPercentile (99));
+  }
+
+  @Test
+  public void testFactory ()
+  {
+    final IStatisticsHandlerFactory aOld = StatisticsManager.getHandlerFactory ();
+    try
+    {
+      StatisticsManager.setHandlerFactory (IStatisticsHandlerFactory.LOCK_FREE);
+      assertTrue (StatisticsManager.getTimerHandler ("lockfree-test") instanceof StatisticsHandlerTimerLockFree);
+      assertTrue (StatisticsManager.getSizeHandler ("lockfree-test") instanceof StatisticsHandlerSizeLockFree);
+      assertTrue (StatisticsManager.getCounterHandler ("lockfree-test") instanceof StatisticsHandlerCounterLockFree);
+      assertTrue (StatisticsManager.getCacheHandler ("lockfree-test") instanceof StatisticsHandlerCacheLockFree);
+    }
+    finally
+    {
+      StatisticsManager.setHandlerFactory (aOld);
+    }
+  }
+}
@@ -16,8 +16,10 @@
  */
 package com.helger.commons.statistics;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 import org.junit.Test;
@@ -240,4 +242,36 @@ public final class StatisticsManagerTest
     catch (final IllegalArgumentException ex)
     {}
   }
+
+  @Test
+  public void testConcurrentClearGeneration () throws InterruptedException
+  {
+    final int nStart = StatisticsManager.getGeneration ();
+    final int nThreads = 4;
+    final int nClears = 500;
+    final Thread [] aThreads = new Thread [nThreads];
+    for (int i = 0; i < nThreads; ++i)
+    {
+      aThreads[i] = new Thread ( () -> {
+        for (int j = 0; j < nClears; ++j)
+          StatisticsManager.clearCache ();
+      });
+      aThreads[i].start ();
+    }
+    for (final Thread t : aThreads)
+      t.join ();
+    // No increment may get lost
+    assertEquals (nStart + nThreads * nClears, StatisticsManager.getGeneration ());
+  }
+
+  @Test
+  public void testSnapshot ()
+  {
+    final IMutableStatisticsHandlerTimer aTimer = StatisticsManager.getTimerHandler ("snapshot-test");
+    final StatisticsSnapshot aSnapshot = StatisticsManager.getSnapshot ();
+    assertSame (aTimer, aSnapshot.getAllTimerHandler ().get ("snapshot-test"));
+    // Later registrations are not part of the snapshot
+    StatisticsManager.getTimerHandler ("snapshot-test2");
+    assertFalse (aSnapshot.getAllTimerHandler ().containsKey ("snapshot-test2"));
+  }
 }
@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.typeconvert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link TypeConverterRegistry}.
+ *
+ * @author Philip Helger
+ */
+public final class TypeConverterRegistryTest
+{
+  public static class MockSrc
+  {}
+
+  public static class MockSubSrc extends MockSrc
+  {}
+
+  public static final class MockDst
+  {
+    private final String m_s;
+
+    public MockDst (final String s)
+    {
+      m_s = s;
+    }
+  }
+
+  @Test
+  public void testResolvedConverterCache ()
+  {
+    final TypeConverterRegistry aTCR = TypeConverterRegistry.getInstance ();
+    try
+    {
+      // Positive results are cached
+      final ITypeConverter <?, ?> aConverter = aTCR.getBestMatchConverter (String.class, BigDecimal.class);
+      assertNotNull (aConverter);
+      assertSame (aConverter, aTCR.getBestMatchConverter (String.class, BigDecimal.class));
+
+      // Negative results are cached as well
+      assertNull (aTCR.getBestMatchConverter (MockSubSrc.class, MockDst.class));
+      assertNull (aTCR.getFuzzyConverter (MockSubSrc.class, MockDst.class));
+      assertNull (aTCR.getBestMatchConverter (MockSubSrc.class, MockDst.class));
+
+      // Registering invalidates the cache
+      aTCR.registerTypeConverter (MockSrc.class, MockDst.class, x -> new MockDst ("mock"));
+      assertNotNull (aTCR.getBestMatchConverter (MockSubSrc.class, MockDst.class));
+      assertNotNull (aTCR.getFuzzyConverter (MockSubSrc.class, MockDst.class));
+      assertEquals ("mock", TypeConverter.convert (new MockSubSrc (), MockDst.class).m_s);
+    }
+    finally
+    {
+      // Reinitializing invalidates the cache as well
+      aTCR.reinitialize ();
+    }
+    assertNull (aTCR.getBestMatchConverter (MockSubSrc.class, MockDst.class));
+    assertNull (aTCR.getFuzzyConverter (MockSubSrc.class, MockDst.class));
+  }
+}
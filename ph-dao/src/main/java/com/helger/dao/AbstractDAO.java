@@ -62,7 +62,7 @@ public abstract class AbstractDAO implements IDAO
   protected static final SimpleReadWriteLock s_aRWLock = new SimpleReadWriteLock ();
   private static final AtomicBoolean SILENT_MODE = new AtomicBoolean (GlobalDebug.DEFAULT_SILENT_MODE);
 
-  protected final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
+  protected final SimpleReadWriteLock m_aRWLock;
 
   @GuardedBy ("m_aRWLock")
   private final NonBlockingStack <Boolean> m_aAutoSaveStack = new NonBlockingStack <> ();
@@ -96,7 +96,21 @@ public abstract class AbstractDAO implements IDAO
   }
 
   protected AbstractDAO ()
-  {}
+  {
+    this (new SimpleReadWriteLock ());
+  }
+
+  /**
+   * Constructor with a custom lock.
+   *
+   * @param aRWLock
+   *        The lock to be used for this DAO. May not be <code>null</code>.
+   * @since 9.4.3
+   */
+  protected AbstractDAO (@Nonnull final SimpleReadWriteLock aRWLock)
+  {
+    m_aRWLock = ValueEnforcer.notNull (aRWLock, "RWLock");
+  }
 
   /**
    * @return <code>true</code> if not silent mode
@@ -48,7 +48,7 @@ import com.helger.commons.state.EChange;
 import com.helger.commons.state.ESuccess;
 import com.helger.commons.statistics.IMutableStatisticsHandlerCounter;
 import com.helger.commons.statistics.IMutableStatisticsHandlerTimer;
-import com.helger.commons.statistics.StatisticsManager;
+import com.helger.commons.statistics.StatisticsHandlerKey;
 import com.helger.commons.string.ToStringGenerator;
 import com.helger.commons.timing.StopWatch;
 import com.helger.dao.AbstractDAO;
@@ -74,26 +74,16 @@ public abstract class AbstractSimpleDAO extends AbstractDAO
 {
   private static final Logger LOGGER = LoggerFactory.getLogger (AbstractSimpleDAO.class);
 
-  private final IMutableStatisticsHandlerCounter m_aStatsCounterInitTotal = StatisticsManager.getCounterHandler (getClass ().getName () +
-                                                                                                                 "$init-total");
-  private final IMutableStatisticsHandlerCounter m_aStatsCounterInitSuccess = StatisticsManager.getCounterHandler (getClass ().getName () +
-                                                                                                                   "$init-success");
-  private final IMutableStatisticsHandlerTimer m_aStatsCounterInitTimer = StatisticsManager.getTimerHandler (getClass ().getName () +
-                                                                                                             "$init");
-  private final IMutableStatisticsHandlerCounter m_aStatsCounterReadTotal = StatisticsManager.getCounterHandler (getClass ().getName () +
-                                                                                                                 "$read-total");
-  private final IMutableStatisticsHandlerCounter m_aStatsCounterReadSuccess = StatisticsManager.getCounterHandler (getClass ().getName () +
-                                                                                                                   "$read-success");
-  private final IMutableStatisticsHandlerTimer m_aStatsCounterReadTimer = StatisticsManager.getTimerHandler (getClass ().getName () +
-                                                                                                             "$read");
-  private final IMutableStatisticsHandlerCounter m_aStatsCounterWriteTotal = StatisticsManager.getCounterHandler (getClass ().getName () +
-                                                                                                                  "$write-total");
-  private final IMutableStatisticsHandlerCounter m_aStatsCounterWriteSuccess = StatisticsManager.getCounterHandler (getClass ().getName () +
-                                                                                                                    "$write-success");
-  private final IMutableStatisticsHandlerCounter m_aStatsCounterWriteExceptions = StatisticsManager.getCounterHandler (getClass ().getName () +
-                                                                                                                       "$write-exceptions");
-  private final IMutableStatisticsHandlerTimer m_aStatsCounterWriteTimer = StatisticsManager.getTimerHandler (getClass ().getName () +
-                                                                                                              "$write");
+  private final StatisticsHandlerKey <IMutableStatisticsHandlerCounter> m_aStatsCounterInitTotal = StatisticsHandlerKey.counter (getClass (), "$init-total");
+  private final StatisticsHandlerKey <IMutableStatisticsHandlerCounter> m_aStatsCounterInitSuccess = StatisticsHandlerKey.counter (getClass (), "$init-success");
+  private final StatisticsHandlerKey <IMutableStatisticsHandlerTimer> m_aStatsCounterInitTimer = StatisticsHandlerKey.timer (getClass (), "$init");
+  private final StatisticsHandlerKey <IMutableStatisticsHandlerCounter> m_aStatsCounterReadTotal = StatisticsHandlerKey.counter (getClass (), "$read-total");
+  private final StatisticsHandlerKey <IMutableStatisticsHandlerCounter> m_aStatsCounterReadSuccess = StatisticsHandlerKey.counter (getClass (), "$read-success");
+  private final StatisticsHandlerKey <IMutableStatisticsHandlerTimer> m_aStatsCounterReadTimer = StatisticsHandlerKey.timer (getClass (), "$read");
+  private final StatisticsHandlerKey <IMutableStatisticsHandlerCounter> m_aStatsCounterWriteTotal = StatisticsHandlerKey.counter (getClass (), "$write-total");
+  private final StatisticsHandlerKey <IMutableStatisticsHandlerCounter> m_aStatsCounterWriteSuccess = StatisticsHandlerKey.counter (getClass (), "$write-success");
+  private final StatisticsHandlerKey <IMutableStatisticsHandlerCounter> m_aStatsCounterWriteExceptions = StatisticsHandlerKey.counter (getClass (), "$write-exceptions");
+  private final StatisticsHandlerKey <IMutableStatisticsHandlerTimer> m_aStatsCounterWriteTimer = StatisticsHandlerKey.timer (getClass (), "$write");
 
   private final IFileRelativeIO m_aIO;
   private final ISupplier <String> m_aFilenameProvider;
@@ -283,15 +273,15 @@ public abstract class AbstractSimpleDAO extends AbstractDAO
           beginWithoutAutoSave ();
           try
           {
-            m_aStatsCounterInitTotal.increment ();
+            m_aStatsCounterInitTotal.getHandler ().increment ();
             final StopWatch aSW = StopWatch.createdStarted ();
 
             if (onInit ().isChanged ())
               if (aFinalFile != null)
                 eWriteSuccess = _writeToFile ();
 
-            m_aStatsCounterInitTimer.addTime (aSW.stopAndGetMillis ());
-            m_aStatsCounterInitSuccess.increment ();
+            m_aStatsCounterInitTimer.getHandler ().addTime (aSW.stopAndGetMillis ());
+            m_aStatsCounterInitSuccess.getHandler ().increment ();
             m_nInitCount++;
             m_aLastInitDT = PDTFactory.getCurrentLocalDateTime ();
           }
@@ -311,7 +301,7 @@ public abstract class AbstractSimpleDAO extends AbstractDAO
             if (LOGGER.isInfoEnabled ())
               LOGGER.info ("Trying to read DAO XML file '" + aFinalFile + "'");
 
-          m_aStatsCounterReadTotal.increment ();
+          m_aStatsCounterReadTotal.getHandler ().increment ();
           final IMicroDocument aDoc = MicroReader.readMicroXML (aFinalFile);
           if (aDoc == null)
           {
@@ -329,8 +319,8 @@ public abstract class AbstractSimpleDAO extends AbstractDAO
               if (onRead (aDoc).isChanged ())
                 eWriteSuccess = _writeToFile ();
 
-              m_aStatsCounterReadTimer.addTime (aSW.stopAndGetMillis ());
-              m_aStatsCounterReadSuccess.increment ();
+              m_aStatsCounterReadTimer.getHandler ().addTime (aSW.stopAndGetMillis ());
+              m_aStatsCounterReadSuccess.getHandler ().increment ();
               m_nReadCount++;
               m_aLastReadDT = PDTFactory.getCurrentLocalDateTime ();
             }
@@ -514,7 +504,7 @@ public abstract class AbstractSimpleDAO extends AbstractDAO
       // Get the file handle
       aFile = getSafeFile (sFilename, EMode.WRITE);
 
-      m_aStatsCounterWriteTotal.increment ();
+      m_aStatsCounterWriteTotal.getHandler ().increment ();
       final StopWatch aSW = StopWatch.createdStarted ();
 
       // Create XML document to write
@@ -543,8 +533,8 @@ public abstract class AbstractSimpleDAO extends AbstractDAO
       if (MicroWriter.writeToStream (aDoc, aOS, aXWS).isFailure ())
         throw new DAOException ("Failed to write DAO XML data to file");
 
-      m_aStatsCounterWriteTimer.addTime (aSW.stopAndGetMillis ());
-      m_aStatsCounterWriteSuccess.increment ();
+      m_aStatsCounterWriteTimer.getHandler ().addTime (aSW.stopAndGetMillis ());
+      m_aStatsCounterWriteSuccess.getHandler ().increment ();
       m_nWriteCount++;
       m_aLastWriteDT = PDTFactory.getCurrentLocalDateTime ();
       return ESuccess.SUCCESS;
@@ -562,7 +552,7 @@ public abstract class AbstractSimpleDAO extends AbstractDAO
                       ex);
 
       triggerExceptionHandlersWrite (ex, sErrorFilename, aDoc);
-      m_aStatsCounterWriteExceptions.increment ();
+      m_aStatsCounterWriteExceptions.getHandler ().increment ();
       return ESuccess.FAILURE;
     }
   }
@@ -17,8 +17,12 @@
 package com.helger.dao.wal;
 
 import java.io.Serializable;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
 import java.util.function.BiPredicate;
 import java.util.function.Consumer;
@@ -32,18 +36,23 @@ import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.CodingStyleguideUnaware;
 import com.helger.commons.annotation.DevelopersNote;
 import com.helger.commons.annotation.ELockType;
 import com.helger.commons.annotation.IsLocked;
 import com.helger.commons.annotation.MustBeLocked;
+import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.annotation.ReturnsMutableObject;
 import com.helger.commons.callback.CallbackList;
 import com.helger.commons.collection.CollectionHelper;
 import com.helger.commons.collection.impl.CommonsArrayList;
 import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.CommonsHashSet;
 import com.helger.commons.collection.impl.CommonsLinkedHashMap;
 import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.collection.impl.ICommonsMap;
@@ -55,6 +64,7 @@ import com.helger.commons.lang.ClassHelper;
 import com.helger.commons.state.EChange;
 import com.helger.commons.string.StringHelper;
 import com.helger.commons.string.ToStringGenerator;
+import com.helger.commons.timing.StopWatch;
 import com.helger.commons.wrapper.Wrapper;
 import com.helger.dao.DAOException;
 import com.helger.dao.EDAOActionType;
@@ -62,10 +72,25 @@ import com.helger.xml.microdom.IMicroDocument;
 import com.helger.xml.microdom.IMicroElement;
 import com.helger.xml.microdom.MicroDocument;
 import com.helger.xml.microdom.convert.MicroTypeConverter;
+import com.helger.xml.microdom.serialize.MicroReader;
 
 /**
  * Base class for WAL based DAO that uses a simple {@link ICommonsMap} for data
- * storage.
+ * storage.<br>
+ * By default the whole map is written into a single XML file. If a segment
+ * count is set in the {@link InitSettings}, the items are distributed by ID
+ * onto the respective number of segment files and the main file only
+ * references the segments. Only segments containing changed items are
+ * rewritten. When the {@link WALListener} triggers the writing, the segments
+ * are serialized outside of the DAO lock: within the lock the WAL file is
+ * rotated and the items of the changed segments are converted to XML elements,
+ * so that later modifications of the items don't interfere. Sorting, building
+ * the segment documents (including {@link #modifyWriteData(IMicroDocument)})
+ * and writing happen after the lock was released.
+ * Recovery reads the latest segments and replays the rotated as well as the
+ * current WAL file.<br>
+ * Note: in segmented mode, only items passed to one of the
+ * <code>internal*Item</code> methods are considered changed.
  *
  * @author Philip Helger
  * @param <INTERFACETYPE>
@@ -92,6 +117,7 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
     private boolean m_bDoInitialRead = true;
     private Supplier <ICommonsMap <String, IMPLTYPE>> m_aMapSupplier = CommonsHashMap::new;
     private IPredicate <IMicroElement> m_aReadElementFilter = IPredicate.all ();
+    private int m_nSegmentCount = DEFAULT_SEGMENT_COUNT;
 
     @Nonnull
     public InitSettings <IMPLTYPE> setDoInitialRead (final boolean bDoInitialRead)
@@ -119,15 +145,86 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
       m_aReadElementFilter = ValueEnforcer.notNull (aReadElementFilter, "ReadElementFilter");
       return this;
     }
+
+    /**
+     * Set the number of segments the data is split into when writing.
+     *
+     * @param nSegmentCount
+     *        The number of segment files. Must be &ge; 0. 0 means that all
+     *        items are written into the main file.
+     * @return this for chaining
+     * @since 9.4.3
+     */
+    @Nonnull
+    public InitSettings <IMPLTYPE> setSegmentCount (@Nonnegative final int nSegmentCount)
+    {
+      ValueEnforcer.isGE0 (nSegmentCount, "SegmentCount");
+      m_nSegmentCount = nSegmentCount;
+      return this;
+    }
+  }
+
+  /**
+   * The converted items of all dirty segments, created within the DAO lock.
+   * It doesn't reference the items themselves, so it can be used after the
+   * DAO lock was released.
+   *
+   * @author Philip Helger
+   */
+  private static final class SegmentSnapshot
+  {
+    private final String m_sFilename;
+    private final BitSet m_aSegments;
+    // Index is the segment index; null for segments that are not dirty.
+    // Elements are mapped from item ID.
+    private final ICommonsList <ICommonsMap <String, IMicroElement>> m_aSegmentElements;
+
+    SegmentSnapshot (@Nonnull final String sFilename,
+                     @Nonnull final BitSet aSegments,
+                     @Nonnull final ICommonsList <ICommonsMap <String, IMicroElement>> aSegmentElements)
+    {
+      m_sFilename = sFilename;
+      m_aSegments = aSegments;
+      m_aSegmentElements = aSegmentElements;
+    }
   }
 
+  private static final Logger LOGGER = LoggerFactory.getLogger (AbstractMapBasedWALDAO.class);
+
+  /** By default all items are written into the main file */
+  public static final int DEFAULT_SEGMENT_COUNT = 0;
+  /**
+   * The filename extension of segment files. It is followed by the segment
+   * index.
+   *
+   * @since 9.4.3
+   */
+  public static final String FILENAME_EXTENSION_SEGMENT = ".seg";
+
   protected static final String ELEMENT_ROOT = "root";
   protected static final String ELEMENT_ITEM = "item";
+  private static final String ATTR_SEGMENT_COUNT = "segments";
+  private static final String ELEMENT_SEGMENT = "segment";
+  private static final String ATTR_INDEX = "index";
+  private static final String ATTR_FILENAME = "filename";
 
   @GuardedBy ("m_aRWLock")
   private final ICommonsMap <String, IMPLTYPE> m_aMap;
   private final CallbackList <IDAOChangeCallback <INTERFACETYPE>> m_aCallbacks = new CallbackList <> ();
   private final IPredicate <IMicroElement> m_aReadElementFilter;
+  private final int m_nSegmentCount;
+  @GuardedBy ("m_aRWLock")
+  private final BitSet m_aDirtySegments;
+  // The filename the current segment files belong to
+  @GuardedBy ("m_aRWLock")
+  private String m_sSegmentFilename;
+  // Segment files of a previous layout that can be deleted after the next
+  // successful write
+  @GuardedBy ("m_aRWLock")
+  private final ICommonsSet <String> m_aObsoleteSegmentFilenames = new CommonsHashSet <> ();
+  // Serializes writing of segment files. Acquired within the DAO lock but may
+  // be held after the DAO lock was released.
+  private final Lock m_aSegmentWriteLock = new ReentrantLock ();
 
   /**
    * Default constructor. Automatically tries to read the file in the
@@ -154,40 +251,90 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
     super (aImplClass, aIO, () -> sFilename);
     m_aMap = aInitSettings.m_aMapSupplier.get ();
     m_aReadElementFilter = aInitSettings.m_aReadElementFilter;
+    m_nSegmentCount = aInitSettings.m_nSegmentCount;
+    m_aDirtySegments = new BitSet (m_nSegmentCount);
+    m_aDirtySegments.set (0, m_nSegmentCount);
     if (aInitSettings.m_bDoInitialRead)
       initialRead ();
   }
 
+  /**
+   * @return <code>true</code> if the data is written into segment files,
+   *         <code>false</code> if all items are written into the main file.
+   * @since 9.4.3
+   */
+  public final boolean isSegmented ()
+  {
+    return m_nSegmentCount > 0;
+  }
+
+  /**
+   * @return The number of segment files. 0 if not segmented.
+   * @since 9.4.3
+   */
+  @Nonnegative
+  public final int getSegmentCount ()
+  {
+    return m_nSegmentCount;
+  }
+
+  @Nonnegative
+  private int _getSegmentIndex (@Nonnull final String sID)
+  {
+    return (sID.hashCode () & Integer.MAX_VALUE) % m_nSegmentCount;
+  }
+
+  @MustBeLocked (ELockType.WRITE)
+  private void _markSegmentDirty (@Nonnull final String sID)
+  {
+    if (m_nSegmentCount > 0)
+      m_aDirtySegments.set (_getSegmentIndex (sID));
+  }
+
+  @Nonnull
+  private static String _getSegmentFilename (@Nonnull final String sFilename, @Nonnegative final int nIndex)
+  {
+    return sFilename + FILENAME_EXTENSION_SEGMENT + nIndex;
+  }
+
   @Override
   @MustBeLocked (ELockType.WRITE)
   protected void onRecoveryCreate (@Nonnull final IMPLTYPE aItem)
   {
-    _addItem (aItem, EDAOActionType.CREATE);
+    // In segmented mode the rotated WAL file may contain changes that are
+    // already part of the segments - replay idempotent
+    if (m_nSegmentCount > 0 && m_aMap.containsKey (aItem.getID ()))
+      _addItem (aItem, EDAOActionType.UPDATE);
+    else
+      _addItem (aItem, EDAOActionType.CREATE);
   }
 
   @Override
   @MustBeLocked (ELockType.WRITE)
   protected void onRecoveryUpdate (@Nonnull final IMPLTYPE aItem)
   {
-    _addItem (aItem, EDAOActionType.UPDATE);
+    if (m_nSegmentCount > 0 && !m_aMap.containsKey (aItem.getID ()))
+      _addItem (aItem, EDAOActionType.CREATE);
+    else
+      _addItem (aItem, EDAOActionType.UPDATE);
   }
 
   @Override
   @MustBeLocked (ELockType.WRITE)
   protected void onRecoveryDelete (@Nonnull final IMPLTYPE aItem)
   {
-    m_aMap.remove (aItem.getID (), aItem);
+    if (m_aMap.remove (aItem.getID (), aItem))
+      _markSegmentDirty (aItem.getID ());
   }
 
-  @Override
-  @Nonnull
-  protected EChange onRead (@Nonnull final IMicroDocument aDoc)
+  @MustBeLocked (ELockType.WRITE)
+  private void _readItems (@Nonnull final IMicroElement eRoot,
+                           @Nonnull final Wrapper <EChange> aChange,
+                           @Nonnull final BitSet aChangedSegments)
   {
     // Read all child elements independent of the name - soft migration
     final Class <IMPLTYPE> aDataTypeClass = getDataTypeClass ();
-    final Wrapper <EChange> aChange = new Wrapper <> (EChange.UNCHANGED);
-
-    aDoc.getDocumentElement ().forAllChildElements (m_aReadElementFilter, eItem -> {
+    eRoot.forAllChildElements (m_aReadElementFilter, eItem -> {
       final IMPLTYPE aItem = MicroTypeConverter.convertToNative (eItem, aDataTypeClass);
       _addItem (aItem, EDAOActionType.CREATE);
       if (aItem instanceof IDAOReadChangeAware)
@@ -195,8 +342,69 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
         {
           // Remember that something was changed while reading
           aChange.set (EChange.CHANGED);
+          if (m_nSegmentCount > 0)
+            aChangedSegments.set (_getSegmentIndex (aItem.getID ()));
         }
     });
+  }
+
+  @Override
+  @Nonnull
+  protected EChange onRead (@Nonnull final IMicroDocument aDoc)
+  {
+    final Wrapper <EChange> aChange = new Wrapper <> (EChange.UNCHANGED);
+    final BitSet aChangedSegments = new BitSet (m_nSegmentCount);
+    final IMicroElement eRoot = aDoc.getDocumentElement ();
+    final String sFilename = getFilenameProvider ().get ();
+
+    if (eRoot.hasAttribute (ATTR_SEGMENT_COUNT))
+    {
+      // The main file references segment files
+      boolean bSameLayout = eRoot.getAttributeValueAsInt (ATTR_SEGMENT_COUNT, -1) == m_nSegmentCount &&
+                            sFilename != null;
+      for (final IMicroElement eSegment : eRoot.getAllChildElements (ELEMENT_SEGMENT))
+      {
+        final String sSegmentFilename = eSegment.getAttributeValue (ATTR_FILENAME);
+        final IMicroDocument aSegmentDoc = sSegmentFilename == null ? null
+                                                                    : MicroReader.readMicroXML (getIO ().getFile (sSegmentFilename));
+        if (aSegmentDoc == null || aSegmentDoc.getDocumentElement () == null)
+          throw new IllegalStateException ("Failed to read DAO segment file '" + sSegmentFilename + "'");
+        _readItems (aSegmentDoc.getDocumentElement (), aChange, aChangedSegments);
+
+        final int nIndex = eSegment.getAttributeValueAsInt (ATTR_INDEX, -1);
+        if (bSameLayout && !sSegmentFilename.equals (_getSegmentFilename (sFilename, nIndex)))
+          bSameLayout = false;
+        m_aObsoleteSegmentFilenames.add (sSegmentFilename);
+      }
+
+      if (bSameLayout)
+      {
+        // Segment files can be reused
+        m_aObsoleteSegmentFilenames.clear ();
+        m_sSegmentFilename = sFilename;
+      }
+    }
+    else
+    {
+      // All items are contained in the main file
+      _readItems (eRoot, aChange, aChangedSegments);
+    }
+
+    // Only the segments containing items changed while reading need to be
+    // written
+    m_aDirtySegments.clear ();
+    m_aDirtySegments.or (aChangedSegments);
+    if (m_nSegmentCount > 0 && m_sSegmentFilename == null)
+    {
+      // Layout changed or segmented mode enabled
+      m_aDirtySegments.set (0, m_nSegmentCount);
+      aChange.set (EChange.CHANGED);
+    }
+    if (m_nSegmentCount == 0 && eRoot.hasAttribute (ATTR_SEGMENT_COUNT))
+    {
+      // Segmented mode was disabled
+      aChange.set (EChange.CHANGED);
+    }
     return aChange.get ();
   }
 
@@ -212,6 +420,12 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
   @MustBeLocked (ELockType.READ)
   protected IMicroDocument createWriteData ()
   {
+    if (m_nSegmentCount > 0)
+    {
+      // The segment files are written in _onBeforeWriteMainFile
+      return _createManifest (getFilenameProvider ().get ());
+    }
+
     final IMicroDocument aDoc = new MicroDocument ();
     final IMicroElement eRoot = aDoc.appendElement (ELEMENT_ROOT);
     for (final IMPLTYPE aItem : internalGetAllSortedByKey ())
@@ -219,6 +433,256 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
     return aDoc;
   }
 
+  @Override
+  @MustBeLocked (ELockType.WRITE)
+  void _onBeforeWriteMainFile () throws DAOException
+  {
+    if (m_nSegmentCount > 0)
+    {
+      final SegmentSnapshot aSnapshot = _createSegmentSnapshot ();
+      m_aSegmentWriteLock.lock ();
+      try
+      {
+        _writeSegments (_convertSegments (aSnapshot));
+      }
+      catch (final DAOException | RuntimeException ex)
+      {
+        m_aDirtySegments.or (aSnapshot.m_aSegments);
+        throw ex;
+      }
+      finally
+      {
+        m_aSegmentWriteLock.unlock ();
+      }
+    }
+  }
+
+  /**
+   * Create the main file referencing all segment files.
+   *
+   * @param sFilename
+   *        The main filename. May not be <code>null</code>.
+   * @return The manifest document. Never <code>null</code>.
+   */
+  @Nonnull
+  private IMicroDocument _createManifest (@Nonnull final String sFilename)
+  {
+    final IMicroDocument aManifest = new MicroDocument ();
+    final IMicroElement eRoot = aManifest.appendElement (ELEMENT_ROOT);
+    eRoot.setAttribute (ATTR_SEGMENT_COUNT, m_nSegmentCount);
+    for (int i = 0; i < m_nSegmentCount; ++i)
+      eRoot.appendElement (ELEMENT_SEGMENT)
+           .setAttribute (ATTR_INDEX, i)
+           .setAttribute (ATTR_FILENAME, _getSegmentFilename (sFilename, i));
+    return aManifest;
+  }
+
+  /**
+   * Convert the items of all dirty segments to XML elements and reset the
+   * dirty state. Only the conversion of the items happens here, everything
+   * else is done after the DAO lock was released.
+   *
+   * @return The snapshot to be written. Never <code>null</code>.
+   */
+  @Nonnull
+  @MustBeLocked (ELockType.WRITE)
+  private SegmentSnapshot _createSegmentSnapshot ()
+  {
+    final String sFilename = getFilenameProvider ().get ();
+    if (!sFilename.equals (m_sSegmentFilename))
+    {
+      // Filename changed - write all segments to the new location
+      m_aDirtySegments.set (0, m_nSegmentCount);
+      if (m_sSegmentFilename != null)
+        for (int i = 0; i < m_nSegmentCount; ++i)
+          m_aObsoleteSegmentFilenames.add (_getSegmentFilename (m_sSegmentFilename, i));
+      m_sSegmentFilename = sFilename;
+    }
+
+    final BitSet aSegments = (BitSet) m_aDirtySegments.clone ();
+    final ICommonsList <ICommonsMap <String, IMicroElement>> aSegmentElements = new CommonsArrayList <> (m_nSegmentCount);
+    for (int i = 0; i < m_nSegmentCount; ++i)
+      aSegmentElements.add (aSegments.get (i) ? new CommonsHashMap <> () : null);
+    if (!aSegments.isEmpty ())
+      for (final Map.Entry <String, IMPLTYPE> aEntry : m_aMap.entrySet ())
+      {
+        final ICommonsMap <String, IMicroElement> aElements = aSegmentElements.get (_getSegmentIndex (aEntry.getKey ()));
+        if (aElements != null)
+          aElements.put (aEntry.getKey (), MicroTypeConverter.convertToMicroElement (aEntry.getValue (), ELEMENT_ITEM));
+      }
+
+    m_aDirtySegments.clear ();
+    return new SegmentSnapshot (sFilename, aSegments, aSegmentElements);
+  }
+
+  /**
+   * Create one XML document per segment from the passed snapshot and invoke
+   * {@link #modifyWriteData(IMicroDocument)} on each of them. This method does
+   * not require the DAO lock.
+   *
+   * @param aSnapshot
+   *        The snapshot to convert. May not be <code>null</code>.
+   * @return A map from segment filename to segment document. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  private ICommonsMap <String, IMicroDocument> _convertSegments (@Nonnull final SegmentSnapshot aSnapshot)
+  {
+    final ICommonsMap <String, IMicroDocument> ret = new CommonsLinkedHashMap <> ();
+    final BitSet aSegments = aSnapshot.m_aSegments;
+    for (int i = aSegments.nextSetBit (0); i >= 0; i = aSegments.nextSetBit (i + 1))
+    {
+      final ICommonsMap <String, IMicroElement> aElements = aSnapshot.m_aSegmentElements.get (i);
+
+      final IMicroDocument aSegmentDoc = new MicroDocument ();
+      final IMicroElement eRoot = aSegmentDoc.appendElement (ELEMENT_ROOT);
+      // Items of a segment are sorted by key, as in the non-segmented mode
+      for (final IMicroElement eItem : aElements.getSortedByKey (Comparator.naturalOrder ()).values ())
+        eRoot.appendChild (eItem);
+      modifyWriteData (aSegmentDoc);
+      ret.put (_getSegmentFilename (aSnapshot.m_sFilename, i), aSegmentDoc);
+    }
+    return ret;
+  }
+
+  /**
+   * Write all passed segment files.
+   *
+   * @param aSegmentDocs
+   *        The segment documents to write. May not be <code>null</code>.
+   * @throws DAOException
+   *         if writing any segment failed
+   */
+  private void _writeSegments (@Nonnull final ICommonsMap <String, IMicroDocument> aSegmentDocs) throws DAOException
+  {
+    for (final Map.Entry <String, IMicroDocument> aEntry : aSegmentDocs.entrySet ())
+      _writeDocumentAtomically (aEntry.getKey (), aEntry.getValue ());
+  }
+
+  @Override
+  @MustBeLocked (ELockType.WRITE)
+  protected void onAfterWriteToFile (@Nonnull final String sFilename)
+  {
+    _deleteObsoleteSegmentFiles ();
+  }
+
+  @MustBeLocked (ELockType.WRITE)
+  private void _deleteObsoleteSegmentFiles ()
+  {
+    if (m_aObsoleteSegmentFilenames.isNotEmpty ())
+    {
+      // Don't delete files that are part of the current layout
+      if (m_sSegmentFilename != null)
+        for (int i = 0; i < m_nSegmentCount; ++i)
+          m_aObsoleteSegmentFilenames.remove (_getSegmentFilename (m_sSegmentFilename, i));
+      for (final String sObsoleteFilename : m_aObsoleteSegmentFilenames)
+        getIO ().deleteFileIfExisting (sObsoleteFilename);
+      m_aObsoleteSegmentFilenames.clear ();
+    }
+  }
+
+  /**
+   * Scheduled writing in segmented mode. Within the DAO lock the WAL file is
+   * rotated and the items of the dirty segments are converted to XML
+   * elements. The documents are created and the files are written after the
+   * DAO lock was released, so that the DAO can be modified in the meantime. New modifications end up in
+   * a new WAL file.
+   */
+  @Override
+  void _performScheduledWrite (@Nonnull @Nonempty final String sWALFilename)
+  {
+    if (m_nSegmentCount == 0)
+    {
+      super._performScheduledWrite (sWALFilename);
+      return;
+    }
+
+    final String sWALFilenameCompact = _getWALFilenameCompact (sWALFilename);
+    final SegmentSnapshot aSnapshot;
+    final IMicroDocument aManifest;
+    m_aRWLock.writeLock ().lock ();
+    try
+    {
+      final String sFilename = getFilenameProvider ().get ();
+      if (sFilename == null ||
+          !sFilename.equals (getLastFilename ()) ||
+          getIO ().existsFile (sWALFilenameCompact) ||
+          !_rotateWALFile (sWALFilename, sWALFilenameCompact))
+      {
+        // Filename change or a previous snapshot failed - write everything
+        // within the lock
+        super._performScheduledWrite (sWALFilename);
+        return;
+      }
+
+      _onWriteStart ();
+      aSnapshot = _createSegmentSnapshot ();
+      aManifest = _createManifest (aSnapshot.m_sFilename);
+      modifyWriteData (aManifest);
+      internalSetPendingChanges (false);
+
+      // Keep the order of segment writes
+      m_aSegmentWriteLock.lock ();
+    }
+    finally
+    {
+      m_aRWLock.writeLock ().unlock ();
+    }
+
+    // Outside of the DAO lock
+    boolean bSuccess = false;
+    int nSegmentFiles = 0;
+    try
+    {
+      final StopWatch aSW = StopWatch.createdStarted ();
+      final ICommonsMap <String, IMicroDocument> aSegmentDocs = _convertSegments (aSnapshot);
+      nSegmentFiles = aSegmentDocs.size ();
+      _writeSegments (aSegmentDocs);
+      _writeDocumentAtomically (aSnapshot.m_sFilename, aManifest);
+      _onWriteSuccess (aSW.stopAndGetMillis ());
+      bSuccess = true;
+    }
+    catch (final DAOException | RuntimeException ex)
+    {
+      _onWriteException (ex, aSnapshot.m_sFilename, aManifest);
+    }
+    finally
+    {
+      m_aSegmentWriteLock.unlock ();
+    }
+
+    if (bSuccess)
+    {
+      // All changes of the rotated WAL file are persisted
+      m_aRWLock.writeLocked ( () -> {
+        _deleteWALFileIfExisting (sWALFilenameCompact);
+        _deleteObsoleteSegmentFiles ();
+      });
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("Finished writing " + nSegmentFiles + " DAO segment files outside of the lock");
+    }
+    else
+    {
+      // Retry within the lock, including all changes that happened in the
+      // meantime
+      m_aRWLock.writeLocked ( () -> {
+        m_aDirtySegments.or (aSnapshot.m_aSegments);
+        internalSetPendingChanges (true);
+        super._performScheduledWrite (sWALFilename);
+      });
+    }
+  }
+
+  @MustBeLocked (ELockType.WRITE)
+  private boolean _rotateWALFile (@Nonnull final String sWALFilename, @Nonnull final String sWALFilenameCompact)
+  {
+    _closeBinaryWALFile (null);
+    if (!getIO ().existsFile (sWALFilename))
+      return true;
+    return getIO ().renameFile (sWALFilename, sWALFilenameCompact).isSuccess ();
+  }
+
   @Nonnull
   @ReturnsMutableObject
   public final CallbackList <IDAOChangeCallback <INTERFACETYPE>> callbacks ()
@@ -269,6 +733,7 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
     }
 
     m_aMap.put (sID, aItem);
+    _markSegmentDirty (sID);
   }
 
   /**
@@ -424,6 +889,7 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
     final IMPLTYPE aDeletedItem = m_aMap.remove (sID);
     if (aDeletedItem == null)
       return null;
+    _markSegmentDirty (sID);
 
     // Trigger save changes
     super.markAsChanged (aDeletedItem, EDAOActionType.DELETE);
@@ -465,6 +931,8 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
   @MustBeLocked (ELockType.WRITE)
   protected final void internalMarkItemDeleted (@Nonnull final IMPLTYPE aItem, final boolean bInvokeCallbacks)
   {
+    _markSegmentDirty (aItem.getID ());
+
     // Trigger save changes
     super.markAsChanged (aItem, EDAOActionType.UPDATE);
 
@@ -504,6 +972,8 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
   @MustBeLocked (ELockType.WRITE)
   protected final void internalMarkItemUndeleted (@Nonnull final IMPLTYPE aItem, final boolean bInvokeCallbacks)
   {
+    _markSegmentDirty (aItem.getID ());
+
     // Trigger save changes
     super.markAsChanged (aItem, EDAOActionType.UPDATE);
 
@@ -525,6 +995,7 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
   @Nonnull
   protected final EChange internalRemoveAllItemsNoCallback ()
   {
+    m_aDirtySegments.set (0, m_nSegmentCount);
     return m_aMap.removeAll ();
   }
 
@@ -815,6 +1286,9 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
   @Override
   public String toString ()
   {
-    return ToStringGenerator.getDerived (super.toString ()).append ("Map", m_aMap).getToString ();
+    return ToStringGenerator.getDerived (super.toString ())
+                            .append ("Map", m_aMap)
+                            .append ("SegmentCount", m_nSegmentCount)
+                            .getToString ();
   }
 }
@@ -23,7 +23,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.util.List;
@@ -46,6 +50,7 @@ import com.helger.commons.annotation.MustBeLocked;
 import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.OverrideOnDemand;
 import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.datetime.PDTFactory;
 import com.helger.commons.datetime.PDTToString;
 import com.helger.commons.functional.ISupplier;
@@ -60,11 +65,12 @@ import com.helger.commons.io.resource.FileSystemResource;
 import com.helger.commons.io.resource.IReadableResource;
 import com.helger.commons.io.stream.StreamHelper;
 import com.helger.commons.lang.TimeValue;
+import com.helger.commons.mutable.MutableBoolean;
 import com.helger.commons.state.EChange;
 import com.helger.commons.state.ESuccess;
 import com.helger.commons.statistics.IMutableStatisticsHandlerCounter;
 import com.helger.commons.statistics.IMutableStatisticsHandlerTimer;
-import com.helger.commons.statistics.StatisticsManager;
+import com.helger.commons.statistics.StatisticsHandlerKey;
 import com.helger.commons.string.ToStringGenerator;
 import com.helger.commons.timing.StopWatch;
 import com.helger.dao.AbstractDAO;
@@ -95,28 +101,28 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends AbstractDAO
 {
   public static final TimeValue DEFAULT_WAITING_TIME = new TimeValue (TimeUnit.SECONDS, 10);
+  public static final EWALFormat DEFAULT_WAL_FORMAT = EWALFormat.XML;
+  public static final EWALFsyncPolicy DEFAULT_WAL_FSYNC_POLICY = EWALFsyncPolicy.PER_BATCH;
+  /**
+   * The filename extension of a WAL file that was rotated away for a snapshot
+   * written outside of the DAO lock. It is deleted after the snapshot was
+   * written and replayed before the regular WAL file on recovery.
+   *
+   * @since 9.4.3
+   */
+  public static final String FILENAME_EXTENSION_WAL_COMPACT = ".compact";
   private static final Logger LOGGER = LoggerFactory.getLogger (AbstractWALDAO.class);
 
-  private final IMutableStatisticsHandlerCounter m_aStatsCounterInitTotal = StatisticsManager.getCounterHandler (getClass ().getName () +
-                                                                                                                 "$init-total");
-  private final IMutableStatisticsHandlerCounter m_aStatsCounterInitSuccess = StatisticsManager.getCounterHandler (getClass ().getName () +
-                                                                                                                   "$init-success");
-  private final IMutableStatisticsHandlerTimer m_aStatsCounterInitTimer = StatisticsManager.getTimerHandler (getClass ().getName () +
-                                                                                                             "$init");
-  private final IMutableStatisticsHandlerCounter m_aStatsCounterReadTotal = StatisticsManager.getCounterHandler (getClass ().getName () +
-                                                                                                                 "$read-total");
-  private final IMutableStatisticsHandlerCounter m_aStatsCounterReadSuccess = StatisticsManager.getCounterHandler (getClass ().getName () +
-                                                                                                                   "$read-success");
-  private final IMutableStatisticsHandlerTimer m_aStatsCounterReadTimer = StatisticsManager.getTimerHandler (getClass ().getName () +
-                                                                                                             "$read");
-  private final IMutableStatisticsHandlerCounter m_aStatsCounterWriteTotal = StatisticsManager.getCounterHandler (getClass ().getName () +
-                                                                                                                  "$write-total");
-  private final IMutableStatisticsHandlerCounter m_aStatsCounterWriteSuccess = StatisticsManager.getCounterHandler (getClass ().getName () +
-                                                                                                                    "$write-success");
-  private final IMutableStatisticsHandlerCounter m_aStatsCounterWriteExceptions = StatisticsManager.getCounterHandler (getClass ().getName () +
-                                                                                                                       "$write-exceptions");
-  private final IMutableStatisticsHandlerTimer m_aStatsCounterWriteTimer = StatisticsManager.getTimerHandler (getClass ().getName () +
-                                                                                                              "$write");
+  private final StatisticsHandlerKey <IMutableStatisticsHandlerCounter> m_aStatsCounterInitTotal = StatisticsHandlerKey.counter (getClass (), "$init-total");
+  private final StatisticsHandlerKey <IMutableStatisticsHandlerCounter> m_aStatsCounterInitSuccess = StatisticsHandlerKey.counter (getClass (), "$init-success");
+  private final StatisticsHandlerKey <IMutableStatisticsHandlerTimer> m_aStatsCounterInitTimer = StatisticsHandlerKey.timer (getClass (), "$init");
+  private final StatisticsHandlerKey <IMutableStatisticsHandlerCounter> m_aStatsCounterReadTotal = StatisticsHandlerKey.counter (getClass (), "$read-total");
+  private final StatisticsHandlerKey <IMutableStatisticsHandlerCounter> m_aStatsCounterReadSuccess = StatisticsHandlerKey.counter (getClass (), "$read-success");
+  private final StatisticsHandlerKey <IMutableStatisticsHandlerTimer> m_aStatsCounterReadTimer = StatisticsHandlerKey.timer (getClass (), "$read");
+  private final StatisticsHandlerKey <IMutableStatisticsHandlerCounter> m_aStatsCounterWriteTotal = StatisticsHandlerKey.counter (getClass (), "$write-total");
+  private final StatisticsHandlerKey <IMutableStatisticsHandlerCounter> m_aStatsCounterWriteSuccess = StatisticsHandlerKey.counter (getClass (), "$write-success");
+  private final StatisticsHandlerKey <IMutableStatisticsHandlerCounter> m_aStatsCounterWriteExceptions = StatisticsHandlerKey.counter (getClass (), "$write-exceptions");
+  private final StatisticsHandlerKey <IMutableStatisticsHandlerTimer> m_aStatsCounterWriteTimer = StatisticsHandlerKey.timer (getClass (), "$write");
   // Performance and small version
   public static final IXMLWriterSettings WRITE_XWS = new XMLWriterSettings ().setIncorrectCharacterHandling (EXMLIncorrectCharacterHandling.WRITE_TO_FILE_NO_LOG);
   public static final IXMLWriterSettings WAL_XWS = new XMLWriterSettings ().setIncorrectCharacterHandling (EXMLIncorrectCharacterHandling.WRITE_TO_FILE_NO_LOG)
@@ -134,6 +140,11 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
   private LocalDateTime m_aLastWriteDT;
   private boolean m_bCanWriteWAL = true;
   private TimeValue m_aWaitingTime = DEFAULT_WAITING_TIME;
+  private EWALFormat m_eWALFormat = DEFAULT_WAL_FORMAT;
+  private EWALFsyncPolicy m_eWALFsyncPolicy = DEFAULT_WAL_FSYNC_POLICY;
+  private Duration m_aWALFsyncInterval = BinaryWALFile.DEFAULT_FSYNC_INTERVAL;
+  // The open binary WAL file - only used for EWALFormat.BINARY
+  private BinaryWALFile m_aBinaryWALFile;
 
   // Status vars
   private final WALListener m_aWALListener;
@@ -154,6 +165,7 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
                             @Nonnull final IFileRelativeIO aIO,
                             @Nonnull final ISupplier <String> aFilenameProvider)
   {
+    super (new WALReadWriteLock ());
     m_aDataTypeClass = ValueEnforcer.notNull (aDataTypeClass, "DataTypeClass");
     m_aIO = ValueEnforcer.notNull (aIO, "DAOIO");
     m_aFilenameProvider = ValueEnforcer.notNull (aFilenameProvider, "FilenameProvider");
@@ -399,6 +411,222 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
   @IsLocked (ELockType.WRITE)
   protected abstract void onRecoveryDelete (@Nonnull DATATYPE aElement);
 
+  @IsLocked (ELockType.WRITE)
+  private void _recoverElement (@Nonnull final EDAOActionType eActionType, @Nonnull final DATATYPE aElement)
+  {
+    switch (eActionType)
+    {
+      case CREATE:
+        try
+        {
+          onRecoveryCreate (aElement);
+          if (!isSilentMode ())
+            if (LOGGER.isInfoEnabled ())
+              LOGGER.info ("[WAL] wal-recovery create " + aElement);
+        }
+        catch (final RuntimeException ex)
+        {
+          if (LOGGER.isErrorEnabled ())
+            LOGGER.error ("[WAL] wal-recovery create " +
+                          aElement +
+                          " - " +
+                          ex.getClass ().getName () +
+                          ": " +
+                          ex.getMessage ());
+          throw ex;
+        }
+        break;
+      case UPDATE:
+        try
+        {
+          onRecoveryUpdate (aElement);
+          if (!isSilentMode ())
+            if (LOGGER.isInfoEnabled ())
+              LOGGER.info ("[WAL] wal-recovery update " + aElement);
+          break;
+        }
+        catch (final RuntimeException ex)
+        {
+          if (LOGGER.isErrorEnabled ())
+            LOGGER.error ("[WAL] wal-recovery update " +
+                          aElement +
+                          " - " +
+                          ex.getClass ().getName () +
+                          ": " +
+                          ex.getMessage ());
+          throw ex;
+        }
+      case DELETE:
+        try
+        {
+          onRecoveryDelete (aElement);
+          if (!isSilentMode ())
+            if (LOGGER.isInfoEnabled ())
+              LOGGER.info ("[WAL] wal-recovery delete " + aElement);
+          break;
+        }
+        catch (final RuntimeException ex)
+        {
+          if (LOGGER.isErrorEnabled ())
+            LOGGER.error ("[WAL] wal-recovery delete " +
+                          aElement +
+                          " - " +
+                          ex.getClass ().getName () +
+                          ": " +
+                          ex.getMessage ());
+          throw ex;
+        }
+      default:
+        throw new IllegalStateException ("Unsupported action type provided: " + eActionType);
+    }
+  }
+
+  @Nonnull
+  private static DAOException _onRecoveryException (@Nonnull final File aWALFile, @Nonnull final Exception ex)
+  {
+    if (LOGGER.isErrorEnabled ())
+      LOGGER.error ("Failed to recover from WAL file '" +
+                    aWALFile.getAbsolutePath () +
+                    "'. Technical details: " +
+                    ex.getClass ().getName () +
+                    ": " +
+                    ex.getMessage ());
+    triggerExceptionHandlersRead (ex, false, aWALFile);
+    return new DAOException ("Error the WAL file '" + aWALFile.getAbsolutePath () + "'", ex);
+  }
+
+  /**
+   * Replay all actions contained in the passed WAL file. The file may be in any
+   * {@link EWALFormat}.
+   *
+   * @param aWALFile
+   *        The existing WAL file to recover from. May not be <code>null</code>.
+   * @param aPerformed
+   *        Set to <code>true</code> if at least one element was recovered.
+   * @param aContainedErrors
+   *        Set to <code>true</code> if the file contained errors and should be
+   *        maintained for analysis.
+   * @throws DAOException
+   *         If the WAL file cannot be read
+   */
+  @MustBeLocked (ELockType.WRITE)
+  private void _recoverFromWALFile (@Nonnull final File aWALFile,
+                                    @Nonnull final MutableBoolean aPerformed,
+                                    @Nonnull final MutableBoolean aContainedErrors) throws DAOException
+  {
+    if (!isSilentMode ())
+      if (LOGGER.isInfoEnabled ())
+        LOGGER.info ("Trying to recover from WAL file " + aWALFile.getAbsolutePath ());
+    if (BinaryWALFile.isIncompleteBinaryWALFileHeader (aWALFile))
+    {
+      // Crash while writing the header - nothing to recover
+      if (LOGGER.isWarnEnabled ())
+        LOGGER.warn ("WAL file " + aWALFile.getAbsolutePath () + " contains only an incomplete binary header");
+      return;
+    }
+    if (BinaryWALFile.isBinaryWALFile (aWALFile))
+    {
+      try
+      {
+        final BinaryWALFile.ReadResult aResult = BinaryWALFile.readAll (aWALFile, (eActionType, aElements) -> {
+          if (!isSilentMode ())
+            if (LOGGER.isInfoEnabled ())
+              LOGGER.info ("Trying to recover " + aElements.size () + " " + eActionType + " actions from WAL file");
+
+          for (int i = 0; i < aElements.size (); ++i)
+          {
+            final byte [] aBytes = aElements.get (i);
+            final DATATYPE aElement = convertWALBytesToNative (aBytes);
+            if (aElement == null)
+            {
+              // Cannot recover, because conversion fails
+              aContainedErrors.set (true);
+              onRecoveryErrorConvertToNative (eActionType, i, new String (aBytes, StandardCharsets.UTF_8));
+              continue;
+            }
+            _recoverElement (eActionType, aElement);
+            aPerformed.set (true);
+          }
+        });
+        if (!aResult.isComplete ())
+        {
+          // Torn write - keep the file for analysis
+          aContainedErrors.set (true);
+          if (LOGGER.isWarnEnabled ())
+            LOGGER.warn ("WAL file " +
+                         aWALFile.getAbsolutePath () +
+                         " contains an incomplete record at the end: " +
+                         aResult);
+        }
+        if (!isSilentMode ())
+          if (LOGGER.isInfoEnabled ())
+            LOGGER.info ("Successfully finished recovery of " +
+                         aResult.getRecordCount () +
+                         " records from binary WAL file " +
+                         aWALFile.getAbsolutePath ());
+      }
+      catch (final IOException | RuntimeException ex)
+      {
+        throw _onRecoveryException (aWALFile, ex);
+      }
+    }
+    else
+    {
+      // Avoid writing the recovery actions to the WAL file again :)
+      try (final DataInputStream aOIS = new DataInputStream (FileHelper.getInputStream (aWALFile)))
+      {
+        while (true)
+        {
+          // Read action type
+          final String sActionTypeID;
+          try
+          {
+            sActionTypeID = StreamHelper.readSafeUTF (aOIS);
+          }
+          catch (final EOFException ex)
+          {
+            // End of file
+            break;
+          }
+          final EDAOActionType eActionType = EDAOActionType.getFromIDOrThrow (sActionTypeID);
+
+          // Read number of elements
+          final int nElements = aOIS.readInt ();
+          if (!isSilentMode ())
+            if (LOGGER.isInfoEnabled ())
+              LOGGER.info ("Trying to recover " + nElements + " " + eActionType + " actions from WAL file");
+
+          // Read all elements
+          for (int i = 0; i < nElements; ++i)
+          {
+            final String sElement = StreamHelper.readSafeUTF (aOIS);
+            final DATATYPE aElement = convertWALStringToNative (sElement);
+            if (aElement == null)
+            {
+              // Cannot recover, because conversion fails
+              aContainedErrors.set (true);
+              onRecoveryErrorConvertToNative (eActionType, i, sElement);
+              continue;
+            }
+            if (!isSilentMode ())
+              if (LOGGER.isInfoEnabled ())
+                LOGGER.info ("Trying to recover object [" + i + "] with " + sElement.length () + " chars");
+
+            _recoverElement (eActionType, aElement);
+            aPerformed.set (true);
+          }
+        }
+        if (!isSilentMode ())
+          if (LOGGER.isInfoEnabled ())
+            LOGGER.info ("Successfully finished recovery from WAL file " + aWALFile.getAbsolutePath ());
+      }
+      catch (final IOException | RuntimeException ex)
+      {
+        throw _onRecoveryException (aWALFile, ex);
+      }
+    }
+  }
+
   /**
    * Call this method inside the constructor to read the file contents directly.
    * This method is write locking internally. This method performs WAL file
@@ -449,15 +677,15 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
           beginWithoutAutoSave ();
           try
           {
-            m_aStatsCounterInitTotal.increment ();
+            m_aStatsCounterInitTotal.getHandler ().increment ();
             final StopWatch aSW = StopWatch.createdStarted ();
 
             if (onInit ().isChanged ())
               if (aFinalFile != null)
                 eWriteSuccess = _writeToFile ();
 
-            m_aStatsCounterInitTimer.addTime (aSW.stopAndGetMillis ());
-            m_aStatsCounterInitSuccess.increment ();
+            m_aStatsCounterInitTimer.getHandler ().addTime (aSW.stopAndGetMillis ());
+            m_aStatsCounterInitSuccess.getHandler ().increment ();
             m_nInitCount++;
             m_aLastInitDT = PDTFactory.getCurrentLocalDateTime ();
           }
@@ -477,7 +705,7 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
             if (LOGGER.isInfoEnabled ())
               LOGGER.info ("Trying to read WAL DAO XML file '" + aFinalFile.getAbsolutePath () + "'");
 
-          m_aStatsCounterReadTotal.increment ();
+          m_aStatsCounterReadTotal.getHandler ().increment ();
           aDoc = MicroReader.readMicroXML (aFinalFile);
           if (aDoc == null)
           {
@@ -495,8 +723,8 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
               if (onRead (aDoc).isChanged ())
                 eWriteSuccess = _writeToFile ();
 
-              m_aStatsCounterReadTimer.addTime (aSW.stopAndGetMillis ());
-              m_aStatsCounterReadSuccess.increment ();
+              m_aStatsCounterReadTimer.getHandler ().addTime (aSW.stopAndGetMillis ());
+              m_aStatsCounterReadSuccess.getHandler ().increment ();
               m_nReadCount++;
               m_aLastReadDT = PDTFactory.getCurrentLocalDateTime ();
             }
@@ -538,159 +766,48 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
       if (aDoc != null)
         onBetweenReadAndWAL (aDoc);
 
-      // Check if there is any WAL file to recover
+      // Check if there is any WAL file to recover. A WAL file that was
+      // rotated for a snapshot that never finished is older and must be
+      // replayed first.
       final String sWALFilename = _getWALFilename ();
-      final File aWALFile = sWALFilename == null ? null : m_aIO.getFile (sWALFilename);
-      if (aWALFile != null && aWALFile.exists ())
+      if (sWALFilename != null)
       {
-        if (!isSilentMode ())
-          if (LOGGER.isInfoEnabled ())
-            LOGGER.info ("Trying to recover from WAL file " + aWALFile.getAbsolutePath ());
-        boolean bPerformedAtLeastOnRecovery = false;
-        boolean bRecoveryContainedErrors = false;
-
-        // Avoid writing the recovery actions to the WAL file again :)
-        try (final DataInputStream aOIS = new DataInputStream (FileHelper.getInputStream (aWALFile)))
-        {
-          while (true)
-          {
-            // Read action type
-            final String sActionTypeID;
-            try
-            {
-              sActionTypeID = StreamHelper.readSafeUTF (aOIS);
-            }
-            catch (final EOFException ex)
-            {
-              // End of file
-              break;
-            }
-            final EDAOActionType eActionType = EDAOActionType.getFromIDOrThrow (sActionTypeID);
-
-            // Read number of elements
-            final int nElements = aOIS.readInt ();
-            if (!isSilentMode ())
-              if (LOGGER.isInfoEnabled ())
-                LOGGER.info ("Trying to recover " + nElements + " " + eActionType + " actions from WAL file");
-
-            // Read all elements
-            for (int i = 0; i < nElements; ++i)
-            {
-              final String sElement = StreamHelper.readSafeUTF (aOIS);
-              final DATATYPE aElement = convertWALStringToNative (sElement);
-              if (aElement == null)
-              {
-                // Cannot recover, because conversion fails
-                bRecoveryContainedErrors = true;
-                onRecoveryErrorConvertToNative (eActionType, i, sElement);
-                continue;
-              }
-              if (!isSilentMode ())
-                if (LOGGER.isInfoEnabled ())
-                  LOGGER.info ("Trying to recover object [" + i + "] with " + sElement.length () + " chars");
-
-              switch (eActionType)
-              {
-                case CREATE:
-                  try
-                  {
-                    onRecoveryCreate (aElement);
-                    bPerformedAtLeastOnRecovery = true;
-                    if (!isSilentMode ())
-                      if (LOGGER.isInfoEnabled ())
-                        LOGGER.info ("[WAL] wal-recovery create " + aElement);
-                  }
-                  catch (final RuntimeException ex)
-                  {
-                    if (LOGGER.isErrorEnabled ())
-                      LOGGER.error ("[WAL] wal-recovery create " +
-                                    aElement +
-                                    " - " +
-                                    ex.getClass ().getName () +
-                                    ": " +
-                                    ex.getMessage ());
-                    throw ex;
-                  }
-                  break;
-                case UPDATE:
-                  try
-                  {
-                    onRecoveryUpdate (aElement);
-                    bPerformedAtLeastOnRecovery = true;
-                    if (!isSilentMode ())
-                      if (LOGGER.isInfoEnabled ())
-                        LOGGER.info ("[WAL] wal-recovery update " + aElement);
-                    break;
-                  }
-                  catch (final RuntimeException ex)
-                  {
-                    if (LOGGER.isErrorEnabled ())
-                      LOGGER.error ("[WAL] wal-recovery update " +
-                                    aElement +
-                                    " - " +
-                                    ex.getClass ().getName () +
-                                    ": " +
-                                    ex.getMessage ());
-                    throw ex;
-                  }
-                case DELETE:
-                  try
-                  {
-                    onRecoveryDelete (aElement);
-                    bPerformedAtLeastOnRecovery = true;
-                    if (!isSilentMode ())
-                      if (LOGGER.isInfoEnabled ())
-                        LOGGER.info ("[WAL] wal-recovery delete " + aElement);
-                    break;
-                  }
-                  catch (final RuntimeException ex)
-                  {
-                    if (LOGGER.isErrorEnabled ())
-                      LOGGER.error ("[WAL] wal-recovery delete " +
-                                    aElement +
-                                    " - " +
-                                    ex.getClass ().getName () +
-                                    ": " +
-                                    ex.getMessage ());
-                    throw ex;
-                  }
-                default:
-                  throw new IllegalStateException ("Unsupported action type provided: " + eActionType);
-              }
-            }
-          }
-          if (!isSilentMode ())
-            if (LOGGER.isInfoEnabled ())
-              LOGGER.info ("Successfully finished recovery from WAL file " + aWALFile.getAbsolutePath ());
-        }
-        catch (final IOException | RuntimeException ex)
-        {
-          if (LOGGER.isErrorEnabled ())
-            LOGGER.error ("Failed to recover from WAL file '" +
-                          aWALFile.getAbsolutePath () +
-                          "'. Technical details: " +
-                          ex.getClass ().getName () +
-                          ": " +
-                          ex.getMessage ());
-          triggerExceptionHandlersRead (ex, false, aWALFile);
-          throw new DAOException ("Error the WAL file '" + aWALFile.getAbsolutePath () + "'", ex);
-        }
+        final String sWALFilenameCompact = _getWALFilenameCompact (sWALFilename);
+        final File aWALFileCompact = m_aIO.getFile (sWALFilenameCompact);
+        final File aWALFile = m_aIO.getFile (sWALFilename);
+        final MutableBoolean aPerformedAtLeastOnRecovery = new MutableBoolean (false);
+        final MutableBoolean aRecoveryContainedErrorsCompact = new MutableBoolean (false);
+        final MutableBoolean aRecoveryContainedErrors = new MutableBoolean (false);
+        if (aWALFileCompact.exists ())
+          _recoverFromWALFile (aWALFileCompact, aPerformedAtLeastOnRecovery, aRecoveryContainedErrorsCompact);
+        if (aWALFile.exists ())
+          _recoverFromWALFile (aWALFile, aPerformedAtLeastOnRecovery, aRecoveryContainedErrors);
 
         // Finished recovery successfully
         // Perform the remaining actions AFTER the WAL input stream was
         // closed!
-        if (bPerformedAtLeastOnRecovery)
+        if (aPerformedAtLeastOnRecovery.booleanValue ())
         {
           // Write the file without using WAL
           _writeToFileAndResetPendingChanges ("onRecovery");
         }
 
-        // Finally maintain or delete the WAL file, as the recovery has
+        // Finally maintain or delete the WAL files, as the recovery has
         // finished
-        if (bRecoveryContainedErrors)
-          _maintainWALFileAfterProcessing (sWALFilename);
-        else
-          _deleteWALFileAfterProcessing (sWALFilename);
+        if (aWALFileCompact.exists ())
+        {
+          if (aRecoveryContainedErrorsCompact.booleanValue ())
+            _maintainWALFileAfterProcessing (sWALFilenameCompact);
+          else
+            _deleteWALFileAfterProcessing (sWALFilenameCompact);
+        }
+        if (aWALFile.exists ())
+        {
+          if (aRecoveryContainedErrors.booleanValue ())
+            _maintainWALFileAfterProcessing (sWALFilename);
+          else
+            _deleteWALFileAfterProcessing (sWALFilename);
+        }
       }
     }
     finally
@@ -825,16 +942,10 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
       if (LOGGER.isInfoEnabled ())
         LOGGER.info ("Trying to write WAL DAO file '" + sFilename + "'");
 
-    File aFileNew = null;
     IMicroDocument aDoc = null;
-    final String sFilenameNew = _getFilenameNew (sFilename);
-    final String sFilenamePrev = _getFilenamePrev (sFilename);
     try
     {
-      // Get the file handle
-      aFileNew = getSafeFile (sFilenameNew, EMode.WRITE);
-
-      m_aStatsCounterWriteTotal.increment ();
+      _onWriteStart ();
       final StopWatch aSW = StopWatch.createdStarted ();
 
       // Create XML document to write
@@ -845,75 +956,147 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
       // Generic modification
       modifyWriteData (aDoc);
 
-      // Get the output stream
-      final OutputStream aOS = FileHelper.getOutputStream (aFileNew);
-      if (aOS == null)
-      {
-        // Happens, when another application has the file open!
-        // Logger warning already emitted
-        throw new DAOException ("Failed to open output stream for '" + aFileNew.getAbsolutePath () + "'");
-      }
-
-      // Write to file (closes the OS)
-      final IXMLWriterSettings aXWS = getXMLWriterSettings ();
-      if (MicroWriter.writeToStream (aDoc, aOS, aXWS).isFailure ())
-        throw new DAOException ("Failed to write DAO XML data to file");
+      // Write files the main file depends on
+      _onBeforeWriteMainFile ();
 
-      // Rename existing file to old
-      FileIOError aIOError;
-      boolean bRenamedToPrev = false;
-      if (m_aIO.existsFile (sFilename))
-      {
-        aIOError = m_aIO.renameFile (sFilename, sFilenamePrev);
-        bRenamedToPrev = true;
-      }
-      else
-        aIOError = new FileIOError (EFileIOOperation.RENAME_FILE, EFileIOErrorCode.NO_ERROR);
-      if (aIOError.isSuccess ())
-      {
-        // Rename new file to final
-        aIOError = m_aIO.renameFile (sFilenameNew, sFilename);
-        if (aIOError.isSuccess ())
-        {
-          // Finally delete old file
-          aIOError = m_aIO.deleteFileIfExisting (sFilenamePrev);
-        }
-        else
-        {
-          // 2nd rename failed
-          // -> Revert original rename to stay as consistent as possible
-          if (bRenamedToPrev)
-            m_aIO.renameFile (sFilenamePrev, sFilename);
-        }
-      }
-      if (aIOError.isFailure ())
-        throw new IllegalStateException ("Error on rename(existing-old)/rename(new-existing)/delete(old): " + aIOError);
+      // Write to file
+      _writeDocumentAtomically (sFilename, aDoc);
 
       // Update stats etc.
-      m_aStatsCounterWriteTimer.addTime (aSW.stopAndGetMillis ());
-      m_aStatsCounterWriteSuccess.increment ();
-      m_nWriteCount++;
-      m_aLastWriteDT = PDTFactory.getCurrentLocalDateTime ();
+      _onWriteSuccess (aSW.stopAndGetMillis ());
+      onAfterWriteToFile (sFilename);
       return ESuccess.SUCCESS;
     }
     catch (final DAOException | RuntimeException ex)
     {
-      final String sErrorFilename = aFileNew != null ? aFileNew.getAbsolutePath () : sFilename;
+      _onWriteException (ex, sFilename, aDoc);
+      return ESuccess.FAILURE;
+    }
+  }
+
+  /**
+   * Write the passed document to the file with the passed name. The data is
+   * first written to a ".new" file, which is then renamed to the final name.
+   * This method does not require the DAO lock, but concurrent invocations for
+   * the same filename are not allowed.
+   *
+   * @param sFilename
+   *        The relative filename to write to. May not be <code>null</code>.
+   * @param aDoc
+   *        The document to write. May not be <code>null</code>.
+   * @throws DAOException
+   *         If the file could not be written
+   * @throws IllegalStateException
+   *         If the final renaming failed
+   */
+  final void _writeDocumentAtomically (@Nonnull final String sFilename,
+                                       @Nonnull final IMicroDocument aDoc) throws DAOException
+  {
+    final String sFilenameNew = _getFilenameNew (sFilename);
+    final String sFilenamePrev = _getFilenamePrev (sFilename);
+
+    // Get the file handle
+    final File aFileNew = getSafeFile (sFilenameNew, EMode.WRITE);
+
+    // Get the output stream
+    final OutputStream aOS = FileHelper.getOutputStream (aFileNew);
+    if (aOS == null)
+    {
+      // Happens, when another application has the file open!
+      // Logger warning already emitted
+      throw new DAOException ("Failed to open output stream for '" + aFileNew.getAbsolutePath () + "'");
+    }
 
-      if (LOGGER.isErrorEnabled ())
-        LOGGER.error ("The DAO of class " +
-                      getClass ().getName () +
-                      " failed to write the DAO data to '" +
-                      sErrorFilename +
-                      "'",
-                      ex);
+    // Write to file (closes the OS)
+    final IXMLWriterSettings aXWS = getXMLWriterSettings ();
+    if (MicroWriter.writeToStream (aDoc, aOS, aXWS).isFailure ())
+      throw new DAOException ("Failed to write DAO XML data to file '" + aFileNew.getAbsolutePath () + "'");
 
-      triggerExceptionHandlersWrite (ex, sErrorFilename, aDoc);
-      m_aStatsCounterWriteExceptions.increment ();
-      return ESuccess.FAILURE;
+    // Rename existing file to old
+    FileIOError aIOError;
+    boolean bRenamedToPrev = false;
+    if (m_aIO.existsFile (sFilename))
+    {
+      aIOError = m_aIO.renameFile (sFilename, sFilenamePrev);
+      bRenamedToPrev = true;
     }
+    else
+      aIOError = new FileIOError (EFileIOOperation.RENAME_FILE, EFileIOErrorCode.NO_ERROR);
+    if (aIOError.isSuccess ())
+    {
+      // Rename new file to final
+      aIOError = m_aIO.renameFile (sFilenameNew, sFilename);
+      if (aIOError.isSuccess ())
+      {
+        // Finally delete old file
+        aIOError = m_aIO.deleteFileIfExisting (sFilenamePrev);
+      }
+      else
+      {
+        // 2nd rename failed
+        // -> Revert original rename to stay as consistent as possible
+        if (bRenamedToPrev)
+          m_aIO.renameFile (sFilenamePrev, sFilename);
+      }
+    }
+    if (aIOError.isFailure ())
+      throw new IllegalStateException ("Error on rename(existing-old)/rename(new-existing)/delete(old): " + aIOError);
+  }
+
+  final void _onWriteStart ()
+  {
+    m_aStatsCounterWriteTotal.getHandler ().increment ();
+  }
+
+  final void _onWriteSuccess (final long nMillis)
+  {
+    m_aStatsCounterWriteTimer.getHandler ().addTime (nMillis);
+    m_aStatsCounterWriteSuccess.getHandler ().increment ();
+    m_nWriteCount++;
+    m_aLastWriteDT = PDTFactory.getCurrentLocalDateTime ();
   }
 
+  final void _onWriteException (@Nonnull final Exception ex,
+                                @Nonnull final String sFilename,
+                                @Nullable final IMicroDocument aDoc)
+  {
+    final String sErrorFilename = m_aIO.getFile (_getFilenameNew (sFilename)).getAbsolutePath ();
+
+    if (LOGGER.isErrorEnabled ())
+      LOGGER.error ("The DAO of class " +
+                    getClass ().getName () +
+                    " failed to write the DAO data to '" +
+                    sErrorFilename +
+                    "'",
+                    ex);
+
+    triggerExceptionHandlersWrite (ex, sErrorFilename, aDoc);
+    m_aStatsCounterWriteExceptions.getHandler ().increment ();
+  }
+
+  /**
+   * Called within the write lock right before the main file is written. May
+   * be used to write additional files referenced by the main file.
+   *
+   * @throws DAOException
+   *         If writing failed. The main file is not written in that case.
+   */
+  @MustBeLocked (ELockType.WRITE)
+  void _onBeforeWriteMainFile () throws DAOException
+  {}
+
+  /**
+   * Called after the main file was written successfully.
+   *
+   * @param sFilename
+   *        The filename that was written. Never <code>null</code>.
+   * @since 9.4.3
+   */
+  @OverrideOnDemand
+  @MustBeLocked (ELockType.WRITE)
+  protected void onAfterWriteToFile (@Nonnull final String sFilename)
+  {}
+
   @MustBeLocked (ELockType.WRITE)
   final void _writeToFileAndResetPendingChanges (@Nonnull final String sCallingMethodName)
   {
@@ -943,6 +1126,32 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
     return sWALFilename + ".wal";
   }
 
+  @Nonnull
+  static String _getWALFilenameCompact (@Nonnull final String sWALFilename)
+  {
+    return sWALFilename + FILENAME_EXTENSION_WAL_COMPACT;
+  }
+
+  /**
+   * Called by the {@link WALListener} when the waiting time for a WAL file
+   * elapsed. By default the main file is written and the WAL files are
+   * deleted, everything within the write lock.
+   *
+   * @param sWALFilename
+   *        The name of the WAL file that was registered. May neither be
+   *        <code>null</code> nor empty.
+   */
+  void _performScheduledWrite (@Nonnull @Nonempty final String sWALFilename)
+  {
+    m_aRWLock.writeLocked ( () -> {
+      // Main DAO writing
+      _writeToFileAndResetPendingChanges ("ScheduledWriter.run");
+      // Delete the WAL files
+      _deleteWALFileAfterProcessing (sWALFilename);
+      _deleteWALFileIfExisting (_getWALFilenameCompact (sWALFilename));
+    });
+  }
+
   /**
    * This method is called if recovery from the WAL file (partially) failed an
    * analysis might be needed.
@@ -951,6 +1160,7 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
   {
     ValueEnforcer.notEmpty (sWALFilename, "WALFilename");
     final File aWALFile = m_aIO.getFile (sWALFilename);
+    _closeBinaryWALFile (aWALFile);
     final File aNewFile = new File (aWALFile.getParentFile (),
                                     aWALFile.getName () + "." + PDTFactory.getCurrentMillis () + ".bup");
 
@@ -983,6 +1193,12 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
   {
     ValueEnforcer.notEmpty (sWALFilename, "WALFilename");
     final File aWALFile = m_aIO.getFile (sWALFilename);
+    _closeBinaryWALFile (aWALFile);
+    _deleteFileAfterProcessing (aWALFile);
+  }
+
+  private static void _deleteFileAfterProcessing (@Nonnull final File aWALFile)
+  {
     if (FileOperationManager.INSTANCE.deleteFile (aWALFile).isFailure ())
     {
       if (LOGGER.isErrorEnabled ())
@@ -996,6 +1212,16 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
     }
   }
 
+  /**
+   * Delete the passed WAL file if it exists, without closing an open binary
+   * WAL file. Only to be used for WAL files that are not appended to.
+   */
+  final void _deleteWALFileIfExisting (@Nonnull @Nonempty final String sWALFilename)
+  {
+    if (m_aIO.existsFile (sWALFilename))
+      _deleteFileAfterProcessing (m_aIO.getFile (sWALFilename));
+  }
+
   /**
    * @return The {@link IXMLWriterSettings} to be used to serialize the data.
    */
@@ -1020,13 +1246,190 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
     return MicroWriter.getNodeAsString (aElement, getWALXMLWriterSettings ());
   }
 
+  /**
+   * Convert an element to the bytes stored in a binary WAL file. By default
+   * this is the UTF-8 encoded result of
+   * {@link #convertNativeToWALString(Serializable)}. If you overwrite this
+   * method, you must overwrite {@link #convertWALBytesToNative(byte[])} as
+   * well.
+   *
+   * @param aModifiedElement
+   *        The element to convert. Never <code>null</code>.
+   * @return The serialized bytes. Never <code>null</code>.
+   * @since 9.4.3
+   */
+  @Nonnull
+  @OverrideOnDemand
+  protected byte [] convertNativeToWALBytes (@Nonnull final DATATYPE aModifiedElement)
+  {
+    return convertNativeToWALString (aModifiedElement).getBytes (StandardCharsets.UTF_8);
+  }
+
+  /**
+   * This method is used upon recovery from a binary WAL file to convert the
+   * stored bytes to the native representation. By default the bytes are
+   * interpreted as UTF-8 and passed to
+   * {@link #convertWALStringToNative(String)}.
+   *
+   * @param aElement
+   *        The serialized bytes. Never <code>null</code>.
+   * @return The native representation of the object or <code>null</code> if
+   *         conversion failed.
+   * @since 9.4.3
+   */
+  @Nullable
+  @OverrideOnDemand
+  @IsLocked (ELockType.WRITE)
+  protected DATATYPE convertWALBytesToNative (@Nonnull final byte [] aElement)
+  {
+    return convertWALStringToNative (new String (aElement, StandardCharsets.UTF_8));
+  }
+
+  @MustBeLocked (ELockType.WRITE)
+  final void _closeBinaryWALFile (@Nullable final File aWALFile)
+  {
+    if (m_aBinaryWALFile != null && (aWALFile == null || m_aBinaryWALFile.getFile ().equals (aWALFile)))
+    {
+      try
+      {
+        m_aBinaryWALFile.close ();
+      }
+      catch (final IOException ex)
+      {
+        if (LOGGER.isErrorEnabled ())
+          LOGGER.error ("Error closing WAL file " + m_aBinaryWALFile.getFile ().getAbsolutePath (), ex);
+      }
+      m_aBinaryWALFile = null;
+    }
+  }
+
+  @Nonnull
+  @MustBeLocked (ELockType.WRITE)
+  private ESuccess _writeBinaryWALFile (@Nonnull @Nonempty final List <DATATYPE> aModifiedElements,
+                                        @Nonnull final EDAOActionType eActionType,
+                                        @Nonnull @Nonempty final String sWALFilename)
+  {
+    final File aWALFile = m_aIO.getFile (sWALFilename);
+    try
+    {
+      // Serialize outside of the file
+      final ICommonsList <byte []> aElements = new CommonsArrayList <> (aModifiedElements.size ());
+      for (final DATATYPE aModifiedElement : aModifiedElements)
+        aElements.add (convertNativeToWALBytes (aModifiedElement));
+
+      // In case the filename changed, close the old file
+      if (m_aBinaryWALFile != null && !m_aBinaryWALFile.getFile ().equals (aWALFile))
+        _closeBinaryWALFile (null);
+      if (m_aBinaryWALFile == null)
+        m_aBinaryWALFile = new BinaryWALFile (aWALFile, m_eWALFsyncPolicy, m_aWALFsyncInterval);
+
+      // Only write here - the record is forced after the DAO lock was released
+      // so that concurrent changes can share a force
+      final long nLength = m_aBinaryWALFile.write (eActionType, aElements);
+      ((WALReadWriteLock) m_aRWLock).registerPendingRecord (m_aBinaryWALFile, nLength);
+      return ESuccess.SUCCESS;
+    }
+    catch (final Exception ex)
+    {
+      if (LOGGER.isErrorEnabled ())
+        LOGGER.error ("Error writing binary WAL file " + aWALFile.getAbsolutePath (), ex);
+      triggerExceptionHandlersWrite (ex, sWALFilename, (IMicroDocument) null);
+      // Reopen the file on the next write
+      _closeBinaryWALFile (null);
+    }
+    return ESuccess.FAILURE;
+  }
+
+  /**
+   * Convert a pending binary WAL file into the XML WAL format, so that new XML
+   * records can be appended. The converted file is written next to the
+   * original and atomically moved over it afterwards, so a crash in between
+   * leaves the binary WAL file untouched.
+   *
+   * @param aWALFile
+   *        The binary WAL file to convert. May not be <code>null</code>.
+   * @return {@link ESuccess}
+   */
+  @Nonnull
+  @MustBeLocked (ELockType.WRITE)
+  private ESuccess _migrateBinaryWALFile (@Nonnull final File aWALFile)
+  {
+    _closeBinaryWALFile (aWALFile);
+
+    final File aTmpFile = new File (aWALFile.getParentFile (), aWALFile.getName () + ".migrate");
+    try
+    {
+      final ICommonsList <EDAOActionType> aActionTypes = new CommonsArrayList <> ();
+      final ICommonsList <ICommonsList <byte []>> aRecords = new CommonsArrayList <> ();
+      BinaryWALFile.readAll (aWALFile, (eActionType, aElements) -> {
+        aActionTypes.add (eActionType);
+        aRecords.add (aElements);
+      });
+
+      final OutputStream aOS = FileHelper.getBufferedOutputStream (aTmpFile, EAppend.TRUNCATE);
+      if (aOS == null)
+        throw new IOException ("Failed to open " + aTmpFile.getAbsolutePath ());
+      try (final DataOutputStream aDOS = new DataOutputStream (aOS))
+      {
+        for (int i = 0; i < aRecords.size (); ++i)
+        {
+          final EDAOActionType eActionType = aActionTypes.get (i);
+          final ICommonsList <byte []> aElements = aRecords.get (i);
+          StreamHelper.writeSafeUTF (aDOS, eActionType.getID ());
+          aDOS.writeInt (aElements.size ());
+          for (final byte [] aBytes : aElements)
+          {
+            final DATATYPE aElement = convertWALBytesToNative (aBytes);
+            if (aElement == null)
+              throw new IOException ("Failed to convert binary WAL element of " + eActionType);
+            StreamHelper.writeSafeUTF (aDOS, convertNativeToWALString (aElement));
+          }
+        }
+      }
+      Files.move (aTmpFile.toPath (), aWALFile.toPath (), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+      if (!isSilentMode ())
+        if (LOGGER.isInfoEnabled ())
+          LOGGER.info ("Converted binary WAL file " + aWALFile.getAbsolutePath () + " to the XML WAL format");
+      return ESuccess.SUCCESS;
+    }
+    catch (final IOException | RuntimeException ex)
+    {
+      if (LOGGER.isErrorEnabled ())
+        LOGGER.error ("Error converting binary WAL file " + aWALFile.getAbsolutePath (), ex);
+      FileOperationManager.INSTANCE.deleteFileIfExisting (aTmpFile);
+      return ESuccess.FAILURE;
+    }
+  }
+
   @Nonnull
   @MustBeLocked (ELockType.WRITE)
   private ESuccess _writeWALFile (@Nonnull @Nonempty final List <DATATYPE> aModifiedElements,
                                   @Nonnull final EDAOActionType eActionType,
                                   @Nonnull @Nonempty final String sWALFilename)
   {
+    if (m_eWALFormat == EWALFormat.BINARY)
+      return _writeBinaryWALFile (aModifiedElements, eActionType, sWALFilename);
+
     final FileSystemResource aWALRes = m_aIO.getResource (sWALFilename);
+    if (aWALRes.exists ())
+    {
+      final File aWALFile = aWALRes.getAsFile ();
+      if (BinaryWALFile.isIncompleteBinaryWALFileHeader (aWALFile))
+      {
+        // Nothing contained - start from scratch
+        if (FileOperationManager.INSTANCE.deleteFile (aWALFile).isFailure ())
+          return ESuccess.FAILURE;
+      }
+      else
+        if (BinaryWALFile.isBinaryWALFile (aWALFile))
+        {
+          // A binary WAL file from before a format switch is still pending -
+          // convert it so that the formats are not mixed
+          if (_migrateBinaryWALFile (aWALFile).isFailure ())
+            return ESuccess.FAILURE;
+        }
+    }
     try (final DataOutputStream aDOS = new DataOutputStream (aWALRes.getOutputStream (EAppend.APPEND)))
     {
       // Write action type ID
@@ -1050,6 +1453,23 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
     return ESuccess.FAILURE;
   }
 
+  /**
+   * @return The currently open binary WAL file. May be <code>null</code>.
+   */
+  @Nullable
+  final BinaryWALFile getBinaryWALFile ()
+  {
+    return m_aRWLock.readLockedGet ( () -> m_aBinaryWALFile);
+  }
+
+  @MustBeLocked (ELockType.WRITE)
+  private long _getWALFileLength (@Nonnull final String sWALFilename)
+  {
+    if (m_aBinaryWALFile != null)
+      return m_aBinaryWALFile.getWrittenLength ();
+    return m_aIO.getFile (sWALFilename).length ();
+  }
+
   /**
    * @return The waiting time used before the file is effectively written. Never
    *         <code>null</code>. Default value is 10 seconds.
@@ -1074,10 +1494,95 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
     m_aWaitingTime = aWaitingTime;
   }
 
+  /**
+   * @return The format in which the WAL file is written. Never
+   *         <code>null</code>. Default is {@link #DEFAULT_WAL_FORMAT}.
+   * @since 9.4.3
+   */
+  @Nonnull
+  public final EWALFormat getWALFormat ()
+  {
+    return m_aRWLock.readLockedGet ( () -> m_eWALFormat);
+  }
+
+  /**
+   * Set the format in which the WAL file is written. Recovery detects the
+   * format of an existing WAL file automatically, so changing the format is
+   * safe at any time. If a WAL file in the XML format is still pending when
+   * switching to the binary format, changes are written directly to the main
+   * file until the pending WAL file was processed. This method is write
+   * locked.
+   *
+   * @param eWALFormat
+   *        The format to use. May not be <code>null</code>.
+   * @since 9.4.3
+   */
+  protected final void setWALFormat (@Nonnull final EWALFormat eWALFormat)
+  {
+    ValueEnforcer.notNull (eWALFormat, "WALFormat");
+    m_aRWLock.writeLocked ( () -> {
+      if (eWALFormat != m_eWALFormat)
+      {
+        _closeBinaryWALFile (null);
+        m_eWALFormat = eWALFormat;
+      }
+    });
+  }
+
+  /**
+   * @return The fsync policy for binary WAL files. Never <code>null</code>.
+   *         Default is {@link #DEFAULT_WAL_FSYNC_POLICY}.
+   * @since 9.4.3
+   */
+  @Nonnull
+  public final EWALFsyncPolicy getWALFsyncPolicy ()
+  {
+    return m_aRWLock.readLockedGet ( () -> m_eWALFsyncPolicy);
+  }
+
+  /**
+   * @return The fsync interval used for {@link EWALFsyncPolicy#INTERVAL}. Never
+   *         <code>null</code>.
+   * @since 9.4.3
+   */
+  @Nonnull
+  public final Duration getWALFsyncInterval ()
+  {
+    return m_aRWLock.readLockedGet ( () -> m_aWALFsyncInterval);
+  }
+
+  /**
+   * Set the fsync policy for binary WAL files. Only relevant if the WAL format
+   * is {@link EWALFormat#BINARY}. This method is write locked.
+   *
+   * @param eWALFsyncPolicy
+   *        The fsync policy to use. May not be <code>null</code>.
+   * @param aWALFsyncInterval
+   *        The interval to use for {@link EWALFsyncPolicy#INTERVAL}. May not
+   *        be <code>null</code>.
+   * @since 9.4.3
+   */
+  protected final void setWALFsyncPolicy (@Nonnull final EWALFsyncPolicy eWALFsyncPolicy,
+                                          @Nonnull final Duration aWALFsyncInterval)
+  {
+    ValueEnforcer.notNull (eWALFsyncPolicy, "WALFsyncPolicy");
+    ValueEnforcer.notNull (aWALFsyncInterval, "WALFsyncInterval");
+    ValueEnforcer.isFalse (aWALFsyncInterval.isNegative (), "WALFsyncInterval may not be negative");
+    m_aRWLock.writeLocked ( () -> {
+      m_eWALFsyncPolicy = eWALFsyncPolicy;
+      m_aWALFsyncInterval = aWALFsyncInterval;
+      // The open file is reopened with the new settings upon the next write
+      _closeBinaryWALFile (null);
+    });
+  }
+
   /**
    * This method must be called every time something changed in the DAO. It
    * triggers the writing to a file if auto-save is active. This method must be
-   * called within a write-lock as it is not locked!
+   * called within a write-lock as it is not locked!<br>
+   * For the binary WAL format, the fsync policy is applied when the current
+   * thread releases the write lock, so that concurrent changes can be forced
+   * together.
    *
    * @param aModifiedElement
    *        The modified data element. May not be <code>null</code>.
@@ -1120,7 +1625,7 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
       {
         // Remember change for later writing
         // Note: pass the WAL filename in case the filename changes over time!
-        m_aWALListener.registerForLaterWriting (this, sWALFilename, m_aWaitingTime);
+        m_aWALListener.registerForLaterWriting (this, sWALFilename, m_aWaitingTime, _getWALFileLength (sWALFilename));
       }
       else
       {
@@ -1191,6 +1696,8 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
                             .appendIfNotNull ("LastReadDT", m_aLastReadDT)
                             .append ("WriteCount", m_nWriteCount)
                             .appendIfNotNull ("LastWriteDT", m_aLastWriteDT)
+                            .append ("WALFormat", m_eWALFormat)
+                            .append ("WALFsyncPolicy", m_eWALFsyncPolicy)
                             .getToString ();
   }
 }
@@ -0,0 +1,704 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.CGlobal;
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.concurrent.BasicThreadFactory;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.dao.EDAOActionType;
+
+/**
+ * An append-only binary write ahead log file. The file starts with a header
+ * consisting of a magic number and a version, followed by any number of
+ * records. Each record has the following layout:
+ * <ul>
+ * <li>payload length (int)</li>
+ * <li>CRC32 of the payload (int)</li>
+ * <li>payload: length of the action type ID (byte), the UTF-8 encoded action
+ * type ID, number of elements (int), and for every element its length (int)
+ * followed by its bytes</li>
+ * </ul>
+ * The channel is kept open between writes. Each call to
+ * {@link #write(EDAOActionType, List)} writes exactly one record with a single
+ * write call. When and how the data is forced to disk is determined by the
+ * {@link EWALFsyncPolicy} and applied in {@link #awaitDurable(long)}. With
+ * {@link EWALFsyncPolicy#PER_BATCH}, concurrent writers share a single force
+ * (group commit). To make use of that, callers should not hold a lock shared
+ * with the other writers while waiting for durability.<br>
+ * When reading, a torn or corrupt record at the end of the file (e.g. because
+ * of a crash while writing) terminates reading. All records before it are
+ * delivered.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@ThreadSafe
+public final class BinaryWALFile implements Closeable
+{
+  /**
+   * Callback interface for reading records.
+   *
+   * @author Philip Helger
+   */
+  @FunctionalInterface
+  public interface IRecordCallback
+  {
+    /**
+     * Called for every valid record in the file.
+     *
+     * @param eActionType
+     *        The action type of the record. Never <code>null</code>.
+     * @param aElements
+     *        The serialized elements of the record. Never <code>null</code>.
+     */
+    void onRecord (@Nonnull EDAOActionType eActionType, @Nonnull ICommonsList <byte []> aElements);
+  }
+
+  /**
+   * The result of reading a binary WAL file.
+   *
+   * @author Philip Helger
+   */
+  public static final class ReadResult
+  {
+    private final int m_nRecordCount;
+    private final long m_nValidLength;
+    private final long m_nFileLength;
+
+    ReadResult (final int nRecordCount, final long nValidLength, final long nFileLength)
+    {
+      m_nRecordCount = nRecordCount;
+      m_nValidLength = nValidLength;
+      m_nFileLength = nFileLength;
+    }
+
+    /**
+     * @return The number of valid records read.
+     */
+    @Nonnegative
+    public int getRecordCount ()
+    {
+      return m_nRecordCount;
+    }
+
+    /**
+     * @return The number of bytes at the start of the file that form valid
+     *         records.
+     */
+    @Nonnegative
+    public long getValidLength ()
+    {
+      return m_nValidLength;
+    }
+
+    /**
+     * @return The total file length in bytes.
+     */
+    @Nonnegative
+    public long getFileLength ()
+    {
+      return m_nFileLength;
+    }
+
+    /**
+     * @return <code>true</code> if the file contained only valid records,
+     *         <code>false</code> if a torn or corrupt tail was skipped.
+     */
+    public boolean isComplete ()
+    {
+      return m_nValidLength == m_nFileLength;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return new ToStringGenerator (this).append ("RecordCount", m_nRecordCount)
+                                         .append ("ValidLength", m_nValidLength)
+                                         .append ("FileLength", m_nFileLength)
+                                         .getToString ();
+    }
+  }
+
+  /** The default interval for {@link EWALFsyncPolicy#INTERVAL} */
+  public static final Duration DEFAULT_FSYNC_INTERVAL = Duration.ofSeconds (1);
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (BinaryWALFile.class);
+
+  /** "PHWL" */
+  private static final int MAGIC = 0x5048574c;
+  private static final int VERSION = 1;
+  private static final int FILE_HEADER_LENGTH = 8;
+  private static final int RECORD_HEADER_LENGTH = 8;
+
+  // Shared by all files using EWALFsyncPolicy.INTERVAL
+  private static final ScheduledExecutorService s_aForceScheduler = Executors.newSingleThreadScheduledExecutor (new BasicThreadFactory.Builder ().setNamingPattern ("WAL-Fsync-%d")
+                                                                                                                                                  .setDaemon (true)
+                                                                                                                                                  .build ());
+
+  private final File m_aFile;
+  private final EWALFsyncPolicy m_eFsyncPolicy;
+  private final long m_nFsyncIntervalNanos;
+  private final FileChannel m_aChannel;
+  private final ReentrantLock m_aWriteLock = new ReentrantLock ();
+  private final ReentrantLock m_aForceLock = new ReentrantLock ();
+  private final AtomicBoolean m_aForceScheduled = new AtomicBoolean (false);
+  @GuardedBy ("m_aWriteLock")
+  private volatile long m_nWrittenLength;
+  private volatile long m_nDurableLength;
+  @GuardedBy ("m_aWriteLock")
+  private volatile boolean m_bClosed = false;
+  private final LongAdder m_aRecordCount = new LongAdder ();
+  private final LongAdder m_aForceCount = new LongAdder ();
+
+  /**
+   * Open the passed file for appending. If the file does not exist, it is
+   * created. If the file exists, a torn or corrupt tail is truncated, so that
+   * new records are always appended after the last valid record.
+   *
+   * @param aFile
+   *        The file to write to. May not be <code>null</code>.
+   * @param eFsyncPolicy
+   *        The fsync policy to use. May not be <code>null</code>.
+   * @param aFsyncInterval
+   *        The fsync interval. Only relevant for
+   *        {@link EWALFsyncPolicy#INTERVAL}. May not be <code>null</code>.
+   * @throws IOException
+   *         If the file cannot be opened or is not a binary WAL file
+   */
+  public BinaryWALFile (@Nonnull final File aFile,
+                        @Nonnull final EWALFsyncPolicy eFsyncPolicy,
+                        @Nonnull final Duration aFsyncInterval) throws IOException
+  {
+    ValueEnforcer.notNull (aFile, "File");
+    ValueEnforcer.notNull (eFsyncPolicy, "FsyncPolicy");
+    ValueEnforcer.notNull (aFsyncInterval, "FsyncInterval");
+    ValueEnforcer.isFalse (aFsyncInterval.isNegative (), "FsyncInterval may not be negative");
+
+    m_aFile = aFile;
+    m_eFsyncPolicy = eFsyncPolicy;
+    m_nFsyncIntervalNanos = aFsyncInterval.toNanos ();
+
+    long nValidLength = 0;
+    if (aFile.exists () && aFile.length () > 0)
+    {
+      if (isIncompleteBinaryWALFileHeader (aFile))
+      {
+        // Crash while writing the header - treat as empty WAL file
+        LOGGER.warn ("The WAL file '" +
+                     aFile.getAbsolutePath () +
+                     "' contains an incomplete header of " +
+                     aFile.length () +
+                     " bytes - rewriting it");
+      }
+      else
+      {
+        if (!isBinaryWALFile (aFile))
+          throw new IOException ("The existing file '" + aFile.getAbsolutePath () + "' is not a binary WAL file");
+        nValidLength = readAll (aFile, null).getValidLength ();
+      }
+    }
+
+    m_aChannel = FileChannel.open (aFile.toPath (), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    try
+    {
+      if (nValidLength == 0)
+      {
+        final ByteBuffer aHeader = ByteBuffer.allocate (FILE_HEADER_LENGTH);
+        aHeader.putInt (MAGIC).putInt (VERSION).flip ();
+        m_aChannel.truncate (0);
+        _writeFully (aHeader, 0);
+        nValidLength = FILE_HEADER_LENGTH;
+      }
+      else
+        if (m_aChannel.size () > nValidLength)
+        {
+          LOGGER.warn ("Truncating corrupt tail of WAL file '" +
+                       aFile.getAbsolutePath () +
+                       "' from " +
+                       m_aChannel.size () +
+                       " to " +
+                       nValidLength +
+                       " bytes");
+          m_aChannel.truncate (nValidLength);
+        }
+    }
+    catch (final IOException ex)
+    {
+      m_aChannel.close ();
+      throw ex;
+    }
+    m_nWrittenLength = nValidLength;
+    m_nDurableLength = nValidLength;
+  }
+
+  private void _writeFully (@Nonnull final ByteBuffer aBuffer, final long nPosition) throws IOException
+  {
+    long nPos = nPosition;
+    while (aBuffer.hasRemaining ())
+      nPos += m_aChannel.write (aBuffer, nPos);
+  }
+
+  /**
+   * @return The file this WAL writes to. Never <code>null</code>.
+   */
+  @Nonnull
+  public File getFile ()
+  {
+    return m_aFile;
+  }
+
+  @Nonnull
+  public EWALFsyncPolicy getFsyncPolicy ()
+  {
+    return m_eFsyncPolicy;
+  }
+
+  /**
+   * @return The number of bytes written, including the file header.
+   */
+  @Nonnegative
+  public long getWrittenLength ()
+  {
+    return m_nWrittenLength;
+  }
+
+  /**
+   * @return The number of bytes that are known to be durable on disk.
+   */
+  @Nonnegative
+  public long getDurableLength ()
+  {
+    return m_nDurableLength;
+  }
+
+  /**
+   * @return The number of records written since this object was created.
+   */
+  @Nonnegative
+  public long getRecordCount ()
+  {
+    return m_aRecordCount.sum ();
+  }
+
+  /**
+   * @return The number of forces performed since this object was created.
+   */
+  @Nonnegative
+  public long getForceCount ()
+  {
+    return m_aForceCount.sum ();
+  }
+
+  public boolean isClosed ()
+  {
+    return m_bClosed;
+  }
+
+  @Nonnull
+  static ByteBuffer createRecord (@Nonnull final EDAOActionType eActionType,
+                                  @Nonnull final List <byte []> aElements)
+  {
+    final byte [] aActionID = eActionType.getID ().getBytes (StandardCharsets.UTF_8);
+    int nPayloadLength = 1 + aActionID.length + 4;
+    for (final byte [] aElement : aElements)
+      nPayloadLength += 4 + aElement.length;
+
+    final ByteBuffer aBuffer = ByteBuffer.allocate (RECORD_HEADER_LENGTH + nPayloadLength);
+    aBuffer.position (RECORD_HEADER_LENGTH);
+    aBuffer.put ((byte) aActionID.length).put (aActionID).putInt (aElements.size ());
+    for (final byte [] aElement : aElements)
+      aBuffer.putInt (aElement.length).put (aElement);
+
+    final CRC32 aCRC = new CRC32 ();
+    aCRC.update (aBuffer.array (), RECORD_HEADER_LENGTH, nPayloadLength);
+    aBuffer.putInt (0, nPayloadLength).putInt (4, (int) aCRC.getValue ());
+    aBuffer.rewind ();
+    return aBuffer;
+  }
+
+  /**
+   * Append a single record. Depending on the fsync policy, the data is forced
+   * to disk before this method returns. This is the same as calling
+   * {@link #write(EDAOActionType, List)} followed by
+   * {@link #awaitDurable(long)}.
+   *
+   * @param eActionType
+   *        The action type. May not be <code>null</code>.
+   * @param aElements
+   *        The serialized elements. May not be <code>null</code>.
+   * @throws IOException
+   *         In case writing failed or the file is closed
+   */
+  public void append (@Nonnull final EDAOActionType eActionType,
+                      @Nonnull final List <byte []> aElements) throws IOException
+  {
+    awaitDurable (write (eActionType, aElements));
+  }
+
+  /**
+   * Write a single record without waiting for it to become durable.
+   *
+   * @param eActionType
+   *        The action type. May not be <code>null</code>.
+   * @param aElements
+   *        The serialized elements. May not be <code>null</code>.
+   * @return The file position after the record. To be passed to
+   *         {@link #awaitDurable(long)}.
+   * @throws IOException
+   *         In case writing failed or the file is closed
+   */
+  @Nonnegative
+  public long write (@Nonnull final EDAOActionType eActionType,
+                     @Nonnull final List <byte []> aElements) throws IOException
+  {
+    ValueEnforcer.notNull (eActionType, "ActionType");
+    ValueEnforcer.notNull (aElements, "Elements");
+
+    // Create the record outside of the lock
+    final ByteBuffer aRecord = createRecord (eActionType, aElements);
+    final long nEnd;
+    m_aWriteLock.lock ();
+    try
+    {
+      if (m_bClosed)
+        throw new IOException ("The WAL file '" + m_aFile.getAbsolutePath () + "' is already closed");
+      final long nStart = m_nWrittenLength;
+      _writeFully (aRecord, nStart);
+      nEnd = nStart + aRecord.limit ();
+      m_nWrittenLength = nEnd;
+    }
+    finally
+    {
+      m_aWriteLock.unlock ();
+    }
+    m_aRecordCount.increment ();
+    return nEnd;
+  }
+
+  /**
+   * Apply the fsync policy for everything written up to the passed position.
+   * With {@link EWALFsyncPolicy#PER_BATCH} this method returns after the data
+   * was forced to disk, either by this call or by a concurrent one.
+   *
+   * @param nLength
+   *        The position as returned by {@link #write(EDAOActionType, List)}.
+   * @throws IOException
+   *         In case forcing failed
+   */
+  public void awaitDurable (@Nonnegative final long nLength) throws IOException
+  {
+    switch (m_eFsyncPolicy)
+    {
+      case PER_BATCH:
+        _forceUpTo (nLength);
+        break;
+      case INTERVAL:
+        _scheduleForce ();
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void _forceUpTo (final long nLength) throws IOException
+  {
+    if (m_nDurableLength >= nLength)
+      return;
+
+    m_aForceLock.lock ();
+    try
+    {
+      // Another writer may have forced our data while we were waiting
+      if (m_nDurableLength >= nLength)
+        return;
+
+      // Everything written until now becomes durable with this force
+      final long nTarget = m_nWrittenLength;
+      m_aChannel.force (false);
+      m_nDurableLength = nTarget;
+      m_aForceCount.increment ();
+    }
+    finally
+    {
+      m_aForceLock.unlock ();
+    }
+  }
+
+  private void _scheduleForce ()
+  {
+    if (m_aForceScheduled.compareAndSet (false, true))
+      s_aForceScheduler.schedule ( () -> {
+        m_aForceScheduled.set (false);
+        try
+        {
+          force ();
+        }
+        catch (final IOException ex)
+        {
+          if (!m_bClosed)
+            LOGGER.error ("Failed to force WAL file '" + m_aFile.getAbsolutePath () + "'", ex);
+        }
+      }, m_nFsyncIntervalNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Force all written data to disk, independent of the fsync policy.
+   *
+   * @throws IOException
+   *         In case forcing failed.
+   */
+  public void force () throws IOException
+  {
+    if (!m_bClosed)
+      _forceUpTo (m_nWrittenLength);
+  }
+
+  /**
+   * Close the file. Unless the fsync policy is {@link EWALFsyncPolicy#NONE},
+   * all written data is forced to disk before closing.
+   */
+  public void close () throws IOException
+  {
+    m_aWriteLock.lock ();
+    try
+    {
+      if (m_bClosed)
+        return;
+      try
+      {
+        if (m_eFsyncPolicy != EWALFsyncPolicy.NONE)
+          _forceUpTo (m_nWrittenLength);
+      }
+      finally
+      {
+        m_bClosed = true;
+        m_aChannel.close ();
+      }
+    }
+    finally
+    {
+      m_aWriteLock.unlock ();
+    }
+  }
+
+  /**
+   * Check if the passed file starts with the binary WAL file header.
+   *
+   * @param aFile
+   *        The file to check. May not be <code>null</code>.
+   * @return <code>true</code> if it is a binary WAL file, <code>false</code>
+   *         if not or if it cannot be read.
+   */
+  public static boolean isBinaryWALFile (@Nonnull final File aFile)
+  {
+    ValueEnforcer.notNull (aFile, "File");
+
+    try (final FileChannel aChannel = FileChannel.open (aFile.toPath (), StandardOpenOption.READ))
+    {
+      final ByteBuffer aHeader = ByteBuffer.allocate (FILE_HEADER_LENGTH);
+      while (aHeader.hasRemaining ())
+        if (aChannel.read (aHeader) < 0)
+          return false;
+      aHeader.flip ();
+      return aHeader.getInt () == MAGIC && aHeader.getInt () == VERSION;
+    }
+    catch (final IOException ex)
+    {
+      return false;
+    }
+  }
+
+  /**
+   * Check if the passed file is shorter than the binary WAL file header and
+   * contains only a prefix of the header or zero bytes. This happens if the
+   * process crashed while the header was written. Such a file contains no
+   * records and can safely be treated as an empty WAL file.
+   *
+   * @param aFile
+   *        The file to check. May not be <code>null</code>.
+   * @return <code>true</code> if the file contains an incomplete header only.
+   */
+  public static boolean isIncompleteBinaryWALFileHeader (@Nonnull final File aFile)
+  {
+    ValueEnforcer.notNull (aFile, "File");
+
+    final long nLength = aFile.length ();
+    if (nLength <= 0 || nLength >= FILE_HEADER_LENGTH)
+      return false;
+
+    try (final FileChannel aChannel = FileChannel.open (aFile.toPath (), StandardOpenOption.READ))
+    {
+      final ByteBuffer aRead = ByteBuffer.allocate ((int) nLength);
+      while (aRead.hasRemaining ())
+        if (aChannel.read (aRead) < 0)
+          return false;
+      aRead.flip ();
+
+      final ByteBuffer aHeader = ByteBuffer.allocate (FILE_HEADER_LENGTH);
+      aHeader.putInt (MAGIC).putInt (VERSION).flip ();
+      boolean bIsPrefix = true;
+      boolean bIsZero = true;
+      for (int i = 0; i < nLength; ++i)
+      {
+        final byte b = aRead.get (i);
+        if (b != aHeader.get (i))
+          bIsPrefix = false;
+        if (b != 0)
+          bIsZero = false;
+      }
+      return bIsPrefix || bIsZero;
+    }
+    catch (final IOException ex)
+    {
+      return false;
+    }
+  }
+
+  /**
+   * Read all valid records of the passed file. Files larger than 1 MB are read
+   * via a memory mapping.
+   *
+   * @param aFile
+   *        The file to read. May not be <code>null</code>.
+   * @param aCallback
+   *        The callback to be invoked for every record. May be
+   *        <code>null</code> to only validate the file.
+   * @return The read result. Never <code>null</code>.
+   * @throws IOException
+   *         In case reading failed or the file is not a binary WAL file
+   */
+  @Nonnull
+  public static ReadResult readAll (@Nonnull final File aFile,
+                                    @Nullable final IRecordCallback aCallback) throws IOException
+  {
+    ValueEnforcer.notNull (aFile, "File");
+
+    try (final FileChannel aChannel = FileChannel.open (aFile.toPath (), StandardOpenOption.READ))
+    {
+      final long nSize = aChannel.size ();
+      if (nSize > Integer.MAX_VALUE)
+        throw new IOException ("The WAL file '" + aFile.getAbsolutePath () + "' is too large: " + nSize + " bytes");
+
+      final ByteBuffer aBuffer;
+      if (nSize > CGlobal.BYTES_PER_MEGABYTE)
+        aBuffer = aChannel.map (MapMode.READ_ONLY, 0, nSize);
+      else
+      {
+        aBuffer = ByteBuffer.allocate ((int) nSize);
+        while (aBuffer.hasRemaining ())
+          if (aChannel.read (aBuffer) < 0)
+            break;
+        aBuffer.flip ();
+      }
+
+      if (aBuffer.remaining () < FILE_HEADER_LENGTH || aBuffer.getInt () != MAGIC || aBuffer.getInt () != VERSION)
+        throw new IOException ("The file '" + aFile.getAbsolutePath () + "' is not a binary WAL file");
+
+      final CRC32 aCRC = new CRC32 ();
+      int nRecordCount = 0;
+      long nValidLength = FILE_HEADER_LENGTH;
+      while (aBuffer.remaining () >= RECORD_HEADER_LENGTH)
+      {
+        final int nPayloadLength = aBuffer.getInt ();
+        final int nExpectedCRC = aBuffer.getInt ();
+        if (nPayloadLength < 0 || nPayloadLength > aBuffer.remaining ())
+          break;
+
+        final ByteBuffer aPayload = aBuffer.slice ();
+        aPayload.limit (nPayloadLength);
+        aCRC.reset ();
+        aCRC.update (aPayload.duplicate ());
+        if ((int) aCRC.getValue () != nExpectedCRC)
+          break;
+
+        final EDAOActionType eActionType;
+        final ICommonsList <byte []> aElements;
+        try
+        {
+          final byte [] aActionID = new byte [aPayload.get () & 0xff];
+          aPayload.get (aActionID);
+          eActionType = EDAOActionType.getFromIDOrNull (new String (aActionID, StandardCharsets.UTF_8));
+          final int nElements = aPayload.getInt ();
+          if (eActionType == null || nElements < 0)
+            break;
+          aElements = new CommonsArrayList <> (nElements);
+          for (int i = 0; i < nElements; ++i)
+          {
+            final byte [] aElement = new byte [aPayload.getInt ()];
+            aPayload.get (aElement);
+            aElements.add (aElement);
+          }
+        }
+        catch (final BufferUnderflowException | NegativeArraySizeException ex)
+        {
+          // Checksum is fine but the content is not - stop here
+          break;
+        }
+
+        aBuffer.position (aBuffer.position () + nPayloadLength);
+        nValidLength += RECORD_HEADER_LENGTH + nPayloadLength;
+        nRecordCount++;
+        if (aCallback != null)
+          aCallback.onRecord (eActionType, aElements);
+      }
+      return new ReadResult (nRecordCount, nValidLength, nSize);
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("File", m_aFile)
+                                       .append ("FsyncPolicy", m_eFsyncPolicy)
+                                       .append ("FsyncIntervalNanos", m_nFsyncIntervalNanos)
+                                       .append ("WrittenLength", m_nWrittenLength)
+                                       .append ("DurableLength", m_nDurableLength)
+                                       .append ("Closed", m_bClosed)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.id.IHasID;
+import com.helger.commons.lang.EnumHelper;
+
+/**
+ * The format in which {@link AbstractWALDAO} writes its WAL file. Recovery
+ * detects the format of an existing WAL file automatically, so switching the
+ * format is always safe.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+public enum EWALFormat implements IHasID <String>
+{
+  /**
+   * The original format: for every change a new stream is opened in append
+   * mode and every element is written as an XML string. No checksums, no
+   * fsync.
+   */
+  XML ("xml"),
+  /**
+   * The binary format handled by {@link BinaryWALFile}: the file is kept open,
+   * every change is a length-prefixed and CRC checked record and the fsync
+   * behaviour is defined by the {@link EWALFsyncPolicy}.
+   */
+  BINARY ("binary");
+
+  private final String m_sID;
+
+  EWALFormat (@Nonnull @Nonempty final String sID)
+  {
+    m_sID = sID;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getID ()
+  {
+    return m_sID;
+  }
+
+  @Nullable
+  public static EWALFormat getFromIDOrNull (@Nullable final String sID)
+  {
+    return EnumHelper.getFromIDOrNull (EWALFormat.class, sID);
+  }
+}
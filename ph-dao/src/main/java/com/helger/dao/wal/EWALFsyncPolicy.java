@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.id.IHasID;
+import com.helger.commons.lang.EnumHelper;
+
+/**
+ * Defines when the data of a {@link BinaryWALFile} is forced to the storage
+ * device.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+public enum EWALFsyncPolicy implements IHasID <String>
+{
+  /**
+   * Never force explicitly - the operating system decides when the data is
+   * written. Fastest, but changes may be lost on a power failure.
+   */
+  NONE ("none"),
+  /**
+   * Force after every batch. A change is durable when the write method
+   * returns. Concurrent writers share a single force (group commit).
+   */
+  PER_BATCH ("batch"),
+  /**
+   * Force at most once per configured interval. Changes of at most one
+   * interval may be lost on a power failure.
+   */
+  INTERVAL ("interval");
+
+  private final String m_sID;
+
+  EWALFsyncPolicy (@Nonnull @Nonempty final String sID)
+  {
+    m_sID = sID;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getID ()
+  {
+    return m_sID;
+  }
+
+  @Nullable
+  public static EWALFsyncPolicy getFromIDOrNull (@Nullable final String sID)
+  {
+    return EnumHelper.getFromIDOrNull (EWALFsyncPolicy.class, sID);
+  }
+}
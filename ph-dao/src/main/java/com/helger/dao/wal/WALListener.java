@@ -16,66 +16,148 @@
  */
 package com.helger.dao.wal;
 
-import java.util.Map;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.GuardedBy;
-import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.UsedViaReflection;
 import com.helger.commons.collection.impl.CommonsHashMap;
-import com.helger.commons.collection.impl.CommonsHashSet;
 import com.helger.commons.collection.impl.ICommonsMap;
-import com.helger.commons.collection.impl.ICommonsSet;
 import com.helger.commons.concurrent.BasicThreadFactory;
 import com.helger.commons.concurrent.ExecutorServiceHelper;
 import com.helger.commons.lang.TimeValue;
+import com.helger.commons.statistics.IMutableStatisticsHandlerCounter;
+import com.helger.commons.statistics.IMutableStatisticsHandlerTimer;
+import com.helger.commons.statistics.StatisticsManager;
+import com.helger.commons.timing.StopWatch;
 import com.helger.scope.IScope;
 import com.helger.scope.singleton.AbstractGlobalSingleton;
 
 /**
  * The global write ahead logging manager that schedules future writings of a
- * DAO.
+ * DAO.<br>
+ * A single timer thread waits until the waiting time of a DAO elapsed. The
+ * writing itself happens in a pool of writer threads, so that a slow DAO does
+ * not delay the others. Writes of the same DAO are never executed in
+ * parallel, and repeated registrations of a DAO that is already waiting are
+ * coalesced into one write. If multiple DAOs are waiting for a writer, the
+ * one with the largest WAL file is written first.<br>
+ * If the total size of all pending WAL files exceeds
+ * {@link #getMaxPendingWALBytes()}, new registrations are written without
+ * waiting and {@link #isMaxPendingWALBytesExceeded()} returns
+ * <code>true</code>.<br>
+ * For each DAO the time between the end of the waiting time and the start of
+ * the writing ("$queue") as well as the writing time ("$write") are recorded
+ * as statistics timers named after this class and the DAO.
  *
  * @author Philip Helger
  */
+@ThreadSafe
 public final class WALListener extends AbstractGlobalSingleton
 {
   /**
-   * A single scheduled action consisting of the scheduled {@link Future} as
-   * well as the original {@link Runnable} for rescheduling upon shutdown.
+   * The state of a single DAO/WAL file combination.
    *
    * @author Philip Helger
    */
-  @Immutable
-  private static final class WALItem
+  private static final class WALDAOState
   {
-    private final ScheduledFuture <?> m_aFuture;
-    private final Runnable m_aRunnable;
+    private final String m_sKey;
+    private final String m_sWALFilename;
+    private final IMutableStatisticsHandlerTimer m_aStatsQueueTime;
+    private final IMutableStatisticsHandlerTimer m_aStatsWriteTime;
+    private final IMutableStatisticsHandlerCounter m_aStatsCoalesced;
+    // All fields below are guarded by the listener lock
+    // The DAO that registered last - a DAO may be re-created for the same file
+    private AbstractWALDAO <?> m_aDAO;
+    // The size of the WAL file as reported by the last registration
+    private long m_nPendingBytes;
+    // Registered and not yet started (waiting or queued)
+    private boolean m_bWaiting;
+    // The timer, if the waiting time did not elapse yet
+    private ScheduledFuture <?> m_aTimer;
+    // Currently written by a writer thread
+    private boolean m_bRunning;
+    // Another write was requested while running
+    private boolean m_bRerun;
 
-    public WALItem (@Nonnull final ScheduledFuture <?> aFuture, @Nonnull final Runnable aRunnable)
+    WALDAOState (@Nonnull final String sKey,
+                 @Nonnull final AbstractWALDAO <?> aDAO,
+                 @Nonnull final String sWALFilename)
     {
-      m_aFuture = aFuture;
-      m_aRunnable = aRunnable;
+      m_sKey = sKey;
+      m_sWALFilename = sWALFilename;
+      m_aDAO = aDAO;
+      final String sPrefix = WALListener.class.getName () + "$" + sKey;
+      m_aStatsQueueTime = StatisticsManager.getTimerHandler (sPrefix + "$queue");
+      m_aStatsWriteTime = StatisticsManager.getTimerHandler (sPrefix + "$write");
+      m_aStatsCoalesced = StatisticsManager.getCounterHandler (sPrefix + "$coalesced");
     }
   }
 
+  /**
+   * A write job in the writer queue. Jobs with more pending bytes are executed
+   * first. The byte count is fixed upon creation to keep the queue consistent.
+   *
+   * @author Philip Helger
+   */
+  private final class WriteJob implements Runnable, Comparable <WriteJob>
+  {
+    private final WALDAOState m_aState;
+    private final long m_nPendingBytes;
+    private final long m_nEnqueueNanos = System.nanoTime ();
+
+    WriteJob (@Nonnull final WALDAOState aState, final long nPendingBytes)
+    {
+      m_aState = aState;
+      m_nPendingBytes = nPendingBytes;
+    }
+
+    public int compareTo (@Nonnull final WriteJob aOther)
+    {
+      return Long.compare (aOther.m_nPendingBytes, m_nPendingBytes);
+    }
+
+    public void run ()
+    {
+      _runWriteJob (this);
+    }
+  }
+
+  public static final int DEFAULT_WRITER_THREAD_COUNT = Math.min (4, Runtime.getRuntime ().availableProcessors ());
+  /** No limit by default */
+  public static final long DEFAULT_MAX_PENDING_WAL_BYTES = Long.MAX_VALUE;
+
   private static final Logger LOGGER = LoggerFactory.getLogger (WALListener.class);
 
   // custom ThreadFactory to give the baby a name
   private final ScheduledExecutorService m_aES = Executors.newSingleThreadScheduledExecutor (new BasicThreadFactory.Builder ().setNamingPattern ("WAL-Listener-%d")
                                                                                                                               .build ());
+  private final ThreadPoolExecutor m_aWriterPool = new ThreadPoolExecutor (DEFAULT_WRITER_THREAD_COUNT,
+                                                                           DEFAULT_WRITER_THREAD_COUNT,
+                                                                           60,
+                                                                           TimeUnit.SECONDS,
+                                                                           new PriorityBlockingQueue <> (),
+                                                                           new BasicThreadFactory.Builder ().setNamingPattern ("WAL-Writer-%d")
+                                                                                                            .build ());
   @GuardedBy ("m_aRWLock")
-  private final ICommonsSet <String> m_aWaitingDAOs = new CommonsHashSet <> ();
-  @GuardedBy ("m_aRWLock")
-  private final ICommonsMap <String, WALListener.WALItem> m_aScheduledItems = new CommonsHashMap <> ();
+  private final ICommonsMap <String, WALDAOState> m_aStates = new CommonsHashMap <> ();
+  private final AtomicLong m_aPendingBytes = new AtomicLong (0);
+  private volatile long m_nMaxPendingWALBytes = DEFAULT_MAX_PENDING_WAL_BYTES;
 
   /**
    * Constructor
@@ -85,7 +167,10 @@ public final class WALListener extends AbstractGlobalSingleton
   @Deprecated
   @UsedViaReflection
   public WALListener ()
-  {}
+  {
+    // Don't keep idle writers alive
+    m_aWriterPool.allowCoreThreadTimeOut (true);
+  }
 
   @Nonnull
   public static WALListener getInstance ()
@@ -98,24 +183,184 @@ public final class WALListener extends AbstractGlobalSingleton
   {
     m_aRWLock.writeLocked ( () -> {
       // Reschedule all existing scheduled items to run now
-      for (final Map.Entry <String, WALListener.WALItem> aEntry : m_aScheduledItems.entrySet ())
-      {
-        final WALListener.WALItem aItem = aEntry.getValue ();
-        if (aItem.m_aFuture.cancel (false))
+      for (final WALDAOState aState : m_aStates.values ())
+        if (aState.m_aTimer != null)
         {
-          // reschedule to perform it now
-          m_aES.submit (aItem.m_aRunnable);
-          LOGGER.info ("Rescheduled DAO writing for " + aEntry.getKey () + " to happen now");
+          if (aState.m_aTimer.cancel (false))
+          {
+            // reschedule to perform it now
+            _enqueue (aState);
+            LOGGER.info ("Rescheduled DAO writing for " + aState.m_sKey + " to happen now");
+          }
+          else
+            LOGGER.info ("Cannot reschedule DAO writing for " + aState.m_sKey + " because it is already running");
         }
-        else
-          LOGGER.info ("Cannot reschedule DAO writing for " + aEntry.getKey () + " because it is already running");
-      }
-      // ensure all are cleared
-      m_aScheduledItems.clear ();
     });
 
-    // Wait until all tasks finished
+    // Wait until all timers fired and all writes finished. Pending writes run
+    // in parallel.
     ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (m_aES);
+    ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (m_aWriterPool);
+  }
+
+  /**
+   * @return The number of threads used for writing. Always &gt; 0.
+   * @since 9.4.3
+   */
+  @Nonnegative
+  public int getWriterThreadCount ()
+  {
+    return m_aWriterPool.getCorePoolSize ();
+  }
+
+  /**
+   * Set the number of threads used for writing.
+   *
+   * @param nWriterThreadCount
+   *        The number of writer threads. Must be &gt; 0.
+   * @since 9.4.3
+   */
+  public void setWriterThreadCount (@Nonnegative final int nWriterThreadCount)
+  {
+    ValueEnforcer.isGT0 (nWriterThreadCount, "WriterThreadCount");
+    m_aRWLock.writeLocked ( () -> {
+      if (nWriterThreadCount > m_aWriterPool.getMaximumPoolSize ())
+      {
+        m_aWriterPool.setMaximumPoolSize (nWriterThreadCount);
+        m_aWriterPool.setCorePoolSize (nWriterThreadCount);
+      }
+      else
+      {
+        m_aWriterPool.setCorePoolSize (nWriterThreadCount);
+        m_aWriterPool.setMaximumPoolSize (nWriterThreadCount);
+      }
+    });
+  }
+
+  /**
+   * @return The total size of all WAL files of DAOs that are waiting to be
+   *         written, as reported upon registration. Always &ge; 0.
+   * @since 9.4.3
+   */
+  @Nonnegative
+  public long getPendingWALBytes ()
+  {
+    return m_aPendingBytes.get ();
+  }
+
+  /**
+   * @return The maximum pending WAL bytes before DAOs are written without
+   *         waiting. Default is {@link #DEFAULT_MAX_PENDING_WAL_BYTES}.
+   * @since 9.4.3
+   */
+  @Nonnegative
+  public long getMaxPendingWALBytes ()
+  {
+    return m_nMaxPendingWALBytes;
+  }
+
+  /**
+   * Set the maximum pending WAL bytes before DAOs are written without waiting.
+   *
+   * @param nMaxPendingWALBytes
+   *        The maximum number of bytes. Must be &gt; 0.
+   * @since 9.4.3
+   */
+  public void setMaxPendingWALBytes (@Nonnegative final long nMaxPendingWALBytes)
+  {
+    ValueEnforcer.isGT0 (nMaxPendingWALBytes, "MaxPendingWALBytes");
+    m_nMaxPendingWALBytes = nMaxPendingWALBytes;
+  }
+
+  /**
+   * This is the back-pressure signal. If it is <code>true</code>, the writers
+   * do not keep up with the changes and producers may slow down.
+   *
+   * @return <code>true</code> if the pending WAL bytes exceed the configured
+   *         maximum.
+   * @since 9.4.3
+   */
+  public boolean isMaxPendingWALBytesExceeded ()
+  {
+    return m_aPendingBytes.get () > m_nMaxPendingWALBytes;
+  }
+
+  /**
+   * @return The number of write jobs waiting for a writer thread. Always &ge;
+   *         0.
+   * @since 9.4.3
+   */
+  @Nonnegative
+  public int getQueuedWriteCount ()
+  {
+    return m_aWriterPool.getQueue ().size ();
+  }
+
+  @GuardedBy ("m_aRWLock")
+  private void _setPendingBytes (@Nonnull final WALDAOState aState, final long nPendingBytes)
+  {
+    m_aPendingBytes.addAndGet (nPendingBytes - aState.m_nPendingBytes);
+    aState.m_nPendingBytes = nPendingBytes;
+  }
+
+  @GuardedBy ("m_aRWLock")
+  private void _enqueue (@Nonnull final WALDAOState aState)
+  {
+    aState.m_aTimer = null;
+    m_aWriterPool.execute (new WriteJob (aState, aState.m_nPendingBytes));
+  }
+
+  private void _runWriteJob (@Nonnull final WriteJob aJob)
+  {
+    final WALDAOState aState = aJob.m_aState;
+    final boolean bStart = m_aRWLock.writeLockedBoolean ( () -> {
+      if (aState.m_bRunning)
+      {
+        // Executed by the running writer afterwards
+        aState.m_bRerun = true;
+        return false;
+      }
+      // Changes performed while writing are scheduled again
+      aState.m_bRunning = true;
+      aState.m_bWaiting = false;
+      _setPendingBytes (aState, 0);
+      return true;
+    });
+    if (!bStart)
+      return;
+
+    aState.m_aStatsQueueTime.addTime (TimeUnit.NANOSECONDS.toMillis (System.nanoTime () - aJob.m_nEnqueueNanos));
+    boolean bRerun;
+    do
+    {
+      final AbstractWALDAO <?> aDAO = m_aRWLock.readLockedGet ( () -> aState.m_aDAO);
+      final StopWatch aSW = StopWatch.createdStarted ();
+      try
+      {
+        // Main DAO writing - uses the DAO lock
+        aDAO._performScheduledWrite (aState.m_sWALFilename);
+      }
+      catch (final RuntimeException ex)
+      {
+        LOGGER.error ("Error in scheduled writing for DAO " + aState.m_sKey, ex);
+      }
+      aState.m_aStatsWriteTime.addTime (aSW.stopAndGetMillis ());
+
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("Finished scheduled writing for DAO " + aState.m_sKey);
+
+      bRerun = m_aRWLock.writeLockedBoolean ( () -> {
+        if (aState.m_bRerun)
+        {
+          aState.m_bRerun = false;
+          aState.m_bWaiting = false;
+          _setPendingBytes (aState, 0);
+          return true;
+        }
+        aState.m_bRunning = false;
+        return false;
+      });
+    } while (bRerun);
   }
 
   /**
@@ -133,50 +378,71 @@ public final class WALListener extends AbstractGlobalSingleton
   public void registerForLaterWriting (@Nonnull final AbstractWALDAO <?> aDAO,
                                        @Nonnull final String sWALFilename,
                                        @Nonnull final TimeValue aWaitingWime)
+  {
+    registerForLaterWriting (aDAO, sWALFilename, aWaitingWime, -1);
+  }
+
+  /**
+   * This is the main method for registration of later writing.
+   *
+   * @param aDAO
+   *        The DAO to be written
+   * @param sWALFilename
+   *        The filename of the WAL file for later deletion (in case the
+   *        filename changes over time).
+   * @param aWaitingWime
+   *        The time to wait, until the file is physically written. May not be
+   *        <code>null</code>.
+   * @param nWALFileLength
+   *        The current length of the WAL file in bytes. Used for prioritizing
+   *        and back-pressure. Negative if unknown.
+   * @since 9.4.3
+   */
+  public void registerForLaterWriting (@Nonnull final AbstractWALDAO <?> aDAO,
+                                       @Nonnull final String sWALFilename,
+                                       @Nonnull final TimeValue aWaitingWime,
+                                       @CheckForSigned final long nWALFileLength)
   {
     // In case many DAOs of the same class exist, the filename is also added
     final String sKey = aDAO.getClass ().getName () + "::" + sWALFilename;
 
-    // Check if the passed DAO is already scheduled for writing
-    final boolean bDoScheduleForWriting = m_aRWLock.writeLockedBoolean ( () -> m_aWaitingDAOs.add (sKey));
+    m_aRWLock.writeLocked ( () -> {
+      final WALDAOState aState = m_aStates.computeIfAbsent (sKey, k -> new WALDAOState (k, aDAO, sWALFilename));
+      // Always write the latest DAO instance, otherwise the changes of a
+      // re-created DAO would be overwritten by the stale instance
+      aState.m_aDAO = aDAO;
+      if (nWALFileLength >= 0)
+        _setPendingBytes (aState, nWALFileLength);
+
+      final boolean bWriteNow = isMaxPendingWALBytesExceeded ();
+      if (aState.m_bWaiting)
+      {
+        // The writing of the passed DAO is already scheduled
+        aState.m_aStatsCoalesced.increment ();
+
+        // Back-pressure: don't wait any longer
+        if (bWriteNow && aState.m_aTimer != null && aState.m_aTimer.cancel (false))
+          _enqueue (aState);
+        return;
+      }
 
-    if (bDoScheduleForWriting)
-    {
       // We need to schedule it now
       if (LOGGER.isDebugEnabled ())
         LOGGER.debug ("Now scheduling writing for DAO " + sKey);
+      aState.m_bWaiting = true;
 
-      // What should be executed upon writing
-      final Runnable r = () -> {
-        // Use DAO lock!
-        aDAO.internalWriteLocked ( () -> {
-          // Main DAO writing
-          aDAO._writeToFileAndResetPendingChanges ("ScheduledWriter.run");
-          // Delete the WAL file
-          aDAO._deleteWALFileAfterProcessing (sWALFilename);
-
-          if (LOGGER.isDebugEnabled ())
-            LOGGER.debug ("Finished scheduled writing for DAO " + sKey);
-        });
-
-        // Remove from the internal set so that another job will be
-        // scheduled for the same DAO
-        // Do this after the writing to the file
-        m_aRWLock.writeLocked ( () -> {
-          // Remove from the overall set as well as from the scheduled items
-          m_aWaitingDAOs.remove (sKey);
-          m_aScheduledItems.remove (sKey);
-        });
-      };
-
-      // Schedule exactly once in the specified waiting time
-      final ScheduledFuture <?> aFuture = m_aES.schedule (r, aWaitingWime.getDuration (), aWaitingWime.getTimeUnit ());
-
-      // Remember the scheduled item and the runnable so that the task can
-      // be rescheduled upon shutdown.
-      m_aRWLock.writeLockedGet ( () -> m_aScheduledItems.put (sKey, new WALItem (aFuture, r)));
-    }
-    // else the writing of the passed DAO is already scheduled and no further
-    // action is necessary
+      if (bWriteNow)
+        _enqueue (aState);
+      else
+      {
+        // Schedule exactly once in the specified waiting time. Remember the
+        // timer so that the write can be triggered upon shutdown.
+        aState.m_aTimer = m_aES.schedule ( () -> m_aRWLock.writeLocked ( () -> {
+          // The timer may have been cancelled after it fired
+          if (aState.m_aTimer != null)
+            _enqueue (aState);
+        }), aWaitingWime.getDuration (), aWaitingWime.getTimeUnit ());
+      }
+    });
   }
 }
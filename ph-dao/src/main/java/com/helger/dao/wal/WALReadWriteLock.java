@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.concurrent.SimpleReadWriteLock;
+
+/**
+ * The lock used by {@link AbstractWALDAO}. Records written to a
+ * {@link BinaryWALFile} within the write lock are only made durable after the
+ * write lock was released by the current thread. That way concurrent writers
+ * can share a single force (group commit) and the DAO is not blocked while
+ * waiting for the storage device.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+final class WALReadWriteLock extends SimpleReadWriteLock
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (WALReadWriteLock.class);
+
+  private final class DurableWriteLock extends WriteLock
+  {
+    DurableWriteLock ()
+    {
+      super (WALReadWriteLock.this);
+    }
+
+    @Override
+    public void unlock ()
+    {
+      BinaryWALFile aFile = null;
+      long nLength = 0;
+      if (getHoldCount () == 1)
+      {
+        // The lock is finally released by this call - take the pending record
+        // while still holding the lock
+        aFile = m_aPendingFile;
+        nLength = m_nPendingLength;
+        m_aPendingFile = null;
+        m_nPendingLength = 0;
+      }
+      super.unlock ();
+
+      if (aFile != null)
+        _awaitDurable (aFile, nLength);
+    }
+  }
+
+  private final DurableWriteLock m_aWriteLock = new DurableWriteLock ();
+  @GuardedBy ("m_aWriteLock")
+  private transient BinaryWALFile m_aPendingFile;
+  @GuardedBy ("m_aWriteLock")
+  private long m_nPendingLength;
+
+  WALReadWriteLock ()
+  {}
+
+  private static void _awaitDurable (@Nonnull final BinaryWALFile aFile, final long nLength)
+  {
+    try
+    {
+      aFile.awaitDurable (nLength);
+    }
+    catch (final IOException ex)
+    {
+      // If the file was closed in the meantime, closing forced the data
+      if (aFile.getDurableLength () < nLength)
+      {
+        if (LOGGER.isErrorEnabled ())
+          LOGGER.error ("Error forcing binary WAL file " + aFile.getFile ().getAbsolutePath (), ex);
+        AbstractWALDAO.triggerExceptionHandlersWrite (ex, aFile.getFile ().getAbsolutePath (), null);
+      }
+    }
+  }
+
+  @Override
+  public WriteLock writeLock ()
+  {
+    return m_aWriteLock;
+  }
+
+  /**
+   * Remember a record that must become durable after the write lock was
+   * released. Must be called with the write lock held.
+   *
+   * @param aFile
+   *        The file the record was written to. May not be <code>null</code>.
+   * @param nLength
+   *        The file position after the record.
+   */
+  void registerPendingRecord (@Nonnull final BinaryWALFile aFile, @Nonnegative final long nLength)
+  {
+    // If the file changed, the previous one was closed which forced its data
+    m_aPendingFile = aFile;
+    m_nPendingLength = nLength;
+  }
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.file.FileOperations;
+import com.helger.dao.EDAOActionType;
+
+/**
+ * Test class for class {@link BinaryWALFile}.
+ *
+ * @author Philip Helger
+ */
+public final class BinaryWALFileTest
+{
+  @Nonnull
+  private static ICommonsList <byte []> _bytes (final String... aStrings)
+  {
+    final ICommonsList <byte []> ret = new CommonsArrayList <> ();
+    for (final String s : aStrings)
+      ret.add (s.getBytes (StandardCharsets.UTF_8));
+    return ret;
+  }
+
+  @Test
+  public void testWriteAndRead () throws IOException
+  {
+    final File aFile = new File ("target/BinaryWALFileTest.wal");
+    FileOperations.deleteFileIfExisting (aFile);
+    try
+    {
+      try (final BinaryWALFile aWAL = new BinaryWALFile (aFile, EWALFsyncPolicy.PER_BATCH, Duration.ZERO))
+      {
+        aWAL.append (EDAOActionType.CREATE, _bytes ("<a/>", "<b/>"));
+        aWAL.append (EDAOActionType.UPDATE, _bytes ("<c>ä</c>"));
+        aWAL.append (EDAOActionType.DELETE, _bytes ());
+        assertEquals (3, aWAL.getRecordCount ());
+        assertEquals (aWAL.getWrittenLength (), aWAL.getDurableLength ());
+        assertTrue (aWAL.getForceCount () > 0);
+      }
+      assertTrue (BinaryWALFile.isBinaryWALFile (aFile));
+
+      final ICommonsList <String> aRead = new CommonsArrayList <> ();
+      final BinaryWALFile.ReadResult aResult = BinaryWALFile.readAll (aFile, (eActionType, aElements) -> {
+        aRead.add (eActionType.getID () + ":" + aElements.size ());
+        for (final byte [] aElement : aElements)
+          aRead.add (new String (aElement, StandardCharsets.UTF_8));
+      });
+      assertTrue (aResult.isComplete ());
+      assertEquals (3, aResult.getRecordCount ());
+      assertEquals (new CommonsArrayList <> ("create:2", "<a/>", "<b/>", "update:1", "<c>ä</c>", "delete:0"),
+                    aRead);
+
+      // Reopen and append
+      try (final BinaryWALFile aWAL = new BinaryWALFile (aFile, EWALFsyncPolicy.NONE, Duration.ZERO))
+      {
+        aWAL.append (EDAOActionType.CREATE, _bytes ("<d/>"));
+      }
+      assertEquals (4, BinaryWALFile.readAll (aFile, null).getRecordCount ());
+    }
+    finally
+    {
+      FileOperations.deleteFileIfExisting (aFile);
+    }
+  }
+
+  @Test
+  public void testTornTail () throws IOException
+  {
+    final File aFile = new File ("target/BinaryWALFileTest-torn.wal");
+    FileOperations.deleteFileIfExisting (aFile);
+    try
+    {
+      try (final BinaryWALFile aWAL = new BinaryWALFile (aFile, EWALFsyncPolicy.INTERVAL, Duration.ofMillis (10)))
+      {
+        aWAL.append (EDAOActionType.CREATE, _bytes ("<a/>"));
+        aWAL.append (EDAOActionType.CREATE, _bytes ("<b/>"));
+      }
+      final long nFullLength = aFile.length ();
+
+      // Simulate a crash in the middle of the last record
+      try (final RandomAccessFile aRAF = new RandomAccessFile (aFile, "rw"))
+      {
+        aRAF.setLength (nFullLength - 2);
+      }
+      BinaryWALFile.ReadResult aResult = BinaryWALFile.readAll (aFile, null);
+      assertFalse (aResult.isComplete ());
+      assertEquals (1, aResult.getRecordCount ());
+
+      // Corrupt payload of the first record
+      final byte [] aCopy;
+      try (final RandomAccessFile aRAF = new RandomAccessFile (aFile, "rw"))
+      {
+        aRAF.seek (aResult.getValidLength () - 1);
+        aCopy = new byte [] { aRAF.readByte () };
+        aRAF.seek (aResult.getValidLength () - 1);
+        aRAF.write (aCopy[0] + 1);
+      }
+      assertEquals (0, BinaryWALFile.readAll (aFile, null).getRecordCount ());
+      try (final RandomAccessFile aRAF = new RandomAccessFile (aFile, "rw"))
+      {
+        aRAF.seek (aResult.getValidLength () - 1);
+        aRAF.write (aCopy[0]);
+      }
+
+      // Reopening truncates the torn tail
+      try (final BinaryWALFile aWAL = new BinaryWALFile (aFile, EWALFsyncPolicy.PER_BATCH, Duration.ZERO))
+      {
+        aWAL.append (EDAOActionType.UPDATE, _bytes ("<c/>"));
+      }
+      aResult = BinaryWALFile.readAll (aFile, null);
+      assertTrue (aResult.isComplete ());
+      assertEquals (2, aResult.getRecordCount ());
+    }
+    finally
+    {
+      FileOperations.deleteFileIfExisting (aFile);
+    }
+  }
+
+  @Test
+  public void testIncompleteHeader () throws IOException
+  {
+    final File aFile = new File ("target/BinaryWALFileTest-header.wal");
+    FileOperations.deleteFileIfExisting (aFile);
+    try
+    {
+      try (final BinaryWALFile aWAL = new BinaryWALFile (aFile, EWALFsyncPolicy.NONE, Duration.ZERO))
+      {
+        aWAL.append (EDAOActionType.CREATE, _bytes ("<a/>"));
+      }
+
+      // Simulate a crash while the header is written
+      try (final RandomAccessFile aRAF = new RandomAccessFile (aFile, "rw"))
+      {
+        aRAF.setLength (5);
+      }
+      assertFalse (BinaryWALFile.isBinaryWALFile (aFile));
+      assertTrue (BinaryWALFile.isIncompleteBinaryWALFileHeader (aFile));
+
+      // Reopening rewrites the header
+      try (final BinaryWALFile aWAL = new BinaryWALFile (aFile, EWALFsyncPolicy.PER_BATCH, Duration.ZERO))
+      {
+        assertEquals (0, aWAL.getRecordCount ());
+        aWAL.append (EDAOActionType.UPDATE, _bytes ("<b/>"));
+      }
+      assertTrue (BinaryWALFile.isBinaryWALFile (aFile));
+      assertFalse (BinaryWALFile.isIncompleteBinaryWALFileHeader (aFile));
+      assertEquals (1, BinaryWALFile.readAll (aFile, null).getRecordCount ());
+
+      // Only zero bytes
+      try (final RandomAccessFile aRAF = new RandomAccessFile (aFile, "rw"))
+      {
+        aRAF.setLength (0);
+        aRAF.write (new byte [3]);
+      }
+      assertTrue (BinaryWALFile.isIncompleteBinaryWALFileHeader (aFile));
+
+      // Something else
+      try (final RandomAccessFile aRAF = new RandomAccessFile (aFile, "rw"))
+      {
+        aRAF.setLength (0);
+        aRAF.write (new byte [] { 'a', 'b' });
+      }
+      assertFalse (BinaryWALFile.isIncompleteBinaryWALFileHeader (aFile));
+    }
+    finally
+    {
+      FileOperations.deleteFileIfExisting (aFile);
+    }
+  }
+
+  @Test
+  public void testCreateRecord ()
+  {
+    final byte [] aRecord = BinaryWALFile.createRecord (EDAOActionType.CREATE, _bytes ("x")).array ();
+    // 8 header + 1 + 6 + 4 + 4 + 1
+    assertEquals (24, aRecord.length);
+    assertArrayEquals ("create".getBytes (StandardCharsets.US_ASCII), Arrays.copyOfRange (aRecord, 9, 15));
+  }
+}
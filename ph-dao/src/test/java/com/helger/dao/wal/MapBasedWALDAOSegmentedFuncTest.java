@@ -0,0 +1,428 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsCopyOnWriteArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.id.IHasID;
+import com.helger.commons.io.file.FileOperationManager;
+import com.helger.commons.io.relative.FileRelativeIO;
+import com.helger.commons.lang.TimeValue;
+import com.helger.dao.DAOException;
+import com.helger.scope.mock.ScopeTestRule;
+import com.helger.xml.microdom.IMicroDocument;
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.MicroElement;
+import com.helger.xml.microdom.convert.IMicroTypeConverter;
+import com.helger.xml.microdom.convert.MicroTypeConverterRegistry;
+
+/**
+ * Test class for the segmented mode of {@link AbstractMapBasedWALDAO}.
+ *
+ * @author Philip Helger
+ */
+public final class MapBasedWALDAOSegmentedFuncTest
+{
+  private static final File BASE_DIR = new File ("target/wal-segmented").getAbsoluteFile ();
+
+  private static final class MockItem implements IHasID <String>, Serializable
+  {
+    private final String m_sID;
+    private String m_sValue;
+
+    public MockItem (@Nonnull final String sID, @Nonnull final String sValue)
+    {
+      m_sID = sID;
+      m_sValue = sValue;
+    }
+
+    @Nonnull
+    public String getID ()
+    {
+      return m_sID;
+    }
+
+    @Nonnull
+    public String getValue ()
+    {
+      return m_sValue;
+    }
+
+    public void setValue (@Nonnull final String sValue)
+    {
+      m_sValue = sValue;
+    }
+  }
+
+  private static final class MockItemMicroTypeConverter implements IMicroTypeConverter <MockItem>
+  {
+    @Nonnull
+    public IMicroElement convertToMicroElement (@Nonnull final MockItem aObject,
+                                                @Nullable final String sNamespaceURI,
+                                                @Nonnull final String sTagName)
+    {
+      final IMicroElement ret = new MicroElement (sNamespaceURI, sTagName);
+      ret.setAttribute ("id", aObject.getID ());
+      ret.setAttribute ("value", aObject.getValue ());
+      return ret;
+    }
+
+    @Nonnull
+    public MockItem convertToNative (@Nonnull final IMicroElement aElement)
+    {
+      return new MockItem (aElement.getAttributeValue ("id"), aElement.getAttributeValue ("value"));
+    }
+  }
+
+  private static final class MockDAO extends AbstractMapBasedWALDAO <MockItem, MockItem>
+  {
+    // All documents that were modified outside of the DAO lock
+    private final ICommonsList <IMicroDocument> m_aUnlockedDocs = new CommonsCopyOnWriteArrayList <> ();
+    private volatile CountDownLatch m_aEntered;
+    private volatile CountDownLatch m_aRelease;
+
+    public MockDAO (final int nSegmentCount) throws DAOException
+    {
+      // Write directly
+      this (nSegmentCount, 0, EWALFormat.XML);
+    }
+
+    public MockDAO (final int nSegmentCount,
+                    final long nWaitingSeconds,
+                    @Nonnull final EWALFormat eWALFormat) throws DAOException
+    {
+      super (MockItem.class,
+             new FileRelativeIO (BASE_DIR),
+             "data.xml",
+             new InitSettings <MockItem> ().setDoInitialRead (false).setSegmentCount (nSegmentCount));
+      setWaitingTime (new TimeValue (TimeUnit.SECONDS, nWaitingSeconds));
+      setWALFormat (eWALFormat);
+      initialRead ();
+    }
+
+    public void changeWALFormat (@Nonnull final EWALFormat eWALFormat)
+    {
+      setWALFormat (eWALFormat);
+    }
+
+    public void setValue (@Nonnull final String sID, @Nonnull final String sValue)
+    {
+      final MockItem aItem = new MockItem (sID, sValue);
+      m_aRWLock.writeLocked ( () -> {
+        if (internalContainsWithID (sID))
+          internalUpdateItem (aItem);
+        else
+          internalCreateItem (aItem);
+      });
+    }
+
+    public void mutateValue (@Nonnull final String sID, @Nonnull final String sValue)
+    {
+      m_aRWLock.writeLocked ( () -> {
+        // Modify the existing object
+        final MockItem aItem = internalGetOfID (sID);
+        aItem.setValue (sValue);
+        internalUpdateItem (aItem);
+      });
+    }
+
+    public void blockUnlockedWrite ()
+    {
+      m_aEntered = new CountDownLatch (1);
+      m_aRelease = new CountDownLatch (1);
+    }
+
+    @Override
+    protected void modifyWriteData (@Nonnull final IMicroDocument aDoc)
+    {
+      if (!m_aRWLock.isWriteLockedByCurrentThread ())
+      {
+        m_aUnlockedDocs.add (aDoc);
+        final CountDownLatch aEntered = m_aEntered;
+        final CountDownLatch aRelease = m_aRelease;
+        if (aEntered != null && aRelease != null)
+        {
+          m_aEntered = null;
+          aEntered.countDown ();
+          try
+          {
+            aRelease.await (10, TimeUnit.SECONDS);
+          }
+          catch (final InterruptedException ex)
+          {
+            Thread.currentThread ().interrupt ();
+          }
+        }
+      }
+    }
+
+    @Nullable
+    public String getValue (@Nonnull final String sID)
+    {
+      final MockItem aItem = getOfID (sID);
+      return aItem == null ? null : aItem.getValue ();
+    }
+  }
+
+  @Rule
+  public final ScopeTestRule m_aRule = new ScopeTestRule ();
+
+  @BeforeClass
+  public static void beforeClass ()
+  {
+    MicroTypeConverterRegistry.getInstance ()
+                              .registerMicroElementTypeConverter (MockItem.class, new MockItemMicroTypeConverter ());
+  }
+
+  @Test
+  public void testWriteAndRead () throws DAOException
+  {
+    FileOperationManager.INSTANCE.deleteDirRecursiveIfExisting (BASE_DIR);
+    FileOperationManager.INSTANCE.createDirRecursiveIfNotExisting (BASE_DIR);
+
+    final MockDAO aDAO = new MockDAO (4);
+    assertTrue (aDAO.isSegmented ());
+    for (int i = 0; i < 100; ++i)
+      aDAO.setValue ("id" + i, "value" + i);
+    aDAO.setValue ("id5", "changed");
+    for (int i = 0; i < 4; ++i)
+      assertTrue (new File (BASE_DIR, "data.xml" + AbstractMapBasedWALDAO.FILENAME_EXTENSION_SEGMENT + i).exists ());
+
+    // Read segments
+    MockDAO aDAO2 = new MockDAO (4);
+    assertEquals (100, aDAO2.size ());
+    assertEquals ("changed", aDAO2.getValue ("id5"));
+    assertEquals ("value99", aDAO2.getValue ("id99"));
+
+    // Switch to a single file - segment files are removed
+    aDAO2 = new MockDAO (0);
+    assertFalse (aDAO2.isSegmented ());
+    assertEquals (100, aDAO2.size ());
+    assertFalse (new File (BASE_DIR, "data.xml" + AbstractMapBasedWALDAO.FILENAME_EXTENSION_SEGMENT + "0").exists ());
+
+    // And back to segments
+    aDAO2 = new MockDAO (3);
+    assertEquals (100, aDAO2.size ());
+    assertNotNull (aDAO2.getValue ("id42"));
+    assertFalse (new File (BASE_DIR, "data.xml" + AbstractMapBasedWALDAO.FILENAME_EXTENSION_SEGMENT + "3").exists ());
+  }
+
+  private static void _waitUntilWritten () throws InterruptedException
+  {
+    // The WAL file is rotated and the rotated file is deleted after all files
+    // were written
+    final File aWALFile = new File (BASE_DIR, "data.xml.wal");
+    final File aWALFileCompact = new File (BASE_DIR, "data.xml.wal" + AbstractWALDAO.FILENAME_EXTENSION_WAL_COMPACT);
+    final long nEnd = System.currentTimeMillis () + 10_000;
+    while ((aWALFile.exists () || aWALFileCompact.exists ()) && System.currentTimeMillis () < nEnd)
+      Thread.sleep (50);
+    assertFalse (aWALFile.exists ());
+    assertFalse (aWALFileCompact.exists ());
+  }
+
+  @Nonnull
+  private static File _getSegmentFile (final int nIndex)
+  {
+    return new File (BASE_DIR, "data.xml" + AbstractMapBasedWALDAO.FILENAME_EXTENSION_SEGMENT + nIndex);
+  }
+
+  @Test
+  public void testModifyDuringScheduledWrite () throws DAOException, InterruptedException
+  {
+    FileOperationManager.INSTANCE.deleteDirRecursiveIfExisting (BASE_DIR);
+    FileOperationManager.INSTANCE.createDirRecursiveIfNotExisting (BASE_DIR);
+
+    final MockDAO aDAO = new MockDAO (4, 1, EWALFormat.XML);
+    for (int i = 0; i < 100; ++i)
+      aDAO.setValue ("id" + i, "value" + i);
+    _waitUntilWritten ();
+
+    // Block the scheduled write in the first segment document
+    aDAO.blockUnlockedWrite ();
+    final CountDownLatch aEntered = aDAO.m_aEntered;
+    final int nDocCount = aDAO.m_aUnlockedDocs.size ();
+    for (int i = 0; i < 100; ++i)
+      aDAO.mutateValue ("id" + i, "first" + i);
+    assertTrue (aEntered.await (10, TimeUnit.SECONDS));
+
+    // The DAO lock is not held, so the items can be modified
+    for (int i = 0; i < 100; ++i)
+      aDAO.mutateValue ("id" + i, "second" + i);
+    aDAO.m_aRelease.countDown ();
+
+    // The written segments must only contain the state of the first write
+    final long nEnd = System.currentTimeMillis () + 10_000;
+    while (aDAO.m_aUnlockedDocs.size () < nDocCount + 4 && System.currentTimeMillis () < nEnd)
+      Thread.sleep (50);
+    assertTrue (aDAO.m_aUnlockedDocs.size () >= nDocCount + 4);
+    int nItems = 0;
+    for (final IMicroDocument aDoc : aDAO.m_aUnlockedDocs.subList (nDocCount, nDocCount + 4))
+      for (final IMicroElement eItem : aDoc.getDocumentElement ().getAllChildElements ())
+      {
+        final String sID = eItem.getAttributeValue ("id");
+        assertEquals ("first" + sID.substring (2), eItem.getAttributeValue ("value"));
+        nItems++;
+      }
+    assertEquals (100, nItems);
+
+    // The second modifications are written afterwards
+    _waitUntilWritten ();
+    final MockDAO aDAO2 = new MockDAO (4);
+    assertEquals (100, aDAO2.size ());
+    assertEquals ("second42", aDAO2.getValue ("id42"));
+  }
+
+  @Test
+  public void testScheduledWrite () throws DAOException, InterruptedException
+  {
+    FileOperationManager.INSTANCE.deleteDirRecursiveIfExisting (BASE_DIR);
+    FileOperationManager.INSTANCE.createDirRecursiveIfNotExisting (BASE_DIR);
+
+    final MockDAO aDAO = new MockDAO (4, 1, EWALFormat.XML);
+    for (int i = 0; i < 100; ++i)
+      aDAO.setValue ("id" + i, "value" + i);
+    assertTrue (new File (BASE_DIR, "data.xml.wal").exists ());
+    _waitUntilWritten ();
+    for (int i = 0; i < 4; ++i)
+      assertTrue (_getSegmentFile (i).exists ());
+
+    // Only the segment of the changed item is rewritten
+    final long nOldTime = 1_000_000L;
+    for (int i = 0; i < 4; ++i)
+      assertTrue (_getSegmentFile (i).setLastModified (nOldTime));
+    aDAO.setValue ("id5", "changed");
+    _waitUntilWritten ();
+    final int nChangedSegment = ("id5".hashCode () & Integer.MAX_VALUE) % 4;
+    for (int i = 0; i < 4; ++i)
+      if (i == nChangedSegment)
+        assertTrue (_getSegmentFile (i).lastModified () != nOldTime);
+      else
+        assertEquals (nOldTime, _getSegmentFile (i).lastModified ());
+
+    // Simulate a restart
+    final MockDAO aDAO2 = new MockDAO (4);
+    assertEquals (100, aDAO2.size ());
+    assertEquals ("changed", aDAO2.getValue ("id5"));
+    assertEquals ("value42", aDAO2.getValue ("id42"));
+  }
+
+  @Test
+  public void testRecoverSegmentsAndWAL () throws DAOException
+  {
+    FileOperationManager.INSTANCE.deleteDirRecursiveIfExisting (BASE_DIR);
+    FileOperationManager.INSTANCE.createDirRecursiveIfNotExisting (BASE_DIR);
+
+    // Write the segments directly
+    final MockDAO aDAO = new MockDAO (4);
+    for (int i = 0; i < 50; ++i)
+      aDAO.setValue ("id" + i, "value" + i);
+
+    // Changes are only contained in the WAL file
+    final MockDAO aDAO2 = new MockDAO (4, 3600, EWALFormat.XML);
+    assertEquals (50, aDAO2.size ());
+    aDAO2.setValue ("id1", "changed");
+    aDAO2.setValue ("new", "created");
+    assertTrue (new File (BASE_DIR, "data.xml.wal").exists ());
+
+    // Simulate a crash and a restart - segments and WAL file are combined
+    final MockDAO aDAO3 = new MockDAO (4);
+    assertEquals (51, aDAO3.size ());
+    assertEquals ("changed", aDAO3.getValue ("id1"));
+    assertEquals ("created", aDAO3.getValue ("new"));
+    assertEquals ("value2", aDAO3.getValue ("id2"));
+    assertFalse (new File (BASE_DIR, "data.xml.wal").exists ());
+  }
+
+  @Test
+  public void testMigrateBinaryWAL () throws DAOException
+  {
+    FileOperationManager.INSTANCE.deleteDirRecursiveIfExisting (BASE_DIR);
+    FileOperationManager.INSTANCE.createDirRecursiveIfNotExisting (BASE_DIR);
+
+    final File aWALFile = new File (BASE_DIR, "data.xml.wal");
+
+    // Changes are only written to the binary WAL file
+    final MockDAO aDAO = new MockDAO (0, 3600, EWALFormat.BINARY);
+    aDAO.setValue ("a", "1");
+    aDAO.setValue ("b", "2");
+    assertTrue (BinaryWALFile.isBinaryWALFile (aWALFile));
+
+    // Switching the format converts the pending binary WAL file
+    aDAO.changeWALFormat (EWALFormat.XML);
+    aDAO.setValue ("c", "3");
+    assertTrue (aWALFile.exists ());
+    assertFalse (BinaryWALFile.isBinaryWALFile (aWALFile));
+
+    // Simulate a restart - everything is recovered from the WAL file
+    final MockDAO aDAO2 = new MockDAO (0);
+    assertEquals (3, aDAO2.size ());
+    assertEquals ("1", aDAO2.getValue ("a"));
+    assertEquals ("3", aDAO2.getValue ("c"));
+  }
+
+  @Test
+  public void testConcurrentBinaryWALGroupCommit () throws DAOException, InterruptedException
+  {
+    FileOperationManager.INSTANCE.deleteDirRecursiveIfExisting (BASE_DIR);
+    FileOperationManager.INSTANCE.createDirRecursiveIfNotExisting (BASE_DIR);
+
+    final int nThreads = 8;
+    final int nChanges = 200;
+    final MockDAO aDAO = new MockDAO (0, 3600, EWALFormat.BINARY);
+    final ExecutorService aES = Executors.newFixedThreadPool (nThreads);
+    for (int t = 0; t < nThreads; ++t)
+    {
+      final int nThread = t;
+      aES.submit ( () -> {
+        for (int i = 0; i < nChanges; ++i)
+          aDAO.setValue ("id" + nThread + "-" + i, "value" + i);
+      });
+    }
+    aES.shutdown ();
+    assertTrue (aES.awaitTermination (60, TimeUnit.SECONDS));
+
+    // Everything is durable, but the forces were shared between the writers
+    final BinaryWALFile aWALFile = aDAO.getBinaryWALFile ();
+    assertNotNull (aWALFile);
+    assertEquals (nThreads * nChanges, aWALFile.getRecordCount ());
+    assertEquals (aWALFile.getWrittenLength (), aWALFile.getDurableLength ());
+    assertTrue (aWALFile.getForceCount () < aWALFile.getRecordCount ());
+
+    // Simulate a restart - everything is recovered from the WAL file
+    final MockDAO aDAO2 = new MockDAO (0);
+    assertEquals (nThreads * nChanges, aDAO2.size ());
+  }
+}
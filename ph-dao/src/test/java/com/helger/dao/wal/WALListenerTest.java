@@ -0,0 +1,250 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsVector;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.relative.FileRelativeIO;
+import com.helger.commons.lang.TimeValue;
+import com.helger.commons.state.EChange;
+import com.helger.scope.mock.ScopeTestRule;
+import com.helger.xml.microdom.IMicroDocument;
+import com.helger.xml.microdom.MicroDocument;
+
+/**
+ * Test class for class {@link WALListener}.
+ *
+ * @author Philip Helger
+ */
+public final class WALListenerTest
+{
+  private static final TimeValue WAIT_LONG = new TimeValue (TimeUnit.HOURS, 1);
+
+  /**
+   * A DAO that only records the scheduled writes.
+   */
+  private static final class MockDAO extends AbstractWALDAO <String>
+  {
+    private final String m_sName;
+    private final Consumer <String> m_aOnWrite;
+
+    public MockDAO (@Nonnull final String sName, @Nonnull final Consumer <String> aOnWrite)
+    {
+      super (String.class, new FileRelativeIO (new File ("target").getAbsoluteFile ()), () -> null);
+      m_sName = sName;
+      m_aOnWrite = aOnWrite;
+    }
+
+    @Override
+    void _performScheduledWrite (@Nonnull final String sWALFilename)
+    {
+      m_aOnWrite.accept (m_sName);
+    }
+
+    @Override
+    @Nonnull
+    protected EChange onRead (@Nonnull final IMicroDocument aDoc)
+    {
+      return EChange.UNCHANGED;
+    }
+
+    @Override
+    protected void onRecoveryCreate (@Nonnull final String aElement)
+    {}
+
+    @Override
+    protected void onRecoveryUpdate (@Nonnull final String aElement)
+    {}
+
+    @Override
+    protected void onRecoveryDelete (@Nonnull final String aElement)
+    {}
+
+    @Override
+    @Nonnull
+    protected IMicroDocument createWriteData ()
+    {
+      return new MicroDocument ();
+    }
+  }
+
+  @Rule
+  public final ScopeTestRule m_aRule = new ScopeTestRule ();
+
+  private static void _await (@Nonnull final CountDownLatch aLatch) throws InterruptedException
+  {
+    assertTrue (aLatch.await (10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testDAORecreation () throws InterruptedException
+  {
+    final WALListener aWL = WALListener.getInstance ();
+    final ICommonsList <String> aWritten = new CommonsVector <> ();
+    final CountDownLatch aLatch = new CountDownLatch (1);
+    final Consumer <String> aOnWrite = s -> {
+      aWritten.add (s);
+      aLatch.countDown ();
+    };
+
+    aWL.registerForLaterWriting (new MockDAO ("old", aOnWrite), "dao.wal", new TimeValue (TimeUnit.MILLISECONDS, 200));
+    // The DAO is re-created for the same file before the write happened
+    aWL.registerForLaterWriting (new MockDAO ("new", aOnWrite), "dao.wal", WAIT_LONG);
+    _await (aLatch);
+    assertEquals (new CommonsVector <> ("new"), aWritten);
+  }
+
+  @Test
+  public void testCoalescing () throws InterruptedException
+  {
+    final WALListener aWL = WALListener.getInstance ();
+    final ICommonsList <String> aWritten = new CommonsVector <> ();
+    final CountDownLatch aLatch = new CountDownLatch (1);
+    final MockDAO aDAO = new MockDAO ("dao", s -> {
+      aWritten.add (s);
+      aLatch.countDown ();
+    });
+
+    final TimeValue aWait = new TimeValue (TimeUnit.MILLISECONDS, 200);
+    for (int i = 0; i < 10; ++i)
+      aWL.registerForLaterWriting (aDAO, "dao.wal", aWait, i);
+    _await (aLatch);
+    // Give additional writes a chance to show up
+    Thread.sleep (300);
+    assertEquals (1, aWritten.size ());
+    assertEquals (0, aWL.getPendingWALBytes ());
+  }
+
+  @Test
+  public void testBackPressure () throws InterruptedException
+  {
+    final WALListener aWL = WALListener.getInstance ();
+    aWL.setMaxPendingWALBytes (100);
+    final ICommonsList <String> aWritten = new CommonsVector <> ();
+    final CountDownLatch aLatch = new CountDownLatch (2);
+    final Consumer <String> aOnWrite = s -> {
+      aWritten.add (s);
+      aLatch.countDown ();
+    };
+    final MockDAO aDAO1 = new MockDAO ("dao1", aOnWrite);
+    final MockDAO aDAO2 = new MockDAO ("dao2", aOnWrite);
+
+    aWL.registerForLaterWriting (aDAO1, "dao1.wal", WAIT_LONG, 60);
+    assertEquals (60, aWL.getPendingWALBytes ());
+    assertFalse (aWL.isMaxPendingWALBytesExceeded ());
+    assertTrue (aWritten.isEmpty ());
+
+    // Exceeding the limit writes the registering DAO without waiting
+    aWL.registerForLaterWriting (aDAO2, "dao2.wal", WAIT_LONG, 60);
+    // A waiting DAO exceeding the limit is written without waiting as well
+    aWL.registerForLaterWriting (aDAO1, "dao1.wal", WAIT_LONG, 150);
+    _await (aLatch);
+    assertEquals (2, aWritten.size ());
+    assertTrue (aWritten.contains ("dao1"));
+    assertTrue (aWritten.contains ("dao2"));
+  }
+
+  @Test
+  public void testPriority () throws InterruptedException
+  {
+    final WALListener aWL = WALListener.getInstance ();
+    aWL.setWriterThreadCount (1);
+    // Always write immediately
+    aWL.setMaxPendingWALBytes (1);
+
+    final CountDownLatch aBlockerStarted = new CountDownLatch (1);
+    final CountDownLatch aBlockerRelease = new CountDownLatch (1);
+    final MockDAO aBlocker = new MockDAO ("blocker", s -> {
+      aBlockerStarted.countDown ();
+      try
+      {
+        aBlockerRelease.await ();
+      }
+      catch (final InterruptedException ex)
+      {
+        Thread.currentThread ().interrupt ();
+      }
+    });
+    aWL.registerForLaterWriting (aBlocker, "blocker.wal", WAIT_LONG, 10);
+    _await (aBlockerStarted);
+
+    // Queued while the only writer is busy
+    final ICommonsList <String> aWritten = new CommonsVector <> ();
+    final CountDownLatch aLatch = new CountDownLatch (3);
+    final Consumer <String> aOnWrite = s -> {
+      aWritten.add (s);
+      aLatch.countDown ();
+    };
+    aWL.registerForLaterWriting (new MockDAO ("small", aOnWrite), "small.wal", WAIT_LONG, 10);
+    aWL.registerForLaterWriting (new MockDAO ("large", aOnWrite), "large.wal", WAIT_LONG, 1000);
+    aWL.registerForLaterWriting (new MockDAO ("medium", aOnWrite), "medium.wal", WAIT_LONG, 100);
+    assertEquals (3, aWL.getQueuedWriteCount ());
+
+    // The largest WAL file is written first
+    aBlockerRelease.countDown ();
+    _await (aLatch);
+    assertEquals (new CommonsVector <> ("large", "medium", "small"), aWritten);
+  }
+
+  @Test
+  public void testWriterPool () throws InterruptedException
+  {
+    final WALListener aWL = WALListener.getInstance ();
+    aWL.setWriterThreadCount (2);
+    assertEquals (2, aWL.getWriterThreadCount ());
+    aWL.setMaxPendingWALBytes (1);
+
+    // Both writes must run at the same time
+    final CountDownLatch aStarted = new CountDownLatch (2);
+    final CountDownLatch aRelease = new CountDownLatch (1);
+    final Consumer <String> aOnWrite = s -> {
+      aStarted.countDown ();
+      try
+      {
+        aRelease.await ();
+      }
+      catch (final InterruptedException ex)
+      {
+        Thread.currentThread ().interrupt ();
+      }
+    };
+    aWL.registerForLaterWriting (new MockDAO ("dao1", aOnWrite), "dao1.wal", WAIT_LONG, 10);
+    aWL.registerForLaterWriting (new MockDAO ("dao2", aOnWrite), "dao2.wal", WAIT_LONG, 10);
+    try
+    {
+      _await (aStarted);
+    }
+    finally
+    {
+      aRelease.countDown ();
+    }
+  }
+}
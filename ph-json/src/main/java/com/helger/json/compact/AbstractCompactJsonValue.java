@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.compact;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.WillNotClose;
+
+import com.helger.json.IJsonValue;
+import com.helger.json.JsonValue;
+import com.helger.json.valueserializer.IJsonValueSerializer;
+import com.helger.json.valueserializer.JsonValueSerializerRegistry;
+
+/**
+ * Abstract base class for the immutable compact numeric {@link IJsonValue}
+ * implementations. The values are stored as primitives or in textual form and
+ * only boxed when {@link #getValue()} is called.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+public abstract class AbstractCompactJsonValue implements IJsonValue
+{
+  protected AbstractCompactJsonValue ()
+  {}
+
+  public final boolean isArray ()
+  {
+    return false;
+  }
+
+  public final boolean isObject ()
+  {
+    return false;
+  }
+
+  public final boolean isValue ()
+  {
+    return true;
+  }
+
+  public final boolean isBooleanValue ()
+  {
+    return false;
+  }
+
+  public final boolean isStringValue ()
+  {
+    return false;
+  }
+
+  @Nonnull
+  public IJsonValueSerializer getValueSerializer ()
+  {
+    final IJsonValueSerializer ret = JsonValueSerializerRegistry.getInstance ().getJsonValueSerializer (getValueClass ());
+    return ret != null ? ret : JsonValue.getDefaultJsonValueSerializer ();
+  }
+
+  public void appendAsJsonString (@Nonnull @WillNotClose final Writer aWriter) throws IOException
+  {
+    getValueSerializer ().appendAsJsonString (getValue (), aWriter);
+  }
+
+  /**
+   * @return The regular {@link JsonValue} with the same value. This way cloning
+   *         a compact JSON tree results in the regular representation.
+   */
+  @Nonnull
+  public JsonValue getClone ()
+  {
+    return JsonValue.create (getValue ());
+  }
+}
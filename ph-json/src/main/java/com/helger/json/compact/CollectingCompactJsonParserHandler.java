@@ -0,0 +1,380 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.compact;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.json.IJson;
+import com.helger.json.IJsonValue;
+import com.helger.json.JsonValue;
+import com.helger.json.parser.handler.CollectingJsonParserHandler;
+import com.helger.json.parser.handler.IJsonParserHandler;
+
+/**
+ * This {@link IJsonParserHandler} constructs the whole JSON tree while parsing
+ * it, like {@link CollectingJsonParserHandler}, but creates the immutable and
+ * memory efficient {@link CompactJsonObject}, {@link CompactJsonArray} and
+ * compact number representations. Objects with the same keys in the same
+ * order share one {@link CompactJsonObjectShape}.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@NotThreadSafe
+public class CollectingCompactJsonParserHandler implements IJsonParserHandler
+{
+  /** The default maximum number of distinct object shapes per handler */
+  public static final int DEFAULT_MAX_SHAPE_COUNT = 10_000;
+
+  /**
+   * A node in the shape tree. The path from the root to a node is the ordered
+   * list of keys. The key of the edge leading to a node is only stored in the
+   * children map of its parent, so no key arrays are copied per node. The
+   * shape is only created for nodes at which an object ends.
+   */
+  private static final class ShapeNode
+  {
+    private ICommonsMap <String, ShapeNode> m_aChildren;
+    private CompactJsonObjectShape m_aShape;
+
+    @Nullable
+    ShapeNode getChild (@Nonnull final String sKey)
+    {
+      return m_aChildren == null ? null : m_aChildren.get (sKey);
+    }
+
+    @Nonnull
+    ShapeNode getOrCreateChild (@Nonnull final String sKey)
+    {
+      if (m_aChildren == null)
+        m_aChildren = new CommonsHashMap <> (4);
+      return m_aChildren.computeIfAbsent (sKey, k -> new ShapeNode ());
+    }
+  }
+
+  /**
+   * The collected content of a currently open array or object.
+   */
+  private static final class Frame
+  {
+    private final boolean m_bIsObject;
+    private IJson [] m_aValues = new IJson [8];
+    private String [] m_aKeys;
+    private ICommonsMap <String, Integer> m_aKeyIndex;
+    private int m_nCount = 0;
+    private String m_sPendingName;
+
+    Frame (final boolean bIsObject)
+    {
+      m_bIsObject = bIsObject;
+      if (bIsObject)
+        m_aKeys = new String [8];
+    }
+
+    private int _getIndexOfKey (@Nonnull final String sName)
+    {
+      if (m_aKeyIndex != null)
+      {
+        final Integer aIndex = m_aKeyIndex.get (sName);
+        return aIndex == null ? -1 : aIndex.intValue ();
+      }
+      for (int i = 0; i < m_nCount; ++i)
+        if (m_aKeys[i].equals (sName))
+          return i;
+      return -1;
+    }
+
+    void add (@Nonnull final IJson aValue)
+    {
+      if (m_bIsObject)
+      {
+        // Duplicate keys overwrite the previous value
+        final int nIndex = _getIndexOfKey (m_sPendingName);
+        if (nIndex >= 0)
+        {
+          m_aValues[nIndex] = aValue;
+          return;
+        }
+      }
+
+      if (m_nCount == m_aValues.length)
+      {
+        m_aValues = Arrays.copyOf (m_aValues, m_nCount * 2);
+        if (m_bIsObject)
+          m_aKeys = Arrays.copyOf (m_aKeys, m_nCount * 2);
+      }
+      if (m_bIsObject)
+      {
+        m_aKeys[m_nCount] = m_sPendingName;
+        if (m_aKeyIndex != null)
+          m_aKeyIndex.put (m_sPendingName, Integer.valueOf (m_nCount));
+        else
+          if (m_nCount == CompactJsonObjectShape.INDEX_THRESHOLD)
+          {
+            // Switch to a hash based duplicate check
+            m_aKeyIndex = new CommonsHashMap <> ();
+            for (int i = 0; i <= m_nCount; ++i)
+              m_aKeyIndex.put (m_aKeys[i], Integer.valueOf (i));
+          }
+      }
+      m_aValues[m_nCount++] = aValue;
+    }
+  }
+
+  private final int m_nMaxShapeCount;
+  private final ShapeNode m_aShapeRoot = new ShapeNode ();
+  private int m_nShapeCount = 0;
+  private Frame [] m_aStack = new Frame [16];
+  private int m_nDepth = 0;
+  private IJson m_aJson;
+
+  public CollectingCompactJsonParserHandler ()
+  {
+    this (DEFAULT_MAX_SHAPE_COUNT);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param nMaxShapeCount
+   *        The maximum number of distinct shapes that are shared. Objects with
+   *        other key sets get an individual shape. Must be &ge; 0.
+   */
+  public CollectingCompactJsonParserHandler (@Nonnegative final int nMaxShapeCount)
+  {
+    ValueEnforcer.isGE0 (nMaxShapeCount, "MaxShapeCount");
+    m_nMaxShapeCount = nMaxShapeCount;
+  }
+
+  @Override
+  public boolean isOriginalContentRequired ()
+  {
+    // Only the unescaped strings are used
+    return false;
+  }
+
+  /**
+   * @return The number of distinct shared object shapes created so far.
+   */
+  @Nonnegative
+  public int getShapeCount ()
+  {
+    return m_nShapeCount;
+  }
+
+  @Nonnull
+  private CompactJsonObjectShape _getShape (@Nonnull final String [] aKeys, @Nonnegative final int nCount)
+  {
+    // Look up an existing shape without modifying the tree
+    ShapeNode aNode = m_aShapeRoot;
+    int nMatched = 0;
+    while (nMatched < nCount)
+    {
+      final ShapeNode aChild = aNode.getChild (aKeys[nMatched]);
+      if (aChild == null)
+        break;
+      aNode = aChild;
+      nMatched++;
+    }
+    if (nMatched == nCount && aNode.m_aShape != null)
+      return aNode.m_aShape;
+
+    final CompactJsonObjectShape aShape = new CompactJsonObjectShape (Arrays.copyOf (aKeys, nCount));
+    if (m_nShapeCount >= m_nMaxShapeCount)
+    {
+      // Too many different shapes - don't share
+      return aShape;
+    }
+
+    // Add the missing path and remember the new shape
+    for (int i = nMatched; i < nCount; ++i)
+      aNode = aNode.getOrCreateChild (aKeys[i]);
+    aNode.m_aShape = aShape;
+    m_nShapeCount++;
+    return aShape;
+  }
+
+  @Nonnull
+  private static IJson _createArray (@Nonnull final Frame aFrame)
+  {
+    final int nCount = aFrame.m_nCount;
+    final IJson [] aValues = aFrame.m_aValues;
+
+    if (nCount > 0)
+    {
+      // Check if a primitive array can be used
+      boolean bAllLong = true;
+      boolean bAllDouble = true;
+      for (int i = 0; i < nCount && (bAllLong || bAllDouble); ++i)
+      {
+        final IJson aValue = aValues[i];
+        if (!(aValue instanceof CompactJsonLong || _isSmallInt (aValue)))
+          bAllLong = false;
+        if (!(aValue instanceof CompactJsonDouble))
+          bAllDouble = false;
+      }
+
+      if (bAllLong)
+      {
+        final long [] aLongs = new long [nCount];
+        for (int i = 0; i < nCount; ++i)
+          aLongs[i] = ((Number) ((IJsonValue) aValues[i]).getValue ()).longValue ();
+        return CompactJsonArray.createLongs (aLongs);
+      }
+      if (bAllDouble)
+      {
+        final double [] aDoubles = new double [nCount];
+        for (int i = 0; i < nCount; ++i)
+          aDoubles[i] = ((CompactJsonDouble) aValues[i]).getAsDouble ();
+        return CompactJsonArray.createDoubles (aDoubles);
+      }
+    }
+    return CompactJsonArray.createValues (Arrays.copyOf (aValues, nCount));
+  }
+
+  private static boolean _isSmallInt (@Nonnull final IJson aValue)
+  {
+    // Created by CompactJsonLong.create for small values
+    return aValue instanceof JsonValue && ((JsonValue) aValue).getValue () instanceof Integer;
+  }
+
+  @Nonnull
+  private IJson _createObject (@Nonnull final Frame aFrame)
+  {
+    final int nCount = aFrame.m_nCount;
+    final CompactJsonObjectShape aShape = _getShape (aFrame.m_aKeys, nCount);
+    return new CompactJsonObject (aShape, Arrays.copyOf (aFrame.m_aValues, nCount));
+  }
+
+  private void _add (@Nonnull final IJson aValue)
+  {
+    if (m_nDepth == 0)
+      m_aJson = aValue;
+    else
+      m_aStack[m_nDepth - 1].add (aValue);
+  }
+
+  private void _push (final boolean bIsObject)
+  {
+    if (m_nDepth == m_aStack.length)
+      m_aStack = Arrays.copyOf (m_aStack, m_nDepth * 2);
+    m_aStack[m_nDepth++] = new Frame (bIsObject);
+  }
+
+  @Nonnull
+  private Frame _pop ()
+  {
+    final Frame ret = m_aStack[--m_nDepth];
+    m_aStack[m_nDepth] = null;
+    return ret;
+  }
+
+  public void onWhitespace (@Nonnull @Nonempty final String sWhitespace)
+  {}
+
+  public void onComment (@Nonnull final String sComment)
+  {}
+
+  public void onString (@Nonnull final String sString, @Nonnull final String sUnescaped)
+  {
+    _add (JsonValue.create (sUnescaped));
+  }
+
+  public void onNumber (@Nonnull final String sNumber, @Nonnull final Number aNumber)
+  {
+    final IJson aValue;
+    if (aNumber instanceof Integer || aNumber instanceof Long)
+      aValue = CompactJsonLong.create (aNumber.longValue ());
+    else
+      if (aNumber instanceof Double)
+        aValue = new CompactJsonDouble (aNumber.doubleValue ());
+      else
+      {
+        // BigInteger or BigDecimal - keep only the text
+        aValue = new CompactJsonBigNumber (sNumber, aNumber instanceof BigInteger);
+      }
+    _add (aValue);
+  }
+
+  public void onFalse ()
+  {
+    _add (JsonValue.FALSE);
+  }
+
+  public void onTrue ()
+  {
+    _add (JsonValue.TRUE);
+  }
+
+  public void onNull ()
+  {
+    _add (JsonValue.NULL);
+  }
+
+  public void onArrayStart ()
+  {
+    _push (false);
+  }
+
+  public void onArrayNextElement ()
+  {}
+
+  public void onArrayEnd ()
+  {
+    _add (_createArray (_pop ()));
+  }
+
+  public void onObjectStart ()
+  {
+    _push (true);
+  }
+
+  public void onObjectName (@Nonnull final String sString, @Nonnull final String sName)
+  {
+    m_aStack[m_nDepth - 1].m_sPendingName = sName;
+  }
+
+  public void onObjectColon ()
+  {}
+
+  public void onObjectNextElement ()
+  {}
+
+  public void onObjectEnd ()
+  {
+    _add (_createObject (_pop ()));
+  }
+
+  /**
+   * @return The created JSON. May be <code>null</code> if nothing was parsed.
+   */
+  @Nullable
+  public IJson getJson ()
+  {
+    return m_aJson;
+  }
+}
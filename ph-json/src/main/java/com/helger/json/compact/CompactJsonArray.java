@@ -0,0 +1,337 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.compact;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.state.EChange;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.json.IJson;
+import com.helger.json.IJsonArray;
+import com.helger.json.JsonArray;
+
+/**
+ * An immutable, memory efficient implementation of {@link IJsonArray}. Arrays
+ * containing only integral numbers or only decimal numbers are stored as
+ * primitive <code>long</code> or <code>double</code> arrays and the
+ * {@link IJson} elements are created on access. All modifying methods throw an
+ * {@link UnsupportedOperationException}. Use {@link #getClone()} to get a
+ * modifiable {@link JsonArray}.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@Immutable
+public final class CompactJsonArray implements IJsonArray
+{
+  private final IJson [] m_aValues;
+  private final long [] m_aLongs;
+  private final double [] m_aDoubles;
+  private final int m_nSize;
+
+  private CompactJsonArray (@Nullable final IJson [] aValues,
+                            @Nullable final long [] aLongs,
+                            @Nullable final double [] aDoubles,
+                            @Nonnegative final int nSize)
+  {
+    m_aValues = aValues;
+    m_aLongs = aLongs;
+    m_aDoubles = aDoubles;
+    m_nSize = nSize;
+  }
+
+  /**
+   * @return <code>true</code> if the elements are stored as primitive
+   *         <code>long</code> values.
+   */
+  public boolean isLongArray ()
+  {
+    return m_aLongs != null;
+  }
+
+  /**
+   * @return <code>true</code> if the elements are stored as primitive
+   *         <code>double</code> values.
+   */
+  public boolean isDoubleArray ()
+  {
+    return m_aDoubles != null;
+  }
+
+  public boolean isArray ()
+  {
+    return true;
+  }
+
+  public boolean isObject ()
+  {
+    return false;
+  }
+
+  public boolean isValue ()
+  {
+    return false;
+  }
+
+  @Nonnegative
+  public int size ()
+  {
+    return m_nSize;
+  }
+
+  public boolean isEmpty ()
+  {
+    return m_nSize == 0;
+  }
+
+  @Nonnull
+  private IJson _get (final int nIndex)
+  {
+    if (m_aLongs != null)
+      return CompactJsonLong.create (m_aLongs[nIndex]);
+    if (m_aDoubles != null)
+      return new CompactJsonDouble (m_aDoubles[nIndex]);
+    return m_aValues[nIndex];
+  }
+
+  @Nullable
+  public IJson get (@Nonnegative final int nIndex)
+  {
+    if (nIndex < 0 || nIndex >= m_nSize)
+      return null;
+    return _get (nIndex);
+  }
+
+  @Override
+  public long getAsLong (@Nonnegative final int nIndex)
+  {
+    if (m_aLongs != null)
+      return m_aLongs[nIndex];
+    return IJsonArray.super.getAsLong (nIndex);
+  }
+
+  @Override
+  public double getAsDouble (@Nonnegative final int nIndex)
+  {
+    if (m_aDoubles != null)
+      return m_aDoubles[nIndex];
+    if (m_aLongs != null)
+      return m_aLongs[nIndex];
+    return IJsonArray.super.getAsDouble (nIndex);
+  }
+
+  @Nonnull
+  public Iterator <IJson> iterator ()
+  {
+    return new Iterator <IJson> ()
+    {
+      private int m_nIndex = 0;
+
+      public boolean hasNext ()
+      {
+        return m_nIndex < m_nSize;
+      }
+
+      public IJson next ()
+      {
+        if (m_nIndex >= m_nSize)
+          throw new NoSuchElementException ();
+        return _get (m_nIndex++);
+      }
+    };
+  }
+
+  @Override
+  @Nonnull
+  public IJsonArray add (@Nonnull final IJson aValue)
+  {
+    throw new UnsupportedOperationException ("This JSON array is immutable");
+  }
+
+  @Nonnull
+  public IJsonArray addAt (@CheckForSigned final int nIndex, @Nonnull final IJson aValue)
+  {
+    throw new UnsupportedOperationException ("This JSON array is immutable");
+  }
+
+  @Nonnull
+  public IJson removeAndReturnAtIndex (@Nonnegative final int nIndex)
+  {
+    throw new UnsupportedOperationException ("This JSON array is immutable");
+  }
+
+  @Nonnull
+  public EChange removeAtIndex (@Nonnegative final int nIndex)
+  {
+    throw new UnsupportedOperationException ("This JSON array is immutable");
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public CompactJsonArray getSubArray (@Nonnegative final int nStartIndex, @Nonnegative final int nEndIndex)
+  {
+    ValueEnforcer.isGE0 (nStartIndex, "StartIndex");
+    ValueEnforcer.isBetweenInclusive (nEndIndex, "EndIndex", nStartIndex, m_nSize);
+
+    final int nLength = nEndIndex - nStartIndex;
+    if (m_aLongs != null)
+      return new CompactJsonArray (null, Arrays.copyOfRange (m_aLongs, nStartIndex, nEndIndex), null, nLength);
+    if (m_aDoubles != null)
+      return new CompactJsonArray (null, null, Arrays.copyOfRange (m_aDoubles, nStartIndex, nEndIndex), nLength);
+    return new CompactJsonArray (Arrays.copyOfRange (m_aValues, nStartIndex, nEndIndex), null, null, nLength);
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <IJson> getAll ()
+  {
+    final ICommonsList <IJson> ret = new CommonsArrayList <> (m_nSize);
+    for (int i = 0; i < m_nSize; ++i)
+      ret.add (_get (i));
+    return ret;
+  }
+
+  @Override
+  public void forEach (@Nonnull final Consumer <? super IJson> aConsumer)
+  {
+    for (int i = 0; i < m_nSize; ++i)
+      aConsumer.accept (_get (i));
+  }
+
+  public void forEachByIndex (@Nonnull final ObjIntConsumer <? super IJson> aConsumer)
+  {
+    for (int i = 0; i < m_nSize; ++i)
+      aConsumer.accept (_get (i), i);
+  }
+
+  public boolean contains (@Nullable final IJson aValue)
+  {
+    if (aValue != null)
+      for (int i = 0; i < m_nSize; ++i)
+        if (_get (i).equals (aValue))
+          return true;
+    return false;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <IJson> getClonedValues ()
+  {
+    final ICommonsList <IJson> ret = new CommonsArrayList <> (m_nSize);
+    for (int i = 0; i < m_nSize; ++i)
+      ret.add (_get (i).getClone ());
+    return ret;
+  }
+
+  /**
+   * @return A modifiable deep copy of this array. Nested compact objects and
+   *         arrays are converted as well.
+   */
+  @Nonnull
+  public JsonArray getClone ()
+  {
+    return new JsonArray (getClonedValues ());
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final CompactJsonArray rhs = (CompactJsonArray) o;
+    if (m_nSize != rhs.m_nSize)
+      return false;
+    for (int i = 0; i < m_nSize; ++i)
+      if (!_get (i).equals (rhs._get (i)))
+        return false;
+    return true;
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    final HashCodeGenerator aHCG = new HashCodeGenerator (this);
+    for (int i = 0; i < m_nSize; ++i)
+      aHCG.append (_get (i));
+    return aHCG.getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).appendIfNotNull ("Values", m_aValues)
+                                       .appendIfNotNull ("Longs", m_aLongs)
+                                       .appendIfNotNull ("Doubles", m_aDoubles)
+                                       .getToString ();
+  }
+
+  /**
+   * Create a new array with arbitrary elements.
+   *
+   * @param aValues
+   *        The values. The array is not copied! May not be <code>null</code>.
+   * @return Never <code>null</code>.
+   */
+  @Nonnull
+  static CompactJsonArray createValues (@Nonnull final IJson [] aValues)
+  {
+    return new CompactJsonArray (aValues, null, null, aValues.length);
+  }
+
+  /**
+   * Create a new array with integral numbers only.
+   *
+   * @param aLongs
+   *        The values. The array is not copied! May not be <code>null</code>.
+   * @return Never <code>null</code>.
+   */
+  @Nonnull
+  static CompactJsonArray createLongs (@Nonnull final long [] aLongs)
+  {
+    return new CompactJsonArray (null, aLongs, null, aLongs.length);
+  }
+
+  /**
+   * Create a new array with decimal numbers only.
+   *
+   * @param aDoubles
+   *        The values. The array is not copied! May not be <code>null</code>.
+   * @return Never <code>null</code>.
+   */
+  @Nonnull
+  static CompactJsonArray createDoubles (@Nonnull final double [] aDoubles)
+  {
+    return new CompactJsonArray (null, null, aDoubles, aDoubles.length);
+  }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.compact;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * An immutable JSON number that is represented by a {@link BigInteger} or a
+ * {@link BigDecimal}. Only the textual representation is stored and the
+ * number object is created lazily on first access.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@ThreadSafe
+public final class CompactJsonBigNumber extends AbstractCompactJsonValue
+{
+  private final String m_sText;
+  private final boolean m_bIsInteger;
+  // Lazily created - benign race
+  private transient Number m_aValue;
+
+  /**
+   * Constructor
+   *
+   * @param sText
+   *        The JSON representation of the number. May neither be
+   *        <code>null</code> nor empty.
+   * @param bIsInteger
+   *        <code>true</code> if the value is a {@link BigInteger},
+   *        <code>false</code> if it is a {@link BigDecimal}.
+   */
+  public CompactJsonBigNumber (@Nonnull @Nonempty final String sText, final boolean bIsInteger)
+  {
+    ValueEnforcer.notEmpty (sText, "Text");
+    m_sText = sText;
+    m_bIsInteger = bIsInteger;
+  }
+
+  /**
+   * @return The textual representation as read from the source. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @Nonempty
+  public String getText ()
+  {
+    return m_sText;
+  }
+
+  @Nonnull
+  public Number getValue ()
+  {
+    Number ret = m_aValue;
+    if (ret == null)
+    {
+      // Same conversion as in the parser, so that e.g. "1e3" is handled
+      // correctly
+      final BigDecimal aBD = new BigDecimal (m_sText);
+      ret = m_bIsInteger ? aBD.toBigIntegerExact () : aBD;
+      m_aValue = ret;
+    }
+    return ret;
+  }
+
+  public boolean isIntValue ()
+  {
+    return m_bIsInteger;
+  }
+
+  public boolean isDecimalValue ()
+  {
+    return !m_bIsInteger;
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final CompactJsonBigNumber rhs = (CompactJsonBigNumber) o;
+    return getValue ().equals (rhs.getValue ());
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (getValue ()).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Text", m_sText).append ("IsInteger", m_bIsInteger).getToString ();
+  }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.compact;
+
+import java.math.BigDecimal;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.equals.EqualsHelper;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * An immutable decimal JSON number stored as a primitive <code>double</code>.
+ * {@link #getValue()} returns a {@link Double}.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@Immutable
+public final class CompactJsonDouble extends AbstractCompactJsonValue
+{
+  private final double m_dValue;
+
+  public CompactJsonDouble (final double dValue)
+  {
+    m_dValue = dValue;
+  }
+
+  @Nonnull
+  public Double getValue ()
+  {
+    return Double.valueOf (m_dValue);
+  }
+
+  public boolean isIntValue ()
+  {
+    return false;
+  }
+
+  public boolean isDecimalValue ()
+  {
+    return true;
+  }
+
+  @Override
+  public int getAsInt ()
+  {
+    return (int) m_dValue;
+  }
+
+  @Override
+  public long getAsLong ()
+  {
+    return (long) m_dValue;
+  }
+
+  @Override
+  public double getAsDouble ()
+  {
+    return m_dValue;
+  }
+
+  @Override
+  @Nonnull
+  public BigDecimal getAsBigDecimal ()
+  {
+    return BigDecimal.valueOf (m_dValue);
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final CompactJsonDouble rhs = (CompactJsonDouble) o;
+    return EqualsHelper.equals (m_dValue, rhs.m_dValue);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_dValue).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Value", m_dValue).getToString ();
+  }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.compact;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.json.IJsonValue;
+import com.helger.json.JsonValue;
+
+/**
+ * An immutable integral JSON number stored as a primitive <code>long</code>.
+ * {@link #getValue()} returns an {@link Integer} if the value fits into an
+ * int, a {@link Long} otherwise - just like {@link JsonValue} created by the
+ * parser.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@Immutable
+public final class CompactJsonLong extends AbstractCompactJsonValue
+{
+  private final long m_nValue;
+
+  private CompactJsonLong (final long nValue)
+  {
+    m_nValue = nValue;
+  }
+
+  @Nonnull
+  public Number getValue ()
+  {
+    if (m_nValue >= Integer.MIN_VALUE && m_nValue <= Integer.MAX_VALUE)
+      return Integer.valueOf ((int) m_nValue);
+    return Long.valueOf (m_nValue);
+  }
+
+  public boolean isIntValue ()
+  {
+    return true;
+  }
+
+  public boolean isDecimalValue ()
+  {
+    return false;
+  }
+
+  @Override
+  public int getAsInt ()
+  {
+    return (int) m_nValue;
+  }
+
+  @Override
+  public long getAsLong ()
+  {
+    return m_nValue;
+  }
+
+  @Override
+  public double getAsDouble ()
+  {
+    return m_nValue;
+  }
+
+  @Override
+  @Nonnull
+  public BigInteger getAsBigInteger ()
+  {
+    return BigInteger.valueOf (m_nValue);
+  }
+
+  @Override
+  @Nonnull
+  public BigDecimal getAsBigDecimal ()
+  {
+    return BigDecimal.valueOf (m_nValue);
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final CompactJsonLong rhs = (CompactJsonLong) o;
+    return m_nValue == rhs.m_nValue;
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_nValue).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Value", m_nValue).getToString ();
+  }
+
+  /**
+   * Create a compact integral value. Small values use the cached
+   * {@link JsonValue} instances.
+   *
+   * @param nValue
+   *        The value to use.
+   * @return Never <code>null</code>.
+   */
+  @Nonnull
+  public static IJsonValue create (final long nValue)
+  {
+    if (nValue >= Byte.MIN_VALUE && nValue <= Byte.MAX_VALUE)
+      return JsonValue.create ((int) nValue);
+    return new CompactJsonLong (nValue);
+  }
+}
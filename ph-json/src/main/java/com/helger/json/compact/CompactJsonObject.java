@@ -0,0 +1,260 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.compact;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.collection.impl.ICommonsOrderedSet;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.state.EChange;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.json.IJson;
+import com.helger.json.IJsonObject;
+import com.helger.json.JsonObject;
+
+/**
+ * An immutable, memory efficient implementation of {@link IJsonObject}. The
+ * keys are stored in a {@link CompactJsonObjectShape} that is shared between
+ * objects with the same keys and the values are stored in a flat array. All
+ * modifying methods throw an {@link UnsupportedOperationException}. Use
+ * {@link #getClone()} to get a modifiable {@link JsonObject}.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@Immutable
+public final class CompactJsonObject implements IJsonObject
+{
+  private final CompactJsonObjectShape m_aShape;
+  private final IJson [] m_aValues;
+
+  /**
+   * Constructor
+   *
+   * @param aShape
+   *        The shape to use. May not be <code>null</code>.
+   * @param aValues
+   *        The values matching the keys of the shape. The array is not copied!
+   *        May not be <code>null</code>.
+   */
+  CompactJsonObject (@Nonnull final CompactJsonObjectShape aShape, @Nonnull final IJson [] aValues)
+  {
+    m_aShape = aShape;
+    m_aValues = aValues;
+  }
+
+  /**
+   * @return The shape of this object. Never <code>null</code>.
+   */
+  @Nonnull
+  public CompactJsonObjectShape getShape ()
+  {
+    return m_aShape;
+  }
+
+  public boolean isArray ()
+  {
+    return false;
+  }
+
+  public boolean isObject ()
+  {
+    return true;
+  }
+
+  public boolean isValue ()
+  {
+    return false;
+  }
+
+  @Nonnegative
+  public int size ()
+  {
+    return m_aValues.length;
+  }
+
+  public boolean isEmpty ()
+  {
+    return m_aValues.length == 0;
+  }
+
+  @Nonnull
+  public Iterator <Map.Entry <String, IJson>> iterator ()
+  {
+    return new Iterator <Map.Entry <String, IJson>> ()
+    {
+      private int m_nIndex = 0;
+
+      public boolean hasNext ()
+      {
+        return m_nIndex < m_aValues.length;
+      }
+
+      public Map.Entry <String, IJson> next ()
+      {
+        if (m_nIndex >= m_aValues.length)
+          throw new NoSuchElementException ();
+        final int nIndex = m_nIndex++;
+        return new AbstractMap.SimpleImmutableEntry <> (m_aShape.getKeyAtIndex (nIndex), m_aValues[nIndex]);
+      }
+    };
+  }
+
+  @Nonnull
+  public IJsonObject add (@Nonnull final String sName, @Nonnull final IJson aValue)
+  {
+    throw new UnsupportedOperationException ("This JSON object is immutable");
+  }
+
+  @Nullable
+  public IJson removeKeyAndReturnValue (@Nullable final String sName)
+  {
+    throw new UnsupportedOperationException ("This JSON object is immutable");
+  }
+
+  @Nonnull
+  public EChange removeKey (@Nullable final String sName)
+  {
+    throw new UnsupportedOperationException ("This JSON object is immutable");
+  }
+
+  public boolean containsKey (@Nullable final String sName)
+  {
+    return m_aShape.getIndexOfKey (sName) >= 0;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsOrderedSet <String> keySet ()
+  {
+    return m_aShape.getAllKeys ();
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <IJson> values ()
+  {
+    return new CommonsArrayList <> (m_aValues);
+  }
+
+  @Nullable
+  public IJson get (@Nullable final String sName)
+  {
+    final int nIndex = m_aShape.getIndexOfKey (sName);
+    return nIndex < 0 ? null : m_aValues[nIndex];
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsOrderedMap <String, IJson> getAll ()
+  {
+    final ICommonsOrderedMap <String, IJson> ret = new CommonsLinkedHashMap <> (m_aValues.length);
+    for (int i = 0; i < m_aValues.length; ++i)
+      ret.put (m_aShape.getKeyAtIndex (i), m_aValues[i]);
+    return ret;
+  }
+
+  public void forEach (@Nonnull final BiConsumer <? super String, ? super IJson> aConsumer)
+  {
+    for (int i = 0; i < m_aValues.length; ++i)
+      aConsumer.accept (m_aShape.getKeyAtIndex (i), m_aValues[i]);
+  }
+
+  public boolean containsValue (@Nullable final IJson aValue)
+  {
+    if (aValue != null)
+      for (final IJson aCurValue : m_aValues)
+        if (aCurValue.equals (aValue))
+          return true;
+    return false;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsOrderedMap <String, IJson> getClonedValues ()
+  {
+    final ICommonsOrderedMap <String, IJson> ret = new CommonsLinkedHashMap <> (m_aValues.length);
+    for (int i = 0; i < m_aValues.length; ++i)
+      ret.put (m_aShape.getKeyAtIndex (i), m_aValues[i].getClone ());
+    return ret;
+  }
+
+  /**
+   * @return A modifiable deep copy of this object. Nested compact objects and
+   *         arrays are converted as well.
+   */
+  @Nonnull
+  public JsonObject getClone ()
+  {
+    return new JsonObject (getClonedValues ());
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final CompactJsonObject rhs = (CompactJsonObject) o;
+    if (m_aValues.length != rhs.m_aValues.length)
+      return false;
+    if (m_aShape == rhs.m_aShape)
+    {
+      // Shortcut for the same shape
+      for (int i = 0; i < m_aValues.length; ++i)
+        if (!m_aValues[i].equals (rhs.m_aValues[i]))
+          return false;
+      return true;
+    }
+    // Like Map.equals the order is not relevant
+    for (int i = 0; i < m_aValues.length; ++i)
+      if (!m_aValues[i].equals (rhs.get (m_aShape.getKeyAtIndex (i))))
+        return false;
+    return true;
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    // Order independent like Map.hashCode
+    int nHashCode = 0;
+    for (int i = 0; i < m_aValues.length; ++i)
+      nHashCode += m_aShape.getKeyAtIndex (i).hashCode () ^ m_aValues[i].hashCode ();
+    return new HashCodeGenerator (this).append (nHashCode).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("values", getAll ()).getToString ();
+  }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.compact;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.CommonsLinkedHashSet;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.ICommonsOrderedSet;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The ordered set of keys of a {@link CompactJsonObject}. Objects with the same
+ * keys in the same order share the same shape, so that the keys and the lookup
+ * index are stored only once.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@Immutable
+public final class CompactJsonObjectShape implements Serializable
+{
+  /** Shapes with more keys than this use a hash based lookup */
+  public static final int INDEX_THRESHOLD = 8;
+
+  private final String [] m_aKeys;
+  private final ICommonsMap <String, Integer> m_aIndex;
+
+  /**
+   * Constructor
+   *
+   * @param aKeys
+   *        The unique keys in order. The array is not copied! May not be
+   *        <code>null</code>.
+   */
+  CompactJsonObjectShape (@Nonnull final String [] aKeys)
+  {
+    m_aKeys = aKeys;
+    if (aKeys.length > INDEX_THRESHOLD)
+    {
+      m_aIndex = new CommonsHashMap <> (aKeys.length);
+      for (int i = 0; i < aKeys.length; ++i)
+        m_aIndex.put (aKeys[i], Integer.valueOf (i));
+    }
+    else
+      m_aIndex = null;
+  }
+
+  /**
+   * @return The number of keys. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getKeyCount ()
+  {
+    return m_aKeys.length;
+  }
+
+  /**
+   * @param nIndex
+   *        The 0-based index. Must be &ge; 0 and &lt; {@link #getKeyCount()}.
+   * @return The key at the specified index. Never <code>null</code>.
+   */
+  @Nonnull
+  public String getKeyAtIndex (@Nonnegative final int nIndex)
+  {
+    return m_aKeys[nIndex];
+  }
+
+  /**
+   * @param sKey
+   *        The key to search. May be <code>null</code>.
+   * @return The 0-based index of the key or -1 if it is not contained.
+   */
+  @CheckForSigned
+  public int getIndexOfKey (@Nullable final String sKey)
+  {
+    if (sKey == null)
+      return -1;
+
+    if (m_aIndex != null)
+    {
+      final Integer aIndex = m_aIndex.get (sKey);
+      return aIndex == null ? -1 : aIndex.intValue ();
+    }
+
+    for (int i = 0; i < m_aKeys.length; ++i)
+      if (m_aKeys[i].equals (sKey))
+        return i;
+    return -1;
+  }
+
+  /**
+   * @return A copy of all keys in order. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsOrderedSet <String> getAllKeys ()
+  {
+    return new CommonsLinkedHashSet <> (m_aKeys);
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final CompactJsonObjectShape rhs = (CompactJsonObjectShape) o;
+    return Arrays.equals (m_aKeys, rhs.m_aKeys);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return Arrays.hashCode (m_aKeys);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Keys", m_aKeys).getToString ();
+  }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.parser;
+
+/**
+ * The tokens returned by {@link JsonStreamReader#nextToken()}.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+public enum EJsonToken
+{
+  /** '{' */
+  START_OBJECT,
+  /** '}' */
+  END_OBJECT,
+  /** '[' */
+  START_ARRAY,
+  /** ']' */
+  END_ARRAY,
+  /** The name of an object member */
+  NAME,
+  /** A string value */
+  STRING,
+  /** A number value */
+  NUMBER,
+  /** The "true" keyword */
+  TRUE,
+  /** The "false" keyword */
+  FALSE,
+  /** The "null" keyword */
+  NULL;
+
+  /**
+   * @return <code>true</code> if this token starts a nested structure.
+   */
+  public boolean isStructStart ()
+  {
+    return this == START_OBJECT || this == START_ARRAY;
+  }
+
+  /**
+   * @return <code>true</code> if this token ends a nested structure.
+   */
+  public boolean isStructEnd ()
+  {
+    return this == END_OBJECT || this == END_ARRAY;
+  }
+
+  /**
+   * @return <code>true</code> if this token is a simple value (string, number,
+   *         boolean or null).
+   */
+  public boolean isScalarValue ()
+  {
+    return this == STRING || this == NUMBER || this == TRUE || this == FALSE || this == NULL;
+  }
+}
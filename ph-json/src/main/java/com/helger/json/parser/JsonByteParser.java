@@ -0,0 +1,1013 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.state.EEOI;
+import com.helger.commons.string.StringHelper;
+import com.helger.json.CJson;
+import com.helger.json.parser.handler.IJsonParserHandler;
+
+/**
+ * A variant of {@link JsonParser} that works directly on UTF-8 encoded bytes
+ * instead of a {@link java.io.Reader}. The input can be a byte array or any
+ * {@link ByteBuffer} (e.g. a memory mapped file). It invokes the same
+ * {@link IJsonParserHandler} callbacks and uses the same settings as
+ * {@link JsonParser}, but:
+ * <ul>
+ * <li>no charset decoding happens for the structural parts - Strings are only
+ * decoded when they are passed to the handler</li>
+ * <li>Strings without escape sequences are created directly from the source
+ * bytes in one step</li>
+ * <li>the original string content is only created if the handler requires it
+ * (see {@link IJsonParserHandler#isOriginalContentRequired()})</li>
+ * <li>short ASCII object names are interned per parser instance, so repeating
+ * keys share the same String instance</li>
+ * <li>line and column numbers are only calculated when an error occurs</li>
+ * </ul>
+ * A leading UTF-8 BOM is skipped.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@NotThreadSafe
+public class JsonByteParser
+{
+  /** The maximum length of object names that are interned */
+  public static final int KEY_CACHE_MAX_LENGTH = 32;
+  // Must be a power of 2
+  private static final int KEY_CACHE_SIZE = 512;
+  private static final char REPLACEMENT_CHAR = '\ufffd';
+
+  // Constructor parameters
+  private final ByteBuffer m_aBuffer;
+  private final byte [] m_aArray;
+  private final int m_nArrayOffset;
+  private final int m_nStart;
+  private final int m_nEnd;
+  private final IJsonParserHandler m_aCallback;
+  private final boolean m_bOriginalContentRequired;
+
+  // Settings
+  private boolean m_bTrackPosition = JsonParser.DEFAULT_TRACK_POSITION;
+  private int m_nTabSize = JsonParser.DEFAULT_TAB_SIZE;
+  private boolean m_bAlwaysUseBigNumber = JsonParser.DEFAULT_ALWAYS_USE_BIG_NUMBER;
+  private boolean m_bRequireStringQuotes = JsonParser.DEFAULT_REQUIRE_STRING_QUOTES;
+  private boolean m_bAllowSpecialCharsInStrings = JsonParser.DEFAULT_ALLOW_SPECIAL_CHARS_IN_STRING;
+  private boolean m_bCheckForEOI = JsonParser.DEFAULT_CHECK_FOR_EOI;
+
+  // Status variables
+  private int m_nPos;
+  // number and escaped string cache
+  private final JsonStringBuilder m_aSB = new JsonStringBuilder (256);
+  // object name cache
+  private final String [] m_aKeyCache = new String [KEY_CACHE_SIZE];
+  // Copy buffer for buffers without a backing array
+  private byte [] m_aCopyBuffer;
+
+  /**
+   * Constructor
+   *
+   * @param aBytes
+   *        The UTF-8 encoded JSON bytes. May not be <code>null</code>.
+   * @param aCallback
+   *        The handler to be invoked. May not be <code>null</code>.
+   */
+  public JsonByteParser (@Nonnull final byte [] aBytes, @Nonnull final IJsonParserHandler aCallback)
+  {
+    this (ByteBuffer.wrap (aBytes), aCallback);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aBytes
+   *        The UTF-8 encoded JSON bytes. May not be <code>null</code>.
+   * @param nOfs
+   *        The offset into the array. Must be &ge; 0.
+   * @param nLen
+   *        The number of bytes to parse. Must be &ge; 0.
+   * @param aCallback
+   *        The handler to be invoked. May not be <code>null</code>.
+   */
+  public JsonByteParser (@Nonnull final byte [] aBytes,
+                         @Nonnegative final int nOfs,
+                         @Nonnegative final int nLen,
+                         @Nonnull final IJsonParserHandler aCallback)
+  {
+    this (ByteBuffer.wrap (aBytes, nOfs, nLen), aCallback);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aBuffer
+   *        The buffer containing the UTF-8 encoded JSON bytes between position
+   *        and limit. The position of the passed buffer is not modified. May
+   *        not be <code>null</code>.
+   * @param aCallback
+   *        The handler to be invoked. May not be <code>null</code>.
+   */
+  public JsonByteParser (@Nonnull final ByteBuffer aBuffer, @Nonnull final IJsonParserHandler aCallback)
+  {
+    ValueEnforcer.notNull (aBuffer, "Buffer");
+    ValueEnforcer.notNull (aCallback, "Callback");
+    m_aBuffer = aBuffer.duplicate ();
+    if (m_aBuffer.hasArray ())
+    {
+      m_aArray = m_aBuffer.array ();
+      m_nArrayOffset = m_aBuffer.arrayOffset ();
+    }
+    else
+    {
+      m_aArray = null;
+      m_nArrayOffset = 0;
+    }
+    m_nEnd = m_aBuffer.limit ();
+    int nStart = m_aBuffer.position ();
+    // Skip UTF-8 BOM
+    if (m_nEnd - nStart >= 3 &&
+        _getByte (nStart) == 0xef &&
+        _getByte (nStart + 1) == 0xbb &&
+        _getByte (nStart + 2) == 0xbf)
+      nStart += 3;
+    m_nStart = nStart;
+    m_nPos = nStart;
+    m_aCallback = aCallback;
+    m_bOriginalContentRequired = aCallback.isOriginalContentRequired ();
+  }
+
+  /**
+   * @return <code>true</code> if position tracking is enabled,
+   *         <code>false</code> if not. If enabled, line and column numbers are
+   *         contained in thrown {@link JsonParseException}s.
+   */
+  public boolean isTrackPosition ()
+  {
+    return m_bTrackPosition;
+  }
+
+  @Nonnull
+  public JsonByteParser setTrackPosition (final boolean bTrackPosition)
+  {
+    m_bTrackPosition = bTrackPosition;
+    return this;
+  }
+
+  @Nonnegative
+  public int getTabSize ()
+  {
+    return m_nTabSize;
+  }
+
+  @Nonnull
+  public JsonByteParser setTabSize (@Nonnegative final int nTabSize)
+  {
+    ValueEnforcer.isGT0 (nTabSize, "TabSize");
+    m_nTabSize = nTabSize;
+    return this;
+  }
+
+  public boolean isAlwaysUseBigNumber ()
+  {
+    return m_bAlwaysUseBigNumber;
+  }
+
+  @Nonnull
+  public JsonByteParser setAlwaysUseBigNumber (final boolean bAlwaysUseBigNumber)
+  {
+    m_bAlwaysUseBigNumber = bAlwaysUseBigNumber;
+    return this;
+  }
+
+  public boolean isRequireStringQuotes ()
+  {
+    return m_bRequireStringQuotes;
+  }
+
+  @Nonnull
+  public JsonByteParser setRequireStringQuotes (final boolean bRequireStringQuotes)
+  {
+    m_bRequireStringQuotes = bRequireStringQuotes;
+    return this;
+  }
+
+  public boolean isAllowSpecialCharsInStrings ()
+  {
+    return m_bAllowSpecialCharsInStrings;
+  }
+
+  @Nonnull
+  public JsonByteParser setAllowSpecialCharsInStrings (final boolean bAllowSpecialCharsInStrings)
+  {
+    m_bAllowSpecialCharsInStrings = bAllowSpecialCharsInStrings;
+    return this;
+  }
+
+  public boolean isCheckForEOI ()
+  {
+    return m_bCheckForEOI;
+  }
+
+  @Nonnull
+  public JsonByteParser setCheckForEOI (final boolean bCheckForEOI)
+  {
+    m_bCheckForEOI = bCheckForEOI;
+    return this;
+  }
+
+  /**
+   * @return The number of bytes consumed so far, excluding a potential BOM.
+   */
+  @Nonnegative
+  public int getConsumedByteCount ()
+  {
+    return m_nPos - m_nStart;
+  }
+
+  private int _getByte (final int nIndex)
+  {
+    if (m_aArray != null)
+      return m_aArray[m_nArrayOffset + nIndex] & 0xff;
+    return m_aBuffer.get (nIndex) & 0xff;
+  }
+
+  private int _readChar ()
+  {
+    if (m_nPos >= m_nEnd)
+      return JsonParser.EOI;
+    return _getByte (m_nPos++);
+  }
+
+  private void _backupChar (final int c)
+  {
+    if (c != JsonParser.EOI)
+      m_nPos--;
+  }
+
+  @Nonnull
+  private String _createString (final int nStart, final int nEnd, @Nonnull final Charset aCharset)
+  {
+    final int nLen = nEnd - nStart;
+    if (m_aArray != null)
+      return new String (m_aArray, m_nArrayOffset + nStart, nLen, aCharset);
+
+    if (m_aCopyBuffer == null || m_aCopyBuffer.length < nLen)
+      m_aCopyBuffer = new byte [Math.max (nLen, 256)];
+    // Bulk copy - the buffer is a private duplicate and otherwise only
+    // accessed by index, so the position can be modified
+    m_aBuffer.position (nStart);
+    m_aBuffer.get (m_aCopyBuffer, 0, nLen);
+    return new String (m_aCopyBuffer, 0, nLen, aCharset);
+  }
+
+  @Nonnull
+  private static String _getPrintableChar (final int c)
+  {
+    if (c == JsonParser.EOI)
+      return "<EOI>";
+    if (c <= 32)
+      return "0x" + StringHelper.getHexStringLeadingZero (c, 2);
+    if (c >= 127)
+      return "0x" + StringHelper.getHexStringLeadingZero (c, 4);
+    return "'" + (char) c + "'";
+  }
+
+  @Nonnull
+  private IJsonParsePosition _getParsePos (final int nIndex)
+  {
+    // Calculate the position only when needed
+    final JsonParsePosition ret = new JsonParsePosition ();
+    for (int i = m_nStart; i < nIndex; ++i)
+    {
+      final int c = _getByte (i);
+      // Ignore UTF-8 continuation bytes
+      if ((c & 0xc0) != 0x80)
+        ret.updatePosition (c, m_nTabSize);
+    }
+    return ret;
+  }
+
+  @Nonnull
+  private JsonParseException _parseEx (final int nTokenStart, @Nonnull final String sMsg)
+  {
+    if (m_bTrackPosition)
+    {
+      // The token start position includes the first char of the token
+      return new JsonParseException (_getParsePos (Math.min (nTokenStart + 1, m_nEnd)), _getParsePos (m_nPos), sMsg);
+    }
+
+    return new JsonParseException (sMsg);
+  }
+
+  private void _readComment () throws JsonParseException
+  {
+    final int nStartPos = m_nPos;
+
+    while (true)
+    {
+      final int c1 = _readChar ();
+      if (c1 == '*')
+      {
+        // End of comment?
+        final int c2 = _readChar ();
+        if (c2 == '/')
+        {
+          // End of comment!
+          if (m_bOriginalContentRequired)
+            m_aCallback.onComment (_createString (nStartPos, m_nPos - 2, StandardCharsets.UTF_8));
+          return;
+        }
+        if (c2 == JsonParser.EOI)
+          throw _parseEx (nStartPos, "Unclosed JSON comment at end of input");
+
+        // Backup the "/" try
+        _backupChar (c2);
+      }
+
+      if (c1 == JsonParser.EOI)
+        throw _parseEx (nStartPos, "Unclosed JSON comment at end of input");
+    }
+  }
+
+  private void _skipSpaces () throws JsonParseException
+  {
+    int nSpacesStart = m_nPos;
+
+    while (true)
+    {
+      final int c = _readChar ();
+
+      // Check for comment
+      if (c == '/')
+      {
+        final int c2 = _readChar ();
+        if (c2 == '*')
+        {
+          // Notify on previous whitespaces
+          if (m_bOriginalContentRequired && m_nPos - 2 > nSpacesStart)
+            m_aCallback.onWhitespace (_createString (nSpacesStart, m_nPos - 2, StandardCharsets.ISO_8859_1));
+
+          // start comment
+          _readComment ();
+
+          // Finished comment - check for next whitespace
+          nSpacesStart = m_nPos;
+          continue;
+        }
+        // backup c2 as it is no comment
+        _backupChar (c2);
+      }
+
+      if (c != ' ' && c != '\t' && c != '\r' && c != '\n' && c != '\f')
+      {
+        // End of whitespaces reached
+        _backupChar (c);
+
+        if (m_bOriginalContentRequired && m_nPos > nSpacesStart)
+          m_aCallback.onWhitespace (_createString (nSpacesStart, m_nPos, StandardCharsets.ISO_8859_1));
+        return;
+      }
+    }
+  }
+
+  private void _checkHexChar (final int nTokenStart) throws JsonParseException
+  {
+    final int c = _readChar ();
+    if (StringHelper.getHexValue ((char) c) == -1)
+      throw _parseEx (nTokenStart, "Invalid hex character " + _getPrintableChar (c) + " provided!");
+  }
+
+  private void _checkStringEscapeChar (final int nTokenStart) throws JsonParseException
+  {
+    final int c2 = _readChar ();
+    switch (c2)
+    {
+      case '"':
+      case '/':
+      case '\\':
+      case 'b':
+      case 'f':
+      case 'n':
+      case 'r':
+      case 't':
+        break;
+      case 'u':
+        _checkHexChar (nTokenStart);
+        _checkHexChar (nTokenStart);
+        _checkHexChar (nTokenStart);
+        _checkHexChar (nTokenStart);
+        break;
+      default:
+        throw _parseEx (nTokenStart, "Invalid JSON String escape character " + _getPrintableChar (c2));
+    }
+  }
+
+  private static boolean _isUnquotedStringValidChar (final int c)
+  {
+    return (c >= 0x21 && c <= 0x7a) && c != ':';
+  }
+
+  private int _getHexValue (final int nIndex)
+  {
+    return StringHelper.getHexValue ((char) _getByte (nIndex));
+  }
+
+  private static boolean _isContinuationByte (final int c)
+  {
+    return (c & 0xc0) == 0x80;
+  }
+
+  /**
+   * Decode a UTF-8 string containing escape sequences. The escape sequences
+   * were already checked while scanning the string.
+   *
+   * @param nStart
+   *        Start index (inclusive)
+   * @param nEnd
+   *        End index (exclusive)
+   * @return The unescaped String
+   */
+  @Nonnull
+  private String _getUnescapedString (final int nStart, final int nEnd)
+  {
+    final JsonStringBuilder aSB = m_aSB.reset ();
+    int i = nStart;
+    while (i < nEnd)
+    {
+      final int c = _getByte (i);
+      if (c == '\\')
+      {
+        final int c2 = _getByte (i + 1);
+        i += 2;
+        switch (c2)
+        {
+          case 'b':
+            aSB.append ('\b');
+            break;
+          case 'f':
+            aSB.append ('\f');
+            break;
+          case 'n':
+            aSB.append ('\n');
+            break;
+          case 'r':
+            aSB.append ('\r');
+            break;
+          case 't':
+            aSB.append ('\t');
+            break;
+          case 'u':
+            aSB.append ((char) (_getHexValue (i) << 12 |
+                                _getHexValue (i + 1) << 8 |
+                                _getHexValue (i + 2) << 4 |
+                                _getHexValue (i + 3)));
+            i += 4;
+            break;
+          default:
+            // '"', '/' or '\\'
+            aSB.append ((char) c2);
+            break;
+        }
+      }
+      else
+        if (c < 0x80)
+        {
+          aSB.append ((char) c);
+          i++;
+        }
+        else
+        {
+          // Multi byte UTF-8 sequence - invalid sequences are replaced like in
+          // the JDK decoder
+          int nCodePoint = -1;
+          int nSeqLen = 1;
+          if (c >= 0xc2 && c <= 0xdf)
+          {
+            if (i + 1 < nEnd && _isContinuationByte (_getByte (i + 1)))
+            {
+              nCodePoint = (c & 0x1f) << 6 | (_getByte (i + 1) & 0x3f);
+              nSeqLen = 2;
+            }
+          }
+          else
+            if (c >= 0xe0 && c <= 0xef)
+            {
+              if (i + 2 < nEnd && _isContinuationByte (_getByte (i + 1)) && _isContinuationByte (_getByte (i + 2)))
+              {
+                final int n = (c & 0x0f) << 12 | (_getByte (i + 1) & 0x3f) << 6 | (_getByte (i + 2) & 0x3f);
+                if (n >= 0x800 && !Character.isSurrogate ((char) n))
+                {
+                  nCodePoint = n;
+                  nSeqLen = 3;
+                }
+              }
+            }
+            else
+              if (c >= 0xf0 && c <= 0xf4)
+              {
+                if (i + 3 < nEnd &&
+                    _isContinuationByte (_getByte (i + 1)) &&
+                    _isContinuationByte (_getByte (i + 2)) &&
+                    _isContinuationByte (_getByte (i + 3)))
+                {
+                  final int n = (c & 0x07) << 18 |
+                                (_getByte (i + 1) & 0x3f) << 12 |
+                                (_getByte (i + 2) & 0x3f) << 6 |
+                                (_getByte (i + 3) & 0x3f);
+                  if (n >= Character.MIN_SUPPLEMENTARY_CODE_POINT && n <= Character.MAX_CODE_POINT)
+                  {
+                    nCodePoint = n;
+                    nSeqLen = 4;
+                  }
+                }
+              }
+
+          if (nCodePoint < 0)
+            aSB.append (REPLACEMENT_CHAR);
+          else
+            if (nCodePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT)
+            {
+              aSB.append (Character.highSurrogate (nCodePoint));
+              aSB.append (Character.lowSurrogate (nCodePoint));
+            }
+            else
+              aSB.append ((char) nCodePoint);
+          i += nSeqLen;
+        }
+    }
+    return aSB.getAsString ();
+  }
+
+  /**
+   * Get the ASCII object name from the cache or create and cache it.
+   *
+   * @param nStart
+   *        Start index (inclusive)
+   * @param nEnd
+   *        End index (exclusive)
+   * @return The object name. Never <code>null</code>.
+   */
+  @Nonnull
+  private String _getCachedName (final int nStart, final int nEnd)
+  {
+    final int nLen = nEnd - nStart;
+    int nHash = 0;
+    for (int i = nStart; i < nEnd; ++i)
+      nHash = 31 * nHash + _getByte (i);
+    final int nSlot = (nHash ^ (nHash >>> 16)) & (KEY_CACHE_SIZE - 1);
+
+    final String sCached = m_aKeyCache[nSlot];
+    if (sCached != null && sCached.length () == nLen)
+    {
+      boolean bMatch = true;
+      for (int i = 0; i < nLen; ++i)
+        if (sCached.charAt (i) != _getByte (nStart + i))
+        {
+          bMatch = false;
+          break;
+        }
+      if (bMatch)
+        return sCached;
+    }
+
+    final String ret = _createString (nStart, nEnd, StandardCharsets.ISO_8859_1);
+    m_aKeyCache[nSlot] = ret;
+    return ret;
+  }
+
+  private static boolean _isSpecialStringChar (final int c)
+  {
+    return c == '\b' || c == '\f' || c == '\n' || c == '\r' || c == '\t';
+  }
+
+  /**
+   * Read a string and invoke the callback.
+   *
+   * @param cQuoteChar
+   *        The expected quote char
+   * @param bIsObjectName
+   *        <code>true</code> if it is an object name, <code>false</code> if it
+   *        is a string value
+   * @throws JsonParseException
+   *         in case of a parsing error
+   */
+  private void _readString (final int cQuoteChar, final boolean bIsObjectName) throws JsonParseException
+  {
+    final int nTokenStart = m_nPos;
+
+    final int cStart = _readChar ();
+    final boolean bStringIsQuoted = cStart == cQuoteChar;
+    if (!bStringIsQuoted)
+    {
+      if (m_bRequireStringQuotes)
+        throw _parseEx (nTokenStart,
+                        "Invalid JSON String start character " +
+                                     _getPrintableChar (cStart) +
+                                     " - expected " +
+                                     _getPrintableChar (cQuoteChar));
+      _backupChar (cStart);
+    }
+
+    // Scan the string first
+    final int nContentStart = m_nPos;
+    final int nContentEnd;
+    boolean bHasEscapes = false;
+    boolean bIsASCII = true;
+    outer: while (true)
+    {
+      final int c = _readChar ();
+      switch (c)
+      {
+        case '\\':
+          // Escape char
+          _checkStringEscapeChar (nTokenStart);
+          bHasEscapes = true;
+          break;
+        case JsonParser.EOI:
+          throw _parseEx (nTokenStart, "Unclosed JSON String at end of input");
+        default:
+          if (c < 0x20 && _isSpecialStringChar (c) && !m_bAllowSpecialCharsInStrings)
+            throw _parseEx (nTokenStart, "Invalid JSON String character " + _getPrintableChar (c));
+          if (bStringIsQuoted)
+          {
+            if (c == cQuoteChar)
+            {
+              // End of quoted string
+              nContentEnd = m_nPos - 1;
+              break outer;
+            }
+          }
+          else
+          {
+            if (!_isUnquotedStringValidChar (c))
+            {
+              // End of unquoted string
+              _backupChar (c);
+              nContentEnd = m_nPos;
+              if (nContentEnd == nContentStart)
+                throw _parseEx (nTokenStart, "Empty unquoted JSON String encountered");
+              break outer;
+            }
+          }
+          if (c >= 0x80)
+            bIsASCII = false;
+          break;
+      }
+    }
+
+    // Create the Strings
+    final String sUnescaped;
+    if (bHasEscapes)
+      sUnescaped = _getUnescapedString (nContentStart, nContentEnd);
+    else
+      if (bIsASCII)
+      {
+        if (bIsObjectName && nContentEnd - nContentStart <= KEY_CACHE_MAX_LENGTH)
+          sUnescaped = _getCachedName (nContentStart, nContentEnd);
+        else
+          sUnescaped = _createString (nContentStart, nContentEnd, StandardCharsets.ISO_8859_1);
+      }
+      else
+        sUnescaped = _createString (nContentStart, nContentEnd, StandardCharsets.UTF_8);
+
+    final String sOriginal;
+    if (m_bOriginalContentRequired)
+    {
+      // The quote char is part of the original string, even if unquoted
+      final String sContent = bHasEscapes ? _createString (nContentStart,
+                                                           nContentEnd,
+                                                           StandardCharsets.UTF_8) : sUnescaped;
+      sOriginal = (char) cQuoteChar + sContent + (char) cQuoteChar;
+    }
+    else
+      sOriginal = sUnescaped;
+
+    if (bIsObjectName)
+      m_aCallback.onObjectName (sOriginal, sUnescaped);
+    else
+      m_aCallback.onString (sOriginal, sUnescaped);
+  }
+
+  private void _readNumber () throws JsonParseException
+  {
+    final int nTokenStart = m_nPos;
+
+    final JsonStringBuilder aStrNumber = m_aSB.reset ();
+    int c = _readChar ();
+    if (c == '-')
+    {
+      // Leading minus?
+      // Note: leading plus is not allowed
+      aStrNumber.append ((char) c);
+      c = _readChar ();
+    }
+
+    if (c == '0')
+    {
+      // No additional numbers allowed
+      aStrNumber.append ((char) c);
+      c = _readChar ();
+    }
+    else
+      if (c >= '1' && c <= '9')
+      {
+        aStrNumber.append ((char) c);
+        c = _readChar ();
+        while (c >= '0' && c <= '9')
+        {
+          aStrNumber.append ((char) c);
+          c = _readChar ();
+        }
+      }
+      else
+        throw _parseEx (nTokenStart, "Invalid JSON Number start character " + _getPrintableChar (c));
+
+    final boolean bIsDecimal = c == '.';
+    if (bIsDecimal)
+    {
+      // read decimal part
+      aStrNumber.append ((char) c);
+      c = _readChar ();
+      boolean bDecimalDigits = false;
+      while (c >= '0' && c <= '9')
+      {
+        aStrNumber.append ((char) c);
+        bDecimalDigits = true;
+
+        c = _readChar ();
+      }
+      if (!bDecimalDigits)
+        throw _parseEx (nTokenStart,
+                        "Missing digits after decimal point in JSON Number '" + aStrNumber.getAsString () + "'");
+    }
+
+    final boolean bHasExponent = c == 'e' || c == 'E';
+    boolean bHasPositiveExponent = false;
+    if (bHasExponent)
+    {
+      // read exponent
+      aStrNumber.append ((char) c);
+      c = _readChar ();
+
+      // Any char other than "-" means the exponent is positive
+      bHasPositiveExponent = c != '-';
+
+      if (c == '+' || c == '-')
+      {
+        aStrNumber.append ((char) c);
+        c = _readChar ();
+      }
+
+      boolean bExponentDigits = false;
+      while (c >= '0' && c <= '9')
+      {
+        aStrNumber.append ((char) c);
+        bExponentDigits = true;
+
+        c = _readChar ();
+      }
+      if (!bExponentDigits)
+        throw _parseEx (nTokenStart,
+                        "Missing digits after exponent sign in JSON Number '" + aStrNumber.getAsString () + "'");
+    }
+
+    // Backup last (unused) char
+    _backupChar (c);
+
+    final Number aNum;
+    try
+    {
+      aNum = JsonParser.getAsNumber (bIsDecimal, bHasExponent, bHasPositiveExponent, m_bAlwaysUseBigNumber, aStrNumber);
+    }
+    catch (final NumberFormatException ex)
+    {
+      throw _parseEx (nTokenStart, "Invalid JSON Number '" + aStrNumber.getAsString () + "'");
+    }
+    m_aCallback.onNumber (aStrNumber.getAsString (), aNum);
+  }
+
+  private void _expect (@Nonnull final String sKeyword) throws JsonParseException
+  {
+    final int nTokenStart = m_nPos;
+
+    for (final char cExpected : sKeyword.toCharArray ())
+    {
+      final int c = _readChar ();
+      if (c != cExpected)
+        throw _parseEx (nTokenStart,
+                        "Expected " +
+                                     _getPrintableChar (cExpected) +
+                                     " but got " +
+                                     _getPrintableChar (c) +
+                                     " as part of JSON keyword \"" +
+                                     sKeyword +
+                                     "\"");
+    }
+  }
+
+  private void _readArray () throws JsonParseException
+  {
+    final int nTokenStart = m_nPos;
+
+    m_aCallback.onArrayStart ();
+    int nIndex = 0;
+    while (true)
+    {
+      _skipSpaces ();
+
+      // Check for empty array
+      int c = _readChar ();
+      if (c == CJson.ARRAY_END)
+      {
+        if (nIndex != 0)
+          throw _parseEx (nTokenStart, "Expected another element in JSON Array");
+        break;
+      }
+      _backupChar (c);
+
+      _readValue ();
+
+      _skipSpaces ();
+
+      c = _readChar ();
+      if (c == CJson.ITEM_SEPARATOR)
+      {
+        ++nIndex;
+        m_aCallback.onArrayNextElement ();
+        continue;
+      }
+      if (c == CJson.ARRAY_END)
+        break;
+      throw _parseEx (nTokenStart, "Unexpected character " + _getPrintableChar (c) + " in JSON array");
+    }
+    m_aCallback.onArrayEnd ();
+  }
+
+  private void _readObject () throws JsonParseException
+  {
+    final int nTokenStart = m_nPos;
+
+    m_aCallback.onObjectStart ();
+    int nIndex = 0;
+    while (true)
+    {
+      _skipSpaces ();
+
+      // Check for empty object
+      int c = _readChar ();
+      if (c == CJson.OBJECT_END)
+      {
+        if (nIndex != 0)
+          throw _parseEx (nTokenStart, "Expected another element in JSON Object");
+        break;
+      }
+      // Default is double quotes
+      final int cQuoteChar = c == '\'' ? '\'' : '"';
+      _backupChar (c);
+
+      _readString (cQuoteChar, true);
+
+      _skipSpaces ();
+
+      c = _readChar ();
+      if (c != CJson.NAME_VALUE_SEPARATOR)
+        throw _parseEx (nTokenStart, "Expected colon character in JSON Object but found " + _getPrintableChar (c));
+      m_aCallback.onObjectColon ();
+
+      _skipSpaces ();
+
+      _readValue ();
+
+      _skipSpaces ();
+
+      c = _readChar ();
+      if (c == CJson.ITEM_SEPARATOR)
+      {
+        // element following
+        ++nIndex;
+        m_aCallback.onObjectNextElement ();
+      }
+      else
+      {
+        if (c == CJson.OBJECT_END)
+        {
+          // End of object
+          break;
+        }
+
+        // Syntax error
+        throw _parseEx (nTokenStart, "Unexpected character " + _getPrintableChar (c) + " in JSON Object");
+      }
+    }
+    m_aCallback.onObjectEnd ();
+  }
+
+  @Nonnull
+  private EEOI _readValue () throws JsonParseException
+  {
+    _skipSpaces ();
+
+    final int nTokenStart = m_nPos;
+
+    final int cFirst = _readChar ();
+    switch (cFirst)
+    {
+      case '\'':
+      case '"':
+        _backupChar (cFirst);
+        _readString (cFirst, false);
+        break;
+      case '-':
+      case '0':
+      case '1':
+      case '2':
+      case '3':
+      case '4':
+      case '5':
+      case '6':
+      case '7':
+      case '8':
+      case '9':
+        _backupChar (cFirst);
+        _readNumber ();
+        break;
+      case 't':
+        _backupChar (cFirst);
+        _expect (CJson.KEYWORD_TRUE);
+        m_aCallback.onTrue ();
+        break;
+      case 'f':
+        _backupChar (cFirst);
+        _expect (CJson.KEYWORD_FALSE);
+        m_aCallback.onFalse ();
+        break;
+      case 'n':
+        _backupChar (cFirst);
+        _expect (CJson.KEYWORD_NULL);
+        m_aCallback.onNull ();
+        break;
+      case CJson.ARRAY_START:
+        _readArray ();
+        break;
+      case CJson.OBJECT_START:
+        _readObject ();
+        break;
+      case JsonParser.EOI:
+        return EEOI.EOI;
+      default:
+        throw _parseEx (nTokenStart, "Syntax error in JSON. Found " + _getPrintableChar (cFirst));
+    }
+    return EEOI.NOT_EOI;
+  }
+
+  /**
+   * Main parsing routine. If {@link #isCheckForEOI()} is disabled, this method
+   * can be called multiple times to read multiple values from the same input.
+   *
+   * @return {@link EEOI#NOT_EOI} if something was read, {@link EEOI#EOI} if
+   *         there was an EOI
+   * @throws JsonParseException
+   *         In case a parse error occurs.
+   */
+  @Nonnull
+  public EEOI parse () throws JsonParseException
+  {
+    final EEOI eEOI = _readValue ();
+    if (eEOI.isNotEndOfInput () && m_bCheckForEOI)
+    {
+      // Check for trailing whitespaces
+      _skipSpaces ();
+
+      final int nTokenStart = m_nPos;
+
+      // Check for expected end of input
+      final int c = _readChar ();
+      if (c != JsonParser.EOI)
+        throw _parseEx (nTokenStart, "Invalid character " + _getPrintableChar (c) + " after JSON root object");
+    }
+    return eEOI;
+  }
+}
@@ -42,7 +42,7 @@ import com.helger.json.parser.handler.IJsonParserHandler;
 @NotThreadSafe
 public class JsonParser
 {
-  private enum EStringQuoteMode
+  enum EStringQuoteMode
   {
     DOUBLE ('"'),
     SINGLE ('\'');
@@ -83,6 +83,7 @@ public class JsonParser
   // Constructor parameters
   private final NonBlockingPushbackReader m_aReader;
   private final IJsonParserHandler m_aCallback;
+  private final boolean m_bOriginalContentRequired;
 
   // Settings
   private boolean m_bTrackPosition = DEFAULT_TRACK_POSITION;
@@ -99,6 +100,10 @@ public class JsonParser
   // string reading cache
   private final JsonStringBuilder m_aSB1 = new JsonStringBuilder (256);
   private final JsonStringBuilder m_aSB2 = new JsonStringBuilder (256);
+  // Properties of the last number read
+  private boolean m_bNumberIsDecimal;
+  private boolean m_bNumberHasExponent;
+  private boolean m_bNumberHasPositiveExponent;
 
   public JsonParser (@Nonnull @WillNotClose final Reader aReader, @Nonnull final IJsonParserHandler aCallback)
   {
@@ -107,6 +112,7 @@ public class JsonParser
     // Maximum of 2 pushbacks
     m_aReader = new NonBlockingPushbackReader (aReader, MAX_PUSH_BACK_CHARS);
     m_aCallback = aCallback;
+    m_bOriginalContentRequired = aCallback.isOriginalContentRequired ();
   }
 
   /**
@@ -233,7 +239,7 @@ public class JsonParser
    *
    * @return the char read or {@link #EOI} (=-1) in case of EOF
    */
-  private int _readChar ()
+  int _readChar ()
   {
     try
     {
@@ -266,7 +272,7 @@ public class JsonParser
    * @throws IllegalStateException
    *         in case of error
    */
-  private void _backupChar (final int c)
+  void _backupChar (final int c)
   {
     if (c != EOI)
       try
@@ -281,7 +287,7 @@ public class JsonParser
   }
 
   @Nonnull
-  private static String _getPrintableChar (final int c)
+  static String _getPrintableChar (final int c)
   {
     if (c == EOI)
       return "<EOI>";
@@ -293,7 +299,7 @@ public class JsonParser
   }
 
   @Nonnull
-  private JsonParseException _parseEx (@Nullable final IJsonParsePosition aTokenStart, @Nonnull final String sMsg)
+  JsonParseException _parseEx (@Nullable final IJsonParsePosition aTokenStart, @Nonnull final String sMsg)
   {
     if (m_bTrackPosition)
       return new JsonParseException (aTokenStart, m_aParsePos, sMsg);
@@ -302,7 +308,7 @@ public class JsonParser
   }
 
   @Nullable
-  private IJsonParsePosition _getCurrentParsePos ()
+  IJsonParsePosition _getCurrentParsePos ()
   {
     return m_bTrackPosition ? m_aParsePos.getClone () : null;
   }
@@ -323,7 +329,8 @@ public class JsonParser
         if (c2 == '/')
         {
           // End of comment!
-          m_aCallback.onComment (aStrComment.getAsString ());
+          if (m_bOriginalContentRequired)
+            m_aCallback.onComment (aStrComment.getAsString ());
           return;
         }
         if (c2 == EOI)
@@ -336,11 +343,12 @@ public class JsonParser
       if (c1 == EOI)
         throw _parseEx (aStartPos, "Unclosed JSON comment at end of input");
 
-      aStrComment.append ((char) c1);
+      if (m_bOriginalContentRequired)
+        aStrComment.append ((char) c1);
     }
   }
 
-  private void _skipSpaces () throws JsonParseException
+  void _skipSpaces () throws JsonParseException
   {
     final JsonStringBuilder aStrSpaces = m_aSB1.reset ();
 
@@ -384,7 +392,8 @@ public class JsonParser
       }
 
       // It's a whitespace character
-      aStrSpaces.append ((char) c);
+      if (m_bOriginalContentRequired)
+        aStrSpaces.append ((char) c);
     }
   }
 
@@ -410,7 +419,8 @@ public class JsonParser
                                       @Nonnull final JsonStringBuilder aStrStringUnescapedContent) throws JsonParseException
   {
     final int c2 = _readChar ();
-    aStrStringOriginalContent.append ((char) c2);
+    if (m_bOriginalContentRequired)
+      aStrStringOriginalContent.append ((char) c2);
     if (c2 == '"' || c2 == '/' || c2 == '\\')
       aStrStringUnescapedContent.append ((char) c2);
     else
@@ -439,10 +449,13 @@ public class JsonParser
                   final int n2 = _getHexValue (aStartPos, ch2);
                   final int ch3 = _readChar ();
                   final int n3 = _getHexValue (aStartPos, ch3);
-                  aStrStringOriginalContent.append ((char) ch0);
-                  aStrStringOriginalContent.append ((char) ch1);
-                  aStrStringOriginalContent.append ((char) ch2);
-                  aStrStringOriginalContent.append ((char) ch3);
+                  if (m_bOriginalContentRequired)
+                  {
+                    aStrStringOriginalContent.append ((char) ch0);
+                    aStrStringOriginalContent.append ((char) ch1);
+                    aStrStringOriginalContent.append ((char) ch2);
+                    aStrStringOriginalContent.append ((char) ch3);
+                  }
 
                   final int nUnescapedChar = (n0 & 0xff) << 12 | (n1 & 0xff) << 8 | (n2 & 0xff) << 4 | (n3 & 0xff);
                   aStrStringUnescapedContent.append ((char) nUnescapedChar);
@@ -478,6 +491,27 @@ public class JsonParser
    */
   @Nonnull
   private TwoStrings _readString (@Nonnull final EStringQuoteMode eQuoteMode) throws JsonParseException
+  {
+    _readStringContent (eQuoteMode);
+
+    final String sUnescaped = m_aSB2.getAsString ();
+    if (!m_bOriginalContentRequired)
+    {
+      // Avoid creating the second String
+      return new TwoStrings (sUnescaped, sUnescaped);
+    }
+    return new TwoStrings (m_aSB1.getAsString (), sUnescaped);
+  }
+
+  /**
+   * Read a string without creating any String object. Afterwards the unescaped
+   * content is available via {@link #_getStringContent()}.
+   *
+   * @param eQuoteMode
+   *        The quoting mode used. May not be <code>null</code>.
+   * @throws JsonParseException
+   */
+  void _readStringContent (@Nonnull final EStringQuoteMode eQuoteMode) throws JsonParseException
   {
     final IJsonParsePosition aStartPos = _getCurrentParsePos ();
     final JsonStringBuilder aStrStringOriginalContent = m_aSB1.reset ();
@@ -507,7 +541,8 @@ public class JsonParser
     outer: while (true)
     {
       final int c = _readChar ();
-      aStrStringOriginalContent.append ((char) c);
+      if (m_bOriginalContentRequired)
+        aStrStringOriginalContent.append ((char) c);
 
       switch (c)
       {
@@ -545,7 +580,8 @@ public class JsonParser
 
               // Remove from original content
               _backupChar (c);
-              aStrStringOriginalContent.backup (1);
+              if (m_bOriginalContentRequired)
+                aStrStringOriginalContent.backup (1);
 
               if (aStrStringUnescapedContent.getLength () == 0)
                 throw _parseEx (aStartPos, "Empty unquoted JSON String encountered");
@@ -561,8 +597,17 @@ public class JsonParser
           break;
       }
     }
+  }
 
-    return new TwoStrings (aStrStringOriginalContent.getAsString (), aStrStringUnescapedContent.getAsString ());
+  /**
+   * @return The unescaped content of the last string read by
+   *         {@link #_readStringContent(EStringQuoteMode)}. Only valid until
+   *         the next read operation.
+   */
+  @Nonnull
+  JsonStringBuilder _getStringContent ()
+  {
+    return m_aSB2;
   }
 
   @Nonnull
@@ -643,44 +688,72 @@ public class JsonParser
     return Long.valueOf (r);
   }
 
+  /**
+   * Convert the syntactically checked number characters to the most
+   * appropriate {@link Number} implementation.
+   *
+   * @param bIsDecimal
+   *        <code>true</code> if a decimal point is contained
+   * @param bHasExponent
+   *        <code>true</code> if an exponent is contained
+   * @param bHasPositiveExponent
+   *        <code>true</code> if the exponent is positive
+   * @param bAlwaysUseBigNumber
+   *        <code>true</code> to always use BigInteger or BigDecimal
+   * @param aNumChars
+   *        The number characters. May not be <code>null</code>.
+   * @return The parsed number. Never <code>null</code>.
+   * @throws NumberFormatException
+   *         If the number cannot be converted
+   */
   @Nonnull
-  private Number _parseNumber (@Nonnull final IJsonParsePosition aStartPos,
-                               final boolean bIsDecimal,
-                               final boolean bHasExponent,
-                               final boolean bHasPositiveExponent,
-                               @Nonnull final JsonStringBuilder aNumChars) throws JsonParseException
+  static Number getAsNumber (final boolean bIsDecimal,
+                             final boolean bHasExponent,
+                             final boolean bHasPositiveExponent,
+                             final boolean bAlwaysUseBigNumber,
+                             @Nonnull final JsonStringBuilder aNumChars)
   {
-    try
-    {
-      final int nCharCount = aNumChars.getLength ();
+    final int nCharCount = aNumChars.getLength ();
 
-      if (bIsDecimal)
-      {
-        // Decimal number
-        if (nCharCount > 18 || m_bAlwaysUseBigNumber)
-          return aNumChars.getAsBigDecimal ();
+    if (bIsDecimal)
+    {
+      // Decimal number
+      if (nCharCount > 18 || bAlwaysUseBigNumber)
+        return aNumChars.getAsBigDecimal ();
 
-        return aNumChars.getAsDouble ();
-      }
+      return aNumChars.getAsDouble ();
+    }
 
-      if (bHasExponent)
+    if (bHasExponent)
+    {
+      // Integer number
+      if (bHasPositiveExponent)
       {
-        // Integer number
-        if (bHasPositiveExponent)
-        {
-          // Required for correct "e" handling
-          return aNumChars.getAsBigDecimal ().toBigIntegerExact ();
-        }
-
         // Required for correct "e" handling
-        return aNumChars.getAsBigDecimal ();
+        return aNumChars.getAsBigDecimal ().toBigIntegerExact ();
       }
 
-      // No exponent present
-      if (m_bAlwaysUseBigNumber)
-        return aNumChars.getAsBigInteger ();
+      // Required for correct "e" handling
+      return aNumChars.getAsBigDecimal ();
+    }
+
+    // No exponent present
+    if (bAlwaysUseBigNumber)
+      return aNumChars.getAsBigInteger ();
+
+    return _parseNumberInt (aNumChars);
+  }
 
-      return _parseNumberInt (aNumChars);
+  @Nonnull
+  private Number _parseNumber (@Nonnull final IJsonParsePosition aStartPos,
+                               final boolean bIsDecimal,
+                               final boolean bHasExponent,
+                               final boolean bHasPositiveExponent,
+                               @Nonnull final JsonStringBuilder aNumChars) throws JsonParseException
+  {
+    try
+    {
+      return getAsNumber (bIsDecimal, bHasExponent, bHasPositiveExponent, m_bAlwaysUseBigNumber, aNumChars);
     }
     catch (final NumberFormatException ex)
     {
@@ -693,7 +766,27 @@ public class JsonParser
   private void _readNumber () throws JsonParseException
   {
     final IJsonParsePosition aStartPos = _getCurrentParsePos ();
+    _readNumberContent (aStartPos);
+
+    final Number aNum = _parseNumber (aStartPos,
+                                      m_bNumberIsDecimal,
+                                      m_bNumberHasExponent,
+                                      m_bNumberHasPositiveExponent,
+                                      m_aSB1);
+    m_aCallback.onNumber (m_aSB1.getAsString (), aNum);
+  }
 
+  /**
+   * Read and syntax check a number without converting it. Afterwards the
+   * number characters are available via {@link #_getNumberContent()}.
+   *
+   * @param aStartPos
+   *        The start position for error messages. May be <code>null</code>.
+   * @throws JsonParseException
+   *         In case of a syntax error
+   */
+  void _readNumberContent (@Nullable final IJsonParsePosition aStartPos) throws JsonParseException
+  {
     final JsonStringBuilder aStrNumber = m_aSB1.reset ();
     int c = _readChar ();
     if (c == '-')
@@ -724,8 +817,8 @@ public class JsonParser
       else
         throw _parseEx (aStartPos, "Invalid JSON Number start character " + _getPrintableChar (c));
 
-    final boolean bIsDecimal = c == '.';
-    if (bIsDecimal)
+    m_bNumberIsDecimal = c == '.';
+    if (m_bNumberIsDecimal)
     {
       // read decimal part
       aStrNumber.append ((char) c);
@@ -743,16 +836,16 @@ public class JsonParser
                         "Missing digits after decimal point in JSON Number '" + aStrNumber.getAsString () + "'");
     }
 
-    final boolean bHasExponent = c == 'e' || c == 'E';
-    boolean bHasPositiveExponent = false;
-    if (bHasExponent)
+    m_bNumberHasExponent = c == 'e' || c == 'E';
+    m_bNumberHasPositiveExponent = false;
+    if (m_bNumberHasExponent)
     {
       // read exponent
       aStrNumber.append ((char) c);
       c = _readChar ();
 
       // Any char other than "-" means the exponent is positive
-      bHasPositiveExponent = c != '-';
+      m_bNumberHasPositiveExponent = c != '-';
 
       if (c == '+' || c == '-')
       {
@@ -775,12 +868,35 @@ public class JsonParser
 
     // Backup last (unused) char
     _backupChar (c);
+  }
+
+  /**
+   * @return The characters of the last number read by
+   *         {@link #_readNumberContent(IJsonParsePosition)}. Only valid until
+   *         the next read operation.
+   */
+  @Nonnull
+  JsonStringBuilder _getNumberContent ()
+  {
+    return m_aSB1;
+  }
+
+  boolean _isNumberDecimal ()
+  {
+    return m_bNumberIsDecimal;
+  }
 
-    final Number aNum = _parseNumber (aStartPos, bIsDecimal, bHasExponent, bHasPositiveExponent, aStrNumber);
-    m_aCallback.onNumber (aStrNumber.getAsString (), aNum);
+  boolean _isNumberWithExponent ()
+  {
+    return m_bNumberHasExponent;
+  }
+
+  boolean _isNumberWithPositiveExponent ()
+  {
+    return m_bNumberHasPositiveExponent;
   }
 
-  private void _expect (@Nonnull final String sKeyword) throws JsonParseException
+  void _expect (@Nonnull final String sKeyword) throws JsonParseException
   {
     final IJsonParsePosition aStartPos = _getCurrentParsePos ();
 
@@ -0,0 +1,584 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.parser;
+
+import java.io.Closeable;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillCloseWhenClosed;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.json.CJson;
+import com.helger.json.parser.JsonParser.EStringQuoteMode;
+import com.helger.json.parser.handler.DoNothingJsonParserHandler;
+
+/**
+ * A pull based JSON reader. In contrast to {@link JsonParser} the caller
+ * requests the next token with {@link #nextToken()} and decides what to do
+ * with it. Values are only converted to Strings or numbers if requested via
+ * the respective <code>read...</code> method, and {@link #skipChildren()}
+ * skips a nested structure without creating any object for its content. This
+ * allows to extract selected fields of very large JSON documents without
+ * building the object tree.<br>
+ * The tokenizing is performed by an internal {@link JsonParser}, so the same
+ * syntax rules and settings apply.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@NotThreadSafe
+public class JsonStreamReader implements Closeable
+{
+  // Parser state per nesting level
+  private static final int STATE_ROOT = 0;
+  private static final int STATE_ROOT_DONE = 1;
+  private static final int STATE_ARRAY_FIRST = 2;
+  private static final int STATE_ARRAY_NEXT = 3;
+  private static final int STATE_OBJECT_FIRST = 4;
+  private static final int STATE_OBJECT_VALUE = 5;
+  private static final int STATE_OBJECT_NEXT = 6;
+
+  private static final DoNothingJsonParserHandler NO_CONTENT_HANDLER = new DoNothingJsonParserHandler ()
+  {
+    @Override
+    public boolean isOriginalContentRequired ()
+    {
+      return false;
+    }
+  };
+
+  private final Reader m_aReader;
+  // The tokenizer
+  private final JsonParser m_aParser;
+
+  // Status variables
+  private int [] m_aStates = new int [16];
+  private int m_nDepth = 0;
+  private EJsonToken m_eToken;
+
+  /**
+   * Constructor
+   *
+   * @param aReader
+   *        The reader to read from. Should be buffered. The reader is closed
+   *        when this object is closed. May not be <code>null</code>.
+   */
+  public JsonStreamReader (@Nonnull @WillCloseWhenClosed final Reader aReader)
+  {
+    ValueEnforcer.notNull (aReader, "Reader");
+    m_aReader = aReader;
+    m_aParser = new JsonParser (aReader, NO_CONTENT_HANDLER);
+    m_aStates[0] = STATE_ROOT;
+  }
+
+  public void close ()
+  {
+    StreamHelper.close (m_aReader);
+  }
+
+  public boolean isTrackPosition ()
+  {
+    return m_aParser.isTrackPosition ();
+  }
+
+  @Nonnull
+  public JsonStreamReader setTrackPosition (final boolean bTrackPosition)
+  {
+    m_aParser.setTrackPosition (bTrackPosition);
+    return this;
+  }
+
+  @Nonnegative
+  public int getTabSize ()
+  {
+    return m_aParser.getTabSize ();
+  }
+
+  @Nonnull
+  public JsonStreamReader setTabSize (@Nonnegative final int nTabSize)
+  {
+    m_aParser.setTabSize (nTabSize);
+    return this;
+  }
+
+  public boolean isAlwaysUseBigNumber ()
+  {
+    return m_aParser.isAlwaysUseBigNumber ();
+  }
+
+  @Nonnull
+  public JsonStreamReader setAlwaysUseBigNumber (final boolean bAlwaysUseBigNumber)
+  {
+    m_aParser.setAlwaysUseBigNumber (bAlwaysUseBigNumber);
+    return this;
+  }
+
+  public boolean isRequireStringQuotes ()
+  {
+    return m_aParser.isRequireStringQuotes ();
+  }
+
+  @Nonnull
+  public JsonStreamReader setRequireStringQuotes (final boolean bRequireStringQuotes)
+  {
+    m_aParser.setRequireStringQuotes (bRequireStringQuotes);
+    return this;
+  }
+
+  public boolean isAllowSpecialCharsInStrings ()
+  {
+    return m_aParser.isAllowSpecialCharsInStrings ();
+  }
+
+  @Nonnull
+  public JsonStreamReader setAllowSpecialCharsInStrings (final boolean bAllowSpecialCharsInStrings)
+  {
+    m_aParser.setAllowSpecialCharsInStrings (bAllowSpecialCharsInStrings);
+    return this;
+  }
+
+  public boolean isCheckForEOI ()
+  {
+    return m_aParser.isCheckForEOI ();
+  }
+
+  /**
+   * Enable or disable the check for end of input. If disabled, multiple root
+   * values can be read in a row.
+   *
+   * @param bCheckForEOI
+   *        <code>true</code> to check for EOI, <code>false</code> if not.
+   * @return this for chaining
+   */
+  @Nonnull
+  public JsonStreamReader setCheckForEOI (final boolean bCheckForEOI)
+  {
+    m_aParser.setCheckForEOI (bCheckForEOI);
+    return this;
+  }
+
+  /**
+   * @return The current line number. First line has a value of 1. Only
+   *         available if position tracking is enabled.
+   */
+  @Nonnegative
+  public int getLineNumber ()
+  {
+    return m_aParser.getLineNumber ();
+  }
+
+  /**
+   * @return The current column number. First column has a value of 1. Only
+   *         available if position tracking is enabled.
+   */
+  @Nonnegative
+  public int getColumn ()
+  {
+    return m_aParser.getColumn ();
+  }
+
+  /**
+   * @return The current nesting depth. 0 for the root level, 1 inside the
+   *         outermost object or array etc.
+   */
+  @Nonnegative
+  public int getDepth ()
+  {
+    return m_nDepth;
+  }
+
+  /**
+   * @return The token last returned by {@link #nextToken()}. May be
+   *         <code>null</code> before the first call and at the end of input.
+   */
+  @Nullable
+  public EJsonToken getCurrentToken ()
+  {
+    return m_eToken;
+  }
+
+  @Nonnull
+  private JsonParseException _parseEx (@Nonnull final String sMsg)
+  {
+    return m_aParser._parseEx (m_aParser._getCurrentParsePos (), sMsg);
+  }
+
+  private void _push (final int nState)
+  {
+    m_nDepth++;
+    if (m_nDepth == m_aStates.length)
+      m_aStates = Arrays.copyOf (m_aStates, m_aStates.length * 2);
+    m_aStates[m_nDepth] = nState;
+  }
+
+  @Nonnull
+  private EJsonToken _readValue (final int cFirst) throws JsonParseException
+  {
+    switch (cFirst)
+    {
+      case '\'':
+      case '"':
+        m_aParser._backupChar (cFirst);
+        m_aParser._readStringContent (EStringQuoteMode.getFromCharOrDefault (cFirst));
+        return EJsonToken.STRING;
+      case '-':
+      case '0':
+      case '1':
+      case '2':
+      case '3':
+      case '4':
+      case '5':
+      case '6':
+      case '7':
+      case '8':
+      case '9':
+        m_aParser._backupChar (cFirst);
+        m_aParser._readNumberContent (m_aParser._getCurrentParsePos ());
+        return EJsonToken.NUMBER;
+      case 't':
+        m_aParser._backupChar (cFirst);
+        m_aParser._expect (CJson.KEYWORD_TRUE);
+        return EJsonToken.TRUE;
+      case 'f':
+        m_aParser._backupChar (cFirst);
+        m_aParser._expect (CJson.KEYWORD_FALSE);
+        return EJsonToken.FALSE;
+      case 'n':
+        m_aParser._backupChar (cFirst);
+        m_aParser._expect (CJson.KEYWORD_NULL);
+        return EJsonToken.NULL;
+      case CJson.ARRAY_START:
+        _push (STATE_ARRAY_FIRST);
+        return EJsonToken.START_ARRAY;
+      case CJson.OBJECT_START:
+        _push (STATE_OBJECT_FIRST);
+        return EJsonToken.START_OBJECT;
+      case JsonParser.EOI:
+        throw _parseEx ("Unexpected end of input in JSON");
+      default:
+        throw _parseEx ("Syntax error in JSON. Found " + JsonParser._getPrintableChar (cFirst));
+    }
+  }
+
+  @Nonnull
+  private EJsonToken _readName (final int cFirst) throws JsonParseException
+  {
+    m_aParser._backupChar (cFirst);
+    m_aParser._readStringContent (EStringQuoteMode.getFromCharOrDefault (cFirst));
+    m_aStates[m_nDepth] = STATE_OBJECT_VALUE;
+    return EJsonToken.NAME;
+  }
+
+  @Nullable
+  private EJsonToken _readRootValue (final int c) throws JsonParseException
+  {
+    if (c == JsonParser.EOI)
+      return null;
+    m_aStates[m_nDepth] = STATE_ROOT_DONE;
+    return _readValue (c);
+  }
+
+  @Nullable
+  private EJsonToken _nextToken () throws JsonParseException
+  {
+    m_aParser._skipSpaces ();
+    final int c = m_aParser._readChar ();
+
+    switch (m_aStates[m_nDepth])
+    {
+      case STATE_ROOT:
+        return _readRootValue (c);
+      case STATE_ROOT_DONE:
+        if (!m_aParser.isCheckForEOI ())
+        {
+          // Read the next root value
+          return _readRootValue (c);
+        }
+        if (c != JsonParser.EOI)
+          throw _parseEx ("Invalid character " + JsonParser._getPrintableChar (c) + " after JSON root object");
+        return null;
+      case STATE_ARRAY_FIRST:
+        if (c == CJson.ARRAY_END)
+        {
+          m_nDepth--;
+          return EJsonToken.END_ARRAY;
+        }
+        m_aStates[m_nDepth] = STATE_ARRAY_NEXT;
+        return _readValue (c);
+      case STATE_ARRAY_NEXT:
+        if (c == CJson.ARRAY_END)
+        {
+          m_nDepth--;
+          return EJsonToken.END_ARRAY;
+        }
+        if (c != CJson.ITEM_SEPARATOR)
+          throw _parseEx ("Unexpected character " + JsonParser._getPrintableChar (c) + " in JSON array");
+        m_aParser._skipSpaces ();
+        return _readValue (m_aParser._readChar ());
+      case STATE_OBJECT_FIRST:
+        if (c == CJson.OBJECT_END)
+        {
+          m_nDepth--;
+          return EJsonToken.END_OBJECT;
+        }
+        return _readName (c);
+      case STATE_OBJECT_VALUE:
+        if (c != CJson.NAME_VALUE_SEPARATOR)
+          throw _parseEx ("Expected colon character in JSON Object but found " + JsonParser._getPrintableChar (c));
+        m_aStates[m_nDepth] = STATE_OBJECT_NEXT;
+        m_aParser._skipSpaces ();
+        return _readValue (m_aParser._readChar ());
+      case STATE_OBJECT_NEXT:
+        if (c == CJson.OBJECT_END)
+        {
+          m_nDepth--;
+          return EJsonToken.END_OBJECT;
+        }
+        if (c != CJson.ITEM_SEPARATOR)
+          throw _parseEx ("Unexpected character " + JsonParser._getPrintableChar (c) + " in JSON Object");
+        m_aParser._skipSpaces ();
+        return _readName (m_aParser._readChar ());
+      default:
+        throw new IllegalStateException ("Unexpected state " + m_aStates[m_nDepth]);
+    }
+  }
+
+  /**
+   * Read the next token.
+   *
+   * @return The next token or <code>null</code> if the end of input was
+   *         reached.
+   * @throws JsonParseException
+   *         In case of a syntax error
+   */
+  @Nullable
+  public EJsonToken nextToken () throws JsonParseException
+  {
+    m_eToken = _nextToken ();
+    return m_eToken;
+  }
+
+  /**
+   * If the current token is {@link EJsonToken#START_OBJECT} or
+   * {@link EJsonToken#START_ARRAY}, skip all tokens up to and including the
+   * matching end token. The skipped content is syntax checked but no objects
+   * are created. For all other tokens nothing happens.
+   *
+   * @return this for chaining
+   * @throws JsonParseException
+   *         In case of a syntax error
+   */
+  @Nonnull
+  public JsonStreamReader skipChildren () throws JsonParseException
+  {
+    if (m_eToken != null && m_eToken.isStructStart ())
+    {
+      final int nTargetDepth = m_nDepth - 1;
+      while (m_nDepth > nTargetDepth)
+        if (nextToken () == null)
+          throw _parseEx ("Unexpected end of input in JSON");
+    }
+    return this;
+  }
+
+  /**
+   * Skip the next value including all nested children. This is a shortcut for
+   * {@link #nextToken()} followed by {@link #skipChildren()} and is usually
+   * called after an unwanted {@link EJsonToken#NAME}.
+   *
+   * @return this for chaining
+   * @throws JsonParseException
+   *         In case of a syntax error
+   */
+  @Nonnull
+  public JsonStreamReader skipValue () throws JsonParseException
+  {
+    nextToken ();
+    return skipChildren ();
+  }
+
+  private void _checkToken (@Nonnull final EJsonToken eExpected1, @Nullable final EJsonToken eExpected2)
+  {
+    if (m_eToken != eExpected1 && (eExpected2 == null || m_eToken != eExpected2))
+      throw new IllegalStateException ("The current token is " +
+                                       m_eToken +
+                                       " but expected " +
+                                       eExpected1 +
+                                       (eExpected2 == null ? "" : " or " + eExpected2));
+  }
+
+  /**
+   * @return The unescaped content of the current {@link EJsonToken#STRING} or
+   *         {@link EJsonToken#NAME} token. Never <code>null</code>.
+   * @throws IllegalStateException
+   *         if the current token is neither a string nor a name
+   */
+  @Nonnull
+  public String readString ()
+  {
+    _checkToken (EJsonToken.STRING, EJsonToken.NAME);
+    return m_aParser._getStringContent ().getAsString ();
+  }
+
+  /**
+   * Check if the unescaped content of the current {@link EJsonToken#STRING} or
+   * {@link EJsonToken#NAME} token equals the passed text. No String is
+   * created.
+   *
+   * @param aText
+   *        The text to compare to. May not be <code>null</code>.
+   * @return <code>true</code> if the text is equal
+   * @throws IllegalStateException
+   *         if the current token is neither a string nor a name
+   */
+  public boolean isText (@Nonnull final CharSequence aText)
+  {
+    _checkToken (EJsonToken.STRING, EJsonToken.NAME);
+    return m_aParser._getStringContent ().contentEquals (aText);
+  }
+
+  /**
+   * @return The value of the current {@link EJsonToken#NUMBER} token in the
+   *         same representation {@link JsonParser} uses. Never
+   *         <code>null</code>.
+   * @throws JsonParseException
+   *         If the number cannot be converted
+   * @throws IllegalStateException
+   *         if the current token is not a number
+   */
+  @Nonnull
+  public Number readNumber () throws JsonParseException
+  {
+    _checkToken (EJsonToken.NUMBER, null);
+    try
+    {
+      return JsonParser.getAsNumber (m_aParser._isNumberDecimal (),
+                                     m_aParser._isNumberWithExponent (),
+                                     m_aParser._isNumberWithPositiveExponent (),
+                                     m_aParser.isAlwaysUseBigNumber (),
+                                     m_aParser._getNumberContent ());
+    }
+    catch (final NumberFormatException | ArithmeticException ex)
+    {
+      throw _parseEx ("Invalid JSON Number '" + m_aParser._getNumberContent ().getAsString () + "'");
+    }
+  }
+
+  /**
+   * @return The value of the current {@link EJsonToken#NUMBER} token as a
+   *         long. Integral numbers without exponent are converted without
+   *         creating any object.
+   * @throws JsonParseException
+   *         If the number is not an integral value in the range of long
+   * @throws IllegalStateException
+   *         if the current token is not a number
+   */
+  public long readLong () throws JsonParseException
+  {
+    _checkToken (EJsonToken.NUMBER, null);
+    final JsonStringBuilder aNumChars = m_aParser._getNumberContent ();
+    if (!m_aParser._isNumberDecimal () && !m_aParser._isNumberWithExponent ())
+    {
+      // Same algorithm as Long.parseLong - accumulate negatively
+      final int nLen = aNumChars.getLength ();
+      final boolean bNeg = aNumChars.charAt (0) == '-';
+      final long nLimit = bNeg ? Long.MIN_VALUE : -Long.MAX_VALUE;
+      final long nMultMin = nLimit / 10;
+      long ret = 0;
+      for (int i = bNeg ? 1 : 0; i < nLen; ++i)
+      {
+        final int nDigit = aNumChars.charAt (i) - '0';
+        if (ret < nMultMin)
+          throw _parseEx ("JSON Number '" + aNumChars.getAsString () + "' is too large for long");
+        ret *= 10;
+        if (ret < nLimit + nDigit)
+          throw _parseEx ("JSON Number '" + aNumChars.getAsString () + "' is too large for long");
+        ret -= nDigit;
+      }
+      return bNeg ? ret : -ret;
+    }
+
+    try
+    {
+      return aNumChars.getAsBigDecimal ().longValueExact ();
+    }
+    catch (final ArithmeticException ex)
+    {
+      throw _parseEx ("JSON Number '" + aNumChars.getAsString () + "' is not a long value");
+    }
+  }
+
+  /**
+   * @return The value of the current {@link EJsonToken#NUMBER} token as an
+   *         int.
+   * @throws JsonParseException
+   *         If the number is not an integral value in the range of int
+   * @throws IllegalStateException
+   *         if the current token is not a number
+   */
+  public int readInt () throws JsonParseException
+  {
+    final long nValue = readLong ();
+    if (nValue < Integer.MIN_VALUE || nValue > Integer.MAX_VALUE)
+      throw _parseEx ("JSON Number '" + m_aParser._getNumberContent ().getAsString () + "' is too large for int");
+    return (int) nValue;
+  }
+
+  /**
+   * @return The value of the current {@link EJsonToken#NUMBER} token as a
+   *         double.
+   * @throws IllegalStateException
+   *         if the current token is not a number
+   */
+  public double readDouble ()
+  {
+    _checkToken (EJsonToken.NUMBER, null);
+    return m_aParser._getNumberContent ().getAsDouble ().doubleValue ();
+  }
+
+  /**
+   * @return The value of the current {@link EJsonToken#NUMBER} token as a
+   *         {@link BigDecimal}. Never <code>null</code>.
+   * @throws IllegalStateException
+   *         if the current token is not a number
+   */
+  @Nonnull
+  public BigDecimal readBigDecimal ()
+  {
+    _checkToken (EJsonToken.NUMBER, null);
+    return m_aParser._getNumberContent ().getAsBigDecimal ();
+  }
+
+  /**
+   * @return The value of the current {@link EJsonToken#TRUE} or
+   *         {@link EJsonToken#FALSE} token.
+   * @throws IllegalStateException
+   *         if the current token is not a boolean
+   */
+  public boolean readBoolean ()
+  {
+    _checkToken (EJsonToken.TRUE, EJsonToken.FALSE);
+    return m_eToken == EJsonToken.TRUE;
+  }
+}
@@ -105,6 +105,26 @@ public class JsonStringBuilder implements Serializable
     m_nLen -= n;
   }
 
+  /**
+   * Compare the content with the passed character sequence without creating a
+   * String.
+   *
+   * @param aCS
+   *        The character sequence to compare to. May not be <code>null</code>.
+   * @return <code>true</code> if the content is equal, <code>false</code>
+   *         otherwise.
+   * @since 9.4.3
+   */
+  public boolean contentEquals (@Nonnull final CharSequence aCS)
+  {
+    if (aCS.length () != m_nLen)
+      return false;
+    for (int i = 0; i < m_nLen; ++i)
+      if (m_aBuf[i] != aCS.charAt (i))
+        return false;
+    return true;
+  }
+
   @Nonnull
   public BigDecimal getAsBigDecimal ()
   {
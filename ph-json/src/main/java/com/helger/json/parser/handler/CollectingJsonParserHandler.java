@@ -42,6 +42,13 @@ public class CollectingJsonParserHandler implements IJsonParserHandler
   private final NonBlockingStack <IJsonCollection> m_aStack = new NonBlockingStack <> ();
   private final NonBlockingStack <String> m_aObjectName = new NonBlockingStack <> ();
 
+  @Override
+  public boolean isOriginalContentRequired ()
+  {
+    // Only the unescaped strings are used
+    return false;
+  }
+
   private void _addToStackPeek (@Nonnull final IJson aValue)
   {
     // Debug only
@@ -28,6 +28,24 @@ import com.helger.commons.annotation.Nonempty;
  */
 public interface IJsonParserHandler
 {
+  /**
+   * Check if this handler needs the original textual representation of the
+   * parsed content. If this method returns <code>false</code> parsers may pass
+   * the unescaped string also as the "original" string to
+   * {@link #onString(String, String)} and
+   * {@link #onObjectName(String, String)} and they may skip calling
+   * {@link #onWhitespace(String)} and {@link #onComment(String)}. This avoids
+   * creating Strings that are never used.
+   *
+   * @return <code>true</code> if the original content is required,
+   *         <code>false</code> if not. The default is <code>true</code>.
+   * @since 9.4.3
+   */
+  default boolean isOriginalContentRequired ()
+  {
+    return true;
+  }
+
   /**
    * Called when reading whitespace characters. If a comment is mixed within
    * whitespaces this method is called for every whitespaces part.
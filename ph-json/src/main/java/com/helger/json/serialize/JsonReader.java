@@ -17,11 +17,15 @@
 package com.helger.json.serialize;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -48,9 +52,15 @@ import com.helger.json.IJson;
 import com.helger.json.IJsonArray;
 import com.helger.json.IJsonObject;
 import com.helger.json.IJsonValue;
+import com.helger.json.compact.CollectingCompactJsonParserHandler;
+import com.helger.json.compact.CompactJsonArray;
+import com.helger.json.compact.CompactJsonObject;
+import com.helger.json.parser.IJsonByteParserCustomizeCallback;
 import com.helger.json.parser.IJsonParserCustomizeCallback;
+import com.helger.json.parser.JsonByteParser;
 import com.helger.json.parser.JsonParseException;
 import com.helger.json.parser.JsonParser;
+import com.helger.json.parser.JsonStreamReader;
 import com.helger.json.parser.errorhandler.IJsonParseExceptionCallback;
 import com.helger.json.parser.errorhandler.LoggingJsonParseExceptionCallback;
 import com.helger.json.parser.handler.CollectingJsonParserHandler;
@@ -447,6 +457,109 @@ public final class JsonReader
     return aHandler.getJson ();
   }
 
+  /**
+   * Generic JSON parse method for UTF-8 encoded bytes using the
+   * {@link JsonByteParser}. Usually this is not to be called manually - call
+   * this only when you know what you are doing :)
+   *
+   * @param aBuffer
+   *        The buffer to read from. Only the bytes between position and limit
+   *        are parsed. The position of the buffer is not modified. May not be
+   *        <code>null</code>.
+   * @param aParserHandler
+   *        The parser handler. May not be <code>null</code>.
+   * @param aCustomizeCallback
+   *        An optional {@link JsonByteParser} customization callback. May be
+   *        <code>null</code>.
+   * @param aCustomExceptionCallback
+   *        A custom handler for unrecoverable errors. May be <code>null</code>.
+   * @return {@link ESuccess}
+   * @since 9.4.3
+   */
+  @Nonnull
+  public static ESuccess parseJson (@Nonnull final ByteBuffer aBuffer,
+                                    @Nonnull final IJsonParserHandler aParserHandler,
+                                    @Nullable final IJsonByteParserCustomizeCallback aCustomizeCallback,
+                                    @Nullable final IJsonParseExceptionCallback aCustomExceptionCallback)
+  {
+    ValueEnforcer.notNull (aBuffer, "Buffer");
+    ValueEnforcer.notNull (aParserHandler, "ParserHandler");
+
+    try
+    {
+      final JsonByteParser aParser = new JsonByteParser (aBuffer, aParserHandler);
+      if (aCustomizeCallback != null)
+        aCustomizeCallback.customizeJsonParser (aParser);
+      aParser.parse ();
+      return ESuccess.SUCCESS;
+    }
+    catch (final JsonParseException ex)
+    {
+      // Unrecoverable error
+      if (aCustomExceptionCallback != null)
+        aCustomExceptionCallback.onException (ex);
+      else
+        getDefaultParseExceptionCallback ().onException (ex);
+      return ESuccess.FAILURE;
+    }
+  }
+
+  /**
+   * Main reading of UTF-8 encoded JSON bytes using the {@link JsonByteParser}.
+   *
+   * @param aBuffer
+   *        The buffer to read from. Only the bytes between position and limit
+   *        are parsed. May not be <code>null</code>.
+   * @param aCustomizeCallback
+   *        An optional {@link JsonByteParser} customization callback. May be
+   *        <code>null</code>.
+   * @param aCustomExceptionCallback
+   *        A custom handler for unrecoverable errors. May be <code>null</code>.
+   * @return <code>null</code> if parsing failed, non-<code>null</code> if
+   *         parsing succeeded.
+   * @since 9.4.3
+   */
+  @Nullable
+  public static IJson readJson (@Nonnull final ByteBuffer aBuffer,
+                                @Nullable final IJsonByteParserCustomizeCallback aCustomizeCallback,
+                                @Nullable final IJsonParseExceptionCallback aCustomExceptionCallback)
+  {
+    final CollectingJsonParserHandler aHandler = new CollectingJsonParserHandler ();
+    if (parseJson (aBuffer, aHandler, aCustomizeCallback, aCustomExceptionCallback).isFailure ())
+      return null;
+    return aHandler.getJson ();
+  }
+
+  /**
+   * Map the passed file into memory. The file channel is closed again, but the
+   * mapping stays valid.
+   *
+   * @param aPath
+   *        The file to map. May not be <code>null</code>.
+   * @return <code>null</code> if the file could not be mapped
+   */
+  @Nullable
+  private static ByteBuffer _mapFile (@Nonnull final Path aPath)
+  {
+    try (final FileChannel aChannel = FileChannel.open (aPath, StandardOpenOption.READ))
+    {
+      final long nSize = aChannel.size ();
+      if (nSize > Integer.MAX_VALUE)
+      {
+        // A single mapping is limited to 2GB
+        if (LOGGER.isDebugEnabled ())
+          LOGGER.debug ("File '" + aPath + "' is too large to be memory mapped: " + nSize + " bytes");
+        return null;
+      }
+      return aChannel.map (FileChannel.MapMode.READ_ONLY, 0, nSize);
+    }
+    catch (final IOException ex)
+    {
+      LOGGER.error ("Failed to memory map file '" + aPath + "'", ex);
+      return null;
+    }
+  }
+
   /**
    * Read the Json from the passed String using a character stream. An
    * eventually contained <code>@charset</code> rule is ignored.
@@ -808,8 +921,11 @@ public final class JsonReader
   {
     private boolean m_bDontCloseSource = false;
     private boolean m_bUseBufferedReader = true;
+    private boolean m_bUseCompactRepresentation = false;
     private Reader m_aReader;
+    private ByteBuffer m_aByteSource;
     private IJsonParserCustomizeCallback m_aCustomizeCallback;
+    private IJsonByteParserCustomizeCallback m_aByteParserCustomizeCallback;
     private IJsonParseExceptionCallback m_aCustomeExceptionCallback;
 
     public Builder ()
@@ -854,6 +970,25 @@ public final class JsonReader
       return this;
     }
 
+    /**
+     * Create the immutable and memory efficient compact representation (see
+     * {@link CompactJsonObject} and {@link CompactJsonArray}) instead of the
+     * modifiable {@link com.helger.json.JsonObject} and
+     * {@link com.helger.json.JsonArray}. Default is <code>false</code>.
+     *
+     * @param bUseCompactRepresentation
+     *        <code>true</code> to create the compact representation,
+     *        <code>false</code> to create the regular one.
+     * @return this for chaining
+     * @since 9.4.3
+     */
+    @Nonnull
+    public Builder setUseCompactRepresentation (final boolean bUseCompactRepresentation)
+    {
+      m_bUseCompactRepresentation = bUseCompactRepresentation;
+      return this;
+    }
+
     /**
      * Use a constant JSON string as source
      *
@@ -1069,6 +1204,85 @@ public final class JsonReader
       return this;
     }
 
+    /**
+     * Use UTF-8 encoded bytes as JSON source. The bytes are parsed with the
+     * {@link JsonByteParser} without creating a {@link Reader}. This source
+     * takes precedence over a {@link Reader} source.
+     *
+     * @param aBytes
+     *        The UTF-8 encoded JSON bytes. May not be <code>null</code>.
+     * @return this for chaining
+     * @since 9.4.3
+     */
+    @Nonnull
+    public Builder setByteSource (@Nonnull final byte [] aBytes)
+    {
+      ValueEnforcer.notNull (aBytes, "Bytes");
+
+      return setByteSource (ByteBuffer.wrap (aBytes));
+    }
+
+    /**
+     * Use a buffer with UTF-8 encoded bytes as JSON source. The bytes between
+     * position and limit are parsed with the {@link JsonByteParser}. This
+     * source takes precedence over a {@link Reader} source.
+     *
+     * @param aBuffer
+     *        The buffer to be used. May not be <code>null</code>.
+     * @return this for chaining
+     * @since 9.4.3
+     */
+    @Nonnull
+    public Builder setByteSource (@Nonnull final ByteBuffer aBuffer)
+    {
+      ValueEnforcer.notNull (aBuffer, "Buffer");
+
+      m_aByteSource = aBuffer;
+      return this;
+    }
+
+    /**
+     * Use a memory mapped UTF-8 encoded file as JSON source. The file is parsed
+     * with the {@link JsonByteParser} without copying it to the heap. If the
+     * file cannot be mapped (e.g. because it is larger than 2GB), it is read
+     * as a regular UTF-8 {@link Path} source with the stream based parser
+     * instead.
+     *
+     * @param aPath
+     *        The file to be mapped. May not be <code>null</code>.
+     * @return this for chaining
+     * @since 9.4.3
+     */
+    @Nonnull
+    public Builder setMemoryMappedSource (@Nonnull final Path aPath)
+    {
+      ValueEnforcer.notNull (aPath, "Path");
+
+      final ByteBuffer aBuffer = _mapFile (aPath);
+      if (aBuffer != null)
+        return setByteSource (aBuffer);
+
+      // Fall back to the stream based parser
+      m_aByteSource = null;
+      return setSource (aPath, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Set the optional customizing callback that is used if a byte source is
+     * present.
+     *
+     * @param aByteParserCustomizeCallback
+     *        The customizing callback to be used. May be <code>null</code>.
+     * @return this for chaining
+     * @since 9.4.3
+     */
+    @Nonnull
+    public Builder setByteParserCustomizeCallback (@Nullable final IJsonByteParserCustomizeCallback aByteParserCustomizeCallback)
+    {
+      m_aByteParserCustomizeCallback = aByteParserCustomizeCallback;
+      return this;
+    }
+
     /**
      * Set the optional customizing callback.
      *
@@ -1104,7 +1318,7 @@ public final class JsonReader
      */
     public boolean hasSource ()
     {
-      return m_aReader != null;
+      return m_aReader != null || m_aByteSource != null;
     }
 
     /**
@@ -1115,6 +1329,12 @@ public final class JsonReader
      */
     public boolean isValidJson ()
     {
+      if (m_aByteSource != null)
+        return JsonReader.parseJson (m_aByteSource,
+                                     new DoNothingJsonParserHandler (),
+                                     m_aByteParserCustomizeCallback,
+                                     m_aCustomeExceptionCallback)
+                         .isSuccess ();
       if (m_aReader == null)
         throw new IllegalStateException ("No source is set.");
       return JsonReader.parseJson (m_aReader,
@@ -1133,11 +1353,51 @@ public final class JsonReader
     @Nullable
     public IJson read ()
     {
+      if (m_bUseCompactRepresentation)
+      {
+        final CollectingCompactJsonParserHandler aHandler = new CollectingCompactJsonParserHandler ();
+        final ESuccess eSuccess;
+        if (m_aByteSource != null)
+          eSuccess = JsonReader.parseJson (m_aByteSource,
+                                           aHandler,
+                                           m_aByteParserCustomizeCallback,
+                                           m_aCustomeExceptionCallback);
+        else
+        {
+          if (m_aReader == null)
+            throw new IllegalStateException ("No source is set.");
+          eSuccess = JsonReader.parseJson (m_aReader, aHandler, m_aCustomizeCallback, m_aCustomeExceptionCallback);
+        }
+        return eSuccess.isFailure () ? null : aHandler.getJson ();
+      }
+
+      if (m_aByteSource != null)
+        return JsonReader.readJson (m_aByteSource, m_aByteParserCustomizeCallback, m_aCustomeExceptionCallback);
       if (m_aReader == null)
         throw new IllegalStateException ("No source is set.");
       return JsonReader.readJson (m_aReader, m_aCustomizeCallback, m_aCustomeExceptionCallback);
     }
 
+    /**
+     * Create a pull based {@link JsonStreamReader} on the specified source.
+     * Ownership of the source is passed to the returned reader, so it must be
+     * closed by the caller. Note: the customize callback of this builder is not
+     * applied - configure the returned reader directly instead.
+     *
+     * @return A new {@link JsonStreamReader} and never <code>null</code>.
+     * @since 9.4.3
+     */
+    @Nonnull
+    public JsonStreamReader createStreamReader ()
+    {
+      if (m_aReader == null)
+        throw new IllegalStateException ("No source is set.");
+      final JsonStreamReader ret = new JsonStreamReader (m_aReader);
+      // The stream reader is now responsible for closing
+      m_aReader = null;
+      return ret;
+    }
+
     /**
      * @return The parsed JSON array from the specified source. May be
      *         <code>null</code> if parsing fails or if the parsed JSON is not
@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.compact;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.commons.io.stream.NonBlockingStringReader;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.mock.CommonsTestHelper;
+import com.helger.json.IJson;
+import com.helger.json.IJsonArray;
+import com.helger.json.IJsonObject;
+import com.helger.json.JsonArray;
+import com.helger.json.JsonObject;
+import com.helger.json.serialize.JsonReader;
+
+/**
+ * Test class for class {@link CollectingCompactJsonParserHandler}.
+ *
+ * @author Philip Helger
+ */
+public final class CollectingCompactJsonParserHandlerTest
+{
+  @Nonnull
+  private static IJson _readCompact (@Nonnull final String sJson)
+  {
+    final IJson ret = JsonReader.builder ().setSource (sJson).setUseCompactRepresentation (true).read ();
+    assertNotNull (sJson, ret);
+    return ret;
+  }
+
+  @Test
+  public void testSameAsRegular ()
+  {
+    for (final String sFilename : new String [] { "json.org.example1.json",
+                                                  "json.org.example2.json",
+                                                  "json.org.example3.json",
+                                                  "json.org.example4.json",
+                                                  "json.org.example5.json",
+                                                  "pass1.json",
+                                                  "pass2.json" })
+    {
+      final String sJson = StreamHelper.getAllBytesAsString (new ClassPathResource ("json/" + sFilename),
+                                                             StandardCharsets.UTF_8);
+      final IJson aRegular = JsonReader.readFromString (sJson);
+      final IJson aCompact = _readCompact (sJson);
+      assertEquals (sFilename, aRegular.getAsJsonString (), aCompact.getAsJsonString ());
+      // Clone creates the regular representation
+      assertEquals (sFilename, aRegular, aCompact.getClone ());
+    }
+  }
+
+  @Test
+  public void testObject ()
+  {
+    final IJsonArray aArray = _readCompact ("[{\"a\":1,\"b\":\"x\"},{\"a\":2,\"b\":\"y\"},{\"b\":\"z\",\"a\":3},{\"a\":1,\"a\":4}]").getAsArray ();
+    assertTrue (aArray instanceof CompactJsonArray);
+    assertEquals (4, aArray.size ());
+
+    final CompactJsonObject aObj0 = (CompactJsonObject) aArray.getObjectAtIndex (0);
+    final CompactJsonObject aObj1 = (CompactJsonObject) aArray.getObjectAtIndex (1);
+    final CompactJsonObject aObj2 = (CompactJsonObject) aArray.getObjectAtIndex (2);
+    // Same keys in the same order share the shape
+    assertSame (aObj0.getShape (), aObj1.getShape ());
+    assertFalse (aObj0.getShape () == aObj2.getShape ());
+
+    assertEquals (2, aObj0.size ());
+    assertEquals (1, aObj0.getAsInt ("a"));
+    assertEquals ("x", aObj0.getAsString ("b"));
+    assertNull (aObj0.get ("c"));
+    assertTrue (aObj0.containsKey ("b"));
+    assertEquals ("[a, b]", aObj0.keySet ().toString ());
+
+    // Order independent equality
+    assertEquals (_readCompact ("{\"b\":\"z\",\"a\":3}"), aObj2);
+    assertEquals (_readCompact ("{\"a\":3,\"b\":\"z\"}"), aObj2);
+    assertEquals (_readCompact ("{\"a\":3,\"b\":\"z\"}").hashCode (), aObj2.hashCode ());
+
+    // Duplicate key
+    final IJsonObject aObj3 = aArray.getObjectAtIndex (3);
+    assertEquals (1, aObj3.size ());
+    assertEquals (4, aObj3.getAsInt ("a"));
+
+    try
+    {
+      aObj0.add ("c", 5);
+      fail ();
+    }
+    catch (final UnsupportedOperationException ex)
+    {
+      // expected
+    }
+
+    final JsonObject aClone = aObj0.getClone ();
+    aClone.add ("c", 5);
+    assertEquals (3, aClone.size ());
+    CommonsTestHelper.testDefaultSerialization (aObj0);
+  }
+
+  @Test
+  public void testManyKeys ()
+  {
+    final StringBuilder aSB = new StringBuilder ("{");
+    for (int i = 0; i < 50; ++i)
+      aSB.append (i == 0 ? "" : ",").append ("\"k").append (i).append ("\":").append (i);
+    aSB.append ("}");
+    final IJsonObject aObj = _readCompact (aSB.toString ()).getAsObject ();
+    assertEquals (50, aObj.size ());
+    for (int i = 0; i < 50; ++i)
+      assertEquals (i, aObj.getAsInt ("k" + i));
+    assertNull (aObj.get ("k50"));
+  }
+
+  @Test
+  public void testShapeCount ()
+  {
+    // Nested key sequences: only 3 shapes, even though the tree has more nodes
+    CollectingCompactJsonParserHandler aHandler = new CollectingCompactJsonParserHandler ();
+    assertTrue (JsonReader.parseJson (new NonBlockingStringReader ("[{\"a\":1,\"b\":2,\"c\":3,\"d\":4},{\"a\":1},{\"x\":1,\"y\":2},{\"a\":5}]"),
+                                      aHandler)
+                          .isSuccess ());
+    assertEquals (3, aHandler.getShapeCount ());
+
+    // Limit reached - new shapes are not shared
+    aHandler = new CollectingCompactJsonParserHandler (1);
+    assertTrue (JsonReader.parseJson (new NonBlockingStringReader ("[{\"a\":1,\"b\":2},{\"a\":3,\"b\":4},{\"a\":5},{\"a\":6}]"),
+                                      aHandler)
+                          .isSuccess ());
+    assertEquals (1, aHandler.getShapeCount ());
+    final IJsonArray aArray = aHandler.getJson ().getAsArray ();
+    assertSame (((CompactJsonObject) aArray.getObjectAtIndex (0)).getShape (),
+                ((CompactJsonObject) aArray.getObjectAtIndex (1)).getShape ());
+    assertFalse (((CompactJsonObject) aArray.getObjectAtIndex (2)).getShape () == ((CompactJsonObject) aArray.getObjectAtIndex (3)).getShape ());
+    assertEquals (5, aArray.getObjectAtIndex (2).getAsInt ("a"));
+  }
+
+  @Test
+  public void testArray ()
+  {
+    final CompactJsonArray aLongs = (CompactJsonArray) _readCompact ("[1,200,-3,9223372036854775807]");
+    assertTrue (aLongs.isLongArray ());
+    assertEquals (Integer.valueOf (1), aLongs.getValue (0));
+    assertEquals (Integer.valueOf (200), aLongs.getValue (1));
+    assertEquals (Long.valueOf (Long.MAX_VALUE), aLongs.getValue (3));
+    assertEquals (Long.MAX_VALUE, aLongs.getAsLong (3));
+    assertEquals ("[1,200,-3,9223372036854775807]", aLongs.getAsJsonString ());
+
+    final CompactJsonArray aDoubles = (CompactJsonArray) _readCompact ("[1.5,2.25]");
+    assertTrue (aDoubles.isDoubleArray ());
+    assertEquals (2.25, aDoubles.getAsDouble (1), 0);
+
+    final CompactJsonArray aMixed = (CompactJsonArray) _readCompact ("[1,1.5,\"a\",null,true,[]]");
+    assertFalse (aMixed.isLongArray ());
+    assertFalse (aMixed.isDoubleArray ());
+    assertEquals (6, aMixed.size ());
+    assertTrue (aMixed.getArrayAtIndex (5).isEmpty ());
+
+    final CompactJsonArray aSub = aLongs.getSubArray (1, 3);
+    assertEquals (2, aSub.size ());
+    assertEquals (-3, aSub.getAsInt (1));
+
+    final JsonArray aClone = aLongs.getClone ();
+    assertEquals (JsonReader.readFromString ("[1,200,-3,9223372036854775807]"), aClone);
+    CommonsTestHelper.testDefaultSerialization (aLongs);
+    CommonsTestHelper.testDefaultSerialization (aMixed);
+  }
+
+  @Test
+  public void testBigNumbers ()
+  {
+    final IJsonArray aArray = _readCompact ("[12345678901234567890,1.2345678901234567890,1e3]").getAsArray ();
+    assertEquals (new BigInteger ("12345678901234567890"), aArray.getValue (0));
+    assertEquals (new BigDecimal ("1.2345678901234567890"), aArray.getValue (1));
+    assertEquals (BigInteger.valueOf (1000), aArray.getValue (2));
+    assertTrue (aArray.getValueAtIndex (0).isIntValue ());
+    assertTrue (aArray.getValueAtIndex (1).isDecimalValue ());
+  }
+}
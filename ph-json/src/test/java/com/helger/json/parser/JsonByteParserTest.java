@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.commons.io.stream.NonBlockingStringReader;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.json.IJson;
+import com.helger.json.IJsonArray;
+import com.helger.json.parser.handler.StringAssemblyJsonParserHandler;
+import com.helger.json.serialize.JsonReader;
+
+/**
+ * Test class for class {@link JsonByteParser}.
+ *
+ * @author Philip Helger
+ */
+public final class JsonByteParserTest
+{
+  private static final String [] VALID = { "{}",
+                                           "[]",
+                                           "  5 ",
+                                           "-0.5e-3",
+                                           "12345678901234567890",
+                                           "{\"a\":[1,2.5,true,false,null],\"b\" : { } }",
+                                           "[\"x\\ny\\u0041\\\"\\\\\\/\"]",
+                                           "[\"\u00E4\u00F6\u00FC\u20AC\\t\uD834\uDD1E\"]",
+                                           "/* c1 */ [1, /* c2 \u00E4 */ 2] /**/",
+                                           "{'a':'b'}",
+                                           "\uFEFF{\"bom\":1}" };
+
+  private static void _assertSameAsCharParser (@Nonnull final String sJson) throws JsonParseException
+  {
+    // The char parser does not handle the BOM
+    final String sJsonWithoutBOM = sJson.startsWith ("\uFEFF") ? sJson.substring (1) : sJson;
+    final byte [] aBytes = sJson.getBytes (StandardCharsets.UTF_8);
+
+    // Tree
+    final IJson aExpected = JsonReader.readFromString (sJsonWithoutBOM);
+    assertNotNull (sJson, aExpected);
+    assertEquals (sJson, aExpected, JsonReader.readJson (ByteBuffer.wrap (aBytes), null, null));
+
+    // Original content
+    final StringAssemblyJsonParserHandler aCharHandler = new StringAssemblyJsonParserHandler ();
+    new JsonParser (new NonBlockingStringReader (sJsonWithoutBOM), aCharHandler).parse ();
+    final StringAssemblyJsonParserHandler aByteHandler = new StringAssemblyJsonParserHandler ();
+    new JsonByteParser (aBytes, aByteHandler).parse ();
+    assertEquals (sJson, aCharHandler.getJsonString (), aByteHandler.getJsonString ());
+  }
+
+  @Test
+  public void testValid () throws JsonParseException
+  {
+    for (final String sJson : VALID)
+      _assertSameAsCharParser (sJson);
+  }
+
+  @Test
+  public void testInvalid ()
+  {
+    for (final String sJson : new String [] { "",
+                                              "[1,]",
+                                              "{\"a\" 1}",
+                                              "[1 2]",
+                                              "{\"a\":1",
+                                              "[1]x",
+                                              "tru",
+                                              "[\"a\\x\"]",
+                                              "[\"a\nb\"]",
+                                              "[\"abc",
+                                              "[1.]",
+                                              "/* abc" })
+      assertNull (sJson, JsonReader.readJson (ByteBuffer.wrap (sJson.getBytes (StandardCharsets.UTF_8)), null, ex -> {}));
+  }
+
+  @Test
+  public void testErrorPosition ()
+  {
+    final String sJson = "{\n  \"a\": [1,\n\tx]}";
+    JsonParseException aCharEx = null;
+    try
+    {
+      new JsonParser (new NonBlockingStringReader (sJson), new StringAssemblyJsonParserHandler ()).setTrackPosition (true)
+                                                                                                 .parse ();
+    }
+    catch (final JsonParseException ex)
+    {
+      aCharEx = ex;
+    }
+    assertNotNull (aCharEx);
+
+    JsonParseException aByteEx = null;
+    try
+    {
+      new JsonByteParser (sJson.getBytes (StandardCharsets.UTF_8),
+                          new StringAssemblyJsonParserHandler ()).setTrackPosition (true).parse ();
+    }
+    catch (final JsonParseException ex)
+    {
+      aByteEx = ex;
+    }
+    assertNotNull (aByteEx);
+    assertEquals (aCharEx.getMessage (), aByteEx.getMessage ());
+  }
+
+  @Test
+  public void testFiles () throws JsonParseException
+  {
+    for (final String sFilename : new String [] { "json.org.example1.json",
+                                                  "json.org.example2.json",
+                                                  "json.org.example3.json",
+                                                  "json.org.example4.json",
+                                                  "json.org.example5.json",
+                                                  "pass1.json",
+                                                  "pass2.json" })
+    {
+      final String sJson = StreamHelper.getAllBytesAsString (new ClassPathResource ("json/" + sFilename),
+                                                             StandardCharsets.UTF_8);
+      assertNotNull (sFilename, sJson);
+      _assertSameAsCharParser (sJson);
+    }
+  }
+
+  @Test
+  public void testInternedNames ()
+  {
+    final IJson aJson = JsonReader.builder ()
+                                  .setByteSource ("[{\"name\":1},{\"name\":2}]".getBytes (StandardCharsets.UTF_8))
+                                  .read ();
+    assertNotNull (aJson);
+    final IJsonArray aArray = aJson.getAsArray ();
+    assertSame (aArray.getObjectAtIndex (0).keySet ().iterator ().next (),
+                aArray.getObjectAtIndex (1).keySet ().iterator ().next ());
+  }
+
+  @Test
+  public void testDirectBuffer ()
+  {
+    final byte [] aBytes = "{\"a\":\"\u00E4\u00F6\u00FC\",\"b\":[1,2,3]}".getBytes (StandardCharsets.UTF_8);
+    final ByteBuffer aBuffer = ByteBuffer.allocateDirect (aBytes.length);
+    aBuffer.put (aBytes).flip ();
+    assertEquals (JsonReader.readFromString ("{\"a\":\"\u00E4\u00F6\u00FC\",\"b\":[1,2,3]}"),
+                  JsonReader.builder ().setByteSource (aBuffer).read ());
+    // Position unchanged
+    assertEquals (0, aBuffer.position ());
+  }
+}
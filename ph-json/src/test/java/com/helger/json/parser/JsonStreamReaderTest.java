@@ -0,0 +1,225 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.commons.io.stream.NonBlockingStringReader;
+import com.helger.json.serialize.JsonReader;
+
+/**
+ * Test class for class {@link JsonStreamReader}.
+ *
+ * @author Philip Helger
+ */
+public final class JsonStreamReaderTest
+{
+  @Nonnull
+  private static JsonStreamReader _create (@Nonnull final String sJson)
+  {
+    return new JsonStreamReader (new NonBlockingStringReader (sJson));
+  }
+
+  @Test
+  public void testTokens () throws JsonParseException
+  {
+    try (final JsonStreamReader aReader = _create ("{\"a\":[1,2.5,-3e2],\"b\" : {\"c\":true,\"d\":false} , 'e':null, \"f\":\"x\\ny\"}"))
+    {
+      assertEquals (EJsonToken.START_OBJECT, aReader.nextToken ());
+      assertEquals (1, aReader.getDepth ());
+      assertEquals (EJsonToken.NAME, aReader.nextToken ());
+      assertEquals ("a", aReader.readString ());
+      assertEquals (EJsonToken.START_ARRAY, aReader.nextToken ());
+      assertEquals (2, aReader.getDepth ());
+      assertEquals (EJsonToken.NUMBER, aReader.nextToken ());
+      assertEquals (1, aReader.readInt ());
+      assertEquals (Integer.valueOf (1), aReader.readNumber ());
+      assertEquals (EJsonToken.NUMBER, aReader.nextToken ());
+      assertEquals (2.5, aReader.readDouble (), 0);
+      assertEquals (EJsonToken.NUMBER, aReader.nextToken ());
+      assertEquals (-300, aReader.readLong ());
+      assertEquals (EJsonToken.END_ARRAY, aReader.nextToken ());
+      assertEquals (EJsonToken.NAME, aReader.nextToken ());
+      assertTrue (aReader.isText ("b"));
+      assertEquals (EJsonToken.START_OBJECT, aReader.nextToken ());
+      assertEquals (EJsonToken.NAME, aReader.nextToken ());
+      assertEquals (EJsonToken.TRUE, aReader.nextToken ());
+      assertTrue (aReader.readBoolean ());
+      assertEquals (EJsonToken.NAME, aReader.nextToken ());
+      assertEquals (EJsonToken.FALSE, aReader.nextToken ());
+      assertFalse (aReader.readBoolean ());
+      assertEquals (EJsonToken.END_OBJECT, aReader.nextToken ());
+      assertEquals (EJsonToken.NAME, aReader.nextToken ());
+      assertEquals ("e", aReader.readString ());
+      assertEquals (EJsonToken.NULL, aReader.nextToken ());
+      assertEquals (EJsonToken.NAME, aReader.nextToken ());
+      assertEquals (EJsonToken.STRING, aReader.nextToken ());
+      assertEquals ("x\ny", aReader.readString ());
+      assertEquals (EJsonToken.END_OBJECT, aReader.nextToken ());
+      assertEquals (0, aReader.getDepth ());
+      assertNull (aReader.nextToken ());
+      assertNull (aReader.nextToken ());
+    }
+  }
+
+  @Test
+  public void testSkipChildren () throws JsonParseException
+  {
+    try (final JsonStreamReader aReader = _create ("{\"skip\":{\"x\":[1,[2,{}],\"y\"]},\"keep\":42 /* comment */}"))
+    {
+      assertEquals (EJsonToken.START_OBJECT, aReader.nextToken ());
+      assertEquals (EJsonToken.NAME, aReader.nextToken ());
+      assertTrue (aReader.isText ("skip"));
+      aReader.skipValue ();
+      assertEquals (1, aReader.getDepth ());
+      assertEquals (EJsonToken.NAME, aReader.nextToken ());
+      assertEquals ("keep", aReader.readString ());
+      assertEquals (EJsonToken.NUMBER, aReader.nextToken ());
+      assertEquals (42, aReader.readInt ());
+      assertEquals (EJsonToken.END_OBJECT, aReader.nextToken ());
+      assertNull (aReader.nextToken ());
+    }
+  }
+
+  @Test
+  public void testNumbers () throws JsonParseException
+  {
+    try (final JsonStreamReader aReader = _create ("[9223372036854775807,-9223372036854775808,9223372036854775808,1.0,1.5]"))
+    {
+      assertEquals (EJsonToken.START_ARRAY, aReader.nextToken ());
+      aReader.nextToken ();
+      assertEquals (Long.MAX_VALUE, aReader.readLong ());
+      aReader.nextToken ();
+      assertEquals (Long.MIN_VALUE, aReader.readLong ());
+      aReader.nextToken ();
+      try
+      {
+        aReader.readLong ();
+        fail ();
+      }
+      catch (final JsonParseException ex)
+      {
+        // expected
+      }
+      assertEquals (new BigDecimal ("9223372036854775808"), aReader.readBigDecimal ());
+      aReader.nextToken ();
+      assertEquals (1, aReader.readLong ());
+      aReader.nextToken ();
+      try
+      {
+        aReader.readInt ();
+        fail ();
+      }
+      catch (final JsonParseException ex)
+      {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testErrors ()
+  {
+    for (final String sJson : new String [] { "[1,]", "{\"a\" 1}", "[1 2]", "{\"a\":1", "[1]x", "tru" })
+      try (final JsonStreamReader aReader = _create (sJson))
+      {
+        while (aReader.nextToken () != null)
+        {}
+        fail (sJson);
+      }
+      catch (final JsonParseException ex)
+      {
+        // expected
+      }
+  }
+
+  @Test
+  public void testMultipleRoots () throws JsonParseException
+  {
+    try (final JsonStreamReader aReader = _create ("{} [] 5").setCheckForEOI (false))
+    {
+      assertEquals (EJsonToken.START_OBJECT, aReader.nextToken ());
+      assertEquals (EJsonToken.END_OBJECT, aReader.nextToken ());
+      assertEquals (EJsonToken.START_ARRAY, aReader.nextToken ());
+      assertEquals (EJsonToken.END_ARRAY, aReader.nextToken ());
+      assertEquals (EJsonToken.NUMBER, aReader.nextToken ());
+      assertNull (aReader.nextToken ());
+    }
+  }
+
+  @Test
+  public void testParserSettings () throws JsonParseException
+  {
+    // Settings are applied to the underlying tokenizer
+    try (final JsonStreamReader aReader = _create ("/* c */ {abc:'x', \"d\":\ntrue}").setRequireStringQuotes (false)
+                                                                                      .setTrackPosition (true))
+    {
+      assertFalse (aReader.isRequireStringQuotes ());
+      assertEquals (EJsonToken.START_OBJECT, aReader.nextToken ());
+      assertEquals (EJsonToken.NAME, aReader.nextToken ());
+      assertTrue (aReader.isText ("abc"));
+      assertEquals (EJsonToken.STRING, aReader.nextToken ());
+      assertEquals ("x", aReader.readString ());
+      assertEquals (EJsonToken.NAME, aReader.nextToken ());
+      assertEquals (1, aReader.getLineNumber ());
+      assertEquals (EJsonToken.TRUE, aReader.nextToken ());
+      assertEquals (2, aReader.getLineNumber ());
+      assertEquals (EJsonToken.END_OBJECT, aReader.nextToken ());
+      assertNull (aReader.nextToken ());
+    }
+
+    try (final JsonStreamReader aReader = _create ("{abc:1}"))
+    {
+      assertEquals (EJsonToken.START_OBJECT, aReader.nextToken ());
+      aReader.nextToken ();
+      fail ();
+    }
+    catch (final JsonParseException ex)
+    {
+      // expected - quotes are required by default
+    }
+  }
+
+  @Test
+  public void testWrongTokenAccess () throws JsonParseException
+  {
+    try (final JsonStreamReader aReader = new JsonReader.Builder ().setSource ("[true]").createStreamReader ())
+    {
+      assertEquals (EJsonToken.START_ARRAY, aReader.nextToken ());
+      assertEquals (EJsonToken.TRUE, aReader.nextToken ());
+      try
+      {
+        aReader.readString ();
+        fail ();
+      }
+      catch (final IllegalStateException ex)
+      {
+        // expected
+      }
+    }
+  }
+}
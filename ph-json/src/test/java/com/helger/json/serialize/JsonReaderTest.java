@@ -265,6 +265,12 @@ public final class JsonReaderTest
           final IJson aJson = aBuilder.read ();
           assertNotNull ("Failed to parse: " + f.getAbsolutePath (), aJson);
           LOGGER.info ("  Reading: " + aSW2.stopAndGetMillis () + " ms");
+
+          // Memory mapped source must lead to the same result
+          try (final JsonReader.Builder aMappedBuilder = JsonReader.builder ().setMemoryMappedSource (f.toPath ()))
+          {
+            assertEquals ("Mapped parsing differs: " + f.getAbsolutePath (), aJson, aMappedBuilder.read ());
+          }
         }
       }
   }
@@ -28,6 +28,7 @@ import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.OverrideOnDemand;
 import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.callback.CallbackList;
+import com.helger.commons.collection.ArrayHelper;
 import com.helger.commons.collection.impl.CommonsEnumMap;
 import com.helger.commons.collection.impl.ICommonsIterable;
 import com.helger.commons.collection.impl.ICommonsList;
@@ -48,7 +49,11 @@ public abstract class AbstractMicroNode implements IMicroNode
 {
   /** The parent node of this node. */
   private AbstractMicroNodeWithChildren m_aParentNode;
-  private CommonsEnumMap <EMicroEvent, CallbackList <IMicroEventTarget>> m_aEventTargets;
+  /**
+   * The event targets indexed by the ordinal of {@link EMicroEvent}. Only
+   * created if at least one event target is registered.
+   */
+  private CallbackList <IMicroEventTarget> [] m_aEventTargets;
 
   /**
    * Callback that is invoked once a child is to be appended.
@@ -431,10 +436,10 @@ public abstract class AbstractMicroNode implements IMicroNode
   protected final void internalTriggerEvent (@Nonnull final EMicroEvent eEventType, @Nonnull final IMicroEvent aEvent)
   {
     // Any event targets present?
-    if (m_aEventTargets != null && m_aEventTargets.isNotEmpty ())
+    if (m_aEventTargets != null)
     {
       // Get all event handler
-      final CallbackList <IMicroEventTarget> aTargets = m_aEventTargets.get (eEventType);
+      final CallbackList <IMicroEventTarget> aTargets = m_aEventTargets[eEventType.ordinal ()];
       if (aTargets != null)
         aTargets.forEach (x -> x.handleEvent (aEvent));
     }
@@ -453,15 +458,20 @@ public abstract class AbstractMicroNode implements IMicroNode
   }
 
   @Nonnull
+  @SuppressWarnings ({ "unchecked", "rawtypes" })
   public EChange registerEventTarget (@Nonnull final EMicroEvent eEventType, @Nonnull final IMicroEventTarget aTarget)
   {
     ValueEnforcer.notNull (eEventType, "EventType");
     ValueEnforcer.notNull (aTarget, "EventTarget");
 
     if (m_aEventTargets == null)
-      m_aEventTargets = new CommonsEnumMap <> (EMicroEvent.class);
-    final CallbackList <IMicroEventTarget> aSet = m_aEventTargets.computeIfAbsent (eEventType,
-                                                                                   k -> new CallbackList <> ());
+      m_aEventTargets = new CallbackList [EMicroEvent.values ().length];
+    CallbackList <IMicroEventTarget> aSet = m_aEventTargets[eEventType.ordinal ()];
+    if (aSet == null)
+    {
+      aSet = new CallbackList <> ();
+      m_aEventTargets[eEventType.ordinal ()] = aSet;
+    }
     return EChange.valueOf (aSet.add (aTarget));
   }
 
@@ -471,11 +481,22 @@ public abstract class AbstractMicroNode implements IMicroNode
     ValueEnforcer.notNull (eEventType, "EventType");
     ValueEnforcer.notNull (aTarget, "EventTarget");
 
-    if (m_aEventTargets != null && m_aEventTargets.isNotEmpty ())
+    if (m_aEventTargets != null)
     {
-      final CallbackList <IMicroEventTarget> aSet = m_aEventTargets.get (eEventType);
+      final int nIndex = eEventType.ordinal ();
+      final CallbackList <IMicroEventTarget> aSet = m_aEventTargets[nIndex];
       if (aSet != null)
-        return aSet.removeObject (aTarget);
+      {
+        final EChange eChange = aSet.removeObject (aTarget);
+        if (aSet.isEmpty ())
+        {
+          // Release the memory if no event target is left
+          m_aEventTargets[nIndex] = null;
+          if (ArrayHelper.containsOnlyNullElements (m_aEventTargets))
+            m_aEventTargets = null;
+        }
+        return eChange;
+      }
     }
     return EChange.UNCHANGED;
   }
@@ -484,14 +505,23 @@ public abstract class AbstractMicroNode implements IMicroNode
   @ReturnsMutableCopy
   public ICommonsMap <EMicroEvent, CallbackList <IMicroEventTarget>> getAllEventTargets ()
   {
-    return new CommonsEnumMap <> (m_aEventTargets);
+    final ICommonsMap <EMicroEvent, CallbackList <IMicroEventTarget>> ret = new CommonsEnumMap <> (EMicroEvent.class);
+    if (m_aEventTargets != null)
+      for (final EMicroEvent eEvent : EMicroEvent.values ())
+      {
+        final CallbackList <IMicroEventTarget> aSet = m_aEventTargets[eEvent.ordinal ()];
+        if (aSet != null)
+          ret.put (eEvent, aSet);
+      }
+    return ret;
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public CallbackList <IMicroEventTarget> getAllEventTargets (@Nullable final EMicroEvent eEvent)
   {
-    return new CallbackList <> (m_aEventTargets == null ? null : m_aEventTargets.get (eEvent));
+    return new CallbackList <> (m_aEventTargets == null || eEvent == null ? null
+                                                                          : m_aEventTargets[eEvent.ordinal ()]);
   }
 
   @Override
@@ -499,7 +529,8 @@ public abstract class AbstractMicroNode implements IMicroNode
   {
     return new ToStringGenerator (this).appendIfNotNull ("ParentNodeName",
                                                          m_aParentNode == null ? null : m_aParentNode.getNodeName ())
-                                       .appendIfNotNull ("EventTargets", m_aEventTargets)
+                                       .appendIfNotNull ("EventTargets",
+                                                         m_aEventTargets == null ? null : getAllEventTargets ())
                                        .getToString ();
   }
 }
@@ -45,6 +45,12 @@ import com.helger.commons.typeconvert.TypeConverter;
  */
 public abstract class AbstractMicroNodeWithChildren extends AbstractMicroNode implements IMicroNodeWithChildren
 {
+  /**
+   * The initial capacity of the child list. Most nodes have only very few
+   * children, so the default capacity of 10 wastes a lot of memory.
+   */
+  private static final int INITIAL_CHILD_CAPACITY = 2;
+
   /** The list of child elements. May be <code>null</code>. */
   private ICommonsList <IMicroNode> m_aChildren;
 
@@ -71,7 +77,7 @@ public abstract class AbstractMicroNodeWithChildren extends AbstractMicroNode im
     if (aChildNode.isDocument ())
       throw new MicroException ("Cannot add document to documents");
     if (m_aChildren == null)
-      m_aChildren = new CommonsArrayList <> ();
+      m_aChildren = new CommonsArrayList <> (INITIAL_CHILD_CAPACITY);
     m_aChildren.add (aChildNode);
     _afterInsertAsChildOfThis (aChildNode);
   }
@@ -114,7 +120,7 @@ public abstract class AbstractMicroNodeWithChildren extends AbstractMicroNode im
     if (aChildNode.isDocument ())
       throw new MicroException ("Cannot add document to nodes");
     if (m_aChildren == null)
-      m_aChildren = new CommonsArrayList <> ();
+      m_aChildren = new CommonsArrayList <> (INITIAL_CHILD_CAPACITY);
     m_aChildren.add (Math.min (nIndex, m_aChildren.size ()), aChildNode);
     _afterInsertAsChildOfThis (aChildNode);
   }
@@ -16,6 +16,8 @@
  */
 package com.helger.xml.microdom;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -34,6 +36,7 @@ import com.helger.commons.annotation.ReturnsImmutableObject;
 import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.collection.impl.CommonsArrayList;
 import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.CommonsLinkedHashSet;
 import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.collection.impl.ICommonsOrderedMap;
 import com.helger.commons.collection.impl.ICommonsOrderedSet;
@@ -56,11 +59,20 @@ import com.helger.xml.CXMLRegEx;
  */
 public final class MicroElement extends AbstractMicroNodeWithChildren implements IMicroElement
 {
+  /**
+   * The maximum number of attributes stored in an array. If more attributes
+   * are present, a map is used.
+   */
+  public static final int MAX_ATTR_ARRAY_LENGTH = 8;
+
   private static final Logger LOGGER = LoggerFactory.getLogger (MicroElement.class);
 
   private String m_sNamespaceURI;
   private final String m_sTagName;
-  private ICommonsOrderedMap <IMicroQName, MicroAttribute> m_aAttrs;
+  // Small number of attributes are stored in an exactly sized array, larger
+  // numbers in a map. At most one of the two fields is non-null.
+  private MicroAttribute [] m_aAttrArray;
+  private ICommonsOrderedMap <IMicroQName, MicroAttribute> m_aAttrMap;
 
   public MicroElement (@Nonnull @Nonempty final String sTagName)
   {
@@ -112,36 +124,38 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
 
   public boolean hasAttributes ()
   {
-    return m_aAttrs != null && m_aAttrs.isNotEmpty ();
+    return m_aAttrArray != null || m_aAttrMap != null;
   }
 
   public boolean hasNoAttributes ()
   {
-    return m_aAttrs == null || m_aAttrs.isEmpty ();
+    return m_aAttrArray == null && m_aAttrMap == null;
   }
 
   @Nonnegative
   public int getAttributeCount ()
   {
-    return m_aAttrs == null ? 0 : m_aAttrs.size ();
+    if (m_aAttrArray != null)
+      return m_aAttrArray.length;
+    return m_aAttrMap == null ? 0 : m_aAttrMap.size ();
   }
 
   @Nullable
   @ReturnsImmutableObject
   public Iterable <MicroAttribute> getAttributeObjs ()
   {
-    if (hasNoAttributes ())
-      return null;
-    return m_aAttrs.values ();
+    if (m_aAttrArray != null)
+      return Collections.unmodifiableList (Arrays.asList (m_aAttrArray));
+    return m_aAttrMap == null ? null : m_aAttrMap.values ();
   }
 
   @Nullable
   @ReturnsMutableCopy
   public ICommonsList <MicroAttribute> getAllAttributeObjs ()
   {
-    if (hasNoAttributes ())
-      return null;
-    return m_aAttrs.copyOfValues ();
+    if (m_aAttrArray != null)
+      return new CommonsArrayList <> (m_aAttrArray);
+    return m_aAttrMap == null ? null : m_aAttrMap.copyOfValues ();
   }
 
   @Nullable
@@ -150,44 +164,70 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
   {
     if (hasNoAttributes ())
       return null;
-    return new CommonsLinkedHashMap <> (m_aAttrs.values (),
-                                        IMicroAttribute::getAttributeQName,
-                                        IMicroAttribute::getAttributeValue);
+    final ICommonsOrderedMap <IMicroQName, String> ret = new CommonsLinkedHashMap <> (getAttributeCount ());
+    forAllAttributes ( (aQName, sValue) -> ret.put (aQName, sValue));
+    return ret;
   }
 
   @Nullable
   @ReturnsMutableCopy
   public ICommonsOrderedSet <IMicroQName> getAllAttributeQNames ()
   {
-    if (hasNoAttributes ())
-      return null;
-    return m_aAttrs.copyOfKeySet ();
+    if (m_aAttrArray != null)
+    {
+      final ICommonsOrderedSet <IMicroQName> ret = new CommonsLinkedHashSet <> (m_aAttrArray.length);
+      for (final MicroAttribute aAttr : m_aAttrArray)
+        ret.add (aAttr.getAttributeQName ());
+      return ret;
+    }
+    return m_aAttrMap == null ? null : m_aAttrMap.copyOfKeySet ();
   }
 
   public void forAllAttributes (@Nonnull final Consumer <? super IMicroAttribute> aConsumer)
   {
-    if (m_aAttrs != null)
-      m_aAttrs.forEachValue (aConsumer);
+    if (m_aAttrArray != null)
+    {
+      for (final MicroAttribute aAttr : m_aAttrArray)
+        aConsumer.accept (aAttr);
+    }
+    else
+      if (m_aAttrMap != null)
+        m_aAttrMap.forEachValue (aConsumer);
   }
 
   public void forAllAttributes (@Nonnull final BiConsumer <? super IMicroQName, ? super String> aConsumer)
   {
-    if (m_aAttrs != null)
-      m_aAttrs.forEachValue (a -> aConsumer.accept (a.getAttributeQName (), a.getAttributeValue ()));
+    forAllAttributes ((Consumer <? super IMicroAttribute>) a -> aConsumer.accept (a.getAttributeQName (),
+                                                                                 a.getAttributeValue ()));
   }
 
   public void forAllAttributes (@Nonnull final ITriConsumer <? super String, ? super String, ? super String> aConsumer)
   {
-    if (m_aAttrs != null)
-      m_aAttrs.forEachValue (x -> aConsumer.accept (x.getNamespaceURI (),
-                                                    x.getAttributeName (),
-                                                    x.getAttributeValue ()));
+    forAllAttributes ((Consumer <? super IMicroAttribute>) x -> aConsumer.accept (x.getNamespaceURI (),
+                                                                                 x.getAttributeName (),
+                                                                                 x.getAttributeValue ()));
+  }
+
+  private int _getAttrArrayIndex (@Nonnull final IMicroQName aQName)
+  {
+    final MicroAttribute [] aAttrArray = m_aAttrArray;
+    for (int i = 0; i < aAttrArray.length; ++i)
+      if (aAttrArray[i].getAttributeQName ().equals (aQName))
+        return i;
+    return -1;
   }
 
   @Nullable
   public MicroAttribute getAttributeObj (@Nullable final IMicroQName aQName)
   {
-    return aQName == null || m_aAttrs == null ? null : m_aAttrs.get (aQName);
+    if (aQName == null)
+      return null;
+    if (m_aAttrArray != null)
+    {
+      final int nIndex = _getAttrArrayIndex (aQName);
+      return nIndex < 0 ? null : m_aAttrArray[nIndex];
+    }
+    return m_aAttrMap == null ? null : m_aAttrMap.get (aQName);
   }
 
   @Nullable
@@ -211,15 +251,39 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
 
   public boolean hasAttribute (@Nullable final IMicroQName aAttrName)
   {
-    return m_aAttrs != null && aAttrName != null && m_aAttrs.containsKey (aAttrName);
+    return getAttributeObj (aAttrName) != null;
   }
 
   @Nonnull
   public EChange removeAttribute (@Nullable final IMicroQName aAttrName)
   {
-    if (m_aAttrs == null || aAttrName == null)
+    if (aAttrName == null)
       return EChange.UNCHANGED;
-    return m_aAttrs.removeObject (aAttrName);
+
+    if (m_aAttrArray != null)
+    {
+      final int nIndex = _getAttrArrayIndex (aAttrName);
+      if (nIndex < 0)
+        return EChange.UNCHANGED;
+      final int nNewLength = m_aAttrArray.length - 1;
+      if (nNewLength == 0)
+        m_aAttrArray = null;
+      else
+      {
+        final MicroAttribute [] aNewArray = new MicroAttribute [nNewLength];
+        System.arraycopy (m_aAttrArray, 0, aNewArray, 0, nIndex);
+        System.arraycopy (m_aAttrArray, nIndex + 1, aNewArray, nIndex, nNewLength - nIndex);
+        m_aAttrArray = aNewArray;
+      }
+      return EChange.CHANGED;
+    }
+
+    if (m_aAttrMap == null)
+      return EChange.UNCHANGED;
+    final EChange ret = m_aAttrMap.removeObject (aAttrName);
+    if (m_aAttrMap.isEmpty ())
+      m_aAttrMap = null;
+    return ret;
   }
 
   @Nonnull
@@ -228,9 +292,42 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
     ValueEnforcer.notNull (aAttrName, "AttrName");
     if (sAttrValue != null)
     {
-      if (m_aAttrs == null)
-        m_aAttrs = new CommonsLinkedHashMap <> ();
-      m_aAttrs.put (aAttrName, new MicroAttribute (aAttrName, sAttrValue));
+      final MicroAttribute aAttr = new MicroAttribute (aAttrName, sAttrValue);
+      if (m_aAttrMap != null)
+        m_aAttrMap.put (aAttrName, aAttr);
+      else
+        if (m_aAttrArray == null)
+          m_aAttrArray = new MicroAttribute [] { aAttr };
+        else
+        {
+          final int nIndex = _getAttrArrayIndex (aAttrName);
+          if (nIndex >= 0)
+          {
+            // Overwrite existing attribute at the same position
+            m_aAttrArray[nIndex] = aAttr;
+          }
+          else
+          {
+            final int nOldLength = m_aAttrArray.length;
+            if (nOldLength < MAX_ATTR_ARRAY_LENGTH)
+            {
+              // Attribute arrays are always exactly sized
+              final MicroAttribute [] aNewArray = new MicroAttribute [nOldLength + 1];
+              System.arraycopy (m_aAttrArray, 0, aNewArray, 0, nOldLength);
+              aNewArray[nOldLength] = aAttr;
+              m_aAttrArray = aNewArray;
+            }
+            else
+            {
+              // Too many attributes - switch to a map for faster lookup
+              m_aAttrMap = new CommonsLinkedHashMap <> (nOldLength * 2);
+              for (final MicroAttribute aOldAttr : m_aAttrArray)
+                m_aAttrMap.put (aOldAttr.getAttributeQName (), aOldAttr);
+              m_aAttrMap.put (aAttrName, aAttr);
+              m_aAttrArray = null;
+            }
+          }
+        }
     }
     else
       removeAttribute (aAttrName);
@@ -240,9 +337,11 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
   @Nonnull
   public EChange removeAllAttributes ()
   {
-    if (m_aAttrs == null)
+    if (hasNoAttributes ())
       return EChange.UNCHANGED;
-    return m_aAttrs.removeAll ();
+    m_aAttrArray = null;
+    m_aAttrMap = null;
+    return EChange.CHANGED;
   }
 
   @Nullable
@@ -384,8 +483,11 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
     final MicroElement ret = new MicroElement (m_sNamespaceURI, m_sTagName);
 
     // Copy attributes
-    if (m_aAttrs != null)
-      ret.m_aAttrs = new CommonsLinkedHashMap <> (m_aAttrs);
+    if (m_aAttrArray != null)
+      ret.m_aAttrArray = m_aAttrArray.clone ();
+    else
+      if (m_aAttrMap != null)
+        ret.m_aAttrMap = new CommonsLinkedHashMap <> (m_aAttrMap);
 
     // Deep clone all child nodes
     forAllChildren (aChildNode -> ret.appendChild (aChildNode.getClone ()));
@@ -402,7 +504,26 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
     final MicroElement rhs = (MicroElement) o;
     return EqualsHelper.equals (m_sNamespaceURI, rhs.m_sNamespaceURI) &&
            m_sTagName.equals (rhs.m_sTagName) &&
-           EqualsHelper.equals (m_aAttrs, rhs.m_aAttrs);
+           _isEqualAttributes (rhs);
+  }
+
+  private boolean _isEqualAttributes (@Nonnull final MicroElement rhs)
+  {
+    // The order of attributes is not relevant
+    if (getAttributeCount () != rhs.getAttributeCount ())
+      return false;
+    if (m_aAttrArray != null)
+    {
+      for (final MicroAttribute aAttr : m_aAttrArray)
+        if (!aAttr.equals (rhs.getAttributeObj (aAttr.getAttributeQName ())))
+          return false;
+      return true;
+    }
+    if (m_aAttrMap != null)
+      for (final MicroAttribute aAttr : m_aAttrMap.values ())
+        if (!aAttr.equals (rhs.getAttributeObj (aAttr.getAttributeQName ())))
+          return false;
+    return true;
   }
 
   @Override
@@ -411,7 +532,7 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
     return ToStringGenerator.getDerived (super.toString ())
                             .appendIfNotNull ("namespace", m_sNamespaceURI)
                             .append ("tagname", m_sTagName)
-                            .appendIfNotNull ("attrs", m_aAttrs)
+                            .appendIfNotNull ("attrs", getAllQAttributes ())
                             .getToString ();
   }
 }
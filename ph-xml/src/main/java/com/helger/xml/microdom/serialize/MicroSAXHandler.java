@@ -40,6 +40,8 @@ import org.xml.sax.ext.Locator2;
 
 import com.helger.commons.CGlobal;
 import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsMap;
 import com.helger.commons.error.level.EErrorLevel;
 import com.helger.commons.error.level.IErrorLevel;
 import com.helger.commons.location.SimpleLocation;
@@ -52,6 +54,7 @@ import com.helger.xml.microdom.IMicroNode;
 import com.helger.xml.microdom.IMicroText;
 import com.helger.xml.microdom.MicroDocument;
 import com.helger.xml.microdom.MicroDocumentType;
+import com.helger.xml.microdom.MicroQName;
 import com.helger.xml.sax.AbstractSAXErrorHandler;
 
 /**
@@ -76,6 +79,9 @@ public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHand
   private Locator m_aLocator;
   private String m_sSourceXMLVersion;
   private String m_sSourceXMLEncoding;
+  // Share equal names and attribute names within a document to save memory
+  private final ICommonsMap <String, String> m_aSharedNames = new CommonsHashMap <> ();
+  private final ICommonsMap <String, ICommonsMap <String, MicroQName>> m_aSharedAttrQNames = new CommonsHashMap <> ();
 
   public MicroSAXHandler (final boolean bSaveIgnorableWhitespaces,
                           @Nullable final EntityResolver aEntityResolver,
@@ -96,6 +102,19 @@ public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHand
     }
   }
 
+  @Nonnull
+  private String _getSharedName (@Nonnull final String sName)
+  {
+    return m_aSharedNames.computeIfAbsent (sName, k -> k);
+  }
+
+  @Nonnull
+  private MicroQName _getSharedAttrQName (@Nullable final String sNamespaceURI, @Nonnull final String sName)
+  {
+    return m_aSharedAttrQNames.computeIfAbsent (StringHelper.getNotNull (sNamespaceURI), k -> new CommonsHashMap <> ())
+                              .computeIfAbsent (sName, k -> new MicroQName (sNamespaceURI, _getSharedName (k)));
+  }
+
   private void _updatePosition (@Nonnull final String sWhat)
   {
     if (m_aLocator != null)
@@ -159,9 +178,9 @@ public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHand
 
     IMicroElement aElement;
     if (StringHelper.hasText (sNamespaceURI))
-      aElement = m_aParent.appendElement (sNamespaceURI, sLocalName);
+      aElement = m_aParent.appendElement (_getSharedName (sNamespaceURI), _getSharedName (sLocalName));
     else
-      aElement = m_aParent.appendElement (sLocalName);
+      aElement = m_aParent.appendElement (_getSharedName (sLocalName));
 
     // copy attributes
     if (aAttributes != null)
@@ -176,7 +195,7 @@ public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHand
         // Ignore the "xmlns" attributes, as the SAX handler passes the correct
         // namespace URIs
         if (!sAttrName.startsWith (XMLConstants.XMLNS_ATTRIBUTE))
-          aElement.setAttribute (sAttrNamespaceURI, sAttrName, sAttrValue);
+          aElement.setAttribute (_getSharedAttrQName (sAttrNamespaceURI, sAttrName), sAttrValue);
       }
     }
 
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.microdom.xpath;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.id.IHasID;
+import com.helger.commons.lang.EnumHelper;
+
+/**
+ * The XPath axes supported by {@link MicroXPath}.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+enum EMicroXPathAxis implements IHasID <String>
+{
+  CHILD ("child"),
+  DESCENDANT ("descendant"),
+  DESCENDANT_OR_SELF ("descendant-or-self"),
+  SELF ("self");
+
+  private final String m_sID;
+
+  EMicroXPathAxis (@Nonnull @Nonempty final String sID)
+  {
+    m_sID = sID;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getID ()
+  {
+    return m_sID;
+  }
+
+  public boolean isDescendant ()
+  {
+    return this == DESCENDANT || this == DESCENDANT_OR_SELF;
+  }
+
+  @Nullable
+  public static EMicroXPathAxis getFromIDOrNull (@Nullable final String sID)
+  {
+    return EnumHelper.getFromIDOrNull (EMicroXPathAxis.class, sID);
+  }
+}
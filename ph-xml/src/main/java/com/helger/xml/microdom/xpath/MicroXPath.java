@@ -0,0 +1,556 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.microdom.xpath;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.xml.namespace.NamespaceContext;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.iterate.IIterableIterator;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.IMicroNode;
+import com.helger.xml.microdom.xpath.MicroXPathStep.Filter;
+
+/**
+ * A compiled path expression that is evaluated directly on
+ * {@link IMicroNode} objects, without the need to convert them to W3C DOM
+ * nodes. It supports the following subset of XPath 1.0:
+ * <ul>
+ * <li>Absolute (<code>/a/b</code>, <code>//b</code>) and relative
+ * (<code>a/b</code>, <code>./a//b</code>) location paths</li>
+ * <li>The axes <code>child::</code> (default), <code>descendant::</code>,
+ * <code>descendant-or-self::</code> and <code>self::</code></li>
+ * <li>Name tests: <code>name</code> (no namespace), <code>prefix:name</code>,
+ * <code>prefix:*</code>, <code>*:name</code>, <code>*</code> and
+ * <code>node()</code></li>
+ * <li>Positional predicates: <code>[3]</code> and <code>[last()]</code></li>
+ * <li>Attribute predicates: <code>[@attr]</code>,
+ * <code>[@attr='value']</code>, <code>[@attr!=5]</code></li>
+ * <li>Child element and text predicates: <code>[child]</code>,
+ * <code>[child='value']</code>, <code>[text()='value']</code></li>
+ * <li>Combination of predicates with <code>and</code>, <code>or</code>,
+ * <code>not(...)</code> and parenthesis</li>
+ * </ul>
+ * Text values are the concatenated direct text children of an element (see
+ * {@link IMicroElement#getTextContent()}). Containers are transparent, so their
+ * children are treated as children of the container's parent. Absolute paths
+ * start at the topmost ancestor of the context node, which is usually the
+ * {@link com.helger.xml.microdom.IMicroDocument}.<br>
+ * Objects of this class are immutable and can be shared between threads. The
+ * evaluation is lazy: elements are only searched while the result iterator is
+ * consumed. The result contains no duplicates and is in document order, except
+ * if a descendant step follows a step that may return nested elements (like in
+ * <code>//a//b</code>).
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@Immutable
+public final class MicroXPath
+{
+  private final String m_sExpression;
+  private final boolean m_bAbsolute;
+  private final ICommonsList <MicroXPathStep> m_aSteps;
+  // Index of the first descendant step. Later descendant steps may create
+  // duplicates
+  private final int m_nFirstDescendantStep;
+
+  private MicroXPath (@Nonnull @Nonempty final String sExpression,
+                      final boolean bAbsolute,
+                      @Nonnull final ICommonsList <MicroXPathStep> aSteps)
+  {
+    m_sExpression = sExpression;
+    m_bAbsolute = bAbsolute;
+    m_aSteps = aSteps;
+    m_nFirstDescendantStep = aSteps.findFirstIndex (x -> x.getAxis ().isDescendant ());
+  }
+
+  /**
+   * @return The original expression as passed to the compile method. Neither
+   *         <code>null</code> nor empty.
+   */
+  @Nonnull
+  @Nonempty
+  public String getExpression ()
+  {
+    return m_sExpression;
+  }
+
+  /**
+   * @return <code>true</code> if the expression is an absolute path,
+   *         <code>false</code> if it is relative to the context node.
+   */
+  public boolean isAbsolute ()
+  {
+    return m_bAbsolute;
+  }
+
+  /**
+   * Evaluate this expression lazily on the provided context node.
+   *
+   * @param aContextNode
+   *        The context node to start at. May not be <code>null</code>.
+   * @return An iterator over all matching elements. Never <code>null</code>.
+   *         The iterator must not be used after the context node was modified.
+   */
+  @Nonnull
+  public IIterableIterator <IMicroElement> iterate (@Nonnull final IMicroNode aContextNode)
+  {
+    ValueEnforcer.notNull (aContextNode, "ContextNode");
+
+    IMicroNode aStart = aContextNode;
+    if (m_bAbsolute)
+      while (aStart.hasParent ())
+        aStart = aStart.getParent ();
+
+    Iterator <IMicroNode> aCur = new SingleIterator <> (aStart);
+    int nIndex = 0;
+    for (final MicroXPathStep aStep : m_aSteps)
+    {
+      aCur = new FlatMapIterator <> (aCur, x -> _evaluateStep (aStep, x));
+      if (nIndex > m_nFirstDescendantStep && aStep.getAxis ().isDescendant ())
+      {
+        // Nested context nodes may lead to duplicate results
+        aCur = new DistinctIterator (aCur);
+      }
+      nIndex++;
+    }
+    return new ElementIterator (aCur);
+  }
+
+  /**
+   * Get the first element matching this expression.
+   *
+   * @param aContextNode
+   *        The context node to start at. May not be <code>null</code>.
+   * @return <code>null</code> if no element matches.
+   */
+  @Nullable
+  public IMicroElement findFirst (@Nonnull final IMicroNode aContextNode)
+  {
+    final Iterator <IMicroElement> it = iterate (aContextNode);
+    return it.hasNext () ? it.next () : null;
+  }
+
+  /**
+   * Check if at least one element matches this expression.
+   *
+   * @param aContextNode
+   *        The context node to start at. May not be <code>null</code>.
+   * @return <code>true</code> if at least one element matches.
+   */
+  public boolean containsAny (@Nonnull final IMicroNode aContextNode)
+  {
+    return iterate (aContextNode).hasNext ();
+  }
+
+  /**
+   * Get all elements matching this expression.
+   *
+   * @param aContextNode
+   *        The context node to start at. May not be <code>null</code>.
+   * @return A list with all matching elements. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <IMicroElement> findAll (@Nonnull final IMicroNode aContextNode)
+  {
+    return new CommonsArrayList <> (iterate (aContextNode));
+  }
+
+  @Nonnull
+  private static Iterator <IMicroNode> _evaluateStep (@Nonnull final MicroXPathStep aStep,
+                                                      @Nonnull final IMicroNode aContextNode)
+  {
+    Iterator <IMicroNode> ret;
+    switch (aStep.getAxis ())
+    {
+      case CHILD:
+        ret = new ChildIterator (aContextNode, aStep);
+        break;
+      case DESCENDANT:
+        ret = new DescendantIterator (aContextNode, false, aStep);
+        break;
+      case DESCENDANT_OR_SELF:
+        ret = new DescendantIterator (aContextNode, true, aStep);
+        break;
+      case SELF:
+        if (!aStep.matchesNodeTest (aContextNode))
+          return Collections.emptyIterator ();
+        ret = new SingleIterator <> (aContextNode);
+        break;
+      default:
+        throw new IllegalStateException ("Unsupported axis " + aStep.getAxis ());
+    }
+    for (final Filter aFilter : aStep.filters ())
+      ret = new FilterIterator (ret, aFilter);
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (null).append ("Expression", m_sExpression)
+                                       .append ("Absolute", m_bAbsolute)
+                                       .append ("Steps", m_aSteps)
+                                       .getToString ();
+  }
+
+  /**
+   * Compile the provided expression. The expression may not contain namespace
+   * prefixes.
+   *
+   * @param sExpression
+   *        The expression to compile. May neither be <code>null</code> nor
+   *        empty.
+   * @return The compiled expression. Never <code>null</code>.
+   * @throws IllegalArgumentException
+   *         If the expression is invalid or uses unsupported features
+   */
+  @Nonnull
+  public static MicroXPath compile (@Nonnull @Nonempty final String sExpression)
+  {
+    return compile (sExpression, null);
+  }
+
+  /**
+   * Compile the provided expression.
+   *
+   * @param sExpression
+   *        The expression to compile. May neither be <code>null</code> nor
+   *        empty.
+   * @param aNamespaceContext
+   *        The namespace context used to resolve prefixes during compilation.
+   *        May be <code>null</code>.
+   * @return The compiled expression. Never <code>null</code>.
+   * @throws IllegalArgumentException
+   *         If the expression is invalid or uses unsupported features
+   */
+  @Nonnull
+  public static MicroXPath compile (@Nonnull @Nonempty final String sExpression,
+                                    @Nullable final NamespaceContext aNamespaceContext)
+  {
+    final MicroXPathParser aParser = new MicroXPathParser (sExpression, aNamespaceContext);
+    final ICommonsList <MicroXPathStep> aSteps = aParser.parse ();
+    return new MicroXPath (sExpression, aParser.isAbsolute (), aSteps);
+  }
+
+  /**
+   * Base class for iterators that determine the next element in advance.
+   *
+   * @param <T>
+   *        Element type
+   */
+  @NotThreadSafe
+  private abstract static class AbstractLookAheadIterator <T> implements Iterator <T>
+  {
+    private T m_aNext;
+    private boolean m_bNextResolved = false;
+
+    /**
+     * @return The next element or <code>null</code> if the end is reached.
+     */
+    @Nullable
+    protected abstract T computeNext ();
+
+    public final boolean hasNext ()
+    {
+      if (!m_bNextResolved)
+      {
+        m_aNext = computeNext ();
+        m_bNextResolved = true;
+      }
+      return m_aNext != null;
+    }
+
+    public final T next ()
+    {
+      if (!hasNext ())
+        throw new NoSuchElementException ();
+      final T ret = m_aNext;
+      m_aNext = null;
+      m_bNextResolved = false;
+      return ret;
+    }
+  }
+
+  @NotThreadSafe
+  private static final class SingleIterator <T> extends AbstractLookAheadIterator <T>
+  {
+    private T m_aItem;
+
+    SingleIterator (@Nonnull final T aItem)
+    {
+      m_aItem = aItem;
+    }
+
+    @Override
+    protected T computeNext ()
+    {
+      final T ret = m_aItem;
+      m_aItem = null;
+      return ret;
+    }
+  }
+
+  @NotThreadSafe
+  private static final class FlatMapIterator <T> extends AbstractLookAheadIterator <T>
+  {
+    private final Iterator <? extends T> m_aSource;
+    private final Function <? super T, ? extends Iterator <? extends T>> m_aMapper;
+    private Iterator <? extends T> m_aCur = Collections.emptyIterator ();
+
+    FlatMapIterator (@Nonnull final Iterator <? extends T> aSource,
+                     @Nonnull final Function <? super T, ? extends Iterator <? extends T>> aMapper)
+    {
+      m_aSource = aSource;
+      m_aMapper = aMapper;
+    }
+
+    @Override
+    protected T computeNext ()
+    {
+      while (!m_aCur.hasNext ())
+      {
+        if (!m_aSource.hasNext ())
+          return null;
+        m_aCur = m_aMapper.apply (m_aSource.next ());
+      }
+      return m_aCur.next ();
+    }
+  }
+
+  /**
+   * Iterates all child elements of a node, descending into containers.
+   */
+  @NotThreadSafe
+  private static final class ChildIterator extends AbstractLookAheadIterator <IMicroNode>
+  {
+    private final MicroXPathStep m_aStep;
+    // Stack of container nodes with the next child index to visit
+    private final Deque <IMicroNode> m_aNodes = new ArrayDeque <> ();
+    private final Deque <int []> m_aIndices = new ArrayDeque <> ();
+
+    ChildIterator (@Nonnull final IMicroNode aParent, @Nonnull final MicroXPathStep aStep)
+    {
+      m_aStep = aStep;
+      m_aNodes.push (aParent);
+      m_aIndices.push (new int [] { 0 });
+    }
+
+    @Override
+    protected IMicroNode computeNext ()
+    {
+      while (!m_aNodes.isEmpty ())
+      {
+        final IMicroNode aParent = m_aNodes.peek ();
+        final int [] aIndex = m_aIndices.peek ();
+        if (aIndex[0] >= aParent.getChildCount ())
+        {
+          m_aNodes.pop ();
+          m_aIndices.pop ();
+          continue;
+        }
+        final IMicroNode aChild = aParent.getChildAtIndex (aIndex[0]++);
+        if (aChild.isContainer ())
+        {
+          m_aNodes.push (aChild);
+          m_aIndices.push (new int [] { 0 });
+        }
+        else
+          if (aChild.isElement () && m_aStep.matchesNodeTest (aChild))
+            return aChild;
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Iterates all descendant elements of a node in document order.
+   */
+  @NotThreadSafe
+  private static final class DescendantIterator extends AbstractLookAheadIterator <IMicroNode>
+  {
+    private final MicroXPathStep m_aStep;
+    private IMicroNode m_aSelf;
+    // Stack of nodes with the next child index to visit
+    private final Deque <IMicroNode> m_aNodes = new ArrayDeque <> ();
+    private final Deque <int []> m_aIndices = new ArrayDeque <> ();
+
+    DescendantIterator (@Nonnull final IMicroNode aStart, final boolean bIncludeSelf, @Nonnull final MicroXPathStep aStep)
+    {
+      m_aStep = aStep;
+      m_aSelf = bIncludeSelf && aStep.matchesNodeTest (aStart) ? aStart : null;
+      m_aNodes.push (aStart);
+      m_aIndices.push (new int [] { 0 });
+    }
+
+    @Override
+    protected IMicroNode computeNext ()
+    {
+      if (m_aSelf != null)
+      {
+        final IMicroNode ret = m_aSelf;
+        m_aSelf = null;
+        return ret;
+      }
+
+      while (!m_aNodes.isEmpty ())
+      {
+        final IMicroNode aParent = m_aNodes.peek ();
+        final int [] aIndex = m_aIndices.peek ();
+        if (aIndex[0] >= aParent.getChildCount ())
+        {
+          m_aNodes.pop ();
+          m_aIndices.pop ();
+          continue;
+        }
+        final IMicroNode aChild = aParent.getChildAtIndex (aIndex[0]++);
+        if (aChild.hasChildren ())
+        {
+          m_aNodes.push (aChild);
+          m_aIndices.push (new int [] { 0 });
+        }
+        if (aChild.isElement () && m_aStep.matchesNodeTest (aChild))
+          return aChild;
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Applies a single predicate on the nodes of one context node.
+   */
+  @NotThreadSafe
+  private static final class FilterIterator extends AbstractLookAheadIterator <IMicroNode>
+  {
+    private final Iterator <IMicroNode> m_aSource;
+    private final Filter m_aFilter;
+    private int m_nPosition = 0;
+
+    FilterIterator (@Nonnull final Iterator <IMicroNode> aSource, @Nonnull final Filter aFilter)
+    {
+      m_aSource = aSource;
+      m_aFilter = aFilter;
+    }
+
+    @Override
+    protected IMicroNode computeNext ()
+    {
+      final int nWantedPosition = m_aFilter.getPosition ();
+      if (nWantedPosition == Filter.POSITION_LAST)
+      {
+        // Only the last one
+        IMicroNode ret = null;
+        while (m_aSource.hasNext ())
+          ret = m_aSource.next ();
+        return ret;
+      }
+
+      if (nWantedPosition != Filter.POSITION_NONE)
+      {
+        // Only the n-th one
+        while (m_nPosition < nWantedPosition && m_aSource.hasNext ())
+        {
+          final IMicroNode aNode = m_aSource.next ();
+          if (++m_nPosition == nWantedPosition)
+            return aNode;
+        }
+        return null;
+      }
+
+      while (m_aSource.hasNext ())
+      {
+        final IMicroNode aNode = m_aSource.next ();
+        if (m_aFilter.test (aNode))
+          return aNode;
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Removes duplicate nodes based on identity.
+   */
+  @NotThreadSafe
+  private static final class DistinctIterator extends AbstractLookAheadIterator <IMicroNode>
+  {
+    private final Iterator <IMicroNode> m_aSource;
+    private final Set <IMicroNode> m_aSeen = Collections.newSetFromMap (new IdentityHashMap <> ());
+
+    DistinctIterator (@Nonnull final Iterator <IMicroNode> aSource)
+    {
+      m_aSource = aSource;
+    }
+
+    @Override
+    protected IMicroNode computeNext ()
+    {
+      while (m_aSource.hasNext ())
+      {
+        final IMicroNode aNode = m_aSource.next ();
+        if (m_aSeen.add (aNode))
+          return aNode;
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Restricts the final result to elements.
+   */
+  @NotThreadSafe
+  private static final class ElementIterator extends AbstractLookAheadIterator <IMicroElement> implements
+                                               IIterableIterator <IMicroElement>
+  {
+    private final Iterator <IMicroNode> m_aSource;
+
+    ElementIterator (@Nonnull final Iterator <IMicroNode> aSource)
+    {
+      m_aSource = aSource;
+    }
+
+    @Override
+    protected IMicroElement computeNext ()
+    {
+      while (m_aSource.hasNext ())
+      {
+        final IMicroNode aNode = m_aSource.next ();
+        if (aNode instanceof IMicroElement)
+          return (IMicroElement) aNode;
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,474 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.microdom.xpath;
+
+import java.util.function.Predicate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.xml.namespace.NamespaceContext;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.string.StringHelper;
+import com.helger.commons.string.StringParser;
+import com.helger.xml.microdom.IMicroAttribute;
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.xpath.MicroXPathStep.Filter;
+import com.helger.xml.microdom.xpath.MicroXPathStep.NameTest;
+
+/**
+ * Recursive descent parser for the XPath subset supported by
+ * {@link MicroXPath}.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@NotThreadSafe
+final class MicroXPathParser
+{
+  private static final ICommonsList <Filter> NO_FILTERS = new CommonsArrayList <> ();
+
+  private final String m_sExpr;
+  private final NamespaceContext m_aNamespaceContext;
+  private int m_nPos = 0;
+  private boolean m_bAbsolute = false;
+
+  MicroXPathParser (@Nonnull final String sExpr, @Nullable final NamespaceContext aNamespaceContext)
+  {
+    ValueEnforcer.notEmpty (sExpr, "Expression");
+    m_sExpr = sExpr;
+    m_aNamespaceContext = aNamespaceContext;
+  }
+
+  /**
+   * @return <code>true</code> if the parsed expression starts with a slash.
+   *         Only valid after {@link #parse()} was called.
+   */
+  boolean isAbsolute ()
+  {
+    return m_bAbsolute;
+  }
+
+  @Nonnull
+  private IllegalArgumentException _error (@Nonnull final String sMsg)
+  {
+    return new IllegalArgumentException (sMsg + " at index " + m_nPos + " of XPath expression '" + m_sExpr + "'");
+  }
+
+  private boolean _isEOF ()
+  {
+    return m_nPos >= m_sExpr.length ();
+  }
+
+  private void _skipWhitespaces ()
+  {
+    while (!_isEOF () && Character.isWhitespace (m_sExpr.charAt (m_nPos)))
+      m_nPos++;
+  }
+
+  private boolean _isLookingAt (@Nonnull final String s)
+  {
+    return m_sExpr.startsWith (s, m_nPos);
+  }
+
+  private boolean _consume (@Nonnull final String s)
+  {
+    if (!_isLookingAt (s))
+      return false;
+    m_nPos += s.length ();
+    return true;
+  }
+
+  private void _expect (@Nonnull final String s)
+  {
+    if (!_consume (s))
+      throw _error ("Expected '" + s + "'");
+  }
+
+  private static boolean _isNameStart (final char c)
+  {
+    return Character.isLetter (c) || c == '_';
+  }
+
+  private static boolean _isNamePart (final char c)
+  {
+    return Character.isLetterOrDigit (c) || c == '_' || c == '-' || c == '.';
+  }
+
+  private boolean _consumeKeyword (@Nonnull final String sKeyword)
+  {
+    final int nEnd = m_nPos + sKeyword.length ();
+    if (!_isLookingAt (sKeyword) || (nEnd < m_sExpr.length () && _isNamePart (m_sExpr.charAt (nEnd))))
+      return false;
+    m_nPos = nEnd;
+    return true;
+  }
+
+  @Nullable
+  private String _readNCName ()
+  {
+    if (_isEOF () || !_isNameStart (m_sExpr.charAt (m_nPos)))
+      return null;
+    final int nStart = m_nPos++;
+    while (!_isEOF () && _isNamePart (m_sExpr.charAt (m_nPos)))
+      m_nPos++;
+    return m_sExpr.substring (nStart, m_nPos);
+  }
+
+  @Nonnull
+  private String _resolvePrefix (@Nonnull final String sPrefix)
+  {
+    if (m_aNamespaceContext == null)
+      throw _error ("No namespace context present to resolve prefix '" + sPrefix + "'");
+    final String sNamespaceURI = m_aNamespaceContext.getNamespaceURI (sPrefix);
+    if (StringHelper.hasNoText (sNamespaceURI))
+      throw _error ("Unbound namespace prefix '" + sPrefix + "'");
+    return sNamespaceURI;
+  }
+
+  @Nonnull
+  private NameTest _parseNameTest ()
+  {
+    if (_consume ("*"))
+    {
+      if (_consume (":"))
+      {
+        // "*:local"
+        final String sLocalName = _readNCName ();
+        if (sLocalName == null)
+          throw _error ("Expected local name");
+        return new NameTest (true, null, sLocalName);
+      }
+      return new NameTest (true, null, null);
+    }
+
+    final String sName = _readNCName ();
+    if (sName == null)
+      throw _error ("Expected name test");
+    if (_isLookingAt (":") && !_isLookingAt ("::"))
+    {
+      m_nPos++;
+      final String sNamespaceURI = _resolvePrefix (sName);
+      if (_consume ("*"))
+        return new NameTest (false, sNamespaceURI, null);
+      final String sLocalName = _readNCName ();
+      if (sLocalName == null)
+        throw _error ("Expected local name");
+      return new NameTest (false, sNamespaceURI, sLocalName);
+    }
+    if (_isLookingAt ("("))
+      throw _error ("Function '" + sName + "' is not supported");
+    // No prefix - no namespace
+    return new NameTest (false, null, sName);
+  }
+
+  /**
+   * Parse an optional comparison with a literal.
+   *
+   * @return <code>null</code> if no comparison is present.
+   */
+  @Nullable
+  private Predicate <String> _parseComparison ()
+  {
+    _skipWhitespaces ();
+    final boolean bNot;
+    if (_consume ("!="))
+      bNot = true;
+    else
+      if (_consume ("="))
+        bNot = false;
+      else
+        return null;
+
+    _skipWhitespaces ();
+    if (_isEOF ())
+      throw _error ("Expected literal");
+    final char cQuote = m_sExpr.charAt (m_nPos);
+    if (cQuote == '\'' || cQuote == '"')
+    {
+      final int nEnd = m_sExpr.indexOf (cQuote, m_nPos + 1);
+      if (nEnd < 0)
+        throw _error ("Unterminated string literal");
+      final String sLiteral = m_sExpr.substring (m_nPos + 1, nEnd);
+      m_nPos = nEnd + 1;
+      return bNot ? x -> !sLiteral.equals (x) : sLiteral::equals;
+    }
+
+    // Numeric literal
+    final int nStart = m_nPos;
+    if (cQuote == '-')
+      m_nPos++;
+    while (!_isEOF () && (Character.isDigit (m_sExpr.charAt (m_nPos)) || m_sExpr.charAt (m_nPos) == '.'))
+      m_nPos++;
+    final double dLiteral = StringParser.parseDouble (m_sExpr.substring (nStart, m_nPos), Double.NaN);
+    if (Double.isNaN (dLiteral))
+    {
+      m_nPos = nStart;
+      throw _error ("Expected literal");
+    }
+    // Note: NaN never equals anything
+    return bNot ? x -> StringParser.parseDouble (x.trim (), Double.NaN) != dLiteral
+                : x -> StringParser.parseDouble (x.trim (), Double.NaN) == dLiteral;
+  }
+
+  @Nonnull
+  private Predicate <String> _parseRequiredComparison ()
+  {
+    final Predicate <String> ret = _parseComparison ();
+    if (ret == null)
+      throw _error ("Expected '=' or '!='");
+    return ret;
+  }
+
+  @Nonnull
+  private static String _getTextContent (@Nonnull final IMicroElement aElement)
+  {
+    final String ret = aElement.getTextContent ();
+    return ret == null ? "" : ret;
+  }
+
+  @Nonnull
+  private Predicate <IMicroElement> _parsePrimary ()
+  {
+    _skipWhitespaces ();
+    if (_consume ("("))
+    {
+      final Predicate <IMicroElement> ret = _parseOr ();
+      _skipWhitespaces ();
+      _expect (")");
+      return ret;
+    }
+
+    final int nStart = m_nPos;
+    if (_consumeKeyword ("not"))
+    {
+      _skipWhitespaces ();
+      if (_consume ("("))
+      {
+        final Predicate <IMicroElement> ret = _parseOr ();
+        _skipWhitespaces ();
+        _expect (")");
+        return ret.negate ();
+      }
+      // An element called "not"
+      m_nPos = nStart;
+    }
+
+    if (_consume ("@"))
+    {
+      final NameTest aNameTest = _parseNameTest ();
+      final Predicate <String> aValueTest = _parseComparison ();
+      return aElement -> {
+        final Iterable <? extends IMicroAttribute> aAttrs = aElement.getAttributeObjs ();
+        if (aAttrs != null)
+          for (final IMicroAttribute aAttr : aAttrs)
+            if (aNameTest.matches (aAttr.getNamespaceURI (), aAttr.getAttributeName ()) &&
+                (aValueTest == null || aValueTest.test (aAttr.getAttributeValue ())))
+              return true;
+        return false;
+      };
+    }
+
+    if (_consume ("text()") || _consume ("."))
+    {
+      // Text content of the element itself
+      final Predicate <String> aValueTest = _parseRequiredComparison ();
+      return aElement -> aValueTest.test (_getTextContent (aElement));
+    }
+
+    // Child element
+    final NameTest aNameTest = _parseNameTest ();
+    final Predicate <String> aValueTest = _parseComparison ();
+    return aElement -> aElement.containsAnyChildElement (x -> aNameTest.matches (x) &&
+                                                              (aValueTest == null ||
+                                                               aValueTest.test (_getTextContent (x))));
+  }
+
+  @Nonnull
+  private Predicate <IMicroElement> _parseAnd ()
+  {
+    Predicate <IMicroElement> ret = _parsePrimary ();
+    while (true)
+    {
+      _skipWhitespaces ();
+      if (!_consumeKeyword ("and"))
+        return ret;
+      ret = ret.and (_parsePrimary ());
+    }
+  }
+
+  @Nonnull
+  private Predicate <IMicroElement> _parseOr ()
+  {
+    Predicate <IMicroElement> ret = _parseAnd ();
+    while (true)
+    {
+      _skipWhitespaces ();
+      if (!_consumeKeyword ("or"))
+        return ret;
+      ret = ret.or (_parseAnd ());
+    }
+  }
+
+  @Nonnull
+  private Filter _parsePredicate ()
+  {
+    // '[' was already consumed
+    _skipWhitespaces ();
+    final int nStart = m_nPos;
+
+    // Positional predicate
+    while (!_isEOF () && Character.isDigit (m_sExpr.charAt (m_nPos)))
+      m_nPos++;
+    if (m_nPos > nStart)
+    {
+      final int nPosition = StringParser.parseInt (m_sExpr.substring (nStart, m_nPos), -1);
+      _skipWhitespaces ();
+      if (_consume ("]"))
+      {
+        if (nPosition < 1)
+          throw _error ("Positions must be between 1 and " + Integer.MAX_VALUE);
+        return Filter.createPosition (nPosition);
+      }
+      m_nPos = nStart;
+    }
+
+    if (_consume ("last()"))
+    {
+      _skipWhitespaces ();
+      if (_consume ("]"))
+        return Filter.createPosition (Filter.POSITION_LAST);
+      m_nPos = nStart;
+    }
+
+    final Predicate <IMicroElement> aCondition = _parseOr ();
+    final String sSource = m_sExpr.substring (nStart, m_nPos).trim ();
+    _skipWhitespaces ();
+    _expect ("]");
+    return Filter.createCondition (aCondition, sSource);
+  }
+
+  @Nonnull
+  private MicroXPathStep _parseStep ()
+  {
+    _skipWhitespaces ();
+    if (_isLookingAt (".."))
+      throw _error ("The parent axis is not supported");
+    if (_consume ("."))
+      return new MicroXPathStep (EMicroXPathAxis.SELF, null, NO_FILTERS);
+    if (_isLookingAt ("@"))
+      throw _error ("Attribute steps are not supported - use predicates instead");
+
+    // Explicit axis?
+    EMicroXPathAxis eAxis = EMicroXPathAxis.CHILD;
+    final int nStart = m_nPos;
+    final String sAxis = _readNCName ();
+    if (sAxis != null && _consume ("::"))
+    {
+      eAxis = EMicroXPathAxis.getFromIDOrNull (sAxis);
+      if (eAxis == null)
+      {
+        m_nPos = nStart;
+        throw _error ("Unsupported axis '" + sAxis + "'");
+      }
+    }
+    else
+      m_nPos = nStart;
+
+    final NameTest aNameTest = _consume ("node()") ? null : _parseNameTest ();
+
+    final ICommonsList <Filter> aFilters = new CommonsArrayList <> ();
+    while (true)
+    {
+      _skipWhitespaces ();
+      if (!_consume ("["))
+        break;
+      aFilters.add (_parsePredicate ());
+    }
+    return new MicroXPathStep (eAxis, aNameTest, aFilters);
+  }
+
+  /**
+   * Parse the step after a "//". The abbreviation stands for
+   * "/descendant-or-self::node()/". If the following step is a child step
+   * without positional predicates, it is combined into a single descendant
+   * step, which selects the same nodes in the same order.
+   *
+   * @param aTarget
+   *        The list to add the step(s) to. May not be <code>null</code>.
+   */
+  private void _parseStepAfterDoubleSlash (@Nonnull final ICommonsList <MicroXPathStep> aTarget)
+  {
+    final MicroXPathStep aStep = _parseStep ();
+    if (aStep.getAxis () == EMicroXPathAxis.CHILD && !aStep.hasPositionalFilter ())
+      aTarget.add (aStep.getWithAxis (EMicroXPathAxis.DESCENDANT));
+    else
+    {
+      aTarget.add (new MicroXPathStep (EMicroXPathAxis.DESCENDANT_OR_SELF, null, NO_FILTERS));
+      aTarget.add (aStep);
+    }
+  }
+
+  /**
+   * Parse the whole expression.
+   *
+   * @return The list of steps. May be empty for the expression "/".
+   * @throws IllegalArgumentException
+   *         If the expression is invalid or unsupported
+   */
+  @Nonnull
+  ICommonsList <MicroXPathStep> parse ()
+  {
+    final ICommonsList <MicroXPathStep> ret = new CommonsArrayList <> ();
+    _skipWhitespaces ();
+    if (_consume ("//"))
+    {
+      m_bAbsolute = true;
+      _parseStepAfterDoubleSlash (ret);
+    }
+    else
+    {
+      if (_consume ("/"))
+      {
+        m_bAbsolute = true;
+        _skipWhitespaces ();
+        if (_isEOF ())
+          return ret;
+      }
+      ret.add (_parseStep ());
+    }
+
+    while (true)
+    {
+      _skipWhitespaces ();
+      if (_isEOF ())
+        break;
+      if (_consume ("//"))
+        _parseStepAfterDoubleSlash (ret);
+      else
+      {
+        if (!_consume ("/"))
+          throw _error ("Unexpected character '" + m_sExpr.charAt (m_nPos) + "'");
+        ret.add (_parseStep ());
+      }
+    }
+    return ret;
+  }
+}
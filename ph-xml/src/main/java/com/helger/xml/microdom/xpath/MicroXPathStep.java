@@ -0,0 +1,235 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.microdom.xpath;
+
+import java.util.function.Predicate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.string.StringHelper;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.IMicroNode;
+
+/**
+ * A single compiled location step of a {@link MicroXPath}, consisting of an
+ * axis, a node test and an ordered list of predicates.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@Immutable
+final class MicroXPathStep
+{
+  /**
+   * A single predicate of a step. Either positional or a boolean condition on
+   * the element.
+   */
+  @Immutable
+  static final class Filter
+  {
+    /** Position value for the <code>last()</code> predicate */
+    static final int POSITION_LAST = -1;
+    /** Position value for non-positional predicates */
+    static final int POSITION_NONE = 0;
+
+    private final int m_nPosition;
+    private final Predicate <IMicroElement> m_aCondition;
+    private final String m_sSource;
+
+    private Filter (final int nPosition, @Nullable final Predicate <IMicroElement> aCondition, @Nonnull final String sSource)
+    {
+      m_nPosition = nPosition;
+      m_aCondition = aCondition;
+      m_sSource = sSource;
+    }
+
+    /**
+     * @return The 1-based position, {@link #POSITION_LAST} or
+     *         {@link #POSITION_NONE}.
+     */
+    int getPosition ()
+    {
+      return m_nPosition;
+    }
+
+    boolean isPositional ()
+    {
+      return m_nPosition != POSITION_NONE;
+    }
+
+    boolean test (@Nonnull final IMicroNode aNode)
+    {
+      return aNode instanceof IMicroElement && m_aCondition.test ((IMicroElement) aNode);
+    }
+
+    @Override
+    public String toString ()
+    {
+      return "[" + m_sSource + "]";
+    }
+
+    @Nonnull
+    static Filter createPosition (final int nPosition)
+    {
+      ValueEnforcer.isTrue (nPosition > 0 || nPosition == POSITION_LAST, "Invalid position");
+      return new Filter (nPosition, null, nPosition == POSITION_LAST ? "last()" : Integer.toString (nPosition));
+    }
+
+    @Nonnull
+    static Filter createCondition (@Nonnull final Predicate <IMicroElement> aCondition, @Nonnull final String sSource)
+    {
+      ValueEnforcer.notNull (aCondition, "Condition");
+      return new Filter (POSITION_NONE, aCondition, sSource);
+    }
+  }
+
+  /**
+   * A name test for elements or attributes.
+   */
+  @Immutable
+  static final class NameTest
+  {
+    private final boolean m_bAnyNamespace;
+    private final String m_sNamespaceURI;
+    private final String m_sLocalName;
+
+    /**
+     * Constructor
+     *
+     * @param bAnyNamespace
+     *        <code>true</code> to match all namespaces.
+     * @param sNamespaceURI
+     *        The namespace URI to match. <code>null</code> or empty for no
+     *        namespace. Only relevant if bAnyNamespace is <code>false</code>.
+     * @param sLocalName
+     *        The local name to match. <code>null</code> for all names.
+     */
+    NameTest (final boolean bAnyNamespace, @Nullable final String sNamespaceURI, @Nullable final String sLocalName)
+    {
+      m_bAnyNamespace = bAnyNamespace;
+      m_sNamespaceURI = StringHelper.hasNoText (sNamespaceURI) ? null : sNamespaceURI;
+      m_sLocalName = sLocalName;
+    }
+
+    boolean matches (@Nullable final String sNamespaceURI, @Nonnull final String sLocalName)
+    {
+      if (m_sLocalName != null && !m_sLocalName.equals (sLocalName))
+        return false;
+      if (m_bAnyNamespace)
+        return true;
+      return m_sNamespaceURI == null ? StringHelper.hasNoText (sNamespaceURI) : m_sNamespaceURI.equals (sNamespaceURI);
+    }
+
+    boolean matches (@Nonnull final IMicroElement aElement)
+    {
+      return matches (aElement.getNamespaceURI (), aElement.getTagName ());
+    }
+
+    @Override
+    public String toString ()
+    {
+      return (m_bAnyNamespace ? "*:" : m_sNamespaceURI == null ? "" : "{" + m_sNamespaceURI + "}") +
+             (m_sLocalName == null ? "*" : m_sLocalName);
+    }
+  }
+
+  private final EMicroXPathAxis m_eAxis;
+  private final NameTest m_aNameTest;
+  private final ICommonsList <Filter> m_aFilters;
+
+  /**
+   * Constructor
+   *
+   * @param eAxis
+   *        The axis to use. May not be <code>null</code>.
+   * @param aNameTest
+   *        The element name test. May be <code>null</code> for the
+   *        <code>node()</code> test, which matches all nodes.
+   * @param aFilters
+   *        The predicates in the order they are applied. May not be
+   *        <code>null</code>.
+   */
+  MicroXPathStep (@Nonnull final EMicroXPathAxis eAxis,
+                  @Nullable final NameTest aNameTest,
+                  @Nonnull final Iterable <Filter> aFilters)
+  {
+    ValueEnforcer.notNull (eAxis, "Axis");
+    ValueEnforcer.notNull (aFilters, "Filters");
+    m_eAxis = eAxis;
+    m_aNameTest = aNameTest;
+    m_aFilters = new CommonsArrayList <> (aFilters);
+  }
+
+  @Nonnull
+  EMicroXPathAxis getAxis ()
+  {
+    return m_eAxis;
+  }
+
+  @Nonnull
+  ICommonsList <Filter> filters ()
+  {
+    return m_aFilters;
+  }
+
+  /**
+   * Create a copy of this step with a different axis.
+   *
+   * @param eAxis
+   *        The new axis. May not be <code>null</code>.
+   * @return A new step and never <code>null</code>.
+   */
+  @Nonnull
+  MicroXPathStep getWithAxis (@Nonnull final EMicroXPathAxis eAxis)
+  {
+    return new MicroXPathStep (eAxis, m_aNameTest, m_aFilters);
+  }
+
+  boolean hasPositionalFilter ()
+  {
+    return m_aFilters.containsAny (Filter::isPositional);
+  }
+
+  /**
+   * Check if the passed node matches the node test of this step.
+   *
+   * @param aNode
+   *        The node to check. May not be <code>null</code>.
+   * @return <code>true</code> if it matches.
+   */
+  boolean matchesNodeTest (@Nonnull final IMicroNode aNode)
+  {
+    if (m_aNameTest == null)
+      return true;
+    return aNode instanceof IMicroElement && m_aNameTest.matches ((IMicroElement) aNode);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (null).append ("Axis", m_eAxis)
+                                       .append ("NameTest", m_aNameTest == null ? "node()" : m_aNameTest.toString ())
+                                       .append ("Filters", m_aFilters)
+                                       .getToString ();
+  }
+}
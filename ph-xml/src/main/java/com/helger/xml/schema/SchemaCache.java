@@ -29,41 +29,111 @@ import javax.xml.validation.Validator;
 import org.w3c.dom.ls.LSResourceResolver;
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
 
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.Nonempty;
-import com.helger.commons.cache.Cache;
 import com.helger.commons.collection.impl.CommonsArrayList;
 import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.functional.ISupplier;
 import com.helger.commons.io.resource.IReadableResource;
 import com.helger.commons.state.EChange;
 import com.helger.commons.string.ToStringGenerator;
 import com.helger.xml.transform.TransformSourceFactory;
+import com.helger.xml.util.AbstractCompiledResourceCache;
 
 /**
  * Base class for caching abstract {@link Schema} objects. A {@link Schema} is
  * immutable and can therefore safely be used in multi-threaded environments.
+ * Since v9.4.3 different schemas are compiled in parallel, each with its own
+ * {@link SchemaFactory}, if the cache was created with a factory supplier.<br>
+ * Note: up to v9.4.2 this class was derived from
+ * {@link com.helger.commons.cache.Cache}. Since v9.4.3 it is derived from
+ * {@link AbstractCompiledResourceCache}, which is a binary incompatible change.
+ * The public methods of the old base class are still available with the same
+ * signature, so code using this class only needs to be recompiled, unless it
+ * refers to it as a {@link com.helger.commons.cache.Cache} or
+ * {@link com.helger.commons.cache.MappedCache}.
  *
  * @author Philip Helger
  */
 @ThreadSafe
-public class SchemaCache extends Cache <ICommonsList <? extends IReadableResource>, Schema>
+public class SchemaCache extends AbstractCompiledResourceCache <SchemaFactory, Schema>
 {
   private final String m_sSchemaTypeName;
   private final SchemaFactory m_aSchemaFactory;
+  private final ErrorHandler m_aErrorHandler;
+  private final LSResourceResolver m_aResourceResolver;
 
+  /**
+   * Constructor using a single {@link SchemaFactory}. As a
+   * {@link SchemaFactory} is not thread-safe, only one schema can be compiled
+   * at a time. Features set via {@link #setFeature(String, boolean)} are
+   * applied to this factory.
+   *
+   * @param sSchemaTypeName
+   *        The schema type name. May not be <code>null</code>.
+   * @param aSchemaFactory
+   *        The schema factory to use. May not be <code>null</code>.
+   * @param aErrorHandler
+   *        The error handler to use. May be <code>null</code>.
+   * @param aResourceResolver
+   *        The resource resolver to use. May be <code>null</code>.
+   */
   public SchemaCache (@Nonnull final String sSchemaTypeName,
                       @Nonnull final SchemaFactory aSchemaFactory,
                       @Nullable final ErrorHandler aErrorHandler,
                       @Nullable final LSResourceResolver aResourceResolver)
   {
-    super (aKey -> createSchema (aSchemaFactory, sSchemaTypeName, aKey),
-           500,
-           SchemaCache.class.getName () + "$" + sSchemaTypeName);
+    super (SchemaCache.class.getName () + "$" + sSchemaTypeName, aSchemaFactory, DEFAULT_MAX_SIZE);
     ValueEnforcer.notNull (sSchemaTypeName, "SchemaTypeName");
     ValueEnforcer.notNull (aSchemaFactory, "SchemaFactory");
     m_sSchemaTypeName = sSchemaTypeName;
     m_aSchemaFactory = aSchemaFactory;
+    m_aErrorHandler = aErrorHandler;
+    m_aResourceResolver = aResourceResolver;
+    m_aSchemaFactory.setErrorHandler (aErrorHandler);
+    m_aSchemaFactory.setResourceResolver (aResourceResolver);
+  }
+
+  /**
+   * Constructor using a supplier for {@link SchemaFactory} objects, so that
+   * multiple schemas can be compiled in parallel.
+   *
+   * @param sSchemaTypeName
+   *        The schema type name. May not be <code>null</code>.
+   * @param aSchemaFactorySupplier
+   *        The supplier for new schema factories. May not be
+   *        <code>null</code>. Must return a new object on each invocation.
+   * @param nMaxParallelCompilations
+   *        The maximum number of schemas compiled in parallel. Must be &gt; 0.
+   * @param aErrorHandler
+   *        The error handler to use. May be <code>null</code>. Must be
+   *        thread-safe if nMaxParallelCompilations is &gt; 1.
+   * @param aResourceResolver
+   *        The resource resolver to use. May be <code>null</code>. Must be
+   *        thread-safe if nMaxParallelCompilations is &gt; 1.
+   * @since 9.4.3
+   */
+  public SchemaCache (@Nonnull final String sSchemaTypeName,
+                      @Nonnull final ISupplier <? extends SchemaFactory> aSchemaFactorySupplier,
+                      final int nMaxParallelCompilations,
+                      @Nullable final ErrorHandler aErrorHandler,
+                      @Nullable final LSResourceResolver aResourceResolver)
+  {
+    super (SchemaCache.class.getName () + "$" + sSchemaTypeName, () -> {
+      final SchemaFactory aSchemaFactory = aSchemaFactorySupplier.get ();
+      aSchemaFactory.setErrorHandler (aErrorHandler);
+      aSchemaFactory.setResourceResolver (aResourceResolver);
+      return aSchemaFactory;
+    }, nMaxParallelCompilations, DEFAULT_MAX_SIZE);
+    ValueEnforcer.notNull (sSchemaTypeName, "SchemaTypeName");
+    m_sSchemaTypeName = sSchemaTypeName;
+    // Representative instance for getSchemaFactory - not used for compilation
+    m_aSchemaFactory = aSchemaFactorySupplier.get ();
+    m_aErrorHandler = aErrorHandler;
+    m_aResourceResolver = aResourceResolver;
     m_aSchemaFactory.setErrorHandler (aErrorHandler);
     m_aSchemaFactory.setResourceResolver (aResourceResolver);
   }
@@ -74,6 +144,14 @@ public class SchemaCache extends Cache <ICommonsList <? extends IReadableResourc
     return m_sSchemaTypeName;
   }
 
+  /**
+   * @return The schema factory provided in the constructor. If this cache was
+   *         created with a schema factory supplier, this is a representative
+   *         instance created from the supplier, that has the error handler and
+   *         the resource resolver set. It is not used for compilation, so
+   *         features set via {@link #setFeature(String, boolean)} are not
+   *         applied to it. Never <code>null</code>.
+   */
   @Nonnull
   public final SchemaFactory getSchemaFactory ()
   {
@@ -83,13 +161,36 @@ public class SchemaCache extends Cache <ICommonsList <? extends IReadableResourc
   @Nullable
   public ErrorHandler getErrorHandler ()
   {
-    return m_aSchemaFactory.getErrorHandler ();
+    return m_aErrorHandler;
   }
 
   @Nullable
   public LSResourceResolver getResourceResolver ()
   {
-    return m_aSchemaFactory.getResourceResolver ();
+    return m_aResourceResolver;
+  }
+
+  @Override
+  protected void applyFeature (@Nonnull final SchemaFactory aFactory,
+                               @Nonnull @Nonempty final String sName,
+                               final boolean bValue)
+  {
+    try
+    {
+      aFactory.setFeature (sName, bValue);
+    }
+    catch (final SAXNotRecognizedException | SAXNotSupportedException ex)
+    {
+      throw new IllegalArgumentException ("Failed to set " + m_sSchemaTypeName + " feature '" + sName + "'", ex);
+    }
+  }
+
+  @Override
+  @Nonnull
+  protected Schema compile (@Nonnull final SchemaFactory aFactory,
+                            @Nonnull @Nonempty final ICommonsList <IReadableResource> aResources)
+  {
+    return createSchema (aFactory, m_sSchemaTypeName, aResources);
   }
 
   @Nonnull
@@ -186,7 +287,7 @@ public class SchemaCache extends Cache <ICommonsList <? extends IReadableResourc
     ValueEnforcer.notNull (aSchema, "Schema");
 
     final Validator aValidator = aSchema.newValidator ();
-    aValidator.setErrorHandler (m_aSchemaFactory.getErrorHandler ());
+    aValidator.setErrorHandler (m_aErrorHandler);
     return aValidator;
   }
 
@@ -256,6 +357,6 @@ public class SchemaCache extends Cache <ICommonsList <? extends IReadableResourc
   @Override
   public String toString ()
   {
-    return ToStringGenerator.getDerived (super.toString ()).append ("schemaTypeName", m_sSchemaTypeName).getToString ();
+    return ToStringGenerator.getDerived (super.toString ()).append ("SchemaTypeName", m_sSchemaTypeName).getToString ();
   }
 }
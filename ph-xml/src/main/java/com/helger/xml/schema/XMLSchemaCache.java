@@ -80,7 +80,7 @@ public class XMLSchemaCache extends SchemaCache
   public XMLSchemaCache (@Nullable final ErrorHandler aErrorHandler,
                          @Nullable final LSResourceResolver aResourceResolver)
   {
-    this (createXSDSchemaFactory (), aErrorHandler, aResourceResolver);
+    super ("XSD", XMLSchemaCache::createXSDSchemaFactory, DEFAULT_MAX_PARALLEL_COMPILATIONS, aErrorHandler, aResourceResolver);
   }
 
   public XMLSchemaCache (@Nonnull final SchemaFactory aSchemaFactory,
@@ -23,6 +23,7 @@ import java.net.URI;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.time.Duration;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
@@ -38,12 +39,17 @@ import org.xml.sax.InputSource;
 
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.PresentForCodeCoverage;
+import com.helger.commons.equals.EqualsHelper;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.hashcode.IHashCodeGenerator;
 import com.helger.commons.io.resource.IReadableResource;
 import com.helger.commons.io.stream.StreamHelper;
-import com.helger.commons.pool.ObjectPool;
+import com.helger.commons.pool.ConcurrentObjectPool;
+import com.helger.commons.pool.KeyedObjectPool;
 import com.helger.commons.statistics.IMutableStatisticsHandlerCounter;
 import com.helger.commons.statistics.IMutableStatisticsHandlerTimer;
 import com.helger.commons.statistics.StatisticsManager;
+import com.helger.commons.string.ToStringGenerator;
 import com.helger.commons.timing.StopWatch;
 import com.helger.xml.XMLFactory;
 import com.helger.xml.sax.CollectingSAXErrorHandler;
@@ -64,9 +70,106 @@ public final class DOMReader
   private static final IMutableStatisticsHandlerCounter s_aDomErrorCounterHdl = StatisticsManager.getCounterHandler (DOMReader.class.getName () +
                                                                                                                      "$DOMERRORS");
 
-  // In practice no more than 5 readers are required (even 3 would be enough)
-  private static final ObjectPool <DocumentBuilder> s_aDOMPool = new ObjectPool <> (5,
-                                                                                    XMLFactory::createDocumentBuilder);
+  /**
+   * The default maximum number of pooled DocumentBuilder objects per
+   * configuration
+   */
+  public static final int DEFAULT_POOL_SIZE = 5;
+
+  /**
+   * The fingerprint of all settings that are applied on the
+   * DocumentBuilderFactory. It contains a copy of the settings without the
+   * per-usage handlers, that is used to create new DocumentBuilder objects.
+   * Only the presence of an entity resolver is relevant, as it requires a
+   * DocumentBuilderFactory that is not the default one.
+   */
+  private static final class ParserKey
+  {
+    private final DOMReaderSettings m_aSettings;
+    private final boolean m_bHasEntityResolver;
+    // Status vars
+    private transient int m_nHashCode = IHashCodeGenerator.ILLEGAL_HASHCODE;
+
+    ParserKey (@Nonnull final IDOMReaderSettings aSettings)
+    {
+      m_aSettings = new DOMReaderSettings (aSettings);
+      m_bHasEntityResolver = aSettings.getEntityResolver () != null;
+      m_aSettings.setEntityResolver (null).setErrorHandler (null).exceptionCallbacks ().removeAll ();
+    }
+
+    @Nonnull
+    DocumentBuilder createDocumentBuilder ()
+    {
+      // Are all DocumentBuilderFactory relevant settings the default ones?
+      if (!m_bHasEntityResolver && !m_aSettings.requiresNewXMLParser ())
+        return XMLFactory.createDocumentBuilder ();
+
+      // We need to create a new DocumentBuilderFactory
+      final DocumentBuilderFactory aDocumentBuilderFactory = DocumentBuilderFactory.newInstance ();
+
+      // Apply the settings on the DocumentBuilderFactory
+      m_aSettings.applyToDocumentBuilderFactory (aDocumentBuilderFactory);
+
+      // Ready to create document builder
+      return XMLFactory.createDocumentBuilder (aDocumentBuilderFactory);
+    }
+
+    @Override
+    public boolean equals (final Object o)
+    {
+      if (o == this)
+        return true;
+      if (o == null || !getClass ().equals (o.getClass ()))
+        return false;
+      final ParserKey aOther = (ParserKey) o;
+      if (m_bHasEntityResolver != aOther.m_bHasEntityResolver)
+        return false;
+      final DOMReaderSettings lhs = m_aSettings;
+      final DOMReaderSettings rhs = aOther.m_aSettings;
+      return lhs.isNamespaceAware () == rhs.isNamespaceAware () &&
+             lhs.isValidating () == rhs.isValidating () &&
+             lhs.isIgnoringElementContentWhitespace () == rhs.isIgnoringElementContentWhitespace () &&
+             lhs.isExpandEntityReferences () == rhs.isExpandEntityReferences () &&
+             lhs.isIgnoringComments () == rhs.isIgnoringComments () &&
+             lhs.isCoalescing () == rhs.isCoalescing () &&
+             EqualsHelper.identityEqual (lhs.getSchema (), rhs.getSchema ()) &&
+             lhs.isXIncludeAware () == rhs.isXIncludeAware () &&
+             lhs.getAllPropertyValues ().equals (rhs.getAllPropertyValues ()) &&
+             lhs.getAllFeatureValues ().equals (rhs.getAllFeatureValues ());
+    }
+
+    @Override
+    public int hashCode ()
+    {
+      int ret = m_nHashCode;
+      if (ret == IHashCodeGenerator.ILLEGAL_HASHCODE)
+        ret = m_nHashCode = new HashCodeGenerator (this).append (m_bHasEntityResolver)
+                                                        .append (m_aSettings.isNamespaceAware ())
+                                                        .append (m_aSettings.isValidating ())
+                                                        .append (m_aSettings.isIgnoringElementContentWhitespace ())
+                                                        .append (m_aSettings.isExpandEntityReferences ())
+                                                        .append (m_aSettings.isIgnoringComments ())
+                                                        .append (m_aSettings.isCoalescing ())
+                                                        .append (System.identityHashCode (m_aSettings.getSchema ()))
+                                                        .append (m_aSettings.isXIncludeAware ())
+                                                        .append (m_aSettings.getAllPropertyValues ())
+                                                        .append (m_aSettings.getAllFeatureValues ())
+                                                        .getHashCode ();
+      return ret;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return new ToStringGenerator (null).append ("Settings", m_aSettings)
+                                         .append ("HasEntityResolver", m_bHasEntityResolver)
+                                         .getToString ();
+    }
+  }
+
+  private static volatile KeyedObjectPool <ParserKey, DocumentBuilder> s_aDOMPool = _createPool (DEFAULT_POOL_SIZE,
+                                                                                                 KeyedObjectPool.DEFAULT_MAX_KEY_COUNT,
+                                                                                                 ConcurrentObjectPool.DEFAULT_IDLE_TIMEOUT);
 
   @PresentForCodeCoverage
   private static final DOMReader s_aInstance = new DOMReader ();
@@ -74,6 +177,122 @@ public final class DOMReader
   private DOMReader ()
   {}
 
+  /**
+   * Reset a DocumentBuilder that is returned to the pool, so that no
+   * references to handlers are kept.
+   *
+   * @param aDocumentBuilder
+   *        The document builder to reset. May not be <code>null</code>.
+   * @return Always <code>true</code>.
+   */
+  private static boolean _resetDocumentBuilder (@Nonnull final DocumentBuilder aDocumentBuilder)
+  {
+    try
+    {
+      aDocumentBuilder.reset ();
+    }
+    catch (final UnsupportedOperationException ex)
+    {
+      // Fine - handlers are applied upon each usage anyway
+    }
+    return true;
+  }
+
+  @Nonnull
+  private static KeyedObjectPool <ParserKey, DocumentBuilder> _createPool (@Nonnegative final int nPoolSize,
+                                                                          @Nonnegative final int nMaxKeyCount,
+                                                                          @Nonnull final Duration aIdleTimeout)
+  {
+    return new KeyedObjectPool.Builder <ParserKey, DocumentBuilder> ().setFactory (ParserKey::createDocumentBuilder)
+                                                                      .setMaxSizePerKey (nPoolSize)
+                                                                      .setMaxKeyCount (nMaxKeyCount)
+                                                                      .setIdleTimeout (aIdleTimeout)
+                                                                      .setValidator (DOMReader::_resetDocumentBuilder)
+                                                                      .setName (DOMReader.class.getName ())
+                                                                      .build ();
+  }
+
+  private static void _replacePool (@Nonnegative final int nPoolSize,
+                                    @Nonnegative final int nMaxKeyCount,
+                                    @Nonnull final Duration aIdleTimeout)
+  {
+    final KeyedObjectPool <ParserKey, DocumentBuilder> aOldPool = s_aDOMPool;
+    s_aDOMPool = _createPool (nPoolSize, nMaxKeyCount, aIdleTimeout);
+    aOldPool.clearUnusedItems ();
+  }
+
+  /**
+   * @return The pool of DocumentBuilder objects, e.g. for accessing the
+   *         statistics. Never <code>null</code>. DocumentBuilders are pooled
+   *         separately for each distinct DocumentBuilderFactory configuration.
+   * @since 9.4.3
+   */
+  @Nonnull
+  public static KeyedObjectPool <?, DocumentBuilder> getPool ()
+  {
+    return s_aDOMPool;
+  }
+
+  /**
+   * @return The maximum number of pooled DocumentBuilder objects per
+   *         configuration. Always &gt; 0.
+   * @since 9.4.3
+   */
+  @Nonnegative
+  public static int getPoolSize ()
+  {
+    return s_aDOMPool.getMaxSizePerKey ();
+  }
+
+  /**
+   * Set the maximum number of pooled DocumentBuilder objects per
+   * configuration. This replaces the existing pool. DocumentBuilders currently
+   * in use are returned to the pool they were taken from.
+   *
+   * @param nPoolSize
+   *        The new maximum pool size. Must be &gt; 0.
+   * @since 9.4.3
+   */
+  public static void setPoolSize (@Nonnegative final int nPoolSize)
+  {
+    ValueEnforcer.isGT0 (nPoolSize, "PoolSize");
+    final KeyedObjectPool <ParserKey, DocumentBuilder> aPool = s_aDOMPool;
+    if (nPoolSize != aPool.getMaxSizePerKey ())
+      _replacePool (nPoolSize, aPool.getMaxKeyCount (), aPool.getIdleTimeout ());
+  }
+
+  /**
+   * Set the maximum number of different configurations for which
+   * DocumentBuilder objects are pooled. This replaces the existing pool.
+   *
+   * @param nMaxKeyCount
+   *        The new maximum number of configurations. Must be &gt; 0.
+   * @since 9.4.3
+   */
+  public static void setPoolMaxKeyCount (@Nonnegative final int nMaxKeyCount)
+  {
+    ValueEnforcer.isGT0 (nMaxKeyCount, "MaxKeyCount");
+    final KeyedObjectPool <ParserKey, DocumentBuilder> aPool = s_aDOMPool;
+    if (nMaxKeyCount != aPool.getMaxKeyCount ())
+      _replacePool (aPool.getMaxSizePerKey (), nMaxKeyCount, aPool.getIdleTimeout ());
+  }
+
+  /**
+   * Set the duration after which idle DocumentBuilder objects are destroyed.
+   * This replaces the existing pool.
+   *
+   * @param aIdleTimeout
+   *        The new idle timeout. May not be <code>null</code>.
+   * @since 9.4.3
+   */
+  public static void setPoolIdleTimeout (@Nonnull final Duration aIdleTimeout)
+  {
+    ValueEnforcer.notNull (aIdleTimeout, "IdleTimeout");
+    final KeyedObjectPool <ParserKey, DocumentBuilder> aPool = s_aDOMPool;
+    if (!aIdleTimeout.equals (aPool.getIdleTimeout ()))
+      _replacePool (aPool.getMaxSizePerKey (), aPool.getMaxKeyCount (), aIdleTimeout);
+  }
+
   public static void reinitialize ()
   {
     s_aDOMPool.clearUnusedItems ();
@@ -295,8 +514,9 @@ public final class DOMReader
     {
       final StopWatch aSW = StopWatch.createdStarted ();
       final DocumentBuilder aDocumentBuilder;
-      boolean bFromPool = false;
-      if (aSettings.requiresNewXMLParser ())
+      KeyedObjectPool <ParserKey, DocumentBuilder> aPool = null;
+      ParserKey aKey = null;
+      if (aSettings.isRequiresNewXMLParserExplicitly ())
       {
         // We need to create a new DocumentBuilderFactory
         final DocumentBuilderFactory aDocumentBuilderFactory = DocumentBuilderFactory.newInstance ();
@@ -309,9 +529,12 @@ public final class DOMReader
       }
       else
       {
-        // Use one from the pool
-        aDocumentBuilder = s_aDOMPool.borrowObject ();
-        bFromPool = true;
+        // Use one from the pool - remember the pool in case it is replaced
+        aPool = s_aDOMPool;
+        aKey = new ParserKey (aSettings);
+        aDocumentBuilder = aPool.borrowObject (aKey);
+        if (aDocumentBuilder == null)
+          throw new IllegalStateException ("Failed to borrow DocumentBuilder from pool");
       }
 
       try
@@ -347,10 +570,10 @@ public final class DOMReader
       }
       finally
       {
-        if (bFromPool)
+        if (aPool != null)
         {
           // Return to the pool
-          s_aDOMPool.returnObject (aDocumentBuilder);
+          aPool.returnObject (aKey, aDocumentBuilder);
         }
       }
     }
@@ -22,6 +22,7 @@ import java.io.Reader;
 import java.net.URI;
 import java.net.URL;
 import java.nio.ByteBuffer;
+import java.time.Duration;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
@@ -34,16 +35,23 @@ import org.xml.sax.SAXParseException;
 
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.PresentForCodeCoverage;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.ICommonsSet;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.hashcode.IHashCodeGenerator;
 import com.helger.commons.io.IHasInputStream;
 import com.helger.commons.io.resource.IReadableResource;
 import com.helger.commons.io.stream.StreamHelper;
-import com.helger.commons.pool.IMutableObjectPool;
-import com.helger.commons.pool.ObjectPool;
+import com.helger.commons.pool.ConcurrentObjectPool;
+import com.helger.commons.pool.KeyedObjectPool;
 import com.helger.commons.state.ESuccess;
 import com.helger.commons.statistics.IMutableStatisticsHandlerCounter;
 import com.helger.commons.statistics.IMutableStatisticsHandlerTimer;
 import com.helger.commons.statistics.StatisticsManager;
+import com.helger.commons.string.ToStringGenerator;
 import com.helger.commons.timing.StopWatch;
+import com.helger.xml.EXMLParserFeature;
+import com.helger.xml.EXMLParserProperty;
 import com.helger.xml.sax.InputSourceFactory;
 
 /**
@@ -60,9 +68,60 @@ public final class SAXReader
   private static final IMutableStatisticsHandlerCounter s_aSaxErrorCounterHdl = StatisticsManager.getCounterHandler (SAXReader.class.getName () +
                                                                                                                      "$error");
 
-  // In practice no more than 5 readers are required (even 3 would be enough)
-  private static final IMutableObjectPool <org.xml.sax.XMLReader> s_aSAXPool = new ObjectPool <> (5,
-                                                                                                  new SAXReaderFactory ());
+  /** The default maximum number of pooled XMLReader objects per configuration */
+  public static final int DEFAULT_POOL_SIZE = 5;
+
+  /**
+   * The fingerprint of all settings that influence a pooled XMLReader. As all
+   * properties and features are applied on every usage, the set of properties
+   * is sufficient to ensure that no state leaks between different usages.
+   * Property values may be handlers that must not be kept alive by the pool.
+   */
+  private static final class ParserKey
+  {
+    private final ICommonsSet <EXMLParserProperty> m_aProperties;
+    private final ICommonsMap <EXMLParserFeature, Boolean> m_aFeatures;
+    // Status vars
+    private transient int m_nHashCode = IHashCodeGenerator.ILLEGAL_HASHCODE;
+
+    ParserKey (@Nonnull final ISAXReaderSettings aSettings)
+    {
+      m_aProperties = aSettings.getAllPropertyValues ().copyOfKeySet ();
+      m_aFeatures = aSettings.getAllFeatureValues ();
+    }
+
+    @Override
+    public boolean equals (final Object o)
+    {
+      if (o == this)
+        return true;
+      if (o == null || !getClass ().equals (o.getClass ()))
+        return false;
+      final ParserKey rhs = (ParserKey) o;
+      return m_aProperties.equals (rhs.m_aProperties) && m_aFeatures.equals (rhs.m_aFeatures);
+    }
+
+    @Override
+    public int hashCode ()
+    {
+      int ret = m_nHashCode;
+      if (ret == IHashCodeGenerator.ILLEGAL_HASHCODE)
+        ret = m_nHashCode = new HashCodeGenerator (this).append (m_aProperties).append (m_aFeatures).getHashCode ();
+      return ret;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return new ToStringGenerator (null).append ("Properties", m_aProperties)
+                                         .append ("Features", m_aFeatures)
+                                         .getToString ();
+    }
+  }
+
+  private static volatile KeyedObjectPool <ParserKey, org.xml.sax.XMLReader> s_aSAXPool = _createPool (DEFAULT_POOL_SIZE,
+                                                                                                        KeyedObjectPool.DEFAULT_MAX_KEY_COUNT,
+                                                                                                        ConcurrentObjectPool.DEFAULT_IDLE_TIMEOUT);
 
   @PresentForCodeCoverage
   private static final SAXReader s_aInstance = new SAXReader ();
@@ -70,6 +129,146 @@ public final class SAXReader
   private SAXReader ()
   {}
 
+  /**
+   * Remove all references to handlers from a parser that is returned to the
+   * pool.
+   *
+   * @param aParser
+   *        The parser to reset. May not be <code>null</code>.
+   * @return <code>true</code> if the parser can be reused, <code>false</code>
+   *         if resetting failed.
+   */
+  private static boolean _resetParser (@Nonnull final org.xml.sax.XMLReader aParser)
+  {
+    try
+    {
+      aParser.setContentHandler (null);
+      aParser.setDTDHandler (null);
+      aParser.setEntityResolver (null);
+      aParser.setErrorHandler (null);
+    }
+    catch (final RuntimeException ex)
+    {
+      return false;
+    }
+    for (final EXMLParserProperty eProperty : new EXMLParserProperty [] { EXMLParserProperty.SAX_DECLARATION_HANDLER,
+                                                                          EXMLParserProperty.SAX_LEXICAL_HANDLER })
+      try
+      {
+        aParser.setProperty (eProperty.getName (), null);
+      }
+      catch (final SAXException | RuntimeException ex)
+      {
+        // Not supported by this parser
+      }
+    return true;
+  }
+
+  @Nonnull
+  private static KeyedObjectPool <ParserKey, org.xml.sax.XMLReader> _createPool (@Nonnegative final int nPoolSize,
+                                                                                @Nonnegative final int nMaxKeyCount,
+                                                                                @Nonnull final Duration aIdleTimeout)
+  {
+    return new KeyedObjectPool.Builder <ParserKey, org.xml.sax.XMLReader> ().setFactory (x -> SAXReaderFactory.createXMLReader ())
+                                                                            .setMaxSizePerKey (nPoolSize)
+                                                                            .setMaxKeyCount (nMaxKeyCount)
+                                                                            .setIdleTimeout (aIdleTimeout)
+                                                                            .setValidator (SAXReader::_resetParser)
+                                                                            .setName (SAXReader.class.getName ())
+                                                                            .build ();
+  }
+
+  private static void _replacePool (@Nonnegative final int nPoolSize,
+                                    @Nonnegative final int nMaxKeyCount,
+                                    @Nonnull final Duration aIdleTimeout)
+  {
+    final KeyedObjectPool <ParserKey, org.xml.sax.XMLReader> aOldPool = s_aSAXPool;
+    s_aSAXPool = _createPool (nPoolSize, nMaxKeyCount, aIdleTimeout);
+    aOldPool.clearUnusedItems ();
+  }
+
+  /**
+   * @return The pool of XMLReader objects, e.g. for accessing the statistics.
+   *         Never <code>null</code>. Parsers are pooled separately for each
+   *         distinct combination of properties and features.
+   * @since 9.4.3
+   */
+  @Nonnull
+  public static KeyedObjectPool <?, org.xml.sax.XMLReader> getPool ()
+  {
+    return s_aSAXPool;
+  }
+
+  /**
+   * @return The maximum number of pooled XMLReader objects per configuration.
+   *         Always &gt; 0.
+   * @since 9.4.3
+   */
+  @Nonnegative
+  public static int getPoolSize ()
+  {
+    return s_aSAXPool.getMaxSizePerKey ();
+  }
+
+  /**
+   * Set the maximum number of pooled XMLReader objects per configuration. This
+   * replaces the existing pool. XMLReaders currently in use are returned to
+   * the pool they were taken from.
+   *
+   * @param nPoolSize
+   *        The new maximum pool size. Must be &gt; 0.
+   * @since 9.4.3
+   */
+  public static void setPoolSize (@Nonnegative final int nPoolSize)
+  {
+    ValueEnforcer.isGT0 (nPoolSize, "PoolSize");
+    final KeyedObjectPool <ParserKey, org.xml.sax.XMLReader> aPool = s_aSAXPool;
+    if (nPoolSize != aPool.getMaxSizePerKey ())
+      _replacePool (nPoolSize, aPool.getMaxKeyCount (), aPool.getIdleTimeout ());
+  }
+
+  /**
+   * Set the maximum number of different configurations for which XMLReader
+   * objects are pooled. This replaces the existing pool.
+   *
+   * @param nMaxKeyCount
+   *        The new maximum number of configurations. Must be &gt; 0.
+   * @since 9.4.3
+   */
+  public static void setPoolMaxKeyCount (@Nonnegative final int nMaxKeyCount)
+  {
+    ValueEnforcer.isGT0 (nMaxKeyCount, "MaxKeyCount");
+    final KeyedObjectPool <ParserKey, org.xml.sax.XMLReader> aPool = s_aSAXPool;
+    if (nMaxKeyCount != aPool.getMaxKeyCount ())
+      _replacePool (aPool.getMaxSizePerKey (), nMaxKeyCount, aPool.getIdleTimeout ());
+  }
+
+  /**
+   * Set the duration after which idle XMLReader objects are destroyed. This
+   * replaces the existing pool.
+   *
+   * @param aIdleTimeout
+   *        The new idle timeout. May not be <code>null</code>.
+   * @since 9.4.3
+   */
+  public static void setPoolIdleTimeout (@Nonnull final Duration aIdleTimeout)
+  {
+    ValueEnforcer.notNull (aIdleTimeout, "IdleTimeout");
+    final KeyedObjectPool <ParserKey, org.xml.sax.XMLReader> aPool = s_aSAXPool;
+    if (!aIdleTimeout.equals (aPool.getIdleTimeout ()))
+      _replacePool (aPool.getMaxSizePerKey (), aPool.getMaxKeyCount (), aIdleTimeout);
+  }
+
+  /**
+   * Destroy all pooled XMLReader objects that are currently not in use.
+   *
+   * @since 9.4.3
+   */
+  public static void reinitialize ()
+  {
+    s_aSAXPool.clearUnusedItems ();
+  }
+
   @Nonnull
   public static ESuccess readXMLSAX (@Nonnull final File aFile, @Nonnull final ISAXReaderSettings aSettings)
   {
@@ -205,17 +404,21 @@ public final class SAXReader
 
     try
     {
-      boolean bFromPool = false;
+      KeyedObjectPool <ParserKey, org.xml.sax.XMLReader> aPool = null;
+      ParserKey aKey = null;
       org.xml.sax.XMLReader aParser;
-      if (aSettings.requiresNewXMLParser ())
+      if (aSettings.isRequiresNewXMLParserExplicitly ())
       {
         aParser = SAXReaderFactory.createXMLReader ();
       }
       else
       {
-        // use parser from pool
-        aParser = s_aSAXPool.borrowObject ();
-        bFromPool = true;
+        // use parser from pool - remember the pool in case it is replaced
+        aPool = s_aSAXPool;
+        aKey = new ParserKey (aSettings);
+        aParser = aPool.borrowObject (aKey);
+        if (aParser == null)
+          throw new IllegalStateException ("Failed to borrow XMLReader from pool");
       }
 
       try
@@ -235,10 +438,10 @@ public final class SAXReader
       }
       finally
       {
-        if (bFromPool)
+        if (aPool != null)
         {
           // Return parser to pool
-          s_aSAXPool.returnObject (aParser);
+          aPool.returnObject (aKey, aParser);
         }
       }
     }
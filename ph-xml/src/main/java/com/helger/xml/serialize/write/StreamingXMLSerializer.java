@@ -0,0 +1,812 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.serialize.write;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillCloseWhenClosed;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.io.stream.NonBlockingBufferedWriter;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.state.ETriState;
+import com.helger.commons.string.StringHelper;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.xml.XMLHelper;
+import com.helger.xml.microdom.IMicroAttribute;
+import com.helger.xml.microdom.IMicroCDATA;
+import com.helger.xml.microdom.IMicroComment;
+import com.helger.xml.microdom.IMicroDocument;
+import com.helger.xml.microdom.IMicroDocumentType;
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.IMicroEntityReference;
+import com.helger.xml.microdom.IMicroNode;
+import com.helger.xml.microdom.IMicroProcessingInstruction;
+import com.helger.xml.microdom.IMicroQName;
+import com.helger.xml.microdom.IMicroText;
+import com.helger.xml.namespace.IIterableNamespaceContext;
+
+/**
+ * An event based XML serializer that writes directly to a {@link Writer}
+ * without the need to build a node tree first. This allows to write documents
+ * of arbitrary size with constant memory consumption. The output is identical
+ * to the one created by the MicroDOM serializer for the same
+ * {@link IXMLWriterSettings} - this includes namespace prefix handling,
+ * indentation and bracket modes.<br>
+ * Because indentation and bracket mode depend on the following node, the start
+ * tag of an element is only written when the next event is received, and the
+ * newline after an element end is deferred as well. Call
+ * {@link #writeEndDocument()} or {@link #close()} to write everything.
+ * <br>
+ * Existing MicroDOM nodes can be mixed into the stream with
+ * {@link #writeNode(IMicroNode)}.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@NotThreadSafe
+public class StreamingXMLSerializer implements Closeable, Flushable
+{
+  /**
+   * Information on a single open element.
+   *
+   * @author Philip Helger
+   */
+  private static final class ElementLevel
+  {
+    private final String m_sNamespaceURI;
+    private final String m_sEffectiveNamespaceURI;
+    private final String m_sTagName;
+    private final String m_sNSPrefix;
+    private final boolean m_bIndentPrev;
+    private ICommonsOrderedMap <QName, String> m_aAttrMap;
+    // State after start tag was written
+    private boolean m_bStartWritten;
+    private boolean m_bHasChildren;
+    private boolean m_bIsFirstChildElement;
+    private EXMLSerializeIndent m_eIndentOuter;
+    private EXMLSerializeIndent m_eIndentInner;
+    private EXMLSerializeBracketMode m_eBracketMode;
+    // Sibling state of the children
+    private boolean m_bHasChild;
+    private boolean m_bLastChildInline;
+
+    ElementLevel (@Nullable final String sNamespaceURI,
+                  @Nullable final String sEffectiveNamespaceURI,
+                  @Nonnull final String sTagName,
+                  @Nullable final String sNSPrefix,
+                  final boolean bIndentPrev,
+                  @Nonnull final ICommonsOrderedMap <QName, String> aAttrMap)
+    {
+      m_sNamespaceURI = sNamespaceURI;
+      m_sEffectiveNamespaceURI = sEffectiveNamespaceURI;
+      m_sTagName = sTagName;
+      m_sNSPrefix = sNSPrefix;
+      m_bIndentPrev = bIndentPrev;
+      m_aAttrMap = aAttrMap;
+    }
+  }
+
+  private final Writer m_aWriter;
+  private final IXMLWriterSettings m_aSettings;
+  private final XMLEmitter m_aEmitter;
+  private final AbstractXMLSerializer.NamespaceStack m_aNSStack;
+  private final ICommonsOrderedMap <String, String> m_aRootNSMap = new CommonsLinkedHashMap <> ();
+  private final StringBuilder m_aIndent = new StringBuilder (32);
+  // Index 0 is the outermost element
+  private final ICommonsList <ElementLevel> m_aElementStack = new CommonsArrayList <> ();
+  // Status vars
+  private boolean m_bDocumentStarted = false;
+  private boolean m_bHasTopLevelChild = false;
+  private boolean m_bLastTopLevelChildInline = false;
+  private boolean m_bPendingNewLine = false;
+  private boolean m_bFinished = false;
+
+  /**
+   * Constructor writing to an {@link OutputStream} using the charset of the
+   * settings.
+   *
+   * @param aOS
+   *        The output stream to write to. May not be <code>null</code>. It is
+   *        closed when this object is closed.
+   * @param aSettings
+   *        The settings to use. May not be <code>null</code>.
+   */
+  public StreamingXMLSerializer (@Nonnull @WillCloseWhenClosed final OutputStream aOS, @Nonnull final IXMLWriterSettings aSettings)
+  {
+    this (new NonBlockingBufferedWriter (StreamHelper.createWriter (ValueEnforcer.notNull (aOS, "OutputStream"),
+                                                                    aSettings.getCharset ())),
+          aSettings);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aWriter
+   *        The writer to write to. May not be <code>null</code>. It is closed
+   *        when this object is closed.
+   * @param aSettings
+   *        The settings to use. May not be <code>null</code>.
+   */
+  public StreamingXMLSerializer (@Nonnull @WillCloseWhenClosed final Writer aWriter,
+                                 @Nonnull final IXMLWriterSettings aSettings)
+  {
+    m_aWriter = ValueEnforcer.notNull (aWriter, "Writer");
+    m_aSettings = ValueEnforcer.notNull (aSettings, "Settings");
+    m_aEmitter = new XMLEmitter (aWriter, aSettings);
+
+    final NamespaceContext aNC = aSettings.getNamespaceContext ();
+    m_aNSStack = new AbstractXMLSerializer.NamespaceStack (aNC);
+    if (aSettings.isPutNamespaceContextPrefixesInRoot () && aNC instanceof IIterableNamespaceContext)
+      m_aRootNSMap.putAll (((IIterableNamespaceContext) aNC).getPrefixToNamespaceURIMap ());
+  }
+
+  /**
+   * @return The settings as provided in the constructor. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public final IXMLWriterSettings getSettings ()
+  {
+    return m_aSettings;
+  }
+
+  /**
+   * @return The number of currently open elements. Always &ge; 0.
+   */
+  @Nonnegative
+  public final int getOpenElementCount ()
+  {
+    return m_aElementStack.size ();
+  }
+
+  private void _checkNotFinished ()
+  {
+    if (m_bFinished)
+      throw new IllegalStateException ("The document was already finished");
+  }
+
+  @Nullable
+  private ElementLevel _getCurrentElement ()
+  {
+    return m_aElementStack.getLast ();
+  }
+
+  private void _writePendingNewLine ()
+  {
+    if (m_bPendingNewLine)
+    {
+      m_aEmitter.onContentElementWhitespace (m_aSettings.getNewLineString ());
+      m_bPendingNewLine = false;
+    }
+  }
+
+  private void _writeStartTag (@Nonnull final ElementLevel aLevel,
+                               final boolean bHasChildren,
+                               final boolean bIsFirstChildElement)
+  {
+    final ElementLevel aParent = m_aElementStack.size () > 1 ? m_aElementStack.get (m_aElementStack.size () - 2)
+                                                             : null;
+    final String sParentNamespaceURI = aParent != null ? aParent.m_sNamespaceURI : null;
+    final String sParentTagName = aParent != null ? aParent.m_sTagName : null;
+    final Map <QName, String> aAttrMap = aLevel.m_aAttrMap;
+
+    final EXMLSerializeIndent eIndentOuter = m_aSettings.getIndentDeterminator ()
+                                                        .getIndentOuter (sParentNamespaceURI,
+                                                                         sParentTagName,
+                                                                         aLevel.m_sEffectiveNamespaceURI,
+                                                                         aLevel.m_sTagName,
+                                                                         aAttrMap,
+                                                                         bHasChildren,
+                                                                         m_aSettings.getIndent ());
+    // Has indent only if enabled, and an indent string is not empty
+    // indent only if predecessor was an element
+    if (eIndentOuter.isIndent () && m_aIndent.length () > 0 && aLevel.m_bIndentPrev)
+      m_aEmitter.onContentElementWhitespace (m_aIndent);
+
+    final EXMLSerializeBracketMode eBracketMode = m_aSettings.getBracketModeDeterminator ()
+                                                             .getBracketMode (aLevel.m_sEffectiveNamespaceURI,
+                                                                              aLevel.m_sTagName,
+                                                                              aAttrMap,
+                                                                              bHasChildren);
+    m_aEmitter.onElementStart (aLevel.m_sNSPrefix, aLevel.m_sTagName, aAttrMap, eBracketMode);
+
+    aLevel.m_bStartWritten = true;
+    aLevel.m_bHasChildren = bHasChildren;
+    aLevel.m_bIsFirstChildElement = bIsFirstChildElement;
+    aLevel.m_eIndentOuter = eIndentOuter;
+    aLevel.m_eBracketMode = eBracketMode;
+
+    if (bHasChildren)
+    {
+      final EXMLSerializeIndent eIndentInner = m_aSettings.getIndentDeterminator ()
+                                                          .getIndentInner (sParentNamespaceURI,
+                                                                           sParentTagName,
+                                                                           aLevel.m_sEffectiveNamespaceURI,
+                                                                           aLevel.m_sTagName,
+                                                                           aAttrMap,
+                                                                           bHasChildren,
+                                                                           m_aSettings.getIndent ());
+      aLevel.m_eIndentInner = eIndentInner;
+
+      // do we have enclosing elements?
+      if (eIndentInner.isAlign () && bIsFirstChildElement)
+        m_aEmitter.onContentElementWhitespace (m_aSettings.getNewLineString ());
+
+      // increment indent
+      m_aIndent.append (m_aSettings.getIndentationString ());
+    }
+
+    // Attributes are no longer needed
+    aLevel.m_aAttrMap = null;
+  }
+
+  /**
+   * Must be called before every node that is written.
+   *
+   * @param bInline
+   *        <code>true</code> for text, CDATA and entity references.
+   * @return <code>true</code> if the previous sibling is not inline (or not
+   *         present).
+   */
+  private boolean _beforeNode (final boolean bInline)
+  {
+    _checkNotFinished ();
+
+    final ElementLevel aCurrent = _getCurrentElement ();
+    if (aCurrent != null && !aCurrent.m_bStartWritten)
+    {
+      // First child of the current element
+      _writeStartTag (aCurrent, true, !bInline);
+    }
+    else
+    {
+      // The previous sibling was an element, and inline nodes follow
+      // directly without newline
+      if (bInline)
+        m_bPendingNewLine = false;
+      else
+        _writePendingNewLine ();
+    }
+
+    final boolean bRet;
+    if (aCurrent == null)
+    {
+      bRet = !m_bHasTopLevelChild || !m_bLastTopLevelChildInline;
+      m_bHasTopLevelChild = true;
+      m_bLastTopLevelChildInline = bInline;
+    }
+    else
+    {
+      bRet = !aCurrent.m_bHasChild || !aCurrent.m_bLastChildInline;
+      aCurrent.m_bHasChild = true;
+      aCurrent.m_bLastChildInline = bInline;
+    }
+    return bRet;
+  }
+
+  /**
+   * Write the XML declaration, if enabled in the settings. This must be the
+   * first call on this object, if a whole document should be written.
+   *
+   * @param eStandalone
+   *        The standalone state of the document. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  @SuppressWarnings ("deprecation")
+  public StreamingXMLSerializer writeStartDocument (@Nonnull final ETriState eStandalone)
+  {
+    ValueEnforcer.notNull (eStandalone, "Standalone");
+    _checkNotFinished ();
+    if (m_bDocumentStarted || m_bHasTopLevelChild)
+      throw new IllegalStateException ("The document must be started before anything else is written");
+
+    final EXMLSerializeXMLDeclaration eXMLDecl = m_aSettings.getSerializeXMLDeclaration ();
+    if (eXMLDecl.isEmit ())
+    {
+      m_aEmitter.onXMLDeclaration (m_aSettings.getXMLVersion (),
+                                   m_aSettings.getCharset ().name (),
+                                   eXMLDecl.isEmitStandalone () ? eStandalone : ETriState.UNDEFINED,
+                                   eXMLDecl.isWithNewLine () && m_aSettings.isNewLineAfterXMLDeclaration ());
+    }
+    m_bDocumentStarted = true;
+    return this;
+  }
+
+  /**
+   * Write the XML declaration, if enabled in the settings, without a
+   * standalone declaration.
+   *
+   * @return this for chaining
+   * @see #writeStartDocument(ETriState)
+   */
+  @Nonnull
+  public StreamingXMLSerializer writeStartDocument ()
+  {
+    return writeStartDocument (ETriState.UNDEFINED);
+  }
+
+  /**
+   * Write a document type, if enabled in the settings.
+   *
+   * @param sQualifiedName
+   *        The qualified name of the root element. May not be
+   *        <code>null</code>.
+   * @param sPublicID
+   *        The optional public ID. May be <code>null</code>.
+   * @param sSystemID
+   *        The optional system ID. May be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public StreamingXMLSerializer writeDocumentType (@Nonnull final String sQualifiedName,
+                                                   @Nullable final String sPublicID,
+                                                   @Nullable final String sSystemID)
+  {
+    _beforeNode (false);
+    if (m_aSettings.getSerializeDocType ().isEmit ())
+      m_aEmitter.onDocumentType (sQualifiedName, sPublicID, sSystemID);
+    return this;
+  }
+
+  /**
+   * Start a new element without a namespace URI.
+   *
+   * @param sTagName
+   *        The tag name. May neither be <code>null</code> nor empty.
+   * @return this for chaining
+   */
+  @Nonnull
+  public StreamingXMLSerializer writeStartElement (@Nonnull final String sTagName)
+  {
+    return writeStartElement (null, sTagName);
+  }
+
+  /**
+   * Start a new element. Attributes can be added with
+   * {@link #writeAttribute(String, String, String)} until the first child
+   * node is written.
+   *
+   * @param sNamespaceURI
+   *        The namespace URI of the element. May be <code>null</code>.
+   * @param sTagName
+   *        The local tag name. May neither be <code>null</code> nor empty.
+   * @return this for chaining
+   */
+  @Nonnull
+  public StreamingXMLSerializer writeStartElement (@Nullable final String sNamespaceURI,
+                                                   @Nonnull final String sTagName)
+  {
+    _writeStartElement (sNamespaceURI, sTagName, m_bDocumentStarted && m_aElementStack.isEmpty ());
+    return this;
+  }
+
+  private void _writeStartElement (@Nullable final String sNamespaceURI,
+                                   @Nonnull final String sTagName,
+                                   final boolean bIsRootElement)
+  {
+    ValueEnforcer.notEmpty (sTagName, "TagName");
+
+    final boolean bIndentPrev = _beforeNode (false) || bIsRootElement;
+
+    // get all attributes (order is important!)
+    final ICommonsOrderedMap <QName, String> aAttrMap = new CommonsLinkedHashMap <> ();
+
+    m_aNSStack.push ();
+
+    // Eventually adds a namespace attribute in the AttrMap
+    if (m_aSettings.isEmitNamespaces () && m_aNSStack.size () == 1 && m_aSettings.isPutNamespaceContextPrefixesInRoot ())
+    {
+      for (final Map.Entry <String, String> aEntry : m_aRootNSMap.entrySet ())
+      {
+        aAttrMap.put (XMLHelper.getXMLNSAttrQName (aEntry.getKey ()), aEntry.getValue ());
+        m_aNSStack.addNamespaceMapping (aEntry.getKey (), aEntry.getValue ());
+      }
+    }
+
+    // resolve Namespace prefix
+    String sElementNamespaceURI = null;
+    String sElementNSPrefix = null;
+    if (m_aSettings.isEmitNamespaces ())
+    {
+      sElementNamespaceURI = StringHelper.getNotNull (sNamespaceURI);
+      // Eventually adds a namespace attribute in the AttrMap
+      sElementNSPrefix = m_aNSStack.getElementNamespacePrefixToUse (sElementNamespaceURI, bIsRootElement, aAttrMap);
+    }
+
+    m_aElementStack.add (new ElementLevel (sNamespaceURI,
+                                           sElementNamespaceURI,
+                                           sTagName,
+                                           sElementNSPrefix,
+                                           bIndentPrev,
+                                           aAttrMap));
+  }
+
+  /**
+   * Add an attribute without a namespace URI to the current element.
+   *
+   * @param sName
+   *        The attribute name. May neither be <code>null</code> nor empty.
+   * @param sValue
+   *        The attribute value. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public StreamingXMLSerializer writeAttribute (@Nonnull final String sName, @Nonnull final String sValue)
+  {
+    return writeAttribute (null, sName, sValue);
+  }
+
+  /**
+   * Add an attribute to the current element. This is only possible directly
+   * after {@link #writeStartElement(String, String)}.
+   *
+   * @param sNamespaceURI
+   *        The namespace URI of the attribute. May be <code>null</code>.
+   * @param sName
+   *        The local attribute name. May neither be <code>null</code> nor
+   *        empty.
+   * @param sValue
+   *        The attribute value. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public StreamingXMLSerializer writeAttribute (@Nullable final String sNamespaceURI,
+                                                @Nonnull final String sName,
+                                                @Nonnull final String sValue)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    ValueEnforcer.notNull (sValue, "Value");
+    _checkNotFinished ();
+
+    final ElementLevel aCurrent = _getCurrentElement ();
+    if (aCurrent == null || aCurrent.m_bStartWritten)
+      throw new IllegalStateException ("Attributes can only be written directly after the start of an element");
+
+    final String sAttrNamespaceURI = StringHelper.getNotNull (sNamespaceURI);
+    String sAttrNSPrefix = null;
+    if (m_aSettings.isEmitNamespaces ())
+    {
+      // Eventually adds a namespace attribute in the AttrMap
+      sAttrNSPrefix = m_aNSStack.getAttributeNamespacePrefixToUse (sAttrNamespaceURI,
+                                                                   sName,
+                                                                   sValue,
+                                                                   aCurrent.m_aAttrMap);
+    }
+
+    if (sAttrNSPrefix != null)
+      aCurrent.m_aAttrMap.put (new QName (sNamespaceURI, sName, sAttrNSPrefix), sValue);
+    else
+      aCurrent.m_aAttrMap.put (new QName (sNamespaceURI, sName), sValue);
+    return this;
+  }
+
+  /**
+   * Write escaped text.
+   *
+   * @param sText
+   *        The text to write. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public StreamingXMLSerializer writeText (@Nonnull final String sText)
+  {
+    return writeText (sText, true);
+  }
+
+  /**
+   * Write text.
+   *
+   * @param sText
+   *        The text to write. May not be <code>null</code>.
+   * @param bEscape
+   *        <code>true</code> to escape the text, <code>false</code> to write
+   *        it as is.
+   * @return this for chaining
+   */
+  @Nonnull
+  public StreamingXMLSerializer writeText (@Nonnull final String sText, final boolean bEscape)
+  {
+    ValueEnforcer.notNull (sText, "Text");
+    _beforeNode (true);
+    m_aEmitter.onText (sText, bEscape);
+    return this;
+  }
+
+  /**
+   * Write a CDATA section - or text, if configured in the settings.
+   *
+   * @param sText
+   *        The text to write. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public StreamingXMLSerializer writeCDATA (@Nonnull final String sText)
+  {
+    ValueEnforcer.notNull (sText, "Text");
+    _beforeNode (true);
+    if (m_aSettings.isWriteCDATAAsText ())
+      m_aEmitter.onText (sText);
+    else
+      m_aEmitter.onCDATA (sText);
+    return this;
+  }
+
+  /**
+   * Write an entity reference.
+   *
+   * @param sName
+   *        The name of the entity reference, without the leading '&amp;' and
+   *        the trailing ';'. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public StreamingXMLSerializer writeEntityReference (@Nonnull final String sName)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    _beforeNode (true);
+    m_aEmitter.onEntityReference (sName);
+    return this;
+  }
+
+  /**
+   * Write a comment, if enabled in the settings.
+   *
+   * @param sComment
+   *        The comment to write. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public StreamingXMLSerializer writeComment (@Nonnull final String sComment)
+  {
+    ValueEnforcer.notNull (sComment, "Comment");
+    _beforeNode (false);
+    if (m_aSettings.getSerializeComments ().isEmit ())
+    {
+      if (m_aSettings.getIndent ().isIndent () && m_aIndent.length () > 0)
+        m_aEmitter.onContentElementWhitespace (m_aIndent);
+
+      m_aEmitter.onComment (sComment);
+
+      if (sComment.indexOf ('\n') >= 0)
+      {
+        // Newline only after multi-line comments
+        m_aEmitter.newLine ();
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Write a processing instruction.
+   *
+   * @param sTarget
+   *        The target. May neither be <code>null</code> nor empty.
+   * @param sData
+   *        The optional data. May be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public StreamingXMLSerializer writeProcessingInstruction (@Nonnull final String sTarget,
+                                                           @Nullable final String sData)
+  {
+    ValueEnforcer.notEmpty (sTarget, "Target");
+    _beforeNode (false);
+    m_aEmitter.onProcessingInstruction (sTarget, sData);
+    return this;
+  }
+
+  /**
+   * Close the current element.
+   *
+   * @return this for chaining
+   * @throws IllegalStateException
+   *         If no element is open
+   */
+  @Nonnull
+  public StreamingXMLSerializer writeEndElement ()
+  {
+    _checkNotFinished ();
+
+    final ElementLevel aCurrent = _getCurrentElement ();
+    if (aCurrent == null)
+      throw new IllegalStateException ("No open element present");
+
+    if (!aCurrent.m_bStartWritten)
+    {
+      // Element without children
+      _writeStartTag (aCurrent, false, false);
+    }
+    else
+    {
+      // The last child has no next sibling
+      _writePendingNewLine ();
+
+      if (aCurrent.m_bHasChildren)
+      {
+        // decrement indent
+        final String sIndent = m_aSettings.getIndentationString ();
+        m_aIndent.delete (m_aIndent.length () - sIndent.length (), m_aIndent.length ());
+
+        // add closing tag
+        if (aCurrent.m_eIndentInner.isIndent () && m_aIndent.length () > 0 && aCurrent.m_bIsFirstChildElement)
+          m_aEmitter.onContentElementWhitespace (m_aIndent);
+      }
+    }
+
+    m_aEmitter.onElementEnd (aCurrent.m_sNSPrefix, aCurrent.m_sTagName, aCurrent.m_eBracketMode);
+
+    // Newline is only written if the next sibling is not inline
+    m_bPendingNewLine = aCurrent.m_eIndentOuter.isAlign ();
+
+    m_aNSStack.pop ();
+    m_aElementStack.removeLast ();
+    return this;
+  }
+
+  /**
+   * Write a complete MicroDOM node including all children at the current
+   * position. If a document is passed, it must be the only thing written to
+   * this object.
+   *
+   * @param aNode
+   *        The node to write. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public StreamingXMLSerializer writeNode (@Nonnull final IMicroNode aNode)
+  {
+    ValueEnforcer.notNull (aNode, "Node");
+
+    switch (aNode.getType ())
+    {
+      case ELEMENT:
+      {
+        final IMicroElement aElement = (IMicroElement) aNode;
+        // An element of a document is always the root element
+        final boolean bIsRootElement = m_aElementStack.isEmpty () &&
+                                       (m_bDocumentStarted ||
+                                        (aElement.getParent () != null && aElement.getParent ().isDocument ()));
+        _writeStartElement (aElement.getNamespaceURI (), aElement.getTagName (), bIsRootElement);
+        if (aElement.hasAttributes ())
+          for (final IMicroAttribute aAttr : aElement.getAttributeObjs ())
+          {
+            final IMicroQName aAttrName = aAttr.getAttributeQName ();
+            writeAttribute (aAttrName.getNamespaceURI (), aAttrName.getName (), aAttr.getAttributeValue ());
+          }
+        _writeChildren (aElement);
+        writeEndElement ();
+        break;
+      }
+      case TEXT:
+      {
+        final IMicroText aText = (IMicroText) aNode;
+        writeText (aText.getData ().toString (), aText.isEscape ());
+        break;
+      }
+      case CDATA:
+        writeCDATA (((IMicroCDATA) aNode).getData ().toString ());
+        break;
+      case COMMENT:
+        writeComment (((IMicroComment) aNode).getData ().toString ());
+        break;
+      case ENTITY_REFERENCE:
+        writeEntityReference (((IMicroEntityReference) aNode).getName ());
+        break;
+      case DOCUMENT:
+        writeStartDocument (((IMicroDocument) aNode).getStandalone ());
+        _writeChildren (aNode);
+        writeEndDocument ();
+        break;
+      case DOCUMENT_TYPE:
+      {
+        final IMicroDocumentType aDocType = (IMicroDocumentType) aNode;
+        writeDocumentType (aDocType.getQualifiedName (), aDocType.getPublicID (), aDocType.getSystemID ());
+        break;
+      }
+      case PROCESSING_INSTRUCTION:
+      {
+        final IMicroProcessingInstruction aPI = (IMicroProcessingInstruction) aNode;
+        writeProcessingInstruction (aPI.getTarget (), aPI.getData ());
+        break;
+      }
+      case CONTAINER:
+        // A container has no own properties!
+        _writeChildren (aNode);
+        break;
+      default:
+        throw new IllegalArgumentException ("Passed node type " +
+                                            aNode.getClass ().getName () +
+                                            " is not yet supported");
+    }
+    return this;
+  }
+
+  private void _writeChildren (@Nonnull final IMicroNode aParentNode)
+  {
+    if (aParentNode.hasChildren ())
+      for (final IMicroNode aChild : aParentNode.getAllChildren ())
+        writeNode (aChild);
+  }
+
+  /**
+   * Close all open elements and write all pending content. Afterwards nothing
+   * can be written any more. Calling this method more than once has no
+   * effect.
+   *
+   * @return this for chaining
+   */
+  @Nonnull
+  public StreamingXMLSerializer writeEndDocument ()
+  {
+    if (!m_bFinished)
+    {
+      while (m_aElementStack.isNotEmpty ())
+        writeEndElement ();
+      _writePendingNewLine ();
+      m_bFinished = true;
+    }
+    return this;
+  }
+
+  public void flush () throws IOException
+  {
+    m_aEmitter.flush ();
+  }
+
+  /**
+   * Finish the document (see {@link #writeEndDocument()}) and close the
+   * underlying writer.
+   */
+  public void close () throws IOException
+  {
+    try
+    {
+      writeEndDocument ();
+    }
+    finally
+    {
+      StreamHelper.close (m_aWriter);
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Settings", m_aSettings)
+                                       .append ("OpenElements", m_aElementStack.size ())
+                                       .append ("DocumentStarted", m_bDocumentStarted)
+                                       .append ("Finished", m_bFinished)
+                                       .getToString ();
+  }
+}
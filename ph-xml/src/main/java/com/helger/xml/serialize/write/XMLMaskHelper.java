@@ -24,7 +24,6 @@ import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import com.helger.commons.CGlobal;
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.PresentForCodeCoverage;
@@ -574,15 +573,177 @@ public final class XMLMaskHelper
       ret[nIndex++] = aChar.charValue ();
     return ret;
   }
+  /**
+   * Lookup table for a single combination of XML version and character mode.
+   * Each masked character is directly mapped to its replacement, so that the
+   * input needs to be scanned only once with a single array access per
+   * character.
+   *
+   * @author Philip Helger
+   * @since 9.4.3
+   */
+  private static final class MaskTable
+  {
+    // All masked chars except U+2028 are below this limit
+    private static final int LOW_LIMIT = 0x100;
 
-  @Nonnull
-  @ReturnsMutableCopy
-  private static char [] [] _createEmptyReplacement (@Nonnull final char [] aSrcMap)
+    private final char [] [] m_aLowReplace = new char [LOW_LIMIT] [];
+    private final char [] m_aHighChars;
+    private final char [] [] m_aHighReplace;
+    private final char m_cMaxChar;
+
+    MaskTable (@Nonnull final char [] aSrcMap, @Nonnull final char [] [] aDstMap)
+    {
+      int nHighCount = 0;
+      char cMaxChar = 0;
+      for (final char c : aSrcMap)
+      {
+        if (c >= LOW_LIMIT)
+          nHighCount++;
+        if (c > cMaxChar)
+          cMaxChar = c;
+      }
+      m_aHighChars = new char [nHighCount];
+      m_aHighReplace = new char [nHighCount] [];
+      m_cMaxChar = cMaxChar;
+
+      int nHighIndex = 0;
+      for (int i = 0; i < aSrcMap.length; ++i)
+      {
+        final char c = aSrcMap[i];
+        if (c < LOW_LIMIT)
+        {
+          // First match wins - same as in StringHelper.replaceMultiple
+          if (m_aLowReplace[c] == null)
+            m_aLowReplace[c] = aDstMap[i];
+        }
+        else
+        {
+          m_aHighChars[nHighIndex] = c;
+          m_aHighReplace[nHighIndex] = aDstMap[i];
+          nHighIndex++;
+        }
+      }
+    }
+
+    @Nullable
+    char [] getReplacement (final char c)
+    {
+      if (c < LOW_LIMIT)
+        return m_aLowReplace[c];
+      if (c > m_cMaxChar)
+        return null;
+      for (int i = 0; i < m_aHighChars.length; ++i)
+        if (m_aHighChars[i] == c)
+          return m_aHighReplace[i];
+      return null;
+    }
+  }
+
+  // Index 1: EXMLSerializeVersion ordinal; index 2: EXMLCharMode ordinal
+  private static final MaskTable [] [] MASK_TABLES;
+
+  static
   {
-    final char [] [] ret = new char [aSrcMap.length] [];
-    for (int i = 0; i < aSrcMap.length; ++i)
-      ret[i] = ArrayHelper.EMPTY_CHAR_ARRAY;
-    return ret;
+    final EXMLSerializeVersion [] aVersions = EXMLSerializeVersion.values ();
+    final EXMLCharMode [] aCharModes = EXMLCharMode.values ();
+    MASK_TABLES = new MaskTable [aVersions.length] [aCharModes.length];
+    for (final EXMLSerializeVersion eXMLVersion : aVersions)
+      for (final EXMLCharMode eXMLCharMode : aCharModes)
+      {
+        final char [] aSrcMap = _findSourceMap (eXMLVersion, eXMLCharMode);
+        if (aSrcMap != null)
+          MASK_TABLES[eXMLVersion.ordinal ()][eXMLCharMode.ordinal ()] = new MaskTable (aSrcMap,
+                                                                                       _findReplaceMap (eXMLVersion,
+                                                                                                        eXMLCharMode));
+      }
+  }
+
+  @Nullable
+  private static MaskTable _getMaskTable (@Nonnull final EXMLSerializeVersion eXMLVersion,
+                                          @Nonnull final EXMLCharMode eXMLCharMode)
+  {
+    return MASK_TABLES[eXMLVersion.ordinal ()][eXMLCharMode.ordinal ()];
+  }
+
+  private static boolean _containsInvalidXMLChar (@Nonnull final EXMLSerializeVersion eXMLVersion,
+                                                  @Nonnull final EXMLCharMode eXMLCharMode,
+                                                  @Nonnull final String s)
+  {
+    // Don't use XMLCharHelper.containsInvalidXMLChar (String) because it
+    // copies the string content
+    final int nLen = s.length ();
+    switch (eXMLCharMode)
+    {
+      case ELEMENT_NAME:
+      case ATTRIBUTE_NAME:
+        if (XMLCharHelper.isInvalidXMLNameStartChar (eXMLVersion, s.charAt (0)))
+          return true;
+        for (int i = 1; i < nLen; ++i)
+          if (XMLCharHelper.isInvalidXMLNameChar (eXMLVersion, s.charAt (i)))
+            return true;
+        return false;
+      case ATTRIBUTE_VALUE_DOUBLE_QUOTES:
+      case ATTRIBUTE_VALUE_SINGLE_QUOTES:
+        for (int i = 0; i < nLen; ++i)
+          if (XMLCharHelper.isInvalidXMLAttributeValueChar (eXMLVersion, s.charAt (i)))
+            return true;
+        return false;
+      case TEXT:
+        for (int i = 0; i < nLen; ++i)
+          if (XMLCharHelper.isInvalidXMLTextChar (eXMLVersion, s.charAt (i)))
+            return true;
+        return false;
+      case CDATA:
+        for (int i = 0; i < nLen; ++i)
+          if (XMLCharHelper.isInvalidXMLCDATAChar (eXMLVersion, s.charAt (i)))
+            return true;
+        return false;
+      default:
+        throw new IllegalArgumentException ("Unsupported XML character mode " + eXMLCharMode + "!");
+    }
+  }
+
+  /**
+   * Perform the incorrect character handling on the passed string.
+   *
+   * @return The characters that should be skipped when writing or
+   *         <code>null</code> if all characters should be written.
+   */
+  @Nullable
+  private static char [] _getCharsToRemove (@Nonnull final EXMLSerializeVersion eXMLVersion,
+                                            @Nonnull final EXMLCharMode eXMLCharMode,
+                                            @Nonnull final EXMLIncorrectCharacterHandling eIncorrectCharHandling,
+                                            @Nonnull final String s)
+  {
+    if (eIncorrectCharHandling.isTestRequired () && _containsInvalidXMLChar (eXMLVersion, eXMLCharMode, s))
+    {
+      // This part should not be called very often
+      final ICommonsSet <Character> aAllInvalidChars = XMLCharHelper.getAllInvalidXMLChars (eXMLVersion,
+                                                                                            eXMLCharMode,
+                                                                                            s);
+      eIncorrectCharHandling.notifyOnInvalidXMLCharacter (s, aAllInvalidChars);
+      if (eIncorrectCharHandling.isReplaceWithNothing ())
+        return getAsCharArray (aAllInvalidChars);
+    }
+    return null;
+  }
+
+  /**
+   * Get the replacement of a single character.
+   *
+   * @return <code>null</code> if the character should be written as is, an
+   *         empty array if the character should be skipped or the replacement
+   *         otherwise.
+   */
+  @Nullable
+  private static char [] _getReplacement (@Nullable final MaskTable aMaskTable,
+                                          @Nullable final char [] aCharsToRemove,
+                                          final char c)
+  {
+    if (aCharsToRemove != null && ArrayHelper.contains (aCharsToRemove, c))
+      return ArrayHelper.EMPTY_CHAR_ARRAY;
+    return aMaskTable == null ? null : aMaskTable.getReplacement (c);
   }
 
   @Nonnull
@@ -594,35 +755,43 @@ public final class XMLMaskHelper
     if (StringHelper.hasNoText (s))
       return ArrayHelper.EMPTY_CHAR_ARRAY;
 
-    char [] aChars = s.toCharArray ();
-
-    // 1. do incorrect character handling
-    if (eIncorrectCharHandling.isTestRequired ())
+    final MaskTable aMaskTable = _getMaskTable (eXMLVersion, eXMLCharMode);
+    final char [] aCharsToRemove = _getCharsToRemove (eXMLVersion, eXMLCharMode, eIncorrectCharHandling, s);
+    final int nLen = s.length ();
+    final char [] ret = new char [_getMaskedLength (aMaskTable, aCharsToRemove, s)];
+    int nRunStart = 0;
+    int nDstIndex = 0;
+    for (int i = 0; i < nLen; ++i)
     {
-      if (XMLCharHelper.containsInvalidXMLChar (eXMLVersion, eXMLCharMode, aChars))
+      final char [] aReplacement = _getReplacement (aMaskTable, aCharsToRemove, s.charAt (i));
+      if (aReplacement != null)
       {
-        final ICommonsSet <Character> aAllInvalidChars = XMLCharHelper.getAllInvalidXMLChars (eXMLVersion,
-                                                                                              eXMLCharMode,
-                                                                                              aChars);
-        eIncorrectCharHandling.notifyOnInvalidXMLCharacter (s, aAllInvalidChars);
-        if (eIncorrectCharHandling.isReplaceWithNothing ())
-        {
-          final char [] aSrcMap = getAsCharArray (aAllInvalidChars);
-          final char [] [] aDstMap = _createEmptyReplacement (aSrcMap);
-          aChars = StringHelper.replaceMultiple (s, aSrcMap, aDstMap);
-        }
+        s.getChars (nRunStart, i, ret, nDstIndex);
+        nDstIndex += i - nRunStart;
+        System.arraycopy (aReplacement, 0, ret, nDstIndex, aReplacement.length);
+        nDstIndex += aReplacement.length;
+        nRunStart = i + 1;
       }
     }
+    s.getChars (nRunStart, nLen, ret, nDstIndex);
+    return ret;
+  }
 
-    // 2. perform entity replacements if necessary
-    final char [] aSrcMap = _findSourceMap (eXMLVersion, eXMLCharMode);
-    if (aSrcMap == null)
-    {
-      // Nothing to replace
-      return aChars;
-    }
-    final char [] [] aDstMap = _findReplaceMap (eXMLVersion, eXMLCharMode);
-    return StringHelper.replaceMultiple (aChars, aSrcMap, aDstMap);
+  @Nonnegative
+  private static int _getMaskedLength (@Nullable final MaskTable aMaskTable,
+                                       @Nullable final char [] aCharsToRemove,
+                                       @Nonnull final String s)
+  {
+    final int nLen = s.length ();
+    int ret = nLen;
+    if (aMaskTable != null || aCharsToRemove != null)
+      for (int i = 0; i < nLen; ++i)
+      {
+        final char [] aReplacement = _getReplacement (aMaskTable, aCharsToRemove, s.charAt (i));
+        if (aReplacement != null)
+          ret += aReplacement.length - 1;
+      }
+    return ret;
   }
 
   @Nonnegative
@@ -646,44 +815,63 @@ public final class XMLMaskHelper
     if (StringHelper.hasNoText (s))
       return 0;
 
-    char [] aChars = s.toCharArray ();
-
-    // 1. do incorrect character handling
-    if (eIncorrectCharHandling.isTestRequired () &&
-        XMLCharHelper.containsInvalidXMLChar (eXMLVersion, eXMLCharMode, aChars))
-    {
-      final ICommonsSet <Character> aAllInvalidChars = XMLCharHelper.getAllInvalidXMLChars (eXMLVersion,
-                                                                                            eXMLCharMode,
-                                                                                            aChars);
-      eIncorrectCharHandling.notifyOnInvalidXMLCharacter (s, aAllInvalidChars);
-      if (eIncorrectCharHandling.isReplaceWithNothing ())
-      {
-        final char [] aSrcMap = getAsCharArray (aAllInvalidChars);
-        final char [] [] aDstMap = _createEmptyReplacement (aSrcMap);
-        aChars = StringHelper.replaceMultiple (s, aSrcMap, aDstMap);
-      }
-    }
-
-    // 2. perform entity replacements if necessary
-    final char [] aSrcMap = _findSourceMap (eXMLVersion, eXMLCharMode);
-    if (aSrcMap == null)
-    {
-      // Nothing to replace
-      return aChars.length;
-    }
-    final char [] [] aDstMap = _findReplaceMap (eXMLVersion, eXMLCharMode);
-    final int nResLen = StringHelper.getReplaceMultipleResultLength (aChars, aSrcMap, aDstMap);
-    return nResLen == CGlobal.ILLEGAL_UINT ? aChars.length : nResLen;
+    final char [] aCharsToRemove = _getCharsToRemove (eXMLVersion, eXMLCharMode, eIncorrectCharHandling, s);
+    return _getMaskedLength (_getMaskTable (eXMLVersion, eXMLCharMode), aCharsToRemove, s);
   }
 
+  /**
+   * Mask the passed text and write it to the passed writer. Unmasked parts of
+   * the input are written directly from the source string and the entity
+   * references are taken from precomputed tables, so no temporary objects are
+   * created (unless invalid characters are contained).
+   *
+   * @param eXMLVersion
+   *        XML version to use. May not be <code>null</code>.
+   * @param eXMLCharMode
+   *        The char mode to use. May not be <code>null</code>.
+   * @param eIncorrectCharHandling
+   *        The handling of incorrect characters. May not be <code>null</code>.
+   * @param s
+   *        The text to be masked. May be <code>null</code>.
+   * @param aWriter
+   *        The writer to write to. May not be <code>null</code>.
+   * @throws IOException
+   *         In case writing fails
+   */
   public static void maskXMLTextTo (@Nonnull final EXMLSerializeVersion eXMLVersion,
                                     @Nonnull final EXMLCharMode eXMLCharMode,
                                     @Nonnull final EXMLIncorrectCharacterHandling eIncorrectCharHandling,
                                     @Nullable final String s,
                                     @Nonnull final Writer aWriter) throws IOException
   {
-    if (StringHelper.hasText (s))
-      maskXMLTextTo (eXMLVersion, eXMLCharMode, eIncorrectCharHandling, s.toCharArray (), 0, s.length (), aWriter);
+    if (StringHelper.hasNoText (s))
+      return;
+
+    final MaskTable aMaskTable = _getMaskTable (eXMLVersion, eXMLCharMode);
+    final char [] aCharsToRemove = _getCharsToRemove (eXMLVersion, eXMLCharMode, eIncorrectCharHandling, s);
+    final int nLen = s.length ();
+    if (aMaskTable == null && aCharsToRemove == null)
+    {
+      // Nothing to replace
+      aWriter.write (s, 0, nLen);
+      return;
+    }
+
+    int nRunStart = 0;
+    for (int i = 0; i < nLen; ++i)
+    {
+      final char [] aReplacement = _getReplacement (aMaskTable, aCharsToRemove, s.charAt (i));
+      if (aReplacement != null)
+      {
+        if (nRunStart < i)
+          aWriter.write (s, nRunStart, i - nRunStart);
+        if (aReplacement.length > 0)
+          aWriter.write (aReplacement);
+        nRunStart = i + 1;
+      }
+    }
+    if (nRunStart < nLen)
+      aWriter.write (s, nRunStart, nLen - nRunStart);
   }
 
   public static void maskXMLTextTo (@Nonnull final EXMLSerializeVersion eXMLVersion,
@@ -697,52 +885,47 @@ public final class XMLMaskHelper
     if (nLen == 0)
       return;
 
-    char [] aChars = aText;
-    int nRealOfs = nOfs;
-    int nRealLen = nLen;
-
     // 1. do incorrect character handling
-    if (eIncorrectCharHandling.isTestRequired ())
+    char [] aCharsToRemove = null;
+    if (eIncorrectCharHandling.isTestRequired () &&
+        XMLCharHelper.containsInvalidXMLChar (eXMLVersion, eXMLCharMode, aText, nOfs, nLen))
     {
-      if (XMLCharHelper.containsInvalidXMLChar (eXMLVersion, eXMLCharMode, aChars, nRealOfs, nRealLen))
-      {
-        final ICommonsOrderedSet <Character> aAllInvalidChars = XMLCharHelper.getAllInvalidXMLChars (eXMLVersion,
-                                                                                                     eXMLCharMode,
-                                                                                                     aChars,
-                                                                                                     nRealOfs,
-                                                                                                     nRealLen);
-        // Here we can convert, because this part should not be called very
-        // often
-        final String s = new String (aText, nRealOfs, nRealLen);
-        eIncorrectCharHandling.notifyOnInvalidXMLCharacter (s, aAllInvalidChars);
-        if (eIncorrectCharHandling.isReplaceWithNothing ())
-        {
-          final char [] aSrcMap = getAsCharArray (aAllInvalidChars);
-          final char [] [] aDstMap = _createEmptyReplacement (aSrcMap);
-
-          aChars = StringHelper.replaceMultiple (s, aSrcMap, aDstMap);
-          nRealOfs = 0;
-          nRealLen = aChars.length;
-          if (nRealLen == 0)
-          {
-            // Nothing left after replacement
-            return;
-          }
-        }
-      }
+      final ICommonsOrderedSet <Character> aAllInvalidChars = XMLCharHelper.getAllInvalidXMLChars (eXMLVersion,
+                                                                                                   eXMLCharMode,
+                                                                                                   aText,
+                                                                                                   nOfs,
+                                                                                                   nLen);
+      // Here we can convert, because this part should not be called very
+      // often
+      eIncorrectCharHandling.notifyOnInvalidXMLCharacter (new String (aText, nOfs, nLen), aAllInvalidChars);
+      if (eIncorrectCharHandling.isReplaceWithNothing ())
+        aCharsToRemove = getAsCharArray (aAllInvalidChars);
     }
 
     // 2. perform entity replacements if necessary
-    final char [] aSrcMap = _findSourceMap (eXMLVersion, eXMLCharMode);
-    if (aSrcMap == null)
+    final MaskTable aMaskTable = _getMaskTable (eXMLVersion, eXMLCharMode);
+    if (aMaskTable == null && aCharsToRemove == null)
     {
       // Nothing to replace
-      aWriter.write (aChars, nRealOfs, nRealLen);
+      aWriter.write (aText, nOfs, nLen);
+      return;
     }
-    else
+
+    final int nEnd = nOfs + nLen;
+    int nRunStart = nOfs;
+    for (int i = nOfs; i < nEnd; ++i)
     {
-      final char [] [] aDstMap = _findReplaceMap (eXMLVersion, eXMLCharMode);
-      StringHelper.replaceMultipleTo (aChars, nRealOfs, nRealLen, aSrcMap, aDstMap, aWriter);
+      final char [] aReplacement = _getReplacement (aMaskTable, aCharsToRemove, aText[i]);
+      if (aReplacement != null)
+      {
+        if (nRunStart < i)
+          aWriter.write (aText, nRunStart, i - nRunStart);
+        if (aReplacement.length > 0)
+          aWriter.write (aReplacement);
+        nRunStart = i + 1;
+      }
     }
+    if (nRunStart < nEnd)
+      aWriter.write (aText, nRunStart, nEnd - nRunStart);
   }
 }
@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.transform;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.transform.ErrorListener;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.URIResolver;
+
+import com.helger.commons.CGlobal;
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.Singleton;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.state.EChange;
+import com.helger.xml.util.AbstractCompiledResourceCache;
+
+/**
+ * A cache for XSLT {@link Templates} objects. {@link Templates} are
+ * thread-safe and can therefore be shared, whereas the {@link javax.xml.transform.Transformer}
+ * objects created from them must not be shared. Each cache entry consists of
+ * exactly one resource.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@ThreadSafe
+@Singleton ("can be instantiated directly as well")
+public class TemplatesCache extends AbstractCompiledResourceCache <TransformerFactory, Templates>
+{
+  private static final class SingletonHolder
+  {
+    private static final TemplatesCache s_aInstance = new TemplatesCache ();
+  }
+
+  private static boolean s_bDefaultInstantiated = false;
+
+  public TemplatesCache ()
+  {
+    this (new LoggingTransformErrorListener (CGlobal.DEFAULT_LOCALE), new DefaultTransformURIResolver ());
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aErrorListener
+   *        The error listener to use. May be <code>null</code>. Must be
+   *        thread-safe.
+   * @param aURIResolver
+   *        The URI resolver to use. May be <code>null</code>. Must be
+   *        thread-safe.
+   */
+  public TemplatesCache (@Nullable final ErrorListener aErrorListener, @Nullable final URIResolver aURIResolver)
+  {
+    super (TemplatesCache.class.getName (),
+           () -> XMLTransformerFactory.createTransformerFactory (aErrorListener, aURIResolver),
+           DEFAULT_MAX_PARALLEL_COMPILATIONS,
+           DEFAULT_MAX_SIZE);
+  }
+
+  public static boolean isInstantiated ()
+  {
+    return s_bDefaultInstantiated;
+  }
+
+  @Nonnull
+  public static TemplatesCache getInstance ()
+  {
+    final TemplatesCache ret = SingletonHolder.s_aInstance;
+    s_bDefaultInstantiated = true;
+    return ret;
+  }
+
+  @Override
+  protected void applyFeature (@Nonnull final TransformerFactory aFactory,
+                               @Nonnull @Nonempty final String sName,
+                               final boolean bValue)
+  {
+    try
+    {
+      aFactory.setFeature (sName, bValue);
+    }
+    catch (final TransformerConfigurationException ex)
+    {
+      throw new IllegalArgumentException ("Failed to set XSLT feature '" + sName + "'", ex);
+    }
+  }
+
+  @Override
+  @Nonnull
+  protected Templates compile (@Nonnull final TransformerFactory aFactory,
+                               @Nonnull @Nonempty final ICommonsList <IReadableResource> aResources)
+  {
+    ValueEnforcer.isTrue (aResources.size () == 1, "Exactly one resource must be provided");
+
+    final IReadableResource aResource = aResources.getFirst ();
+    try
+    {
+      final Templates ret = aFactory.newTemplates (TransformSourceFactory.create (aResource));
+      if (ret == null)
+        throw new IllegalStateException ("Failed to create XSLT templates from " + aResource);
+      return ret;
+    }
+    catch (final TransformerConfigurationException ex)
+    {
+      throw new IllegalArgumentException ("Failed to parse XSLT from " + aResource, ex);
+    }
+  }
+
+  /**
+   * Get the cached {@link Templates} of the provided resource.
+   *
+   * @param aResource
+   *        The XSLT resource. May not be <code>null</code>.
+   * @return Either the {@link Templates} from the cache or the newly compiled
+   *         one.
+   * @throws IllegalArgumentException
+   *         If the XSLT cannot be compiled
+   */
+  @Nonnull
+  public final Templates getTemplates (@Nonnull final IReadableResource aResource)
+  {
+    ValueEnforcer.notNull (aResource, "Resource");
+
+    return getFromCache (new CommonsArrayList <> (aResource));
+  }
+
+  /**
+   * Utility method to remove a single resource from the cache.
+   *
+   * @param aResource
+   *        The resource to remove. May not be <code>null</code>.
+   * @return {@link EChange}.
+   */
+  @Nonnull
+  public EChange removeFromCache (@Nonnull final IReadableResource aResource)
+  {
+    return removeFromCache (new CommonsArrayList <> (aResource));
+  }
+}
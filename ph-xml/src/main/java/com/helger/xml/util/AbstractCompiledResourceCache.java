@@ -0,0 +1,574 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.util;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.cache.ConcurrentMappedCache;
+import com.helger.commons.cache.IMutableCache;
+import com.helger.commons.cache.MappedCache;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.concurrent.BasicThreadFactory;
+import com.helger.commons.concurrent.ExecutorServiceHelper;
+import com.helger.commons.concurrent.SimpleLock;
+import com.helger.commons.functional.ISupplier;
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.pool.ConcurrentObjectPool;
+import com.helger.commons.state.EChange;
+import com.helger.commons.statistics.IMutableStatisticsHandlerTimer;
+import com.helger.commons.statistics.StatisticsManager;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Base class for caches of objects that are compiled from a list of resources
+ * with a factory that is not thread-safe (like {@link javax.xml.validation.Schema}
+ * or {@link javax.xml.transform.Templates}).
+ * <ul>
+ * <li>The cache is concurrent: reading cached objects never blocks.</li>
+ * <li>Compilation is single-flight: if multiple threads request the same
+ * object, it is compiled only once and all threads wait for the result.
+ * Different objects are compiled in parallel, each with its own factory,
+ * taken from a pool of factories. If the cache was created with a single
+ * shared factory instead, all compilations are serialized on that
+ * factory.</li>
+ * <li>The cache key consists of the resource list and the factory features
+ * set via {@link #setFeature(String, boolean)}.</li>
+ * <li>The compile time of each cached object is recorded and the total
+ * compile time is recorded in the timer statistics
+ * <code>cache:<i>name</i>$compile</code>.</li>
+ * <li>{@link #prewarm(Collection, int)} compiles a set of resource lists in
+ * parallel, e.g. upon application startup.</li>
+ * </ul>
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ * @param <FACTORYTYPE>
+ *        The factory type used for compilation.
+ * @param <VALUETYPE>
+ *        The compiled object type.
+ */
+@ThreadSafe
+public abstract class AbstractCompiledResourceCache <FACTORYTYPE, VALUETYPE> implements
+                                                    IMutableCache <ICommonsList <? extends IReadableResource>, VALUETYPE>
+{
+  /** The default maximum number of cached objects */
+  public static final int DEFAULT_MAX_SIZE = 500;
+  /** The default number of objects that are compiled in parallel. */
+  public static final int DEFAULT_MAX_PARALLEL_COMPILATIONS = Math.max (2, Runtime.getRuntime ().availableProcessors ());
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (AbstractCompiledResourceCache.class);
+
+  private final String m_sName;
+  private final ISupplier <? extends FACTORYTYPE> m_aFactorySupplier;
+  private final FACTORYTYPE m_aSharedFactory;
+  private final SimpleLock m_aSharedFactoryLock = new SimpleLock ();
+  private final int m_nMaxFactoryCount;
+  private final SimpleLock m_aLock = new SimpleLock ();
+  @GuardedBy ("m_aLock")
+  private volatile ICommonsOrderedMap <String, Boolean> m_aFeatures = new CommonsLinkedHashMap <> ();
+  /** Only present if a factory supplier is used */
+  private volatile ConcurrentObjectPool <FACTORYTYPE> m_aFactoryPool;
+  private final ConcurrentMappedCache <CompiledResourceKey, CompiledResourceKey, VALUETYPE> m_aCache;
+  private final Map <CompiledResourceKey, Duration> m_aCompileDurations = new ConcurrentHashMap <> ();
+  private final IMutableStatisticsHandlerTimer m_aStatsCompile;
+
+  /**
+   * Constructor
+   *
+   * @param sName
+   *        The name of the cache, used for statistics. May neither be
+   *        <code>null</code> nor empty.
+   * @param aFactorySupplier
+   *        The supplier for new, fully configured factories. May not be
+   *        <code>null</code>. Must return a new factory instance on each
+   *        invocation - use
+   *        {@link #AbstractCompiledResourceCache(String, Object, int)} for a
+   *        single shared factory.
+   * @param nMaxFactoryCount
+   *        The maximum number of factories, and therefore the maximum number
+   *        of parallel compilations. Must be &gt; 0.
+   * @param nMaxSize
+   *        The maximum number of cached objects. Values &le; 0 indicate no
+   *        limit.
+   */
+  protected AbstractCompiledResourceCache (@Nonnull @Nonempty final String sName,
+                                           @Nonnull final ISupplier <? extends FACTORYTYPE> aFactorySupplier,
+                                           @Nonnegative final int nMaxFactoryCount,
+                                           final int nMaxSize)
+  {
+    this (sName, ValueEnforcer.notNull (aFactorySupplier, "FactorySupplier"), null, nMaxFactoryCount, nMaxSize);
+  }
+
+  /**
+   * Constructor for a single factory that is not thread-safe and may be
+   * shared with other parties. All compilations are serialized and the
+   * features of the respective cache key are applied to the factory right
+   * before each compilation.
+   *
+   * @param sName
+   *        The name of the cache, used for statistics. May neither be
+   *        <code>null</code> nor empty.
+   * @param aSharedFactory
+   *        The fully configured factory to be used for all compilations. May
+   *        not be <code>null</code>.
+   * @param nMaxSize
+   *        The maximum number of cached objects. Values &le; 0 indicate no
+   *        limit.
+   */
+  protected AbstractCompiledResourceCache (@Nonnull @Nonempty final String sName,
+                                           @Nonnull final FACTORYTYPE aSharedFactory,
+                                           final int nMaxSize)
+  {
+    this (sName, null, ValueEnforcer.notNull (aSharedFactory, "SharedFactory"), 1, nMaxSize);
+  }
+
+  private AbstractCompiledResourceCache (@Nonnull @Nonempty final String sName,
+                                         @Nullable final ISupplier <? extends FACTORYTYPE> aFactorySupplier,
+                                         @Nullable final FACTORYTYPE aSharedFactory,
+                                         @Nonnegative final int nMaxFactoryCount,
+                                         final int nMaxSize)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    ValueEnforcer.isGT0 (nMaxFactoryCount, "MaxFactoryCount");
+
+    m_sName = sName;
+    m_aFactorySupplier = aFactorySupplier;
+    m_aSharedFactory = aSharedFactory;
+    m_nMaxFactoryCount = nMaxFactoryCount;
+    m_aFactoryPool = aFactorySupplier == null ? null : _createFactoryPool (m_aFeatures);
+    m_aCache = new ConcurrentMappedCache.Builder <CompiledResourceKey, CompiledResourceKey, VALUETYPE> ().setCacheKeyProvider (x -> x)
+                                                                                                          .setValueProvider (this::_compile)
+                                                                                                          .setMaxSize (nMaxSize)
+                                                                                                          .setName (sName)
+                                                                                                          .build ();
+    m_aStatsCompile = StatisticsManager.getTimerHandler (MappedCache.STATISTICS_PREFIX + sName + "$compile");
+  }
+
+  @Nonnull
+  private ConcurrentObjectPool <FACTORYTYPE> _createFactoryPool (@Nonnull final ICommonsOrderedMap <String, Boolean> aFeatures)
+  {
+    return new ConcurrentObjectPool.Builder <FACTORYTYPE> ().setFactory ( () -> {
+      final FACTORYTYPE aFactory = m_aFactorySupplier.get ();
+      for (final Map.Entry <String, Boolean> aEntry : aFeatures.entrySet ())
+        applyFeature (aFactory, aEntry.getKey (), aEntry.getValue ().booleanValue ());
+      return aFactory;
+    }).setMaxSize (m_nMaxFactoryCount).build ();
+  }
+
+  /**
+   * @return The name of this cache as provided in the constructor. Neither
+   *         <code>null</code> nor empty.
+   */
+  @Nonnull
+  @Nonempty
+  public final String getName ()
+  {
+    return m_sName;
+  }
+
+  /**
+   * @return The maximum number of parallel compilations. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getMaxFactoryCount ()
+  {
+    return m_nMaxFactoryCount;
+  }
+
+  /**
+   * @return The maximum number of cached objects. Values &le; 0 indicate no
+   *         limit.
+   */
+  public final int getMaxSize ()
+  {
+    return m_aCache.getMaxSize ();
+  }
+
+  /**
+   * @return <code>true</code> if a maximum number of cached objects is
+   *         defined, <code>false</code> if not.
+   */
+  public final boolean hasMaxSize ()
+  {
+    return m_aCache.hasMaxSize ();
+  }
+
+  /**
+   * @return Always <code>false</code>, as compilation never results in a
+   *         <code>null</code> object.
+   */
+  public final boolean isAllowNullValues ()
+  {
+    return false;
+  }
+
+  /**
+   * @return A copy of all factory features set via
+   *         {@link #setFeature(String, boolean)}. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public final ICommonsOrderedMap <String, Boolean> getAllFeatures ()
+  {
+    return m_aFeatures.getClone ();
+  }
+
+  /**
+   * Set a feature on all factories used for compilation. As the features are
+   * part of the cache key, objects compiled with other features are not
+   * reused afterwards. Compilations already in progress are not affected. A
+   * shared factory is only modified right before the next compilation, while
+   * no other compilation is running.
+   *
+   * @param sName
+   *        The feature name. May neither be <code>null</code> nor empty.
+   * @param bValue
+   *        The feature value.
+   * @return {@link EChange}
+   */
+  @Nonnull
+  public final EChange setFeature (@Nonnull @Nonempty final String sName, final boolean bValue)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+
+    final Optional <ConcurrentObjectPool <FACTORYTYPE>> aOldPool = m_aLock.lockedGet ( () -> {
+      final Boolean aOld = m_aFeatures.get (sName);
+      if (aOld != null && aOld.booleanValue () == bValue)
+        return null;
+
+      // Copy on write
+      final ICommonsOrderedMap <String, Boolean> aNewFeatures = m_aFeatures.getClone ();
+      aNewFeatures.put (sName, Boolean.valueOf (bValue));
+      final ConcurrentObjectPool <FACTORYTYPE> ret = m_aFactoryPool;
+      if (ret != null)
+        m_aFactoryPool = _createFactoryPool (aNewFeatures);
+      m_aFeatures = aNewFeatures;
+      return Optional.ofNullable (ret);
+    });
+    if (aOldPool == null)
+      return EChange.UNCHANGED;
+
+    aOldPool.ifPresent (ConcurrentObjectPool::clearUnusedItems);
+    return EChange.CHANGED;
+  }
+
+  /**
+   * Apply a single feature on the provided factory.
+   *
+   * @param aFactory
+   *        The factory to modify. Never <code>null</code>.
+   * @param sName
+   *        The feature name. Neither <code>null</code> nor empty.
+   * @param bValue
+   *        The feature value.
+   * @throws IllegalArgumentException
+   *         If the feature is not supported by the factory
+   */
+  protected abstract void applyFeature (@Nonnull FACTORYTYPE aFactory,
+                                        @Nonnull @Nonempty String sName,
+                                        boolean bValue);
+
+  /**
+   * Compile the provided resources with the provided factory.
+   *
+   * @param aFactory
+   *        The factory to use. Never <code>null</code>. It is exclusively used
+   *        by the calling thread.
+   * @param aResources
+   *        The resources to be compiled. Neither <code>null</code> nor empty.
+   * @return The compiled object. May not be <code>null</code>.
+   * @throws IllegalArgumentException
+   *         If compilation fails
+   */
+  @Nonnull
+  protected abstract VALUETYPE compile (@Nonnull FACTORYTYPE aFactory,
+                                        @Nonnull @Nonempty ICommonsList <IReadableResource> aResources);
+
+  @Nonnull
+  private VALUETYPE _compile (@Nonnull final FACTORYTYPE aFactory, @Nonnull final CompiledResourceKey aKey)
+  {
+    final long nStart = System.nanoTime ();
+    final VALUETYPE ret = compile (aFactory, aKey.getAllResources ());
+    final long nNanos = System.nanoTime () - nStart;
+
+    m_aCompileDurations.put (aKey, Duration.ofNanos (nNanos));
+    m_aStatsCompile.addTime (TimeUnit.NANOSECONDS.toMillis (nNanos));
+    if (LOGGER.isDebugEnabled ())
+      LOGGER.debug ("Cache '" + m_sName + "': compiled " + aKey + " in " + TimeUnit.NANOSECONDS.toMillis (nNanos) + " ms");
+    return ret;
+  }
+
+  @Nonnull
+  private VALUETYPE _compile (@Nonnull final CompiledResourceKey aKey)
+  {
+    if (m_aSharedFactory != null)
+    {
+      // The shared factory is used by one compilation at a time and is
+      // configured with the features of the key
+      return m_aSharedFactoryLock.lockedGet ( () -> {
+        for (final Map.Entry <String, Boolean> aEntry : aKey.getAllFeatures ().entrySet ())
+          applyFeature (m_aSharedFactory, aEntry.getKey (), aEntry.getValue ().booleanValue ());
+        return _compile (m_aSharedFactory, aKey);
+      });
+    }
+
+    final ConcurrentObjectPool <FACTORYTYPE> aPool = m_aFactoryPool;
+    final FACTORYTYPE aFactory = aPool.borrowObject ();
+    if (aFactory == null)
+      throw new IllegalStateException ("Failed to get a factory to compile " + aKey);
+    try
+    {
+      return _compile (aFactory, aKey);
+    }
+    finally
+    {
+      aPool.returnObject (aFactory);
+    }
+  }
+
+  @Nonnull
+  private CompiledResourceKey _createKey (@Nonnull final Iterable <? extends IReadableResource> aResources)
+  {
+    return new CompiledResourceKey (aResources, m_aFeatures);
+  }
+
+  /**
+   * Check if the object compiled from the provided resources, using the
+   * current features, is contained in the cache.
+   *
+   * @param aResources
+   *        The resources to check. May neither be <code>null</code> nor empty.
+   * @return <code>true</code> if it is contained, <code>false</code> if not.
+   */
+  public final boolean isInCache (@Nonnull @Nonempty final ICommonsList <? extends IReadableResource> aResources)
+  {
+    return m_aCache.isInCache (_createKey (aResources));
+  }
+
+  /**
+   * Get the object compiled from the provided resources, using the current
+   * features. If the object is not yet in the cache, it is compiled. If
+   * another thread is compiling the same object, this method waits for the
+   * result.
+   *
+   * @param aResources
+   *        The resources to be compiled together. May neither be
+   *        <code>null</code> nor empty.
+   * @return The compiled object. Never <code>null</code>.
+   * @throws IllegalArgumentException
+   *         If compilation fails
+   */
+  @Nonnull
+  public VALUETYPE getFromCache (@Nonnull @Nonempty final ICommonsList <? extends IReadableResource> aResources)
+  {
+    return m_aCache.getFromCache (_createKey (aResources));
+  }
+
+  @Nonnull
+  public EChange removeFromCache (@Nonnull @Nonempty final ICommonsList <? extends IReadableResource> aResources)
+  {
+    final CompiledResourceKey aKey = _createKey (aResources);
+    m_aCompileDurations.remove (aKey);
+    return m_aCache.removeFromCache (aKey);
+  }
+
+  @Nonnull
+  public EChange clearCache ()
+  {
+    m_aCompileDurations.clear ();
+    return m_aCache.clearCache ();
+  }
+
+  /**
+   * @return The number of cached objects. Always &ge; 0.
+   */
+  @Nonnegative
+  public final int size ()
+  {
+    return m_aCache.size ();
+  }
+
+  public final boolean isEmpty ()
+  {
+    return m_aCache.isEmpty ();
+  }
+
+  public final boolean isNotEmpty ()
+  {
+    return !m_aCache.isEmpty ();
+  }
+
+  /**
+   * Get the compile time of the object compiled from the provided resources,
+   * using the current features.
+   *
+   * @param aResources
+   *        The resources to check. May neither be <code>null</code> nor empty.
+   * @return <code>null</code> if the object is not in the cache.
+   */
+  @Nullable
+  public final Duration getCompileDuration (@Nonnull @Nonempty final ICommonsList <? extends IReadableResource> aResources)
+  {
+    final CompiledResourceKey aKey = _createKey (aResources);
+    final Duration ret = m_aCompileDurations.get (aKey);
+    return ret != null && m_aCache.isInCache (aKey) ? ret : null;
+  }
+
+  /**
+   * @return The compile time of all objects currently in the cache. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public final ICommonsOrderedMap <CompiledResourceKey, Duration> getAllCompileDurations ()
+  {
+    final ICommonsOrderedMap <CompiledResourceKey, Duration> ret = new CommonsLinkedHashMap <> ();
+    for (final Map.Entry <CompiledResourceKey, Duration> aEntry : m_aCompileDurations.entrySet ())
+    {
+      if (m_aCache.isInCache (aEntry.getKey ()))
+        ret.put (aEntry.getKey (), aEntry.getValue ());
+      else
+      {
+        // Evicted in the meantime
+        m_aCompileDurations.remove (aEntry.getKey (), aEntry.getValue ());
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Compile all provided resource lists in parallel, so that later calls to
+   * {@link #getFromCache(ICommonsList)} don't need to wait. Compilation
+   * errors are logged and returned, they don't stop the other compilations.
+   *
+   * @param aAllResources
+   *        The resource lists to compile. Each list is compiled into a single
+   *        object. May not be <code>null</code>.
+   * @param nParallelism
+   *        The maximum number of threads to use. Must be &gt; 0. The effective
+   *        parallelism is additionally limited by the maximum factory count.
+   * @return The resource lists that failed to compile, together with the
+   *         exception. Never <code>null</code> but empty if all resource lists
+   *         compiled successfully.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public final ICommonsOrderedMap <ICommonsList <? extends IReadableResource>, RuntimeException> prewarm (@Nonnull final Collection <? extends ICommonsList <? extends IReadableResource>> aAllResources,
+                                                                                                      @Nonnegative final int nParallelism)
+  {
+    ValueEnforcer.notNull (aAllResources, "AllResources");
+    ValueEnforcer.isGT0 (nParallelism, "Parallelism");
+
+    final ExecutorService aES = Executors.newFixedThreadPool (Math.min (nParallelism, m_nMaxFactoryCount),
+                                                              new BasicThreadFactory.Builder ().setNamingPattern ("cache-" +
+                                                                                                                  m_sName +
+                                                                                                                  "-prewarm-%d")
+                                                                                               .setDaemon (true)
+                                                                                               .build ());
+    try
+    {
+      return prewarm (aAllResources, aES);
+    }
+    finally
+    {
+      ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aES);
+    }
+  }
+
+  /**
+   * Compile all provided resource lists in parallel using the provided
+   * executor service, so that later calls to
+   * {@link #getFromCache(ICommonsList)} don't need to wait. Compilation
+   * errors are logged and returned, they don't stop the other compilations.
+   * This method blocks until all compilations finished.
+   *
+   * @param aAllResources
+   *        The resource lists to compile. Each list is compiled into a single
+   *        object. May not be <code>null</code>.
+   * @param aExecutor
+   *        The executor service to run the compilations. May not be
+   *        <code>null</code>. It is not shut down by this method.
+   * @return The resource lists that failed to compile, together with the
+   *         exception. Never <code>null</code> but empty if all resource lists
+   *         compiled successfully.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public final ICommonsOrderedMap <ICommonsList <? extends IReadableResource>, RuntimeException> prewarm (@Nonnull final Collection <? extends ICommonsList <? extends IReadableResource>> aAllResources,
+                                                                                                      @Nonnull final ExecutorService aExecutor)
+  {
+    ValueEnforcer.notNull (aAllResources, "AllResources");
+    ValueEnforcer.notNull (aExecutor, "Executor");
+
+    final ICommonsList <CompletableFuture <?>> aFutures = new CommonsArrayList <> (aAllResources.size ());
+    for (final ICommonsList <? extends IReadableResource> aResources : aAllResources)
+      aFutures.add (CompletableFuture.runAsync ( () -> getFromCache (aResources), aExecutor));
+
+    final ICommonsOrderedMap <ICommonsList <? extends IReadableResource>, RuntimeException> ret = new CommonsLinkedHashMap <> ();
+    int nIndex = 0;
+    for (final ICommonsList <? extends IReadableResource> aResources : aAllResources)
+    {
+      try
+      {
+        aFutures.get (nIndex).join ();
+      }
+      catch (final CompletionException ex)
+      {
+        final Throwable aCause = ex.getCause ();
+        final RuntimeException aRealEx = aCause instanceof RuntimeException ? (RuntimeException) aCause : ex;
+        LOGGER.error ("Cache '" + m_sName + "': failed to prewarm " + aResources, aRealEx);
+        ret.put (aResources, aRealEx);
+      }
+      nIndex++;
+    }
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Name", m_sName)
+                                       .append ("MaxFactoryCount", m_nMaxFactoryCount)
+                                       .append ("Features", m_aFeatures)
+                                       .append ("Cache", m_aCache)
+                                       .getToString ();
+  }
+}
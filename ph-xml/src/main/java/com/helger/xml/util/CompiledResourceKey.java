@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.util;
+
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.hashcode.IHashCodeGenerator;
+import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The key of an {@link AbstractCompiledResourceCache}: the list of resources
+ * that are compiled together, plus the factory features that were active
+ * upon compilation.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@Immutable
+public final class CompiledResourceKey
+{
+  private final ICommonsList <IReadableResource> m_aResources;
+  private final ICommonsOrderedMap <String, Boolean> m_aFeatures;
+  // Status vars
+  private transient int m_nHashCode = IHashCodeGenerator.ILLEGAL_HASHCODE;
+
+  public CompiledResourceKey (@Nonnull @Nonempty final Iterable <? extends IReadableResource> aResources,
+                              @Nonnull final Map <String, Boolean> aFeatures)
+  {
+    ValueEnforcer.notNull (aResources, "Resources");
+    ValueEnforcer.notNull (aFeatures, "Features");
+    m_aResources = new CommonsArrayList <> (aResources);
+    ValueEnforcer.notEmptyNoNullValue (m_aResources, "Resources");
+    m_aFeatures = new CommonsLinkedHashMap <> (aFeatures);
+  }
+
+  /**
+   * @return A copy of all resources in the order they were compiled. Never
+   *         <code>null</code> nor empty.
+   */
+  @Nonnull
+  @Nonempty
+  @ReturnsMutableCopy
+  public ICommonsList <IReadableResource> getAllResources ()
+  {
+    return m_aResources.getClone ();
+  }
+
+  /**
+   * @return A copy of all factory features that were explicitly set. Never
+   *         <code>null</code> but maybe empty.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsOrderedMap <String, Boolean> getAllFeatures ()
+  {
+    return m_aFeatures.getClone ();
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final CompiledResourceKey rhs = (CompiledResourceKey) o;
+    return m_aResources.equals (rhs.m_aResources) && m_aFeatures.equals (rhs.m_aFeatures);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    int ret = m_nHashCode;
+    if (ret == IHashCodeGenerator.ILLEGAL_HASHCODE)
+      ret = m_nHashCode = new HashCodeGenerator (this).append (m_aResources).append (m_aFeatures).getHashCode ();
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (null).append ("Resources", m_aResources)
+                                       .append ("Features", m_aFeatures)
+                                       .getToString ();
+  }
+}
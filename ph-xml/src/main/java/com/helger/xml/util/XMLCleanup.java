@@ -21,6 +21,8 @@ import javax.annotation.concurrent.Immutable;
 import com.helger.commons.annotation.PresentForCodeCoverage;
 import com.helger.xml.microdom.convert.MicroTypeConverterRegistry;
 import com.helger.xml.schema.XMLSchemaCache;
+import com.helger.xml.transform.TemplatesCache;
+import com.helger.xml.xpath.XPathExpressionCache;
 import com.helger.xml.util.mime.MimeTypeInfoManager;
 
 /**
@@ -51,5 +53,9 @@ public final class XMLCleanup
     if (XMLSchemaCache.isInstantiated ())
       XMLSchemaCache.getInstance ().clearCache ();
     XMLSchemaCache.clearPerClassLoaderCache ();
+    if (TemplatesCache.isInstantiated ())
+      TemplatesCache.getInstance ().clearCache ();
+    if (XPathExpressionCache.isInstantiated ())
+      XPathExpressionCache.getInstance ().clearCache ();
   }
 }
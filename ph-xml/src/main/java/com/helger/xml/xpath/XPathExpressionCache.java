@@ -0,0 +1,399 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.xpath;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import javax.xml.xpath.XPathFunctionResolver;
+import javax.xml.xpath.XPathVariableResolver;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.Singleton;
+import com.helger.commons.cache.ConcurrentMappedCache;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.pool.ConcurrentObjectPool;
+import com.helger.commons.state.EChange;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A cache for compiled {@link XPathExpression} objects. As
+ * {@link XPathExpression} objects are not thread-safe, each cache entry holds
+ * a small pool of compiled instances of the same expression, so that multiple
+ * threads can evaluate the same expression concurrently without compiling it
+ * again.<br>
+ * The cache key consists of the expression string, the namespace context, the
+ * function resolver and the variable resolver. The compiled expressions keep
+ * references to the namespace context and the resolvers, so these are compared
+ * by identity and not by equality. Modifying a
+ * {@link MapBasedXPathVariableResolver} after compilation is therefore fine.
+ * <br>
+ * By default only expressions without namespace context and resolvers are
+ * cached, because callers often create these objects per evaluation, which
+ * would only fill the cache with entries that are never used again and keep
+ * the objects alive. Expressions with a namespace context or resolvers are
+ * compiled for each evaluation then. If the namespace context and resolvers
+ * are shared between evaluations, caching them can be enabled with
+ * {@link #XPathExpressionCache(XPathFactory, int, int, boolean)} - preferably
+ * on a separate instance and not on the global one.
+ *
+ * @author Philip Helger
+ * @since 9.4.3
+ */
+@ThreadSafe
+@Singleton ("can be instantiated directly as well")
+public class XPathExpressionCache
+{
+  /** The default maximum number of cached expressions */
+  public static final int DEFAULT_MAX_SIZE = 1000;
+  /** The default maximum number of compiled instances per expression */
+  public static final int DEFAULT_MAX_INSTANCES_PER_EXPRESSION = Math.max (2, Runtime.getRuntime ().availableProcessors ());
+
+  @Immutable
+  private static final class Key
+  {
+    private final String m_sXPath;
+    private final NamespaceContext m_aNamespaceContext;
+    private final XPathFunctionResolver m_aFunctionResolver;
+    private final XPathVariableResolver m_aVariableResolver;
+    // Status vars
+    private final int m_nHashCode;
+
+    Key (@Nonnull final String sXPath,
+         @Nullable final NamespaceContext aNamespaceContext,
+         @Nullable final XPathFunctionResolver aFunctionResolver,
+         @Nullable final XPathVariableResolver aVariableResolver)
+    {
+      m_sXPath = sXPath;
+      m_aNamespaceContext = aNamespaceContext;
+      m_aFunctionResolver = aFunctionResolver;
+      m_aVariableResolver = aVariableResolver;
+      m_nHashCode = new HashCodeGenerator (this).append (sXPath)
+                                                .append (System.identityHashCode (aNamespaceContext))
+                                                .append (System.identityHashCode (aFunctionResolver))
+                                                .append (System.identityHashCode (aVariableResolver))
+                                                .getHashCode ();
+    }
+
+    @Override
+    public boolean equals (final Object o)
+    {
+      if (o == this)
+        return true;
+      if (o == null || !getClass ().equals (o.getClass ()))
+        return false;
+      final Key rhs = (Key) o;
+      return m_sXPath.equals (rhs.m_sXPath) &&
+             m_aNamespaceContext == rhs.m_aNamespaceContext &&
+             m_aFunctionResolver == rhs.m_aFunctionResolver &&
+             m_aVariableResolver == rhs.m_aVariableResolver;
+    }
+
+    @Override
+    public int hashCode ()
+    {
+      return m_nHashCode;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return new ToStringGenerator (null).append ("XPath", m_sXPath)
+                                         .appendIfNotNull ("NamespaceContext", m_aNamespaceContext)
+                                         .appendIfNotNull ("FunctionResolver", m_aFunctionResolver)
+                                         .appendIfNotNull ("VariableResolver", m_aVariableResolver)
+                                         .getToString ();
+    }
+  }
+
+  private static final class SingletonHolder
+  {
+    private static final XPathExpressionCache s_aInstance = new XPathExpressionCache ();
+  }
+
+  private static boolean s_bDefaultInstantiated = false;
+
+  private final XPathFactory m_aXPathFactory;
+  private final int m_nMaxInstancesPerExpression;
+  private final boolean m_bCacheCustomContexts;
+  private final ConcurrentMappedCache <Key, Key, ConcurrentObjectPool <XPathExpression>> m_aCache;
+
+  /**
+   * Default constructor using the default XPath factory.
+   */
+  public XPathExpressionCache ()
+  {
+    this (XPathHelper.getDefaultXPathFactory (), DEFAULT_MAX_SIZE, DEFAULT_MAX_INSTANCES_PER_EXPRESSION);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aXPathFactory
+   *        The XPath factory to use. May not be <code>null</code>. It is only
+   *        used while holding its monitor, because it is not thread-safe.
+   * @param nMaxSize
+   *        The maximum number of cached expressions. Values &le; 0 indicate
+   *        no limit.
+   * @param nMaxInstancesPerExpression
+   *        The maximum number of compiled instances per expression, which is
+   *        the maximum number of concurrent evaluations of the same
+   *        expression. Must be &gt; 0.
+   */
+  public XPathExpressionCache (@Nonnull final XPathFactory aXPathFactory,
+                               final int nMaxSize,
+                               @Nonnegative final int nMaxInstancesPerExpression)
+  {
+    this (aXPathFactory, nMaxSize, nMaxInstancesPerExpression, false);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aXPathFactory
+   *        The XPath factory to use. May not be <code>null</code>. It is only
+   *        used while holding its monitor, because it is not thread-safe.
+   * @param nMaxSize
+   *        The maximum number of cached expressions. Values &le; 0 indicate
+   *        no limit.
+   * @param nMaxInstancesPerExpression
+   *        The maximum number of compiled instances per expression, which is
+   *        the maximum number of concurrent evaluations of the same
+   *        expression. Must be &gt; 0.
+   * @param bCacheCustomContexts
+   *        <code>true</code> to also cache expressions with a namespace
+   *        context, function resolver or variable resolver. Only use this, if
+   *        these objects are shared between evaluations, as the cache keeps
+   *        references to them.
+   */
+  public XPathExpressionCache (@Nonnull final XPathFactory aXPathFactory,
+                               final int nMaxSize,
+                               @Nonnegative final int nMaxInstancesPerExpression,
+                               final boolean bCacheCustomContexts)
+  {
+    ValueEnforcer.notNull (aXPathFactory, "XPathFactory");
+    ValueEnforcer.isGT0 (nMaxInstancesPerExpression, "MaxInstancesPerExpression");
+
+    m_aXPathFactory = aXPathFactory;
+    m_nMaxInstancesPerExpression = nMaxInstancesPerExpression;
+    m_bCacheCustomContexts = bCacheCustomContexts;
+    m_aCache = new ConcurrentMappedCache.Builder <Key, Key, ConcurrentObjectPool <XPathExpression>> ().setCacheKeyProvider (x -> x)
+                                                                                                      .setValueProvider (this::_createPool)
+                                                                                                      .setMaxSize (nMaxSize)
+                                                                                                      .setName (XPathExpressionCache.class.getName ())
+                                                                                                      .build ();
+  }
+
+  public static boolean isInstantiated ()
+  {
+    return s_bDefaultInstantiated;
+  }
+
+  @Nonnull
+  public static XPathExpressionCache getInstance ()
+  {
+    final XPathExpressionCache ret = SingletonHolder.s_aInstance;
+    s_bDefaultInstantiated = true;
+    return ret;
+  }
+
+  @Nonnull
+  private XPathExpression _compile (@Nonnull final Key aKey)
+  {
+    final XPath aXPath;
+    synchronized (m_aXPathFactory)
+    {
+      aXPath = XPathHelper.createNewXPath (m_aXPathFactory,
+                                           aKey.m_aVariableResolver,
+                                           aKey.m_aFunctionResolver,
+                                           aKey.m_aNamespaceContext);
+    }
+    return XPathHelper.createNewXPathExpression (aXPath, aKey.m_sXPath);
+  }
+
+  @Nonnull
+  private ConcurrentObjectPool <XPathExpression> _createPool (@Nonnull final Key aKey)
+  {
+    // Compile the first instance eagerly, so that invalid expressions are
+    // reported to the caller and not cached
+    final AtomicReference <XPathExpression> aFirst = new AtomicReference <> (_compile (aKey));
+    return new ConcurrentObjectPool.Builder <XPathExpression> ().setFactory ( () -> {
+      final XPathExpression ret = aFirst.getAndSet (null);
+      return ret != null ? ret : _compile (aKey);
+    }).setMaxSize (m_nMaxInstancesPerExpression).build ();
+  }
+
+  /**
+   * @return The maximum number of compiled instances per expression as
+   *         provided in the constructor. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getMaxInstancesPerExpression ()
+  {
+    return m_nMaxInstancesPerExpression;
+  }
+
+  /**
+   * @return <code>true</code> if expressions with a namespace context or
+   *         resolvers are cached as well, <code>false</code> if only
+   *         expressions without them are cached.
+   */
+  public final boolean isCacheCustomContexts ()
+  {
+    return m_bCacheCustomContexts;
+  }
+
+  @Nullable
+  private static Object _evaluate (@Nonnull final XPathExpression aExpr,
+                                   @Nonnull final String sXPath,
+                                   @Nullable final Object aItem,
+                                   @Nonnull final QName aReturnType)
+  {
+    try
+    {
+      return aExpr.evaluate (aItem, aReturnType);
+    }
+    catch (final XPathExpressionException ex)
+    {
+      throw new IllegalArgumentException ("Failed to evaluate XPath expression '" +
+                                          sXPath +
+                                          "' with return type " +
+                                          aReturnType.toString (),
+                                          ex);
+    }
+  }
+
+  /**
+   * Evaluate an XPath expression using a cached compiled instance. If the
+   * expression is not yet in the cache, it is compiled first. If a namespace
+   * context or a resolver is provided and {@link #isCacheCustomContexts()} is
+   * <code>false</code>, the expression is compiled for this evaluation only.
+   *
+   * @param aVariableResolver
+   *        Variable resolver to be used. May be <code>null</code>.
+   * @param aFunctionResolver
+   *        Function resolver to be used. May be <code>null</code>.
+   * @param aNamespaceContext
+   *        Namespace context to be used. May be <code>null</code>.
+   * @param sXPath
+   *        The XPath expression to be evaluated. May neither be
+   *        <code>null</code> nor empty.
+   * @param aItem
+   *        The context item (e.g. a {@link org.w3c.dom.Node}) to evaluate the
+   *        expression on. May be <code>null</code>.
+   * @param aReturnType
+   *        The expected return type from {@link javax.xml.xpath.XPathConstants}.
+   *        May not be <code>null</code>.
+   * @return The evaluation result. May be <code>null</code>.
+   * @throws IllegalArgumentException
+   *         If the expression cannot be compiled or evaluated
+   */
+  @Nullable
+  public Object evaluate (@Nullable final XPathVariableResolver aVariableResolver,
+                          @Nullable final XPathFunctionResolver aFunctionResolver,
+                          @Nullable final NamespaceContext aNamespaceContext,
+                          @Nonnull @Nonempty final String sXPath,
+                          @Nullable final Object aItem,
+                          @Nonnull final QName aReturnType)
+  {
+    ValueEnforcer.notEmpty (sXPath, "XPathExpression");
+    ValueEnforcer.notNull (aReturnType, "ReturnType");
+
+    final Key aKey = new Key (sXPath, aNamespaceContext, aFunctionResolver, aVariableResolver);
+    if (!m_bCacheCustomContexts && (aNamespaceContext != null || aFunctionResolver != null || aVariableResolver != null))
+    {
+      // Don't keep references to the caller supplied objects
+      return _evaluate (_compile (aKey), sXPath, aItem, aReturnType);
+    }
+
+    final ConcurrentObjectPool <XPathExpression> aPool = m_aCache.getFromCache (aKey);
+    final XPathExpression aExpr = aPool.borrowObject ();
+    if (aExpr == null)
+      throw new IllegalStateException ("Interrupted while waiting for XPath expression '" + sXPath + "'");
+    try
+    {
+      return _evaluate (aExpr, sXPath, aItem, aReturnType);
+    }
+    finally
+    {
+      aPool.returnObject (aExpr);
+    }
+  }
+
+  /**
+   * Check if the provided expression is contained in the cache.
+   *
+   * @param aVariableResolver
+   *        Variable resolver to be used. May be <code>null</code>.
+   * @param aFunctionResolver
+   *        Function resolver to be used. May be <code>null</code>.
+   * @param aNamespaceContext
+   *        Namespace context to be used. May be <code>null</code>.
+   * @param sXPath
+   *        The XPath expression to check. May be <code>null</code>.
+   * @return <code>true</code> if it is contained, <code>false</code> if not.
+   */
+  public boolean isInCache (@Nullable final XPathVariableResolver aVariableResolver,
+                            @Nullable final XPathFunctionResolver aFunctionResolver,
+                            @Nullable final NamespaceContext aNamespaceContext,
+                            @Nullable final String sXPath)
+  {
+    return sXPath != null &&
+           m_aCache.isInCache (new Key (sXPath, aNamespaceContext, aFunctionResolver, aVariableResolver));
+  }
+
+  /**
+   * @return The number of cached expressions. Always &ge; 0.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    return m_aCache.size ();
+  }
+
+  /**
+   * Remove all cached expressions.
+   *
+   * @return {@link EChange}
+   */
+  @Nonnull
+  public EChange clearCache ()
+  {
+    return m_aCache.clearCache ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("XPathFactory", m_aXPathFactory)
+                                       .append ("MaxInstancesPerExpression", m_nMaxInstancesPerExpression)
+                                       .append ("CacheCustomContexts", m_bCacheCustomContexts)
+                                       .append ("Cache", m_aCache)
+                                       .getToString ();
+  }
+}
@@ -37,7 +37,12 @@ import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.PresentForCodeCoverage;
 
 /**
- * Utility class to evaluate XPath expressions more easily
+ * Utility class to evaluate XPath expressions more easily. All methods that
+ * don't take an {@link XPath} parameter use the global
+ * {@link XPathExpressionCache}. It only caches the compiled expressions
+ * without namespace context and resolvers - to cache expressions with shared
+ * namespace contexts or resolvers, use a separate
+ * {@link XPathExpressionCache} that has caching of them enabled.
  *
  * @author Philip Helger
  */
@@ -58,10 +63,17 @@ public final class XPathExpressionHelper
                                   @Nonnull final Document aDoc,
                                   @Nonnull final QName aReturnType)
   {
-    return evalXPath (XPathHelper.createNewXPath (aVariableResolver, aFunctionResolver, aNamespaceContext),
-                      sXPath,
-                      aDoc,
-                      aReturnType);
+    ValueEnforcer.notNull (aDoc, "Doc");
+
+    // Use the cached compiled expressions - expressions with a namespace
+    // context or resolvers are compiled for this call only
+    return XPathExpressionCache.getInstance ()
+                               .evaluate (aVariableResolver,
+                                          aFunctionResolver,
+                                          aNamespaceContext,
+                                          sXPath,
+                                          aDoc,
+                                          aReturnType);
   }
 
   @Nullable
@@ -97,15 +109,23 @@ public final class XPathExpressionHelper
                                           @Nonnull final String sXPath,
                                           @Nonnull final Document aDoc)
   {
-    return evalXPathToNumber (XPathHelper.createNewXPath (aVariableResolver, aFunctionResolver, aNamespaceContext),
-                              sXPath,
-                              aDoc);
+    final Object aResult = evalXPath (aVariableResolver,
+                                      aFunctionResolver,
+                                      aNamespaceContext,
+                                      sXPath,
+                                      aDoc,
+                                      XPathConstants.NUMBER);
+    return (Double) aResult;
   }
 
   @Nullable
   public static Double evalXPathToNumber (@Nonnull final String sXPath, @Nonnull final Document aDoc)
   {
-    return evalXPathToNumber (XPathHelper.createNewXPath (), sXPath, aDoc);
+    return evalXPathToNumber ((XPathVariableResolver) null,
+                              (XPathFunctionResolver) null,
+                              (NamespaceContext) null,
+                              sXPath,
+                              aDoc);
   }
 
   @Nullable
@@ -124,15 +144,23 @@ public final class XPathExpressionHelper
                                           @Nonnull final String sXPath,
                                           @Nonnull final Document aDoc)
   {
-    return evalXPathToString (XPathHelper.createNewXPath (aVariableResolver, aFunctionResolver, aNamespaceContext),
-                              sXPath,
-                              aDoc);
+    final Object aResult = evalXPath (aVariableResolver,
+                                      aFunctionResolver,
+                                      aNamespaceContext,
+                                      sXPath,
+                                      aDoc,
+                                      XPathConstants.STRING);
+    return (String) aResult;
   }
 
   @Nullable
   public static String evalXPathToString (@Nonnull final String sXPath, @Nonnull final Document aDoc)
   {
-    return evalXPathToString (XPathHelper.createNewXPath (), sXPath, aDoc);
+    return evalXPathToString ((XPathVariableResolver) null,
+                              (XPathFunctionResolver) null,
+                              (NamespaceContext) null,
+                              sXPath,
+                              aDoc);
   }
 
   @Nullable
@@ -151,15 +179,23 @@ public final class XPathExpressionHelper
                                             @Nonnull final String sXPath,
                                             @Nonnull final Document aDoc)
   {
-    return evalXPathToBoolean (XPathHelper.createNewXPath (aVariableResolver, aFunctionResolver, aNamespaceContext),
-                               sXPath,
-                               aDoc);
+    final Object aResult = evalXPath (aVariableResolver,
+                                      aFunctionResolver,
+                                      aNamespaceContext,
+                                      sXPath,
+                                      aDoc,
+                                      XPathConstants.BOOLEAN);
+    return (Boolean) aResult;
   }
 
   @Nullable
   public static Boolean evalXPathToBoolean (@Nonnull final String sXPath, @Nonnull final Document aDoc)
   {
-    return evalXPathToBoolean (XPathHelper.createNewXPath (), sXPath, aDoc);
+    return evalXPathToBoolean ((XPathVariableResolver) null,
+                               (XPathFunctionResolver) null,
+                               (NamespaceContext) null,
+                               sXPath,
+                               aDoc);
   }
 
   @Nullable
@@ -178,15 +214,23 @@ public final class XPathExpressionHelper
                                               @Nonnull final String sXPath,
                                               @Nonnull final Document aDoc)
   {
-    return evalXPathToNodeList (XPathHelper.createNewXPath (aVariableResolver, aFunctionResolver, aNamespaceContext),
-                                sXPath,
-                                aDoc);
+    final Object aResult = evalXPath (aVariableResolver,
+                                      aFunctionResolver,
+                                      aNamespaceContext,
+                                      sXPath,
+                                      aDoc,
+                                      XPathConstants.NODESET);
+    return (NodeList) aResult;
   }
 
   @Nullable
   public static NodeList evalXPathToNodeList (@Nonnull final String sXPath, @Nonnull final Document aDoc)
   {
-    return evalXPathToNodeList (XPathHelper.createNewXPath (), sXPath, aDoc);
+    return evalXPathToNodeList ((XPathVariableResolver) null,
+                                (XPathFunctionResolver) null,
+                                (NamespaceContext) null,
+                                sXPath,
+                                aDoc);
   }
 
   @Nullable
@@ -205,15 +249,23 @@ public final class XPathExpressionHelper
                                       @Nonnull final String sXPath,
                                       @Nonnull final Document aDoc)
   {
-    return evalXPathToNode (XPathHelper.createNewXPath (aVariableResolver, aFunctionResolver, aNamespaceContext),
-                            sXPath,
-                            aDoc);
+    final Object aResult = evalXPath (aVariableResolver,
+                                      aFunctionResolver,
+                                      aNamespaceContext,
+                                      sXPath,
+                                      aDoc,
+                                      XPathConstants.NODE);
+    return (Node) aResult;
   }
 
   @Nullable
   public static Node evalXPathToNode (@Nonnull final String sXPath, @Nonnull final Document aDoc)
   {
-    return evalXPathToNode (XPathHelper.createNewXPath (), sXPath, aDoc);
+    return evalXPathToNode ((XPathVariableResolver) null,
+                            (XPathFunctionResolver) null,
+                            (NamespaceContext) null,
+                            sXPath,
+                            aDoc);
   }
 
   @Nullable
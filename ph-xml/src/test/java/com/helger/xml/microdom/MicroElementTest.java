@@ -539,6 +539,57 @@ public final class MicroElementTest
     assertEquals ("1234567890", e.getAttributeValue ("myattr"));
   }
 
+  @Test
+  public void testManyAttrs ()
+  {
+    final int nCount = MicroElement.MAX_ATTR_ARRAY_LENGTH * 2;
+    final IMicroElement e = new MicroElement ("any");
+    for (int i = 0; i < nCount; ++i)
+    {
+      e.setAttribute ("attr" + i, i);
+      assertEquals (i + 1, e.getAttributeCount ());
+    }
+    // Order is maintained
+    int nIndex = 0;
+    for (final IMicroQName aQName : e.getAllAttributeQNames ())
+      assertEquals ("attr" + nIndex++, aQName.getName ());
+
+    // Overwrite does not change the order
+    e.setAttribute ("attr0", "new");
+    assertEquals (nCount, e.getAttributeCount ());
+    assertEquals ("new", e.getAttributeValue ("attr0"));
+    assertEquals ("attr0", e.getAllAttributeQNames ().getFirst ().getName ());
+
+    // Clone
+    final IMicroElement eClone = e.getClone ();
+    assertTrue (e.isEqualContent (eClone));
+    assertEquals (nCount, eClone.getAttributeCount ());
+
+    // Remove all but one again
+    for (int i = nCount - 1; i > 0; --i)
+    {
+      assertTrue (e.removeAttribute ("attr" + i).isChanged ());
+      assertTrue (e.removeAttribute ("attr" + i).isUnchanged ());
+      assertEquals (i, e.getAttributeCount ());
+    }
+    assertEquals ("new", e.getAttributeValue ("attr0"));
+    assertFalse (e.isEqualContent (eClone));
+    assertTrue (e.removeAttribute ("attr0").isChanged ());
+    assertFalse (e.hasAttributes ());
+    assertEquals (0, e.getAttributeCount ());
+
+    // Attribute order is not relevant for equality
+    final IMicroElement e1 = new MicroElement ("any");
+    e1.setAttribute ("a", "1");
+    e1.setAttribute ("b", "2");
+    final IMicroElement e2 = new MicroElement ("any");
+    e2.setAttribute ("b", "2");
+    e2.setAttribute ("a", "1");
+    assertTrue (e1.isEqualContent (e2));
+    e2.setAttribute ("a", "3");
+    assertFalse (e1.isEqualContent (e2));
+  }
+
   @Test
   public void testChildren ()
   {
@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.microdom.xpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Iterator;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.xml.microdom.IMicroDocument;
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.MicroDocument;
+import com.helger.xml.microdom.serialize.MicroReader;
+import com.helger.xml.namespace.MapBasedNamespaceContext;
+import com.helger.xml.serialize.read.DOMReader;
+import com.helger.xml.xpath.XPathExpressionHelper;
+
+/**
+ * Test class for class {@link MicroXPath}.
+ *
+ * @author Philip Helger
+ */
+public final class MicroXPathTest
+{
+  private static final String XML = "<root xmlns:x='urn:x'>" +
+                                     "<a id='a1' type='t'><b id='b1'>1</b><b id='b2'>2</b></a>" +
+                                     "<a id='a2'><b id='b3'>3</b><a id='a3' type='u'><b id='b4'>4</b></a></a>" +
+                                     "<x:a id='xa1'><x:b id='xb1' x:attr='v'>5</x:b></x:a>" +
+                                     "<c id='c1'/>" +
+                                     "</root>";
+  private static final MapBasedNamespaceContext NSCTX = new MapBasedNamespaceContext ().addMapping ("x", "urn:x")
+                                                                                       .addMapping ("y", "urn:y");
+
+  @Nonnull
+  private static ICommonsList <String> _getIDs (@Nonnull final Iterable <IMicroElement> aElements)
+  {
+    final ICommonsList <String> ret = new CommonsArrayList <> ();
+    for (final IMicroElement e : aElements)
+      ret.add (e.getAttributeValue ("id"));
+    return ret;
+  }
+
+  @Nonnull
+  private static ICommonsList <String> _getIDs (@Nonnull final NodeList aNodes)
+  {
+    final ICommonsList <String> ret = new CommonsArrayList <> ();
+    for (int i = 0; i < aNodes.getLength (); ++i)
+    {
+      final Element e = (Element) aNodes.item (i);
+      ret.add (e.hasAttribute ("id") ? e.getAttribute ("id") : null);
+    }
+    return ret;
+  }
+
+  @Test
+  public void testSameResultAsJAXP ()
+  {
+    final IMicroDocument aMicroDoc = MicroReader.readMicroXML (XML);
+    assertNotNull (aMicroDoc);
+    final Document aDOMDoc = DOMReader.readXMLDOM (XML);
+    assertNotNull (aDOMDoc);
+
+    for (final String sXPath : new String [] { "/root",
+                                               "/root/a",
+                                               "/root/*",
+                                               "//b",
+                                               "//a/b",
+                                               "//a//b",
+                                               "//b[1]",
+                                               "//b[2]",
+                                               "//b[last()]",
+                                               "/root/a[2]/a/b",
+                                               "/descendant::b[3]",
+                                               "/root/a[@type]",
+                                               "/root/a[@type='t']",
+                                               "//a[@type!='t']",
+                                               "//a[not(@type)]",
+                                               "//a[b='3']",
+                                               "//a[b]",
+                                               "//a[b and @type]",
+                                               "//a[@type='u' or @id='a1']",
+                                               "//b[text()='2']",
+                                               "//b[.=4]",
+                                               "//x:a",
+                                               "//x:*",
+                                               "//x:b[@x:attr='v']",
+                                               "//y:b",
+                                               "//*[@id='c1']",
+                                               "//a[@type][1]",
+                                               "/root/a[1][@type='u']",
+                                               "/root/self::root/descendant-or-self::a/b[1]",
+                                               "/root/node()" })
+    {
+      final ICommonsList <String> aExpected = _getIDs (XPathExpressionHelper.evalXPathToNodeList (null,
+                                                                                                  null,
+                                                                                                  NSCTX,
+                                                                                                  sXPath,
+                                                                                                  aDOMDoc));
+      final MicroXPath aXP = MicroXPath.compile (sXPath, NSCTX);
+      assertEquals (sXPath, aExpected, _getIDs (aXP.iterate (aMicroDoc)));
+      assertEquals (sXPath, aExpected, _getIDs (aXP.findAll (aMicroDoc)));
+    }
+  }
+
+  @Test
+  public void testRelative ()
+  {
+    final IMicroDocument aDoc = MicroReader.readMicroXML (XML);
+    final IMicroElement eA2 = MicroXPath.compile ("//a[@id='a2']").findFirst (aDoc);
+    assertNotNull (eA2);
+
+    assertEquals (new CommonsArrayList <> ("b3"), _getIDs (MicroXPath.compile ("b").iterate (eA2)));
+    assertEquals (new CommonsArrayList <> ("b3", "b4"), _getIDs (MicroXPath.compile (".//b").iterate (eA2)));
+    assertSame (eA2, MicroXPath.compile (".").findFirst (eA2));
+    // Absolute paths start at the root
+    assertEquals (4, MicroXPath.compile ("/root/*").findAll (eA2).size ());
+    assertFalse (MicroXPath.compile ("c").containsAny (eA2));
+    assertNull (MicroXPath.compile ("c").findFirst (eA2));
+  }
+
+  @Test
+  public void testLazyAndContainers ()
+  {
+    final IMicroDocument aDoc = new MicroDocument ();
+    final IMicroElement eRoot = aDoc.appendElement ("root");
+    for (int i = 0; i < 10; ++i)
+      eRoot.appendContainer ().appendElement ("item").setAttribute ("id", Integer.toString (i));
+
+    // Containers are transparent
+    assertEquals (10, MicroXPath.compile ("/root/item").findAll (aDoc).size ());
+    assertEquals ("4", MicroXPath.compile ("/root/item[5]").findFirst (aDoc).getAttributeValue ("id"));
+
+    final Iterator <IMicroElement> it = MicroXPath.compile ("//item").iterate (aDoc);
+    assertTrue (it.hasNext ());
+    assertEquals ("0", it.next ().getAttributeValue ("id"));
+    assertEquals ("1", it.next ().getAttributeValue ("id"));
+  }
+
+  @Test
+  public void testInvalid ()
+  {
+    for (final String sXPath : new String [] { "",
+                                               "/root/",
+                                               "/root[",
+                                               "/root[0]",
+                                               "/root[@id='x]",
+                                               "//p:a",
+                                               "/root/..",
+                                               "/root/@id",
+                                               "/ancestor::a",
+                                               "/root/text()",
+                                               "/root[@id=]",
+                                               "/root[count(a)]",
+                                               "/root a" })
+    {
+      try
+      {
+        MicroXPath.compile (sXPath);
+        fail (sXPath);
+      }
+      catch (final IllegalArgumentException ex)
+      {}
+    }
+  }
+}
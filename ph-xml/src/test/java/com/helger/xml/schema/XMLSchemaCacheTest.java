@@ -19,21 +19,29 @@ package com.helger.xml.schema;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import javax.xml.XMLConstants;
 import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
 
 import org.junit.Test;
 
 import com.helger.commons.annotation.PresentForCodeCoverage;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
 import com.helger.commons.io.resource.ClassPathResource;
 import com.helger.commons.io.resource.IReadableResource;
 import com.helger.xml.ls.CollectingLSResourceResolver;
 import com.helger.xml.ls.LSResourceData;
 import com.helger.xml.ls.LoggingLSResourceResolver;
 import com.helger.xml.sax.LoggingSAXErrorHandler;
+import com.helger.xml.util.AbstractCompiledResourceCache;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
@@ -110,6 +118,8 @@ public final class XMLSchemaCacheTest
     final CollectingLSResourceResolver crr = new CollectingLSResourceResolver ();
     sc = new XMLSchemaCache (new LoggingLSResourceResolver ().setWrappedResourceResolver (crr));
     assertNotNull (sc);
+    assertNotNull (sc.getSchemaFactory ());
+    assertSame (sc.getResourceResolver (), sc.getSchemaFactory ().getResourceResolver ());
 
     // Valid schema
     Schema aSchema = sc.getSchema (new ClassPathResource ("xml/schema1.xsd"));
@@ -153,4 +163,74 @@ public final class XMLSchemaCacheTest
     catch (final IllegalArgumentException ex)
     {}
   }
+
+  @Test
+  public void testPrewarm ()
+  {
+    final XMLSchemaCache sc = new XMLSchemaCache (new LoggingSAXErrorHandler ());
+    final ICommonsList <IReadableResource> aSchema1 = new CommonsArrayList <> (new ClassPathResource ("xml/schema1.xsd"));
+    final ICommonsList <IReadableResource> aSchema2 = new CommonsArrayList <> (new ClassPathResource ("xml/schema2.xsd"));
+    final ICommonsList <IReadableResource> aInvalid = new CommonsArrayList <> (new ClassPathResource ("test1.txt"));
+
+    final ICommonsOrderedMap <ICommonsList <? extends IReadableResource>, RuntimeException> aFailed = sc.prewarm (new CommonsArrayList <> (aSchema1,
+                                                                                                                                            aSchema2,
+                                                                                                                                            aInvalid),
+                                                                                                                    4);
+    assertEquals (1, aFailed.size ());
+    assertTrue (aFailed.containsKey (aInvalid));
+    assertTrue (aFailed.get (aInvalid) instanceof IllegalArgumentException);
+
+    // Compile metrics
+    assertEquals (2, sc.size ());
+    assertTrue (sc.isInCache (aSchema1));
+    assertTrue (sc.isInCache (aSchema2));
+    assertFalse (sc.isInCache (aInvalid));
+    assertNotNull (sc.getCompileDuration (aSchema1));
+    assertNull (sc.getCompileDuration (aInvalid));
+    assertEquals (2, sc.getAllCompileDurations ().size ());
+
+    // Already compiled
+    final Schema aSchema = sc.getFromCache (aSchema1);
+    assertSame (aSchema, sc.getSchema (new ClassPathResource ("xml/schema1.xsd")));
+
+    // Features are part of the key
+    assertTrue (sc.setFeature (XMLConstants.FEATURE_SECURE_PROCESSING, true).isChanged ());
+    assertFalse (sc.setFeature (XMLConstants.FEATURE_SECURE_PROCESSING, true).isChanged ());
+    assertFalse (sc.isInCache (aSchema1));
+    assertNull (sc.getCompileDuration (aSchema1));
+    assertNotSame (aSchema, sc.getFromCache (aSchema1));
+    assertEquals (3, sc.size ());
+
+    // The durations of all features are contained
+    assertEquals (3, sc.getAllCompileDurations ().size ());
+    assertTrue (sc.removeFromCache (aSchema1).isChanged ());
+    assertEquals (2, sc.getAllCompileDurations ().size ());
+    assertTrue (sc.clearCache ().isChanged ());
+    assertTrue (sc.getAllCompileDurations ().isEmpty ());
+  }
+
+  @Test
+  public void testSharedSchemaFactory () throws Exception
+  {
+    final SchemaFactory aSchemaFactory = XMLSchemaCache.createXSDSchemaFactory ();
+    final XMLSchemaCache sc = new XMLSchemaCache (aSchemaFactory, new LoggingSAXErrorHandler (), null);
+    assertSame (aSchemaFactory, sc.getSchemaFactory ());
+    assertEquals (1, sc.getMaxFactoryCount ());
+    assertEquals (AbstractCompiledResourceCache.DEFAULT_MAX_SIZE, sc.getMaxSize ());
+    assertTrue (sc.hasMaxSize ());
+
+    final ICommonsList <IReadableResource> aSchema1 = new CommonsArrayList <> (new ClassPathResource ("xml/schema1.xsd"));
+    final ICommonsList <IReadableResource> aSchema2 = new CommonsArrayList <> (new ClassPathResource ("xml/schema2.xsd"));
+    assertTrue (sc.prewarm (new CommonsArrayList <> (aSchema1, aSchema2), 4).isEmpty ());
+    assertEquals (2, sc.size ());
+
+    // The feature is applied to the shared factory upon the next compilation
+    assertTrue (sc.setFeature (XMLConstants.FEATURE_SECURE_PROCESSING, false).isChanged ());
+    assertNotNull (sc.getFromCache (aSchema1));
+    assertFalse (aSchemaFactory.getFeature (XMLConstants.FEATURE_SECURE_PROCESSING));
+    assertTrue (sc.setFeature (XMLConstants.FEATURE_SECURE_PROCESSING, true).isChanged ());
+    assertNotNull (sc.getFromCache (aSchema1));
+    assertTrue (aSchemaFactory.getFeature (XMLConstants.FEATURE_SECURE_PROCESSING));
+    assertEquals (4, sc.size ());
+  }
 }
@@ -16,6 +16,8 @@
  */
 package com.helger.xml.serialize.read;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.AfterClass;
@@ -29,6 +31,8 @@ import org.xml.sax.helpers.DefaultHandler;
 import com.helger.commons.callback.IThrowingRunnable;
 import com.helger.commons.io.resource.ClassPathResource;
 import com.helger.commons.mock.CommonsTestHelper;
+import com.helger.xml.microdom.IMicroDocument;
+import com.helger.xml.microdom.serialize.MicroReader;
 import com.helger.xml.sax.CachingSAXInputSource;
 
 /**
@@ -70,4 +74,21 @@ public final class SAXReaderTest
                                                                                                                  new SAXReaderSettings ().setContentHandler (new DefaultHandler ()))
                                                                                                     .isSuccess ()));
   }
+
+  @Test
+  public void testPoolReuse ()
+  {
+    final long nCreated = SAXReader.getPool ().getCreatedCount ();
+    final long nBorrowed = SAXReader.getPool ().getBorrowCount ();
+    for (int i = 0; i < 10; ++i)
+    {
+      // MicroReader sets a lexical handler and an entity resolver
+      final IMicroDocument aDoc = MicroReader.readMicroXML ("<root><child attr='" + i + "'/></root>");
+      assertNotNull (aDoc);
+      assertEquals (Integer.toString (i), aDoc.getDocumentElement ().getFirstChildElement ().getAttributeValue ("attr"));
+    }
+    assertEquals (nBorrowed + 10, SAXReader.getPool ().getBorrowCount ());
+    // At most one new parser is needed
+    assertTrue (SAXReader.getPool ().getCreatedCount () <= nCreated + 1);
+  }
 }
@@ -0,0 +1,201 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.serialize.write;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.commons.io.stream.NonBlockingStringWriter;
+import com.helger.xml.microdom.IMicroDocument;
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.IMicroNode;
+import com.helger.xml.microdom.MicroDocument;
+import com.helger.xml.microdom.MicroElement;
+import com.helger.xml.microdom.serialize.MicroReader;
+import com.helger.xml.microdom.serialize.MicroWriter;
+import com.helger.xml.namespace.MapBasedNamespaceContext;
+
+/**
+ * Test class for class {@link StreamingXMLSerializer}.
+ *
+ * @author Philip Helger
+ */
+public final class StreamingXMLSerializerTest
+{
+  private static final String TEST_XML = "<?xml version=\"1.0\"?>" +
+                                         "<!DOCTYPE verrryoot>" +
+                                         "<verrryoot xmlns=\"sthgelse\">" +
+                                         "<!-- arg - a comment -->" +
+                                         "<root xmlns=\"myuri\">" +
+                                         "<child xmlns=\"www.helger.com\">" +
+                                         "<a:child2 xmlns:a=\"foo\" a:attr=\"v\" b=\"&lt;\">Value text - no entities!</a:child2>" +
+                                         "&lt;entity&gt;<![CDATA[xxx]]><empty/>mixed<b>c</b></child>" +
+                                         "<!-- multi\nline -->" +
+                                         "<x><y/><z>text</z><?pi inside?></x>" +
+                                         "</root>" +
+                                         "<?target value?>" +
+                                         "</verrryoot>";
+
+  @Nonnull
+  private static String _stream (@Nonnull final IMicroNode aNode, @Nonnull final IXMLWriterSettings aSettings)
+  {
+    final NonBlockingStringWriter aSW = new NonBlockingStringWriter ();
+    try (final StreamingXMLSerializer aSerializer = new StreamingXMLSerializer (aSW, aSettings))
+    {
+      aSerializer.writeNode (aNode);
+    }
+    catch (final IOException ex)
+    {
+      throw new IllegalStateException (ex);
+    }
+    return aSW.getAsString ();
+  }
+
+  private static void _testSameAsMicroWriter (@Nonnull final IMicroNode aNode)
+  {
+    final MapBasedNamespaceContext aNC = new MapBasedNamespaceContext ();
+    aNC.addMapping ("f", "foo");
+    aNC.addMapping ("w", "www.helger.com");
+
+    for (final XMLWriterSettings aSettings : new XMLWriterSettings [] { new XMLWriterSettings (),
+                                                                        XMLWriterSettings.createForXHTML (),
+                                                                        XMLWriterSettings.createForHTML4 (),
+                                                                        XMLWriterSettings.createForHTML5 (),
+                                                                        XMLWriterSettings.createForCanonicalization (),
+                                                                        new XMLWriterSettings ().setEmitNamespaces (false),
+                                                                        new XMLWriterSettings ().setNamespaceContext (aNC),
+                                                                        new XMLWriterSettings ().setNamespaceContext (aNC)
+                                                                                                .setPutNamespaceContextPrefixesInRoot (true) })
+      for (final EXMLSerializeIndent eIndent : EXMLSerializeIndent.values ())
+        for (final EXMLSerializeComments eComments : EXMLSerializeComments.values ())
+        {
+          aSettings.setIndent (eIndent).setSerializeComments (eComments);
+          assertEquals (aSettings.toString (),
+                        MicroWriter.getNodeAsString (aNode, aSettings),
+                        _stream (aNode, aSettings));
+        }
+  }
+
+  @Test
+  public void testSameAsMicroWriter ()
+  {
+    final IMicroDocument aDoc = MicroReader.readMicroXML (TEST_XML);
+    _testSameAsMicroWriter (aDoc);
+    _testSameAsMicroWriter (aDoc.getDocumentElement ());
+    _testSameAsMicroWriter (new MicroDocument ());
+    _testSameAsMicroWriter (new MicroElement ("xyz"));
+
+    for (final String sPath : new String [] { "xml/buildinfo.xml",
+                                              "xml/list.xml",
+                                              "xml/xml-processing-instruction.xml",
+                                              "xml/xslt1.xml",
+                                              "xml/test1.xslt" })
+      _testSameAsMicroWriter (MicroReader.readMicroXML (new ClassPathResource (sPath)));
+  }
+
+  @Test
+  public void testEvents () throws IOException
+  {
+    final XMLWriterSettings aSettings = new XMLWriterSettings ();
+
+    // Build the same document as tree and as stream
+    final IMicroDocument aDoc = new MicroDocument ();
+    final IMicroElement eRoot = aDoc.appendElement ("urn:root", "root");
+    final NonBlockingStringWriter aSW = new NonBlockingStringWriter ();
+    try (final StreamingXMLSerializer aSerializer = new StreamingXMLSerializer (aSW, aSettings))
+    {
+      aSerializer.writeStartDocument ();
+      aSerializer.writeStartElement ("urn:root", "root");
+      for (int i = 0; i < 100; ++i)
+      {
+        final IMicroElement eItem = eRoot.appendElement ("urn:root", "item");
+        eItem.setAttribute ("id", Integer.toString (i));
+        eItem.setAttribute ("urn:other", "ref", "r" + i);
+        eItem.appendText ("Value <" + i + ">");
+
+        aSerializer.writeStartElement ("urn:root", "item")
+                   .writeAttribute ("id", Integer.toString (i))
+                   .writeAttribute ("urn:other", "ref", "r" + i)
+                   .writeText ("Value <" + i + ">")
+                   .writeEndElement ();
+        assertEquals (1, aSerializer.getOpenElementCount ());
+      }
+      // Root element is closed implicitly
+    }
+    assertEquals (MicroWriter.getNodeAsString (aDoc, aSettings), aSW.getAsString ());
+  }
+
+  @Test
+  public void testInvalidUsage () throws IOException
+  {
+    try (final StreamingXMLSerializer aSerializer = new StreamingXMLSerializer (new NonBlockingStringWriter (),
+                                                                                XMLWriterSettings.DEFAULT_XML_SETTINGS))
+    {
+      try
+      {
+        // No element open
+        aSerializer.writeAttribute ("a", "b");
+        fail ();
+      }
+      catch (final IllegalStateException ex)
+      {
+        // expected
+      }
+
+      aSerializer.writeStartElement ("a").writeText ("x");
+      try
+      {
+        // Attribute after content
+        aSerializer.writeAttribute ("a", "b");
+        fail ();
+      }
+      catch (final IllegalStateException ex)
+      {
+        // expected
+      }
+
+      aSerializer.writeEndElement ();
+      try
+      {
+        aSerializer.writeEndElement ();
+        fail ();
+      }
+      catch (final IllegalStateException ex)
+      {
+        // expected
+      }
+
+      try
+      {
+        // Start document must be first
+        aSerializer.writeStartDocument ();
+        fail ();
+      }
+      catch (final IllegalStateException ex)
+      {
+        // expected
+      }
+    }
+  }
+}
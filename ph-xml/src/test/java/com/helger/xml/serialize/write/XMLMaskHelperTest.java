@@ -20,9 +20,12 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
+import java.io.IOException;
+
 import org.junit.Test;
 
 import com.helger.commons.collection.ArrayHelper;
+import com.helger.commons.io.stream.NonBlockingStringWriter;
 
 /**
  * Test class for class {@link XMLMaskHelper}.
@@ -276,4 +279,32 @@ public final class XMLMaskHelperTest
                                                         EXMLIncorrectCharacterHandling.WRITE_TO_FILE_NO_LOG,
                                                         "1 & \u0001"));
   }
+
+  @Test
+  public void testMaskXMLTextToConsistency () throws IOException
+  {
+    // All paths must deliver the same result for all characters
+    final StringBuilder aSB = new StringBuilder ("a");
+    for (int i = 0; i <= 0xffff; ++i)
+      aSB.append ((char) i).append ('a');
+    final String sText = aSB.toString ();
+    final char [] aText = ("<>" + sText + "<>").toCharArray ();
+
+    for (final EXMLSerializeVersion eVersion : EXMLSerializeVersion.values ())
+      for (final EXMLCharMode eCharMode : EXMLCharMode.values ())
+        for (final EXMLIncorrectCharacterHandling eHandling : new EXMLIncorrectCharacterHandling [] { EXMLIncorrectCharacterHandling.WRITE_TO_FILE_NO_LOG,
+                                                                                                     EXMLIncorrectCharacterHandling.DO_NOT_WRITE_NO_LOG })
+        {
+          final String sExpected = new String (XMLMaskHelper.getMaskedXMLText (eVersion, eCharMode, eHandling, sText));
+          assertEquals (sExpected.length (), XMLMaskHelper.getMaskedXMLTextLength (eVersion, eCharMode, eHandling, sText));
+
+          final NonBlockingStringWriter aSW = new NonBlockingStringWriter ();
+          XMLMaskHelper.maskXMLTextTo (eVersion, eCharMode, eHandling, sText, aSW);
+          assertEquals (sExpected, aSW.getAsString ());
+
+          final NonBlockingStringWriter aSW2 = new NonBlockingStringWriter ();
+          XMLMaskHelper.maskXMLTextTo (eVersion, eCharMode, eHandling, aText, 2, sText.length (), aSW2);
+          assertEquals (sExpected, aSW2.getAsString ());
+        }
+  }
 }
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import javax.xml.transform.Templates;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.io.resource.ClassPathResource;
+import com.helger.commons.io.resource.IReadableResource;
+
+/**
+ * Test class for class {@link TemplatesCache}.
+ *
+ * @author Philip Helger
+ */
+public final class TemplatesCacheTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final TemplatesCache aCache = TemplatesCache.getInstance ();
+    assertNotNull (aCache);
+    assertTrue (TemplatesCache.isInstantiated ());
+    aCache.clearCache ();
+
+    final IReadableResource aRes1 = new ClassPathResource ("xml/test1.xslt");
+    final Templates t1 = aCache.getTemplates (aRes1);
+    assertNotNull (t1);
+    assertNotNull (aCache.getCompileDuration (new CommonsArrayList <> (aRes1)));
+    assertSame (t1, aCache.getTemplates (new ClassPathResource ("xml/test1.xslt")));
+    assertNotNull (aCache.getTemplates (new ClassPathResource ("xml/test2.xslt")));
+    assertEquals (2, aCache.size ());
+
+    // Not an XSLT
+    try
+    {
+      aCache.getTemplates (new ClassPathResource ("test1.txt"));
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {}
+    assertEquals (2, aCache.size ());
+
+    assertTrue (aCache.removeFromCache (aRes1).isChanged ());
+    assertFalse (aCache.removeFromCache (aRes1).isChanged ());
+    assertEquals (1, aCache.getAllCompileDurations ().size ());
+    assertTrue (aCache.clearCache ().isChanged ());
+  }
+
+  @Test
+  public void testPrewarm ()
+  {
+    final TemplatesCache aCache = new TemplatesCache (new DoNothingTransformErrorListener (), null);
+    assertTrue (aCache.prewarm (new CommonsArrayList <> (new CommonsArrayList <> (new ClassPathResource ("xml/test1.xslt")),
+                                                         new CommonsArrayList <> (new ClassPathResource ("xml/test2.xslt"))),
+                                4)
+                      .isEmpty ());
+    assertEquals (2, aCache.size ());
+    assertEquals (2, aCache.getAllCompileDurations ().size ());
+  }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2014-2020 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.xpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.xpath.XPathConstants;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import com.helger.commons.concurrent.ExecutorServiceHelper;
+import com.helger.xml.namespace.MapBasedNamespaceContext;
+import com.helger.xml.serialize.read.DOMReader;
+
+/**
+ * Test class for class {@link XPathExpressionCache}.
+ *
+ * @author Philip Helger
+ */
+public final class XPathExpressionCacheTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final Document aDoc = DOMReader.readXMLDOM ("<root xmlns='urn:x'><a>1</a><a>2</a></root>");
+    final MapBasedNamespaceContext aNSCtx = new MapBasedNamespaceContext ().addMapping ("x", "urn:x");
+    final MapBasedXPathVariableResolver aVarResolver = new MapBasedXPathVariableResolver ();
+    aVarResolver.addUniqueVariable ("v", "2");
+
+    final XPathExpressionCache aCache = new XPathExpressionCache (XPathHelper.getDefaultXPathFactory (),
+                                                                  XPathExpressionCache.DEFAULT_MAX_SIZE,
+                                                                  XPathExpressionCache.DEFAULT_MAX_INSTANCES_PER_EXPRESSION,
+                                                                  true);
+    assertTrue (aCache.isCacheCustomContexts ());
+    assertEquals (0, aCache.size ());
+    assertEquals (Double.valueOf (2),
+                  aCache.evaluate (null, null, aNSCtx, "count(/x:root/x:a)", aDoc, XPathConstants.NUMBER));
+    assertEquals (1, aCache.size ());
+    assertTrue (aCache.isInCache (null, null, aNSCtx, "count(/x:root/x:a)"));
+    assertFalse (aCache.isInCache (null, null, null, "count(/x:root/x:a)"));
+
+    // Reused
+    assertEquals (Double.valueOf (2),
+                  aCache.evaluate (null, null, aNSCtx, "count(/x:root/x:a)", aDoc, XPathConstants.NUMBER));
+    assertEquals (1, aCache.size ());
+
+    // Variable resolver is evaluated at runtime
+    assertEquals (Boolean.TRUE,
+                  aCache.evaluate (aVarResolver, null, aNSCtx, "/x:root/x:a[2] = $v", aDoc, XPathConstants.BOOLEAN));
+    aVarResolver.setAllVariables (null);
+    aVarResolver.addUniqueVariable ("v", "3");
+    assertEquals (Boolean.FALSE,
+                  aCache.evaluate (aVarResolver, null, aNSCtx, "/x:root/x:a[2] = $v", aDoc, XPathConstants.BOOLEAN));
+    assertEquals (2, aCache.size ());
+
+    // Invalid expressions are not cached
+    try
+    {
+      aCache.evaluate (null, null, null, "/root[", aDoc, XPathConstants.NODE);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {}
+    assertEquals (2, aCache.size ());
+
+    assertTrue (aCache.clearCache ().isChanged ());
+    assertEquals (0, aCache.size ());
+  }
+
+  @Test
+  public void testCustomContextsNotCachedByDefault ()
+  {
+    final Document aDoc = DOMReader.readXMLDOM ("<root xmlns='urn:x'><a>1</a><a>2</a></root>");
+    final XPathExpressionCache aCache = new XPathExpressionCache ();
+    assertFalse (aCache.isCacheCustomContexts ());
+
+    // A new namespace context and resolver per evaluation
+    for (int i = 0; i < 5; ++i)
+    {
+      final MapBasedNamespaceContext aNSCtx = new MapBasedNamespaceContext ().addMapping ("x", "urn:x");
+      final MapBasedXPathVariableResolver aVarResolver = new MapBasedXPathVariableResolver ();
+      aVarResolver.addUniqueVariable ("v", Integer.toString (i));
+      assertEquals (Boolean.valueOf (i == 2),
+                    aCache.evaluate (aVarResolver, null, aNSCtx, "/x:root/x:a[2] = $v", aDoc, XPathConstants.BOOLEAN));
+      assertFalse (aCache.isInCache (aVarResolver, null, aNSCtx, "/x:root/x:a[2] = $v"));
+    }
+    assertEquals (0, aCache.size ());
+
+    // Expressions without context are cached
+    assertEquals ("2", aCache.evaluate (null, null, null, "count(/*/*)", aDoc, XPathConstants.STRING));
+    assertTrue (aCache.isInCache (null, null, null, "count(/*/*)"));
+    assertEquals (1, aCache.size ());
+
+    // Invalid expressions are still reported
+    try
+    {
+      aCache.evaluate (null, null, new MapBasedNamespaceContext (), "/root[", aDoc, XPathConstants.NODE);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {}
+  }
+
+  @Test
+  public void testConcurrent ()
+  {
+    final XPathExpressionCache aCache = new XPathExpressionCache (XPathHelper.createXPathFactorySaxonFirst (), 10, 2);
+    final AtomicInteger aErrors = new AtomicInteger (0);
+    final ExecutorService aES = Executors.newFixedThreadPool (8);
+    for (int i = 0; i < 1000; ++i)
+    {
+      final int nIndex = i % 2 + 1;
+      aES.submit ( () -> {
+        // DOM documents are not thread-safe
+        final Document aDoc = DOMReader.readXMLDOM ("<root><a>1</a><a>2</a></root>");
+        if (!Integer.toString (nIndex)
+                    .equals (aCache.evaluate (null, null, null, "/root/a[" + nIndex + "]", aDoc, XPathConstants.STRING)))
+          aErrors.incrementAndGet ();
+      });
+    }
+    ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aES);
+    assertEquals (0, aErrors.get ());
+    assertEquals (2, aCache.size ());
+  }
+}